@@ -0,0 +1,100 @@
+package com.gestureai.gameautomation;
+
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class-aware weighted non-maximum suppression for merging the outputs of
+ * several detection backends run on the same frame.
+ * Overlapping boxes with the same label are merged into one box whose
+ * coordinates are the confidence-weighted mean of the cluster.
+ */
+public class DetectionFusion {
+    public static final String FUSED_METHOD = "Fused";
+
+    private float iouThreshold;
+
+    public DetectionFusion(float iouThreshold) {
+        this.iouThreshold = iouThreshold;
+    }
+
+    public void setIouThreshold(float iouThreshold) {
+        this.iouThreshold = Math.max(0.0f, Math.min(1.0f, iouThreshold));
+    }
+
+    public float getIouThreshold() {
+        return iouThreshold;
+    }
+
+    public List<ObjectDetectionEngine.DetectedObject> fuse(List<ObjectDetectionEngine.DetectedObject> detections) {
+        List<ObjectDetectionEngine.DetectedObject> fused = new ArrayList<>();
+        int count = detections.size();
+        if (count == 0) {
+            return fused;
+        }
+
+        List<ObjectDetectionEngine.DetectedObject> sorted = new ArrayList<>(detections);
+        Collections.sort(sorted, (a, b) -> Float.compare(b.confidence, a.confidence));
+        boolean[] suppressed = new boolean[count];
+
+        for (int i = 0; i < count; i++) {
+            if (suppressed[i]) continue;
+            ObjectDetectionEngine.DetectedObject anchor = sorted.get(i);
+
+            float weight = anchor.confidence;
+            float left = anchor.boundingBox.left * weight;
+            float top = anchor.boundingBox.top * weight;
+            float right = anchor.boundingBox.right * weight;
+            float bottom = anchor.boundingBox.bottom * weight;
+            boolean mixedMethods = false;
+
+            for (int j = i + 1; j < count; j++) {
+                if (suppressed[j]) continue;
+                ObjectDetectionEngine.DetectedObject other = sorted.get(j);
+                if (!sameClass(anchor, other) || iou(anchor.boundingBox, other.boundingBox) < iouThreshold) {
+                    continue;
+                }
+
+                suppressed[j] = true;
+                float w = other.confidence;
+                left += other.boundingBox.left * w;
+                top += other.boundingBox.top * w;
+                right += other.boundingBox.right * w;
+                bottom += other.boundingBox.bottom * w;
+                weight += w;
+                mixedMethods |= !anchor.detectionMethod.equals(other.detectionMethod);
+            }
+
+            if (weight <= 0f) {
+                fused.add(anchor);
+                continue;
+            }
+
+            RectF box = new RectF(left / weight, top / weight, right / weight, bottom / weight);
+            fused.add(new ObjectDetectionEngine.DetectedObject(anchor.label, anchor.confidence, box,
+                    mixedMethods ? FUSED_METHOD : anchor.detectionMethod));
+        }
+
+        return fused;
+    }
+
+    private static boolean sameClass(ObjectDetectionEngine.DetectedObject a, ObjectDetectionEngine.DetectedObject b) {
+        return a.label != null && a.label.equalsIgnoreCase(b.label);
+    }
+
+    public static float iou(RectF a, RectF b) {
+        float interLeft = Math.max(a.left, b.left);
+        float interTop = Math.max(a.top, b.top);
+        float interRight = Math.min(a.right, b.right);
+        float interBottom = Math.min(a.bottom, b.bottom);
+        if (interRight <= interLeft || interBottom <= interTop) {
+            return 0f;
+        }
+        float inter = (interRight - interLeft) * (interBottom - interTop);
+        float union = a.width() * a.height() + b.width() * b.height() - inter;
+        return union > 0f ? inter / union : 0f;
+    }
+}
@@ -0,0 +1,450 @@
+package com.gestureai.gameautomation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Template reader for numeric HUD text (digits and the few symbols around
+ * them, e.g. "30/120", "85%", "1:45") in a game's own font.
+ *
+ * A region is binarized at the midpoint of its luminance range, with the
+ * minority side taken as text, split into text lines by row projection and
+ * into glyphs by column projection. Each glyph is scaled by its line height
+ * into a 16x24 bit cell packed in six longs and compared against every
+ * template with XOR and bit counts, 64 pixels per operation. Templates are
+ * the per-pixel majority of labelled samples, learned per game from a few
+ * frames. Readings carry the weakest glyph's score so callers can fall back
+ * to full OCR when it is low.
+ *
+ * Pure Java (no android.* types) so it can be unit tested on any JVM.
+ */
+public class DigitRecognizer {
+
+    public static final String DEFAULT_GAME = "default";
+
+    static final int CELL_WIDTH = 16;
+    static final int CELL_HEIGHT = 24;
+    static final int CELL_BITS = CELL_WIDTH * CELL_HEIGHT;
+    static final int CELL_WORDS = CELL_BITS / 64;
+
+    private static final int MAGIC = 0x47444947; // "GDIG"
+    private static final byte VERSION = 1;
+
+    // Lines shorter than this are noise; glyphs need this many pixels
+    private static final int MIN_LINE_HEIGHT = 6;
+    private static final int MIN_GLYPH_PIXELS = 2;
+    private static final int MIN_CONTRAST = 48;
+
+    private static final Map<String, DigitRecognizer> BY_GAME = new ConcurrentHashMap<>();
+
+    /**
+     * Shared recognizer for a game, created empty on first use
+     */
+    public static DigitRecognizer forGame(String gameId) {
+        return BY_GAME.computeIfAbsent(gameId != null ? gameId : DEFAULT_GAME, id -> new DigitRecognizer());
+    }
+
+    public static class Reading {
+        public final String text;
+        public final float confidence;
+        public final int glyphs;
+
+        Reading(String text, float confidence, int glyphs) {
+            this.text = text;
+            this.confidence = confidence;
+            this.glyphs = glyphs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("\"%s\" %.2f", text, confidence);
+        }
+    }
+
+    private static final Reading EMPTY = new Reading("", 0f, 0);
+
+    private static class Template {
+        final char symbol;
+        final int[] counts = new int[CELL_BITS];
+        int samples;
+
+        Template(char symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    private final Map<Character, Template> templates = new ConcurrentHashMap<>();
+    private float minConfidence = 0.85f;
+    private float minMargin = 0.03f;
+
+    // Majority bits of all templates, flat, rebuilt after learning
+    private char[] symbols = new char[0];
+    private long[] templateBits = new long[0];
+    private float widthSum;
+    private int widthSamples;
+    // Widest gap seen between glyphs of one word, relative to line height
+    private float maxWordGap;
+
+    // Scratch for one region, grown as needed
+    private boolean[] foreground = new boolean[0];
+    private int[] rowCounts = new int[0];
+    private int[] columnCounts = new int[0];
+    private int[] glyphStarts = new int[0];
+    private int[] glyphEnds = new int[0];
+    private final long[] cell = new long[CELL_WORDS];
+    private final StringBuilder text = new StringBuilder();
+
+    public synchronized void setMinConfidence(float confidence) { this.minConfidence = confidence; }
+    public synchronized void setMinMargin(float margin) { this.minMargin = margin; }
+
+    public boolean hasTemplates() {
+        return !templates.isEmpty();
+    }
+
+    public synchronized boolean isConfident(Reading reading) {
+        return reading.glyphs > 0 && reading.confidence >= minConfidence;
+    }
+
+    /**
+     * Read the text in an ARGB region; pixels[offset + y * stride + x]
+     */
+    public synchronized Reading read(int[] pixels, int offset, int stride, int width, int height) {
+        if (symbols.length == 0 || !binarize(pixels, offset, stride, width, height)) {
+            return EMPTY;
+        }
+        text.setLength(0);
+        float confidence = 1f;
+        int glyphCount = 0;
+
+        int y = 0;
+        while ((y = nextLine(y, height)) < height) {
+            int top = y;
+            while (y < height && rowCounts[y] > 0) y++;
+            int bottom = y;
+            if (bottom - top < MIN_LINE_HEIGHT) continue;
+
+            int glyphs = segmentGlyphs(width, top, bottom);
+            if (glyphs > 0 && text.length() > 0) text.append(' ');
+            int lineHeight = bottom - top;
+            float spaceGap = Math.max(0.5f, maxWordGap * 1.5f) * lineHeight;
+            for (int g = 0; g < glyphs; g++) {
+                if (g > 0 && glyphStarts[g] - glyphEnds[g - 1] > spaceGap) {
+                    text.append(' ');
+                }
+                fillCell(width, top, bottom, glyphStarts[g], glyphEnds[g]);
+                confidence = Math.min(confidence, matchCell());
+                glyphCount++;
+            }
+        }
+        if (glyphCount == 0) return EMPTY;
+        return new Reading(text.toString(), confidence, glyphCount);
+    }
+
+    /**
+     * Add a labelled region to the templates. The label's non-space
+     * characters must pair up with the glyphs found, in reading order;
+     * returns false and learns nothing otherwise.
+     */
+    public synchronized boolean learn(int[] pixels, int offset, int stride, int width, int height, String label) {
+        String symbolsInLabel = label.replaceAll("\\s+", "");
+        if (symbolsInLabel.isEmpty() || !binarize(pixels, offset, stride, width, height)) {
+            return false;
+        }
+
+        // Collect all glyph cells first so a count mismatch learns nothing
+        long[] cells = new long[symbolsInLabel.length() * CELL_WORDS];
+        int glyphCount = 0;
+        float lineWidths = 0f;
+        float wordGap = maxWordGap;
+        int labelPosition = -1;
+        int y = 0;
+        while ((y = nextLine(y, height)) < height) {
+            int top = y;
+            while (y < height && rowCounts[y] > 0) y++;
+            int bottom = y;
+            if (bottom - top < MIN_LINE_HEIGHT) continue;
+
+            int glyphs = segmentGlyphs(width, top, bottom);
+            for (int g = 0; g < glyphs; g++) {
+                if (glyphCount == symbolsInLabel.length()) return false;
+                // Pairs with no space between them in the label bound the word gap
+                int previous = labelPosition++;
+                while (Character.isWhitespace(label.charAt(labelPosition))) labelPosition++;
+                if (g > 0 && labelPosition == previous + 1) {
+                    wordGap = Math.max(wordGap, (float) (glyphStarts[g] - glyphEnds[g - 1]) / (bottom - top));
+                }
+                fillCell(width, top, bottom, glyphStarts[g], glyphEnds[g]);
+                System.arraycopy(cell, 0, cells, glyphCount * CELL_WORDS, CELL_WORDS);
+                lineWidths += (float) (glyphEnds[g] - glyphStarts[g]) / (bottom - top);
+                glyphCount++;
+            }
+        }
+        if (glyphCount != symbolsInLabel.length()) return false;
+
+        for (int g = 0; g < glyphCount; g++) {
+            char symbol = symbolsInLabel.charAt(g);
+            Template template = templates.computeIfAbsent(symbol, Template::new);
+            for (int bit = 0; bit < CELL_BITS; bit++) {
+                if ((cells[g * CELL_WORDS + (bit >>> 6)] & (1L << bit)) != 0) {
+                    template.counts[bit]++;
+                }
+            }
+            template.samples++;
+        }
+        widthSum += lineWidths;
+        widthSamples += glyphCount;
+        maxWordGap = wordGap;
+        rebuildTemplates();
+        return true;
+    }
+
+    public synchronized String getLearnedSymbols() {
+        return new String(symbols);
+    }
+
+    public synchronized void clear() {
+        templates.clear();
+        widthSum = 0f;
+        widthSamples = 0;
+        maxWordGap = 0f;
+        rebuildTemplates();
+    }
+
+    private void rebuildTemplates() {
+        Character[] keys = templates.keySet().toArray(new Character[0]);
+        Arrays.sort(keys);
+        symbols = new char[keys.length];
+        templateBits = new long[keys.length * CELL_WORDS];
+        for (int t = 0; t < keys.length; t++) {
+            Template template = templates.get(keys[t]);
+            symbols[t] = template.symbol;
+            for (int bit = 0; bit < CELL_BITS; bit++) {
+                if (template.counts[bit] * 2 > template.samples) {
+                    templateBits[t * CELL_WORDS + (bit >>> 6)] |= 1L << bit;
+                }
+            }
+        }
+    }
+
+    /**
+     * Best template for the current cell; returns its score, or 0 when the
+     * runner-up is too close to call
+     */
+    private float matchCell() {
+        int best = CELL_BITS + 1;
+        int second = CELL_BITS + 1;
+        int bestIndex = 0;
+        for (int t = 0, base = 0; t < symbols.length; t++, base += CELL_WORDS) {
+            int distance = Long.bitCount(cell[0] ^ templateBits[base])
+                    + Long.bitCount(cell[1] ^ templateBits[base + 1])
+                    + Long.bitCount(cell[2] ^ templateBits[base + 2])
+                    + Long.bitCount(cell[3] ^ templateBits[base + 3])
+                    + Long.bitCount(cell[4] ^ templateBits[base + 4])
+                    + Long.bitCount(cell[5] ^ templateBits[base + 5]);
+            if (distance < best) {
+                second = best;
+                best = distance;
+                bestIndex = t;
+            } else if (distance < second) {
+                second = distance;
+            }
+        }
+        text.append(symbols[bestIndex]);
+        float score = 1f - (float) best / CELL_BITS;
+        if (symbols.length > 1 && (float) (second - best) / CELL_BITS < minMargin) {
+            return 0f;
+        }
+        return score;
+    }
+
+    /**
+     * Threshold at the midpoint of the luminance range; the side with fewer
+     * pixels is the text. Fills row counts. Returns false for flat regions.
+     */
+    private boolean binarize(int[] pixels, int offset, int stride, int width, int height) {
+        int size = width * height;
+        if (size <= 0) return false;
+        if (foreground.length < size) foreground = new boolean[size];
+        if (rowCounts.length < height) rowCounts = new int[height];
+        if (columnCounts.length < width) {
+            columnCounts = new int[width];
+            glyphStarts = new int[width];
+            glyphEnds = new int[width];
+        }
+
+        int min = 255;
+        int max = 0;
+        for (int y = 0; y < height; y++) {
+            int row = offset + y * stride;
+            for (int x = 0; x < width; x++) {
+                int luma = luma(pixels[row + x]);
+                if (luma < min) min = luma;
+                if (luma > max) max = luma;
+            }
+        }
+        if (max - min < MIN_CONTRAST) return false;
+
+        int threshold = (min + max) >>> 1;
+        int bright = 0;
+        for (int y = 0; y < height; y++) {
+            int row = offset + y * stride;
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                boolean above = luma(pixels[row + x]) > threshold;
+                foreground[out + x] = above;
+                if (above) bright++;
+            }
+        }
+        boolean darkText = bright * 2 > size;
+        for (int y = 0; y < height; y++) {
+            int out = y * width;
+            int count = 0;
+            for (int x = 0; x < width; x++) {
+                if (darkText) foreground[out + x] = !foreground[out + x];
+                if (foreground[out + x]) count++;
+            }
+            rowCounts[y] = count;
+        }
+        return true;
+    }
+
+    private int nextLine(int y, int height) {
+        while (y < height && rowCounts[y] == 0) y++;
+        return y;
+    }
+
+    /**
+     * Column runs with text between top and bottom; runs much wider than a
+     * learned glyph are cut at their thinnest columns. Returns the glyph count.
+     */
+    private int segmentGlyphs(int width, int top, int bottom) {
+        Arrays.fill(columnCounts, 0, width, 0);
+        for (int y = top; y < bottom; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                if (foreground[row + x]) columnCounts[x]++;
+            }
+        }
+
+        float expectedWidth = (widthSamples > 0 ? widthSum / widthSamples : 0.6f) * (bottom - top);
+        int glyphs = 0;
+        int x = 0;
+        while (x < width) {
+            while (x < width && columnCounts[x] == 0) x++;
+            if (x == width) break;
+            int start = x;
+            int pixels = 0;
+            while (x < width && columnCounts[x] > 0) pixels += columnCounts[x++];
+            if (pixels < MIN_GLYPH_PIXELS) continue;
+
+            int runWidth = x - start;
+            int parts = expectedWidth > 0 && runWidth > 1.6f * expectedWidth
+                    ? Math.round(runWidth / expectedWidth) : 1;
+            int partStart = start;
+            for (int p = 1; p < parts; p++) {
+                // Cut at the thinnest column near the even split point
+                int target = start + runWidth * p / parts;
+                int window = Math.max(1, Math.round(expectedWidth / 4));
+                int cut = target;
+                for (int c = Math.max(partStart + 1, target - window); c <= Math.min(x - 1, target + window); c++) {
+                    if (columnCounts[c] < columnCounts[cut]) cut = c;
+                }
+                glyphStarts[glyphs] = partStart;
+                glyphEnds[glyphs++] = cut;
+                partStart = cut;
+            }
+            glyphStarts[glyphs] = partStart;
+            glyphEnds[glyphs++] = x;
+        }
+        return glyphs;
+    }
+
+    /**
+     * Scale a glyph into the cell by its line height, centered horizontally,
+     * so narrow glyphs stay narrow and small ones stay small
+     */
+    private void fillCell(int width, int top, int bottom, int left, int right) {
+        Arrays.fill(cell, 0L);
+        int lineHeight = bottom - top;
+        int glyphWidth = right - left;
+        // Cell pixels per source pixel, limited so wide glyphs still fit
+        float scale = Math.min((float) CELL_HEIGHT / lineHeight, (float) CELL_WIDTH / glyphWidth);
+        int cellWidth = Math.max(1, Math.min(CELL_WIDTH, Math.round(glyphWidth * scale)));
+        int cellHeight = Math.max(1, Math.min(CELL_HEIGHT, Math.round(lineHeight * scale)));
+        int offsetX = (CELL_WIDTH - cellWidth) / 2;
+        int offsetY = (CELL_HEIGHT - cellHeight) / 2;
+
+        for (int cy = 0; cy < cellHeight; cy++) {
+            int sourceRow = (top + (cy * lineHeight + lineHeight / 2) / cellHeight) * width;
+            int bitRow = (offsetY + cy) * CELL_WIDTH + offsetX;
+            for (int cx = 0; cx < cellWidth; cx++) {
+                if (foreground[sourceRow + left + (cx * glyphWidth + glyphWidth / 2) / cellWidth]) {
+                    int bit = bitRow + cx;
+                    cell[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+    }
+
+    private static int luma(int argb) {
+        return (((argb >> 16) & 0xFF) * 77 + ((argb >> 8) & 0xFF) * 150 + (argb & 0xFF) * 29) >>> 8;
+    }
+
+    /**
+     * Templates as sample counts, so learning can continue after a reload
+     */
+    public synchronized void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeFloat(widthSum);
+        out.writeInt(widthSamples);
+        out.writeFloat(maxWordGap);
+        out.writeShort(templates.size());
+        for (Template template : templates.values()) {
+            out.writeChar(template.symbol);
+            out.writeInt(template.samples);
+            for (int count : template.counts) {
+                out.writeShort(Math.min(count, Short.MAX_VALUE));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Replace the templates with ones written by write()
+     */
+    public synchronized void read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC) throw new IOException("Not a digit template file");
+        byte version = in.readByte();
+        if (version != VERSION) throw new IOException("Unsupported digit template version " + version);
+        float widths = in.readFloat();
+        int widthCount = in.readInt();
+        float wordGap = in.readFloat();
+        int count = in.readUnsignedShort();
+        Map<Character, Template> loaded = new ConcurrentHashMap<>();
+        for (int t = 0; t < count; t++) {
+            Template template = new Template(in.readChar());
+            template.samples = in.readInt();
+            for (int bit = 0; bit < CELL_BITS; bit++) {
+                template.counts[bit] = in.readUnsignedShort();
+            }
+            loaded.put(template.symbol, template);
+        }
+        templates.clear();
+        templates.putAll(loaded);
+        widthSum = widths;
+        widthSamples = widthCount;
+        maxWordGap = wordGap;
+        rebuildTemplates();
+    }
+}
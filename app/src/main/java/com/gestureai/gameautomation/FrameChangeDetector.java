@@ -0,0 +1,230 @@
+package com.gestureai.gameautomation;
+
+/**
+ * Cheap change gate in front of the detectors.
+ * Frames are reduced to a coarse luminance grid and compared tile by tile
+ * (sum of absolute differences) against the last frame that was actually
+ * detected. Unchanged frames are skipped, frames with a few dirty tiles can be
+ * re-detected on just that region, and the skip threshold rises when the
+ * detectors are slow or the device is hot or low on battery.
+ */
+public class FrameChangeDetector {
+
+    public enum Decision { FULL, PARTIAL, SKIP }
+
+    // Luminance grid and tile layout; each tile covers 8x6 samples
+    public static final int GRID_WIDTH = 64;
+    public static final int GRID_HEIGHT = 36;
+    private static final int TILES_X = 8;
+    private static final int TILES_Y = 6;
+    private static final int TILE_W = GRID_WIDTH / TILES_X;
+    private static final int TILE_H = GRID_HEIGHT / TILES_Y;
+    private static final int SAMPLES_PER_TILE = TILE_W * TILE_H;
+
+    private final int[] currentLuma = new int[GRID_WIDTH * GRID_HEIGHT];
+    private final int[] referenceLuma = new int[GRID_WIDTH * GRID_HEIGHT];
+    private final boolean[] dirtyTiles = new boolean[TILES_X * TILES_Y];
+    private boolean hasReference = false;
+
+    // Mean absolute luma difference per sample that marks a tile dirty
+    private float baseTileThreshold = 6.0f;
+    private float partialFraction = 0.35f;
+    private int maxConsecutiveSkips = 15;
+    private float targetLatencyMs = 33.0f;
+
+    private float detectorLatencyMs = 0f;
+    private float powerPressure = 0f;
+    private int consecutiveSkips = 0;
+    private int dirtyCount = 0;
+
+    // Gate statistics
+    private long framesEvaluated = 0;
+    private long framesSkipped = 0;
+    private long framesPartial = 0;
+    private double savedMillis = 0;
+
+    /**
+     * Fill one row of the luminance grid from ARGB pixels of a full-width source row
+     */
+    public void putSampleRow(int gridRow, int[] argbRow, int sourceWidth) {
+        int offset = gridRow * GRID_WIDTH;
+        for (int gx = 0; gx < GRID_WIDTH; gx++) {
+            int x = ((2 * gx + 1) * sourceWidth) / (2 * GRID_WIDTH);
+            currentLuma[offset + gx] = luma(argbRow[x]);
+        }
+    }
+
+    public void putSample(int gridX, int gridY, int argb) {
+        currentLuma[gridY * GRID_WIDTH + gridX] = luma(argb);
+    }
+
+    /**
+     * Source row to sample for a given grid row
+     */
+    public static int sourceRowFor(int gridRow, int sourceHeight) {
+        return ((2 * gridRow + 1) * sourceHeight) / (2 * GRID_HEIGHT);
+    }
+
+    public static int sourceColumnFor(int gridColumn, int sourceWidth) {
+        return ((2 * gridColumn + 1) * sourceWidth) / (2 * GRID_WIDTH);
+    }
+
+    /**
+     * Compare the sampled grid against the reference and decide how much to detect.
+     * On FULL/PARTIAL the dirty tiles become the new reference.
+     */
+    public synchronized Decision evaluate() {
+        framesEvaluated++;
+
+        if (!hasReference) {
+            System.arraycopy(currentLuma, 0, referenceLuma, 0, currentLuma.length);
+            hasReference = true;
+            consecutiveSkips = 0;
+            markAllDirty();
+            return Decision.FULL;
+        }
+
+        int threshold = (int) (getEffectiveThreshold() * SAMPLES_PER_TILE);
+        dirtyCount = 0;
+        for (int ty = 0; ty < TILES_Y; ty++) {
+            for (int tx = 0; tx < TILES_X; tx++) {
+                int sad = 0;
+                int base = ty * TILE_H * GRID_WIDTH + tx * TILE_W;
+                for (int y = 0; y < TILE_H; y++) {
+                    int i = base + y * GRID_WIDTH;
+                    for (int x = 0; x < TILE_W; x++, i++) {
+                        sad += Math.abs(currentLuma[i] - referenceLuma[i]);
+                    }
+                }
+                boolean dirty = sad > threshold;
+                dirtyTiles[ty * TILES_X + tx] = dirty;
+                if (dirty) dirtyCount++;
+            }
+        }
+
+        if (dirtyCount == 0 && consecutiveSkips < getMaxSkipsForPressure()) {
+            consecutiveSkips++;
+            framesSkipped++;
+            savedMillis += detectorLatencyMs;
+            return Decision.SKIP;
+        }
+
+        consecutiveSkips = 0;
+        if (dirtyCount == 0) {
+            // Forced refresh after too many skips
+            markAllDirty();
+        }
+
+        if (dirtyCount < dirtyTiles.length && dirtyCount <= partialFraction * dirtyTiles.length) {
+            framesPartial++;
+            copyDirtyTilesToReference();
+            return Decision.PARTIAL;
+        }
+
+        markAllDirty();
+        System.arraycopy(currentLuma, 0, referenceLuma, 0, currentLuma.length);
+        return Decision.FULL;
+    }
+
+    /**
+     * Pixel bounds {left, top, right, bottom} covering all dirty tiles of the last evaluation
+     */
+    public synchronized int[] getDirtyBounds(int frameWidth, int frameHeight) {
+        int minX = TILES_X, minY = TILES_Y, maxX = -1, maxY = -1;
+        for (int ty = 0; ty < TILES_Y; ty++) {
+            for (int tx = 0; tx < TILES_X; tx++) {
+                if (dirtyTiles[ty * TILES_X + tx]) {
+                    minX = Math.min(minX, tx);
+                    minY = Math.min(minY, ty);
+                    maxX = Math.max(maxX, tx);
+                    maxY = Math.max(maxY, ty);
+                }
+            }
+        }
+        if (maxX < 0) {
+            return new int[]{0, 0, frameWidth, frameHeight};
+        }
+        return new int[]{
+                minX * frameWidth / TILES_X,
+                minY * frameHeight / TILES_Y,
+                (maxX + 1) * frameWidth / TILES_X,
+                (maxY + 1) * frameHeight / TILES_Y
+        };
+    }
+
+    /**
+     * Feed back how long detection took. Partial runs also credit the time saved
+     * versus a full run.
+     */
+    public synchronized void recordDetectorLatency(float millis, Decision decision) {
+        if (decision == Decision.FULL) {
+            detectorLatencyMs = detectorLatencyMs == 0f ? millis : detectorLatencyMs * 0.9f + millis * 0.1f;
+        } else if (decision == Decision.PARTIAL && detectorLatencyMs > millis) {
+            savedMillis += detectorLatencyMs - millis;
+        }
+    }
+
+    /**
+     * 0 = cool and charged, 1 = throttling or nearly empty. Raises the skip threshold.
+     */
+    public synchronized void setPowerPressure(float pressure) {
+        this.powerPressure = Math.max(0f, Math.min(1f, pressure));
+    }
+
+    public synchronized float getEffectiveThreshold() {
+        float latencyFactor = targetLatencyMs > 0 ?
+                Math.max(0f, Math.min(2f, (detectorLatencyMs - targetLatencyMs) / targetLatencyMs)) : 0f;
+        return baseTileThreshold * (1f + 0.5f * latencyFactor + powerPressure);
+    }
+
+    private int getMaxSkipsForPressure() {
+        return (int) (maxConsecutiveSkips * (1f + powerPressure));
+    }
+
+    private void markAllDirty() {
+        for (int i = 0; i < dirtyTiles.length; i++) {
+            dirtyTiles[i] = true;
+        }
+        dirtyCount = dirtyTiles.length;
+    }
+
+    private void copyDirtyTilesToReference() {
+        for (int ty = 0; ty < TILES_Y; ty++) {
+            for (int tx = 0; tx < TILES_X; tx++) {
+                if (!dirtyTiles[ty * TILES_X + tx]) continue;
+                int base = ty * TILE_H * GRID_WIDTH + tx * TILE_W;
+                for (int y = 0; y < TILE_H; y++) {
+                    int i = base + y * GRID_WIDTH;
+                    System.arraycopy(currentLuma, i, referenceLuma, i, TILE_W);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget the reference frame, e.g. after a scene change or when detection settings change
+     */
+    public synchronized void reset() {
+        hasReference = false;
+        consecutiveSkips = 0;
+    }
+
+    public synchronized void setBaseTileThreshold(float threshold) { this.baseTileThreshold = Math.max(0f, threshold); }
+    public synchronized void setPartialFraction(float fraction) { this.partialFraction = Math.max(0f, Math.min(1f, fraction)); }
+    public synchronized void setMaxConsecutiveSkips(int maxSkips) { this.maxConsecutiveSkips = Math.max(0, maxSkips); }
+    public synchronized void setTargetLatencyMs(float targetMs) { this.targetLatencyMs = targetMs; }
+
+    public synchronized long getFramesEvaluated() { return framesEvaluated; }
+    public synchronized long getFramesSkipped() { return framesSkipped; }
+    public synchronized long getFramesPartial() { return framesPartial; }
+    public synchronized double getSavedMillis() { return savedMillis; }
+    public synchronized float getDetectorLatencyMs() { return detectorLatencyMs; }
+
+    public synchronized float getSkipRatio() {
+        return framesEvaluated > 0 ? (float) framesSkipped / framesEvaluated : 0f;
+    }
+
+    private static int luma(int argb) {
+        return (((argb >> 16) & 0xFF) * 77 + ((argb >> 8) & 0xFF) * 150 + (argb & 0xFF) * 29) >> 8;
+    }
+}
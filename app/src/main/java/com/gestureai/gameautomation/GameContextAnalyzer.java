@@ -52,13 +52,133 @@ public class GameContextAnalyzer {
         }
     }
 
+    // HUD fields read by OCR; regions are where these usually sit on screen
+    private static final String HUD_PLAYERS_ALIVE = "players_alive";
+    private static final String HUD_HEALTH = "health";
+    private static final String HUD_SHIELD = "shield";
+    private static final String HUD_AMMO = "ammo";
+    private static final String HUD_WEAPON = "weapon";
+    private static final String HUD_GOLD = "gold";
+    private static final String HUD_SCORE = "score";
+    private static final String HUD_ZONE_TIMER = "zone_timer";
+
     private GameType detectedGameType = GameType.UNKNOWN;
     private OCREngine ocrEngine;
     private PlayerTracker playerTracker;
+    private HudReader hudReader;
+    private WeaponRecognizer weaponRecognizer;
+    private ObjectLabelerEngine digitTemplateStore;
 
     public GameContextAnalyzer(OCREngine ocrEngine, PlayerTracker playerTracker) {
         this.ocrEngine = ocrEngine;
         this.playerTracker = playerTracker;
+        if (ocrEngine != null) {
+            this.hudReader = createHudReader(ocrEngine);
+            hudReader.setDigitRecognizer(DigitRecognizer.forGame(DigitRecognizer.DEFAULT_GAME));
+        }
+    }
+
+    /**
+     * Digit templates for the current game; numeric HUD fields are read with
+     * them and fall back to OCR when the match is weak
+     */
+    public void setDigitRecognizer(DigitRecognizer digitRecognizer) {
+        if (hudReader != null) {
+            hudReader.setDigitRecognizer(digitRecognizer);
+        }
+        if (weaponRecognizer != null) {
+            weaponRecognizer.setDigitRecognizer(digitRecognizer);
+        }
+    }
+
+    /**
+     * Weapon recognizer whose ammo counter gets the detected game's digit templates
+     */
+    public void setWeaponRecognizer(WeaponRecognizer weaponRecognizer) {
+        this.weaponRecognizer = weaponRecognizer;
+        if (detectedGameType != GameType.UNKNOWN) {
+            applyDigitTemplates(detectedGameType);
+        }
+    }
+
+    /**
+     * Where labelled digit templates are saved; once the game type is
+     * detected, its templates are loaded from here
+     */
+    public void setDigitTemplateStore(ObjectLabelerEngine digitTemplateStore) {
+        this.digitTemplateStore = digitTemplateStore;
+        if (detectedGameType != GameType.UNKNOWN) {
+            applyDigitTemplates(detectedGameType);
+        }
+    }
+
+    /**
+     * Id digit templates are saved under for a game type, e.g. "battle_royale"
+     */
+    public static String digitTemplateId(GameType gameType) {
+        return gameType.name().toLowerCase(Locale.US);
+    }
+
+    private void applyDigitTemplates(GameType gameType) {
+        if (digitTemplateStore == null) return;
+        DigitRecognizer templates = digitTemplateStore.loadDigitTemplates(digitTemplateId(gameType));
+        if (!templates.hasTemplates()) {
+            // Nothing labelled for this game type yet; use the ones labelled without one
+            templates = digitTemplateStore.loadDigitTemplates(DigitRecognizer.DEFAULT_GAME);
+        }
+        setDigitRecognizer(templates);
+    }
+
+    private static HudReader createHudReader(OCREngine ocrEngine) {
+        HudReader reader = new HudReader(ocrEngine::recognizeHudAtlas);
+        // Top-right "45 alive"
+        reader.addField(HUD_PLAYERS_ALIVE, HudReader.Region.anchored(1f, 0f, -200, 0, 0, 100),
+                HudReader.ALIVE_COUNT, 1000);
+        // Bottom-left "100/100" or "100%", shield just above health
+        reader.addField(HUD_HEALTH, HudReader.Region.anchored(0f, 1f, 0, -200, 300, 0),
+                HudReader.FRACTION_OR_PERCENT, 250);
+        reader.addField(HUD_SHIELD, HudReader.Region.anchored(0f, 1f, 0, -150, 300, -50),
+                HudReader.FRACTION_OR_PERCENT, 250);
+        // Bottom-right "30/120"
+        reader.addField(HUD_AMMO, HudReader.Region.anchored(1f, 1f, -200, -150, 0, 0),
+                HudReader.FRACTION, 250);
+        // Bottom-center weapon name
+        reader.addField(HUD_WEAPON, HudReader.Region.anchored(0.5f, 1f, -100, -100, 100, 0),
+                HudReader.TEXT, 1000);
+        // Top bar
+        reader.addField(HUD_GOLD, new HudReader.Region(0f, 0, 0f, 0, 1f, 0, 0f, 100),
+                HudReader.NUMBER, 1000);
+        // Top-center
+        reader.addField(HUD_SCORE, HudReader.Region.anchored(0.5f, 0f, -100, 0, 100, 100),
+                HudReader.NUMBER, 500);
+        // "1:45" under the minimap
+        reader.addField(HUD_ZONE_TIMER, HudReader.Region.anchored(1f, 0f, -200, 200, 0, 250),
+                HudReader.TIMER, 500);
+        reader.setActiveFields();
+        return reader;
+    }
+
+    /**
+     * Fields each game type's analysis reads
+     */
+    private static String[] hudFieldsFor(GameType gameType) {
+        switch (gameType) {
+            case BATTLE_ROYALE:
+                return new String[]{HUD_PLAYERS_ALIVE, HUD_HEALTH, HUD_SHIELD, HUD_AMMO, HUD_WEAPON,
+                        HUD_ZONE_TIMER};
+            case MOBA:
+                return new String[]{HUD_HEALTH};
+            case FPS:
+                return new String[]{HUD_WEAPON, HUD_AMMO, HUD_HEALTH};
+            case STRATEGY:
+                return new String[]{HUD_GOLD};
+            default:
+                return new String[]{HUD_SCORE};
+        }
+    }
+
+    public HudReader.Stats getHudStats() {
+        return hudReader != null ? hudReader.getStats() : null;
     }
 
     /**
@@ -70,9 +190,20 @@ public class GameContextAnalyzer {
         // Detect game type if unknown
         if (detectedGameType == GameType.UNKNOWN) {
             detectedGameType = detectGameType(screen, detectedObjects);
+            if (hudReader != null) {
+                hudReader.setActiveFields(hudFieldsFor(detectedGameType));
+            }
+            applyDigitTemplates(detectedGameType);
         }
         context.gameType = detectedGameType;
 
+        // Values below come from the reader's cache; changed HUD regions are
+        // re-read in the background, a few fields per recognition
+        if (hudReader != null) {
+            hudReader.update(screen::getPixels, screen.getWidth(), screen.getHeight(),
+                    System.currentTimeMillis());
+        }
+
         // Game-specific analysis
         switch (detectedGameType) {
             case BATTLE_ROYALE:
@@ -228,67 +359,26 @@ public class GameContextAnalyzer {
     }
 
     private int extractPlayerCount(Bitmap screen) {
-        if (ocrEngine != null) {
-            // Look for player count UI element (usually top-right)
-            Rect playerCountRegion = new Rect(screen.getWidth() - 200, 0, screen.getWidth(), 100);
-            String text = ocrEngine.extractTextFromRegion(screen, playerCountRegion);
-
-            // Parse "45 alive" or similar format
-            if (text.contains("alive")) {
-                try {
-                    String[] parts = text.split(" ");
-                    return Integer.parseInt(parts[0]);
-                } catch (Exception e) {
-                    Log.w(TAG, "Failed to parse player count: " + text);
-                }
-            }
+        if (hudReader != null && hudReader.hasValue(HUD_PLAYERS_ALIVE)) {
+            return (int) hudReader.getNumber(HUD_PLAYERS_ALIVE, 0f);
         }
         return playerTracker.getPlayerCount(); // Fallback to tracked players
     }
 
     private float extractHealthLevel(Bitmap screen) {
-        if (ocrEngine != null) {
-            // Health usually in bottom-left corner
-            Rect healthRegion = new Rect(0, screen.getHeight() - 200, 300, screen.getHeight());
-            String text = ocrEngine.extractTextFromRegion(screen, healthRegion);
-
-            // Parse "100/100" or "100%" format
-            return parseHealthText(text);
-        }
-        return 100f; // Default full health
+        return hudReader != null ? hudReader.getNumber(HUD_HEALTH, 100f) : 100f; // Default full health
     }
 
     private float extractShieldLevel(Bitmap screen) {
-        if (ocrEngine != null) {
-            // Shield usually next to health
-            Rect shieldRegion = new Rect(0, screen.getHeight() - 150, 300, screen.getHeight() - 50);
-            String text = ocrEngine.extractTextFromRegion(screen, shieldRegion);
-            return parseHealthText(text);
-        }
-        return 0f; // Default no shield
+        return hudReader != null ? hudReader.getNumber(HUD_SHIELD, 0f) : 0f; // Default no shield
     }
 
     private float extractAmmoCount(Bitmap screen) {
-        if (ocrEngine != null) {
-            // Ammo usually bottom-right
-            Rect ammoRegion = new Rect(screen.getWidth() - 200, screen.getHeight() - 150,
-                    screen.getWidth(), screen.getHeight());
-            String text = ocrEngine.extractTextFromRegion(screen, ammoRegion);
-
-            // Parse "30/120" format
-            return parseAmmoText(text);
-        }
-        return 30f; // Default ammo
+        return hudReader != null ? hudReader.getNumber(HUD_AMMO, 30f) : 30f; // Default ammo
     }
 
     private String extractCurrentWeapon(Bitmap screen) {
-        if (ocrEngine != null) {
-            // Weapon name usually bottom center
-            Rect weaponRegion = new Rect(screen.getWidth()/2 - 100, screen.getHeight() - 100,
-                    screen.getWidth()/2 + 100, screen.getHeight());
-            return ocrEngine.extractTextFromRegion(screen, weaponRegion);
-        }
-        return "unknown";
+        return hudReader != null ? hudReader.getText(HUD_WEAPON, "unknown") : "unknown";
     }
 
     private List<String> extractAvailableWeapons(Bitmap screen, List<ObjectDetectionEngine.DetectedObject> objects) {
@@ -303,32 +393,6 @@ public class GameContextAnalyzer {
         return weapons;
     }
 
-    private float parseHealthText(String text) {
-        try {
-            if (text.contains("/")) {
-                String[] parts = text.split("/");
-                return Float.parseFloat(parts[0].trim());
-            } else if (text.contains("%")) {
-                return Float.parseFloat(text.replace("%", "").trim());
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Failed to parse health text: " + text);
-        }
-        return 100f;
-    }
-
-    private float parseAmmoText(String text) {
-        try {
-            if (text.contains("/")) {
-                String[] parts = text.split("/");
-                return Float.parseFloat(parts[0].trim());
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Failed to parse ammo text: " + text);
-        }
-        return 30f;
-    }
-
     private EngagementRisk calculateEngagementRisk(GameContext context) {
         float riskScore = 0f;
 
@@ -398,8 +462,8 @@ public class GameContextAnalyzer {
     }
 
     private float extractZoneTimer(Bitmap screen) {
-        // Extract countdown timer for zone collapse
-        return 60f; // Placeholder
+        // Countdown to zone collapse, in seconds
+        return hudReader != null ? hudReader.getNumber(HUD_ZONE_TIMER, 60f) : 60f;
     }
 
     private int extractTeamMateCount(Bitmap screen) {
@@ -422,13 +486,7 @@ public class GameContextAnalyzer {
     }
 
     private float extractGoldAmount(Bitmap screen) {
-        if (ocrEngine != null) {
-            // Gold usually displayed in top UI
-            Rect goldRegion = new Rect(0, 0, screen.getWidth(), 100);
-            String text = ocrEngine.extractTextFromRegion(screen, goldRegion);
-            // Parse gold amount from text
-        }
-        return 1000f; // Placeholder
+        return hudReader != null ? hudReader.getNumber(HUD_GOLD, 1000f) : 1000f; // Default until read
     }
 
     private float extractUnitCount(Bitmap screen) {
@@ -436,17 +494,7 @@ public class GameContextAnalyzer {
     }
 
     private float extractScore(Bitmap screen) {
-        if (ocrEngine != null) {
-            // Score usually at top center
-            Rect scoreRegion = new Rect(screen.getWidth()/2 - 100, 0, screen.getWidth()/2 + 100, 100);
-            String text = ocrEngine.extractTextFromRegion(screen, scoreRegion);
-            try {
-                return Float.parseFloat(text.replaceAll("[^0-9]", ""));
-            } catch (Exception e) {
-                Log.w(TAG, "Failed to parse score: " + text);
-            }
-        }
-        return 0f;
+        return hudReader != null ? hudReader.getNumber(HUD_SCORE, 0f) : 0f;
     }
 
     private boolean isInSafeZone(float[] playerPos, float[] zoneCenter, float zoneRadius) {
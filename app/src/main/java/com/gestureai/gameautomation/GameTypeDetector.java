@@ -3,6 +3,7 @@ package com.gestureai.gameautomation;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.util.Log;
+import com.gestureai.gameautomation.managers.ModelRegistry;
 import java.util.*;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
@@ -474,6 +475,13 @@ public class GameTypeDetector {
 
         } else {
             detectionConfidenceCount = 1;
+            // Start loading the new game type's models before they are asked for
+            if (currentResult.gameType != lastDetectedType && currentResult.gameType != GameType.UNKNOWN) {
+                ModelRegistry registry = ModelRegistry.peekInstance();
+                if (registry != null) {
+                    registry.prefetchForGameType(currentResult.gameType);
+                }
+            }
         }
 
         lastDetectedType = currentResult.gameType;
@@ -0,0 +1,438 @@
+package com.gestureai.gameautomation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scheduled OCR of HUD values (health, ammo, player count, ...).
+ *
+ * Each field declares its screen region, a format pattern and how often it is
+ * worth re-reading. On update, the fields that are due have their region
+ * copied straight into one packed atlas and hashed; fields whose pixels are
+ * unchanged keep their cached value, and the changed ones go to the
+ * recognizer together in a single call. Recognized lines are routed back to
+ * fields by their vertical position in the atlas and parsed with the field's
+ * precompiled pattern. At most one recognition is in flight; values are read
+ * from the cache, never waited for. With a DigitRecognizer set, changed
+ * numeric fields are first read from their band by template matching and
+ * only go to the recognizer when that reading is not confident.
+ *
+ * Pure Java (no android.* types) so it can be unit tested on any JVM.
+ */
+public class HudReader {
+
+    /** "45", "Score: 1200" */
+    public static final Pattern NUMBER = Pattern.compile("(\\d+(?:\\.\\d+)?)");
+    /** "30/120" → 30 */
+    public static final Pattern FRACTION = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*/\\s*\\d+");
+    /** "100/100" or "85%" → 100, 85 */
+    public static final Pattern FRACTION_OR_PERCENT = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*[/%]");
+    /** "45 alive" → 45 */
+    public static final Pattern ALIVE_COUNT = Pattern.compile("(\\d+)\\s*alive", Pattern.CASE_INSENSITIVE);
+    /** "1:45" → 105 seconds */
+    public static final Pattern TIMER = Pattern.compile("(\\d+):(\\d{2})");
+    /** Any non-blank text, trimmed */
+    public static final Pattern TEXT = Pattern.compile("(\\S(?:.*\\S)?)");
+
+    // Background rows between packed regions so lines never straddle two fields
+    private static final int ATLAS_GAP = 12;
+    private static final int GAP_COLOR = 0xFF000000;
+    private static final long RECOGNITION_TIMEOUT_MS = 3000;
+
+    /**
+     * Same shape as Bitmap.getPixels, so a Bitmap can be passed as bitmap::getPixels
+     */
+    public interface PixelSource {
+        void getPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height);
+    }
+
+    public interface Callback {
+        void onLines(List<Line> lines);
+        void onError(String error);
+    }
+
+    /**
+     * One text recognition over an ARGB image. The pixels are only valid for
+     * the duration of the call; implementations copy what they keep. The
+     * callback may arrive later and on any thread.
+     */
+    public interface Recognizer {
+        void recognize(int[] argb, int width, int height, Callback callback);
+    }
+
+    public static class Line {
+        public final String text;
+        public final int top;
+        public final int bottom;
+
+        public Line(String text, int top, int bottom) {
+            this.text = text;
+            this.top = top;
+            this.bottom = bottom;
+        }
+    }
+
+    /**
+     * Screen region as fractions of the screen size plus pixel offsets, so
+     * "200 px from the right edge" stays right on any resolution
+     */
+    public static class Region {
+        final float leftFraction, topFraction, rightFraction, bottomFraction;
+        final int leftOffset, topOffset, rightOffset, bottomOffset;
+
+        public Region(float leftFraction, int leftOffset, float topFraction, int topOffset,
+                      float rightFraction, int rightOffset, float bottomFraction, int bottomOffset) {
+            this.leftFraction = leftFraction;
+            this.leftOffset = leftOffset;
+            this.topFraction = topFraction;
+            this.topOffset = topOffset;
+            this.rightFraction = rightFraction;
+            this.rightOffset = rightOffset;
+            this.bottomFraction = bottomFraction;
+            this.bottomOffset = bottomOffset;
+        }
+
+        /**
+         * Region whose edges are all offsets from one anchor point
+         */
+        public static Region anchored(float anchorX, float anchorY, int left, int top, int right, int bottom) {
+            return new Region(anchorX, left, anchorY, top, anchorX, right, anchorY, bottom);
+        }
+
+        void resolve(int width, int height, int[] out) {
+            out[0] = clamp(Math.round(leftFraction * width) + leftOffset, 0, width);
+            out[1] = clamp(Math.round(topFraction * height) + topOffset, 0, height);
+            out[2] = clamp(Math.round(rightFraction * width) + rightOffset, 0, width);
+            out[3] = clamp(Math.round(bottomFraction * height) + bottomOffset, 0, height);
+        }
+    }
+
+    private static class Field {
+        final String name;
+        final Region region;
+        final Matcher matcher;
+        final long refreshMs;
+        boolean active = true;
+
+        // Resolved for the current update
+        final int[] box = new int[4];
+        int atlasTop;
+        int atlasBottom;
+        long pendingHash;
+
+        long lastCheckedMs = Long.MIN_VALUE / 2;
+        long lastHash;
+        boolean hashed;
+        boolean inFlight;
+        StringBuilder recognized = new StringBuilder();
+
+        String text;
+        float number;
+        boolean hasValue;
+        long valueTimeMs;
+
+        Field(String name, Region region, Pattern format, long refreshMs) {
+            this.name = name;
+            this.region = region;
+            this.matcher = format.matcher("");
+            this.refreshMs = refreshMs;
+        }
+    }
+
+    public static class Stats {
+        public long updates;
+        public long recognitions;
+        public long regionsRecognized;
+        public long unchangedSkips;
+        public long parseFailures;
+        public long errors;
+        public long digitReads;
+        public long digitFallbacks;
+
+        public float getRecognitionsPerUpdate() {
+            return updates > 0 ? (float) recognitions / updates : 0f;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("updates %d, recognitions %d (%.2f/update, %.1f regions each), " +
+                            "unchanged %d, parse failures %d, errors %d, digit reads %d (%d fell back)",
+                    updates, recognitions, getRecognitionsPerUpdate(),
+                    recognitions > 0 ? (float) regionsRecognized / recognitions : 0f,
+                    unchangedSkips, parseFailures, errors, digitReads, digitFallbacks);
+        }
+    }
+
+    private final Recognizer recognizer;
+    private final Map<String, Field> fields = new LinkedHashMap<>();
+    private final List<Field> inFlight = new ArrayList<>();
+    private long inFlightSinceMs;
+    private int[] atlas = new int[0];
+    private DigitRecognizer digitRecognizer;
+    private final Stats stats = new Stats();
+
+    public HudReader(Recognizer recognizer) {
+        this.recognizer = recognizer;
+    }
+
+    /**
+     * Template reader tried before the recognizer for numeric fields
+     */
+    public synchronized void setDigitRecognizer(DigitRecognizer digitRecognizer) {
+        this.digitRecognizer = digitRecognizer;
+    }
+
+    /**
+     * Declare a field; refreshMs is the minimum time between two checks of its region
+     */
+    public synchronized void addField(String name, Region region, Pattern format, long refreshMs) {
+        fields.put(name, new Field(name, region, format, refreshMs));
+    }
+
+    /**
+     * Only the named fields are checked on update; the rest keep their last value
+     */
+    public synchronized void setActiveFields(String... names) {
+        for (Field field : fields.values()) {
+            field.active = false;
+        }
+        for (String name : names) {
+            Field field = fields.get(name);
+            if (field != null) field.active = true;
+        }
+    }
+
+    /**
+     * Check due fields against the current screen and, if any changed and no
+     * recognition is running, submit them in one packed recognition
+     */
+    public void update(PixelSource screen, int width, int height, long nowMs) {
+        int[] submitAtlas;
+        int atlasWidth;
+        int atlasHeight;
+        synchronized (this) {
+            stats.updates++;
+            if (!inFlight.isEmpty() && nowMs - inFlightSinceMs > RECOGNITION_TIMEOUT_MS) {
+                // Lost callback: let the fields be read again
+                finishRecognition();
+                stats.errors++;
+            }
+
+            // Lay out due fields top to bottom
+            List<Field> due = new ArrayList<>();
+            atlasWidth = 0;
+            atlasHeight = 0;
+            for (Field field : fields.values()) {
+                if (!field.active || field.inFlight || nowMs - field.lastCheckedMs < field.refreshMs) continue;
+                field.region.resolve(width, height, field.box);
+                int regionWidth = field.box[2] - field.box[0];
+                int regionHeight = field.box[3] - field.box[1];
+                if (regionWidth <= 0 || regionHeight <= 0) continue;
+                field.atlasTop = atlasHeight;
+                field.atlasBottom = atlasHeight + regionHeight;
+                atlasHeight = field.atlasBottom + ATLAS_GAP;
+                atlasWidth = Math.max(atlasWidth, regionWidth);
+                due.add(field);
+            }
+            if (due.isEmpty()) return;
+
+            if (atlas.length < atlasWidth * atlasHeight) {
+                atlas = new int[atlasWidth * atlasHeight];
+            }
+
+            // Copy each region into its band and keep only the changed ones,
+            // sliding them up over the unchanged bands
+            int packedHeight = 0;
+            List<Field> changed = new ArrayList<>();
+            for (Field field : due) {
+                int regionWidth = field.box[2] - field.box[0];
+                int regionHeight = field.box[3] - field.box[1];
+                int offset = field.atlasTop * atlasWidth;
+                screen.getPixels(atlas, offset, atlasWidth, field.box[0], field.box[1], regionWidth, regionHeight);
+                long hash = hashBand(atlas, offset, atlasWidth, regionWidth, regionHeight);
+                field.lastCheckedMs = nowMs;
+
+                if (field.hashed && hash == field.lastHash) {
+                    stats.unchangedSkips++;
+                    continue;
+                }
+                if (digitRecognizer != null && field.matcher.pattern() != TEXT && digitRecognizer.hasTemplates()) {
+                    DigitRecognizer.Reading reading =
+                            digitRecognizer.read(atlas, offset, atlasWidth, regionWidth, regionHeight);
+                    if (digitRecognizer.isConfident(reading) && parse(field, reading.text)) {
+                        field.lastHash = hash;
+                        field.hashed = true;
+                        field.valueTimeMs = nowMs;
+                        stats.digitReads++;
+                        continue;
+                    }
+                    stats.digitFallbacks++;
+                }
+                field.pendingHash = hash;
+                if (field.atlasTop != packedHeight) {
+                    System.arraycopy(atlas, offset, atlas, packedHeight * atlasWidth, regionHeight * atlasWidth);
+                }
+                field.atlasTop = packedHeight;
+                field.atlasBottom = packedHeight + regionHeight;
+                fillBand(atlas, atlasWidth, field.atlasTop, regionWidth, regionHeight);
+                packedHeight = field.atlasBottom + ATLAS_GAP;
+                changed.add(field);
+            }
+            if (changed.isEmpty()) return;
+
+            if (!inFlight.isEmpty()) {
+                // Recheck on the next update once the running recognition is back
+                for (Field field : changed) {
+                    field.lastCheckedMs = Long.MIN_VALUE / 2;
+                }
+                return;
+            }
+
+            atlasHeight = packedHeight - ATLAS_GAP;
+            for (Field field : changed) {
+                field.inFlight = true;
+                field.recognized.setLength(0);
+                inFlight.add(field);
+            }
+            inFlightSinceMs = nowMs;
+            stats.recognitions++;
+            stats.regionsRecognized += changed.size();
+            submitAtlas = atlas;
+        }
+
+        // Outside the lock: a synchronous recognizer calls back into this reader
+        final long submittedMs = nowMs;
+        recognizer.recognize(submitAtlas, atlasWidth, atlasHeight, new Callback() {
+            @Override
+            public void onLines(List<Line> lines) {
+                onRecognized(lines, submittedMs);
+            }
+
+            @Override
+            public void onError(String error) {
+                synchronized (HudReader.this) {
+                    stats.errors++;
+                    finishRecognition();
+                }
+            }
+        });
+    }
+
+    private synchronized void onRecognized(List<Line> lines, long submittedMs) {
+        if (inFlight.isEmpty() || inFlightSinceMs != submittedMs) return; // timed out and superseded
+
+        for (Line line : lines) {
+            int center = (line.top + line.bottom) / 2;
+            for (Field field : inFlight) {
+                if (center >= field.atlasTop && center < field.atlasBottom) {
+                    if (field.recognized.length() > 0) field.recognized.append(' ');
+                    field.recognized.append(line.text);
+                    break;
+                }
+            }
+        }
+
+        for (Field field : inFlight) {
+            // Same pixels give the same text, so a region is not re-read until it changes
+            field.lastHash = field.pendingHash;
+            field.hashed = true;
+            if (parse(field, field.recognized)) {
+                field.valueTimeMs = submittedMs;
+            } else {
+                stats.parseFailures++;
+            }
+        }
+        finishRecognition();
+    }
+
+    private void finishRecognition() {
+        for (Field field : inFlight) {
+            field.inFlight = false;
+        }
+        inFlight.clear();
+    }
+
+    private static boolean parse(Field field, CharSequence text) {
+        Matcher matcher = field.matcher.reset(text);
+        if (!matcher.find()) return false;
+        String value = matcher.group(1);
+        field.text = value;
+        if (field.matcher.pattern() == TIMER) {
+            field.text = matcher.group();
+            field.number = Integer.parseInt(value) * 60 + Integer.parseInt(matcher.group(2));
+        } else {
+            field.number = field.matcher.pattern() == TEXT ? 0f : Float.parseFloat(value);
+        }
+        field.hasValue = true;
+        return true;
+    }
+
+    /**
+     * Hash of a region with the low bits of each channel dropped, so encoder
+     * noise does not count as a change; every other row and column is sampled
+     */
+    private static long hashBand(int[] pixels, int offset, int stride, int width, int height) {
+        long hash = 0xcbf29ce484222325L;
+        for (int y = 0; y < height; y += 2) {
+            int row = offset + y * stride;
+            for (int x = 0; x < width; x += 2) {
+                hash = (hash ^ (pixels[row + x] & 0x00F0F0F0)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    // Pad a band narrower than the atlas, and the gap below it, with background
+    private static void fillBand(int[] atlas, int stride, int top, int width, int height) {
+        for (int y = top; y < top + height; y++) {
+            int row = y * stride;
+            for (int x = row + width; x < row + stride; x++) atlas[x] = GAP_COLOR;
+        }
+        int gapEnd = Math.min(atlas.length, (top + height + ATLAS_GAP) * stride);
+        for (int i = (top + height) * stride; i < gapEnd; i++) atlas[i] = GAP_COLOR;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public synchronized boolean hasValue(String name) {
+        Field field = fields.get(name);
+        return field != null && field.hasValue;
+    }
+
+    public synchronized float getNumber(String name, float fallback) {
+        Field field = fields.get(name);
+        return field != null && field.hasValue ? field.number : fallback;
+    }
+
+    public synchronized String getText(String name, String fallback) {
+        Field field = fields.get(name);
+        return field != null && field.hasValue ? field.text : fallback;
+    }
+
+    /**
+     * When the field's current value was captured, or -1 if it has none
+     */
+    public synchronized long getValueTimeMs(String name) {
+        Field field = fields.get(name);
+        return field != null && field.hasValue ? field.valueTimeMs : -1;
+    }
+
+    public synchronized Stats getStats() {
+        Stats copy = new Stats();
+        copy.updates = stats.updates;
+        copy.recognitions = stats.recognitions;
+        copy.regionsRecognized = stats.regionsRecognized;
+        copy.unchangedSkips = stats.unchangedSkips;
+        copy.parseFailures = stats.parseFailures;
+        copy.errors = stats.errors;
+        copy.digitReads = stats.digitReads;
+        copy.digitFallbacks = stats.digitFallbacks;
+        return copy;
+    }
+}
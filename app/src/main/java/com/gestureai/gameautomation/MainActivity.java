@@ -1073,6 +1073,14 @@ public class MainActivity extends AppCompatActivity {
         if (isAutomationActive) {
             stopAutomation(null);
         }
+        if (databaseIntegration != null) {
+            // A rotation comes straight back; only a finishing activity writes and closes
+            if (isFinishing()) {
+                databaseIntegration.closeTelemetry();
+            } else {
+                databaseIntegration.flushTelemetry();
+            }
+        }
     }
     private void setupFragmentNavigation() {
         // Add bottom navigation or tab layout
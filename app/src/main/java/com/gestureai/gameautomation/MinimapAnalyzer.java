@@ -11,6 +11,7 @@ import org.opencv.imgproc.Imgproc;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 import java.util.*;
+import com.gestureai.gameautomation.utils.FrameHandle;
 
 /**
  * Advanced minimap analysis for battle royale zone tracking and spatial awareness
@@ -143,6 +144,23 @@ public class MinimapAnalyzer {
         return data;
     }
 
+    /**
+     * Analyze a pooled capture frame. Shares the frame's bitmap view with other
+     * consumers instead of requiring a dedicated screen copy.
+     */
+    public MinimapData analyzeScreen(FrameHandle frame) {
+        if (frame == null) {
+            return new MinimapData();
+        }
+
+        frame.retain();
+        try {
+            return analyzeScreen(frame.asBitmap());
+        } finally {
+            frame.release();
+        }
+    }
+
     private Rect findMinimapRegion(Bitmap screen) {
         // Common minimap locations in mobile games
         int width = screen.getWidth();
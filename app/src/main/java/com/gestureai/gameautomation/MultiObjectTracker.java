@@ -0,0 +1,384 @@
+package com.gestureai.gameautomation;
+
+import java.util.Arrays;
+
+/**
+ * Multi-object tracker with a constant-velocity Kalman filter per track and
+ * optimal (Hungarian) assignment on an IoU + center-distance cost.
+ * All state lives in preallocated primitive arrays indexed by track slot, so
+ * an update allocates nothing. Times are in milliseconds and velocities in
+ * pixels per millisecond.
+ *
+ * predict() can be called every frame while update() only runs when fresh
+ * detections arrive, letting detection run slower than tracking.
+ */
+public class MultiObjectTracker {
+
+    public static final int STATE_FREE = 0;
+    public static final int STATE_TENTATIVE = 1;
+    public static final int STATE_CONFIRMED = 2;
+    public static final int STATE_LOST = 3;
+
+    // Assignment runs in double: against this sentinel, float potentials lose
+    // the precision needed to rank real costs in [0, 1 + distanceWeight]
+    private static final double NO_MATCH_COST = 1e6;
+
+    private final int maxTracks;
+    private final int maxDetections;
+
+    // Track state, one slot per track
+    private final int[] trackIds;
+    private final int[] states;
+    private final float[] x, y, vx, vy;
+    private final float[] width, height;
+    // Per-axis 2x2 covariance: [pp, pv, vv] for x then y
+    private final float[] covariance;
+    private final int[] hits;
+    private final int[] misses;
+    private final long[] lastPredictTime;
+    private final long[] lastUpdateTime;
+    private final float[] confidence;
+    private int nextTrackId = 1;
+
+    // Per-update scratch
+    private final double[] cost;
+    private final int[] detectionTrack;
+    private final int[] trackDetection;
+    private final int[] activeSlots;
+    private final double[] hU, hV, hMinV;
+    private final int[] hP, hWay;
+    private final boolean[] hUsed;
+
+    // Tuning
+    private float processNoise = 0.01f;      // acceleration noise, px^2/ms^3
+    private float measurementNoise = 25f;    // px^2
+    private float maxCenterDistance = 150f;  // px, gate for zero-IoU pairs
+    private float distanceWeight = 0.5f;
+    private int confirmHits = 3;
+    private int maxTentativeMisses = 1;
+    private int maxLostMisses = 15;
+
+    public MultiObjectTracker(int maxTracks, int maxDetections) {
+        this.maxTracks = maxTracks;
+        this.maxDetections = maxDetections;
+
+        trackIds = new int[maxTracks];
+        states = new int[maxTracks];
+        x = new float[maxTracks];
+        y = new float[maxTracks];
+        vx = new float[maxTracks];
+        vy = new float[maxTracks];
+        width = new float[maxTracks];
+        height = new float[maxTracks];
+        covariance = new float[maxTracks * 6];
+        hits = new int[maxTracks];
+        misses = new int[maxTracks];
+        lastPredictTime = new long[maxTracks];
+        lastUpdateTime = new long[maxTracks];
+        confidence = new float[maxTracks];
+
+        int n = Math.max(maxTracks, maxDetections);
+        cost = new double[n * n];
+        detectionTrack = new int[maxDetections];
+        trackDetection = new int[maxTracks];
+        activeSlots = new int[maxTracks];
+        hU = new double[n + 1];
+        hV = new double[n + 1];
+        hMinV = new double[n + 1];
+        hP = new int[n + 1];
+        hWay = new int[n + 1];
+        hUsed = new boolean[n + 1];
+    }
+
+    /**
+     * Advance every live track to the given time without new measurements
+     */
+    public void predict(long nowMs) {
+        for (int t = 0; t < maxTracks; t++) {
+            if (states[t] != STATE_FREE) {
+                predictTrack(t, nowMs);
+            }
+        }
+    }
+
+    /**
+     * Associate detections (box centers and sizes) with tracks and correct them.
+     * After this call getDetectionTrack(i) gives the slot each detection landed in.
+     */
+    public void update(float[] detX, float[] detY, float[] detW, float[] detH, float[] detConf,
+                       int detectionCount, long nowMs) {
+        int detCount = Math.min(detectionCount, maxDetections);
+        predict(nowMs);
+
+        int trackCount = 0;
+        for (int t = 0; t < maxTracks; t++) {
+            if (states[t] != STATE_FREE) {
+                activeSlots[trackCount++] = t;
+            }
+            trackDetection[t] = -1;
+        }
+        Arrays.fill(detectionTrack, 0, detCount, -1);
+
+        if (trackCount > 0 && detCount > 0) {
+            assign(detX, detY, detW, detH, trackCount, detCount);
+        }
+
+        // Correct matched tracks, age unmatched ones
+        for (int k = 0; k < trackCount; k++) {
+            int t = activeSlots[k];
+            int d = trackDetection[t];
+            if (d >= 0) {
+                correctTrack(t, detX[d], detY[d], detW[d], detH[d], detConf[d], nowMs);
+            } else {
+                misses[t]++;
+                if (states[t] == STATE_CONFIRMED) {
+                    states[t] = STATE_LOST;
+                }
+                int limit = states[t] == STATE_TENTATIVE ? maxTentativeMisses : maxLostMisses;
+                if (misses[t] > limit) {
+                    states[t] = STATE_FREE;
+                }
+            }
+        }
+
+        // Spawn tentative tracks for unmatched detections
+        for (int d = 0; d < detCount; d++) {
+            if (detectionTrack[d] < 0) {
+                detectionTrack[d] = spawnTrack(detX[d], detY[d], detW[d], detH[d], detConf[d], nowMs);
+            }
+        }
+    }
+
+    private void assign(float[] detX, float[] detY, float[] detW, float[] detH, int trackCount, int detCount) {
+        int n = Math.max(trackCount, detCount);
+        for (int i = 0; i < n; i++) {
+            int row = i * n;
+            for (int j = 0; j < n; j++) {
+                cost[row + j] = (i < trackCount && j < detCount)
+                        ? matchCost(activeSlots[i], detX[j], detY[j], detW[j], detH[j])
+                        : NO_MATCH_COST;
+            }
+        }
+
+        solveAssignment(n);
+
+        for (int j = 1; j <= n; j++) {
+            int i = hP[j] - 1;
+            int d = j - 1;
+            if (i < 0 || i >= trackCount || d >= detCount) continue;
+            if (cost[i * n + d] >= NO_MATCH_COST) continue;
+            int t = activeSlots[i];
+            trackDetection[t] = d;
+            detectionTrack[d] = t;
+        }
+    }
+
+    private double matchCost(int t, float dx, float dy, float dw, float dh) {
+        float iou = iou(x[t], y[t], width[t], height[t], dx, dy, dw, dh);
+        float ex = x[t] - dx;
+        float ey = y[t] - dy;
+        float distance = (float) Math.sqrt(ex * ex + ey * ey);
+        if (iou <= 0f && distance > maxCenterDistance) {
+            return NO_MATCH_COST;
+        }
+        return (1f - iou) + distanceWeight * Math.min(1f, distance / maxCenterDistance);
+    }
+
+    /**
+     * Hungarian algorithm (potentials form) on the n x n cost matrix.
+     * hP[j] holds the 1-based row assigned to column j.
+     */
+    private void solveAssignment(int n) {
+        Arrays.fill(hU, 0, n + 1, 0.0);
+        Arrays.fill(hV, 0, n + 1, 0.0);
+        Arrays.fill(hP, 0, n + 1, 0);
+        Arrays.fill(hWay, 0, n + 1, 0);
+
+        for (int i = 1; i <= n; i++) {
+            hP[0] = i;
+            int j0 = 0;
+            Arrays.fill(hMinV, 0, n + 1, Double.MAX_VALUE);
+            Arrays.fill(hUsed, 0, n + 1, false);
+            do {
+                hUsed[j0] = true;
+                int i0 = hP[j0];
+                double delta = Double.MAX_VALUE;
+                int j1 = 0;
+                for (int j = 1; j <= n; j++) {
+                    if (hUsed[j]) continue;
+                    double cur = cost[(i0 - 1) * n + (j - 1)] - hU[i0] - hV[j];
+                    if (cur < hMinV[j]) {
+                        hMinV[j] = cur;
+                        hWay[j] = j0;
+                    }
+                    if (hMinV[j] < delta) {
+                        delta = hMinV[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= n; j++) {
+                    if (hUsed[j]) {
+                        hU[hP[j]] += delta;
+                        hV[j] -= delta;
+                    } else {
+                        hMinV[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (hP[j0] != 0);
+            do {
+                int j1 = hWay[j0];
+                hP[j0] = hP[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+    }
+
+    /**
+     * Solve an n x n assignment outside of update(); n must fit the tracker's
+     * scratch. Returns the row assigned to each column.
+     */
+    int[] solve(double[] matrix, int n) {
+        System.arraycopy(matrix, 0, cost, 0, n * n);
+        solveAssignment(n);
+        int[] rows = new int[n];
+        for (int j = 1; j <= n; j++) {
+            rows[j - 1] = hP[j] - 1;
+        }
+        return rows;
+    }
+
+    private void predictTrack(int t, long nowMs) {
+        float dt = nowMs - lastPredictTime[t];
+        if (dt <= 0f) return;
+        lastPredictTime[t] = nowMs;
+
+        x[t] += vx[t] * dt;
+        y[t] += vy[t] * dt;
+
+        // P = F P F^T + Q for each axis, F = [[1, dt], [0, 1]]
+        float q = processNoise;
+        float dt2 = dt * dt;
+        float q11 = q * dt2 * dt / 3f, q12 = q * dt2 / 2f, q22 = q * dt;
+        for (int axis = 0; axis < 2; axis++) {
+            int c = t * 6 + axis * 3;
+            float pp = covariance[c], pv = covariance[c + 1], vv = covariance[c + 2];
+            covariance[c] = pp + 2f * dt * pv + dt2 * vv + q11;
+            covariance[c + 1] = pv + dt * vv + q12;
+            covariance[c + 2] = vv + q22;
+        }
+    }
+
+    private void correctTrack(int t, float mx, float my, float mw, float mh, float conf, long nowMs) {
+        for (int axis = 0; axis < 2; axis++) {
+            int c = t * 6 + axis * 3;
+            float pp = covariance[c], pv = covariance[c + 1], vv = covariance[c + 2];
+            float s = pp + measurementNoise;
+            float kp = pp / s;
+            float kv = pv / s;
+            if (axis == 0) {
+                float innovation = mx - x[t];
+                x[t] += kp * innovation;
+                vx[t] += kv * innovation;
+            } else {
+                float innovation = my - y[t];
+                y[t] += kp * innovation;
+                vy[t] += kv * innovation;
+            }
+            covariance[c] = (1f - kp) * pp;
+            covariance[c + 1] = (1f - kp) * pv;
+            covariance[c + 2] = vv - kv * pv;
+        }
+
+        width[t] = width[t] * 0.7f + mw * 0.3f;
+        height[t] = height[t] * 0.7f + mh * 0.3f;
+        confidence[t] = conf;
+        hits[t]++;
+        misses[t] = 0;
+        lastUpdateTime[t] = nowMs;
+        if (states[t] == STATE_LOST || (states[t] == STATE_TENTATIVE && hits[t] >= confirmHits)) {
+            states[t] = STATE_CONFIRMED;
+        }
+    }
+
+    private int spawnTrack(float mx, float my, float mw, float mh, float conf, long nowMs) {
+        for (int t = 0; t < maxTracks; t++) {
+            if (states[t] != STATE_FREE) continue;
+            trackIds[t] = nextTrackId++;
+            states[t] = confirmHits <= 1 ? STATE_CONFIRMED : STATE_TENTATIVE;
+            x[t] = mx;
+            y[t] = my;
+            vx[t] = 0f;
+            vy[t] = 0f;
+            width[t] = mw;
+            height[t] = mh;
+            for (int axis = 0; axis < 2; axis++) {
+                int c = t * 6 + axis * 3;
+                covariance[c] = measurementNoise;
+                covariance[c + 1] = 0f;
+                covariance[c + 2] = 1f;
+            }
+            hits[t] = 1;
+            misses[t] = 0;
+            lastPredictTime[t] = nowMs;
+            lastUpdateTime[t] = nowMs;
+            confidence[t] = conf;
+            return t;
+        }
+        return -1;
+    }
+
+    private static float iou(float ax, float ay, float aw, float ah, float bx, float by, float bw, float bh) {
+        float left = Math.max(ax - aw / 2f, bx - bw / 2f);
+        float right = Math.min(ax + aw / 2f, bx + bw / 2f);
+        float top = Math.max(ay - ah / 2f, by - bh / 2f);
+        float bottom = Math.min(ay + ah / 2f, by + bh / 2f);
+        if (right <= left || bottom <= top) return 0f;
+        float inter = (right - left) * (bottom - top);
+        float union = aw * ah + bw * bh - inter;
+        return union > 0f ? inter / union : 0f;
+    }
+
+    public void clear() {
+        Arrays.fill(states, STATE_FREE);
+    }
+
+    // Accessors by slot
+    public int getCapacity() { return maxTracks; }
+    public int getState(int slot) { return states[slot]; }
+    public int getTrackId(int slot) { return trackIds[slot]; }
+    public float getX(int slot) { return x[slot]; }
+    public float getY(int slot) { return y[slot]; }
+    public float getVelocityX(int slot) { return vx[slot]; }
+    public float getVelocityY(int slot) { return vy[slot]; }
+    public float getWidth(int slot) { return width[slot]; }
+    public float getHeight(int slot) { return height[slot]; }
+    public float getConfidence(int slot) { return confidence[slot]; }
+    public int getMisses(int slot) { return misses[slot]; }
+    public long getLastUpdateTime(int slot) { return lastUpdateTime[slot]; }
+
+    /**
+     * Slot a detection of the last update was matched to or spawned in, -1 if none
+     */
+    public int getDetectionTrack(int detectionIndex) { return detectionTrack[detectionIndex]; }
+
+    /**
+     * Extrapolate the filtered position without touching the track state
+     */
+    public float predictX(int slot, long aheadMs) { return x[slot] + vx[slot] * aheadMs; }
+    public float predictY(int slot, long aheadMs) { return y[slot] + vy[slot] * aheadMs; }
+
+    public int getLiveTrackCount() {
+        int count = 0;
+        for (int t = 0; t < maxTracks; t++) {
+            if (states[t] != STATE_FREE) count++;
+        }
+        return count;
+    }
+
+    public void setProcessNoise(float processNoise) { this.processNoise = processNoise; }
+    public void setMeasurementNoise(float measurementNoise) { this.measurementNoise = measurementNoise; }
+    public void setMaxCenterDistance(float maxCenterDistance) { this.maxCenterDistance = maxCenterDistance; }
+    public void setConfirmHits(int confirmHits) { this.confirmHits = Math.max(1, confirmHits); }
+    public void setMaxLostMisses(int maxLostMisses) { this.maxLostMisses = Math.max(0, maxLostMisses); }
+}
@@ -9,6 +9,7 @@ import com.google.mlkit.vision.text.Text;
 import com.google.mlkit.vision.text.TextRecognition;
 import com.google.mlkit.vision.text.TextRecognizer;
 import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+import com.gestureai.gameautomation.workflow.WorkflowEngine;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.concurrent.CompletableFuture;
@@ -83,6 +84,10 @@ public class OCREngine {
                 }
                 
                 lastDetectedTexts = detectedTexts;
+                WorkflowEngine workflowEngine = WorkflowEngine.peekInstance();
+                if (workflowEngine != null) {
+                    workflowEngine.getSignals().publishOcr(detectedTexts);
+                }
                 callback.onTextDetected(detectedTexts);
                 Log.d(TAG, "Extracted " + detectedTexts.size() + " text elements");
             })
@@ -92,6 +97,40 @@ public class OCREngine {
             });
     }
     
+    /**
+     * HudReader.Recognizer over ML Kit: recognizes a packed atlas of HUD
+     * regions and reports each line with its vertical extent in the atlas.
+     * Atlas text is not screen text, so it is not published to workflows.
+     */
+    public void recognizeHudAtlas(int[] argb, int width, int height, HudReader.Callback callback) {
+        if (textRecognizer == null) {
+            callback.onError("OCREngine closed");
+            return;
+        }
+        
+        // createBitmap copies the pixels, so the reader may reuse its atlas
+        Bitmap atlas = Bitmap.createBitmap(argb, width, height, Bitmap.Config.ARGB_8888);
+        textRecognizer.process(InputImage.fromBitmap(atlas, 0))
+            .addOnSuccessListener(visionText -> {
+                List<HudReader.Line> lines = new ArrayList<>();
+                for (Text.TextBlock block : visionText.getTextBlocks()) {
+                    for (Text.Line line : block.getLines()) {
+                        Rect box = line.getBoundingBox();
+                        if (box != null) {
+                            lines.add(new HudReader.Line(line.getText(), box.top, box.bottom));
+                        }
+                    }
+                }
+                atlas.recycle();
+                callback.onLines(lines);
+            })
+            .addOnFailureListener(e -> {
+                atlas.recycle();
+                Log.w(TAG, "HUD text recognition failed", e);
+                callback.onError(e.getMessage());
+            });
+    }
+    
     public List<DetectedText> getTextsByCategory(String category) {
         List<DetectedText> filtered = new ArrayList<>();
         for (DetectedText text : lastDetectedTexts) {
@@ -7,9 +7,15 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
 import timber.log.Timber;
+import com.gestureai.gameautomation.utils.FrameHandle;
+import com.gestureai.gameautomation.utils.ImagePreprocessor;
 import com.gestureai.gameautomation.utils.TensorFlowLiteHelper;
 import com.gestureai.gameautomation.utils.OpenCVHelper;
+import com.google.android.gms.tasks.Tasks;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.objects.ObjectDetection;
 import com.google.mlkit.vision.objects.ObjectDetector;
@@ -17,8 +23,15 @@ import com.google.mlkit.vision.objects.defaults.ObjectDetectorOptions;
 import com.google.mlkit.vision.objects.DetectedObject;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Object Detection Engine - Multi-method computer vision system
@@ -38,6 +51,40 @@ public class ObjectDetectionEngine {
     private boolean realTimeMode = false;
     private float confidenceThreshold = 0.5f;
     
+    // Parallel fan-out: backends race against a per-frame deadline. Each backend
+    // has its own worker because the helpers and interpreters are not
+    // thread-safe and a late call cannot be interrupted; a backend still busy
+    // with an earlier frame is skipped instead of being run twice at once.
+    private static final String[] BACKEND_NAMES = {"ML Kit", "TensorFlow Lite", "OpenCV"};
+    private static final int BACKEND_MLKIT = 0;
+    private static final int BACKEND_TENSORFLOW = 1;
+    private static final int BACKEND_OPENCV = 2;
+    private final ExecutorService[] backendExecutors = new ExecutorService[BACKEND_NAMES.length];
+    private final AtomicBoolean[] backendBusy = new AtomicBoolean[BACKEND_NAMES.length];
+    private boolean parallelDetection = false;
+    private long frameDeadlineMs = 80;
+    private final AtomicLong lateBackendCount = new AtomicLong(0);
+    private final AtomicLong busyBackendSkips = new AtomicLong(0);
+    private final DetectionFusion detectionFusion = new DetectionFusion(0.5f);
+    
+    // Callback images are drawn into two reused bitmaps, alternating per
+    // frame, so the one handed out last stays intact while the next is drawn
+    private boolean overlayEnabled = false;
+    private final Bitmap[] callbackBitmaps = new Bitmap[2];
+    private final Canvas[] callbackCanvases = new Canvas[2];
+    private int callbackBufferIndex;
+    private final Paint overlayPaint = new Paint();
+    private final Paint overlayTextBgPaint = new Paint();
+    private final Rect overlayTextBounds = new Rect();
+    
+    // Change gate: skip or narrow detection on static frames
+    private boolean changeGateEnabled = false;
+    private final FrameChangeDetector changeDetector = new FrameChangeDetector();
+    private volatile List<DetectedObject> lastDetections = new ArrayList<>();
+    private int[] gateRowPixels;
+    private long lastPowerCheckTime = 0;
+    private static final long POWER_CHECK_INTERVAL_MS = 5000;
+    
     // Detection callback
     private DetectionCallback detectionCallback;
     private boolean isDetecting = false;
@@ -60,6 +107,10 @@ public class ObjectDetectionEngine {
     }
     
     public interface DetectionCallback {
+        /**
+         * processedImage may be engine-owned and is redrawn two frames later;
+         * copy it to keep it longer.
+         */
         void onObjectsDetected(List<DetectedObject> objects, Bitmap processedImage);
         void onDetectionError(String error);
     }
@@ -67,6 +118,17 @@ public class ObjectDetectionEngine {
     public ObjectDetectionEngine(Context context) {
         this.context = context;
         this.executorService = Executors.newFixedThreadPool(3);
+        for (int i = 0; i < BACKEND_NAMES.length; i++) {
+            backendExecutors[i] = Executors.newSingleThreadExecutor();
+            backendBusy[i] = new AtomicBoolean(false);
+        }
+        
+        overlayPaint.setStyle(Paint.Style.STROKE);
+        overlayPaint.setStrokeWidth(3.0f);
+        overlayPaint.setTextSize(24.0f);
+        overlayTextBgPaint.setColor(Color.BLACK);
+        overlayTextBgPaint.setAlpha(128);
+        
         initializeDetectors();
     }
     
@@ -111,6 +173,65 @@ public class ObjectDetectionEngine {
         this.confidenceThreshold = Math.max(0.0f, Math.min(1.0f, threshold));
     }
     
+    /**
+     * Run enabled backends concurrently on each frame instead of one after another
+     */
+    public void setParallelDetection(boolean parallel) {
+        this.parallelDetection = parallel;
+    }
+    
+    /**
+     * Time budget per frame; backends that miss it are dropped for that frame
+     */
+    public void setFrameDeadlineMs(long deadlineMs) {
+        this.frameDeadlineMs = Math.max(1, deadlineMs);
+    }
+    
+    public void setFusionIouThreshold(float iouThreshold) {
+        detectionFusion.setIouThreshold(iouThreshold);
+    }
+    
+    /**
+     * Draw boxes into an overlay bitmap passed to the callback. Off by default,
+     * in which case the callback receives the input frame untouched. The
+     * overlay is reused: it stays valid until the callback after next.
+     */
+    public void setOverlayEnabled(boolean enabled) {
+        this.overlayEnabled = enabled;
+    }
+    
+    public long getLateBackendCount() {
+        return lateBackendCount.get();
+    }
+    
+    /**
+     * Backend runs skipped because that backend was still busy with an earlier frame
+     */
+    public long getBusyBackendSkipCount() {
+        return busyBackendSkips.get();
+    }
+    
+    /**
+     * Skip detection on frames that have not changed since the last detected
+     * frame, re-detecting only dirty regions when few tiles changed
+     */
+    public void setChangeGateEnabled(boolean enabled) {
+        this.changeGateEnabled = enabled;
+        changeDetector.reset();
+    }
+    
+    public FrameChangeDetector getChangeDetector() {
+        return changeDetector;
+    }
+    
+    public float getSkipRatio() {
+        return changeDetector.getSkipRatio();
+    }
+    
+    public double getSavedDetectionMillis() {
+        return changeDetector.getSavedMillis();
+    }
+    
     public void startDetection(DetectionCallback callback) {
         this.detectionCallback = callback;
         this.isDetecting = true;
@@ -152,96 +273,400 @@ public class ObjectDetectionEngine {
             return;
         }
         
-        executorService.submit(() -> {
-            Bitmap processedImage = null;
-            try {
-                List<DetectedObject> allDetections = new ArrayList<>();
-                
-                // Run ML Kit detection with error handling
-                if (mlKitEnabled && mlKitDetector != null) {
-                    try {
-                        List<DetectedObject> mlKitResults = runMLKitDetection(inputBitmap);
-                        if (mlKitResults != null) {
-                            allDetections.addAll(mlKitResults);
-                        }
-                    } catch (OutOfMemoryError e) {
-                        Timber.e(e, "ML Kit detection OOM, disabling");
-                        mlKitEnabled = false;
-                    }
+        executorService.submit(() -> runDetection(inputBitmap));
+    }
+    
+    /**
+     * Detect objects on a pooled capture frame. The frame is retained until
+     * detection finishes, so the caller may release its own reference right away.
+     * The callback gets a copy of the frame that stays valid until the callback after next.
+     */
+    public void detectObjects(FrameHandle frame) {
+        if (!isDetecting || frame == null) {
+            return;
+        }
+        
+        frame.retain();
+        try {
+            executorService.submit(() -> {
+                try {
+                    runDetection(frame.asBitmap(), frame);
+                } finally {
+                    frame.release();
                 }
-                
-                // Run TensorFlow Lite detection with memory checks
-                if (tensorFlowEnabled && tfHelper != null) {
-                    try {
-                        List<DetectedObject> tfResults = runTensorFlowDetection(inputBitmap);
-                        if (tfResults != null) {
-                            allDetections.addAll(tfResults);
-                        }
-                    } catch (OutOfMemoryError e) {
-                        Timber.e(e, "TensorFlow detection OOM, disabling");
-                        tensorFlowEnabled = false;
-                    }
+            });
+        } catch (Exception e) {
+            frame.release();
+            Timber.e(e, "Error scheduling frame detection");
+        }
+    }
+    
+    private void runDetection(Bitmap inputBitmap) {
+        runDetection(inputBitmap, null);
+    }
+    
+    /**
+     * @param owner pooled frame backing inputBitmap, or null. Backends that
+     *              outlive this call keep their own reference to it.
+     */
+    private void runDetection(Bitmap inputBitmap, FrameHandle owner) {
+        try {
+            List<DetectedObject> filteredResults = detectGated(inputBitmap, owner);
+            
+            // Overlay is opt-in; otherwise the callback gets the input frame
+            Bitmap processedImage = inputBitmap;
+            if (overlayEnabled) {
+                try {
+                    processedImage = drawCallbackImage(inputBitmap, filteredResults);
+                } catch (OutOfMemoryError e) {
+                    Timber.e(e, "OOM creating overlay image, using original");
+                    overlayEnabled = false;
                 }
-                
-                // Run OpenCV detection with initialization check
-                if (openCVEnabled && OpenCVHelper.isInitialized()) {
-                    try {
-                        List<DetectedObject> cvResults = runOpenCVDetection(inputBitmap);
-                        if (cvResults != null) {
-                            allDetections.addAll(cvResults);
-                        }
-                    } catch (OutOfMemoryError e) {
-                        Timber.e(e, "OpenCV detection OOM, disabling");
-                        openCVEnabled = false;
-                    }
+            } else if (owner != null && detectionCallback != null) {
+                // The pooled bitmap is overwritten by a later capture once the
+                // frame is released, and callbacks usually hand it to the UI thread
+                processedImage = drawCallbackImage(inputBitmap, null);
+            }
+            
+            // Thread-safe callback with results
+            if (detectionCallback != null && !isDestroyed) {
+                detectionCallback.onObjectsDetected(filteredResults, processedImage);
+            }
+            
+        } catch (OutOfMemoryError e) {
+            Timber.e(e, "Critical OOM during object detection");
+            System.gc(); // Force garbage collection
+            if (detectionCallback != null) {
+                detectionCallback.onDetectionError("Memory exhausted during detection");
+            }
+        } catch (Exception e) {
+            Timber.e(e, "Error during object detection");
+            if (detectionCallback != null) {
+                detectionCallback.onDetectionError(e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Change gate, backends and fusion shared by every detection entry point.
+     * With a null inputBitmap the owner frame is gated straight from its plane
+     * and its bitmap view is only materialised when the frame is not skipped.
+     */
+    private List<DetectedObject> detectGated(Bitmap inputBitmap, FrameHandle owner) throws InterruptedException {
+        FrameChangeDetector.Decision decision = FrameChangeDetector.Decision.FULL;
+        int[] dirtyBounds = null;
+        if (changeGateEnabled) {
+            int width = inputBitmap != null ? inputBitmap.getWidth() : owner.getWidth();
+            int height = inputBitmap != null ? inputBitmap.getHeight() : owner.getHeight();
+            ImagePreprocessor.RowSource rows = inputBitmap != null
+                ? (y, left, rowWidth, dst) -> inputBitmap.getPixels(dst, 0, rowWidth, left, y, rowWidth, 1)
+                : (y, left, rowWidth, dst) -> owner.getPixels(dst, 0, rowWidth, left, y, rowWidth, 1);
+            synchronized (changeDetector) {
+                decision = evaluateFrameChange(rows, width, height);
+                if (decision == FrameChangeDetector.Decision.PARTIAL) {
+                    dirtyBounds = changeDetector.getDirtyBounds(width, height);
                 }
-                
-                // Filter by confidence threshold with null safety
-                List<DetectedObject> filteredResults = new ArrayList<>();
-                for (DetectedObject obj : allDetections) {
-                    if (obj != null && obj.confidence >= confidenceThreshold) {
-                        filteredResults.add(obj);
-                    }
+            }
+        }
+        
+        if (decision == FrameChangeDetector.Decision.SKIP) {
+            // Static frame: reuse the last detections
+            return new ArrayList<>(lastDetections);
+        }
+        
+        Bitmap bitmap = inputBitmap != null ? inputBitmap : owner.asBitmap();
+        long start = System.nanoTime();
+        List<DetectedObject> filteredResults = filterAndFuse(dirtyBounds != null
+            ? detectDirtyRegion(bitmap, dirtyBounds)
+            : runBackends(bitmap, owner));
+        
+        if (changeGateEnabled) {
+            changeDetector.recordDetectorLatency((System.nanoTime() - start) / 1_000_000f, decision);
+            lastDetections = filteredResults;
+        }
+        return filteredResults;
+    }
+    
+    /**
+     * Run the change gate and the enabled backends on the calling thread and
+     * return the fused detections. Meant for callers that manage their own
+     * threads, such as the pipeline's detection stage; the detection callback
+     * is not invoked.
+     */
+    public List<DetectedObject> detectObjectsBlocking(Bitmap inputBitmap) throws InterruptedException {
+        if (inputBitmap == null || isDestroyed) {
+            return new ArrayList<>();
+        }
+        return detectGated(inputBitmap, null);
+    }
+    
+    /**
+     * Blocking detection on a pooled capture frame. The frame's bitmap view is
+     * only valid while a reference is held, so every backend still reading it
+     * holds one; the caller may release its own reference as soon as this returns.
+     */
+    public List<DetectedObject> detectObjectsBlocking(FrameHandle frame) throws InterruptedException {
+        if (frame == null || isDestroyed) {
+            return new ArrayList<>();
+        }
+        frame.retain();
+        try {
+            return detectGated(null, frame);
+        } finally {
+            frame.release();
+        }
+    }
+    
+    private List<DetectedObject> filterAndFuse(List<DetectedObject> allDetections) {
+        // Filter by confidence threshold with null safety
+        List<DetectedObject> filteredResults = new ArrayList<>();
+        for (DetectedObject obj : allDetections) {
+            if (obj != null && obj.boundingBox != null && obj.confidence >= confidenceThreshold) {
+                filteredResults.add(obj);
+            }
+        }
+        
+        // Merge duplicates reported by different backends
+        return detectionFusion.fuse(filteredResults);
+    }
+    
+    private List<DetectedObject> runBackends(Bitmap inputBitmap, FrameHandle owner) throws InterruptedException {
+        return parallelDetection
+            ? runBackendsConcurrently(inputBitmap, owner)
+            : runBackendsSequentially(inputBitmap);
+    }
+    
+    /**
+     * Sample a coarse luminance grid from the frame and ask the gate what to run
+     */
+    private FrameChangeDetector.Decision evaluateFrameChange(ImagePreprocessor.RowSource rows, int width, int height) {
+        if (gateRowPixels == null || gateRowPixels.length != width) {
+            gateRowPixels = new int[width];
+        }
+        for (int gy = 0; gy < FrameChangeDetector.GRID_HEIGHT; gy++) {
+            int y = FrameChangeDetector.sourceRowFor(gy, height);
+            rows.readRow(y, 0, width, gateRowPixels);
+            changeDetector.putSampleRow(gy, gateRowPixels, width);
+        }
+        
+        updatePowerPressure();
+        return changeDetector.evaluate();
+    }
+    
+    /**
+     * Re-detect only the dirty region and keep cached detections elsewhere
+     */
+    private List<DetectedObject> detectDirtyRegion(Bitmap inputBitmap, int[] bounds) throws InterruptedException {
+        int left = bounds[0], top = bounds[1];
+        Bitmap region = Bitmap.createBitmap(inputBitmap, left, top, bounds[2] - left, bounds[3] - top);
+        List<DetectedObject> merged = new ArrayList<>();
+        try {
+            for (DetectedObject obj : runBackends(region, null)) {
+                obj.boundingBox.offset(left, top);
+                merged.add(obj);
+            }
+        } finally {
+            if (region != inputBitmap) {
+                region.recycle();
+            }
+        }
+        
+        RectF dirtyRect = new RectF(bounds[0], bounds[1], bounds[2], bounds[3]);
+        for (DetectedObject cached : lastDetections) {
+            if (!dirtyRect.contains(cached.boundingBox.centerX(), cached.boundingBox.centerY())) {
+                merged.add(cached);
+            }
+        }
+        return merged;
+    }
+    
+    /**
+     * Map thermal status and battery level to a 0-1 pressure for the change gate
+     */
+    private void updatePowerPressure() {
+        long now = System.currentTimeMillis();
+        if (now - lastPowerCheckTime < POWER_CHECK_INTERVAL_MS || context == null) {
+            return;
+        }
+        lastPowerCheckTime = now;
+        
+        try {
+            float pressure = 0f;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+                if (powerManager != null) {
+                    int thermalStatus = powerManager.getCurrentThermalStatus();
+                    pressure = Math.max(pressure, Math.min(1f, thermalStatus / (float) PowerManager.THERMAL_STATUS_SEVERE));
                 }
-                
-                // Create processed image with proper memory management
-                try {
-                    processedImage = drawBoundingBoxes(inputBitmap, filteredResults);
-                } catch (OutOfMemoryError e) {
-                    Timber.e(e, "OOM creating processed image, using original");
-                    processedImage = inputBitmap;
+            }
+            
+            BatteryManager batteryManager = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+            if (batteryManager != null && !batteryManager.isCharging()) {
+                int level = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+                if (level > 0 && level < 30) {
+                    pressure = Math.max(pressure, (30 - level) / 30f);
                 }
-                
-                // Thread-safe callback with results
-                final Bitmap finalProcessedImage = processedImage;
-                if (detectionCallback != null && !isDestroyed) {
-                    detectionCallback.onObjectsDetected(filteredResults, finalProcessedImage);
+            }
+            
+            changeDetector.setPowerPressure(pressure);
+        } catch (Exception e) {
+            Timber.w(e, "Unable to read power state for change gate");
+        }
+    }
+    
+    private List<DetectedObject> runBackendsSequentially(Bitmap inputBitmap) {
+        List<DetectedObject> allDetections = new ArrayList<>();
+        
+        // Run ML Kit detection with error handling
+        if (mlKitEnabled && mlKitDetector != null && tryClaimBackend(BACKEND_MLKIT)) {
+            try {
+                List<DetectedObject> mlKitResults = runMLKitDetection(inputBitmap);
+                if (mlKitResults != null) {
+                    allDetections.addAll(mlKitResults);
                 }
-                
             } catch (OutOfMemoryError e) {
-                Timber.e(e, "Critical OOM during object detection");
-                System.gc(); // Force garbage collection
-                if (detectionCallback != null) {
-                    detectionCallback.onDetectionError("Memory exhausted during detection");
+                Timber.e(e, "ML Kit detection OOM, disabling");
+                mlKitEnabled = false;
+            } finally {
+                backendBusy[BACKEND_MLKIT].set(false);
+            }
+        }
+        
+        // Run TensorFlow Lite detection with memory checks
+        if (tensorFlowEnabled && tfHelper != null && tryClaimBackend(BACKEND_TENSORFLOW)) {
+            try {
+                List<DetectedObject> tfResults = runTensorFlowDetection(inputBitmap);
+                if (tfResults != null) {
+                    allDetections.addAll(tfResults);
                 }
-            } catch (Exception e) {
-                Timber.e(e, "Error during object detection");
-                if (detectionCallback != null) {
-                    detectionCallback.onDetectionError(e.getMessage());
+            } catch (OutOfMemoryError e) {
+                Timber.e(e, "TensorFlow detection OOM, disabling");
+                tensorFlowEnabled = false;
+            } finally {
+                backendBusy[BACKEND_TENSORFLOW].set(false);
+            }
+        }
+        
+        // Run OpenCV detection with initialization check
+        if (openCVEnabled && OpenCVHelper.isInitialized() && tryClaimBackend(BACKEND_OPENCV)) {
+            try {
+                List<DetectedObject> cvResults = runOpenCVDetection(inputBitmap);
+                if (cvResults != null) {
+                    allDetections.addAll(cvResults);
                 }
+            } catch (OutOfMemoryError e) {
+                Timber.e(e, "OpenCV detection OOM, disabling");
+                openCVEnabled = false;
             } finally {
-                // Cleanup resources if processedImage was created
-                if (processedImage != null && processedImage != inputBitmap) {
-                    try {
-                        if (!processedImage.isRecycled()) {
-                            processedImage.recycle();
-                        }
-                    } catch (Exception e) {
-                        Timber.w(e, "Error recycling processed image");
+                backendBusy[BACKEND_OPENCV].set(false);
+            }
+        }
+        
+        return allDetections;
+    }
+    
+    /**
+     * Fan the enabled backends out on the same frame and keep whatever finishes
+     * before the frame deadline. Late backends are not waited on; they run to
+     * completion in the background, their results are dropped and they are
+     * skipped on later frames until they finish. When the input is a pooled
+     * frame each backend holds a reference until it is done.
+     */
+    private List<DetectedObject> runBackendsConcurrently(Bitmap inputBitmap, FrameHandle owner) throws InterruptedException {
+        List<DetectedObject> allDetections = new ArrayList<>();
+        List<String> methods = new ArrayList<>(3);
+        List<Future<List<DetectedObject>>> futures = new ArrayList<>(3);
+        
+        if (mlKitEnabled && mlKitDetector != null) {
+            submitBackend(BACKEND_MLKIT, () -> runMLKitDetection(inputBitmap), owner, methods, futures);
+        }
+        if (tensorFlowEnabled && tfHelper != null) {
+            submitBackend(BACKEND_TENSORFLOW, () -> runTensorFlowDetection(inputBitmap), owner, methods, futures);
+        }
+        if (openCVEnabled && OpenCVHelper.isInitialized()) {
+            submitBackend(BACKEND_OPENCV, () -> runOpenCVDetection(inputBitmap), owner, methods, futures);
+        }
+        
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(frameDeadlineMs);
+        for (int i = 0; i < futures.size(); i++) {
+            Future<List<DetectedObject>> future = futures.get(i);
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                List<DetectedObject> results = future.get(remaining, TimeUnit.NANOSECONDS);
+                if (results != null) {
+                    allDetections.addAll(results);
+                }
+            } catch (TimeoutException e) {
+                // Interrupting would not stop native inference, and the backend
+                // may still be reading the frame
+                lateBackendCount.incrementAndGet();
+                Timber.d(methods.get(i) + " missed the " + frameDeadlineMs + "ms frame deadline");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof OutOfMemoryError) {
+                    Timber.e(e.getCause(), methods.get(i) + " detection OOM, disabling");
+                    disableBackend(methods.get(i));
+                } else {
+                    Timber.e(e.getCause(), "Error in " + methods.get(i) + " detection");
+                }
+            }
+        }
+        
+        return allDetections;
+    }
+    
+    /**
+     * Queue a backend on its own worker unless it is still busy with an earlier
+     * frame. The busy flag and the frame reference are held until it finishes.
+     */
+    private void submitBackend(int backend, Callable<List<DetectedObject>> detection, FrameHandle owner,
+                               List<String> methods, List<Future<List<DetectedObject>>> futures) {
+        if (!tryClaimBackend(backend)) {
+            return;
+        }
+        if (owner != null) {
+            owner.retain();
+        }
+        try {
+            futures.add(backendExecutors[backend].submit(() -> {
+                try {
+                    return detection.call();
+                } finally {
+                    backendBusy[backend].set(false);
+                    if (owner != null) {
+                        owner.release();
                     }
                 }
+            }));
+            methods.add(BACKEND_NAMES[backend]);
+        } catch (RuntimeException e) {
+            backendBusy[backend].set(false);
+            if (owner != null) {
+                owner.release();
             }
-        });
+            throw e;
+        }
+    }
+    
+    private boolean tryClaimBackend(int backend) {
+        if (backendBusy[backend].compareAndSet(false, true)) {
+            return true;
+        }
+        busyBackendSkips.incrementAndGet();
+        return false;
+    }
+    
+    private void disableBackend(String method) {
+        switch (method) {
+            case "ML Kit":
+                mlKitEnabled = false;
+                break;
+            case "TensorFlow Lite":
+                tensorFlowEnabled = false;
+                break;
+            case "OpenCV":
+                openCVEnabled = false;
+                break;
+        }
     }
     
     private volatile boolean isDestroyed = false;
@@ -252,27 +677,29 @@ public class ObjectDetectionEngine {
         try {
             InputImage image = InputImage.fromBitmap(bitmap, 0);
             
-            mlKitDetector.process(image)
-                .addOnSuccessListener(detectedObjects -> {
-                    for (com.google.mlkit.vision.objects.DetectedObject obj : detectedObjects) {
-                        RectF boundingBox = new RectF(obj.getBoundingBox());
-                        String label = "Unknown";
-                        float confidence = 0.0f;
-                        
-                        // Get best classification label
-                        if (!obj.getLabels().isEmpty()) {
-                            com.google.mlkit.vision.objects.DetectedObject.Label bestLabel = obj.getLabels().get(0);
-                            label = bestLabel.getText();
-                            confidence = bestLabel.getConfidence();
-                        }
-                        
-                        results.add(new DetectedObject(label, confidence, boundingBox, "ML Kit"));
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Timber.e(e, "ML Kit detection failed");
-                });
+            // Block this worker until ML Kit answers; listeners would fire after we return
+            List<com.google.mlkit.vision.objects.DetectedObject> detectedObjects =
+                Tasks.await(mlKitDetector.process(image), frameDeadlineMs, TimeUnit.MILLISECONDS);
+            
+            for (com.google.mlkit.vision.objects.DetectedObject obj : detectedObjects) {
+                RectF boundingBox = new RectF(obj.getBoundingBox());
+                String label = "Unknown";
+                float confidence = 0.0f;
                 
+                // Get best classification label
+                if (!obj.getLabels().isEmpty()) {
+                    com.google.mlkit.vision.objects.DetectedObject.Label bestLabel = obj.getLabels().get(0);
+                    label = bestLabel.getText();
+                    confidence = bestLabel.getConfidence();
+                }
+                
+                results.add(new DetectedObject(label, confidence, boundingBox, "ML Kit"));
+            }
+                
+        } catch (TimeoutException e) {
+            Timber.d("ML Kit detection timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             Timber.e(e, "Error in ML Kit detection");
         }
@@ -340,18 +767,35 @@ public class ObjectDetectionEngine {
         return results;
     }
     
-    private Bitmap drawBoundingBoxes(Bitmap originalBitmap, List<DetectedObject> detections) {
-        Bitmap mutableBitmap = originalBitmap.copy(Bitmap.Config.ARGB_8888, true);
-        Canvas canvas = new Canvas(mutableBitmap);
+    /**
+     * Copy the frame, plus detection boxes when given, into the next of the two
+     * callback bitmaps. Reallocates only when the frame size changes.
+     */
+    private synchronized Bitmap drawCallbackImage(Bitmap originalBitmap, List<DetectedObject> detections) {
+        int index = callbackBufferIndex;
+        callbackBufferIndex ^= 1;
+        Bitmap target = callbackBitmaps[index];
+        if (target == null || target.isRecycled()
+                || target.getWidth() != originalBitmap.getWidth()
+                || target.getHeight() != originalBitmap.getHeight()) {
+            if (target != null && !target.isRecycled()) {
+                target.recycle();
+            }
+            target = Bitmap.createBitmap(originalBitmap.getWidth(), originalBitmap.getHeight(),
+                Bitmap.Config.ARGB_8888);
+            callbackBitmaps[index] = target;
+            callbackCanvases[index] = new Canvas(target);
+        }
         
-        Paint paint = new Paint();
-        paint.setStyle(Paint.Style.STROKE);
-        paint.setStrokeWidth(3.0f);
-        paint.setTextSize(24.0f);
+        Canvas canvas = callbackCanvases[index];
+        canvas.drawBitmap(originalBitmap, 0, 0, null);
+        if (detections == null) {
+            return target;
+        }
         
-        Paint textBgPaint = new Paint();
-        textBgPaint.setColor(Color.BLACK);
-        textBgPaint.setAlpha(128);
+        Paint paint = overlayPaint;
+        Paint textBgPaint = overlayTextBgPaint;
+        Rect textBounds = overlayTextBounds;
         
         for (DetectedObject obj : detections) {
             // Set color based on detection method
@@ -374,7 +818,6 @@ public class ObjectDetectionEngine {
             
             // Draw label with background
             String labelText = obj.label + " (" + String.format("%.2f", obj.confidence) + ")";
-            Rect textBounds = new Rect();
             paint.getTextBounds(labelText, 0, labelText.length(), textBounds);
             
             float labelX = obj.boundingBox.left;
@@ -387,7 +830,7 @@ public class ObjectDetectionEngine {
             canvas.drawText(labelText, labelX + 5, labelY, paint);
         }
         
-        return mutableBitmap;
+        return target;
     }
     
     public float calculateOptimalThreshold() {
@@ -467,6 +910,22 @@ public class ObjectDetectionEngine {
                 }
             }
             
+            for (ExecutorService backendExecutor : backendExecutors) {
+                if (backendExecutor != null && !backendExecutor.isShutdown()) {
+                    backendExecutor.shutdownNow();
+                }
+            }
+            
+            synchronized (this) {
+                for (int i = 0; i < callbackBitmaps.length; i++) {
+                    if (callbackBitmaps[i] != null && !callbackBitmaps[i].isRecycled()) {
+                        callbackBitmaps[i].recycle();
+                    }
+                    callbackBitmaps[i] = null;
+                    callbackCanvases[i] = null;
+                }
+            }
+            
             // Cleanup ML Kit detector
             if (mlKitDetector != null) {
                 try {
@@ -17,6 +17,7 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.Arrays;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -65,6 +66,11 @@ public class ObjectLabelerEngine {
         void onImportError(String error);
     }
     
+    public interface DigitTemplateCallback {
+        void onTemplatesUpdated(String learnedSymbols);
+        void onTemplateError(String error);
+    }
+    
     public ObjectLabelerEngine(Context context) {
         this.context = context;
         this.executorService = Executors.newCachedThreadPool();
@@ -186,6 +192,63 @@ public class ObjectLabelerEngine {
         });
     }
     
+    /**
+     * Teach a game's digit reader from a labelled HUD region: a box around
+     * e.g. the ammo counter in a captured frame and the text it shows
+     * ("30/120"). A few frames covering every digit are enough. Templates are
+     * saved per game and used by the HUD readers straight away.
+     */
+    public void learnDigitTemplates(String gameId, Bitmap screenshot, Rect region, String shownText,
+                                    DigitTemplateCallback callback) {
+        executorService.execute(() -> {
+            try {
+                DigitRecognizer recognizer = loadDigitTemplates(gameId);
+                int width = region.width();
+                int height = region.height();
+                int[] pixels = new int[width * height];
+                screenshot.getPixels(pixels, 0, width, region.left, region.top, width, height);
+                
+                if (!recognizer.learn(pixels, 0, width, width, height, shownText)) {
+                    mainHandler.post(() -> callback.onTemplateError(
+                        "Characters found in region do not match \"" + shownText + "\""));
+                    return;
+                }
+                
+                try (FileOutputStream out = new FileOutputStream(digitTemplateFile(gameId))) {
+                    recognizer.write(out);
+                }
+                String symbols = recognizer.getLearnedSymbols();
+                Log.d(TAG, "Digit templates for " + gameId + " now cover: " + symbols);
+                mainHandler.post(() -> callback.onTemplatesUpdated(symbols));
+                
+            } catch (Exception e) {
+                Log.e(TAG, "Digit template learning failed", e);
+                mainHandler.post(() -> callback.onTemplateError(e.getMessage()));
+            }
+        });
+    }
+    
+    /**
+     * The game's shared digit reader, with its saved templates loaded on first use
+     */
+    public DigitRecognizer loadDigitTemplates(String gameId) {
+        DigitRecognizer recognizer = DigitRecognizer.forGame(gameId);
+        File file = digitTemplateFile(gameId);
+        if (!recognizer.hasTemplates() && file.exists()) {
+            try (FileInputStream in = new FileInputStream(file)) {
+                recognizer.read(in);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to load digit templates for " + gameId, e);
+            }
+        }
+        return recognizer;
+    }
+    
+    private File digitTemplateFile(String gameId) {
+        String name = gameId != null ? gameId : DigitRecognizer.DEFAULT_GAME;
+        return new File(context.getFilesDir(), "digit_templates_" + name.replaceAll("[^A-Za-z0-9._-]", "_") + ".bin");
+    }
+    
     /**
      * Add custom category to the hierarchy
      */
@@ -16,7 +16,6 @@ public class PlayerTracker {
     public PlayerTracker(Context context) {
         this.context = context;
         this.trackedPlayers = new HashMap<>();
-        this.nextPlayerId = 1;
         // Initialize NLPProcessor
         this.nlpProcessor = new NLPProcessor(context);
     }
@@ -38,6 +37,8 @@ public class PlayerTracker {
         public String playerName;
         public boolean isEnemy;
         public WeaponRecognizer.WeaponType currentWeapon;
+        public int trackState = MultiObjectTracker.STATE_TENTATIVE;
+        int slot = -1;
 
 
 
@@ -81,44 +82,45 @@ public class PlayerTracker {
     }
 
     private Map<Integer, PlayerData> trackedPlayers;
-    private int nextPlayerId;
     private float trackingThreshold = 0.3f;
     private long maxTrackingAge = 5000; // 5 seconds
+    private static final float[] SCREEN_CENTER = {540f, 960f};
+
+    // Kalman/Hungarian tracker over primitive arrays; PlayerData mirrors its tracks
+    private static final int MAX_TRACKED_PLAYERS = 64;
+    private final MultiObjectTracker tracker = new MultiObjectTracker(MAX_TRACKED_PLAYERS, MAX_TRACKED_PLAYERS);
+    private final float[] detX = new float[MAX_TRACKED_PLAYERS];
+    private final float[] detY = new float[MAX_TRACKED_PLAYERS];
+    private final float[] detW = new float[MAX_TRACKED_PLAYERS];
+    private final float[] detH = new float[MAX_TRACKED_PLAYERS];
+    private final float[] detConf = new float[MAX_TRACKED_PLAYERS];
+    private final String[] detTeam = new String[MAX_TRACKED_PLAYERS];
+    private final PlayerData[] slotPlayers = new PlayerData[MAX_TRACKED_PLAYERS];
 
     /**
      * Update player tracking with new detections
      */
-    public List<PlayerData> updateTracking(List<ObjectDetectionEngine.DetectedObject> detectedObjects) {
-        List<ObjectDetectionEngine.DetectedObject> playerObjects = filterPlayerObjects(detectedObjects);
-
-        // Update existing tracks
-        for (PlayerData player : trackedPlayers.values()) {
-            ObjectDetectionEngine.DetectedObject matchedObject = findBestMatch(player, playerObjects);
-            if (matchedObject != null) {
-                player.updatePosition(new android.graphics.Rect(
-                        matchedObject.boundingRect.x,
-                        matchedObject.boundingRect.y,
-                        matchedObject.boundingRect.x + matchedObject.boundingRect.width,
-                        matchedObject.boundingRect.y + matchedObject.boundingRect.height
-                ));
-                playerObjects.remove(matchedObject);
+    public synchronized List<PlayerData> updateTracking(List<ObjectDetectionEngine.DetectedObject> detectedObjects) {
+        long now = System.currentTimeMillis();
+        int count = collectPlayerDetections(detectedObjects);
+
+        tracker.update(detX, detY, detW, detH, detConf, count, now);
+
+        // New tracks take their team status from the detection that spawned them
+        for (int d = 0; d < count; d++) {
+            int slot = tracker.getDetectionTrack(d);
+            if (slot >= 0 && (slotPlayers[slot] == null
+                    || slotPlayers[slot].playerId != tracker.getTrackId(slot))) {
+                if (slotPlayers[slot] != null) {
+                    trackedPlayers.remove(slotPlayers[slot].playerId);
+                    slotPlayers[slot] = null;
+                }
+                PlayerData player = syncPlayer(slot, now);
+                player.teamStatus = detTeam[d];
             }
         }
 
-        // Create new tracks for unmatched detections
-        for (ObjectDetectionEngine.DetectedObject obj : playerObjects) {
-            PlayerData newPlayer = new PlayerData(nextPlayerId++, new android.graphics.Rect(
-                    obj.boundingRect.x,
-                    obj.boundingRect.y,
-                    obj.boundingRect.x + obj.boundingRect.width,
-                    obj.boundingRect.y + obj.boundingRect.height
-            ), obj.confidence);
-            newPlayer.teamStatus = classifyTeamStatus(obj);
-            trackedPlayers.put(newPlayer.playerId, newPlayer);
-        }
-
-        // Remove old tracks
-        removeStaleTracking();
+        syncAllPlayers(now);
 
         // Calculate threat levels
         updateThreatLevels();
@@ -126,70 +128,123 @@ public class PlayerTracker {
         return new ArrayList<>(trackedPlayers.values());
     }
 
-    private List<ObjectDetectionEngine.DetectedObject> filterPlayerObjects(List<ObjectDetectionEngine.DetectedObject> objects) {
-        List<ObjectDetectionEngine.DetectedObject> players = new ArrayList<>();
+    /**
+     * Advance tracks between detections so tracking can run at frame rate
+     * while detection runs slower
+     */
+    public synchronized List<PlayerData> predictTracks(long nowMs) {
+        tracker.predict(nowMs);
+        syncAllPlayers(nowMs);
+        updateThreatLevels();
+        return new ArrayList<>(trackedPlayers.values());
+    }
+
+    /**
+     * Copy player detections into the reusable detection arrays
+     */
+    private int collectPlayerDetections(List<ObjectDetectionEngine.DetectedObject> objects) {
+        int count = 0;
         for (ObjectDetectionEngine.DetectedObject obj : objects) {
-            if (obj.name.toLowerCase().contains("player") ||
-                    obj.name.toLowerCase().contains("enemy") ||
-                    obj.name.toLowerCase().contains("character")) {
-                players.add(obj);
-            }
+            if (count == MAX_TRACKED_PLAYERS) break;
+            if (obj == null || obj.label == null || obj.boundingBox == null) continue;
+            if (obj.confidence < trackingThreshold || !isPlayerLabel(obj.label)) continue;
+
+            detX[count] = obj.boundingBox.centerX();
+            detY[count] = obj.boundingBox.centerY();
+            detW[count] = obj.boundingBox.width();
+            detH[count] = obj.boundingBox.height();
+            detConf[count] = obj.confidence;
+            detTeam[count] = classifyTeamStatus(obj.label);
+            count++;
         }
-        return players;
+        return count;
     }
 
-    private ObjectDetectionEngine.DetectedObject findBestMatch(PlayerData player,
-                                                               List<ObjectDetectionEngine.DetectedObject> candidates) {
-
-        ObjectDetectionEngine.DetectedObject bestMatch = null;
-        float bestScore = Float.MAX_VALUE;
-
-        for (ObjectDetectionEngine.DetectedObject candidate : candidates) {
-            float distance = calculateDistance(player.position,
-                    new float[]{
-                            candidate.boundingRect.x + candidate.boundingRect.width/2f,
-                            candidate.boundingRect.y + candidate.boundingRect.height/2f
-                    });
+    private static boolean isPlayerLabel(String label) {
+        return containsIgnoreCase(label, "player") ||
+                containsIgnoreCase(label, "enemy") ||
+                containsIgnoreCase(label, "character");
+    }
 
-            if (distance < bestScore && distance < 100) { // Max distance threshold
-                bestScore = distance;
-                bestMatch = candidate;
+    private static boolean containsIgnoreCase(String text, String token) {
+        int max = text.length() - token.length();
+        for (int i = 0; i <= max; i++) {
+            if (text.regionMatches(true, i, token, 0, token.length())) {
+                return true;
             }
         }
+        return false;
+    }
 
-        return bestMatch;
+    private void syncAllPlayers(long now) {
+        for (int slot = 0; slot < MAX_TRACKED_PLAYERS; slot++) {
+            if (tracker.getState(slot) == MultiObjectTracker.STATE_FREE
+                    || now - tracker.getLastUpdateTime(slot) > maxTrackingAge) {
+                PlayerData stale = slotPlayers[slot];
+                if (stale != null) {
+                    trackedPlayers.remove(stale.playerId);
+                    slotPlayers[slot] = null;
+                    Log.d(TAG, "Removed stale player track: " + stale.playerId);
+                }
+                continue;
+            }
+            syncPlayer(slot, now);
+        }
     }
 
-    private float calculateDistance(float[] pos1, float[] pos2) {
-        float dx = pos1[0] - pos2[0];
-        float dy = pos1[1] - pos2[1];
-        return (float) Math.sqrt(dx * dx + dy * dy);
+    /**
+     * Mirror filter state of a track slot into its PlayerData
+     */
+    private PlayerData syncPlayer(int slot, long now) {
+        int left = Math.round(tracker.getX(slot) - tracker.getWidth(slot) / 2f);
+        int top = Math.round(tracker.getY(slot) - tracker.getHeight(slot) / 2f);
+        int right = Math.round(tracker.getX(slot) + tracker.getWidth(slot) / 2f);
+        int bottom = Math.round(tracker.getY(slot) + tracker.getHeight(slot) / 2f);
+
+        PlayerData player = slotPlayers[slot];
+        if (player == null) {
+            player = new PlayerData(tracker.getTrackId(slot), new Rect(left, top, right, bottom),
+                    tracker.getConfidence(slot));
+            slotPlayers[slot] = player;
+            trackedPlayers.put(player.playerId, player);
+        } else {
+            if (tracker.getLastUpdateTime(slot) > player.lastSeen) {
+                player.movementHistory.add(new float[]{player.position[0], player.position[1]});
+                if (player.movementHistory.size() > 10) {
+                    player.movementHistory.remove(0);
+                }
+            }
+            player.boundingBox.set(left, top, right, bottom);
+        }
+
+        player.position[0] = tracker.getX(slot);
+        player.position[1] = tracker.getY(slot);
+        player.velocity[0] = tracker.getVelocityX(slot);
+        player.velocity[1] = tracker.getVelocityY(slot);
+        player.confidence = tracker.getConfidence(slot);
+        player.trackState = tracker.getState(slot);
+        player.lastSeen = tracker.getLastUpdateTime(slot);
+        player.slot = slot;
+        return player;
     }
 
-    private String classifyTeamStatus(ObjectDetectionEngine.DetectedObject obj) {
+    private String classifyTeamStatus(String label) {
         // Analyze color patterns, UI indicators, etc.
         // This would use advanced computer vision techniques
 
-        if (obj.name.toLowerCase().contains("enemy")) {
+        if (containsIgnoreCase(label, "enemy")) {
             return "enemy";
-        } else if (obj.name.toLowerCase().contains("teammate")) {
+        } else if (containsIgnoreCase(label, "teammate")) {
             return "teammate";
         }
 
         return "unknown";
     }
 
-    private void removeStaleTracking() {
-        long currentTime = System.currentTimeMillis();
-        Iterator<Map.Entry<Integer, PlayerData>> iterator = trackedPlayers.entrySet().iterator();
-
-        while (iterator.hasNext()) {
-            PlayerData player = iterator.next().getValue();
-            if (currentTime - player.lastSeen > maxTrackingAge) {
-                iterator.remove();
-                Log.d(TAG, "Removed stale player track: " + player.playerId);
-            }
-        }
+    private float calculateDistance(float[] pos1, float[] pos2) {
+        float dx = pos1[0] - pos2[0];
+        float dy = pos1[1] - pos2[1];
+        return (float) Math.sqrt(dx * dx + dy * dy);
     }
 
     private void updateThreatLevels() {
@@ -202,7 +257,7 @@ public class PlayerTracker {
         float threat = 0f;
 
         // Distance-based threat (closer = more threatening)
-        float distance = calculateDistance(player.position, new float[]{540, 960}); // Screen center
+        float distance = calculateDistance(player.position, SCREEN_CENTER);
         threat += Math.max(0, 1.0f - (distance / 500f));
 
         // Movement-based threat (fast movement = more threatening)
@@ -242,10 +297,13 @@ public class PlayerTracker {
     /**
      * Predict player positions after specified time
      */
-    public Map<Integer, float[]> predictPlayerPositions(long timeAheadMs) {
+    public synchronized Map<Integer, float[]> predictPlayerPositions(long timeAheadMs) {
         Map<Integer, float[]> predictions = new HashMap<>();
         for (PlayerData player : trackedPlayers.values()) {
-            predictions.put(player.playerId, player.predictNextPosition(timeAheadMs));
+            predictions.put(player.playerId, new float[]{
+                    tracker.predictX(player.slot, timeAheadMs),
+                    tracker.predictY(player.slot, timeAheadMs)
+            });
         }
         return predictions;
     }
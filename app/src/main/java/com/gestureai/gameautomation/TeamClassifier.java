@@ -8,9 +8,8 @@ import android.util.Log;
 import org.opencv.android.Utils;
 import org.opencv.core.*;
 import org.opencv.imgproc.Imgproc;
-import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.factory.Nd4j;
 import java.util.*;
+import com.gestureai.gameautomation.utils.FrameHandle;
 import com.gestureai.gameautomation.utils.NLPProcessor;
 
 /**
@@ -26,6 +25,47 @@ public class TeamClassifier {
     private NLPProcessor nlpProcessor;
     private boolean isInitialized = false;
 
+    // Batched classification: tracked players are re-classified every N frames
+    private static final String PLAYER_CLASSIFIER_MODEL = "player_classifier";
+    private static final int ML_BATCH_SIZE = 8;
+    private static final int COLOR_TILE_SIZE = 32;
+    private static final int HISTOGRAM_BINS = 64; // 4 levels per RGB channel
+    private static final float HISTOGRAM_MATCH_DISTANCE = 0.35f;
+
+    private final Map<Integer, CachedClassification> classificationCache = new HashMap<>();
+    private final List<PlayerTracker.PlayerData> pendingPlayers = new ArrayList<>();
+    private int reclassifyInterval = 10;
+    private long frameCounter = 0;
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
+    // Pooled scratch buffers, reused across players and frames
+    private Mat bitmapScreenMat;
+    private Mat roiTile;
+    private Mat grayMat;
+    private Mat searchGrayMat;
+    private Mat edgesMat;
+    private Mat dilatedMat;
+    private Mat morphMat;
+    private Mat threshMat;
+    private Mat circlesMat;
+    private Mat hierarchyMat;
+    private Mat outlineKernel;
+    private Mat healthBarKernel;
+    private byte[] tileBytes;
+    private int[] mlAtlas;
+    private int[] mlTileOwners = new int[0];
+    private float[] histograms = new float[0];
+    private TeamAffiliation[] weightTeams;
+    private float[][] colorWeights;
+
+    private static class CachedClassification {
+        PlayerClassification classification;
+        final Rect region = new Rect();
+        long classifiedFrame;
+        long lastSeenFrame;
+    }
+
     public enum TeamAffiliation {
         FRIENDLY, ENEMY, NEUTRAL, UNKNOWN
     }
@@ -150,66 +190,230 @@ public class TeamClassifier {
             return result;
         }
 
-        try {
-            // Convert to OpenCV for advanced processing
-            Mat screenMat = new Mat();
-            Utils.bitmapToMat(gameScreen, screenMat);
+        synchronized (this) {
+            try {
+                // Single conversion into a Mat reused across frames
+                if (bitmapScreenMat == null) {
+                    bitmapScreenMat = new Mat();
+                }
+                Utils.bitmapToMat(gameScreen, bitmapScreenMat);
 
-            // Analyze each player
-            for (PlayerTracker.PlayerData player : players) {
-                PlayerClassification classification = classifyPlayer(screenMat, player);
-                result.players.add(classification);
+                classifyPlayers(bitmapScreenMat, players, result);
 
-                // Update counts
-                updateTeamCounts(result, classification.team);
+            } catch (Exception e) {
+                Log.e(TAG, "Error classifying players", e);
             }
+        }
 
-            // Determine game mode
-            result.detectedMode = determineGameMode(result);
+        return result;
+    }
 
-            // Calculate overall confidence
-            result.overallConfidence = calculateOverallConfidence(result);
+    /**
+     * Classify players straight from a pooled capture frame. The RGBA plane is
+     * wrapped as a Mat header with the frame's row stride, so no screen copy is made.
+     */
+    public TeamAnalysisResult classifyPlayers(FrameHandle frame, List<PlayerTracker.PlayerData> players) {
+        TeamAnalysisResult result = new TeamAnalysisResult();
 
-            // Apply contextual corrections
-            applyContextualCorrections(result);
+        if (!isInitialized || frame == null || players == null) {
+            return result;
+        }
 
-            Log.d(TAG, "Team classification complete - Friendly: " + result.friendlyCount +
-                    ", Enemy: " + result.enemyCount + ", Mode: " + result.detectedMode);
+        frame.retain();
+        Mat screenMat = null;
+        try {
+            screenMat = new Mat(frame.getHeight(), frame.getWidth(), CvType.CV_8UC4,
+                    frame.getBuffer(), frame.getRowStride());
+
+            synchronized (this) {
+                classifyPlayers(screenMat, players, result);
+            }
 
         } catch (Exception e) {
-            Log.e(TAG, "Error classifying players", e);
+            Log.e(TAG, "Error classifying players from frame", e);
+        } finally {
+            if (screenMat != null) {
+                screenMat.release();
+            }
+            frame.release();
         }
 
         return result;
     }
 
-    private PlayerClassification classifyPlayer(Mat screen, PlayerTracker.PlayerData player) {
-        PlayerClassification classification = new PlayerClassification(
-                player.playerId, player.boundingBox);
+    private void classifyPlayers(Mat screenMat, List<PlayerTracker.PlayerData> players,
+                                 TeamAnalysisResult result) {
+        frameCounter++;
+
+        // Stable players are served from the cache; the rest are classified as one batch
+        pendingPlayers.clear();
+        for (PlayerTracker.PlayerData player : players) {
+            CachedClassification cached = classificationCache.get(player.playerId);
+            if (cached != null && isCacheValid(cached, player.boundingBox)) {
+                cached.lastSeenFrame = frameCounter;
+                result.players.add(copyClassification(cached.classification, player.boundingBox));
+                cacheHits++;
+            } else {
+                pendingPlayers.add(player);
+                cacheMisses++;
+            }
+        }
+
+        if (!pendingPlayers.isEmpty()) {
+            List<PlayerClassification> fresh = classifyBatch(screenMat, pendingPlayers);
+            for (PlayerClassification classification : fresh) {
+                CachedClassification cached = classificationCache.get(classification.playerId);
+                if (cached == null) {
+                    cached = new CachedClassification();
+                    classificationCache.put(classification.playerId, cached);
+                }
+                cached.classification = classification;
+                cached.classifiedFrame = frameCounter;
+                cached.lastSeenFrame = frameCounter;
+                cached.region.set(classification.playerRegion);
 
-        try {
-            // Extract player region
-            Mat playerRegion = extractPlayerRegion(screen, player.boundingBox);
+                result.players.add(copyClassification(classification, classification.playerRegion));
+            }
+        }
 
-            // Multi-stage classification
-            classifyByColor(playerRegion, classification);
-            classifyByOutline(playerRegion, classification);
-            classifyByNametag(playerRegion, classification);
-            classifyByUIElements(screen, player.boundingBox, classification);
+        evictStaleCacheEntries();
 
-            // ML-based classification
-            classifyWithML(playerRegion, classification);
+        // Update counts
+        for (PlayerClassification classification : result.players) {
+            updateTeamCounts(result, classification.team);
+        }
 
-            // Combine all classification methods
-            finalizeClassification(classification);
+        // Determine game mode
+        result.detectedMode = determineGameMode(result);
 
-        } catch (Exception e) {
-            Log.w(TAG, "Player classification failed for player " + player.playerId, e);
-            classification.team = TeamAffiliation.UNKNOWN;
-            classification.confidence = 0f;
+        // Calculate overall confidence
+        result.overallConfidence = calculateOverallConfidence(result);
+
+        // Apply contextual corrections
+        applyContextualCorrections(result);
+
+        Log.d(TAG, "Team classification complete - Friendly: " + result.friendlyCount +
+                ", Enemy: " + result.enemyCount + ", Mode: " + result.detectedMode +
+                ", Reclassified: " + pendingPlayers.size() + "/" + players.size());
+    }
+
+    private boolean isCacheValid(CachedClassification cached, Rect currentBox) {
+        if (frameCounter - cached.classifiedFrame >= reclassifyInterval) {
+            return false;
+        }
+        if (cached.classification.team == TeamAffiliation.UNKNOWN
+                && frameCounter - cached.classifiedFrame >= Math.max(1, reclassifyInterval / 2)) {
+            return false;
+        }
+        // A large jump usually means the tracker swapped identities
+        float dx = currentBox.centerX() - cached.region.centerX();
+        float dy = currentBox.centerY() - cached.region.centerY();
+        float maxShift = Math.max(currentBox.width(), currentBox.height());
+        return dx * dx + dy * dy <= maxShift * maxShift;
+    }
+
+    private void evictStaleCacheEntries() {
+        long maxAge = Math.max(30, reclassifyInterval * 4L);
+        Iterator<CachedClassification> it = classificationCache.values().iterator();
+        while (it.hasNext()) {
+            if (frameCounter - it.next().lastSeenFrame > maxAge) {
+                it.remove();
+            }
+        }
+    }
+
+    private PlayerClassification copyClassification(PlayerClassification source, Rect region) {
+        PlayerClassification copy = new PlayerClassification(source.playerId, region);
+        copy.team = source.team;
+        copy.confidence = source.confidence;
+        System.arraycopy(source.dominantColors, 0, copy.dominantColors, 0, copy.dominantColors.length);
+        copy.detectedIndicators.addAll(source.detectedIndicators);
+        copy.hasNametag = source.hasNametag;
+        copy.nametagText = source.nametagText;
+        copy.threatLevel = source.threatLevel;
+        return copy;
+    }
+
+    /**
+     * Classify a batch of players. Every ROI is resized once into a pooled tile;
+     * a single pass over the tile bytes yields the mean color, the color histogram
+     * and the packed ML input, and all tiles go through the model in one batched call.
+     */
+    private List<PlayerClassification> classifyBatch(Mat screen, List<PlayerTracker.PlayerData> players) {
+        ensureScratchMats();
+
+        int count = players.size();
+        List<PlayerClassification> classifications = new ArrayList<>(count);
+
+        TensorFlowLiteHelper.ModelConfig mlConfig = tfliteHelper != null ?
+                tfliteHelper.getModelConfig(PLAYER_CLASSIFIER_MODEL) : null;
+        boolean runML = mlConfig != null && tfliteHelper.isModelLoaded(PLAYER_CLASSIFIER_MODEL);
+        int tileWidth = runML ? mlConfig.inputWidth : COLOR_TILE_SIZE;
+        int tileHeight = runML ? mlConfig.inputHeight : COLOR_TILE_SIZE;
+        int tilePixels = tileWidth * tileHeight;
+
+        if (histograms.length < count * HISTOGRAM_BINS) {
+            histograms = new float[count * HISTOGRAM_BINS];
+        }
+        if (runML && (mlAtlas == null || mlAtlas.length < count * tilePixels)) {
+            mlAtlas = new int[count * tilePixels];
+        }
+        if (runML && mlTileOwners.length < count) {
+            mlTileOwners = new int[count];
+        }
+        // Only players whose tile was written this frame get an atlas slot, so
+        // a skipped or failed player never batches a stale tile
+        int mlTiles = 0;
+        Size tileSize = new Size(tileWidth, tileHeight);
+
+        for (int p = 0; p < count; p++) {
+            PlayerTracker.PlayerData player = players.get(p);
+            PlayerClassification classification = new PlayerClassification(
+                    player.playerId, player.boundingBox);
+            classifications.add(classification);
+
+            Mat playerRegion = null;
+            try {
+                playerRegion = extractPlayerRegion(screen, player.boundingBox);
+                if (playerRegion.empty()) {
+                    classification.team = TeamAffiliation.UNKNOWN;
+                    continue;
+                }
+
+                Imgproc.resize(playerRegion, roiTile, tileSize, 0, 0, Imgproc.INTER_AREA);
+                accumulateTile(roiTile, p, runML ? mlTiles * tilePixels : -1, classification);
+                if (runML) {
+                    mlTileOwners[mlTiles++] = p;
+                }
+                classifyByColor(p, classification);
+
+                // Stages that need full-resolution structure
+                classifyByOutline(playerRegion, classification);
+                classifyByNametag(playerRegion, classification);
+                classifyByUIElements(screen, player.boundingBox, classification);
+
+            } catch (Exception e) {
+                Log.w(TAG, "Player classification failed for player " + player.playerId, e);
+                classification.team = TeamAffiliation.UNKNOWN;
+                classification.confidence = 0f;
+            } finally {
+                if (playerRegion != null) {
+                    playerRegion.release();
+                }
+            }
+        }
+
+        // ML-based classification, one interpreter call per batch
+        if (runML && mlTiles > 0) {
+            classifyWithML(classifications, mlTiles, tileWidth, tileHeight);
         }
 
-        return classification;
+        // Combine all classification methods
+        for (PlayerClassification classification : classifications) {
+            finalizeClassification(classification);
+        }
+
+        return classifications;
     }
 
     private Mat extractPlayerRegion(Mat screen, Rect boundingBox) {
@@ -222,44 +426,87 @@ public class TeamClassifier {
         int width = Math.min(screen.width() - x, boundingBox.width() + 2 * expandX);
         int height = Math.min(screen.height() - y, boundingBox.height() + 2 * expandY);
 
+        if (width <= 0 || height <= 0) {
+            return new Mat();
+        }
+
         org.opencv.core.Rect expandedRect = new org.opencv.core.Rect(x, y, width, height);
         return new Mat(screen, expandedRect);
     }
 
-    private void classifyByColor(Mat playerRegion, PlayerClassification classification) {
-        try {
-            // Convert to ND4J for fast color analysis
-            INDArray colorData = matToNDArray(playerRegion);
-            INDArray meanColors = colorData.mean(0, 1); // Average across spatial dimensions
+    /**
+     * One pass over a resized ROI tile: mean color, coarse RGB histogram and,
+     * when atlasOffset >= 0, the ARGB pixels packed into the ML atlas
+     */
+    private void accumulateTile(Mat tile, int histogramIndex, int atlasOffset,
+                                PlayerClassification classification) {
+        int channels = tile.channels();
+        int length = tile.rows() * tile.cols() * channels;
+        if (tileBytes == null || tileBytes.length < length) {
+            tileBytes = new byte[length];
+        }
+        tile.get(0, 0, tileBytes);
+
+        int histBase = histogramIndex * HISTOGRAM_BINS;
+        Arrays.fill(histograms, histBase, histBase + HISTOGRAM_BINS, 0f);
+
+        long sumR = 0, sumG = 0, sumB = 0;
+        int pixels = 0;
+        for (int i = 0; i + 2 < length; i += channels, pixels++) {
+            int r = tileBytes[i] & 0xFF;
+            int g = tileBytes[i + 1] & 0xFF;
+            int b = tileBytes[i + 2] & 0xFF;
+            sumR += r;
+            sumG += g;
+            sumB += b;
+            histograms[histBase + histogramBin(r, g, b)]++;
+            if (atlasOffset >= 0) {
+                mlAtlas[atlasOffset + pixels] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+
+        if (pixels > 0) {
+            classification.dominantColors[0] = sumR / (255f * pixels);
+            classification.dominantColors[1] = sumG / (255f * pixels);
+            classification.dominantColors[2] = sumB / (255f * pixels);
+            float inv = 1f / pixels;
+            for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+                histograms[histBase + bin] *= inv;
+            }
+        }
+    }
+
+    private static int histogramBin(int r, int g, int b) {
+        return ((r >> 6) << 4) | ((g >> 6) << 2) | (b >> 6);
+    }
 
-            classification.dominantColors[0] = meanColors.getFloat(0);
-            classification.dominantColors[1] = meanColors.getFloat(1);
-            classification.dominantColors[2] = meanColors.getFloat(2);
+    private void classifyByColor(int histogramIndex, PlayerClassification classification) {
+        try {
+            ensureColorWeights();
+            int histBase = histogramIndex * HISTOGRAM_BINS;
 
             // Compare against team profiles
             float bestColorMatch = 0f;
             TeamAffiliation bestTeam = TeamAffiliation.UNKNOWN;
 
-            for (Map.Entry<TeamAffiliation, TeamProfile> entry : teamProfiles.entrySet()) {
-                TeamProfile profile = entry.getValue();
-
-                // Calculate color distance using ND4J
-                INDArray profileColor = Nd4j.create(profile.primaryColor);
-                INDArray playerColor = meanColors;
+            for (int t = 0; t < weightTeams.length; t++) {
+                TeamProfile profile = teamProfiles.get(weightTeams[t]);
 
-                double colorDistance = profileColor.distance2(playerColor);
-                float colorMatch = Math.max(0f, 1f - (float)(colorDistance / Math.sqrt(3))); // Normalize by max RGB distance
+                // Mean color against primary and secondary team colors
+                float colorMatch = profileColorMatch(classification.dominantColors, profile);
 
-                // Also check secondary color
-                INDArray secondaryColor = Nd4j.create(profile.secondaryColor);
-                double secondaryDistance = secondaryColor.distance2(playerColor);
-                float secondaryMatch = Math.max(0f, 1f - (float)(secondaryDistance / Math.sqrt(3)));
+                // Fraction of the ROI whose colors fall near the team colors
+                float histogramMatch = 0f;
+                float[] weights = colorWeights[t];
+                for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+                    histogramMatch += histograms[histBase + bin] * weights[bin];
+                }
 
-                float combinedMatch = Math.max(colorMatch, secondaryMatch * 0.8f);
+                float combinedMatch = Math.max(colorMatch, histogramMatch);
 
                 if (combinedMatch > bestColorMatch && combinedMatch > 0.3f) {
                     bestColorMatch = combinedMatch;
-                    bestTeam = entry.getKey();
+                    bestTeam = weightTeams[t];
                 }
             }
 
@@ -274,23 +521,50 @@ public class TeamClassifier {
         }
     }
 
+    private float profileColorMatch(float[] color, TeamProfile profile) {
+        float maxDistance = (float) Math.sqrt(3); // Normalize by max RGB distance
+        float colorMatch = Math.max(0f, 1f - calculateColorDistance(profile.primaryColor, color) / maxDistance);
+        float secondaryMatch = Math.max(0f, 1f - calculateColorDistance(profile.secondaryColor, color) / maxDistance);
+        return Math.max(colorMatch, secondaryMatch * 0.8f);
+    }
+
+    /**
+     * Per-team weight of each histogram bin: 1 near the primary color, 0.8 near
+     * the secondary color, evaluated at the bin centre
+     */
+    private void ensureColorWeights() {
+        if (colorWeights != null && weightTeams.length == teamProfiles.size()) {
+            return;
+        }
+        weightTeams = teamProfiles.keySet().toArray(new TeamAffiliation[0]);
+        colorWeights = new float[weightTeams.length][HISTOGRAM_BINS];
+        float[] binColor = new float[3];
+        for (int t = 0; t < weightTeams.length; t++) {
+            TeamProfile profile = teamProfiles.get(weightTeams[t]);
+            for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+                binColor[0] = (((bin >> 4) & 3) * 64 + 32) / 255f;
+                binColor[1] = (((bin >> 2) & 3) * 64 + 32) / 255f;
+                binColor[2] = ((bin & 3) * 64 + 32) / 255f;
+                if (calculateColorDistance(binColor, profile.primaryColor) < HISTOGRAM_MATCH_DISTANCE) {
+                    colorWeights[t][bin] = 1f;
+                } else if (calculateColorDistance(binColor, profile.secondaryColor) < HISTOGRAM_MATCH_DISTANCE) {
+                    colorWeights[t][bin] = 0.8f;
+                }
+            }
+        }
+    }
+
     private void classifyByOutline(Mat playerRegion, PlayerClassification classification) {
         try {
             // Detect colored outlines around players
-            Mat edges = new Mat();
-            Imgproc.Canny(playerRegion, edges, 50, 150);
+            toGray(playerRegion, grayMat);
+            Imgproc.Canny(grayMat, edgesMat, 50, 150);
 
             // Dilate to make outlines more prominent
-            Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(3, 3));
-            Mat dilated = new Mat();
-            Imgproc.dilate(edges, dilated, kernel);
-
-            // Analyze edge colors
-            Mat edgeColors = new Mat();
-            Core.bitwise_and(playerRegion, playerRegion, edgeColors, dilated);
+            Imgproc.dilate(edgesMat, dilatedMat, outlineKernel);
 
             // Calculate mean color of edges
-            Scalar meanEdgeColor = Core.mean(edgeColors, dilated);
+            Scalar meanEdgeColor = Core.mean(playerRegion, dilatedMat);
             float[] edgeRGB = {
                     (float)(meanEdgeColor.val[0] / 255.0),
                     (float)(meanEdgeColor.val[1] / 255.0),
@@ -322,13 +596,14 @@ public class TeamClassifier {
     }
 
     private void classifyByNametag(Mat playerRegion, PlayerClassification classification) {
+        Mat nametagRegion = null;
         try {
             // Look for nametag regions (usually above player)
             int nametagHeight = playerRegion.height() / 6;
-            org.opencv.core.Rect nametagRect = new org.opencv.core.Rect(
-                    0, 0, playerRegion.width(), nametagHeight);
-
-            Mat nametagRegion = new Mat(playerRegion, nametagRect);
+            if (nametagHeight <= 0) {
+                return;
+            }
+            nametagRegion = playerRegion.submat(0, nametagHeight, 0, playerRegion.width());
 
             // Analyze nametag colors
             Scalar meanNametagColor = Core.mean(nametagRegion);
@@ -357,59 +632,65 @@ public class TeamClassifier {
 
         } catch (Exception e) {
             Log.w(TAG, "Nametag classification failed", e);
+        } finally {
+            if (nametagRegion != null) {
+                nametagRegion.release();
+            }
         }
     }
 
     private void classifyByUIElements(Mat screen, Rect playerBounds, PlayerClassification classification) {
+        Mat searchRegion = null;
         try {
             // Look for UI elements around the player (health bars, markers, etc.)
             int searchRadius = Math.max(playerBounds.width(), playerBounds.height());
 
             // Expand search area
-            org.opencv.core.Rect searchRect = new org.opencv.core.Rect(
-                    Math.max(0, playerBounds.left - searchRadius),
-                    Math.max(0, playerBounds.top - searchRadius),
-                    Math.min(screen.width(), searchRadius * 2),
-                    Math.min(screen.height(), searchRadius * 2)
-            );
+            int x = Math.max(0, playerBounds.left - searchRadius);
+            int y = Math.max(0, playerBounds.top - searchRadius);
+            int width = Math.min(screen.width() - x, playerBounds.width() + searchRadius * 2);
+            int height = Math.min(screen.height() - y, playerBounds.height() + searchRadius * 2);
+            if (width <= 0 || height <= 0) {
+                return;
+            }
 
-            Mat searchRegion = new Mat(screen, searchRect);
+            searchRegion = screen.submat(new org.opencv.core.Rect(x, y, width, height));
 
-            // Look for common UI indicators
-            detectHealthBars(searchRegion, classification);
-            detectMarkerIcons(searchRegion, classification);
-            detectStatusIndicators(searchRegion, classification);
+            // Look for common UI indicators, sharing one grayscale conversion
+            toGray(searchRegion, searchGrayMat);
+            detectHealthBars(searchRegion, searchGrayMat, classification);
+            detectMarkerIcons(searchRegion, searchGrayMat, classification);
+            detectStatusIndicators(searchGrayMat, classification);
 
         } catch (Exception e) {
             Log.w(TAG, "UI element classification failed", e);
+        } finally {
+            if (searchRegion != null) {
+                searchRegion.release();
+            }
         }
     }
 
-    private void detectHealthBars(Mat region, PlayerClassification classification) {
+    private void detectHealthBars(Mat region, Mat grayRegion, PlayerClassification classification) {
         // Look for horizontal colored bars (health/shield)
-        Mat grayRegion = new Mat();
-        Imgproc.cvtColor(region, grayRegion, Imgproc.COLOR_RGB2GRAY);
-
-        // Detect horizontal lines
-        Mat horizontal = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(25, 1));
-        Mat morphed = new Mat();
-        Imgproc.morphologyEx(grayRegion, morphed, Imgproc.MORPH_OPEN, horizontal);
+        Imgproc.morphologyEx(grayRegion, morphMat, Imgproc.MORPH_OPEN, healthBarKernel);
 
         // Find contours of health bars
         List<MatOfPoint> contours = new ArrayList<>();
-        Mat hierarchy = new Mat();
-        Imgproc.findContours(morphed, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+        Imgproc.findContours(morphMat, contours, hierarchyMat, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
 
         for (MatOfPoint contour : contours) {
             org.opencv.core.Rect boundingRect = Imgproc.boundingRect(contour);
+            contour.release();
 
             // Health bar characteristics: wider than tall, reasonable size
             if (boundingRect.width > boundingRect.height * 3 &&
                     boundingRect.width > 20 && boundingRect.height > 3) {
 
                 // Analyze color of the health bar
-                Mat healthBarRegion = new Mat(region, boundingRect);
+                Mat healthBarRegion = region.submat(boundingRect);
                 Scalar meanColor = Core.mean(healthBarRegion);
+                healthBarRegion.release();
 
                 // Green health bars often indicate friendlies
                 if (meanColor.val[1] > meanColor.val[0] && meanColor.val[1] > meanColor.val[2]) {
@@ -423,95 +704,84 @@ public class TeamClassifier {
         }
     }
 
-    private void detectMarkerIcons(Mat region, PlayerClassification classification) {
-        // Look for small circular or triangular markers
-        Mat grayRegion = new Mat();
-        Imgproc.cvtColor(region, grayRegion, Imgproc.COLOR_RGB2GRAY);
-
+    private void detectMarkerIcons(Mat region, Mat grayRegion, PlayerClassification classification) {
         // Detect circles (common for player markers)
-        Mat circles = new Mat();
-        Imgproc.HoughCircles(grayRegion, circles, Imgproc.HOUGH_GRADIENT, 1,
+        Imgproc.HoughCircles(grayRegion, circlesMat, Imgproc.HOUGH_GRADIENT, 1,
                 20, 100, 30, 5, 25);
 
-        if (circles.cols() > 0) {
-            // Analyze color of detected circles
-            for (int i = 0; i < circles.cols(); i++) {
-                double[] circleData = circles.get(0, i);
-                float[] circle = new float[]{(float)circleData[0], (float)circleData[1], (float)circleData[2]};
-                Point center = new Point(circle[0], circle[1]);
-                int radius = (int) circle[2];
-
-                // Extract circle region
-                org.opencv.core.Rect circleRect = new org.opencv.core.Rect(
-                        (int) Math.max(0, center.x - radius),
-                        (int) Math.max(0, center.y - radius),
-                        Math.min(region.width(), radius * 2),
-                        Math.min(region.height(), radius * 2)
-                );
-
-                Mat circleRegion = new Mat(region, circleRect);
-                Scalar meanColor = Core.mean(circleRegion);
-
-                float[] markerRGB = {
-                        (float)(meanColor.val[0] / 255.0),
-                        (float)(meanColor.val[1] / 255.0),
-                        (float)(meanColor.val[2] / 255.0)
-                };
-
-                // Compare to team colors
-                for (Map.Entry<TeamAffiliation, TeamProfile> entry : teamProfiles.entrySet()) {
-                    TeamProfile profile = entry.getValue();
-                    float distance = calculateColorDistance(markerRGB, profile.primaryColor);
-
-                    if (distance < 0.3f) {
-                        classification.detectedIndicators.add("marker_" + entry.getKey().name().toLowerCase());
-                        if (classification.confidence < 0.7f) {
-                            classification.team = entry.getKey();
-                            classification.confidence = 0.7f;
-                        }
+        // Analyze color of detected circles
+        for (int i = 0; i < circlesMat.cols(); i++) {
+            double[] circleData = circlesMat.get(0, i);
+            int radius = (int) circleData[2];
+
+            // Extract circle region, clamped to the search area
+            int x = (int) Math.max(0, circleData[0] - radius);
+            int y = (int) Math.max(0, circleData[1] - radius);
+            int width = Math.min(region.width() - x, radius * 2);
+            int height = Math.min(region.height() - y, radius * 2);
+            if (width <= 0 || height <= 0) {
+                continue;
+            }
+
+            Mat circleRegion = region.submat(new org.opencv.core.Rect(x, y, width, height));
+            Scalar meanColor = Core.mean(circleRegion);
+            circleRegion.release();
+
+            float[] markerRGB = {
+                    (float)(meanColor.val[0] / 255.0),
+                    (float)(meanColor.val[1] / 255.0),
+                    (float)(meanColor.val[2] / 255.0)
+            };
+
+            // Compare to team colors
+            for (Map.Entry<TeamAffiliation, TeamProfile> entry : teamProfiles.entrySet()) {
+                TeamProfile profile = entry.getValue();
+                float distance = calculateColorDistance(markerRGB, profile.primaryColor);
+
+                if (distance < 0.3f) {
+                    classification.detectedIndicators.add("marker_" + entry.getKey().name().toLowerCase());
+                    if (classification.confidence < 0.7f) {
+                        classification.team = entry.getKey();
+                        classification.confidence = 0.7f;
                     }
                 }
             }
         }
     }
 
-    private void detectStatusIndicators(Mat region, PlayerClassification classification) {
+    private void detectStatusIndicators(Mat grayRegion, PlayerClassification classification) {
         // Look for status icons (shields, buffs, etc.)
         // This is a simplified implementation - real version would use trained models
 
-        // Look for bright spots that might be status indicators
-        Mat grayRegion = new Mat();
-        Imgproc.cvtColor(region, grayRegion, Imgproc.COLOR_RGB2GRAY);
-
         // Find bright regions
-        Mat thresh = new Mat();
-        Imgproc.threshold(grayRegion, thresh, 200, 255, Imgproc.THRESH_BINARY);
+        Imgproc.threshold(grayRegion, threshMat, 200, 255, Imgproc.THRESH_BINARY);
 
         List<MatOfPoint> contours = new ArrayList<>();
-        Mat hierarchy = new Mat();
-        Imgproc.findContours(thresh, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+        Imgproc.findContours(threshMat, contours, hierarchyMat, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
 
         for (MatOfPoint contour : contours) {
             double area = Imgproc.contourArea(contour);
             if (area > 10 && area < 200) { // Small icons
                 classification.detectedIndicators.add("status_indicator");
             }
+            contour.release();
         }
     }
 
-    private void classifyWithML(Mat playerRegion, PlayerClassification classification) {
+    /**
+     * Atlas tile i belongs to classifications.get(mlTileOwners[i])
+     */
+    private void classifyWithML(List<PlayerClassification> classifications, int tileCount,
+                                int tileWidth, int tileHeight) {
         try {
-            // Convert Mat to Bitmap for TensorFlow Lite
-            Bitmap playerBitmap = Bitmap.createBitmap(
-                    playerRegion.width(), playerRegion.height(), Bitmap.Config.ARGB_8888);
-            Utils.matToBitmap(playerRegion, playerBitmap);
+            List<List<TensorFlowLiteHelper.DetectionResult>> batchResults =
+                    tfliteHelper.runTiledBatchInference(PLAYER_CLASSIFIER_MODEL, mlAtlas,
+                            tileWidth, tileHeight, tileCount, ML_BATCH_SIZE);
 
-            // Run ML classification if available
-            if (tfliteHelper.isModelLoaded("player_classifier")) {
-                List<TensorFlowLiteHelper.DetectionResult> results =
-                        tfliteHelper.runInference("player_classifier", playerBitmap);
+            for (int i = 0; i < batchResults.size() && i < tileCount; i++) {
+                PlayerClassification classification = classifications.get(mlTileOwners[i]);
 
-                for (TensorFlowLiteHelper.DetectionResult result : results) {
+                for (TensorFlowLiteHelper.DetectionResult result : batchResults.get(i)) {
                     TeamAffiliation mlTeam = mapMLResultToTeam(result.className);
                     if (mlTeam != TeamAffiliation.UNKNOWN && result.confidence > 0.6f) {
                         classification.detectedIndicators.add("ml_" + result.className);
@@ -529,6 +799,71 @@ public class TeamClassifier {
         }
     }
 
+    private void toGray(Mat source, Mat gray) {
+        int code = source.channels() == 4 ? Imgproc.COLOR_RGBA2GRAY : Imgproc.COLOR_RGB2GRAY;
+        Imgproc.cvtColor(source, gray, code);
+    }
+
+    /**
+     * Scratch Mats are created on first use so the OpenCV native library is
+     * already loaded, then reused for every player and frame
+     */
+    private void ensureScratchMats() {
+        if (roiTile != null) {
+            return;
+        }
+        roiTile = new Mat();
+        grayMat = new Mat();
+        searchGrayMat = new Mat();
+        edgesMat = new Mat();
+        dilatedMat = new Mat();
+        morphMat = new Mat();
+        threshMat = new Mat();
+        circlesMat = new Mat();
+        hierarchyMat = new Mat();
+        outlineKernel = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(3, 3));
+        healthBarKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(25, 1));
+    }
+
+    /**
+     * Re-classify cached players every N calls (default 10)
+     */
+    public synchronized void setReclassifyInterval(int frames) {
+        this.reclassifyInterval = Math.max(1, frames);
+    }
+
+    public synchronized int getReclassifyInterval() {
+        return reclassifyInterval;
+    }
+
+    /**
+     * Drop cached classifications, e.g. after a match or map change
+     */
+    public synchronized void clearClassificationCache() {
+        classificationCache.clear();
+    }
+
+    public synchronized float getCacheHitRate() {
+        long total = cacheHits + cacheMisses;
+        return total > 0 ? (float) cacheHits / total : 0f;
+    }
+
+    /**
+     * Release pooled native buffers
+     */
+    public synchronized void release() {
+        Mat[] mats = {bitmapScreenMat, roiTile, grayMat, searchGrayMat, edgesMat, dilatedMat,
+                morphMat, threshMat, circlesMat, hierarchyMat, outlineKernel, healthBarKernel};
+        for (Mat mat : mats) {
+            if (mat != null) {
+                mat.release();
+            }
+        }
+        bitmapScreenMat = null;
+        roiTile = null;
+        classificationCache.clear();
+    }
+
     private TeamAffiliation mapMLResultToTeam(String className) {
         String lower = className.toLowerCase();
 
@@ -573,22 +908,6 @@ public class TeamClassifier {
         return (float) Math.sqrt(dr * dr + dg * dg + db * db);
     }
 
-    private INDArray matToNDArray(Mat mat) {
-        int height = mat.height();
-        int width = mat.width();
-        int channels = mat.channels();
-
-        byte[] data = new byte[height * width * channels];
-        mat.get(0, 0, data);
-
-        float[] floatData = new float[data.length];
-        for (int i = 0; i < data.length; i++) {
-            floatData[i] = (data[i] & 0xFF) / 255.0f;
-        }
-
-        return Nd4j.create(floatData).reshape(height, width, channels);
-    }
-
     private void updateTeamCounts(TeamAnalysisResult result, TeamAffiliation team) {
         switch (team) {
             case FRIENDLY:
@@ -1,19 +1,17 @@
 package com.gestureai.gameautomation;
 
 import android.content.Context;
-import android.content.res.AssetFileDescriptor;
 import android.graphics.Bitmap;
+import android.graphics.Rect;
 import android.util.Log;
+import com.gestureai.gameautomation.managers.InterpreterSession;
+import com.gestureai.gameautomation.managers.ModelRegistry;
+import com.gestureai.gameautomation.utils.ImagePreprocessor;
 import org.tensorflow.lite.Interpreter;
 import org.tensorflow.lite.gpu.CompatibilityList;
-import org.tensorflow.lite.gpu.GpuDelegate;
-import org.tensorflow.lite.gpu.GpuDelegateFactory;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -21,14 +19,17 @@ import java.util.Map;
 
 /**
  * TensorFlow Lite model management and inference helper
+ *
+ * Models are registered with the shared ModelRegistry and load in the
+ * background on first use; until then inference returns no results.
  */
 public class TensorFlowLiteHelper {
     private static final String TAG = "TensorFlowLiteHelper";
 
     private Context context;
-    private Map<String, Interpreter> loadedModels;
+    private ModelRegistry registry;
     private Map<String, ModelConfig> modelConfigs;
-    private GpuDelegate gpuDelegate;
+    private Map<String, ImagePreprocessor> preprocessors;
     private boolean useGPU = true;
 
     public static class ModelConfig {
@@ -68,11 +69,12 @@ public class TensorFlowLiteHelper {
 
     public TensorFlowLiteHelper(Context context) {
         this.context = context;
-        this.loadedModels = new HashMap<>();
+        this.registry = ModelRegistry.getInstance(context);
         this.modelConfigs = new HashMap<>();
+        this.preprocessors = new HashMap<>();
 
         if (useGPU) {
-            initializeGPUDelegate();
+            checkGPUSupport();
         }
 
         // Register default game-specific models
@@ -81,16 +83,16 @@ public class TensorFlowLiteHelper {
         Log.d(TAG, "TensorFlow Lite Helper initialized");
     }
 
-    private void initializeGPUDelegate() {
+    /**
+     * The registry gives each pooled interpreter its own GPU delegate, since
+     * a delegate cannot be shared between interpreters
+     */
+    private void checkGPUSupport() {
         try {
-            // Check GPU compatibility first
             CompatibilityList compatList = new CompatibilityList();
 
             if (compatList.isDelegateSupportedOnThisDevice()) {
-                // Use GpuDelegateFactory.Options for TF Lite 2.13.0+
-                GpuDelegateFactory.Options delegateOptions = compatList.getBestOptionsForThisDevice();
-                gpuDelegate = new GpuDelegate(delegateOptions);
-                Log.d(TAG, "GPU delegate initialized for TensorFlow Lite");
+                Log.d(TAG, "GPU delegate supported for TensorFlow Lite");
             } else {
                 Log.w(TAG, "GPU delegate not supported on this device, using CPU");
                 useGPU = false;
@@ -149,75 +151,80 @@ public class TensorFlowLiteHelper {
 
     public void registerModel(String modelName, ModelConfig config) {
         modelConfigs.put(modelName, config);
+        preprocessors.put(modelName, new ImagePreprocessor.Builder()
+                .setOutputSize(config.inputWidth, config.inputHeight)
+                .setChannelOrder(config.inputChannels == 1 ?
+                        ImagePreprocessor.ChannelOrder.GRAY : ImagePreprocessor.ChannelOrder.RGB)
+                .build());
+        registry.register(modelName, config.modelPath, true, useGPU);
         Log.d(TAG, "Registered model: " + modelName);
     }
 
-    public boolean loadModel(String modelName) {
-        if (loadedModels.containsKey(modelName)) {
-            Log.d(TAG, "Model already loaded: " + modelName);
-            return true;
-        }
+    /**
+     * Override the default [0, 1] RGB preprocessing, e.g. for BGR or quantized models
+     */
+    public void registerPreprocessor(String modelName, ImagePreprocessor preprocessor) {
+        preprocessors.put(modelName, preprocessor);
+    }
 
-        ModelConfig config = modelConfigs.get(modelName);
-        if (config == null) {
+    /**
+     * Load a model now, blocking until its interpreter is warm
+     */
+    public boolean loadModel(String modelName) {
+        if (!modelConfigs.containsKey(modelName)) {
             Log.e(TAG, "Model config not found: " + modelName);
             return false;
         }
 
-        try {
-            MappedByteBuffer modelBuffer = loadModelFile(config.modelPath);
-
-            Interpreter.Options options = new Interpreter.Options();
-            options.setNumThreads(4); // Use 4 CPU threads
-
-            if (useGPU && gpuDelegate != null) {
-                options.addDelegate(gpuDelegate);
-            }
-
-            Interpreter interpreter = new Interpreter(modelBuffer, options);
-            loadedModels.put(modelName, interpreter);
-
+        if (registry.loadBlocking(modelName)) {
             Log.d(TAG, "Successfully loaded model: " + modelName);
             return true;
-
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to load model: " + modelName, e);
-            return false;
         }
+        Log.e(TAG, "Failed to load model: " + modelName);
+        return false;
     }
 
-    private MappedByteBuffer loadModelFile(String modelPath) throws IOException {
-        AssetFileDescriptor fileDescriptor = context.getAssets().openFd(modelPath);
-        FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
-        FileChannel fileChannel = inputStream.getChannel();
-        long startOffset = fileDescriptor.getStartOffset();
-        long declaredLength = fileDescriptor.getDeclaredLength();
-        return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+    /**
+     * Start loading a model in the background
+     */
+    public void prefetchModel(String modelName) {
+        if (modelConfigs.containsKey(modelName)) {
+            registry.prefetch(modelName);
+        }
     }
 
     public List<DetectionResult> runInference(String modelName, Bitmap inputBitmap) {
+        return runInference(modelName, inputBitmap, null);
+    }
+
+    /**
+     * Run inference on a region of the bitmap without cropping it first
+     */
+    public List<DetectionResult> runInference(String modelName, Bitmap inputBitmap, Rect roi) {
         List<DetectionResult> results = new ArrayList<>();
 
-        if (!loadedModels.containsKey(modelName)) {
-            if (!loadModel(modelName)) {
-                Log.e(TAG, "Cannot run inference - model not loaded: " + modelName);
-                return results;
-            }
+        ModelConfig config = modelConfigs.get(modelName);
+        if (config == null) {
+            Log.e(TAG, "Cannot run inference - model not registered: " + modelName);
+            return results;
         }
 
-        Interpreter interpreter = loadedModels.get(modelName);
-        ModelConfig config = modelConfigs.get(modelName);
+        // Null while the model loads in the background
+        InterpreterSession session = registry.acquire(modelName);
+        if (session == null) {
+            return results;
+        }
 
         try {
             // Prepare input
-            ByteBuffer inputBuffer = preprocessImage(inputBitmap, config);
+            ByteBuffer inputBuffer = preprocessImage(inputBitmap, modelName, roi);
 
             // Prepare output based on model type
             Object output = prepareOutput(config);
 
             // Run inference
             long startTime = System.currentTimeMillis();
-            interpreter.run(inputBuffer, output);
+            session.getInterpreter().run(inputBuffer, output);
             long inferenceTime = System.currentTimeMillis() - startTime;
 
             // Process output based on model type
@@ -227,34 +234,34 @@ public class TensorFlowLiteHelper {
 
         } catch (Exception e) {
             Log.e(TAG, "Inference failed for model: " + modelName, e);
+        } finally {
+            registry.release(modelName, session);
         }
 
         return results;
     }
 
-    private ByteBuffer preprocessImage(Bitmap bitmap, ModelConfig config) {
-        // Resize bitmap to model input size
-        Bitmap resizedBitmap = Bitmap.createScaledBitmap(bitmap,
-                config.inputWidth, config.inputHeight, true);
-
-        // Create ByteBuffer for model input
-        ByteBuffer inputBuffer = ByteBuffer.allocateDirect(
-                config.inputWidth * config.inputHeight * config.inputChannels * 4); // 4 bytes per float
-        inputBuffer.order(ByteOrder.nativeOrder());
-
-        // Convert bitmap to normalized float values
-        int[] pixels = new int[config.inputWidth * config.inputHeight];
-        resizedBitmap.getPixels(pixels, 0, config.inputWidth, 0, 0,
-                config.inputWidth, config.inputHeight);
-
-        for (int pixel : pixels) {
-            // Extract RGB values and normalize to [0, 1]
-            inputBuffer.putFloat(((pixel >> 16) & 0xFF) / 255.0f); // Red
-            inputBuffer.putFloat(((pixel >> 8) & 0xFF) / 255.0f);  // Green
-            inputBuffer.putFloat((pixel & 0xFF) / 255.0f);         // Blue
+    /**
+     * Fused crop/resize/normalize into the model's per-thread input buffer.
+     * Only the source rows the resize samples are read from the bitmap.
+     */
+    private ByteBuffer preprocessImage(Bitmap bitmap, String modelName, Rect roi) {
+        ImagePreprocessor preprocessor = preprocessors.get(modelName);
+
+        int left = 0, top = 0, width = bitmap.getWidth(), height = bitmap.getHeight();
+        if (roi != null) {
+            left = Math.max(0, roi.left);
+            top = Math.max(0, roi.top);
+            width = Math.min(roi.right, bitmap.getWidth()) - left;
+            height = Math.min(roi.bottom, bitmap.getHeight()) - top;
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("ROI outside bitmap: " + roi);
+            }
         }
 
-        return inputBuffer;
+        return preprocessor.process(
+                (y, rowLeft, rowWidth, dst) -> bitmap.getPixels(dst, 0, rowWidth, rowLeft, y, rowWidth, 1),
+                bitmap.getWidth(), bitmap.getHeight(), left, top, width, height);
     }
 
     private Object prepareOutput(ModelConfig config) {
@@ -298,48 +305,65 @@ public class TensorFlowLiteHelper {
             float[][] classificationOutput = (float[][]) output;
 
             // Find top predictions
-            for (int i = 0; i < classificationOutput[0].length; i++) {
-                float confidence = classificationOutput[0][i];
+            collectClassifications(classificationOutput[0], config, results);
+        }
 
-                if (confidence > config.confidenceThreshold) {
-                    String className = i < config.outputLabels.length ?
-                            config.outputLabels[i] : "unknown_" + i;
+        return results;
+    }
 
-                    results.add(new DetectionResult(className, confidence, new float[]{0, 0, 1, 1}, i));
-                }
+    private void collectClassifications(float[] scores, ModelConfig config, List<DetectionResult> results) {
+        for (int i = 0; i < scores.length; i++) {
+            float confidence = scores[i];
+
+            if (confidence > config.confidenceThreshold) {
+                String className = i < config.outputLabels.length ?
+                        config.outputLabels[i] : "unknown_" + i;
+
+                results.add(new DetectionResult(className, confidence, new float[]{0, 0, 1, 1}, i));
             }
         }
-
-        return results;
     }
 
     public boolean isModelLoaded(String modelName) {
-        return loadedModels.containsKey(modelName);
+        return registry.isReady(modelName);
     }
 
     public void unloadModel(String modelName) {
-        Interpreter interpreter = loadedModels.remove(modelName);
-        if (interpreter != null) {
-            interpreter.close();
-            Log.d(TAG, "Unloaded model: " + modelName);
+        registry.unload(modelName);
+        Log.d(TAG, "Unloaded model: " + modelName);
+        synchronized (this) {
+            BatchSession session = batchSessions.remove(modelName);
+            if (session != null) {
+                session.interpreter.close();
+            }
         }
     }
 
     public void unloadAllModels() {
-        for (Map.Entry<String, Interpreter> entry : loadedModels.entrySet()) {
-            entry.getValue().close();
+        // Other helpers may share these models through the registry; only
+        // this helper's idle interpreters are released
+        for (String modelName : modelConfigs.keySet()) {
+            registry.unload(modelName);
         }
-        loadedModels.clear();
 
-        if (gpuDelegate != null) {
-            gpuDelegate.close();
+        synchronized (this) {
+            for (BatchSession session : batchSessions.values()) {
+                session.interpreter.close();
+            }
+            batchSessions.clear();
         }
 
         Log.d(TAG, "All models unloaded");
     }
 
     public List<String> getLoadedModels() {
-        return new ArrayList<>(loadedModels.keySet());
+        List<String> loaded = new ArrayList<>();
+        for (String modelName : modelConfigs.keySet()) {
+            if (registry.isReady(modelName)) {
+                loaded.add(modelName);
+            }
+        }
+        return loaded;
     }
 
     public List<String> getAvailableModels() {
@@ -364,6 +388,171 @@ public class TensorFlowLiteHelper {
         return batchResults;
     }
 
+    /**
+     * Batch-sized interpreter for a classification model, kept separate from the
+     * single-image interpreter so neither has to be resized back and forth
+     */
+    private static class BatchSession {
+        final Interpreter interpreter;
+        final int batchSize;
+        final ByteBuffer input;
+        final float[][] output;
+
+        BatchSession(Interpreter interpreter, int batchSize, ByteBuffer input, float[][] output) {
+            this.interpreter = interpreter;
+            this.batchSize = batchSize;
+            this.input = input;
+            this.output = output;
+        }
+    }
+
+    private final Map<String, BatchSession> batchSessions = new HashMap<>();
+
+    /**
+     * Classify equally sized tiles with one interpreter call per batchSize tiles.
+     * Tiles are stacked vertically in a single ARGB atlas of
+     * tileWidth x (tileHeight * count) pixels. The input tensor has a fixed batch
+     * dimension; unused slots in the last batch are ignored. Returns one result
+     * list per tile. Classification models only.
+     */
+    public List<List<DetectionResult>> runTiledBatchInference(String modelName, int[] atlas,
+                                                              int tileWidth, int tileHeight,
+                                                              int count, int batchSize) {
+        int[] rois = new int[Math.max(0, count) * 4];
+        for (int tile = 0; tile < count; tile++) {
+            rois[tile * 4] = 0;
+            rois[tile * 4 + 1] = tile * tileHeight;
+            rois[tile * 4 + 2] = tileWidth;
+            rois[tile * 4 + 3] = tileHeight;
+        }
+        return runBatchedRois(modelName, atlas, null, tileWidth, tileHeight * count, rois, count, batchSize);
+    }
+
+    /**
+     * Classify regions of one ARGB frame with one interpreter call per batchSize
+     * regions, preprocessing each region straight from the frame's rows; only
+     * the rows the resize samples inside each region are read.
+     * Region i is boxes[regions[i] * 4 ..] as left, top, right, bottom.
+     * Returns one result list per region, all empty while the model is still
+     * loading. Classification models only.
+     */
+    public List<List<DetectionResult>> runRegionBatchInference(String modelName, ImagePreprocessor.RowSource frame,
+                                                               int frameWidth, int frameHeight,
+                                                               int[] boxes, int[] regions,
+                                                               int count, int batchSize) {
+        if (!registry.isReady(modelName)) {
+            if (modelConfigs.containsKey(modelName)) {
+                registry.prefetch(modelName);
+            }
+            List<List<DetectionResult>> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                results.add(new ArrayList<>());
+            }
+            return results;
+        }
+
+        int[] rois = new int[count * 4];
+        for (int i = 0; i < count; i++) {
+            int box = regions[i] * 4;
+            rois[i * 4] = boxes[box];
+            rois[i * 4 + 1] = boxes[box + 1];
+            rois[i * 4 + 2] = boxes[box + 2] - boxes[box];
+            rois[i * 4 + 3] = boxes[box + 3] - boxes[box + 1];
+        }
+        return runBatchedRois(modelName, null, frame, frameWidth, frameHeight, rois, count, batchSize);
+    }
+
+    /**
+     * Shared batch loop over pixels, or rows when pixels is null; rois holds
+     * left, top, width, height per item
+     */
+    private List<List<DetectionResult>> runBatchedRois(String modelName, int[] pixels,
+                                                       ImagePreprocessor.RowSource rows,
+                                                       int width, int height, int[] rois,
+                                                       int count, int batchSize) {
+        List<List<DetectionResult>> results = new ArrayList<>(count);
+        ModelConfig config = modelConfigs.get(modelName);
+        ImagePreprocessor preprocessor = preprocessors.get(modelName);
+        if (config == null || preprocessor == null || count <= 0) {
+            return results;
+        }
+        if (config.modelPath.contains("detection")) {
+            Log.w(TAG, "Batch inference only supports classification models: " + modelName);
+            return results;
+        }
+
+        try {
+            BatchSession session = getBatchSession(modelName, config, preprocessor, batchSize);
+            if (session == null) {
+                return results;
+            }
+
+            synchronized (session) {
+                for (int start = 0; start < count; start += session.batchSize) {
+                    int end = Math.min(count, start + session.batchSize);
+
+                    ByteBuffer input = session.input;
+                    input.clear();
+                    for (int item = start; item < end; item++) {
+                        int roi = item * 4;
+                        input.put(pixels != null
+                                ? preprocessor.process(pixels, width, height,
+                                        rois[roi], rois[roi + 1], rois[roi + 2], rois[roi + 3])
+                                : preprocessor.process(rows, width, height,
+                                        rois[roi], rois[roi + 1], rois[roi + 2], rois[roi + 3]));
+                    }
+                    input.rewind();
+
+                    long startTime = System.currentTimeMillis();
+                    session.interpreter.run(input, session.output);
+                    long inferenceTime = System.currentTimeMillis() - startTime;
+
+                    for (int item = start; item < end; item++) {
+                        List<DetectionResult> itemResults = new ArrayList<>();
+                        collectClassifications(session.output[item - start], config, itemResults);
+                        results.add(itemResults);
+                    }
+
+                    Log.d(TAG, "Batched inference for " + modelName + " (" + (end - start) +
+                            " items) in " + inferenceTime + "ms");
+                }
+            }
+
+        } catch (Exception e) {
+            Log.e(TAG, "Batch inference failed for model: " + modelName, e);
+            while (results.size() < count) {
+                results.add(new ArrayList<>());
+            }
+        }
+
+        return results;
+    }
+
+    private synchronized BatchSession getBatchSession(String modelName, ModelConfig config,
+                                                      ImagePreprocessor preprocessor, int batchSize) throws IOException {
+        BatchSession session = batchSessions.get(modelName);
+        if (session != null && session.batchSize == batchSize) {
+            return session;
+        }
+        if (session != null) {
+            session.interpreter.close();
+        }
+
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(4);
+        Interpreter interpreter = new Interpreter(registry.getMappedModel(modelName), options);
+        interpreter.resizeInput(0, new int[]{batchSize, config.inputHeight, config.inputWidth, config.inputChannels});
+        interpreter.allocateTensors();
+
+        ByteBuffer input = ByteBuffer.allocateDirect(batchSize * preprocessor.getInputSizeBytes())
+                .order(ByteOrder.nativeOrder());
+        session = new BatchSession(interpreter, batchSize, input, new float[batchSize][config.outputSize]);
+        batchSessions.put(modelName, session);
+
+        Log.d(TAG, "Created batch interpreter for " + modelName + " with batch size " + batchSize);
+        return session;
+    }
+
     /**
      * Performance benchmarking
      */
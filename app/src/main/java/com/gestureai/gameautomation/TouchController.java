@@ -1,12 +1,12 @@
 package com.gestureai.gameautomation;
 
 import android.accessibilityservice.AccessibilityService;
-import android.accessibilityservice.GestureDescription;
 import android.content.Context;
-import android.graphics.Path;
 import android.graphics.PointF;
 import android.util.Log;
 import android.view.ViewConfiguration;
+import com.gestureai.gameautomation.services.GestureCompiler;
+import com.gestureai.gameautomation.services.GestureScheduler;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -84,66 +84,70 @@ public class TouchController {
         }
         
         try {
-            GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-            Path path = createPathForAction(action);
+            // Queue on the service's shared scheduler; the callback fires when the gesture finishes
+            GestureScheduler scheduler = GestureScheduler.forService(accessibilityService);
+            PointF start = action.startPoint;
+            java.util.concurrent.CompletableFuture<Boolean> result;
             
-            if (path != null) {
-                GestureDescription.StrokeDescription stroke = new GestureDescription.StrokeDescription(
-                    path, 0, action.duration);
-                gestureBuilder.addStroke(stroke);
-                
-                boolean success = accessibilityService.dispatchGesture(
-                    gestureBuilder.build(),
-                    new AccessibilityService.GestureResultCallback() {
-                        @Override
-                        public void onCompleted(GestureDescription gestureDescription) {
-                            if (callback != null) callback.onTouchExecuted(true);
-                            Log.d(TAG, "Gesture completed successfully");
-                        }
-                        
-                        @Override
-                        public void onCancelled(GestureDescription gestureDescription) {
-                            if (callback != null) callback.onTouchError("Gesture cancelled");
-                            Log.w(TAG, "Gesture cancelled");
-                        }
-                    },
-                    null
-                );
-                
-                if (!success && callback != null) {
-                    callback.onTouchError("Failed to dispatch gesture");
-                }
-            } else {
-                if (callback != null) callback.onTouchError("Invalid touch path");
+            switch (action.type) {
+                case TAP:
+                    result = scheduler.tap(start.x, start.y, GestureScheduler.PRIORITY_NORMAL);
+                    break;
+                case LONG_PRESS:
+                    result = scheduler.longPress(start.x, start.y, action.duration, GestureScheduler.PRIORITY_NORMAL);
+                    break;
+                case SWIPE:
+                    if (action.endPoint == null) {
+                        if (callback != null) callback.onTouchError("Invalid touch path");
+                        return;
+                    }
+                    result = scheduler.swipe(start.x, start.y, action.endPoint.x, action.endPoint.y,
+                        action.duration, GestureScheduler.PRIORITY_NORMAL);
+                    break;
+                case MULTI_TOUCH:
+                    result = scheduler.multiTap(action.multiTouchPoints, action.duration, GestureScheduler.PRIORITY_NORMAL);
+                    break;
+                default:
+                    if (callback != null) callback.onTouchError("Invalid touch path");
+                    return;
             }
+            
+            result.thenAccept(success -> {
+                if (success) {
+                    if (callback != null) callback.onTouchExecuted(true);
+                    Log.d(TAG, "Gesture completed successfully");
+                } else {
+                    if (callback != null) callback.onTouchError("Gesture cancelled");
+                    Log.w(TAG, "Gesture cancelled");
+                }
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error executing touch", e);
             if (callback != null) callback.onTouchError(e.getMessage());
         }
     }
     
-    private Path createPathForAction(TouchAction action) {
-        Path path = new Path();
-        
-        switch (action.type) {
-            case TAP:
-            case LONG_PRESS:
-                path.moveTo(action.startPoint.x, action.startPoint.y);
-                path.lineTo(action.startPoint.x, action.startPoint.y);
-                break;
-                
-            case SWIPE:
-                if (action.endPoint != null) {
-                    path.moveTo(action.startPoint.x, action.startPoint.y);
-                    path.lineTo(action.endPoint.x, action.endPoint.y);
-                }
-                break;
-                
-            default:
-                return null;
+    /**
+     * Dispatch a compiled timeline (e.g. joystick hold plus fire taps) as one sequence
+     */
+    public void executeCompiled(GestureCompiler compiler, TouchCallback callback) {
+        if (accessibilityService == null) {
+            if (callback != null) callback.onTouchError("Accessibility service not available");
+            return;
         }
         
-        return path;
+        try {
+            GestureScheduler.forService(accessibilityService)
+                .sequence(compiler.compile(), GestureScheduler.PRIORITY_HIGH)
+                .thenAccept(success -> {
+                    if (callback == null) return;
+                    if (success) callback.onTouchExecuted(true);
+                    else callback.onTouchError("Gesture sequence cancelled");
+                });
+        } catch (Exception e) {
+            Log.e(TAG, "Error executing compiled gestures", e);
+            if (callback != null) callback.onTouchError(e.getMessage());
+        }
     }
     
     // Game-specific touch patterns
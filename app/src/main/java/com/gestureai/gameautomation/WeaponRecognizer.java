@@ -13,6 +13,9 @@ import org.opencv.imgproc.Imgproc;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint;
 import org.opencv.core.Size;
@@ -32,6 +35,14 @@ public class WeaponRecognizer {
     private String strategicUse;
     private boolean isInitialized = false;
 
+    // Ammo counter is read with digit templates; ML Kit only when they are unsure
+    private static final Pattern AMMO_FRACTION = Pattern.compile("(\\d+)/(\\d+)");
+    private static final Pattern AMMO_COUNT = Pattern.compile("\\d+");
+    private volatile DigitRecognizer digitRecognizer = DigitRecognizer.forGame(DigitRecognizer.DEFAULT_GAME);
+    private int[] ammoPixels;
+    private volatile List<String> ocrAmmoTexts = Collections.emptyList();
+    private final AtomicBoolean ammoOcrPending = new AtomicBoolean();
+
     public static class WeaponInfo {
         public String weaponName;
         public WeaponType type;
@@ -593,24 +604,38 @@ public class WeaponRecognizer {
     private void extractAmmoData(Bitmap screen, WeaponDetectionResult result) {
         try {
             // Extract ammo information from UI
-            Rect ammoRegion = new Rect(screen.getWidth() - 250, screen.getHeight() - 200,
+            Rect ammoRegion = new Rect(Math.max(0, screen.getWidth() - 250), Math.max(0, screen.getHeight() - 200),
                     screen.getWidth(), screen.getHeight());
+            int width = ammoRegion.width();
+            int height = ammoRegion.height();
+            if (ammoPixels == null || ammoPixels.length < width * height) {
+                ammoPixels = new int[width * height];
+            }
+            screen.getPixels(ammoPixels, 0, width, ammoRegion.left, ammoRegion.top, width, height);
 
-            List<OCREngine.DetectedText> ammoTexts =
-                    ocrEngine.processScreenRegion(screen, ammoRegion).get();
+            List<String> ammoTexts;
+            DigitRecognizer digits = digitRecognizer;
+            DigitRecognizer.Reading reading = digits.read(ammoPixels, 0, width, width, height);
+            if (digits.isConfident(reading)) {
+                ammoTexts = Arrays.asList(reading.text.split(" "));
+            } else {
+                // Latest ML Kit reading; a fresh one is requested in the background
+                requestAmmoOcr(width, height);
+                ammoTexts = ocrAmmoTexts;
+            }
 
-            for (OCREngine.DetectedText text : ammoTexts) {
-                if (text.text.matches("\\d+/\\d+")) {
-                    String[] parts = text.text.split("/");
-                    int current = Integer.parseInt(parts[0]);
-                    int max = Integer.parseInt(parts[1]);
+            for (String text : ammoTexts) {
+                Matcher fraction = AMMO_FRACTION.matcher(text);
+                if (fraction.matches()) {
+                    int current = Integer.parseInt(fraction.group(1));
+                    int max = Integer.parseInt(fraction.group(2));
 
                     if (result.currentWeapon != null) {
                         result.currentWeapon.currentAmmo = current;
                         result.currentWeapon.maxAmmo = max;
                     }
-                } else if (text.text.matches("\\d+")) {
-                    int reserveAmmo = Integer.parseInt(text.text);
+                } else if (AMMO_COUNT.matcher(text).matches()) {
+                    int reserveAmmo = Integer.parseInt(text);
                     if (result.currentWeapon != null) {
                         result.currentWeapon.reserveAmmo = reserveAmmo;
                     }
@@ -622,6 +647,36 @@ public class WeaponRecognizer {
         }
     }
 
+    private void requestAmmoOcr(int width, int height) {
+        if (ocrEngine == null || !ammoOcrPending.compareAndSet(false, true)) {
+            return;
+        }
+        // The engine copies the pixels before returning, so ammoPixels can be reused
+        ocrEngine.recognizeHudAtlas(ammoPixels, width, height, new HudReader.Callback() {
+            @Override
+            public void onLines(List<HudReader.Line> lines) {
+                List<String> texts = new ArrayList<>();
+                for (HudReader.Line line : lines) {
+                    texts.add(line.text.trim());
+                }
+                ocrAmmoTexts = texts;
+                ammoOcrPending.set(false);
+            }
+
+            @Override
+            public void onError(String error) {
+                ammoOcrPending.set(false);
+            }
+        });
+    }
+
+    /**
+     * Digit templates for the current game's ammo counter
+     */
+    public void setDigitRecognizer(DigitRecognizer digitRecognizer) {
+        this.digitRecognizer = digitRecognizer;
+    }
+
     private float calculateOverallConfidence(WeaponDetectionResult result) {
         float totalConfidence = 0f;
         int weaponCount = 0;
@@ -0,0 +1,79 @@
+package com.gestureai.gameautomation.accessibility;
+
+import android.accessibilityservice.AccessibilityService;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+/**
+ * NodeIndex access to the active window of an accessibility service
+ */
+public class AccessibilityNodeSource implements NodeIndex.NodeSource<AccessibilityNodeInfo> {
+
+    private final AccessibilityService service;
+
+    public AccessibilityNodeSource(AccessibilityService service) {
+        this.service = service;
+    }
+
+    @Override
+    public AccessibilityNodeInfo obtainRoot() {
+        return service.getRootInActiveWindow();
+    }
+
+    @Override
+    public int getChildCount(AccessibilityNodeInfo node) {
+        return node.getChildCount();
+    }
+
+    @Override
+    public AccessibilityNodeInfo obtainChild(AccessibilityNodeInfo node, int index) {
+        return node.getChild(index);
+    }
+
+    @Override
+    public AccessibilityNodeInfo obtainParent(AccessibilityNodeInfo node) {
+        return node.getParent();
+    }
+
+    @Override
+    public CharSequence getText(AccessibilityNodeInfo node) {
+        return node.getText();
+    }
+
+    @Override
+    public CharSequence getContentDescription(AccessibilityNodeInfo node) {
+        return node.getContentDescription();
+    }
+
+    @Override
+    public String getViewId(AccessibilityNodeInfo node) {
+        return node.getViewIdResourceName();
+    }
+
+    @Override
+    public CharSequence getClassName(AccessibilityNodeInfo node) {
+        return node.getClassName();
+    }
+
+    @Override
+    public boolean isClickable(AccessibilityNodeInfo node) {
+        return node.isClickable();
+    }
+
+    @Override
+    public boolean isSameNode(AccessibilityNodeInfo a, AccessibilityNodeInfo b) {
+        // AccessibilityNodeInfo equality is by window and source view id
+        return a.equals(b);
+    }
+
+    @Override
+    public boolean refresh(AccessibilityNodeInfo node) {
+        return node.refresh();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void recycle(AccessibilityNodeInfo node) {
+        // No-op from API 33, still required on older releases
+        node.recycle();
+    }
+}
@@ -0,0 +1,642 @@
+package com.gestureai.gameautomation.accessibility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Index of the active window's accessibility tree by text, view id and class.
+ * Each indexed node is stored as its child-index path from the root, so a hit
+ * is resolved with one getChild() call per level instead of a walk over the
+ * whole tree. Text is indexed as a whole and per word in a prefix trie.
+ *
+ * Content-change and window events only queue work and return, so the
+ * accessibility event thread never waits on the index. Queued subtrees are
+ * re-indexed on an updater thread (or by a lookup that finds the index
+ * stale); a full rebuild fills a fresh set of tables off-lock and swaps it in.
+ * A hit is re-checked against the live node before it is returned, and a
+ * mismatch rebuilds the index (the tree moved under us).
+ *
+ * Recycling: every node the index obtains is recycled, except a node returned
+ * from a lookup, which the caller owns and must recycle.
+ *
+ * Generic over the node type and pure Java (no android.* types) so it can be
+ * exercised against a fake tree on any JVM.
+ */
+public class NodeIndex<N> {
+
+    public static final int MAX_PENDING_CHANGES = 32;
+
+    /**
+     * Access to a node tree. Methods returning nodes hand ownership to the
+     * caller (AccessibilityNodeInfo semantics): each must be recycled once.
+     */
+    public interface NodeSource<N> {
+        N obtainRoot();
+        int getChildCount(N node);
+        N obtainChild(N node, int index);
+        N obtainParent(N node);
+        CharSequence getText(N node);
+        CharSequence getContentDescription(N node);
+        String getViewId(N node);
+        CharSequence getClassName(N node);
+        boolean isClickable(N node);
+        /** Same underlying view (not necessarily the same object) */
+        boolean isSameNode(N a, N b);
+        /** Reload the node's state; false if it no longer exists */
+        boolean refresh(N node);
+        void recycle(N node);
+    }
+
+    /**
+     * One indexed node
+     */
+    public static final class Entry {
+        public final String pathKey;
+        public final int[] path;
+        /** Normalized text and content description, for findByText */
+        public final String text;
+        /** getText() as reported, for findContaining */
+        public final String rawText;
+        public final String viewId;
+        public final String className;
+        public final boolean clickable;
+
+        Entry(int[] path, String text, String rawText, String viewId, String className, boolean clickable) {
+            this.path = path;
+            this.pathKey = pathKey(path, path.length);
+            this.text = text;
+            this.rawText = rawText;
+            this.viewId = viewId;
+            this.className = className;
+            this.clickable = clickable;
+        }
+    }
+
+    private static final class TrieNode {
+        final Map<Character, TrieNode> children = new HashMap<>(4);
+        List<Entry> entries;
+    }
+
+    /**
+     * One generation of lookup tables. byPath iterates in tree (pre-)order.
+     */
+    private static final class Tables {
+        final TreeMap<String, Entry> byPath = new TreeMap<>();
+        final Map<String, List<Entry>> byText = new HashMap<>();
+        final Map<String, List<Entry>> byViewId = new HashMap<>();
+        final Map<String, List<Entry>> byClass = new HashMap<>();
+        final TrieNode textTrie = new TrieNode();
+    }
+
+    private final NodeSource<N> source;
+    private final Executor updater;
+    private final ExecutorService ownedUpdater;
+    private final AtomicBoolean updateScheduled = new AtomicBoolean(false);
+
+    // Event side: held only long enough to queue work
+    private final Object pendingLock = new Object();
+    private final List<N> pendingChanges = new ArrayList<>();
+    private boolean fullRebuildNeeded = true;
+    private boolean closed = false;
+
+    // Serializes updates; taken before the monitor, never while holding it
+    private final Object updateLock = new Object();
+
+    // Guarded by this
+    private Tables tables = new Tables();
+    private long fullBuilds = 0;
+    private long incrementalUpdates = 0;
+    private long staleHits = 0;
+    private long lookups = 0;
+
+    /**
+     * Index with its own background updater thread
+     */
+    public NodeIndex(NodeSource<N> source) {
+        this.source = source;
+        this.ownedUpdater = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "NodeIndex");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.updater = ownedUpdater;
+    }
+
+    /**
+     * Index whose queued updates run on updater
+     */
+    public NodeIndex(NodeSource<N> source, Executor updater) {
+        this.source = source;
+        this.updater = updater;
+        this.ownedUpdater = null;
+    }
+
+    /**
+     * A subtree's content changed; takes ownership of changedRoot (null means
+     * the whole window changed). Never blocks on an update in progress.
+     */
+    public void onContentChanged(N changedRoot) {
+        synchronized (pendingLock) {
+            if (closed) {
+                if (changedRoot != null) source.recycle(changedRoot);
+                return;
+            }
+            if (changedRoot == null || fullRebuildNeeded || pendingChanges.size() >= MAX_PENDING_CHANGES) {
+                if (changedRoot != null) source.recycle(changedRoot);
+                markFullRebuild();
+            } else {
+                pendingChanges.add(changedRoot);
+            }
+        }
+        scheduleUpdate();
+    }
+
+    /**
+     * The active window changed; everything is re-indexed in the background
+     */
+    public void invalidate() {
+        synchronized (pendingLock) {
+            markFullRebuild();
+        }
+        scheduleUpdate();
+    }
+
+    /**
+     * Drop queued work and stop the updater thread, if the index owns one
+     */
+    public void close() {
+        synchronized (pendingLock) {
+            closed = true;
+            markFullRebuild();
+        }
+        if (ownedUpdater != null) {
+            ownedUpdater.shutdownNow();
+        }
+    }
+
+    // Caller holds pendingLock
+    private void markFullRebuild() {
+        fullRebuildNeeded = true;
+        for (N pending : pendingChanges) {
+            source.recycle(pending);
+        }
+        pendingChanges.clear();
+    }
+
+    public boolean isStale() {
+        synchronized (pendingLock) {
+            return fullRebuildNeeded || !pendingChanges.isEmpty();
+        }
+    }
+
+    private void scheduleUpdate() {
+        if (!updateScheduled.compareAndSet(false, true)) return;
+        try {
+            updater.execute(() -> {
+                updateScheduled.set(false);
+                update();
+            });
+        } catch (RuntimeException e) {
+            // Updater shut down; lookups still bring the index up to date
+            updateScheduled.set(false);
+        }
+    }
+
+    /**
+     * Node whose text or content description contains text, ignoring case and
+     * preferring clickable ones: exact match first, then word prefix, then a
+     * substring scan of the indexed strings. Caller recycles the result.
+     */
+    public N findByText(String text) {
+        if (text == null || text.isEmpty()) return null;
+        String key = normalize(text);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            update();
+            Entry entry;
+            synchronized (this) {
+                lookups++;
+                entry = bestOf(tables.byText.get(key));
+                if (entry == null) entry = bestOf(collectPrefix(tables, key));
+                if (entry == null) entry = scanContaining(tables, key);
+            }
+            if (entry == null) return null;
+
+            N node = resolve(entry);
+            if (node != null) return node;
+            staleHit();
+        }
+        return null;
+    }
+
+    /**
+     * First node in tree order whose getText() contains text, case-sensitive
+     * (the semantics of a recursive walk over the window). Scans the indexed
+     * strings, so only the hit itself is fetched. Caller recycles the result.
+     */
+    public N findContaining(String text) {
+        if (text == null) return null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            update();
+            Entry entry = null;
+            synchronized (this) {
+                lookups++;
+                for (Entry candidate : tables.byPath.values()) {
+                    if (candidate.rawText != null && candidate.rawText.contains(text)) {
+                        entry = candidate;
+                        break;
+                    }
+                }
+            }
+            if (entry == null) return null;
+
+            N node = resolve(entry);
+            if (node != null) return node;
+            staleHit();
+        }
+        return null;
+    }
+
+    public N findByViewId(String viewId) {
+        return findIn(false, viewId);
+    }
+
+    public N findByClassName(String className) {
+        return findIn(true, className);
+    }
+
+    private N findIn(boolean byClass, String key) {
+        if (key == null) return null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            update();
+            Entry entry;
+            synchronized (this) {
+                lookups++;
+                entry = bestOf((byClass ? tables.byClass : tables.byViewId).get(key));
+            }
+            if (entry == null) return null;
+            N node = resolve(entry);
+            if (node != null) return node;
+            staleHit();
+        }
+        return null;
+    }
+
+    private void staleHit() {
+        synchronized (this) {
+            staleHits++;
+        }
+        synchronized (pendingLock) {
+            markFullRebuild();
+        }
+    }
+
+    public int size() {
+        update();
+        synchronized (this) {
+            return tables.byPath.size();
+        }
+    }
+
+    // Prefer clickable entries, then shallower ones
+    private static Entry bestOf(List<Entry> entries) {
+        if (entries == null || entries.isEmpty()) return null;
+        Entry best = null;
+        for (Entry entry : entries) {
+            if (best == null || (entry.clickable && !best.clickable)
+                    || (entry.clickable == best.clickable && entry.path.length < best.path.length)) {
+                best = entry;
+            }
+        }
+        return best;
+    }
+
+    private static Entry scanContaining(Tables tables, String key) {
+        Entry best = null;
+        for (Entry entry : tables.byPath.values()) {
+            if (entry.text != null && entry.text.contains(key)) {
+                if (entry.clickable) return entry;
+                if (best == null) best = entry;
+            }
+        }
+        return best;
+    }
+
+    // ---- Index maintenance ----
+
+    /**
+     * Apply queued work: a full rebuild into fresh tables that are then
+     * swapped in, or re-indexing of each changed subtree in place
+     */
+    private void update() {
+        synchronized (updateLock) {
+            while (true) {
+                boolean full;
+                List<N> changes = null;
+                synchronized (pendingLock) {
+                    if (closed) return;
+                    full = fullRebuildNeeded;
+                    fullRebuildNeeded = false;
+                    if (!full) {
+                        if (pendingChanges.isEmpty()) return;
+                        changes = new ArrayList<>(pendingChanges);
+                        pendingChanges.clear();
+                    }
+                }
+
+                if (full) {
+                    Tables rebuilt = buildTables();
+                    synchronized (this) {
+                        tables = rebuilt;
+                        fullBuilds++;
+                    }
+                } else if (!applyChanges(changes)) {
+                    synchronized (pendingLock) {
+                        markFullRebuild();
+                    }
+                }
+            }
+        }
+    }
+
+    private Tables buildTables() {
+        Tables built = new Tables();
+        N root = source.obtainRoot();
+        if (root == null) return built;
+        try {
+            indexSubtree(built, root, new int[0], 0);
+        } finally {
+            source.recycle(root);
+        }
+        return built;
+    }
+
+    // False if a change could not be placed and the whole tree must be rebuilt
+    private boolean applyChanges(List<N> changes) {
+        boolean placed = true;
+        for (N changed : changes) {
+            if (placed) {
+                int[] path = source.refresh(changed) ? pathOf(changed) : null;
+                if (path == null) {
+                    // Detached or unreachable from the current root
+                    placed = false;
+                } else {
+                    synchronized (this) {
+                        removeSubtree(tables, pathKey(path, path.length));
+                        indexSubtree(tables, changed, path, path.length);
+                        incrementalUpdates++;
+                    }
+                }
+            }
+            source.recycle(changed);
+        }
+        return placed;
+    }
+
+    // Index node (not recycled here) and its descendants; path[0..depth) is node's path
+    private void indexSubtree(Tables tables, N node, int[] path, int depth) {
+        int[] nodePath = Arrays.copyOf(path, depth);
+        String text = combinedText(node);
+        String viewId = source.getViewId(node);
+        CharSequence className = source.getClassName(node);
+        if (text != null || viewId != null || source.isClickable(node)) {
+            CharSequence rawText = source.getText(node);
+            add(tables, new Entry(nodePath, text, rawText != null ? rawText.toString() : null, viewId,
+                    className != null ? className.toString() : null, source.isClickable(node)));
+        }
+
+        int childCount = source.getChildCount(node);
+        if (childCount == 0) return;
+        int[] childPath = Arrays.copyOf(nodePath, depth + 1);
+        for (int i = 0; i < childCount; i++) {
+            N child = source.obtainChild(node, i);
+            if (child == null) continue;
+            try {
+                childPath[depth] = i;
+                indexSubtree(tables, child, childPath, depth + 1);
+            } finally {
+                source.recycle(child);
+            }
+        }
+    }
+
+    private String combinedText(N node) {
+        CharSequence text = source.getText(node);
+        CharSequence description = source.getContentDescription(node);
+        if (text == null && description == null) return null;
+        if (text == null) return normalize(description.toString());
+        if (description == null) return normalize(text.toString());
+        return normalize(text + " " + description);
+    }
+
+    private static void add(Tables tables, Entry entry) {
+        Entry previous = tables.byPath.put(entry.pathKey, entry);
+        if (previous != null) removeFromLookups(tables, previous);
+        if (entry.text != null) {
+            addTo(tables.byText, entry.text, entry);
+            for (String word : words(entry.text)) {
+                TrieNode node = trieNode(tables, word, true);
+                node.entries = appendTo(node.entries, entry);
+            }
+        }
+        if (entry.viewId != null) addTo(tables.byViewId, entry.viewId, entry);
+        if (entry.className != null) addTo(tables.byClass, entry.className, entry);
+    }
+
+    private static void removeSubtree(Tables tables, String prefix) {
+        NavigableMap<String, Entry> subtree = tables.byPath.subMap(prefix, true, prefix + '\uffff', false);
+        for (Iterator<Entry> it = subtree.values().iterator(); it.hasNext(); ) {
+            removeFromLookups(tables, it.next());
+            it.remove();
+        }
+    }
+
+    private static void removeFromLookups(Tables tables, Entry entry) {
+        if (entry.text != null) {
+            removeFrom(tables.byText, entry.text, entry);
+            for (String word : words(entry.text)) {
+                TrieNode node = trieNode(tables, word, false);
+                if (node != null && node.entries != null) node.entries.remove(entry);
+            }
+        }
+        if (entry.viewId != null) removeFrom(tables.byViewId, entry.viewId, entry);
+        if (entry.className != null) removeFrom(tables.byClass, entry.className, entry);
+    }
+
+    private static void addTo(Map<String, List<Entry>> map, String key, Entry entry) {
+        List<Entry> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<>(1);
+            map.put(key, list);
+        }
+        list.add(entry);
+    }
+
+    private static void removeFrom(Map<String, List<Entry>> map, String key, Entry entry) {
+        List<Entry> list = map.get(key);
+        if (list == null) return;
+        list.remove(entry);
+        if (list.isEmpty()) map.remove(key);
+    }
+
+    private static List<Entry> appendTo(List<Entry> list, Entry entry) {
+        if (list == null) list = new ArrayList<>(1);
+        list.add(entry);
+        return list;
+    }
+
+    private static TrieNode trieNode(Tables tables, String word, boolean create) {
+        TrieNode node = tables.textTrie;
+        for (int i = 0; i < word.length(); i++) {
+            TrieNode next = node.children.get(word.charAt(i));
+            if (next == null) {
+                if (!create) return null;
+                next = new TrieNode();
+                node.children.put(word.charAt(i), next);
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    // Entries with a word starting with prefix (or whose text starts with it)
+    private static List<Entry> collectPrefix(Tables tables, String prefix) {
+        String firstWord = prefix.indexOf(' ') >= 0 ? prefix.substring(0, prefix.indexOf(' ')) : prefix;
+        TrieNode start = trieNode(tables, firstWord, false);
+        if (start == null) return null;
+        List<Entry> out = new ArrayList<>();
+        collect(start, out);
+        if (firstWord.length() < prefix.length()) {
+            // Multi-word query: keep entries that actually contain the phrase
+            out.removeIf(entry -> !entry.text.contains(prefix));
+        }
+        return out;
+    }
+
+    private static void collect(TrieNode node, List<Entry> out) {
+        if (node.entries != null) out.addAll(node.entries);
+        for (TrieNode child : node.children.values()) {
+            collect(child, out);
+        }
+    }
+
+    // ---- Resolution ----
+
+    /**
+     * Walk entry's path from the live root, recycling intermediate nodes, and
+     * check the node found is still the one indexed. Caller recycles result.
+     */
+    private N resolve(Entry entry) {
+        N node = source.obtainRoot();
+        for (int i = 0; node != null && i < entry.path.length; i++) {
+            N child = entry.path[i] < source.getChildCount(node) ? source.obtainChild(node, entry.path[i]) : null;
+            source.recycle(node);
+            node = child;
+        }
+        if (node == null) return null;
+
+        boolean matches = equalsNullable(entry.text, combinedText(node))
+                && equalsNullable(entry.viewId, source.getViewId(node));
+        if (!matches) {
+            source.recycle(node);
+            return null;
+        }
+        return node;
+    }
+
+    // Child-index path from the root to node, or null if it is not under the current root
+    private int[] pathOf(N node) {
+        List<Integer> reversed = new ArrayList<>();
+        N current = source.obtainParent(node);
+        N child = node;
+        boolean ownsChild = false;
+        try {
+            while (current != null) {
+                int index = indexOfChild(current, child);
+                if (index < 0) return null;
+                reversed.add(index);
+                if (ownsChild) source.recycle(child);
+                child = current;
+                ownsChild = true;
+                current = source.obtainParent(current);
+            }
+            // child is now the topmost ancestor; it must be the window root
+            N root = source.obtainRoot();
+            boolean underRoot = root != null && source.isSameNode(root, child);
+            if (root != null) source.recycle(root);
+            if (!underRoot) return null;
+        } finally {
+            if (ownsChild) source.recycle(child);
+            if (current != null) source.recycle(current);
+        }
+
+        int[] path = new int[reversed.size()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = reversed.get(path.length - 1 - i);
+        }
+        return path;
+    }
+
+    private int indexOfChild(N parent, N child) {
+        int count = source.getChildCount(parent);
+        for (int i = 0; i < count; i++) {
+            N candidate = source.obtainChild(parent, i);
+            if (candidate == null) continue;
+            boolean same = source.isSameNode(candidate, child);
+            source.recycle(candidate);
+            if (same) return i;
+        }
+        return -1;
+    }
+
+    private static boolean equalsNullable(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String[] words(String text) {
+        return text.split("\\s+");
+    }
+
+    /**
+     * One char per level, so keys sort in tree pre-order and a subtree is a
+     * contiguous key range
+     */
+    static String pathKey(int[] path, int length) {
+        char[] key = new char[length];
+        for (int i = 0; i < length; i++) {
+            key[i] = (char) path[i];
+        }
+        return new String(key);
+    }
+
+    public synchronized String getStats() {
+        return "entries=" + tables.byPath.size() + ", lookups=" + lookups + ", fullBuilds=" + fullBuilds
+                + ", incremental=" + incrementalUpdates + ", staleHits=" + staleHits;
+    }
+
+    public synchronized long getFullBuildCount() {
+        return fullBuilds;
+    }
+
+    public synchronized long getIncrementalUpdateCount() {
+        return incrementalUpdates;
+    }
+
+    public synchronized long getStaleHitCount() {
+        return staleHits;
+    }
+}
@@ -14,6 +14,7 @@ import com.gestureai.gameautomation.PerformanceTracker;
 import com.gestureai.gameautomation.R;
 import com.gestureai.gameautomation.ReinforcementLearner;
 import com.gestureai.gameautomation.ai.*;
+import com.gestureai.gameautomation.database.DatabaseIntegrationManager;
 import com.gestureai.gameautomation.managers.MLModelManager;
 import com.gestureai.gameautomation.utils.TimeUtils;
 import java.util.ArrayList;
@@ -311,6 +312,23 @@ public class ComprehensiveAnalyticsActivity extends AppCompatActivity {
         updateGameStatsData();
         updateMonitoringData();
         loadSessionHistory();
+        loadStoredActionSummary();
+    }
+
+    /**
+     * Reaction-time percentiles over the last day of stored actions. The
+     * database returns a grouped histogram, so no action rows are loaded.
+     */
+    private void loadStoredActionSummary() {
+        long now = System.currentTimeMillis();
+        DatabaseIntegrationManager.getInstance(this)
+                .getReactionTimePercentiles(null, now - 24 * 60 * 60 * 1000L, now, 50, 90, 99)
+                .thenAccept(percentiles -> runOnUiThread(() -> {
+                    if (!isFinishing() && percentiles[0] > 0) {
+                        tvReactionTime.setText(percentiles[0] + "ms (p90 " + percentiles[1]
+                                + "ms, p99 " + percentiles[2] + "ms)");
+                    }
+                }));
     }
 
     private void updateOverviewData() {
@@ -9,16 +9,16 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.gestureai.gameautomation.R;
-import com.gestureai.gameautomation.database.SessionDao;
-import com.gestureai.gameautomation.data.SessionData;
-import com.gestureai.gameautomation.database.GestureDatabase;
+import com.gestureai.gameautomation.database.AppDatabase;
+import com.gestureai.gameautomation.database.SessionDataDao;
+import com.gestureai.gameautomation.database.dao.GameActionDao;
+import com.gestureai.gameautomation.database.entities.ActionSuccessBucket;
+import com.gestureai.gameautomation.database.entities.SessionSummary;
 
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Locale;
 
 /**
  * Database Analytics Interface
@@ -44,8 +44,12 @@ public class DatabaseAnalyticsActivity extends Activity {
     private Spinner spinnerTimeRange;
     
     // Database Components
-    private SessionDao sessionDao;
-    private GestureDatabase database;
+    private SessionDataDao sessionDao;
+    private GameActionDao actionDao;
+    private AppDatabase database;
+    
+    private static final long TREND_BUCKET_MS = 60 * 1000L;
+    private static final long TREND_WINDOW_MS = 24 * 60 * 60 * 1000L;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -117,23 +121,39 @@ public class DatabaseAnalyticsActivity extends Activity {
     
     private void setupDatabase() {
         try {
-            database = GestureDatabase.getInstance(this);
-            sessionDao = database.sessionDao();
+            database = AppDatabase.getInstance(this);
+            sessionDao = database.sessionDataDao();
+            actionDao = database.gameActionDao();
         } catch (Exception e) {
             Log.e(TAG, "Failed to setup database", e);
         }
     }
     
     private void loadAnalyticsData() {
+        loadAnalyticsData(null, 0);
+    }
+    
+    /**
+     * Load aggregated statistics; gameType null means all games, since 0 means all time
+     */
+    private void loadAnalyticsData(String gameType, long since) {
         new Thread(() -> {
             try {
-                // Get basic statistics
-                List<SessionData> allSessions = sessionDao.getAllSessions();
+                // Summaries are computed in SQL, no session rows are loaded
+                SessionSummary summary = gameType != null
+                    ? sessionDao.getSessionSummaryForGameType(gameType, since)
+                    : sessionDao.getSessionSummary(since);
+                List<SessionSummary> gameSummaries = sessionDao.getGameTypeSummaries(since);
+                List<SessionSummary> strategySummaries = sessionDao.getStrategySummaries(since);
+                
+                long now = System.currentTimeMillis();
+                List<ActionSuccessBucket> trend = actionDao.getSuccessRateSeries(
+                    Math.max(since, now - TREND_WINDOW_MS), now, TREND_BUCKET_MS);
                 
                 runOnUiThread(() -> {
-                    displayBasicStatistics(allSessions);
-                    displayPerformanceTrends(allSessions);
-                    displayGameSpecificStats(allSessions);
+                    displayBasicStatistics(summary);
+                    displayPerformanceTrends(trend);
+                    displayGameSpecificStats(gameSummaries, strategySummaries);
                 });
                 
             } catch (Exception e) {
@@ -145,103 +165,53 @@ public class DatabaseAnalyticsActivity extends Activity {
         }).start();
     }
     
-    private void displayBasicStatistics(List<SessionData> sessions) {
+    private void displayBasicStatistics(SessionSummary summary) {
         try {
-            int totalSessions = sessions.size();
-            long totalDuration = 0;
-            int totalActions = 0;
-            int totalSuccessfulActions = 0;
-            
-            for (SessionData session : sessions) {
-                totalDuration += session.sessionDuration;
-                totalActions += session.totalActions;
-                totalSuccessfulActions += session.successfulActions;
-            }
-            
-            long averageDuration = totalSessions > 0 ? totalDuration / totalSessions : 0;
-            float overallSuccessRate = totalActions > 0 ? 
-                (float) totalSuccessfulActions / totalActions * 100 : 0;
+            if (summary == null) summary = new SessionSummary();
             
             // Update UI
-            tvTotalSessions.setText("Total Sessions: " + totalSessions);
-            tvAverageSessionDuration.setText("Avg Duration: " + formatDuration(averageDuration));
-            tvTotalActions.setText("Total Actions: " + totalActions);
-            tvOverallSuccessRate.setText(String.format("Success Rate: %.1f%%", overallSuccessRate));
+            tvTotalSessions.setText("Total Sessions: " + summary.sessionCount);
+            tvAverageSessionDuration.setText("Avg Duration: " + formatDuration(summary.getAverageDuration()));
+            tvTotalActions.setText("Total Actions: " + summary.totalActions);
+            tvOverallSuccessRate.setText(String.format("Success Rate: %.1f%%", summary.getOverallSuccessRate() * 100));
             
         } catch (Exception e) {
             Log.e(TAG, "Error displaying basic statistics", e);
         }
     }
     
-    private void displayPerformanceTrends(List<SessionData> sessions) {
+    private void displayPerformanceTrends(List<ActionSuccessBucket> trend) {
         try {
-            // Calculate performance trends over time
-            Map<String, Float> dailyPerformance = new HashMap<>();
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            
-            for (SessionData session : sessions) {
-                String date = dateFormat.format(new Date(session.startTime));
-                float sessionSuccessRate = session.totalActions > 0 ? 
-                    (float) session.successfulActions / session.totalActions : 0;
-                
-                dailyPerformance.put(date, 
-                    dailyPerformance.getOrDefault(date, 0f) + sessionSuccessRate);
+            // Per-minute success rate for each action type, already bucketed in SQL
+            Map<String, Integer> bucketsPerType = new HashMap<>();
+            for (ActionSuccessBucket bucket : trend) {
+                String actionType = bucket.actionType != null ? bucket.actionType : "Unknown";
+                bucketsPerType.put(actionType, bucketsPerType.getOrDefault(actionType, 0) + 1);
             }
             
-            Log.d(TAG, "Performance trends calculated for " + dailyPerformance.size() + " days");
+            Log.d(TAG, "Performance trends loaded: " + trend.size() + " buckets across "
+                + bucketsPerType.size() + " action types");
             
         } catch (Exception e) {
             Log.e(TAG, "Error calculating performance trends", e);
         }
     }
     
-    private void displayGameSpecificStats(List<SessionData> sessions) {
+    private void displayGameSpecificStats(List<SessionSummary> gameSummaries, List<SessionSummary> strategySummaries) {
         try {
-            // Calculate game-specific statistics
-            Map<String, Integer> gameSessionCounts = new HashMap<>();
-            Map<String, Float> gameSuccessRates = new HashMap<>();
-            Map<String, Long> gameDurations = new HashMap<>();
-            
-            for (SessionData session : sessions) {
-                String gameType = session.gameType != null ? session.gameType : "Unknown";
-                
-                // Count sessions per game
-                gameSessionCounts.put(gameType, 
-                    gameSessionCounts.getOrDefault(gameType, 0) + 1);
-                
-                // Calculate success rates per game
-                float sessionSuccessRate = session.totalActions > 0 ? 
-                    (float) session.successfulActions / session.totalActions : 0;
-                gameSuccessRates.put(gameType, 
-                    gameSuccessRates.getOrDefault(gameType, 0f) + sessionSuccessRate);
-                
-                // Calculate total durations per game
-                gameDurations.put(gameType, 
-                    gameDurations.getOrDefault(gameType, 0L) + session.sessionDuration);
-            }
-            
-            // Find most played game
+            // Game summaries are ordered by session count, strategies by best session
             String mostPlayedGame = "None";
             int maxSessions = 0;
-            for (Map.Entry<String, Integer> entry : gameSessionCounts.entrySet()) {
-                if (entry.getValue() > maxSessions) {
-                    maxSessions = entry.getValue();
-                    mostPlayedGame = entry.getKey();
-                }
+            if (!gameSummaries.isEmpty()) {
+                mostPlayedGame = gameSummaries.get(0).groupKey;
+                maxSessions = gameSummaries.get(0).sessionCount;
             }
             
-            // Find best performing strategy
             String bestStrategy = "None";
             float bestSuccessRate = 0;
-            for (SessionData session : sessions) {
-                if (session.aiStrategy != null) {
-                    float sessionSuccessRate = session.totalActions > 0 ? 
-                        (float) session.successfulActions / session.totalActions : 0;
-                    if (sessionSuccessRate > bestSuccessRate) {
-                        bestSuccessRate = sessionSuccessRate;
-                        bestStrategy = session.aiStrategy;
-                    }
-                }
+            if (!strategySummaries.isEmpty() && strategySummaries.get(0).bestSuccessRate > 0) {
+                bestStrategy = strategySummaries.get(0).groupKey;
+                bestSuccessRate = strategySummaries.get(0).bestSuccessRate;
             }
             
             // Update UI
@@ -267,8 +237,8 @@ public class DatabaseAnalyticsActivity extends Activity {
     private void exportAnalyticsReport(View view) {
         new Thread(() -> {
             try {
-                List<SessionData> allSessions = sessionDao.getAllSessions();
-                String reportData = generateAnalyticsReport(allSessions);
+                SessionSummary summary = sessionDao.getSessionSummary(0);
+                String reportData = generateAnalyticsReport(summary);
                 
                 runOnUiThread(() -> {
                     // In a real implementation, save to file
@@ -288,7 +258,8 @@ public class DatabaseAnalyticsActivity extends Activity {
     private void applyGameFilter(View view) {
         String selectedGame = (String) spinnerGameFilter.getSelectedItem();
         if (selectedGame != null && !selectedGame.equals("All Games")) {
-            filterSessionsByGame(selectedGame);
+            loadAnalyticsData(selectedGame, 0);
+            Toast.makeText(this, "Filtered by game: " + selectedGame, Toast.LENGTH_SHORT).show();
         } else {
             loadAnalyticsData();
         }
@@ -297,83 +268,43 @@ public class DatabaseAnalyticsActivity extends Activity {
     private void applyDateFilter(View view) {
         String selectedRange = (String) spinnerTimeRange.getSelectedItem();
         if (selectedRange != null && !selectedRange.equals("All Time")) {
-            filterSessionsByTimeRange(selectedRange);
+            loadAnalyticsData(null, getCutoffTime(selectedRange));
+            Toast.makeText(this, "Filtered by time: " + selectedRange, Toast.LENGTH_SHORT).show();
         } else {
             loadAnalyticsData();
         }
     }
     
-    private void filterSessionsByGame(String gameType) {
-        new Thread(() -> {
-            try {
-                List<SessionData> filteredSessions = sessionDao.getSessionsByGameType(gameType);
-                
-                runOnUiThread(() -> {
-                    displayBasicStatistics(filteredSessions);
-                    displayPerformanceTrends(filteredSessions);
-                    displayGameSpecificStats(filteredSessions);
-                    Toast.makeText(this, "Filtered by game: " + gameType, Toast.LENGTH_SHORT).show();
-                });
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error filtering by game", e);
-            }
-        }).start();
-    }
-    
-    private void filterSessionsByTimeRange(String timeRange) {
-        new Thread(() -> {
-            try {
-                long cutoffTime = System.currentTimeMillis();
-                switch (timeRange) {
-                    case "Last 7 Days":
-                        cutoffTime -= 7 * 24 * 60 * 60 * 1000L;
-                        break;
-                    case "Last 30 Days":
-                        cutoffTime -= 30 * 24 * 60 * 60 * 1000L;
-                        break;
-                    case "Last 90 Days":
-                        cutoffTime -= 90 * 24 * 60 * 60 * 1000L;
-                        break;
-                }
-                
-                List<SessionData> filteredSessions = sessionDao.getSessionsAfterTime(cutoffTime);
-                
-                runOnUiThread(() -> {
-                    displayBasicStatistics(filteredSessions);
-                    displayPerformanceTrends(filteredSessions);
-                    displayGameSpecificStats(filteredSessions);
-                    Toast.makeText(this, "Filtered by time: " + timeRange, Toast.LENGTH_SHORT).show();
-                });
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error filtering by time range", e);
-            }
-        }).start();
+    private long getCutoffTime(String timeRange) {
+        long cutoffTime = System.currentTimeMillis();
+        switch (timeRange) {
+            case "Last 7 Days":
+                cutoffTime -= 7 * 24 * 60 * 60 * 1000L;
+                break;
+            case "Last 30 Days":
+                cutoffTime -= 30 * 24 * 60 * 60 * 1000L;
+                break;
+            case "Last 90 Days":
+                cutoffTime -= 90 * 24 * 60 * 60 * 1000L;
+                break;
+            default:
+                cutoffTime = 0;
+                break;
+        }
+        return cutoffTime;
     }
     
-    private String generateAnalyticsReport(List<SessionData> sessions) {
+    private String generateAnalyticsReport(SessionSummary summary) {
         StringBuilder report = new StringBuilder();
         report.append("=== GestureAI Analytics Report ===\n");
         report.append("Generated: ").append(new Date().toString()).append("\n\n");
         
         report.append("Basic Statistics:\n");
-        report.append("- Total Sessions: ").append(sessions.size()).append("\n");
-        
-        long totalDuration = 0;
-        int totalActions = 0;
-        int totalSuccessfulActions = 0;
-        
-        for (SessionData session : sessions) {
-            totalDuration += session.sessionDuration;
-            totalActions += session.totalActions;
-            totalSuccessfulActions += session.successfulActions;
-        }
-        
-        report.append("- Total Duration: ").append(formatDuration(totalDuration)).append("\n");
-        report.append("- Total Actions: ").append(totalActions).append("\n");
+        report.append("- Total Sessions: ").append(summary.sessionCount).append("\n");
+        report.append("- Total Duration: ").append(formatDuration(summary.totalDuration)).append("\n");
+        report.append("- Total Actions: ").append(summary.totalActions).append("\n");
         report.append("- Success Rate: ").append(
-            totalActions > 0 ? String.format("%.2f%%", (float) totalSuccessfulActions / totalActions * 100) : "0%"
+            summary.totalActions > 0 ? String.format("%.2f%%", summary.getOverallSuccessRate() * 100) : "0%"
         ).append("\n");
         
         return report.toString();
@@ -17,15 +17,23 @@ import android.view.View;
 import android.widget.*;
 import androidx.appcompat.app.AppCompatActivity;
 import com.gestureai.gameautomation.R;
+import com.gestureai.gameautomation.DigitRecognizer;
 import com.gestureai.gameautomation.ObjectLabelerEngine;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 
 public class ObjectLabelingActivity extends AppCompatActivity {
     private static final String TAG = "ObjectLabelingActivity";
     private static final int REQUEST_IMAGE_SELECT = 1001;
 
+    /** Game the screenshots come from, a GameContextAnalyzer.digitTemplateId */
+    public static final String EXTRA_GAME_ID = "game_id";
+
+    // "Text" labels like "30/120", "85%" or "1:45" also train the digit reader
+    private static final Pattern DIGIT_TEXT = Pattern.compile("[0-9/%:\\s]*\\d[0-9/%:\\s]*");
+
     private ImageView ivImage;
     private EditText etObjectName;
     private Spinner spinnerObjectType;
@@ -45,6 +53,7 @@ public class ObjectLabelingActivity extends AppCompatActivity {
     private float startX, startY, endX, endY;
     private Paint boxPaint;
     private LabeledObjectAdapter adapter;
+    private String gameId;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -108,6 +117,10 @@ public class ObjectLabelingActivity extends AppCompatActivity {
 
     private void initializeComponents() {
         labelerEngine = new ObjectLabelerEngine(this);
+        gameId = getIntent().getStringExtra(EXTRA_GAME_ID);
+        if (gameId == null) {
+            gameId = DigitRecognizer.DEFAULT_GAME;
+        }
     }
 
     private void setupListeners() {
@@ -248,11 +261,37 @@ public class ObjectLabelingActivity extends AppCompatActivity {
         // Add to labeler engine for training
         if (labelerEngine != null) {
             labelerEngine.addTrainingExample(currentImage, obj.name, obj.boundingBox, obj.action);
+            if ("Text".equals(obj.type) && DIGIT_TEXT.matcher(obj.name).matches()) {
+                learnDigitTemplates(obj);
+            }
         }
 
         Toast.makeText(this, "Label added successfully", Toast.LENGTH_SHORT).show();
     }
 
+    /**
+     * Teach the game's digit reader the glyphs in a labelled HUD number, so
+     * the HUD readers can read it without OCR
+     */
+    private void learnDigitTemplates(LabeledObject obj) {
+        Rect region = new Rect(obj.boundingBox);
+        if (!region.intersect(0, 0, currentImage.getWidth(), currentImage.getHeight())) return;
+
+        labelerEngine.learnDigitTemplates(gameId, currentImage, region, obj.name,
+                new ObjectLabelerEngine.DigitTemplateCallback() {
+                    @Override
+                    public void onTemplatesUpdated(String learnedSymbols) {
+                        Toast.makeText(ObjectLabelingActivity.this,
+                                "Digit templates now cover: " + learnedSymbols, Toast.LENGTH_SHORT).show();
+                    }
+
+                    @Override
+                    public void onTemplateError(String error) {
+                        Log.w(TAG, "Digit templates not updated: " + error);
+                    }
+                });
+    }
+
     private void loadImageFromGallery() {
         Intent intent = new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
         startActivityForResult(intent, REQUEST_IMAGE_SELECT);
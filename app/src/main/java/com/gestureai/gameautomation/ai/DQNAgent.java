@@ -57,12 +57,24 @@ public class DQNAgent {
     private volatile String currentModelName = "dqn_model";
     private volatile boolean modelLoaded = false;
     private final Object modelLock = new Object();
-    
-    // Fallback Q-table for when model is not available - thread-safe
-    private volatile float[][] qTable;
-    private volatile float[][] targetQTable; // Target network for stable learning
-    private final Object qTableLock = new Object();
-    private final Object targetNetworkLock = new Object();
+    // Per-thread Q-value output so model inference does not allocate per frame
+    private final ThreadLocal<float[]> qValueScratch = ThreadLocal.withInitial(() -> new float[actionSize]);
+    
+    // Dense Q-network used when no TensorFlow Lite model is available
+    private volatile QNetwork qNetwork;
+    private static final int[] HIDDEN_LAYERS = {64, 64};
+    private static final int[] FALLBACK_HIDDEN_LAYERS = {16};
+    private static final int TRAIN_BATCH_SIZE = 32;
+    private final Object trainLock = new Object();
+
+    // Preallocated buffers: sampled minibatch, single-transition updates and priorities
+    private ReplayBuffer.SampleBatch sampleBatch;
+    private float[] batchStates;
+    private float[] batchNextStates;
+    private float[] batchRewards;
+    private int[] batchActions;
+    private boolean[] batchDones;
+    private float[] tdErrors;
     private Random random;
     private volatile float currentPerformance;
     private volatile boolean isDestroyed = false;
@@ -83,13 +95,9 @@ public class DQNAgent {
     private static final float MAX_LEARNING_RATE = 0.01f;
     private final java.util.concurrent.atomic.AtomicBoolean emergencyStop = new java.util.concurrent.atomic.AtomicBoolean(false);
     
-    // Experience replay buffer with corruption prevention and bounds checking
-    private final java.util.concurrent.ConcurrentLinkedQueue<Experience> replayBuffer;
-    private static final int MAX_REPLAY_BUFFER_SIZE = 10000; // Reduced to prevent OOM
-    private final java.util.concurrent.atomic.AtomicInteger bufferSize = new java.util.concurrent.atomic.AtomicInteger(0);
-    private final Object bufferLock = new Object();
-    private volatile boolean bufferCorrupted = false;
-    private final java.util.concurrent.atomic.AtomicLong bufferModificationCount = new java.util.concurrent.atomic.AtomicLong(0);
+    // Prioritized replay owned by this agent; priorities come from its own network
+    private static final int REPLAY_CAPACITY = 10000;
+    private final ReplayBuffer replayBuffer;
     
     public DQNAgent(int stateSize, int actionSize) {
         this.stateSize = stateSize;
@@ -99,15 +107,13 @@ public class DQNAgent {
         this.epsilonDecay = 0.995f;
         this.gamma = 0.95f;
         
-        this.qTable = new float[100][actionSize]; // Fallback Q-table
         this.random = new Random();
         this.currentPerformance = 0.5f;
-        this.replayBuffer = new java.util.concurrent.ConcurrentLinkedQueue<>();
+        this.replayBuffer = new ReplayBuffer(REPLAY_CAPACITY, stateSize);
         this.adaptiveLearningRate = this.learningRate;
         
         try {
-            initializeQTable();
-            initializeTargetNetwork();
+            initializeQNetwork(HIDDEN_LAYERS);
             Log.d(TAG, "DQN Agent initialized with state size: " + stateSize + ", action size: " + actionSize);
         } catch (Exception e) {
             Log.e(TAG, "Failed to initialize DQN Agent, using fallback mode", e);
@@ -118,16 +124,11 @@ public class DQNAgent {
     
     private void initializeFallbackMode() {
         // Initialize minimal working state when normal initialization fails
-        this.qTable = new float[10][actionSize]; // Reduced size fallback
         this.random = new Random();
         this.currentPerformance = 0.1f; // Lower starting performance
         
-        // Initialize with conservative random values
-        for (int i = 0; i < qTable.length; i++) {
-            for (int j = 0; j < actionSize; j++) {
-                qTable[i][j] = 0.01f; // Very small conservative values
-            }
-        }
+        // Single small hidden layer
+        initializeQNetwork(FALLBACK_HIDDEN_LAYERS);
         Log.w(TAG, "DQN Agent running in fallback mode with reduced capabilities");
     }
     
@@ -149,48 +150,41 @@ public class DQNAgent {
     
 
     
+    /**
+     * Loads in the background; the Q-network answers until the model is ready
+     */
     private void initializeTensorFlowModel() {
-        synchronized(modelLock) {
-            try {
-                if (modelManager.loadModel(currentModelName)) {
-                    modelLoaded = true;
+        String modelName = currentModelName;
+        modelManager.loadModelAsync(modelName).thenAccept(loaded -> {
+            synchronized(modelLock) {
+                if (!modelName.equals(currentModelName)) return;
+                modelLoaded = loaded;
+                if (loaded) {
                     Log.d(TAG, "TensorFlow Lite DQN model loaded successfully");
                 } else {
                     Log.w(TAG, "DQN model not found, using Q-table fallback");
-                    modelLoaded = false;
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "Error initializing TensorFlow model", e);
-                modelLoaded = false;
             }
-        }
+        });
     }
     
-    private void initializeQTable() {
-        synchronized(qTableLock) {
-            for (int i = 0; i < qTable.length; i++) {
-                for (int j = 0; j < actionSize; j++) {
-                    qTable[i][j] = random.nextFloat() * 0.1f; // Small random values
-                }
-            }
-        }
-    }
-    
-    /**
-     * Critical: Initialize target network for stable DQN learning
-     */
-    private void initializeTargetNetwork() {
-        synchronized(targetNetworkLock) {
-            targetQTable = new float[qTable.length][actionSize];
-            
-            // Copy initial weights from main network
-            for (int i = 0; i < qTable.length; i++) {
-                for (int j = 0; j < actionSize; j++) {
-                    targetQTable[i][j] = qTable[i][j];
-                }
-            }
-            
-            Log.d(TAG, "Target network initialized with copied weights");
+    private void initializeQNetwork(int[] hiddenLayers) {
+        synchronized(trainLock) {
+            QNetwork network = new QNetwork(stateSize, hiddenLayers, actionSize, TRAIN_BATCH_SIZE);
+            network.setLearningRate(learningRate);
+            network.setGradientClipNorm(MAX_GRADIENT_NORM);
+            network.setTargetSyncInterval(TARGET_NETWORK_UPDATE_FREQUENCY);
+
+            batchStates = new float[TRAIN_BATCH_SIZE * stateSize];
+            batchNextStates = new float[TRAIN_BATCH_SIZE * stateSize];
+            batchRewards = new float[TRAIN_BATCH_SIZE];
+            batchActions = new int[TRAIN_BATCH_SIZE];
+            batchDones = new boolean[TRAIN_BATCH_SIZE];
+            sampleBatch = new ReplayBuffer.SampleBatch(TRAIN_BATCH_SIZE, stateSize);
+            tdErrors = new float[TRAIN_BATCH_SIZE];
+            qNetwork = network;
+
+            Log.d(TAG, "Q-network initialized with " + network.getParameterCount() + " parameters");
         }
     }
     
@@ -206,26 +200,12 @@ public class DQNAgent {
         try {
             networkUpdateInProgress = true;
             
-            // Use double-checked locking for atomic operation
-            synchronized(targetNetworkLock) {
-                synchronized(qTableLock) {
-                    if (qTable != null && targetQTable != null) {
-                        // Atomic weight copying with validation
-                        for (int i = 0; i < Math.min(qTable.length, targetQTable.length); i++) {
-                            for (int j = 0; j < Math.min(actionSize, targetQTable[i].length); j++) {
-                                // Validate weight before copying
-                                if (!Float.isNaN(qTable[i][j]) && !Float.isInfinite(qTable[i][j])) {
-                                    targetQTable[i][j] = qTable[i][j];
-                                } else {
-                                    Log.w(TAG, "Invalid weight detected during sync, skipping");
-                                }
-                            }
-                        }
-                        
-                        updatesSinceTargetSync = 0;
-                        Log.d(TAG, "Target network synchronized atomically");
-                    }
-                }
+            // Weight arrays are copied under the network's own lock
+            QNetwork network = qNetwork;
+            if (network != null) {
+                network.syncTarget();
+                updatesSinceTargetSync = 0;
+                Log.d(TAG, "Target network synchronized atomically");
             }
             
         } catch (Exception e) {
@@ -235,49 +215,6 @@ public class DQNAgent {
         }
     }
     
-    /**
-     * Critical: Race condition safe Q-value computation using target network
-     */
-    private float getTargetQValue(int stateIndex, int action) {
-        synchronized(targetNetworkLock) {
-            try {
-                if (targetQTable != null && 
-                    stateIndex >= 0 && stateIndex < targetQTable.length &&
-                    action >= 0 && action < actionSize) {
-                    return targetQTable[stateIndex][action];
-                }
-            } catch (Exception e) {
-                Log.w(TAG, "Error accessing target Q-value", e);
-            }
-        }
-        return 0.0f; // Safe fallback
-    }
-    
-    /**
-     * Critical: Thread-safe target network max Q-value computation
-     */
-    private float getMaxTargetQValue(int stateIndex) {
-        synchronized(targetNetworkLock) {
-            try {
-                if (targetQTable != null && stateIndex >= 0 && stateIndex < targetQTable.length) {
-                    float maxQ = Float.NEGATIVE_INFINITY;
-                    
-                    for (int action = 0; action < actionSize; action++) {
-                        float qValue = targetQTable[stateIndex][action];
-                        if (!Float.isNaN(qValue) && !Float.isInfinite(qValue)) {
-                            maxQ = Math.max(maxQ, qValue);
-                        }
-                    }
-                    
-                    return maxQ == Float.NEGATIVE_INFINITY ? 0.0f : maxQ;
-                }
-            } catch (Exception e) {
-                Log.w(TAG, "Error computing max target Q-value", e);
-            }
-        }
-        return 0.0f;
-    }
-    
     // Thread-safe parameter setters for AIControlBridge
     public synchronized void setLearningRate(double rate) {
         this.learningRate = (float) rate;
@@ -296,8 +233,8 @@ public class DQNAgent {
                 modelLoaded = false;
             }
         }
-        synchronized(qTableLock) {
-            qTable = null;
+        synchronized(trainLock) {
+            qNetwork = null;
         }
         Log.d(TAG, "DQN Agent cleaned up");
     }
@@ -312,18 +249,18 @@ public class DQNAgent {
                     // Train TensorFlow Lite model with custom data
                     trainTensorFlowModel(state, action, reward);
                 } else {
-                    // Fallback to Q-table training
-                    synchronized(qTableLock) {
-                trainQTable(state, action, reward);
-            }
+                    // Fallback to Q-network training
+                    trainQNetwork(state, action, reward);
+                }
             
-            // Update performance metrics
+                // Update performance metrics
             updatePerformanceMetrics(reward);
             
-            Log.d(TAG, "Trained DQN with custom data - Action: " + action + ", Reward: " + reward);
+                Log.d(TAG, "Trained DQN with custom data - Action: " + action + ", Reward: " + reward);
             
-        } catch (Exception e) {
-            Log.e(TAG, "Error training with custom data", e);
+            } catch (Exception e) {
+                Log.e(TAG, "Error training with custom data", e);
+            }
         }
     }
     
@@ -349,39 +286,30 @@ public class DQNAgent {
     }
     
     /**
-     * Fallback Q-table training when TensorFlow model unavailable with gradient explosion prevention
+     * Fallback Q-network training when TensorFlow model unavailable with gradient explosion prevention.
+     * Labeled samples are stored as terminal transitions and trained on in minibatches.
      */
-    private void trainQTable(float[] state, int action, float reward) {
+    private void trainQNetwork(float[] state, int action, float reward) {
         if (emergencyStop.get()) {
             Log.w(TAG, "Training blocked due to emergency stop from gradient explosion");
             return;
         }
+        if (action < 0 || action >= actionSize) {
+            return;
+        }
         
-        int stateIndex = hashState(state);
-        if (stateIndex >= 0 && stateIndex < qTable.length && action >= 0 && action < actionSize) {
-            float oldValue = qTable[stateIndex][action];
-            float maxNextQ = getMaxQValue(stateIndex);
-            
-            // Calculate gradient with explosion prevention
-            float gradient = reward + gamma * maxNextQ - oldValue;
-            float clippedGradient = clipGradient(gradient);
-            
-            // Check for gradient explosion
-            if (detectGradientExplosion(clippedGradient)) {
-                Log.w(TAG, "Gradient explosion detected, applying emergency measures");
-                handleGradientExplosion();
-                return;
-            }
-            
-            // Apply adaptive learning rate
-            float effectiveLearningRate = getAdaptiveLearningRate(clippedGradient);
-            
-            // Q-learning update rule with gradient clipping
-            qTable[stateIndex][action] = oldValue + effectiveLearningRate * clippedGradient;
-            
-            // Update gradient tracking
-            updateGradientStatistics(clippedGradient);
+        addExperienceToBufferSafe(state, action, reward, state, true);
+        float loss = trainStep();
+        
+        // Check for gradient explosion
+        if (detectGradientExplosion(loss)) {
+            Log.w(TAG, "Gradient explosion detected, applying emergency measures");
+            handleGradientExplosion();
+            return;
         }
+        
+        // Update gradient tracking
+        updateGradientStatistics(loss);
     }
     
     private float clipGradient(float gradient) {
@@ -487,88 +415,14 @@ public class DQNAgent {
         return max;
     }
     
-    private float getMaxQValue(int stateIndex) {
-        float max = Float.NEGATIVE_INFINITY;
-        for (int i = 0; i < actionSize; i++) {
-            max = Math.max(max, qTable[stateIndex][i]);
-        }
-        return max;
-    }
-    
-    /**
-     * Critical: Buffer corruption detection and recovery
-     */
-    private void validateReplayBufferIntegrity() {
-        synchronized (bufferLock) {
-            if (bufferCorrupted) {
-                Log.w(TAG, "Buffer corruption detected, performing recovery");
-                performBufferRecovery();
-                bufferCorrupted = false;
-            }
-            
-            // Verify buffer size consistency
-            int actualSize = 0;
-            for (Experience exp : replayBuffer) {
-                if (exp != null) actualSize++;
-            }
-            
-            if (actualSize != bufferSize.get()) {
-                Log.w(TAG, "Buffer size inconsistency detected: expected=" + bufferSize.get() + ", actual=" + actualSize);
-                bufferSize.set(actualSize);
-                bufferModificationCount.incrementAndGet();
-            }
-        }
-    }
-    
-    private void performBufferRecovery() {
-        // Clear corrupted buffer and reinitialize
-        replayBuffer.clear();
-        bufferSize.set(0);
-        bufferModificationCount.incrementAndGet();
-        Log.i(TAG, "Replay buffer recovery completed");
-    }
-    
-    private void addExperienceWithValidation(Experience experience) {
-        synchronized (bufferLock) {
-            try {
-                // Check for buffer overflow
-                if (bufferSize.get() >= MAX_REPLAY_BUFFER_SIZE) {
-                    // Remove oldest experience
-                    Experience removed = replayBuffer.poll();
-                    if (removed != null) {
-                        bufferSize.decrementAndGet();
-                    }
-                }
-                
-                // Validate experience data
-                if (experience != null && isValidExperience(experience)) {
-                    replayBuffer.offer(experience);
-                    bufferSize.incrementAndGet();
-                    bufferModificationCount.incrementAndGet();
-                } else {
-                    Log.w(TAG, "Invalid experience rejected from buffer");
-                }
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error adding experience to buffer", e);
-                bufferCorrupted = true;
-            }
-        }
-    }
-    
-    private boolean isValidExperience(Experience experience) {
-        return experience.state != null && 
-               experience.action != null && 
-               !Float.isNaN(experience.reward) && 
-               !Float.isInfinite(experience.reward);
-    }
-
     public int selectAction(float[] state) {
         try {
             if (modelLoaded && random.nextFloat() >= epsilon) {
                 // Use TensorFlow Lite model for action selection
-                float[] qValues = modelManager.runInference(currentModelName, state);
-                if (qValues != null && qValues.length > 0) {
+                float[] qValues = qValueScratch.get();
+                int count = modelManager.runInference(currentModelName, state, qValues);
+                if (count > 0) {
+                    Arrays.fill(qValues, count, qValues.length, Float.NEGATIVE_INFINITY);
                     return getMaxIndex(qValues);
                 }
             }
@@ -577,9 +431,9 @@ public class DQNAgent {
                 // Exploration: random action
                 return random.nextInt(actionSize);
             } else {
-                // Fallback to Q-table exploitation
-                int stateIndex = hashState(state);
-                return getBestAction(stateIndex);
+                // Fallback to Q-network exploitation
+                QNetwork network = qNetwork;
+                return network != null ? network.greedyAction(state) : random.nextInt(actionSize);
             }
         } catch (Exception e) {
             Log.e(TAG, "Error in action selection", e);
@@ -653,15 +507,19 @@ public class DQNAgent {
     
     private float[] getQValues(float[] state) {
         try {
+            float[] qValues = qValueScratch.get();
             if (modelLoaded && modelManager != null) {
-                return modelManager.runInference(currentModelName, state);
-            } else {
-                // Fallback to Q-table
-                int stateIndex = hashState(state);
-                if (stateIndex >= 0 && stateIndex < qTable.length) {
-                    return qTable[stateIndex].clone();
+                int count = modelManager.runInference(currentModelName, state, qValues);
+                if (count > 0) {
+                    return count == qValues.length ? qValues : Arrays.copyOf(qValues, count);
                 }
             }
+            // Fallback to Q-network
+            QNetwork network = qNetwork;
+            if (network != null) {
+                network.predict(state, qValues);
+                return qValues;
+            }
         } catch (Exception e) {
             Log.e(TAG, "Error getting Q-values", e);
         }
@@ -688,56 +546,65 @@ public class DQNAgent {
         return maxIndex;
     }
     
-    private int hashState(float[] state) {
-        // Simple state hashing for demonstration
-        int hash = 0;
-        for (float value : state) {
-            hash += (int) (value * 10);
+    /**
+     * One Double-DQN minibatch update from the prioritized replay buffer.
+     * Returns the mean Huber loss, or 0 when there is not enough experience yet.
+     */
+    public float trainStep() {
+        QNetwork network = qNetwork;
+        if (network == null || isDestroyed || emergencyStop.get()) {
+            return 0f;
         }
-        return Math.abs(hash) % qTable.length;
-    }
-    
-    private int getBestAction(int stateIndex) {
-        float maxQ = Float.NEGATIVE_INFINITY;
-        int bestAction = 0;
         
-        for (int action = 0; action < actionSize; action++) {
-            if (qTable[stateIndex][action] > maxQ) {
-                maxQ = qTable[stateIndex][action];
-                bestAction = action;
+        float loss;
+        synchronized(trainLock) {
+            if (replayBuffer.size() < TRAIN_BATCH_SIZE) {
+                return 0f;
             }
+            int count = replayBuffer.sample(TRAIN_BATCH_SIZE, sampleBatch);
+            
+            network.setLearningRate(adaptiveLearningRate);
+            loss = network.trainBatch(sampleBatch.states, sampleBatch.actions, sampleBatch.rewards,
+                    sampleBatch.nextStates, sampleBatch.dones, sampleBatch.weights, count, gamma);
+            updatesSinceTargetSync = (int) (network.getTrainSteps() % TARGET_NETWORK_UPDATE_FREQUENCY);
+            
+            // New priorities from the TD errors of this batch
+            network.copyTdErrors(tdErrors, count);
+            replayBuffer.updatePriorities(sampleBatch.indices, tdErrors, count);
         }
         
-        return bestAction;
-    }
-    
-    public float trainStep() {
-        // Simulate training step
-        float loss = 0.5f + (random.nextFloat() - 0.5f) * 0.1f;
-        
         // Update epsilon
         epsilon = Math.max(0.01f, epsilon * epsilonDecay);
         
-        // Update performance based on training
-        currentPerformance = Math.min(1.0f, currentPerformance + 0.001f);
-        
-        Log.d(TAG, "Training step completed. Loss: " + loss + ", Performance: " + currentPerformance);
+        Log.v(TAG, "Training step completed. Loss: " + loss);
         return loss;
     }
     
+    private void fillBatchSlot(int slot, float[] state, int action, float reward, float[] nextState, boolean done) {
+        int offset = slot * stateSize;
+        int length = Math.min(stateSize, state.length);
+        System.arraycopy(state, 0, batchStates, offset, length);
+        java.util.Arrays.fill(batchStates, offset + length, offset + stateSize, 0f);
+        length = Math.min(stateSize, nextState.length);
+        System.arraycopy(nextState, 0, batchNextStates, offset, length);
+        java.util.Arrays.fill(batchNextStates, offset + length, offset + stateSize, 0f);
+        batchActions[slot] = action;
+        batchRewards[slot] = reward;
+        batchDones[slot] = done;
+    }
+    
+    /**
+     * Single-transition online update through the Q-network
+     */
     public void updateQValue(float[] state, int action, float reward, float[] nextState) {
-        int stateIndex = hashState(state);
-        int nextStateIndex = hashState(nextState);
-        
-        float maxNextQ = Float.NEGATIVE_INFINITY;
-        for (int a = 0; a < actionSize; a++) {
-            maxNextQ = Math.max(maxNextQ, qTable[nextStateIndex][a]);
+        QNetwork network = qNetwork;
+        if (network == null || action < 0 || action >= actionSize) {
+            return;
+        }
+        synchronized(trainLock) {
+            fillBatchSlot(0, state, action, reward, nextState, false);
+            network.trainBatch(batchStates, batchActions, batchRewards, batchNextStates, batchDones, 1, gamma);
         }
-        
-        float target = reward + gamma * maxNextQ;
-        float currentQ = qTable[stateIndex][action];
-        
-        qTable[stateIndex][action] = currentQ + learningRate * (target - currentQ);
     }
     
     public float getPerformanceMetric() {
@@ -772,8 +639,8 @@ public class DQNAgent {
     
     public String getModelSummary() {
         return String.format(
-            "DQN Agent - State Size: %d, Action Size: %d, Performance: %.3f, Epsilon: %.3f",
-            stateSize, actionSize, currentPerformance, epsilon
+            "DQN Agent - State Size: %d, Action Size: %d, Parameters: %d, Performance: %.3f, Epsilon: %.3f",
+            stateSize, actionSize, qNetwork != null ? qNetwork.getParameterCount() : 0, currentPerformance, epsilon
         );
     }
     
@@ -810,6 +677,10 @@ public class DQNAgent {
      * Thread-safe experience buffer management to prevent memory corruption
      */
     private void addExperienceToBufferSafe(float[] state, int action, float reward, float[] nextState) {
+        addExperienceToBufferSafe(state, action, reward, nextState, false);
+    }
+    
+    private void addExperienceToBufferSafe(float[] state, int action, float reward, float[] nextState, boolean done) {
         if (isDestroyed) {
             return;
         }
@@ -821,27 +692,15 @@ public class DQNAgent {
                 return;
             }
             
-            // Check buffer size and enforce limits to prevent OOM
-            while (bufferSize.get() >= MAX_REPLAY_BUFFER_SIZE) {
-                Experience removed = replayBuffer.poll();
-                if (removed != null) {
-                    bufferSize.decrementAndGet();
-                } else {
-                    break; // Prevent infinite loop if buffer is somehow corrupted
-                }
+            if (Float.isNaN(reward) || Float.isInfinite(reward)) {
+                Log.w(TAG, "Invalid reward, skipping buffer addition");
+                return;
             }
             
-            // Create new experience with validation
-            if (state != null && nextState != null && action >= 0 && action < actionSize) {
-                Experience experience = new Experience(
-                    state.clone(), action, reward, nextState.clone(), false
-                );
-                
-                replayBuffer.offer(experience);
-                bufferSize.incrementAndGet();
-                
-                Log.v(TAG, "Added experience to buffer. Size: " + bufferSize.get());
-            }
+            // Copied into the buffer's preallocated storage; the ring overwrites the oldest entry
+            replayBuffer.add(state, action, reward, nextState, done);
+            
+            Log.v(TAG, "Added experience to buffer. Size: " + replayBuffer.size());
             
         } catch (Exception e) {
             Log.e(TAG, "Error adding experience to buffer", e);
@@ -855,59 +714,18 @@ public class DQNAgent {
         try {
             final int BATCH_SIZE = 32;
             
-            if (bufferSize.get() < BATCH_SIZE) {
+            if (replayBuffer.size() < BATCH_SIZE) {
                 return; // Not enough experiences for training
             }
             
-            // Sample random batch from replay buffer
-            List<Experience> batch = sampleRandomBatch(BATCH_SIZE);
-            
-            for (Experience exp : batch) {
-                if (exp != null) {
-                    // Update Q-values using the experience
-                    updateQValue(exp.getState(), exp.getAction(), exp.getReward(), exp.getNextState());
-                }
-            }
-            
-            // Update exploration rate
-            if (epsilon > minEpsilon) {
-                epsilon *= epsilonDecay;
-            }
+            // Minibatch update from the replay buffer
+            trainStep();
             
         } catch (Exception e) {
             Log.e(TAG, "Error in training step", e);
         }
     }
     
-    /**
-     * Sample random batch from experience replay buffer
-     */
-    private List<Experience> sampleRandomBatch(int batchSize) {
-        List<Experience> batch = new ArrayList<>();
-        List<Experience> bufferList = new ArrayList<>(replayBuffer);
-        
-        int availableSize = Math.min(batchSize, bufferList.size());
-        
-        for (int i = 0; i < availableSize; i++) {
-            int randomIndex = random.nextInt(bufferList.size());
-            batch.add(bufferList.get(randomIndex));
-        }
-        
-        return batch;
-            
-            // 5. Update Q-table with user guidance
-            updateQValue(state, action, reward, state);
-            
-            // 5. Store as positive example for future training
-            storeUserExample(state, action, reward, gameFrame.userExplanation);
-            
-            Log.d(TAG, "DQN training completed from user explanation");
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error training DQN from user explanation", e);
-        }
-    }
-    
     private float[] convertGameFrameToState(GameFrame gameFrame) {
         float[] stateArray = new float[stateSize];
         
@@ -1096,7 +914,7 @@ public class DQNAgent {
             
             // Train if we have enough experiences
             if (experiences.size() >= batchSize) {
-                trainNetworkND4J();
+                trainOnExperiences();
             }
             
             Log.d(TAG, "DQN training completed from user explanation");
@@ -1160,47 +978,15 @@ public class DQNAgent {
         return Math.max(-1.0f, Math.min(1.0f, reward));
     }
     
-    private void trainNetworkND4J() {
-        // Simplified training using ND4J operations
-        // In production, this would implement proper DQN loss calculation
-        
-        int trainBatchSize = Math.min(batchSize, experiences.size());
-        
-        for (int i = 0; i < trainBatchSize; i++) {
-            Experience exp = experiences.get(i);
-            
-            // Convert experience to ND4J tensors
-            INDArray stateTensor = Nd4j.create(exp.state);
-            INDArray targetTensor = Nd4j.create(new float[]{exp.reward});
-            
-            // Simplified Q-value update using ND4J
-            INDArray qValues = computeQValues(stateTensor);
-            qValues.putScalar(exp.action, exp.reward);
-            
-            // Update network weights (simplified)
-            updateNetworkWeights(stateTensor, qValues);
+    private void trainOnExperiences() {
+        // Move pending experiences into the replay buffer and run one minibatch update
+        for (Experience exp : experiences) {
+            addExperienceToBufferSafe(exp.state, exp.action, exp.reward, exp.nextState);
         }
-        
-        // Clear processed experiences
         experiences.clear();
         
-        Log.d(TAG, "Network updated using ND4J tensor operations");
-    }
-    
-    private INDArray computeQValues(INDArray state) {
-        // Simplified Q-value computation using ND4J
-        INDArray weights = Nd4j.randn(stateSize, actionSize).mul(0.01);
-        return state.reshape(1, stateSize).mmul(weights);
-    }
-    
-    private void updateNetworkWeights(INDArray state, INDArray targetQValues) {
-        // Simplified weight update using ND4J operations
-        // In production, this would implement proper gradient descent
-        
-        currentPerformance = Math.max(0.0f, Math.min(1.0f, 
-            currentPerformance + targetQValues.meanNumber().floatValue() * 0.01f));
-        
-        Log.d(TAG, "Network weights updated, performance: " + currentPerformance);
+        float loss = trainStep();
+        Log.d(TAG, "Q-network updated from user experiences, loss: " + loss);
     }
     
     public void setLearningRate(float learningRate) {
@@ -1215,9 +1001,11 @@ public class DQNAgent {
     
     public void resetWeights() {
         try {
-            // Reinitialize Q-network with random weights
-            qNetwork = createNeuralNetwork();
-            targetNetwork = createNeuralNetwork();
+            // Reinitialize Q-network with random weights; the target copy follows
+            QNetwork network = qNetwork;
+            if (network != null) {
+                network.resetWeights(System.nanoTime());
+            }
             Log.d(TAG, "Neural network weights reset");
         } catch (Exception e) {
             Log.e(TAG, "Error resetting weights", e);
@@ -1229,14 +1017,7 @@ public class DQNAgent {
      */
     private void addExperienceToBuffer(float[] state, int action, float reward, float[] nextState) {
         try {
-            // Create experience with cloned arrays to prevent reference corruption
-            Experience experience = new Experience(state.clone(), action, reward, nextState.clone());
-            
-            // Thread-safe addition with size bounds checking
-            while (replayBuffer.size() >= MAX_REPLAY_BUFFER_SIZE) {
-                replayBuffer.poll(); // Remove oldest experience
-            }
-            replayBuffer.offer(experience);
+            addExperienceToBufferSafe(state, action, reward, nextState);
             
             // Trigger replay training if buffer is sufficient
             if (replayBuffer.size() >= 32) {
@@ -1255,23 +1036,9 @@ public class DQNAgent {
         if (replayBuffer.size() < 32) return; // Minimum batch size
         
         try {
-            // Convert to array for safe sampling
-            Experience[] bufferArray = replayBuffer.toArray(new Experience[0]);
-            List<Experience> batch = new ArrayList<>();
-            
-            // Sample random experiences for training
-            for (int i = 0; i < Math.min(32, bufferArray.length); i++) {
-                int randomIndex = random.nextInt(bufferArray.length);
-                batch.add(bufferArray[randomIndex]);
-            }
-            
-            // Train on sampled batch with thread safety
-            synchronized (qTableLock) {
-                for (Experience exp : batch) {
-                    if (!isDestroyed) {
-                        updateQValue(exp.state, exp.action, exp.reward, exp.nextState);
-                    }
-                }
+            // Minibatch update; sampling happens inside trainStep
+            if (!isDestroyed) {
+                trainStep();
             }
             
         } catch (Exception e) {
@@ -1287,12 +1054,18 @@ public class DQNAgent {
         final int action;
         final float reward;
         final float[] nextState;
+        final boolean done;
         
         Experience(float[] state, int action, float reward, float[] nextState) {
+            this(state, action, reward, nextState, false);
+        }
+        
+        Experience(float[] state, int action, float reward, float[] nextState, boolean done) {
             this.state = state;
             this.action = action;
             this.reward = reward;
             this.nextState = nextState;
+            this.done = done;
         }
     }
 }
\ No newline at end of file
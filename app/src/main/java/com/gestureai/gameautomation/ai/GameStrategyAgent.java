@@ -33,6 +33,12 @@ public class GameStrategyAgent {
 
     private MultiLayerNetwork dqn;
     private ReplayBuffer replayBuffer;
+    private static final int TRAIN_BATCH_SIZE = 32;
+    private static final int REPLAY_CAPACITY = 10000;
+    private final ReplayBuffer.SampleBatch sampleBatch = new ReplayBuffer.SampleBatch(TRAIN_BATCH_SIZE, STATE_SIZE);
+    private final float[] tdErrors = new float[TRAIN_BATCH_SIZE];
+    private final float[] encodedState = new float[STATE_SIZE];
+    private final float[] encodedNextState = new float[STATE_SIZE];
     private volatile float epsilon = 0.3f; // Exploration rate
     private volatile float epsilonDecay = 0.995f;
     private volatile float minEpsilon = 0.01f;
@@ -50,7 +56,7 @@ public class GameStrategyAgent {
     private GameStrategyAgent(Context context) {
         this.context = context;
         initializeNetwork();
-        replayBuffer = new ReplayBuffer(10000);
+        replayBuffer = new ReplayBuffer(REPLAY_CAPACITY, STATE_SIZE);
         Log.d(TAG, "Universal Game Strategy Agent initialized");
     }
     
@@ -97,6 +103,13 @@ public class GameStrategyAgent {
         }
     }
 
+    /**
+     * Reseed exploration and tie-breaking so a recorded session replays identically
+     */
+    public void setRandomSeed(long seed) {
+        random.setSeed(seed);
+    }
+
     // Game-specific strategies
     public enum GameType { BATTLE_ROYALE, MOBA, FPS, STRATEGY, ARCADE }
 
@@ -671,7 +684,11 @@ public class GameStrategyAgent {
      */
     private INDArray gameStateToArray(UniversalGameState state) {
         float[] stateData = new float[STATE_SIZE];
+        encodeState(state, stateData);
+        return Nd4j.create(stateData).reshape(1, STATE_SIZE);
+    }
 
+    private void encodeState(UniversalGameState state, float[] stateData) {
         // Universal game state features - works for any game
         stateData[0] = state.playerX / 1080f; // Normalized player position
         stateData[1] = state.playerY / 1920f;
@@ -689,8 +706,6 @@ public class GameStrategyAgent {
         stateData[13] = state.difficultyLevel; // Current difficulty
         stateData[14] = state.powerUpActive ? 1f : 0f; // Power-up status
         stateData[15] = state.healthLevel; // Player health/lives
-
-        return Nd4j.create(stateData).reshape(1, STATE_SIZE);
     }
 
     /**
@@ -741,11 +756,14 @@ public class GameStrategyAgent {
     /**
      * Learn from game outcomes - universal learning system
      */
-    public void learnFromExperience(UniversalGameState previousState, GameAction action,
-                                    float reward, UniversalGameState newState, boolean gameOver) {
+    public synchronized void learnFromExperience(UniversalGameState previousState, GameAction action,
+                                                 float reward, UniversalGameState newState, boolean gameOver) {
 
         // Store experience in replay buffer
-        replayBuffer.addExperience(previousState, action, reward, newState, gameOver);
+        encodeState(previousState, encodedState);
+        encodeState(newState, encodedNextState);
+        replayBuffer.add(encodedState, getActionIndex(action.getActionType()), reward,
+                encodedNextState, gameOver);
 
         // Train network if enough experiences collected
         if (replayBuffer.size() > 32) {
@@ -761,37 +779,32 @@ public class GameStrategyAgent {
     }
 
     private void trainNetwork() {
-        // Sample batch of experiences for training
-        List<Experience> batch = replayBuffer.sampleBatch(32);
-
-        INDArray states = Nd4j.zeros(32, STATE_SIZE);
-        INDArray targets = Nd4j.zeros(32, ACTION_SIZE);
-
-        for (int i = 0; i < batch.size(); i++) {
-            Experience exp = batch.get(i);
-
-            INDArray state = gameStateToArray(exp.state);
-            INDArray nextState = gameStateToArray(exp.nextState);
+        // Prioritized batch of experiences from the shared replay buffer
+        int count = replayBuffer.sample(TRAIN_BATCH_SIZE, sampleBatch);
+        if (count < TRAIN_BATCH_SIZE) {
+            return;
+        }
 
-            states.putRow(i, state);
+        INDArray states = Nd4j.create(sampleBatch.states).reshape(TRAIN_BATCH_SIZE, STATE_SIZE);
+        INDArray nextStates = Nd4j.create(sampleBatch.nextStates).reshape(TRAIN_BATCH_SIZE, STATE_SIZE);
 
-            INDArray currentQ = dqn.output(state);
-            INDArray nextQ = dqn.output(nextState);
+        INDArray targets = dqn.output(states);
+        INDArray nextQ = dqn.output(nextStates);
 
-            float target = exp.reward;
-            if (!exp.gameOver) {
-                target += 0.95f * Nd4j.max(nextQ).getFloat(0); // Discount factor
+        for (int i = 0; i < count; i++) {
+            float target = sampleBatch.rewards[i];
+            if (!sampleBatch.dones[i]) {
+                target += 0.95f * nextQ.getRow(i).maxNumber().floatValue(); // Discount factor
             }
 
-            currentQ.putScalar(getActionIndex(exp.action.getActionType()), target);
-            targets.putRow(i, currentQ);
+            int action = sampleBatch.actions[i];
+            tdErrors[i] = target - targets.getFloat(i, action);
+            targets.putScalar(i, action, target);
         }
+        replayBuffer.updatePriorities(sampleBatch.indices, tdErrors, count);
 
         // Train the network
-        
-        /**
-         * CRITICAL: Update strategy with expert reasoning context
-         */
+        dqn.fit(states, targets);
     }
     
     public void updateStrategyWithReasoning(String why, String what, String how, String action) {
@@ -74,6 +74,14 @@ public class PPOAgent {
     private final List<Experience> experienceBuffer;
     private final Object bufferLock = new Object();
     private int bufferSize;
+
+    // Transitions live in the shared replay buffer; PPO is on-policy so it samples uniformly
+    private static final int TRAIN_BATCH_SIZE = 32;
+    private final ReplayBuffer replayBuffer;
+    private final ReplayBuffer.SampleBatch sampleBatch;
+    private final float[] sampleState;
+    private final float[] sampleNextState;
+    private final float[] sampleAdvantages = new float[TRAIN_BATCH_SIZE];
     
     public PPOAgent(int stateSize, int actionSize) {
         this.stateSize = stateSize;
@@ -90,6 +98,11 @@ public class PPOAgent {
         this.bufferSize = 2048;
         
         this.experienceBuffer = new ArrayList<>();
+        // On-policy: only this agent's recent transitions, dropped after each update
+        this.replayBuffer = new ReplayBuffer(bufferSize, stateSize);
+        this.sampleBatch = new ReplayBuffer.SampleBatch(TRAIN_BATCH_SIZE, stateSize);
+        this.sampleState = new float[stateSize];
+        this.sampleNextState = new float[stateSize];
         
         try {
             this.policyWeights = new float[stateSize][actionSize];
@@ -116,19 +129,20 @@ public class PPOAgent {
         Log.d(TAG, "PPO Agent initialized with TensorFlow Lite backend");
     }
     
+    /**
+     * Loads both models in the background; fallback networks answer until then
+     */
     private void initializeTensorFlowModels() {
-        try {
-            if (modelManager.loadModel(policyModelName) && modelManager.loadModel(valueModelName)) {
-                modelLoaded = true;
-                Log.d(TAG, "PPO TensorFlow Lite models loaded successfully");
-            } else {
-                Log.w(TAG, "PPO models not found, using fallback networks");
-                modelLoaded = false;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error initializing PPO TensorFlow models", e);
-            modelLoaded = false;
-        }
+        modelManager.loadModelAsync(policyModelName)
+            .thenCombine(modelManager.loadModelAsync(valueModelName), (policy, value) -> policy && value)
+            .thenAccept(loaded -> {
+                modelLoaded = loaded;
+                if (loaded) {
+                    Log.d(TAG, "PPO TensorFlow Lite models loaded successfully");
+                } else {
+                    Log.w(TAG, "PPO models not found, using fallback networks");
+                }
+            });
     }
     
     /**
@@ -478,23 +492,22 @@ public class PPOAgent {
     }
     
     public void addExperience(float[] state, int action, float reward, float[] nextState, boolean done) {
-        Experience exp = new Experience(state, action, reward, nextState, done);
-        experienceBuffer.add(exp);
-        
-        if (experienceBuffer.size() > bufferSize) {
-            experienceBuffer.remove(0);
-        }
+        replayBuffer.add(state, action, reward, nextState, done);
     }
     
-    public float trainStep() {
-        if (experienceBuffer.size() < 32) {
+    public synchronized float trainStep() {
+        if (replayBuffer.size() < TRAIN_BATCH_SIZE) {
             return 0.0f; // Not enough experience
         }
         
+        // One uniform batch shared by the policy and value updates
+        int count = replayBuffer.sampleUniform(TRAIN_BATCH_SIZE, sampleBatch);
+        
         // Compute advantages and update networks
-        computeAdvantages();
-        float policyLoss = updatePolicyNetwork();
-        float valueLoss = updateValueNetwork();
+        computeAdvantages(count);
+        float policyLoss = updatePolicyNetwork(count);
+        float valueLoss = updateValueNetwork(count);
+        replayBuffer.clear();
         
         // Update performance metric
         currentPerformance = Math.min(1.0f, currentPerformance + 0.0005f);
@@ -506,40 +519,42 @@ public class PPOAgent {
         return totalLoss;
     }
     
-    private void computeAdvantages() {
-        // Simplified advantage computation
-        for (int i = experienceBuffer.size() - 2; i >= 0; i--) {
-            Experience current = experienceBuffer.get(i);
-            Experience next = experienceBuffer.get(i + 1);
+    private void loadSample(int index) {
+        System.arraycopy(sampleBatch.states, index * stateSize, sampleState, 0, stateSize);
+        System.arraycopy(sampleBatch.nextStates, index * stateSize, sampleNextState, 0, stateSize);
+    }
+    
+    private void computeAdvantages(int count) {
+        // Simplified advantage computation: one-step TD error per sampled transition
+        for (int i = 0; i < count; i++) {
+            loadSample(i);
             
-            float value = computeValue(current.state);
-            float nextValue = current.done ? 0.0f : computeValue(next.state);
+            float value = computeValue(sampleState);
+            float nextValue = sampleBatch.dones[i] ? 0.0f : computeValue(sampleNextState);
             
-            float delta = current.reward + gamma * nextValue - value;
-            current.advantage = delta; // Simplified - should use GAE
+            float delta = sampleBatch.rewards[i] + gamma * nextValue - value;
+            sampleAdvantages[i] = delta; // Simplified - should use GAE
         }
     }
     
-    private float updatePolicyNetwork() {
+    private float updatePolicyNetwork(int count) {
         float totalLoss = 0.0f;
-        int batchSize = Math.min(32, experienceBuffer.size());
         
-        for (int i = 0; i < batchSize; i++) {
-            Experience exp = experienceBuffer.get(random.nextInt(experienceBuffer.size()));
-            
-            // Simplified policy gradient update
-            float[] actionProbs = computeActionProbabilities(exp.state);
-            float oldProb = actionProbs[exp.action];
+        for (int i = 0; i < count; i++) {
+            int action = sampleBatch.actions[i];
+            if (action < 0 || action >= actionSize) continue;
+            float advantage = sampleAdvantages[i];
+            int offset = i * stateSize;
             
             // Update policy weights (simplified)
-            for (int j = 0; j < Math.min(exp.state.length, stateSize); j++) {
-                policyWeights[j][exp.action] += learningRate * exp.advantage * exp.state[j];
+            for (int j = 0; j < stateSize; j++) {
+                policyWeights[j][action] += learningRate * advantage * sampleBatch.states[offset + j];
             }
             
-            totalLoss += Math.abs(exp.advantage);
+            totalLoss += Math.abs(advantage);
         }
         
-        return totalLoss / batchSize;
+        return count > 0 ? totalLoss / count : 0.0f;
     }
     
     /**
@@ -582,26 +597,25 @@ public class PPOAgent {
         }
     }
     
-    private float updateValueNetwork() {
+    private float updateValueNetwork(int count) {
         float totalLoss = 0.0f;
-        int batchSize = Math.min(32, experienceBuffer.size());
         
-        for (int i = 0; i < batchSize; i++) {
-            Experience exp = experienceBuffer.get(random.nextInt(experienceBuffer.size()));
+        for (int i = 0; i < count; i++) {
+            loadSample(i);
             
-            float predictedValue = computeValue(exp.state);
-            float targetValue = exp.reward + (exp.done ? 0.0f : gamma * computeValue(exp.nextState));
+            float predictedValue = computeValue(sampleState);
+            float targetValue = sampleBatch.rewards[i] + (sampleBatch.dones[i] ? 0.0f : gamma * computeValue(sampleNextState));
             float valueLoss = targetValue - predictedValue;
             
             // Update value weights (simplified)
-            for (int j = 0; j < Math.min(exp.state.length, stateSize); j++) {
-                valueWeights[j][0] += learningRate * valueLoss * exp.state[j];
+            for (int j = 0; j < stateSize; j++) {
+                valueWeights[j][0] += learningRate * valueLoss * sampleState[j];
             }
             
             totalLoss += Math.abs(valueLoss);
         }
         
-        return totalLoss / batchSize;
+        return count > 0 ? totalLoss / count : 0.0f;
     }
     
     public float getPerformanceMetric() {
@@ -617,13 +631,13 @@ public class PPOAgent {
     }
     
     public int getExperienceBufferSize() {
-        return experienceBuffer.size();
+        return replayBuffer.size();
     }
     
     public String getModelSummary() {
         return String.format(
             "PPO Agent - State Size: %d, Action Size: %d, Performance: %.3f, Experience: %d",
-            stateSize, actionSize, currentPerformance, experienceBuffer.size()
+            stateSize, actionSize, currentPerformance, replayBuffer.size()
         );
     }
     
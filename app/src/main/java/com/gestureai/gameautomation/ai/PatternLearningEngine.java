@@ -6,6 +6,9 @@ import android.graphics.Point;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
+import com.gestureai.gameautomation.database.AppDatabase;
+import com.gestureai.gameautomation.database.entities.GestureDataEntity;
+import com.gestureai.gameautomation.ml.TrajectoryClassifier;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -36,6 +39,9 @@ public class PatternLearningEngine {
     private final Object trainingDataLock = new Object();
     private List<TrainingExample> trainingData;
     private GestureClassifier classifier;
+    // Templates from stored touch paths; a fallback when the classifier is unsure
+    private final TrajectoryClassifier trajectoryClassifier = new TrajectoryClassifier();
+    private volatile boolean storedGesturesLoaded = false;
     
     // Critical: Feature extraction corruption prevention
     private volatile boolean featureExtractionCorrupted = false;
@@ -238,6 +244,76 @@ public class PatternLearningEngine {
         }
     }
     
+    /**
+     * Add a training example from an interleaved x,y trajectory, as decoded by
+     * TrajectoryCodec from the gesture_data table
+     */
+    public void addGestureExample(String gestureName, float[] trajectory, long timestamp) {
+        if (trajectory == null) return;
+        
+        List<Point> points = new ArrayList<>(trajectory.length / 2);
+        for (int i = 0; i + 1 < trajectory.length; i += 2) {
+            points.add(new Point(Math.round(trajectory[i]), Math.round(trajectory[i + 1])));
+        }
+        addGestureExample(gestureName, points, timestamp);
+    }
+    
+    /**
+     * Load labelled training gestures stored in the database. Trajectories are
+     * decoded from their binary columns directly into float arrays. Rows whose
+     * trajectory was synthesized by a migration are skipped.
+     */
+    public int loadStoredGestures(List<GestureDataEntity> gestures) {
+        int loaded = 0;
+        for (GestureDataEntity gesture : gestures) {
+            if (!gesture.hasRecordedTrajectory()) continue;
+            String label = gesture.trainingLabel != null ? gesture.trainingLabel : gesture.gestureType;
+            addGestureExample(label, gesture.decodeTrajectory(), gesture.timestamp);
+            loaded++;
+        }
+        int templated = trajectoryClassifier.train(gestures);
+        Log.d(TAG, "Loaded " + loaded + " stored gestures, " + trajectoryClassifier.getTemplateCount()
+                + " trajectory templates from " + templated);
+        return loaded;
+    }
+    
+    /**
+     * Load the gestures marked as training data in the database, once per
+     * engine, then run onLoaded on the main thread. The query runs on the
+     * engine's executor.
+     */
+    public void loadStoredTrainingGestures(Runnable onLoaded) {
+        if (isDestroyed) return;
+        if (storedGesturesLoaded) {
+            mainHandler.post(onLoaded);
+            return;
+        }
+        executorService.execute(() -> {
+            try {
+                if (!storedGesturesLoaded) {
+                    loadStoredGestures(AppDatabase.getInstance(context).gestureDataDao().getTrainingData());
+                    storedGesturesLoaded = true;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to load stored gestures", e);
+            }
+            Handler handler = mainHandler;
+            if (handler != null) {
+                handler.post(onLoaded);
+            }
+        });
+    }
+    
+    private TrajectoryClassifier.Match matchTemplate(List<Point> gesturePoints) {
+        if (!trajectoryClassifier.hasTemplates() || gesturePoints == null) return null;
+        float[] xy = new float[gesturePoints.size() * 2];
+        for (int i = 0; i < gesturePoints.size(); i++) {
+            xy[i * 2] = gesturePoints.get(i).x;
+            xy[i * 2 + 1] = gesturePoints.get(i).y;
+        }
+        return trajectoryClassifier.classify(xy, gesturePoints.size());
+    }
+    
     /**
      * Recognize gesture from input points
      */
@@ -252,9 +328,12 @@ public class PatternLearningEngine {
                 
                 // Classify gesture
                 ClassificationResult result = classifier.classify(features);
+                TrajectoryClassifier.Match match = result.confidence > 0.6f ? null : matchTemplate(gesturePoints);
                 
                 if (result.confidence > 0.6f) {
                     mainHandler.post(() -> callback.onGestureRecognized(result.gestureName, result.confidence));
+                } else if (match != null && match.confidence > 0.6f) {
+                    mainHandler.post(() -> callback.onGestureRecognized(match.label, match.confidence));
                 } else {
                     mainHandler.post(() -> callback.onNoGestureFound());
                 }
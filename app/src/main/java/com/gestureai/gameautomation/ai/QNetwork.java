@@ -0,0 +1,365 @@
+package com.gestureai.gameautomation.ai;
+
+import java.util.Random;
+
+/**
+ * Dense Q-function for DQNAgent.
+ * A ReLU MLP whose weights, gradients, Adam moments and per-layer activations
+ * live in flat float[] buffers sized once for the maximum batch, so a training
+ * step allocates nothing. Keeps a target copy of the weights and trains on
+ * Double-DQN targets with a Huber loss.
+ */
+public class QNetwork {
+
+    public enum Optimizer { SGD, ADAM }
+
+    private static final float ADAM_BETA1 = 0.9f;
+    private static final float ADAM_BETA2 = 0.999f;
+    private static final float ADAM_EPSILON = 1e-8f;
+    private static final float HUBER_DELTA = 1.0f;
+
+    private final int[] layerSizes;
+    private final int weightLayers;
+    private final int maxBatchSize;
+    private final int[] weightOffset;
+    private final int[] biasOffset;
+
+    // Parameters: all layers packed as [W0 | b0 | W1 | b1 | ...], W stored [in][out]
+    private final float[] params;
+    private final float[] targetParams;
+    private final float[] grads;
+    private final float[] adamM;
+    private final float[] adamV;
+
+    // Activations per layer for the batch; index 0 is the input
+    private final float[][] onlineActs;
+    private final float[][] onlineNextActs;
+    private final float[][] targetNextActs;
+    private final float[][] deltas;
+    private final float[] tdErrors;
+
+    // Single-sample buffers for action selection, separate from training
+    private final float[][] predictActs;
+    private final Object predictLock = new Object();
+
+    private Optimizer optimizer = Optimizer.ADAM;
+    private float learningRate = 0.001f;
+    private float gradientClipNorm = 10.0f;
+    private int targetSyncInterval = 500;
+    private long trainSteps = 0;
+    private float lastLoss = 0f;
+
+    public QNetwork(int inputSize, int[] hiddenSizes, int outputSize, int maxBatchSize) {
+        if (inputSize <= 0 || outputSize <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Network sizes must be positive");
+        }
+        this.layerSizes = new int[hiddenSizes.length + 2];
+        layerSizes[0] = inputSize;
+        System.arraycopy(hiddenSizes, 0, layerSizes, 1, hiddenSizes.length);
+        layerSizes[layerSizes.length - 1] = outputSize;
+        this.weightLayers = layerSizes.length - 1;
+        this.maxBatchSize = maxBatchSize;
+
+        weightOffset = new int[weightLayers];
+        biasOffset = new int[weightLayers];
+        int offset = 0;
+        for (int l = 0; l < weightLayers; l++) {
+            weightOffset[l] = offset;
+            offset += layerSizes[l] * layerSizes[l + 1];
+            biasOffset[l] = offset;
+            offset += layerSizes[l + 1];
+        }
+
+        params = new float[offset];
+        targetParams = new float[offset];
+        grads = new float[offset];
+        adamM = new float[offset];
+        adamV = new float[offset];
+
+        onlineActs = allocateActivations(maxBatchSize);
+        onlineNextActs = allocateActivations(maxBatchSize);
+        targetNextActs = allocateActivations(maxBatchSize);
+        deltas = allocateActivations(maxBatchSize);
+        predictActs = allocateActivations(1);
+        tdErrors = new float[maxBatchSize];
+
+        resetWeights(System.nanoTime());
+    }
+
+    private float[][] allocateActivations(int batch) {
+        float[][] acts = new float[layerSizes.length][];
+        for (int l = 0; l < layerSizes.length; l++) {
+            acts[l] = new float[batch * layerSizes[l]];
+        }
+        return acts;
+    }
+
+    /**
+     * He-initialize the online network and copy it into the target network
+     */
+    public synchronized void resetWeights(long seed) {
+        Random random = new Random(seed);
+        for (int l = 0; l < weightLayers; l++) {
+            int in = layerSizes[l];
+            int out = layerSizes[l + 1];
+            float scale = (float) Math.sqrt(2.0 / in);
+            for (int i = weightOffset[l]; i < weightOffset[l] + in * out; i++) {
+                params[i] = (float) random.nextGaussian() * scale;
+            }
+            for (int i = biasOffset[l]; i < biasOffset[l] + out; i++) {
+                params[i] = 0f;
+            }
+        }
+        java.util.Arrays.fill(adamM, 0f);
+        java.util.Arrays.fill(adamV, 0f);
+        trainSteps = 0;
+        syncTarget();
+    }
+
+    /**
+     * Q-values for one state. Reads the live weights without waiting for a
+     * training step, so it can run on the capture/decision thread.
+     */
+    public void predict(float[] state, float[] qOut) {
+        synchronized (predictLock) {
+            System.arraycopy(state, 0, predictActs[0], 0, layerSizes[0]);
+            forward(params, predictActs, 1);
+            System.arraycopy(predictActs[weightLayers], 0, qOut, 0, getOutputSize());
+        }
+    }
+
+    public int greedyAction(float[] state) {
+        synchronized (predictLock) {
+            System.arraycopy(state, 0, predictActs[0], 0, layerSizes[0]);
+            forward(params, predictActs, 1);
+            return argmax(predictActs[weightLayers], 0, getOutputSize());
+        }
+    }
+
+    /**
+     * One minibatch update on Double-DQN targets:
+     * y = r + gamma * Q_target(s', argmax_a Q_online(s', a)) for non-terminal s'.
+     * States are packed row-major [batch][inputSize]. Returns the mean Huber loss.
+     */
+    public synchronized float trainBatch(float[] states, int[] actions, float[] rewards,
+                                         float[] nextStates, boolean[] dones,
+                                         int batchSize, float gamma) {
+        return trainBatch(states, actions, rewards, nextStates, dones, null, batchSize, gamma);
+    }
+
+    /**
+     * Same as above with optional per-sample importance weights (prioritized replay)
+     */
+    public synchronized float trainBatch(float[] states, int[] actions, float[] rewards,
+                                         float[] nextStates, boolean[] dones, float[] sampleWeights,
+                                         int batchSize, float gamma) {
+        if (batchSize <= 0 || batchSize > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size must be in 1.." + maxBatchSize);
+        }
+        int in = layerSizes[0];
+        int out = getOutputSize();
+
+        System.arraycopy(states, 0, onlineActs[0], 0, batchSize * in);
+        System.arraycopy(nextStates, 0, onlineNextActs[0], 0, batchSize * in);
+        System.arraycopy(nextStates, 0, targetNextActs[0], 0, batchSize * in);
+
+        forward(params, onlineActs, batchSize);
+        forward(params, onlineNextActs, batchSize);
+        forward(targetParams, targetNextActs, batchSize);
+
+        float[] q = onlineActs[weightLayers];
+        float[] qNextOnline = onlineNextActs[weightLayers];
+        float[] qNextTarget = targetNextActs[weightLayers];
+        float[] outDelta = deltas[weightLayers];
+        java.util.Arrays.fill(outDelta, 0, batchSize * out, 0f);
+
+        float loss = 0f;
+        float invBatch = 1f / batchSize;
+        for (int b = 0; b < batchSize; b++) {
+            int row = b * out;
+            float target = rewards[b];
+            if (!dones[b]) {
+                int bestNext = argmax(qNextOnline, row, out);
+                target += gamma * qNextTarget[row + bestNext];
+            }
+            int action = actions[b];
+            float error = q[row + action] - target;
+            tdErrors[b] = error;
+
+            float weight = sampleWeights != null ? sampleWeights[b] : 1f;
+            float absError = Math.abs(error);
+            if (absError <= HUBER_DELTA) {
+                loss += weight * 0.5f * error * error;
+                outDelta[row + action] = weight * error * invBatch;
+            } else {
+                loss += weight * HUBER_DELTA * (absError - 0.5f * HUBER_DELTA);
+                outDelta[row + action] = weight * HUBER_DELTA * Math.signum(error) * invBatch;
+            }
+        }
+
+        backward(batchSize);
+        applyGradients();
+
+        trainSteps++;
+        if (targetSyncInterval > 0 && trainSteps % targetSyncInterval == 0) {
+            syncTarget();
+        }
+
+        lastLoss = loss * invBatch;
+        return lastLoss;
+    }
+
+    private void forward(float[] weights, float[][] acts, int batchSize) {
+        for (int l = 0; l < weightLayers; l++) {
+            int in = layerSizes[l];
+            int out = layerSizes[l + 1];
+            int wOff = weightOffset[l];
+            int bOff = biasOffset[l];
+            float[] input = acts[l];
+            float[] output = acts[l + 1];
+            boolean relu = l < weightLayers - 1;
+
+            for (int b = 0; b < batchSize; b++) {
+                int inRow = b * in;
+                int outRow = b * out;
+                System.arraycopy(weights, bOff, output, outRow, out);
+                for (int i = 0; i < in; i++) {
+                    float a = input[inRow + i];
+                    if (a == 0f) continue;
+                    int w = wOff + i * out;
+                    for (int j = 0; j < out; j++) {
+                        output[outRow + j] += a * weights[w + j];
+                    }
+                }
+                if (relu) {
+                    for (int j = 0; j < out; j++) {
+                        if (output[outRow + j] < 0f) output[outRow + j] = 0f;
+                    }
+                }
+            }
+        }
+    }
+
+    private void backward(int batchSize) {
+        java.util.Arrays.fill(grads, 0f);
+
+        for (int l = weightLayers - 1; l >= 0; l--) {
+            int in = layerSizes[l];
+            int out = layerSizes[l + 1];
+            int wOff = weightOffset[l];
+            int bOff = biasOffset[l];
+            float[] input = onlineActs[l];
+            float[] delta = deltas[l + 1];
+            float[] prevDelta = deltas[l];
+            boolean propagate = l > 0;
+
+            for (int b = 0; b < batchSize; b++) {
+                int inRow = b * in;
+                int outRow = b * out;
+                for (int j = 0; j < out; j++) {
+                    grads[bOff + j] += delta[outRow + j];
+                }
+                for (int i = 0; i < in; i++) {
+                    float a = input[inRow + i];
+                    if (a == 0f) {
+                        // Inactive ReLU unit: no weight gradient and nothing to propagate
+                        if (propagate) prevDelta[inRow + i] = 0f;
+                        continue;
+                    }
+                    int w = wOff + i * out;
+                    float back = 0f;
+                    for (int j = 0; j < out; j++) {
+                        float d = delta[outRow + j];
+                        grads[w + j] += a * d;
+                        back += params[w + j] * d;
+                    }
+                    if (propagate) {
+                        prevDelta[inRow + i] = back;
+                    }
+                }
+            }
+        }
+    }
+
+    private void applyGradients() {
+        float norm = 0f;
+        for (float g : grads) {
+            norm += g * g;
+        }
+        norm = (float) Math.sqrt(norm);
+        float clip = gradientClipNorm > 0f && norm > gradientClipNorm ? gradientClipNorm / norm : 1f;
+
+        if (optimizer == Optimizer.SGD) {
+            float step = learningRate * clip;
+            for (int i = 0; i < params.length; i++) {
+                params[i] -= step * grads[i];
+            }
+            return;
+        }
+
+        long t = trainSteps + 1;
+        float correction1 = 1f - (float) Math.pow(ADAM_BETA1, t);
+        float correction2 = 1f - (float) Math.pow(ADAM_BETA2, t);
+        float step = learningRate * (float) Math.sqrt(correction2) / correction1;
+        for (int i = 0; i < params.length; i++) {
+            float g = grads[i] * clip;
+            float m = adamM[i] = ADAM_BETA1 * adamM[i] + (1f - ADAM_BETA1) * g;
+            float v = adamV[i] = ADAM_BETA2 * adamV[i] + (1f - ADAM_BETA2) * g * g;
+            params[i] -= step * m / ((float) Math.sqrt(v) + ADAM_EPSILON);
+        }
+    }
+
+    private static int argmax(float[] values, int offset, int length) {
+        int best = 0;
+        float bestValue = values[offset];
+        for (int i = 1; i < length; i++) {
+            if (values[offset + i] > bestValue) {
+                bestValue = values[offset + i];
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Copy online weights into the target network
+     */
+    public synchronized void syncTarget() {
+        System.arraycopy(params, 0, targetParams, 0, params.length);
+    }
+
+    /**
+     * TD error of sample i from the last trainBatch call, for priority updates
+     */
+    public synchronized float getTdError(int i) {
+        return tdErrors[i];
+    }
+
+    public synchronized void copyTdErrors(float[] dst, int count) {
+        System.arraycopy(tdErrors, 0, dst, 0, count);
+    }
+
+    public synchronized void copyParameters(float[] dst) {
+        System.arraycopy(params, 0, dst, 0, params.length);
+    }
+
+    public synchronized void loadParameters(float[] src) {
+        if (src.length != params.length) {
+            throw new IllegalArgumentException("Expected " + params.length + " parameters, got " + src.length);
+        }
+        System.arraycopy(src, 0, params, 0, params.length);
+        syncTarget();
+    }
+
+    public synchronized void setOptimizer(Optimizer optimizer) { this.optimizer = optimizer; }
+    public synchronized void setLearningRate(float learningRate) { this.learningRate = learningRate; }
+    public synchronized void setGradientClipNorm(float clipNorm) { this.gradientClipNorm = clipNorm; }
+    public synchronized void setTargetSyncInterval(int steps) { this.targetSyncInterval = Math.max(0, steps); }
+
+    public int getInputSize() { return layerSizes[0]; }
+    public int getOutputSize() { return layerSizes[layerSizes.length - 1]; }
+    public int getMaxBatchSize() { return maxBatchSize; }
+    public int getParameterCount() { return params.length; }
+    public synchronized long getTrainSteps() { return trainSteps; }
+    public synchronized float getLastLoss() { return lastLoss; }
+}
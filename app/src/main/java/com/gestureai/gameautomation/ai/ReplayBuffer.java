@@ -1,219 +1,329 @@
 package com.gestureai.gameautomation.ai;
 
-import com.gestureai.gameautomation.GameAction;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.lang.ref.WeakReference;
 
+/**
+ * Prioritized experience replay for one RL agent.
+ * Transitions are stored struct-of-arrays in preallocated primitive storage
+ * (states optionally off-heap), so adding and sampling create no garbage.
+ * A sum-tree gives O(log n) proportional sampling and priority updates; a
+ * parallel min-tree bounds the importance-sampling weights.
+ *
+ * Priorities and action indices are only meaningful to the agent that wrote
+ * them, so every agent owns its buffer. Adds, samples and priority updates
+ * all take one short lock; a batch-32 sample holds it for microseconds.
+ */
 public class ReplayBuffer {
-    private final Experience[] circularBuffer; // Fixed-size circular buffer to prevent fragmentation
-    private final int maxSize;
-    private final AtomicInteger writeIndex = new AtomicInteger(0);
-    private final AtomicInteger currentSize = new AtomicInteger(0);
-    private final Random random;
-    
-    // Memory management and fragmentation prevention
-    private final AtomicLong totalMemoryUsed = new AtomicLong(0);
-    private final AtomicInteger compactionCount = new AtomicInteger(0);
-    private volatile long lastCompactionTime = 0;
-    private static final long COMPACTION_INTERVAL = 300000; // 5 minutes
-    private static final long MAX_MEMORY_PER_EXPERIENCE = 1024; // 1KB estimate
-    private static final double FRAGMENTATION_THRESHOLD = 0.7;
-    
-    // Memory pool for experience objects to reduce allocation overhead
-    private final java.util.concurrent.ConcurrentLinkedQueue<Experience> experiencePool = new java.util.concurrent.ConcurrentLinkedQueue<>();
-    private final AtomicInteger poolSize = new AtomicInteger(0);
-    private static final int MAX_POOL_SIZE = 1000;
-
-    public ReplayBuffer(int maxSize) {
-        this.maxSize = maxSize;
-        this.circularBuffer = new Experience[maxSize]; // Pre-allocated array
-        this.random = new Random();
-        
-        // Pre-populate experience pool
-        initializeExperiencePool();
-    }
-
-    private void initializeExperiencePool() {
-        // Pre-create experience objects to reduce GC pressure
-        for (int i = 0; i < Math.min(MAX_POOL_SIZE, maxSize / 4); i++) {
-            experiencePool.offer(new Experience(null, null, 0.0f, null, false));
-            poolSize.incrementAndGet();
-        }
-    }
-    
-    private Experience getPooledExperience() {
-        Experience pooled = experiencePool.poll();
-        if (pooled != null) {
-            poolSize.decrementAndGet();
-            return pooled;
-        }
-        return new Experience(null, null, 0.0f, null, false);
-    }
-    
-    private void returnToPool(Experience experience) {
-        if (poolSize.get() < MAX_POOL_SIZE && experience != null) {
-            // Clear references to prevent memory leaks
-            experience.state = null;
-            experience.action = null;
-            experience.nextState = null;
-            experience.reward = 0.0f;
-            experience.gameOver = false;
-            
-            experiencePool.offer(experience);
-            poolSize.incrementAndGet();
-        }
-    }
-
-    public void addExperience(GameStrategyAgent.UniversalGameState state, GameAction action, 
-                             float reward, GameStrategyAgent.UniversalGameState nextState, boolean gameOver) {
-        
-        // Check for memory pressure before adding
-        if (shouldPerformMemoryCompaction()) {
-            performMemoryCompaction();
-        }
-        
-        // Get experience object from pool or create new
-        Experience experience = getPooledExperience();
-        experience.state = state;
-        experience.action = action;
-        experience.reward = reward;
-        experience.nextState = nextState;
-        experience.gameOver = gameOver;
-        
-        // Use circular buffer to prevent array shifts and fragmentation
-        int index = writeIndex.getAndIncrement() % maxSize;
-        
-        // Return old experience to pool if overwriting
-        Experience oldExperience = circularBuffer[index];
-        if (oldExperience != null) {
-            returnToPool(oldExperience);
-            totalMemoryUsed.addAndGet(-MAX_MEMORY_PER_EXPERIENCE);
-        } else {
-            // Only increment size if we're not overwriting
-            currentSize.set(Math.min(currentSize.get() + 1, maxSize));
-        }
-        
-        circularBuffer[index] = experience;
-        totalMemoryUsed.addAndGet(MAX_MEMORY_PER_EXPERIENCE);
-    }
-
-    private boolean shouldPerformMemoryCompaction() {
-        long currentTime = System.currentTimeMillis();
-        return (currentTime - lastCompactionTime) > COMPACTION_INTERVAL ||
-               (totalMemoryUsed.get() > maxSize * MAX_MEMORY_PER_EXPERIENCE * FRAGMENTATION_THRESHOLD);
-    }
-    
-    private void performMemoryCompaction() {
-        synchronized (this) {
-            long startTime = System.currentTimeMillis();
-            int compactedCount = 0;
-            
-            // Compact the circular buffer by removing null references
-            for (int i = 0; i < maxSize; i++) {
-                if (circularBuffer[i] != null) {
-                    // Check if experience is still valid
-                    Experience exp = circularBuffer[i];
-                    if (exp.state == null && exp.action == null) {
-                        returnToPool(exp);
-                        circularBuffer[i] = null;
-                        compactedCount++;
-                    }
-                }
+    private static final float PRIORITY_EPSILON = 1e-3f;
+
+    private final int capacity;
+    private final int stateSize;
+    private final int treeCapacity;
+
+    // Struct-of-arrays transition storage
+    private final FloatBuffer states;
+    private final FloatBuffer nextStates;
+    private final int[] actions;
+    private final float[] rewards;
+    private final boolean[] dones;
+
+    // Sum-tree and min-tree over leaf priorities (already raised to alpha)
+    private final double[] sumTree;
+    private final double[] minTree;
+    private final Object lock = new Object();
+
+    // Guarded by lock; volatile so the getters can read without it
+    private volatile int size = 0;
+    private int writeIndex = 0;
+    private volatile float maxPriority = 1.0f;
+
+    private volatile float alpha = 0.6f;
+    private volatile float beta = 0.4f;
+    private volatile float betaIncrement = 1e-5f;
+    private volatile long totalAdded = 0;
+
+    public ReplayBuffer(int capacity, int stateSize) {
+        this(capacity, stateSize, false);
+    }
+
+    /**
+     * @param offHeap keep state vectors in direct memory instead of the Java heap
+     */
+    public ReplayBuffer(int capacity, int stateSize, boolean offHeap) {
+        if (capacity <= 0 || stateSize <= 0) {
+            throw new IllegalArgumentException("Capacity and state size must be positive");
+        }
+        this.capacity = capacity;
+        this.stateSize = stateSize;
+
+        int leaves = 1;
+        while (leaves < capacity) {
+            leaves <<= 1;
+        }
+        this.treeCapacity = leaves;
+
+        this.states = allocateStates(capacity * stateSize, offHeap);
+        this.nextStates = allocateStates(capacity * stateSize, offHeap);
+        this.actions = new int[capacity];
+        this.rewards = new float[capacity];
+        this.dones = new boolean[capacity];
+        this.sumTree = new double[2 * treeCapacity];
+        this.minTree = new double[2 * treeCapacity];
+        java.util.Arrays.fill(minTree, Double.POSITIVE_INFINITY);
+    }
+
+    private static FloatBuffer allocateStates(int floats, boolean offHeap) {
+        if (offHeap) {
+            return ByteBuffer.allocateDirect(floats * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+        return FloatBuffer.wrap(new float[floats]);
+    }
+
+    /**
+     * Destination for sampled transitions; allocate once per learner and reuse
+     */
+    public static class SampleBatch {
+        public final float[] states;
+        public final float[] nextStates;
+        public final int[] actions;
+        public final float[] rewards;
+        public final boolean[] dones;
+        public final float[] weights;
+        public final int[] indices;
+        public final int maxBatchSize;
+        public int size;
+        private final Random random = new Random();
+
+        public SampleBatch(int maxBatchSize, int stateSize) {
+            this.maxBatchSize = maxBatchSize;
+            this.states = new float[maxBatchSize * stateSize];
+            this.nextStates = new float[maxBatchSize * stateSize];
+            this.actions = new int[maxBatchSize];
+            this.rewards = new float[maxBatchSize];
+            this.dones = new boolean[maxBatchSize];
+            this.weights = new float[maxBatchSize];
+            this.indices = new int[maxBatchSize];
+        }
+    }
+
+    /**
+     * Store a transition with the current max priority. State arrays shorter
+     * than the buffer's state size are zero padded.
+     */
+    public void add(float[] state, int action, float reward, float[] nextState, boolean done) {
+        synchronized (lock) {
+            int slot = writeIndex;
+            writeIndex = (writeIndex + 1) % capacity;
+
+            int offset = slot * stateSize;
+            writeState(states, offset, state);
+            writeState(nextStates, offset, nextState);
+            actions[slot] = action;
+            rewards[slot] = reward;
+            dones[slot] = done;
+
+            setTreePriority(slot, (float) Math.pow(maxPriority, alpha));
+            if (size < capacity) {
+                size++;
+            }
+            totalAdded++;
+        }
+    }
+
+    private void writeState(FloatBuffer target, int offset, float[] state) {
+        int length = Math.min(stateSize, state != null ? state.length : 0);
+        for (int i = 0; i < length; i++) {
+            target.put(offset + i, state[i]);
+        }
+        for (int i = length; i < stateSize; i++) {
+            target.put(offset + i, 0f);
+        }
+    }
+
+    /**
+     * Proportional prioritized sample with importance-sampling weights
+     * normalized to a maximum of 1. Returns the number of transitions written.
+     */
+    public int sample(int batchSize, SampleBatch out) {
+        int count = Math.min(batchSize, out.maxBatchSize);
+        synchronized (lock) {
+            int available = size;
+            if (available == 0 || count <= 0) {
+                out.size = 0;
+                return 0;
             }
-            
-            lastCompactionTime = startTime;
-            compactionCount.incrementAndGet();
-            
-            // Force garbage collection if significant compaction occurred
-            if (compactedCount > maxSize * 0.1) {
-                System.gc();
+
+            double total = sumTree[1];
+            if (total <= 0) {
+                return sampleUniformLocked(count, available, out);
+            }
+
+            float sampleBeta = beta;
+            double minProbability = minTree[1] / total;
+            double maxWeight = Math.pow(available * minProbability, -sampleBeta);
+            double segment = total / count;
+
+            for (int b = 0; b < count; b++) {
+                double target = (b + out.random.nextDouble()) * segment;
+                int slot = findSlot(target);
+                if (slot >= available) {
+                    slot = out.random.nextInt(available);
+                }
+                copyTransition(slot, b, out);
+
+                double probability = sumTree[treeCapacity + slot] / total;
+                double weight = probability > 0 ? Math.pow(available * probability, -sampleBeta) : maxWeight;
+                out.weights[b] = (float) (maxWeight > 0 ? weight / maxWeight : 1.0);
             }
-            
-            android.util.Log.d("ReplayBuffer", "Memory compaction completed: " + compactedCount + 
-                              " experiences compacted in " + (System.currentTimeMillis() - startTime) + "ms");
-        }
-    }
-
-    public List<Experience> sampleBatch(int batchSize) {
-        List<Experience> batch = new ArrayList<>(batchSize);
-        int actualSize = currentSize.get();
-        
-        if (actualSize == 0) {
-            return batch;
-        }
-        
-        int samplesToTake = Math.min(batchSize, actualSize);
-        
-        // Use reservoir sampling for better distribution
-        for (int i = 0; i < samplesToTake; i++) {
-            Experience sample = getValidExperience();
-            if (sample != null) {
-                batch.add(sample);
+
+            beta = Math.min(1.0f, sampleBeta + betaIncrement);
+            out.size = count;
+            return count;
+        }
+    }
+
+    /**
+     * Uniform sample ignoring priorities, for on-policy style learners
+     */
+    public int sampleUniform(int batchSize, SampleBatch out) {
+        int count = Math.min(batchSize, out.maxBatchSize);
+        synchronized (lock) {
+            int available = size;
+            if (available == 0 || count <= 0) {
+                out.size = 0;
+                return 0;
             }
+            return sampleUniformLocked(count, available, out);
+        }
+    }
+
+    private int sampleUniformLocked(int count, int available, SampleBatch out) {
+        for (int b = 0; b < count; b++) {
+            copyTransition(out.random.nextInt(available), b, out);
+            out.weights[b] = 1.0f;
         }
-        
-        return batch;
-    }
-    
-    private Experience getValidExperience() {
-        int attempts = 0;
-        int maxAttempts = Math.min(currentSize.get() * 2, 100);
-        
-        while (attempts < maxAttempts) {
-            int randomIndex = random.nextInt(maxSize);
-            Experience exp = circularBuffer[randomIndex];
-            
-            if (exp != null && exp.state != null && exp.action != null) {
-                return exp;
+        out.size = count;
+        return count;
+    }
+
+    private int findSlot(double target) {
+        int node = 1;
+        while (node < treeCapacity) {
+            int left = node << 1;
+            if (target <= sumTree[left] || sumTree[left + 1] <= 0) {
+                node = left;
+            } else {
+                target -= sumTree[left];
+                node = left + 1;
             }
-            attempts++;
-        }
-        
-        // Fallback: linear search for any valid experience
-        for (int i = 0; i < maxSize; i++) {
-            Experience exp = circularBuffer[i];
-            if (exp != null && exp.state != null && exp.action != null) {
-                return exp;
+        }
+        return node - treeCapacity;
+    }
+
+    private void copyTransition(int slot, int b, SampleBatch out) {
+        int src = slot * stateSize;
+        int dst = b * stateSize;
+        for (int i = 0; i < stateSize; i++) {
+            out.states[dst + i] = states.get(src + i);
+            out.nextStates[dst + i] = nextStates.get(src + i);
+        }
+        out.actions[b] = actions[slot];
+        out.rewards[b] = rewards[slot];
+        out.dones[b] = dones[slot];
+        out.indices[b] = slot;
+    }
+
+    /**
+     * Set new priorities from absolute TD errors of a sampled batch
+     */
+    public void updatePriorities(int[] indices, float[] tdErrors, int count) {
+        synchronized (lock) {
+            for (int i = 0; i < count; i++) {
+                updatePriorityLocked(indices[i], tdErrors[i]);
             }
         }
-        
-        return null;
     }
 
-    public int size() {
-        return currentSize.get();
+    public void updatePriority(int index, float tdError) {
+        synchronized (lock) {
+            updatePriorityLocked(index, tdError);
+        }
+    }
+
+    private void updatePriorityLocked(int index, float tdError) {
+        if (index < 0 || index >= size) {
+            return;
+        }
+        float priority = Math.abs(tdError) + PRIORITY_EPSILON;
+        if (priority > maxPriority) {
+            maxPriority = priority;
+        }
+        setTreePriority(index, (float) Math.pow(priority, alpha));
     }
-    
-    public long getMemoryUsage() {
-        return totalMemoryUsed.get();
+
+    private void setTreePriority(int slot, double value) {
+        int node = treeCapacity + slot;
+        sumTree[node] = value;
+        minTree[node] = value;
+        node >>= 1;
+        while (node >= 1) {
+            int left = node << 1;
+            sumTree[node] = sumTree[left] + sumTree[left + 1];
+            minTree[node] = Math.min(minTree[left], minTree[left + 1]);
+            node >>= 1;
+        }
+    }
+
+    /**
+     * Priority exponent; 0 gives uniform sampling
+     */
+    public void setAlpha(float alpha) { this.alpha = Math.max(0f, alpha); }
+
+    /**
+     * Initial importance-sampling exponent and its per-sample increase towards 1
+     */
+    public void setBeta(float beta, float increment) {
+        synchronized (lock) {
+            this.beta = Math.max(0f, Math.min(1f, beta));
+            this.betaIncrement = Math.max(0f, increment);
+        }
     }
-    
-    public int getPoolSize() {
-        return poolSize.get();
+
+    public int size() { return size; }
+    public int capacity() { return capacity; }
+    public int getStateSize() { return stateSize; }
+    public long getTotalAdded() { return totalAdded; }
+    public float getMaxPriority() { return maxPriority; }
+
+    /**
+     * Sum of all stored priorities, each raised to alpha
+     */
+    public double getTotalPriority() {
+        synchronized (lock) {
+            return sumTree[1];
+        }
     }
-    
-    public int getCompactionCount() {
-        return compactionCount.get();
+
+    /**
+     * Approximate bytes of transition storage
+     */
+    public long getMemoryUsage() {
+        long stateBytes = 2L * capacity * stateSize * 4;
+        long scalarBytes = (long) capacity * (4 + 4 + 1 + 8);
+        long treeBytes = 2L * 2 * treeCapacity * 8;
+        return stateBytes + scalarBytes + treeBytes;
     }
 
     public void clear() {
-        synchronized (this) {
-            // Return all experiences to pool
-            for (int i = 0; i < maxSize; i++) {
-                if (circularBuffer[i] != null) {
-                    returnToPool(circularBuffer[i]);
-                    circularBuffer[i] = null;
-                }
-            }
-            
-            currentSize.set(0);
-            writeIndex.set(0);
-            totalMemoryUsed.set(0);
-            lastCompactionTime = 0;
+        synchronized (lock) {
+            size = 0;
+            writeIndex = 0;
+            maxPriority = 1.0f;
+            java.util.Arrays.fill(sumTree, 0);
+            java.util.Arrays.fill(minTree, Double.POSITIVE_INFINITY);
         }
     }
-}
\ No newline at end of file
+}
@@ -3,8 +3,16 @@ package com.gestureai.gameautomation.data;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 import androidx.room.ColumnInfo;
+import androidx.room.Index;
 
-@Entity(tableName = "sessions")
+@Entity(
+    tableName = "sessions",
+    indices = {
+        @Index("start_time"),
+        @Index({"game_type", "start_time"}),
+        @Index({"ai_strategy", "start_time"})
+    }
+)
 public class SessionData {
     @PrimaryKey(autoGenerate = true)
     public long id;
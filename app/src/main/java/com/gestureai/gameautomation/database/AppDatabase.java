@@ -4,7 +4,12 @@ import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import com.gestureai.gameautomation.data.SessionData;
 import com.gestureai.gameautomation.database.entities.GameActionEntity;
 import com.gestureai.gameautomation.database.entities.GestureDataEntity;
@@ -13,10 +18,10 @@ import com.gestureai.gameautomation.database.dao.GestureDataDao;
 
 @Database(
     entities = {SessionData.class, GameActionEntity.class, GestureDataEntity.class},
-    version = 2,
+    version = 4,
     exportSchema = false
 )
-@TypeConverters(Converters.class)
+@TypeConverters({Converters.class, DatabaseConverters.class})
 public abstract class AppDatabase extends RoomDatabase {
     
     public abstract SessionDataDao sessionDataDao();
@@ -26,6 +31,119 @@ public abstract class AppDatabase extends RoomDatabase {
     private static volatile AppDatabase instance;
     private static final Object DB_LOCK = new Object();
     
+    // Migration from version 2 to 3 (composite indices for analytics and telemetry queries)
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Foreign-key lookups are served by the (session_id, timestamp) indices
+            database.execSQL("DROP INDEX IF EXISTS index_game_actions_session_id");
+            database.execSQL("DROP INDEX IF EXISTS index_gesture_data_session_id");
+            
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_game_actions_session_id_timestamp ON game_actions (session_id, timestamp)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_game_actions_timestamp_action_type_success_reaction_time ON game_actions (timestamp, action_type, success, reaction_time)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_game_actions_action_type_timestamp_success_reaction_time ON game_actions (action_type, timestamp, success, reaction_time)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_game_actions_success_timestamp ON game_actions (success, timestamp)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_game_actions_source_timestamp ON game_actions (source, timestamp)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_game_actions_confidence ON game_actions (confidence)");
+            
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_gesture_data_session_id_timestamp ON gesture_data (session_id, timestamp)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_gesture_data_gesture_type_timestamp ON gesture_data (gesture_type, timestamp)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_gesture_data_timestamp ON gesture_data (timestamp)");
+            
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_sessions_start_time ON sessions (start_time)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_sessions_game_type_start_time ON sessions (game_type, start_time)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_sessions_ai_strategy_start_time ON sessions (ai_strategy, start_time)");
+            
+            // Refresh planner statistics so the new indices are picked up
+            database.execSQL("ANALYZE");
+            android.util.Log.d("AppDatabase", "Database migrated from version 2 to 3 with analytics indices");
+        }
+    };
+    
+    // Migration from version 3 to 4 (binary trajectory and landmark columns)
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // landmark_data changes from JSON TEXT to a float BLOB, so the table is rebuilt
+            database.execSQL("CREATE TABLE IF NOT EXISTS `gesture_data_new` (" +
+                "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`session_id` INTEGER NOT NULL, " +
+                "`gesture_type` TEXT, " +
+                "`start_x` REAL NOT NULL, " +
+                "`start_y` REAL NOT NULL, " +
+                "`end_x` REAL NOT NULL, " +
+                "`end_y` REAL NOT NULL, " +
+                "`duration` INTEGER NOT NULL, " +
+                "`velocity` REAL NOT NULL, " +
+                "`accuracy` REAL NOT NULL, " +
+                "`timestamp` INTEGER NOT NULL, " +
+                "`recognition_confidence` REAL NOT NULL, " +
+                "`landmark_data` BLOB, " +
+                "`training_label` TEXT, " +
+                "`is_training_data` INTEGER NOT NULL, " +
+                "`user_feedback` TEXT, " +
+                "`trajectory` BLOB, " +
+                "`trajectory_resampled` BLOB, " +
+                "`trajectory_synthesized` INTEGER NOT NULL, " +
+                "FOREIGN KEY(`session_id`) REFERENCES `sessions`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE)");
+            
+            com.google.gson.Gson gson = new com.google.gson.Gson();
+            int converted = 0;
+            try (Cursor cursor = database.query("SELECT id, session_id, gesture_type, start_x, start_y, end_x, end_y, " +
+                    "duration, velocity, accuracy, timestamp, recognition_confidence, landmark_data, " +
+                    "training_label, is_training_data, user_feedback FROM gesture_data")) {
+                while (cursor.moveToNext()) {
+                    ContentValues values = new ContentValues();
+                    values.put("id", cursor.getLong(0));
+                    values.put("session_id", cursor.getLong(1));
+                    values.put("gesture_type", cursor.getString(2));
+                    values.put("start_x", cursor.getFloat(3));
+                    values.put("start_y", cursor.getFloat(4));
+                    values.put("end_x", cursor.getFloat(5));
+                    values.put("end_y", cursor.getFloat(6));
+                    values.put("duration", cursor.getLong(7));
+                    values.put("velocity", cursor.getFloat(8));
+                    values.put("accuracy", cursor.getFloat(9));
+                    values.put("timestamp", cursor.getLong(10));
+                    values.put("recognition_confidence", cursor.getFloat(11));
+                    values.put("training_label", cursor.getString(13));
+                    values.put("is_training_data", cursor.getInt(14));
+                    values.put("user_feedback", cursor.getString(15));
+                    
+                    String landmarkJson = cursor.getString(12);
+                    if (landmarkJson != null) {
+                        try {
+                            float[] landmarks = gson.fromJson(landmarkJson, float[].class);
+                            if (landmarks != null) {
+                                values.put("landmark_data", TrajectoryCodec.encodeFloats(landmarks, landmarks.length));
+                            }
+                        } catch (Exception e) {
+                            android.util.Log.w("AppDatabase", "Dropping unreadable landmark data for gesture " + cursor.getLong(0));
+                        }
+                    }
+                    
+                    // Older rows only recorded the end points of the gesture; the straight
+                    // line between them is flagged so training can leave it out
+                    float[] path = {cursor.getFloat(3), cursor.getFloat(4), cursor.getFloat(5), cursor.getFloat(6)};
+                    values.put("trajectory", TrajectoryCodec.encodePoints(path, 2));
+                    values.put("trajectory_resampled", TrajectoryCodec.encodeResampled(path, 2,
+                        TrajectoryCodec.DEFAULT_RESAMPLED_POINTS));
+                    values.put("trajectory_synthesized", 1);
+                    
+                    database.insert("gesture_data_new", SQLiteDatabase.CONFLICT_REPLACE, values);
+                    converted++;
+                }
+            }
+            
+            database.execSQL("DROP TABLE gesture_data");
+            database.execSQL("ALTER TABLE gesture_data_new RENAME TO gesture_data");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_gesture_data_session_id_timestamp ON gesture_data (session_id, timestamp)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_gesture_data_gesture_type_timestamp ON gesture_data (gesture_type, timestamp)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_gesture_data_timestamp ON gesture_data (timestamp)");
+            android.util.Log.d("AppDatabase", "Database migrated from version 3 to 4, converted " + converted + " gesture rows");
+        }
+    };
+    
     public static AppDatabase getInstance(Context context) {
         if (instance == null) {
             synchronized (DB_LOCK) {
@@ -36,6 +154,7 @@ public abstract class AppDatabase extends RoomDatabase {
                             AppDatabase.class,
                             "game_automation_database"
                         )
+                        .addMigrations(MIGRATION_2_3, MIGRATION_3_4)
                         .fallbackToDestructiveMigration()
                         .setQueryExecutor(java.util.concurrent.Executors.newFixedThreadPool(4))
                         .setTransactionExecutor(java.util.concurrent.Executors.newSingleThreadExecutor())
@@ -5,44 +5,77 @@ import android.graphics.Point;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Point and float lists are stored as compact TrajectoryCodec BLOBs
+ * (no JSON parsing or boxing on read); string lists stay as JSON.
+ */
 public class DatabaseConverters {
     
     private static final Gson gson = new Gson();
     
     @TypeConverter
-    public static String fromPointList(List<Point> points) {
+    public static byte[] fromPointList(List<Point> points) {
         if (points == null) {
             return null;
         }
-        return gson.toJson(points);
+        int[] xy = new int[points.size() * 2];
+        for (int i = 0; i < points.size(); i++) {
+            Point point = points.get(i);
+            xy[i * 2] = point.x;
+            xy[i * 2 + 1] = point.y;
+        }
+        return TrajectoryCodec.encodePoints(xy, points.size());
     }
     
     @TypeConverter
-    public static List<Point> toPointList(String pointsString) {
-        if (pointsString == null) {
+    public static List<Point> toPointList(byte[] blob) {
+        if (blob == null) {
             return null;
         }
-        Type listType = new TypeToken<List<Point>>(){}.getType();
-        return gson.fromJson(pointsString, listType);
+        float[] xy = TrajectoryCodec.decode(blob);
+        List<Point> points = new ArrayList<>(xy.length / 2);
+        for (int i = 0; i + 1 < xy.length; i += 2) {
+            points.add(new Point((int) xy[i], (int) xy[i + 1]));
+        }
+        return points;
     }
     
     @TypeConverter
-    public static String fromFloatList(List<Float> floats) {
+    public static byte[] fromFloatList(List<Float> floats) {
         if (floats == null) {
             return null;
         }
-        return gson.toJson(floats);
+        float[] values = new float[floats.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = floats.get(i);
+        }
+        return TrajectoryCodec.encodeFloats(values, values.length);
     }
     
     @TypeConverter
-    public static List<Float> toFloatList(String floatsString) {
-        if (floatsString == null) {
+    public static List<Float> toFloatList(byte[] blob) {
+        if (blob == null) {
             return null;
         }
-        Type listType = new TypeToken<List<Float>>(){}.getType();
-        return gson.fromJson(floatsString, listType);
+        float[] values = TrajectoryCodec.decode(blob);
+        List<Float> floats = new ArrayList<>(values.length);
+        for (float value : values) {
+            floats.add(value);
+        }
+        return floats;
+    }
+    
+    @TypeConverter
+    public static byte[] fromFloatArray(float[] values) {
+        return values == null ? null : TrajectoryCodec.encodeFloats(values, values.length);
+    }
+    
+    @TypeConverter
+    public static float[] toFloatArray(byte[] blob) {
+        return blob == null ? null : TrajectoryCodec.decode(blob);
     }
     
     @TypeConverter
@@ -61,4 +94,4 @@ public class DatabaseConverters {
         Type listType = new TypeToken<List<String>>(){}.getType();
         return gson.fromJson(stringsString, listType);
     }
-}
\ No newline at end of file
+}
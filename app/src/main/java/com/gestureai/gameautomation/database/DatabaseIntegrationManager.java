@@ -6,6 +6,11 @@ import androidx.room.Room;
 import com.gestureai.gameautomation.data.SessionData;
 import com.gestureai.gameautomation.data.UniversalGameState;
 import com.gestureai.gameautomation.data.GameContext;
+import com.gestureai.gameautomation.database.entities.ActionSuccessBucket;
+import com.gestureai.gameautomation.database.entities.GameActionEntity;
+import com.gestureai.gameautomation.database.entities.GestureDataEntity;
+import com.gestureai.gameautomation.database.entities.ReactionTimeCount;
+import com.gestureai.gameautomation.database.entities.SessionSummary;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -23,6 +28,13 @@ public class DatabaseIntegrationManager {
     private AppDatabase database;
     private GestureDatabase gestureDatabase;
     private ExecutorService executorService;
+    // Replaced with a fresh sink on the next row after closeTelemetry()
+    private volatile TelemetrySink telemetrySink;
+    
+    // Cached session handle so hot paths don't re-query the latest session
+    private volatile SessionData currentSession;
+    private volatile boolean currentSessionLoaded = false;
+    private final Object sessionLock = new Object();
     
     // Transaction coordination and deadlock prevention
     private final java.util.concurrent.locks.ReentrantReadWriteLock crossDbLock = new java.util.concurrent.locks.ReentrantReadWriteLock();
@@ -67,6 +79,10 @@ public class DatabaseIntegrationManager {
                 throw new RuntimeException("Failed to initialize one or both databases");
             }
             
+            telemetrySink = new TelemetrySink(database);
+            // Load the current session off the caller's thread so telemetry rows get a session id
+            executorService.execute(this::getCurrentSession);
+            
             Log.d(TAG, "Both databases initialized successfully with coordination");
         } catch (Exception e) {
             Log.e(TAG, "Failed to initialize databases", e);
@@ -168,7 +184,8 @@ public class DatabaseIntegrationManager {
         return CompletableFuture.runAsync(() -> {
             try {
                 if (database != null) {
-                    database.sessionDataDao().insert(sessionData);
+                    sessionData.id = database.sessionDataDao().insertSession(sessionData);
+                    setCurrentSession(sessionData);
                     Log.d(TAG, "Session data saved successfully");
                     
                     // Notify UI of updated data
@@ -234,22 +251,14 @@ public class DatabaseIntegrationManager {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 if (database != null) {
-                    List<SessionData> sessions = database.sessionDataDao().getAllSessions();
-                    if (sessions.isEmpty()) return 0.0f;
-                    
-                    float totalSuccessRate = 0;
-                    for (SessionData session : sessions) {
-                        totalSuccessRate += session.getSuccessRate();
-                    }
-                    
-                    float result = totalSuccessRate / sessions.size();
+                    SessionSummary summary = database.sessionDataDao().getSessionSummary(0);
                     
                     // Notify UI of performance metrics
                     if (dataListener != null) {
-                        calculateAndNotifyPerformanceMetrics();
+                        notifyPerformanceMetrics(summary);
                     }
                     
-                    return result;
+                    return summary != null ? summary.averageSuccessRate : 0.0f;
                 }
                 return 0.0f;
             } catch (Exception e) {
@@ -263,26 +272,7 @@ public class DatabaseIntegrationManager {
         executorService.execute(() -> {
             try {
                 if (database != null) {
-                    List<SessionData> sessions = database.sessionDataDao().getAllSessions();
-                    
-                    if (!sessions.isEmpty()) {
-                        float avgSuccessRate = 0;
-                        float avgReactionTime = 0;
-                        int totalActions = 0;
-                        
-                        for (SessionData session : sessions) {
-                            avgSuccessRate += session.getSuccessRate();
-                            avgReactionTime += session.getAverageReactionTime();
-                            totalActions += session.getTotalActions();
-                        }
-                        
-                        avgSuccessRate /= sessions.size();
-                        avgReactionTime /= sessions.size();
-                        
-                        if (dataListener != null) {
-                            dataListener.onPerformanceMetricsUpdated(avgSuccessRate, avgReactionTime, totalActions);
-                        }
-                    }
+                    notifyPerformanceMetrics(database.sessionDataDao().getSessionSummary(0));
                 }
             } catch (Exception e) {
                 Log.e(TAG, "Error calculating performance metrics", e);
@@ -290,15 +280,81 @@ public class DatabaseIntegrationManager {
         });
     }
     
+    private void notifyPerformanceMetrics(SessionSummary summary) {
+        if (summary != null && summary.sessionCount > 0 && dataListener != null) {
+            dataListener.onPerformanceMetricsUpdated(summary.averageSuccessRate,
+                summary.averageReactionTime, (int) summary.totalActions);
+        }
+    }
+    
+    /**
+     * Session totals since the given time, aggregated in SQL
+     */
+    public CompletableFuture<SessionSummary> getSessionSummary(long since) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (database != null) {
+                    return database.sessionDataDao().getSessionSummary(since);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading session summary", e);
+            }
+            return new SessionSummary();
+        }, executorService);
+    }
+    
+    /**
+     * Success rate per action type per bucket (e.g. 60000 for per-minute)
+     */
+    public CompletableFuture<List<ActionSuccessBucket>> getActionSuccessSeries(long startTime, long endTime, long bucketMs) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (database != null) {
+                    return database.gameActionDao().getSuccessRateSeries(startTime, endTime, Math.max(1, bucketMs));
+                }
+                return List.<ActionSuccessBucket>of();
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading action success series", e);
+                return List.<ActionSuccessBucket>of();
+            }
+        }, executorService);
+    }
+    
+    /**
+     * Reaction-time percentiles (0-100) over actions in the time range, read
+     * from one grouped histogram query. Pass null actionType for all actions.
+     */
+    public CompletableFuture<long[]> getReactionTimePercentiles(String actionType, long startTime, long endTime, double... percentiles) {
+        return CompletableFuture.supplyAsync(() -> {
+            long[] result = new long[percentiles.length];
+            try {
+                if (database != null) {
+                    List<ReactionTimeCount> histogram = actionType == null
+                        ? database.gameActionDao().getReactionTimeHistogram(startTime, endTime)
+                        : database.gameActionDao().getReactionTimeHistogramForType(actionType, startTime, endTime);
+                    for (int i = 0; i < percentiles.length; i++) {
+                        result[i] = ReactionTimeCount.percentile(histogram, percentiles[i]);
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading reaction time percentiles", e);
+            }
+            return result;
+        }, executorService);
+    }
+    
     // Game State Operations
     public CompletableFuture<Void> updateGameState(UniversalGameState gameState) {
         return CompletableFuture.runAsync(() -> {
             try {
-                // Store game state in current session
-                SessionData currentSession = getCurrentSession();
-                if (currentSession != null) {
-                    currentSession.setGameType(gameState.getCurrentGameType());
-                    database.sessionDataDao().update(currentSession);
+                // Store game state in current session, only when it actually changed
+                SessionData session = getCurrentSession();
+                if (session != null) {
+                    String gameType = gameState.getCurrentGameType();
+                    if (gameType != null && !gameType.equals(session.getGameType())) {
+                        session.setGameType(gameType);
+                        database.sessionDataDao().updateSession(session);
+                    }
                     
                     // Notify UI of game state update
                     if (dataListener != null) {
@@ -312,15 +368,134 @@ public class DatabaseIntegrationManager {
     }
     
     private SessionData getCurrentSession() {
-        try {
-            if (database != null) {
-                List<SessionData> sessions = database.sessionDataDao().getLatestSessions(1);
-                return sessions.isEmpty() ? null : sessions.get(0);
+        if (currentSessionLoaded) {
+            return currentSession;
+        }
+        synchronized (sessionLock) {
+            if (!currentSessionLoaded && database != null) {
+                try {
+                    List<SessionData> sessions = database.sessionDataDao().getLatestSessions(1);
+                    setCurrentSession(sessions.isEmpty() ? null : sessions.get(0));
+                } catch (Exception e) {
+                    Log.e(TAG, "Error getting current session", e);
+                }
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting current session", e);
+            return currentSession;
+        }
+    }
+    
+    private void setCurrentSession(SessionData session) {
+        synchronized (sessionLock) {
+            currentSession = session;
+            currentSessionLoaded = true;
+            if (telemetrySink != null) {
+                telemetrySink.setCurrentSessionId(session != null ? session.id : 0);
+            }
+        }
+    }
+    
+    // Telemetry (write-behind, batched)
+    
+    /**
+     * Queue an action row for the next batched write. Never blocks.
+     */
+    public boolean recordAction(GameActionEntity action) {
+        TelemetrySink sink = telemetry();
+        return sink != null && sink.recordAction(action);
+    }
+    
+    /**
+     * Queue a gesture row for the next batched write. Never blocks.
+     */
+    public boolean recordGesture(GestureDataEntity gesture) {
+        TelemetrySink sink = telemetry();
+        return sink != null && sink.recordGesture(gesture);
+    }
+    
+    /**
+     * Queue the outcome of an executed action. reactionTime is the time from
+     * submission to completion in ms.
+     */
+    public boolean recordAction(String actionType, int x, int y, float confidence, String source,
+                                boolean success, long reactionTime) {
+        TelemetrySink sink = telemetry();
+        if (sink == null) return false;
+        GameActionEntity action = new GameActionEntity(actionType, x, y, confidence, source);
+        action.success = success;
+        action.reactionTime = reactionTime;
+        return sink.recordAction(action);
+    }
+    
+    /**
+     * Queue a dispatched gesture with the touch path it traced, pointCount
+     * interleaved x,y points. accuracy is 1 when the system reported it
+     * completed and 0 when it was cancelled or rejected.
+     */
+    public boolean recordGesture(String gestureType, float[] xy, int pointCount,
+                                 long duration, boolean completed) {
+        TelemetrySink sink = telemetry();
+        if (sink == null) return false;
+        int last = Math.max(0, pointCount - 1) * 2;
+        boolean hasPoints = pointCount > 0 && xy != null && xy.length >= pointCount * 2;
+        GestureDataEntity gesture = hasPoints
+            ? new GestureDataEntity(gestureType, xy[0], xy[1], xy[last], xy[last + 1])
+            : new GestureDataEntity(gestureType, 0f, 0f, 0f, 0f);
+        gesture.duration = duration;
+        float length = 0.0f;
+        if (hasPoints) {
+            for (int i = 2; i <= last; i += 2) {
+                length += (float) Math.hypot(xy[i] - xy[i - 2], xy[i + 1] - xy[i - 1]);
+            }
+            gesture.encodeTrajectory(xy, pointCount);
+        }
+        gesture.velocity = duration > 0 ? length / duration : 0.0f;
+        gesture.accuracy = completed ? 1.0f : 0.0f;
+        return sink.recordGesture(gesture);
+    }
+    
+    public TelemetrySink getTelemetrySink() {
+        return telemetry();
+    }
+    
+    private TelemetrySink telemetry() {
+        TelemetrySink sink = telemetrySink;
+        if (sink != null || database == null) {
+            return sink;
+        }
+        synchronized (sessionLock) {
+            if (telemetrySink == null) {
+                telemetrySink = new TelemetrySink(database);
+                telemetrySink.setCurrentSessionId(currentSession != null ? currentSession.id : 0);
+            }
+            return telemetrySink;
         }
-        return null;
+    }
+    
+    /**
+     * Start writing queued telemetry without waiting for it, so it is safe
+     * from onDestroy on the main thread
+     */
+    public void flushTelemetry() {
+        TelemetrySink sink = telemetrySink;
+        if (sink != null) {
+            sink.flushAsync();
+        }
+    }
+    
+    /**
+     * Write queued telemetry and stop its writer thread, for app teardown.
+     * Runs on a background thread, so it is safe from onDestroy; the write is
+     * bounded by TelemetrySink's close timeout. Services still running get a
+     * new sink with their next row.
+     */
+    public void closeTelemetry() {
+        TelemetrySink sink;
+        synchronized (sessionLock) {
+            sink = telemetrySink;
+            telemetrySink = null;
+        }
+        if (sink == null) return;
+        new Thread(sink::close, "TelemetryClose").start();
     }
     
     // Real-time Data Monitoring
@@ -352,6 +527,8 @@ public class DatabaseIntegrationManager {
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
+        // The sink lives as long as this singleton; only push out what is queued
+        flushTelemetry();
     }
     
     // Analytics Queries for Dashboard
@@ -373,14 +550,8 @@ public class DatabaseIntegrationManager {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 if (database != null) {
-                    List<SessionData> sessions = database.sessionDataDao().getSessionsByGameType(gameType);
-                    if (sessions.isEmpty()) return 0.0f;
-                    
-                    float totalSuccessRate = 0;
-                    for (SessionData session : sessions) {
-                        totalSuccessRate += session.getSuccessRate();
-                    }
-                    return totalSuccessRate / sessions.size();
+                    SessionSummary summary = database.sessionDataDao().getSessionSummaryForGameType(gameType, 0);
+                    return summary != null ? summary.averageSuccessRate : 0.0f;
                 }
                 return 0.0f;
             } catch (Exception e) {
@@ -6,11 +6,21 @@ import androidx.room.Query;
 import androidx.room.Update;
 import androidx.room.Delete;
 import com.gestureai.gameautomation.data.SessionData;
+import com.gestureai.gameautomation.database.entities.SessionSummary;
 import java.util.List;
 
 @Dao
 public interface SessionDataDao {
     
+    // Shared projection for SessionSummary aggregates
+    String SUMMARY_COLUMNS = "COUNT(*) AS session_count, "
+            + "COALESCE(SUM(total_actions), 0) AS total_actions, "
+            + "COALESCE(SUM(successful_actions), 0) AS successful_actions, "
+            + "COALESCE(AVG(CASE WHEN total_actions > 0 THEN CAST(successful_actions AS REAL) / total_actions ELSE 0 END), 0) AS average_success_rate, "
+            + "COALESCE(MAX(CASE WHEN total_actions > 0 THEN CAST(successful_actions AS REAL) / total_actions ELSE 0 END), 0) AS best_success_rate, "
+            + "COALESCE(AVG(average_reaction_time), 0) AS average_reaction_time, "
+            + "COALESCE(SUM(CASE WHEN end_time > start_time THEN end_time - start_time ELSE 0 END), 0) AS total_duration";
+    
     @Insert
     long insertSession(SessionData session);
     
@@ -61,4 +71,18 @@ public interface SessionDataDao {
     
     @Query("SELECT SUM(total_actions) FROM sessions")
     int getTotalActionsPerformed();
-}
\ No newline at end of file
+    
+    // Aggregates for analytics screens (computed in SQL, served from the start_time indices)
+    
+    @Query("SELECT NULL AS group_key, " + SUMMARY_COLUMNS + " FROM sessions WHERE start_time >= :since")
+    SessionSummary getSessionSummary(long since);
+    
+    @Query("SELECT game_type AS group_key, " + SUMMARY_COLUMNS + " FROM sessions WHERE game_type = :gameType AND start_time >= :since")
+    SessionSummary getSessionSummaryForGameType(String gameType, long since);
+    
+    @Query("SELECT COALESCE(game_type, 'Unknown') AS group_key, " + SUMMARY_COLUMNS + " FROM sessions WHERE start_time >= :since GROUP BY group_key ORDER BY session_count DESC")
+    List<SessionSummary> getGameTypeSummaries(long since);
+    
+    @Query("SELECT ai_strategy AS group_key, " + SUMMARY_COLUMNS + " FROM sessions WHERE ai_strategy IS NOT NULL AND start_time >= :since GROUP BY ai_strategy ORDER BY best_success_rate DESC")
+    List<SessionSummary> getStrategySummaries(long since);
+}
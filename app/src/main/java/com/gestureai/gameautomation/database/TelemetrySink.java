@@ -0,0 +1,340 @@
+package com.gestureai.gameautomation.database;
+
+import android.util.Log;
+
+import com.gestureai.gameautomation.database.entities.GameActionEntity;
+import com.gestureai.gameautomation.database.entities.GestureDataEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Write-behind sink for high-rate action and gesture telemetry.
+ * Producers append to lock-free ring buffers and never touch the database;
+ * a single writer thread drains them into Room with one transaction per
+ * batch, every flushBatchSize rows or flushIntervalMs, whichever comes first.
+ * When storage falls behind and a ring fills up, new rows are dropped and
+ * counted rather than blocking the game loop.
+ */
+public class TelemetrySink {
+    private static final String TAG = "TelemetrySink";
+
+    public static final int DEFAULT_RING_CAPACITY = 4096;
+    public static final int DEFAULT_FLUSH_BATCH_SIZE = 256;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+    private static final long CLOSE_TIMEOUT_MS = 3000;
+
+    /**
+     * Bounded multi-producer, single-consumer ring. Each slot carries a
+     * sequence number so producers claim slots with one CAS and the consumer
+     * knows when a claimed slot has actually been published.
+     */
+    static class Ring<T> {
+        private final int mask;
+        private final AtomicReferenceArray<T> items;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head = 0;
+
+        Ring(int capacity) {
+            int size = 1;
+            while (size < capacity) size <<= 1;
+            mask = size - 1;
+            items = new AtomicReferenceArray<>(size);
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(T item) {
+            while (true) {
+                long position = tail.get();
+                int index = (int) (position & mask);
+                long sequence = sequences.get(index);
+                if (sequence == position) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        items.lazySet(index, item);
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                } else if (sequence < position) {
+                    return false; // full
+                }
+                // Another producer moved the tail; retry
+            }
+        }
+
+        /**
+         * Move up to max published items into out. Consumer thread only.
+         */
+        int drainTo(List<T> out, int max) {
+            int drained = 0;
+            long position = head;
+            while (drained < max) {
+                int index = (int) (position & mask);
+                if (sequences.get(index) != position + 1) break;
+                out.add(items.get(index));
+                items.lazySet(index, null);
+                sequences.set(index, position + mask + 1);
+                position++;
+                drained++;
+            }
+            head = position;
+            return drained;
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head);
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+    }
+
+    private final AppDatabase database;
+    private final Ring<GameActionEntity> actionRing;
+    private final Ring<GestureDataEntity> gestureRing;
+    private final ScheduledExecutorService writer;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    private final int flushBatchSize;
+    private volatile long currentSessionId = 0;
+
+    // Writer-thread scratch lists, reused across flushes
+    private final List<GameActionEntity> actionBatch;
+    private final List<GestureDataEntity> gestureBatch;
+
+    private final AtomicLong actionsWritten = new AtomicLong();
+    private final AtomicLong gesturesWritten = new AtomicLong();
+    private final AtomicLong actionsDropped = new AtomicLong();
+    private final AtomicLong gesturesDropped = new AtomicLong();
+    private final AtomicLong rowsWithoutSession = new AtomicLong();
+    private final AtomicLong transactions = new AtomicLong();
+    private final AtomicLong failedTransactions = new AtomicLong();
+
+    public TelemetrySink(AppDatabase database) {
+        this(database, DEFAULT_RING_CAPACITY, DEFAULT_FLUSH_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    public TelemetrySink(AppDatabase database, int ringCapacity, int flushBatchSize, long flushIntervalMs) {
+        this.database = database;
+        this.actionRing = new Ring<>(ringCapacity);
+        this.gestureRing = new Ring<>(ringCapacity);
+        this.flushBatchSize = Math.max(1, flushBatchSize);
+        this.actionBatch = new ArrayList<>(this.flushBatchSize);
+        this.gestureBatch = new ArrayList<>(this.flushBatchSize);
+
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, TAG);
+            // Never keeps the process alive; close() is what waits for the last batch
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flushPending, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Session that rows without a session id are attached to
+     */
+    public void setCurrentSessionId(long sessionId) {
+        this.currentSessionId = sessionId;
+    }
+
+    public long getCurrentSessionId() {
+        return currentSessionId;
+    }
+
+    /**
+     * Queue an action row. Returns false if the sink is closed or full.
+     */
+    public boolean recordAction(GameActionEntity action) {
+        if (closed || action == null) return false;
+        if (action.sessionId == 0) {
+            action.sessionId = currentSessionId;
+        }
+        if (action.sessionId == 0) {
+            // No session yet; the foreign key would fail the whole batch
+            actionsDropped.incrementAndGet();
+            countRowWithoutSession();
+            return false;
+        }
+        if (!actionRing.offer(action)) {
+            actionsDropped.incrementAndGet();
+            return false;
+        }
+        if (actionRing.size() >= flushBatchSize) {
+            requestFlush();
+        }
+        return true;
+    }
+
+    /**
+     * Queue a gesture row. Returns false if the sink is closed or full.
+     */
+    public boolean recordGesture(GestureDataEntity gesture) {
+        if (closed || gesture == null) return false;
+        if (gesture.sessionId == 0) {
+            gesture.sessionId = currentSessionId;
+        }
+        if (gesture.sessionId == 0) {
+            // No session yet; the foreign key would fail the whole batch
+            gesturesDropped.incrementAndGet();
+            countRowWithoutSession();
+            return false;
+        }
+        if (!gestureRing.offer(gesture)) {
+            gesturesDropped.incrementAndGet();
+            return false;
+        }
+        if (gestureRing.size() >= flushBatchSize) {
+            requestFlush();
+        }
+        return true;
+    }
+
+    private void countRowWithoutSession() {
+        if (rowsWithoutSession.getAndIncrement() == 0) {
+            Log.w(TAG, "No current session; telemetry rows are dropped until one is set");
+        }
+    }
+
+    /**
+     * Schedule a write of everything queued so far without waiting for it.
+     * Safe to call from the main thread.
+     */
+    public void flushAsync() {
+        requestFlush();
+    }
+
+    private void requestFlush() {
+        if (!closed && flushScheduled.compareAndSet(false, true)) {
+            try {
+                writer.execute(this::flushPending);
+            } catch (Exception e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    // Writer thread only
+    private void flushPending() {
+        flushScheduled.set(false);
+        try {
+            while (actionRing.size() > 0 || gestureRing.size() > 0) {
+                if (!writeBatch()) break;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Telemetry flush failed", e);
+        }
+    }
+
+    private boolean writeBatch() {
+        actionBatch.clear();
+        gestureBatch.clear();
+        actionRing.drainTo(actionBatch, flushBatchSize);
+        gestureRing.drainTo(gestureBatch, flushBatchSize);
+        if (actionBatch.isEmpty() && gestureBatch.isEmpty()) {
+            return false;
+        }
+
+        try {
+            database.runInTransaction(() -> {
+                if (!actionBatch.isEmpty()) {
+                    database.gameActionDao().insertActions(actionBatch);
+                }
+                if (!gestureBatch.isEmpty()) {
+                    database.gestureDataDao().insertGestures(gestureBatch);
+                }
+            });
+            transactions.incrementAndGet();
+            actionsWritten.addAndGet(actionBatch.size());
+            gesturesWritten.addAndGet(gestureBatch.size());
+            return true;
+        } catch (Exception e) {
+            // The rows are lost rather than retried forever against a failing database
+            failedTransactions.incrementAndGet();
+            actionsDropped.addAndGet(actionBatch.size());
+            gesturesDropped.addAndGet(gestureBatch.size());
+            Log.e(TAG, "Failed to write " + actionBatch.size() + " actions and "
+                    + gestureBatch.size() + " gestures", e);
+            return false;
+        }
+    }
+
+    /**
+     * Write everything queued so far and wait for it (up to timeoutMs)
+     */
+    public boolean flush(long timeoutMs) {
+        if (writer.isShutdown()) return false;
+        try {
+            writer.submit(this::flushPending).get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            Log.w(TAG, "Telemetry flush did not finish in " + timeoutMs + "ms", e);
+            return false;
+        }
+    }
+
+    /**
+     * Stop accepting rows, write what is queued and stop the writer thread
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        flush(CLOSE_TIMEOUT_MS);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        Log.d(TAG, "Telemetry sink closed: " + getStats());
+    }
+
+    /**
+     * True when either ring is more than three quarters full, i.e. storage is
+     * falling behind and producers should shed optional telemetry
+     */
+    public boolean isBackpressured() {
+        return actionRing.size() * 4 > actionRing.capacity() * 3
+                || gestureRing.size() * 4 > gestureRing.capacity() * 3;
+    }
+
+    public int getPendingCount() { return actionRing.size() + gestureRing.size(); }
+    public long getActionsWritten() { return actionsWritten.get(); }
+    public long getGesturesWritten() { return gesturesWritten.get(); }
+    public long getActionsDropped() { return actionsDropped.get(); }
+    public long getGesturesDropped() { return gesturesDropped.get(); }
+
+    /**
+     * Rows of either kind dropped because no session existed yet; included in the dropped counts
+     */
+    public long getRowsWithoutSession() { return rowsWithoutSession.get(); }
+    public long getTransactionCount() { return transactions.get(); }
+    public long getFailedTransactionCount() { return failedTransactions.get(); }
+
+    public String getStats() {
+        return "actions=" + actionsWritten.get() + " (dropped " + actionsDropped.get() + ")"
+                + ", gestures=" + gesturesWritten.get() + " (dropped " + gesturesDropped.get() + ")"
+                + ", without session=" + rowsWithoutSession.get()
+                + ", transactions=" + transactions.get() + " (failed " + failedTransactions.get() + ")"
+                + ", pending=" + getPendingCount();
+    }
+}
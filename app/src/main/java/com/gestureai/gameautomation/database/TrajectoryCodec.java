@@ -0,0 +1,227 @@
+package com.gestureai.gameautomation.database;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Compact binary encoding for gesture trajectories and float vectors stored as BLOBs.
+ *
+ * Every blob starts with a format byte and a varint value count:
+ *  - FORMAT_POINTS: integer pixel coordinates, first point then zigzag varint
+ *    deltas, interleaved x,y. A touch trace moves a few pixels per sample, so
+ *    most coordinates take one byte.
+ *  - FORMAT_FLOATS: raw little-endian float32 values.
+ *  - FORMAT_RESAMPLED: a trajectory resampled to a fixed number of points
+ *    spaced evenly along its length, as little-endian float32 x,y pairs.
+ * All formats decode straight into float[] without boxing.
+ *
+ * Pure Java (no android.* types) so it can be unit tested on any JVM.
+ */
+public final class TrajectoryCodec {
+
+    public static final byte FORMAT_POINTS = 1;
+    public static final byte FORMAT_FLOATS = 2;
+    public static final byte FORMAT_RESAMPLED = 3;
+
+    public static final int DEFAULT_RESAMPLED_POINTS = 32;
+
+    private static final float[] NO_VALUES = new float[0];
+
+    private TrajectoryCodec() {
+    }
+
+    /**
+     * Encode pointCount interleaved x,y integer coordinates
+     */
+    public static byte[] encodePoints(int[] xy, int pointCount) {
+        int values = pointCount * 2;
+        byte[] out = new byte[1 + 5 + values * 5];
+        out[0] = FORMAT_POINTS;
+        int position = writeVarint(out, 1, values);
+        int previousX = 0;
+        int previousY = 0;
+        for (int i = 0; i < values; i += 2) {
+            position = writeVarint(out, position, zigzag(xy[i] - previousX));
+            position = writeVarint(out, position, zigzag(xy[i + 1] - previousY));
+            previousX = xy[i];
+            previousY = xy[i + 1];
+        }
+        return Arrays.copyOf(out, position);
+    }
+
+    /**
+     * Encode float coordinates, rounded to whole pixels
+     */
+    public static byte[] encodePoints(float[] xy, int pointCount) {
+        int[] rounded = new int[pointCount * 2];
+        for (int i = 0; i < rounded.length; i++) {
+            rounded[i] = Math.round(xy[i]);
+        }
+        return encodePoints(rounded, pointCount);
+    }
+
+    public static byte[] encodeFloats(float[] values, int count) {
+        return encodeFloatsAs(FORMAT_FLOATS, values, count);
+    }
+
+    /**
+     * Resample a trajectory to a fixed number of points and encode it
+     */
+    public static byte[] encodeResampled(float[] xy, int pointCount, int samples) {
+        float[] resampled = resample(xy, pointCount, samples);
+        return encodeFloatsAs(FORMAT_RESAMPLED, resampled, resampled.length);
+    }
+
+    private static byte[] encodeFloatsAs(byte format, float[] values, int count) {
+        byte[] out = new byte[1 + 5 + count * 4];
+        out[0] = format;
+        int position = writeVarint(out, 1, count);
+        ByteBuffer buffer = ByteBuffer.wrap(out, position, count * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            buffer.putFloat(values[i]);
+        }
+        return Arrays.copyOf(out, position + count * 4);
+    }
+
+    /**
+     * Number of float values a blob decodes to
+     */
+    public static int valueCount(byte[] blob) {
+        if (blob == null || blob.length < 2) return 0;
+        return readVarint(blob, 1)[0];
+    }
+
+    /**
+     * Decode any format into a new float[] (x,y interleaved for trajectories)
+     */
+    public static float[] decode(byte[] blob) {
+        int count = valueCount(blob);
+        if (count == 0) return NO_VALUES;
+        float[] out = new float[count];
+        decodeInto(blob, out);
+        return out;
+    }
+
+    /**
+     * Decode into a caller-owned array, returning the number of values written
+     */
+    public static int decodeInto(byte[] blob, float[] out) {
+        if (blob == null || blob.length < 2) return 0;
+        int[] header = readVarint(blob, 1);
+        int count = Math.min(header[0], out.length);
+        int position = header[1];
+
+        switch (blob[0]) {
+            case FORMAT_POINTS: {
+                int previousX = 0;
+                int previousY = 0;
+                int pairs = count / 2;
+                for (int i = 0; i < pairs; i++) {
+                    long packed = readVarintPacked(blob, position);
+                    previousX += unzigzag((int) (packed >>> 32));
+                    packed = readVarintPacked(blob, (int) packed);
+                    previousY += unzigzag((int) (packed >>> 32));
+                    position = (int) packed;
+                    out[i * 2] = previousX;
+                    out[i * 2 + 1] = previousY;
+                }
+                return pairs * 2;
+            }
+            case FORMAT_FLOATS:
+            case FORMAT_RESAMPLED: {
+                ByteBuffer buffer = ByteBuffer.wrap(blob, position, blob.length - position)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                buffer.asFloatBuffer().get(out, 0, count);
+                return count;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown trajectory format " + blob[0]);
+        }
+    }
+
+    /**
+     * Resample pointCount x,y points to samples points evenly spaced by arc length
+     */
+    public static float[] resample(float[] xy, int pointCount, int samples) {
+        float[] out = new float[samples * 2];
+        if (pointCount <= 0 || samples <= 0) return out;
+        if (pointCount == 1 || samples == 1) {
+            for (int i = 0; i < samples; i++) {
+                out[i * 2] = xy[0];
+                out[i * 2 + 1] = xy[1];
+            }
+            return out;
+        }
+
+        float total = 0f;
+        for (int i = 1; i < pointCount; i++) {
+            total += distance(xy, i - 1, i);
+        }
+        if (total == 0f) {
+            return resample(xy, 1, samples);
+        }
+
+        float step = total / (samples - 1);
+        int segment = 1;
+        float walked = 0f;
+        float segmentLength = distance(xy, 0, 1);
+        for (int s = 0; s < samples; s++) {
+            float target = Math.min(total, s * step);
+            while (segment < pointCount - 1 && walked + segmentLength < target) {
+                walked += segmentLength;
+                segment++;
+                segmentLength = distance(xy, segment - 1, segment);
+            }
+            float t = segmentLength > 0f ? (target - walked) / segmentLength : 0f;
+            t = Math.max(0f, Math.min(1f, t));
+            int a = (segment - 1) * 2;
+            int b = segment * 2;
+            out[s * 2] = xy[a] + (xy[b] - xy[a]) * t;
+            out[s * 2 + 1] = xy[a + 1] + (xy[b + 1] - xy[a + 1]) * t;
+        }
+        return out;
+    }
+
+    private static float distance(float[] xy, int from, int to) {
+        float dx = xy[to * 2] - xy[from * 2];
+        float dy = xy[to * 2 + 1] - xy[from * 2 + 1];
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarint(byte[] out, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    // Returns {value, nextPosition}
+    private static int[] readVarint(byte[] in, int position) {
+        long packed = readVarintPacked(in, position);
+        return new int[]{(int) (packed >>> 32), (int) packed};
+    }
+
+    // Value in the high 32 bits, next position in the low 32 bits (allocation-free)
+    private static long readVarintPacked(byte[] in, int position) {
+        int value = 0;
+        int shift = 0;
+        while (position < in.length) {
+            byte b = in[position++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+            shift += 7;
+        }
+        return ((long) value << 32) | (position & 0xFFFFFFFFL);
+    }
+}
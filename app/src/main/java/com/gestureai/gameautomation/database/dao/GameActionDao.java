@@ -1,7 +1,9 @@
 package com.gestureai.gameautomation.database.dao;
 
 import androidx.room.*;
+import com.gestureai.gameautomation.database.entities.ActionSuccessBucket;
 import com.gestureai.gameautomation.database.entities.GameActionEntity;
+import com.gestureai.gameautomation.database.entities.ReactionTimeCount;
 import java.util.List;
 
 @Dao
@@ -37,6 +39,25 @@ public interface GameActionDao {
     @Query("SELECT COUNT(*) FROM game_actions WHERE session_id = :sessionId")
     int getActionCountForSession(long sessionId);
     
+    // Pre-bucketed series for analytics, answered from the covering
+    // (timestamp, action_type, success, reaction_time) index without touching rows
+    
+    @Query("SELECT action_type, (timestamp / :bucketMs) * :bucketMs AS bucket_start, COUNT(*) AS total, "
+            + "SUM(success) AS successes, AVG(reaction_time) AS average_reaction_time "
+            + "FROM game_actions WHERE timestamp >= :startTime AND timestamp < :endTime "
+            + "GROUP BY action_type, bucket_start ORDER BY bucket_start, action_type")
+    List<ActionSuccessBucket> getSuccessRateSeries(long startTime, long endTime, long bucketMs);
+    
+    @Query("SELECT reaction_time, COUNT(*) AS count FROM game_actions "
+            + "WHERE timestamp >= :startTime AND timestamp < :endTime AND reaction_time > 0 "
+            + "GROUP BY reaction_time ORDER BY reaction_time")
+    List<ReactionTimeCount> getReactionTimeHistogram(long startTime, long endTime);
+    
+    @Query("SELECT reaction_time, COUNT(*) AS count FROM game_actions "
+            + "WHERE action_type = :actionType AND timestamp >= :startTime AND timestamp < :endTime AND reaction_time > 0 "
+            + "GROUP BY reaction_time ORDER BY reaction_time")
+    List<ReactionTimeCount> getReactionTimeHistogramForType(String actionType, long startTime, long endTime);
+    
     @Insert
     long insertAction(GameActionEntity action);
     
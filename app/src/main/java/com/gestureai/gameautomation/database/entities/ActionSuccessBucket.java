@@ -0,0 +1,28 @@
+package com.gestureai.gameautomation.database.entities;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * One time bucket of the per-action-type success series, aggregated in SQL
+ */
+public class ActionSuccessBucket {
+    
+    @ColumnInfo(name = "action_type")
+    public String actionType;
+    
+    @ColumnInfo(name = "bucket_start")
+    public long bucketStart;
+    
+    @ColumnInfo(name = "total")
+    public int total;
+    
+    @ColumnInfo(name = "successes")
+    public int successes;
+    
+    @ColumnInfo(name = "average_reaction_time")
+    public float averageReactionTime;
+    
+    public float getSuccessRate() {
+        return total > 0 ? (float) successes / total : 0f;
+    }
+}
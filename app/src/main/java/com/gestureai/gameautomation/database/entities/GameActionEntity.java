@@ -15,7 +15,14 @@ import com.gestureai.gameautomation.data.SessionData;
         childColumns = "session_id",
         onDelete = ForeignKey.CASCADE
     ),
-    indices = {@Index("session_id")}
+    indices = {
+        @Index({"session_id", "timestamp"}),
+        @Index({"timestamp", "action_type", "success", "reaction_time"}),
+        @Index({"action_type", "timestamp", "success", "reaction_time"}),
+        @Index({"success", "timestamp"}),
+        @Index({"source", "timestamp"}),
+        @Index("confidence")
+    }
 )
 public class GameActionEntity {
     
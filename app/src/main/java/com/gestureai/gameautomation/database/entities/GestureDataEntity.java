@@ -6,6 +6,7 @@ import androidx.room.ColumnInfo;
 import androidx.room.ForeignKey;
 import androidx.room.Index;
 import com.gestureai.gameautomation.data.SessionData;
+import com.gestureai.gameautomation.database.TrajectoryCodec;
 
 @Entity(
     tableName = "gesture_data",
@@ -15,7 +16,11 @@ import com.gestureai.gameautomation.data.SessionData;
         childColumns = "session_id",
         onDelete = ForeignKey.CASCADE
     ),
-    indices = {@Index("session_id")}
+    indices = {
+        @Index({"session_id", "timestamp"}),
+        @Index({"gesture_type", "timestamp"}),
+        @Index("timestamp")
+    }
 )
 public class GestureDataEntity {
     
@@ -56,7 +61,7 @@ public class GestureDataEntity {
     public float recognitionConfidence;
     
     @ColumnInfo(name = "landmark_data")
-    public String landmarkData; // JSON string for MediaPipe landmarks
+    public float[] landmarkData; // MediaPipe landmarks, stored as a float BLOB
     
     @ColumnInfo(name = "training_label")
     public String trainingLabel;
@@ -67,6 +72,17 @@ public class GestureDataEntity {
     @ColumnInfo(name = "user_feedback")
     public String userFeedback;
     
+    // TrajectoryCodec blobs: the full touch path and a fixed-length resampled copy
+    @ColumnInfo(name = "trajectory")
+    public byte[] trajectory;
+    
+    @ColumnInfo(name = "trajectory_resampled")
+    public byte[] trajectoryResampled;
+    
+    // True when the trajectory was rebuilt from start/end points by a migration, not recorded
+    @ColumnInfo(name = "trajectory_synthesized")
+    public boolean trajectorySynthesized;
+    
     public GestureDataEntity() {
         this.timestamp = System.currentTimeMillis();
         this.recognitionConfidence = 0.0f;
@@ -87,6 +103,37 @@ public class GestureDataEntity {
         this.velocity = calculateVelocity();
     }
     
+    /**
+     * Store a touch path of pointCount interleaved x,y coordinates
+     */
+    public void encodeTrajectory(float[] xy, int pointCount) {
+        this.trajectory = TrajectoryCodec.encodePoints(xy, pointCount);
+        this.trajectoryResampled = TrajectoryCodec.encodeResampled(xy, pointCount,
+            TrajectoryCodec.DEFAULT_RESAMPLED_POINTS);
+        this.trajectorySynthesized = false;
+    }
+    
+    /**
+     * Whether the stored trajectory is a recorded touch path usable for training
+     */
+    public boolean hasRecordedTrajectory() {
+        return trajectory != null && !trajectorySynthesized;
+    }
+    
+    /**
+     * Stored path as interleaved x,y; empty if none was recorded
+     */
+    public float[] decodeTrajectory() {
+        return TrajectoryCodec.decode(trajectory);
+    }
+    
+    /**
+     * Fixed-length resampled path (DEFAULT_RESAMPLED_POINTS x,y pairs)
+     */
+    public float[] decodeResampledTrajectory() {
+        return TrajectoryCodec.decode(trajectoryResampled);
+    }
+    
     private long calculateDuration() {
         // Placeholder - would be calculated from actual gesture timing
         return 200L;
@@ -134,8 +181,17 @@ public class GestureDataEntity {
     public float getRecognitionConfidence() { return recognitionConfidence; }
     public void setRecognitionConfidence(float recognitionConfidence) { this.recognitionConfidence = recognitionConfidence; }
     
-    public String getLandmarkData() { return landmarkData; }
-    public void setLandmarkData(String landmarkData) { this.landmarkData = landmarkData; }
+    public float[] getLandmarkData() { return landmarkData; }
+    public void setLandmarkData(float[] landmarkData) { this.landmarkData = landmarkData; }
+    
+    public byte[] getTrajectory() { return trajectory; }
+    public void setTrajectory(byte[] trajectory) { this.trajectory = trajectory; }
+    
+    public byte[] getTrajectoryResampled() { return trajectoryResampled; }
+    public void setTrajectoryResampled(byte[] trajectoryResampled) { this.trajectoryResampled = trajectoryResampled; }
+    
+    public boolean isTrajectorySynthesized() { return trajectorySynthesized; }
+    public void setTrajectorySynthesized(boolean trajectorySynthesized) { this.trajectorySynthesized = trajectorySynthesized; }
     
     public String getTrainingLabel() { return trainingLabel; }
     public void setTrainingLabel(String trainingLabel) { this.trainingLabel = trainingLabel; }
@@ -0,0 +1,39 @@
+package com.gestureai.gameautomation.database.entities;
+
+import androidx.room.ColumnInfo;
+
+import java.util.List;
+
+/**
+ * Number of actions with a given reaction time. A list of these sorted by
+ * reaction time is an exact histogram from which percentiles are read.
+ */
+public class ReactionTimeCount {
+    
+    @ColumnInfo(name = "reaction_time")
+    public long reactionTime;
+    
+    @ColumnInfo(name = "count")
+    public int count;
+    
+    /**
+     * Nearest-rank percentile (0-100) of a histogram sorted by reaction time
+     */
+    public static long percentile(List<ReactionTimeCount> histogram, double percentile) {
+        if (histogram == null || histogram.isEmpty()) return 0;
+        
+        long total = 0;
+        for (ReactionTimeCount bucket : histogram) {
+            total += bucket.count;
+        }
+        long rank = (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100.0 * total);
+        rank = Math.max(1, rank);
+        
+        long seen = 0;
+        for (ReactionTimeCount bucket : histogram) {
+            seen += bucket.count;
+            if (seen >= rank) return bucket.reactionTime;
+        }
+        return histogram.get(histogram.size() - 1).reactionTime;
+    }
+}
@@ -0,0 +1,43 @@
+package com.gestureai.gameautomation.database.entities;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Session totals and averages computed in SQL, optionally grouped by a key
+ * (game type or AI strategy) so analytics screens never load every session
+ */
+public class SessionSummary {
+    
+    @ColumnInfo(name = "group_key")
+    public String groupKey;
+    
+    @ColumnInfo(name = "session_count")
+    public int sessionCount;
+    
+    @ColumnInfo(name = "total_actions")
+    public long totalActions;
+    
+    @ColumnInfo(name = "successful_actions")
+    public long successfulActions;
+    
+    // Mean of per-session success rates, as SessionData.getSuccessRate()
+    @ColumnInfo(name = "average_success_rate")
+    public float averageSuccessRate;
+    
+    @ColumnInfo(name = "best_success_rate")
+    public float bestSuccessRate;
+    
+    @ColumnInfo(name = "average_reaction_time")
+    public float averageReactionTime;
+    
+    @ColumnInfo(name = "total_duration")
+    public long totalDuration;
+    
+    public float getOverallSuccessRate() {
+        return totalActions > 0 ? (float) successfulActions / totalActions : 0f;
+    }
+    
+    public long getAverageDuration() {
+        return sessionCount > 0 ? totalDuration / sessionCount : 0;
+    }
+}
@@ -156,6 +156,13 @@ public class GestureControllerFragment extends Fragment {
         pbGestureProcessing.setVisibility(View.VISIBLE);
         btnTrainModel.setEnabled(false);
         
+        // Gestures labelled earlier and stored in the database join this session's examples
+        patternLearningEngine.loadStoredTrainingGestures(this::startTraining);
+    }
+    
+    private void startTraining() {
+        if (patternLearningEngine == null || getActivity() == null) return;
+        
         // Connect to real model training backend
         patternLearningEngine.trainGestureModel(new PatternLearningEngine.TrainingCallback() {
             @Override
@@ -83,6 +83,7 @@ public class ObjectDetectionFragment extends Fragment {
     private void initializeComponents() {
         try {
             detectionEngine = new ObjectDetectionEngine(getContext());
+            detectionEngine.setOverlayEnabled(true);
             tfHelper = new TensorFlowLiteHelper();
             detectionResults = new ArrayList<>();
             
@@ -19,7 +19,8 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.gestureai.gameautomation.R;
 import com.gestureai.gameautomation.database.AppDatabase;
-import com.gestureai.gameautomation.database.dao.SessionDataDao;
+import com.gestureai.gameautomation.database.SessionDataDao;
+import com.gestureai.gameautomation.database.entities.SessionSummary;
 import com.gestureai.gameautomation.data.SessionData;
 import com.gestureai.gameautomation.activities.SessionAnalyticsDashboardActivity;
 import com.github.mikephil.charting.charts.LineChart;
@@ -28,8 +29,6 @@ import com.github.mikephil.charting.data.*;
 import com.github.mikephil.charting.utils.ColorTemplate;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Map;
-import java.util.HashMap;
 
 /**
  * Session Analytics & Replay System - Real-time performance monitoring
@@ -151,26 +150,19 @@ public class SessionAnalyticsFragment extends Fragment {
     private void loadAnalyticsData() {
         new Thread(() -> {
             try {
-                // Load overview statistics
-                long totalSessions = sessionDao.getSessionCount();
-                long totalActions = sessionDao.getTotalActionCount();
-                float averageSuccessRate = sessionDao.getAverageSuccessRate();
-                List<SessionEntity> sessions = sessionDao.getRecentSessions(50);
-                
-                // Calculate total play time
-                long totalPlayTime = 0;
-                for (SessionEntity session : sessions) {
-                    if (session.endTime != null) {
-                        totalPlayTime += (session.endTime - session.startTime);
-                    }
-                }
+                // Overview and game-type split are aggregated in SQL; only the
+                // visible recent sessions are loaded as rows
+                SessionSummary summary = sessionDao.getSessionSummary(0);
+                List<SessionSummary> gameTypes = sessionDao.getGameTypeSummaries(0);
+                List<SessionEntity> sessions = sessionDao.getLatestSessions(50);
                 
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(() -> {
-                        updateOverviewStats(totalSessions, totalActions, averageSuccessRate, totalPlayTime);
+                        updateOverviewStats(summary.sessionCount, summary.totalActions,
+                            summary.averageSuccessRate * 100, summary.totalDuration);
                         updateSessionsList(sessions);
                         updatePerformanceChart(sessions);
-                        updateGameTypesChart(sessions);
+                        updateGameTypesChart(gameTypes);
                     });
                 }
                 
@@ -221,17 +213,10 @@ public class SessionAnalyticsFragment extends Fragment {
         lineChartPerformance.invalidate(); // refresh
     }
     
-    private void updateGameTypesChart(List<SessionEntity> sessions) {
-        Map<String, Integer> gameTypeCounts = new HashMap<>();
-        
-        for (SessionEntity session : sessions) {
-            String gameType = session.gameType != null ? session.gameType : "Unknown";
-            gameTypeCounts.put(gameType, gameTypeCounts.getOrDefault(gameType, 0) + 1);
-        }
-        
+    private void updateGameTypesChart(List<SessionSummary> gameTypes) {
         List<PieEntry> entries = new ArrayList<>();
-        for (Map.Entry<String, Integer> entry : gameTypeCounts.entrySet()) {
-            entries.add(new PieEntry(entry.getValue(), entry.getKey()));
+        for (SessionSummary gameType : gameTypes) {
+            entries.add(new PieEntry(gameType.sessionCount, gameType.groupKey));
         }
         
         PieDataSet dataSet = new PieDataSet(entries, "Game Types");
@@ -3,26 +3,26 @@ package com.gestureai.gameautomation.managers;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
-import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.support.common.FileUtil;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Dynamic TensorFlow Lite Model Manager
  * Allows adding TFLite models even after app installation
  * Supports model selection and dynamic loading
+ *
+ * Models are loaded and run through the shared ModelRegistry, which pools
+ * interpreters with preallocated direct buffers under one memory budget and
+ * maps each distinct model file once.
  */
 public class DynamicModelManager {
     private static final String TAG = "DynamicModelManager";
@@ -36,8 +36,8 @@ public class DynamicModelManager {
     
     private Context context;
     private SharedPreferences preferences;
-    private Map<String, Interpreter> loadedModels;
     private Map<String, ModelInfo> availableModels;
+    private final ModelRegistry registry;
     
     // Critical: TensorFlow Lite version compatibility and degradation controls
     private volatile boolean tfliteDeprecated = true; // Degrade TFLite in favor of ND4J
@@ -48,8 +48,8 @@ public class DynamicModelManager {
     public DynamicModelManager(Context context) {
         this.context = context;
         this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        this.loadedModels = new HashMap<>();
-        this.availableModels = new HashMap<>();
+        this.availableModels = new ConcurrentHashMap<>();
+        this.registry = ModelRegistry.getInstance(context);
         
         // Critical: Initialize with TFLite degraded in favor of ND4J stability
         validateTensorFlowLiteCompatibility();
@@ -176,6 +176,7 @@ public class DynamicModelManager {
                         ModelInfo info = new ModelInfo(modelName, ModelLocation.ASSETS, 
                             ASSETS_MODELS_PATH + file, getModelSize(file, ModelLocation.ASSETS));
                         availableModels.put(modelName, info);
+                        registry.register(modelName, info.path, true, false);
                     }
                 }
             }
@@ -199,6 +200,7 @@ public class DynamicModelManager {
                         ModelInfo info = new ModelInfo(modelName, ModelLocation.EXTERNAL, 
                             file.getAbsolutePath(), file.length());
                         availableModels.put(modelName, info);
+                        registry.register(modelName, info.path, false, false);
                     }
                 }
             }
@@ -224,7 +226,7 @@ public class DynamicModelManager {
                 loadModel(modelName);
             }
             
-            Log.d(TAG, "Loaded " + loadedModels.size() + " models");
+            Log.d(TAG, "Loaded " + getLoadedModels().size() + " models");
             return true;
             
         } catch (Exception e) {
@@ -234,33 +236,25 @@ public class DynamicModelManager {
     }
     
     /**
-     * Load a specific model
+     * Load a specific model and warm one interpreter for it. Blocks; use
+     * loadModelAsync from constructors and startup paths.
      */
     public boolean loadModel(String modelName) {
         try {
-            if (loadedModels.containsKey(modelName)) {
+            if (registry.isReady(modelName)) {
                 Log.d(TAG, "Model already loaded: " + modelName);
                 return true;
             }
             
-            ModelInfo info = availableModels.get(modelName);
-            if (info == null) {
+            if (!availableModels.containsKey(modelName)) {
                 Log.w(TAG, "Model not found: " + modelName);
                 return false;
             }
             
-            MappedByteBuffer modelBuffer = loadModelBuffer(info);
-            if (modelBuffer == null) {
+            if (!registry.loadBlocking(modelName)) {
                 return false;
             }
             
-            Interpreter.Options options = new Interpreter.Options();
-            options.setNumThreads(4); // Optimize for performance
-            options.setUseNNAPI(true); // Use Android Neural Networks API if available
-            
-            Interpreter interpreter = new Interpreter(modelBuffer, options);
-            loadedModels.put(modelName, interpreter);
-            
             Log.d(TAG, "Successfully loaded model: " + modelName);
             return true;
             
@@ -270,39 +264,66 @@ public class DynamicModelManager {
         }
     }
     
-    private MappedByteBuffer loadModelBuffer(ModelInfo info) {
-        try {
-            if (info.location == ModelLocation.ASSETS) {
-                return FileUtil.loadMappedFile(context, info.path);
-            } else {
-                File modelFile = new File(info.path);
-                FileInputStream inputStream = new FileInputStream(modelFile);
-                FileChannel fileChannel = inputStream.getChannel();
-                long startOffset = 0;
-                long declaredLength = modelFile.length();
-                
-                MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
-                inputStream.close();
-                return buffer;
+    /**
+     * Load a model on the registry's background loader. Scans for models
+     * first if the name is not known yet. Completes false if it is missing
+     * or fails to load.
+     */
+    public CompletableFuture<Boolean> loadModelAsync(String modelName) {
+        if (!availableModels.containsKey(modelName)) {
+            scanAvailableModels();
+            if (!availableModels.containsKey(modelName)) {
+                Log.w(TAG, "Model not found: " + modelName);
+                return CompletableFuture.completedFuture(false);
             }
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading model buffer: " + info.name, e);
-            return null;
         }
+        return registry.prefetch(modelName)
+            .thenApply(hash -> true)
+            .exceptionally(e -> {
+                Log.w(TAG, "Error loading model: " + modelName, e);
+                return false;
+            });
     }
     
     /**
-     * Get loaded model interpreter
+     * Get all loaded model names
      */
-    public Interpreter getModel(String modelName) {
-        return loadedModels.get(modelName);
+    public Set<String> getLoadedModels() {
+        Set<String> loaded = new HashSet<>(registry.getLoadedModels());
+        loaded.retainAll(availableModels.keySet());
+        return loaded;
     }
     
     /**
-     * Get all loaded model names
+     * Cap on memory pinned by mapped models and interpreters
      */
-    public Set<String> getLoadedModels() {
-        return new HashSet<>(loadedModels.keySet());
+    public void setMemoryBudgetBytes(long budgetBytes) {
+        registry.setMemoryBudgetBytes(budgetBytes);
+    }
+    
+    /**
+     * Interpreters kept for a model, normally the number of threads calling it
+     */
+    public void setMaxInterpreters(String modelName, int count) {
+        registry.setMaxInterpreters(modelName, count);
+    }
+    
+    /**
+     * Higher priority models stay loaded longer under memory pressure
+     */
+    public void setModelPriority(String modelName, int priority) {
+        registry.setModelPriority(modelName, priority);
+    }
+    
+    /**
+     * Takes effect for interpreters created after the call
+     */
+    public void setInterpreterOptions(int threads, boolean nnapi) {
+        registry.setInterpreterOptions(threads, nnapi);
+    }
+    
+    public ModelRuntime.Stats getRuntimeStats() {
+        return registry.getRuntimeStats();
     }
     
     /**
@@ -339,6 +360,7 @@ public class DynamicModelManager {
                 ModelInfo info = new ModelInfo(modelName, ModelLocation.EXTERNAL, 
                     targetFile.getAbsolutePath(), targetFile.length());
                 availableModels.put(modelName, info);
+                registry.register(modelName, info.path, false, false);
                 
                 Log.d(TAG, "Added external model: " + modelName);
                 return true;
@@ -391,39 +413,42 @@ public class DynamicModelManager {
     }
     
     /**
-     * Run inference on a model
+     * Run inference on a model; null while it is still loading
      */
     public float[] runInference(String modelName, float[] input) {
+        InterpreterSession session = registry.acquire(modelName);
+        if (session == null) {
+            return null;
+        }
         try {
-            Interpreter interpreter = loadedModels.get(modelName);
-            if (interpreter == null) {
-                Log.w(TAG, "Model not loaded: " + modelName);
-                return null;
-            }
-            
-            // Prepare input and output arrays
-            float[][] inputArray = new float[1][input.length];
-            inputArray[0] = input;
-            
-            float[][] outputArray = new float[1][getModelOutputSize(interpreter)];
-            
-            // Run inference
-            interpreter.run(inputArray, outputArray);
-            
-            return outputArray[0];
-            
+            float[] output = new float[session.getOutputSize()];
+            session.run(input, output);
+            return output;
         } catch (Exception e) {
             Log.e(TAG, "Error running inference on model: " + modelName, e);
             return null;
+        } finally {
+            registry.release(modelName, session);
         }
     }
     
-    private int getModelOutputSize(Interpreter interpreter) {
+    /**
+     * Allocation-free inference for per-frame callers. Writes up to
+     * output.length values and returns how many, or -1 if the model could
+     * not be run, including while it is still loading.
+     */
+    public int runInference(String modelName, float[] input, float[] output) {
+        InterpreterSession session = registry.acquire(modelName);
+        if (session == null) {
+            return -1;
+        }
         try {
-            return interpreter.getOutputTensor(0).shape()[1];
+            return session.run(input, output);
         } catch (Exception e) {
-            Log.w(TAG, "Could not determine output size, using default");
-            return 8; // Default action space size
+            Log.e(TAG, "Error running inference on model: " + modelName, e);
+            return -1;
+        } finally {
+            registry.release(modelName, session);
         }
     }
     
@@ -431,13 +456,11 @@ public class DynamicModelManager {
      * Cleanup resources
      */
     public void cleanup() {
-        for (Interpreter interpreter : loadedModels.values()) {
-            if (interpreter != null) {
-                interpreter.close();
-            }
+        // Models are shared through the registry; only drop this manager's own
+        for (String modelName : availableModels.keySet()) {
+            registry.unload(modelName);
         }
-        loadedModels.clear();
-        Log.d(TAG, "Cleaned up model resources");
+        Log.d(TAG, "Cleaned up model resources: " + registry.getRuntimeStats());
     }
     
     // Model information class
@@ -0,0 +1,110 @@
+package com.gestureai.gameautomation.managers;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+import org.tensorflow.lite.gpu.GpuDelegate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * One TFLite interpreter with direct input and output buffers sized to its
+ * first input and output tensors, allocated on the first float run so image
+ * callers feeding their own buffers do not pay for them. Not thread-safe;
+ * ModelRuntime hands each session to one thread at a time.
+ */
+public class InterpreterSession {
+
+    private final Interpreter interpreter;
+    private final GpuDelegate gpuDelegate;
+    private ByteBuffer input;
+    private FloatBuffer inputFloats;
+    private ByteBuffer output;
+    private FloatBuffer outputFloats;
+    private final int inputSize;
+    private final int outputSize;
+
+    InterpreterSession(Interpreter interpreter) {
+        this(interpreter, null);
+    }
+
+    InterpreterSession(Interpreter interpreter, GpuDelegate gpuDelegate) {
+        this.interpreter = interpreter;
+        this.gpuDelegate = gpuDelegate;
+        Tensor inputTensor = interpreter.getInputTensor(0);
+        Tensor outputTensor = interpreter.getOutputTensor(0);
+        this.inputSize = inputTensor.numElements();
+        this.outputSize = outputTensor.numElements();
+    }
+
+    private void ensureBuffers() {
+        if (input != null) return;
+        input = ByteBuffer.allocateDirect(interpreter.getInputTensor(0).numBytes()).order(ByteOrder.nativeOrder());
+        output = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes()).order(ByteOrder.nativeOrder());
+        inputFloats = input.asFloatBuffer();
+        outputFloats = output.asFloatBuffer();
+    }
+
+    public int getInputSize() { return inputSize; }
+    public int getOutputSize() { return outputSize; }
+
+    /**
+     * For callers with their own input encoding, e.g. preprocessed images.
+     * Only valid while the session is acquired.
+     */
+    public Interpreter getInterpreter() { return interpreter; }
+
+    long getBufferBytes() {
+        return input != null ? input.capacity() + output.capacity() : 0;
+    }
+
+    /**
+     * Run on values, zero-padding a short input; copies up to out.length
+     * outputs and returns how many were copied
+     */
+    public int run(float[] values, float[] out) {
+        ensureBuffers();
+        int count = Math.min(values.length, inputSize);
+        inputFloats.clear();
+        inputFloats.put(values, 0, count);
+        for (int i = count; i < inputSize; i++) {
+            inputFloats.put(0f);
+        }
+        input.rewind();
+        output.rewind();
+        interpreter.run(input, output);
+
+        int copied = Math.min(out.length, outputSize);
+        outputFloats.clear();
+        outputFloats.get(out, 0, copied);
+        return copied;
+    }
+
+    /**
+     * One run on zeros so tensors are allocated before the first real call.
+     * Uses throwaway buffers when the float buffers have not been needed yet.
+     */
+    void warmUp() {
+        ByteBuffer in = input;
+        ByteBuffer out = output;
+        if (in == null) {
+            in = ByteBuffer.allocateDirect(interpreter.getInputTensor(0).numBytes()).order(ByteOrder.nativeOrder());
+            out = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes()).order(ByteOrder.nativeOrder());
+        } else {
+            for (int i = 0; i < in.capacity(); i++) {
+                in.put(i, (byte) 0);
+            }
+        }
+        in.rewind();
+        out.rewind();
+        interpreter.run(in, out);
+    }
+
+    void close() {
+        interpreter.close();
+        if (gpuDelegate != null) {
+            gpuDelegate.close();
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.gestureai.gameautomation.managers;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+import com.gestureai.gameautomation.GameTypeDetector;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.gpu.CompatibilityList;
+import org.tensorflow.lite.gpu.GpuDelegate;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Single owner of TFLite models for the whole app.
+ *
+ * Callers register models by name and location; nothing is read until the
+ * first prediction or a prefetch asks for it. Loading (map, hash, build and
+ * warm an interpreter) runs on a background executor, and acquire() returns
+ * null until the model is ready, so neither startup nor a frame waits on it.
+ *
+ * Models are keyed by the SHA-256 of their content: the same file registered
+ * under two names or paths is mapped once, and its interpreters come from one
+ * ModelRuntime pool under one memory budget.
+ */
+public class ModelRegistry {
+    private static final String TAG = "ModelRegistry";
+
+    private static volatile ModelRegistry instance;
+
+    private final Context context;
+    private final ExecutorService loader;
+    private final ModelRuntime<InterpreterSession> runtime;
+
+    private final Map<String, ModelSource> sources = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> loads = new ConcurrentHashMap<>();
+    private final Map<String, String> hashByName = new ConcurrentHashMap<>();
+    private final Map<String, ModelSource> sourceByHash = new ConcurrentHashMap<>();
+    private final Map<String, MappedByteBuffer> buffersByHash = new ConcurrentHashMap<>();
+    // Recorded when a hash is first loaded and kept across unloads, so the
+    // runtime charges a reloaded model its real size while it is unmapped
+    private final Map<String, Long> bytesByHash = new ConcurrentHashMap<>();
+    private final Set<String> reloading = ConcurrentHashMap.newKeySet();
+    private final List<ColdStart> coldStarts = Collections.synchronizedList(new ArrayList<>());
+    private final Map<GameTypeDetector.GameType, List<String>> gameTypeModels =
+        Collections.synchronizedMap(new EnumMap<>(GameTypeDetector.GameType.class));
+
+    // Pooled interpreters run single-threaded; concurrency comes from the pool
+    private volatile int interpreterThreads = 1;
+    private volatile boolean useNNAPI = false;
+    private volatile Boolean gpuSupported;
+
+    /**
+     * Where a model's bytes live
+     */
+    public static class ModelSource {
+        public final String path;
+        public final boolean asset;
+        public final boolean gpu;
+
+        public ModelSource(String path, boolean asset, boolean gpu) {
+            this.path = path;
+            this.asset = asset;
+            this.gpu = gpu;
+        }
+    }
+
+    /**
+     * Time from first request to a warm interpreter, split by phase
+     */
+    public static class ColdStart {
+        public final String modelName;
+        public final String hash;
+        public final long bytes;
+        public final float mapMs;
+        public final float hashMs;
+        public final float loadMs;
+        public final boolean shared;
+
+        ColdStart(String modelName, String hash, long bytes, float mapMs, float hashMs, float loadMs, boolean shared) {
+            this.modelName = modelName;
+            this.hash = hash;
+            this.bytes = bytes;
+            this.mapMs = mapMs;
+            this.hashMs = hashMs;
+            this.loadMs = loadMs;
+            this.shared = shared;
+        }
+
+        public float getTotalMs() { return mapMs + hashMs + loadMs; }
+
+        @Override
+        public String toString() {
+            return String.format("%s [%s] %d KB: map %.1f ms, hash %.1f ms, load+warm %.1f ms%s",
+                modelName, hash.substring(0, 8), bytes / 1024, mapMs, hashMs, loadMs,
+                shared ? " (shared content)" : "");
+        }
+    }
+
+    private ModelRegistry(Context context) {
+        this.context = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        this.loader = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "ModelRegistryLoader");
+            t.setDaemon(true);
+            return t;
+        });
+        this.runtime = new ModelRuntime<>(new RegistryBackend(), ModelRuntime.DEFAULT_BUDGET_BYTES);
+        registerDefaultGameTypeModels();
+    }
+
+    public static ModelRegistry getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ModelRegistry.class) {
+                if (instance == null) {
+                    instance = new ModelRegistry(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * The registry if something has created it, without creating it
+     */
+    public static ModelRegistry peekInstance() {
+        return instance;
+    }
+
+    private void registerDefaultGameTypeModels() {
+        setGameTypeModels(GameTypeDetector.GameType.BATTLE_ROYALE,
+            "player_detector", "weapon_classifier", "minimap_analyzer", "ui_detector");
+        setGameTypeModels(GameTypeDetector.GameType.FPS,
+            "player_detector", "weapon_classifier", "ui_detector");
+        setGameTypeModels(GameTypeDetector.GameType.MOBA, "minimap_analyzer", "ui_detector");
+        setGameTypeModels(GameTypeDetector.GameType.STRATEGY, "minimap_analyzer", "ui_detector");
+    }
+
+    /**
+     * Register or move a model. Re-registering a name that failed to load
+     * allows it to be retried.
+     */
+    public void register(String modelName, String path, boolean asset, boolean gpu) {
+        ModelSource previous = sources.put(modelName, new ModelSource(path, asset, gpu));
+        if (previous == null || !previous.path.equals(path)) {
+            CompletableFuture<String> load = loads.get(modelName);
+            if (load != null && load.isDone()) {
+                loads.remove(modelName);
+                hashByName.remove(modelName);
+            }
+        }
+    }
+
+    public void registerAsset(String modelName, String assetPath) {
+        register(modelName, assetPath, true, false);
+    }
+
+    public boolean isRegistered(String modelName) {
+        return sources.containsKey(modelName);
+    }
+
+    /**
+     * Models to load ahead of use once a game type is detected
+     */
+    public void setGameTypeModels(GameTypeDetector.GameType gameType, String... modelNames) {
+        gameTypeModels.put(gameType, Arrays.asList(modelNames));
+    }
+
+    /**
+     * Start loading the models the detected game type will use
+     */
+    public void prefetchForGameType(GameTypeDetector.GameType gameType) {
+        List<String> names = gameTypeModels.get(gameType);
+        if (names == null) return;
+        for (String name : names) {
+            if (sources.containsKey(name)) {
+                prefetch(name);
+            }
+        }
+        Log.d(TAG, "Prefetching models for " + gameType + ": " + names);
+    }
+
+    /**
+     * Load a model in the background; completes with its content hash,
+     * or exceptionally if it cannot be loaded. Repeated calls share one load.
+     */
+    public CompletableFuture<String> prefetch(String modelName) {
+        CompletableFuture<String> load = loads.get(modelName);
+        if (load != null) return load;
+        return loads.computeIfAbsent(modelName,
+            name -> CompletableFuture.supplyAsync(() -> loadModel(name), loader));
+    }
+
+    /**
+     * Block until the model is loaded; for explicit load requests, not frames
+     */
+    public boolean loadBlocking(String modelName) {
+        try {
+            prefetch(modelName).join();
+            String hash = hashByName.get(modelName);
+            return hash != null && (runtime.isResident(hash) || runtime.preload(hash));
+        } catch (Exception e) {
+            Log.w(TAG, "Model failed to load: " + modelName, e);
+            return false;
+        }
+    }
+
+    public boolean isReady(String modelName) {
+        String hash = hashByName.get(modelName);
+        return hash != null && runtime.isResident(hash);
+    }
+
+    /**
+     * Borrow an interpreter for one inference. Returns null, and starts the
+     * load, if the model is not resident yet; the caller skips or falls back.
+     */
+    public InterpreterSession acquire(String modelName) {
+        String hash = hashByName.get(modelName);
+        if (hash == null) {
+            if (sources.containsKey(modelName)) prefetch(modelName);
+            return null;
+        }
+        if (!runtime.isResident(hash)) {
+            // Evicted under memory pressure: reload off the caller's thread
+            if (reloading.add(hash)) {
+                loader.execute(() -> {
+                    try {
+                        runtime.preload(hash);
+                    } finally {
+                        reloading.remove(hash);
+                    }
+                });
+            }
+            return null;
+        }
+        return runtime.acquire(hash);
+    }
+
+    public void release(String modelName, InterpreterSession session) {
+        String hash = hashByName.get(modelName);
+        if (hash != null) {
+            runtime.release(hash, session);
+        }
+    }
+
+    /**
+     * Shared read-only mapping of a model, for callers that build their own
+     * specially shaped interpreter (e.g. a batch-resized one). Blocks on load.
+     */
+    public MappedByteBuffer getMappedModel(String modelName) throws IOException {
+        try {
+            String hash = prefetch(modelName).join();
+            MappedByteBuffer buffer = buffersByHash.get(hash);
+            if (buffer == null) {
+                buffer = map(sourceByHash.get(hash));
+                MappedByteBuffer existing = buffersByHash.putIfAbsent(hash, buffer);
+                if (existing != null) buffer = existing;
+            }
+            return buffer;
+        } catch (RuntimeException e) {
+            throw new IOException("Model unavailable: " + modelName, e);
+        }
+    }
+
+    private String loadModel(String modelName) {
+        ModelSource source = sources.get(modelName);
+        if (source == null) {
+            throw new IllegalArgumentException("Model not registered: " + modelName);
+        }
+        try {
+            long start = System.nanoTime();
+            MappedByteBuffer buffer = map(source);
+            long mapped = System.nanoTime();
+            String hash = sha256(buffer);
+            long hashed = System.nanoTime();
+
+            boolean shared = sourceByHash.putIfAbsent(hash, source) != null;
+            bytesByHash.put(hash, (long) buffer.capacity());
+            buffersByHash.putIfAbsent(hash, buffer);
+            hashByName.put(modelName, hash);
+
+            boolean resident = runtime.isResident(hash) || runtime.preload(hash);
+            long loaded = System.nanoTime();
+            if (!resident) {
+                hashByName.remove(modelName);
+                throw new IllegalStateException("Interpreter could not be created for " + modelName);
+            }
+
+            ColdStart coldStart = new ColdStart(modelName, hash, buffer.capacity(),
+                (mapped - start) / 1e6f, (hashed - mapped) / 1e6f, (loaded - hashed) / 1e6f, shared);
+            coldStarts.add(coldStart);
+            Log.d(TAG, "Cold start " + coldStart);
+            return hash;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            Log.w(TAG, "Failed to load model " + modelName + " from " + source.path, e);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MappedByteBuffer map(ModelSource source) throws IOException {
+        if (source.asset) {
+            try (AssetFileDescriptor fd = context.getAssets().openFd(source.path);
+                 FileInputStream in = new FileInputStream(fd.getFileDescriptor())) {
+                return in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    fd.getStartOffset(), fd.getDeclaredLength());
+            }
+        }
+        File file = new File(source.path);
+        try (FileInputStream in = new FileInputStream(file)) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        }
+    }
+
+    private static String sha256(ByteBuffer buffer) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(buffer.duplicate());
+        byte[] bytes = digest.digest();
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    public void setMemoryBudgetBytes(long budgetBytes) {
+        runtime.setBudgetBytes(budgetBytes);
+    }
+
+    /**
+     * Pool size for a loaded model; applied once its content hash is known
+     */
+    public void setMaxInterpreters(String modelName, int count) {
+        prefetch(modelName).thenAccept(hash -> runtime.setMaxSessions(hash, count));
+    }
+
+    public void setModelPriority(String modelName, int priority) {
+        prefetch(modelName).thenAccept(hash -> runtime.setPriority(hash, priority));
+    }
+
+    /**
+     * Takes effect for interpreters created after the call
+     */
+    public void setInterpreterOptions(int threads, boolean nnapi) {
+        this.interpreterThreads = Math.max(1, threads);
+        this.useNNAPI = nnapi;
+    }
+
+    public Set<String> getLoadedModels() {
+        Set<String> loaded = ConcurrentHashMap.newKeySet();
+        for (Map.Entry<String, String> entry : hashByName.entrySet()) {
+            if (runtime.isResident(entry.getValue())) loaded.add(entry.getKey());
+        }
+        return loaded;
+    }
+
+    public List<ColdStart> getColdStarts() {
+        synchronized (coldStarts) {
+            return new ArrayList<>(coldStarts);
+        }
+    }
+
+    public ModelRuntime.Stats getRuntimeStats() {
+        return runtime.getStats();
+    }
+
+    /**
+     * Unload a model's idle interpreters; it reloads on next use
+     */
+    public void unload(String modelName) {
+        String hash = hashByName.get(modelName);
+        if (hash != null) runtime.evict(hash);
+    }
+
+    /**
+     * Unload every model; interpreters in use close as they are returned.
+     * Limits from setMaxInterpreters and setModelPriority still apply on reload.
+     */
+    public void unloadAll() {
+        runtime.close();
+        buffersByHash.clear();
+    }
+
+    private boolean isGpuSupported() {
+        Boolean supported = gpuSupported;
+        if (supported == null) {
+            try {
+                supported = new CompatibilityList().isDelegateSupportedOnThisDevice();
+            } catch (Throwable t) {
+                supported = false;
+            }
+            gpuSupported = supported;
+        }
+        return supported;
+    }
+
+    /**
+     * Interpreters built from the shared mapping of each content hash
+     */
+    private class RegistryBackend implements ModelRuntime.Backend<InterpreterSession> {
+
+        @Override
+        public long modelBytes(String hash) {
+            Long bytes = bytesByHash.get(hash);
+            return bytes != null ? bytes : 0;
+        }
+
+        // The Java API does not expose arena size; estimate it as one model
+        @Override
+        public long sessionBytes(String hash) {
+            return modelBytes(hash);
+        }
+
+        @Override
+        public InterpreterSession createSession(String hash) throws IOException {
+            MappedByteBuffer buffer = buffersByHash.get(hash);
+            ModelSource source = sourceByHash.get(hash);
+            if (buffer == null) {
+                if (source == null) throw new IOException("Unknown model " + hash);
+                buffer = map(source);
+                MappedByteBuffer existing = buffersByHash.putIfAbsent(hash, buffer);
+                if (existing != null) buffer = existing;
+            }
+
+            Interpreter.Options options = new Interpreter.Options();
+            options.setNumThreads(interpreterThreads);
+            options.setUseNNAPI(useNNAPI);
+            GpuDelegate gpuDelegate = null;
+            if (source != null && source.gpu && isGpuSupported()) {
+                gpuDelegate = new GpuDelegate(new CompatibilityList().getBestOptionsForThisDevice());
+                options.addDelegate(gpuDelegate);
+            }
+            try {
+                return new InterpreterSession(new Interpreter(buffer, options), gpuDelegate);
+            } catch (RuntimeException e) {
+                if (gpuDelegate != null) gpuDelegate.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void warmUp(InterpreterSession session) {
+            session.warmUp();
+        }
+
+        @Override
+        public void closeSession(InterpreterSession session) {
+            session.close();
+        }
+
+        @Override
+        public void releaseModel(String hash) {
+            buffersByHash.remove(hash);
+        }
+    }
+}
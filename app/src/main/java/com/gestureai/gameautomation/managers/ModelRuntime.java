@@ -0,0 +1,405 @@
+package com.gestureai.gameautomation.managers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-model pools of inference sessions (an interpreter plus its
+ * preallocated input/output buffers) under a shared memory budget.
+ *
+ * A session is used by one thread at a time: acquire, run, release. Each
+ * model's pool grows on demand up to its max sessions; past that callers
+ * wait up to the acquire timeout for a release. Memory is charged per model
+ * (its mapped file) and per session (arena and buffers). When a load would
+ * exceed the budget, idle sessions of the lowest priority, least recently
+ * used models are closed first; a model whose last session is closed is
+ * unmapped and reloaded transparently on its next acquire. Sessions in use
+ * are never evicted, so a load that cannot make room still proceeds if the
+ * model has no session at all, and is counted as over budget.
+ *
+ * Sessions are created outside the lock so a cold load of one model does
+ * not stall inference on the others.
+ *
+ * Pure Java (no android.* types) so it can be unit tested on any JVM.
+ */
+public class ModelRuntime<S> {
+
+    public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_MAX_SESSIONS = 2;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 50;
+
+    /**
+     * Loads and runs one kind of model session
+     */
+    public interface Backend<S> {
+        /** Bytes the model pins once however many sessions it has, e.g. its mapped file */
+        long modelBytes(String modelName);
+
+        /** Estimated bytes each session pins beyond the model: arena and I/O buffers */
+        long sessionBytes(String modelName);
+
+        /** Cold path: map the model if needed and build a session */
+        S createSession(String modelName) throws Exception;
+
+        /** One inference on zero input so the first real call does not pay for allocation */
+        void warmUp(S session) throws Exception;
+
+        void closeSession(S session);
+
+        /** Drop the model mapping; called once its last session is closed */
+        void releaseModel(String modelName);
+    }
+
+    private static class ModelEntry<S> {
+        final String name;
+        final ArrayDeque<S> idle = new ArrayDeque<>();
+        final long modelBytes;
+        final long sessionBytes;
+        int sessions; // open or being created
+        int inUse;
+        int orphans; // checked out across close(), closed as they return
+        int maxSessions;
+        int priority;
+        long lastUse;
+
+        ModelEntry(String name, long modelBytes, long sessionBytes, int maxSessions) {
+            this.name = name;
+            this.modelBytes = modelBytes;
+            this.sessionBytes = sessionBytes;
+            this.maxSessions = maxSessions;
+        }
+    }
+
+    private final Backend<S> backend;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private final Map<String, ModelEntry<S>> models = new HashMap<>();
+    private long budgetBytes;
+    private long residentBytes;
+    private long useTick;
+    private int defaultMaxSessions = DEFAULT_MAX_SESSIONS;
+    private long acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_ACQUIRE_TIMEOUT_MS);
+    private long coldLoads;
+    private long failedLoads;
+    private long evictions;
+    private long acquireTimeouts;
+    private long overBudgetLoads;
+    private long coldLoadNanosTotal;
+    private long coldLoadNanosMax;
+    private long warmUpNanosTotal;
+    private long warmUpNanosMax;
+
+    public ModelRuntime(Backend<S> backend, long budgetBytes) {
+        this.backend = backend;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Borrow a session, loading the model if it is not resident.
+     * Returns null if loading fails or none is free within the acquire timeout.
+     */
+    public S acquire(String modelName) {
+        ModelEntry<S> entry;
+        long charge;
+        synchronized (lock) {
+            entry = entryFor(modelName);
+            long deadline = System.nanoTime() + acquireTimeoutNanos;
+            while (true) {
+                entry.lastUse = ++useTick;
+                S session = entry.idle.pollFirst();
+                if (session != null) {
+                    entry.inUse++;
+                    return session;
+                }
+                if (entry.sessions < entry.maxSessions) {
+                    charge = entry.sessionBytes + (entry.sessions == 0 ? entry.modelBytes : 0);
+                    if (makeRoom(charge) || entry.sessions == 0) {
+                        if (residentBytes + charge > budgetBytes) overBudgetLoads++;
+                        residentBytes += charge;
+                        entry.sessions++;
+                        entry.inUse++;
+                        break;
+                    }
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    acquireTimeouts++;
+                    return null;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+        return createSession(entry, charge);
+    }
+
+    /**
+     * Return a session taken with acquire
+     */
+    public void release(String modelName, S session) {
+        if (session == null) return;
+        synchronized (lock) {
+            ModelEntry<S> entry = models.get(modelName);
+            if (entry == null) {
+                // Not acquired from this runtime
+                backend.closeSession(session);
+                return;
+            }
+            entry.inUse--;
+            if (entry.orphans > 0) {
+                entry.orphans--;
+                entry.idle.addFirst(session);
+                closeIdleSession(entry);
+            } else {
+                entry.idle.addFirst(session);
+                if (entry.sessions > entry.maxSessions || residentBytes > budgetBytes) {
+                    trimIdle();
+                }
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Load one warm session so the first frame does not pay the cold load
+     */
+    public boolean preload(String modelName) {
+        S session = acquire(modelName);
+        if (session == null) return false;
+        release(modelName, session);
+        return true;
+    }
+
+    private S createSession(ModelEntry<S> entry, long charge) {
+        long start = System.nanoTime();
+        S session = null;
+        try {
+            session = backend.createSession(entry.name);
+            long loaded = System.nanoTime();
+            backend.warmUp(session);
+            long warm = System.nanoTime();
+            synchronized (lock) {
+                coldLoads++;
+                coldLoadNanosTotal += loaded - start;
+                coldLoadNanosMax = Math.max(coldLoadNanosMax, loaded - start);
+                warmUpNanosTotal += warm - loaded;
+                warmUpNanosMax = Math.max(warmUpNanosMax, warm - loaded);
+            }
+            return session;
+        } catch (Exception e) {
+            if (session != null) backend.closeSession(session);
+            synchronized (lock) {
+                failedLoads++;
+                residentBytes -= charge;
+                entry.sessions--;
+                entry.inUse--;
+                entry.orphans = Math.min(entry.orphans, entry.inUse);
+                if (entry.sessions == 0) backend.releaseModel(entry.name);
+                lock.notifyAll();
+            }
+            return null;
+        }
+    }
+
+    private ModelEntry<S> entryFor(String modelName) {
+        ModelEntry<S> entry = models.get(modelName);
+        if (entry == null) {
+            entry = new ModelEntry<>(modelName, backend.modelBytes(modelName),
+                    backend.sessionBytes(modelName), defaultMaxSessions);
+            models.put(modelName, entry);
+        }
+        return entry;
+    }
+
+    // Caller holds lock. Evicts idle sessions until charge fits; false if it cannot.
+    private boolean makeRoom(long charge) {
+        while (residentBytes + charge > budgetBytes) {
+            ModelEntry<S> victim = pickVictim();
+            if (victim == null) return false;
+            evictIdle(victim);
+        }
+        return true;
+    }
+
+    // Caller holds lock. Brings pools back under their limits and the budget.
+    private void trimIdle() {
+        for (ModelEntry<S> entry : models.values()) {
+            while (entry.sessions > entry.maxSessions && !entry.idle.isEmpty()) {
+                closeIdleSession(entry);
+            }
+        }
+        makeRoom(0);
+    }
+
+    private ModelEntry<S> pickVictim() {
+        ModelEntry<S> victim = null;
+        for (ModelEntry<S> entry : models.values()) {
+            if (entry.idle.isEmpty()) continue;
+            if (victim == null || entry.priority < victim.priority
+                    || (entry.priority == victim.priority && entry.lastUse < victim.lastUse)) {
+                victim = entry;
+            }
+        }
+        return victim;
+    }
+
+    private void evictIdle(ModelEntry<S> entry) {
+        while (!entry.idle.isEmpty()) {
+            closeIdleSession(entry);
+        }
+        evictions++;
+    }
+
+    private void closeIdleSession(ModelEntry<S> entry) {
+        backend.closeSession(entry.idle.pollFirst());
+        entry.sessions--;
+        residentBytes -= entry.sessionBytes;
+        if (entry.sessions == 0) {
+            residentBytes -= entry.modelBytes;
+            backend.releaseModel(entry.name);
+        }
+    }
+
+    /**
+     * Close a model's idle sessions now; sessions in use close as they return
+     * if the model is still over its limit
+     */
+    public void evict(String modelName) {
+        synchronized (lock) {
+            ModelEntry<S> entry = models.get(modelName);
+            if (entry != null && !entry.idle.isEmpty()) evictIdle(entry);
+        }
+    }
+
+    /**
+     * Close every idle session and unload all models. Sessions in use are
+     * closed as they are released. Per-model max sessions and priority are
+     * kept for the next load.
+     */
+    public void close() {
+        synchronized (lock) {
+            for (ModelEntry<S> entry : models.values()) {
+                while (!entry.idle.isEmpty()) {
+                    closeIdleSession(entry);
+                }
+                entry.orphans = entry.inUse;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    public void setBudgetBytes(long budgetBytes) {
+        synchronized (lock) {
+            this.budgetBytes = budgetBytes;
+            trimIdle();
+        }
+    }
+
+    public void setDefaultMaxSessions(int maxSessions) {
+        synchronized (lock) {
+            this.defaultMaxSessions = Math.max(1, maxSessions);
+        }
+    }
+
+    /**
+     * Pool size for one model, normally the number of threads that run it
+     */
+    public void setMaxSessions(String modelName, int maxSessions) {
+        synchronized (lock) {
+            entryFor(modelName).maxSessions = Math.max(1, maxSessions);
+            trimIdle();
+        }
+    }
+
+    /**
+     * Higher priority models are evicted last
+     */
+    public void setPriority(String modelName, int priority) {
+        synchronized (lock) {
+            entryFor(modelName).priority = priority;
+        }
+    }
+
+    public void setAcquireTimeoutMs(long timeoutMs) {
+        synchronized (lock) {
+            this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMs));
+        }
+    }
+
+    public boolean isResident(String modelName) {
+        synchronized (lock) {
+            ModelEntry<S> entry = models.get(modelName);
+            return entry != null && entry.sessions > 0;
+        }
+    }
+
+    public List<String> getResidentModels() {
+        synchronized (lock) {
+            List<String> resident = new ArrayList<>();
+            for (ModelEntry<S> entry : models.values()) {
+                if (entry.sessions > 0) resident.add(entry.name);
+            }
+            return resident;
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (lock) {
+            Stats stats = new Stats();
+            stats.budgetBytes = budgetBytes;
+            stats.residentBytes = residentBytes;
+            for (ModelEntry<S> entry : models.values()) {
+                if (entry.sessions > 0) stats.residentModels++;
+                stats.openSessions += entry.sessions;
+                stats.sessionsInUse += entry.inUse;
+            }
+            stats.coldLoads = coldLoads;
+            stats.failedLoads = failedLoads;
+            stats.evictions = evictions;
+            stats.acquireTimeouts = acquireTimeouts;
+            stats.overBudgetLoads = overBudgetLoads;
+            stats.avgColdLoadMs = coldLoads > 0 ? coldLoadNanosTotal / (coldLoads * 1_000_000f) : 0f;
+            stats.maxColdLoadMs = coldLoadNanosMax / 1_000_000f;
+            stats.avgWarmUpMs = coldLoads > 0 ? warmUpNanosTotal / (coldLoads * 1_000_000f) : 0f;
+            stats.maxWarmUpMs = warmUpNanosMax / 1_000_000f;
+            return stats;
+        }
+    }
+
+    public static class Stats {
+        public long budgetBytes;
+        public long residentBytes;
+        public int residentModels;
+        public int openSessions;
+        public int sessionsInUse;
+        public long coldLoads;
+        public long failedLoads;
+        public long evictions;
+        public long acquireTimeouts;
+        public long overBudgetLoads;
+        public float avgColdLoadMs;
+        public float maxColdLoadMs;
+        public float avgWarmUpMs;
+        public float maxWarmUpMs;
+
+        @Override
+        public String toString() {
+            return String.format("%d models, %d sessions (%d in use), %.1f/%.1f MB; "
+                            + "cold loads %d (avg %.2f ms, max %.2f ms), warm-up avg %.2f ms, max %.2f ms; "
+                            + "evictions %d, timeouts %d, over budget %d, failed %d",
+                    residentModels, openSessions, sessionsInUse,
+                    residentBytes / (1024f * 1024f), budgetBytes / (1024f * 1024f),
+                    coldLoads, avgColdLoadMs, maxColdLoadMs, avgWarmUpMs, maxWarmUpMs,
+                    evictions, acquireTimeouts, overBudgetLoads, failedLoads);
+        }
+    }
+}
@@ -2,25 +2,69 @@ package com.gestureai.gameautomation.messaging;
 
 import android.os.Handler;
 import android.os.Looper;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Thread-safe event bus for cross-component communication
  * Handles AI component synchronization and service coordination
+ *
+ * Subscribers are kept in copy-on-write arrays indexed by a per-event-class
+ * id assigned once when the event is constructed, so post() takes no lock and
+ * allocates nothing. Each subscriber picks a delivery mode: inline on the
+ * posting thread, a background lane, the main thread, or latest-value
+ * conflation on the main thread. Queued modes use a bounded per-subscriber
+ * queue that drops the oldest event when full and counts the drop, so a slow
+ * subscriber never stalls the thread that posted.
  */
 public class EventBus {
     
     private static final String TAG = "EventBus";
     private static volatile EventBus instance;
     
-    private final Map<Class<?>, List<EventSubscriber<?>>> subscribers;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    
+    public enum DeliveryMode {
+        /** Called on the posting thread before post() returns */
+        INLINE,
+        /** Queued and delivered in order on the shared background lane */
+        BACKGROUND,
+        /** Queued and delivered in order on the main thread */
+        MAIN_THREAD,
+        /** Only the newest undelivered event is kept; delivered on the main thread */
+        LATEST
+    }
+    
+    // Event class -> dense id, assigned on first use and never reused
+    private static final Map<Class<?>, Integer> typeIds = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextTypeId = new AtomicInteger();
+    
+    static int typeIdOf(Class<?> eventType) {
+        Integer id = typeIds.get(eventType);
+        if (id == null) {
+            id = typeIds.computeIfAbsent(eventType, k -> nextTypeId.getAndIncrement());
+        }
+        return id;
+    }
+    
+    // Subscription[typeId] -> subscribers; replaced wholesale on every change
+    private volatile Subscription[][] subscriptionsByType = new Subscription[16][];
+    private final Object registryLock = new Object();
+    
     private final Handler mainHandler;
+    private final Lane backgroundLane = new Lane("background");
+    private final Lane mainLane = new Lane("main");
+    private volatile Thread backgroundThread;
+    private final BlockingQueue<Subscription> backgroundReady = new ArrayBlockingQueue<>(1024);
     
     private EventBus() {
-        this.subscribers = new ConcurrentHashMap<>();
         this.mainHandler = new Handler(Looper.getMainLooper());
     }
     
@@ -36,11 +80,155 @@ public class EventBus {
     }
     
     /**
-     * Subscribe to events of a specific type
+     * Delivery statistics for one lane
+     */
+    public static class Lane {
+        public final String name;
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong conflated = new AtomicLong();
+        
+        Lane(String name) {
+            this.name = name;
+        }
+        
+        public long getDeliveredCount() { return delivered.get(); }
+        public long getDroppedCount() { return dropped.get(); }
+        public long getConflatedCount() { return conflated.get(); }
+        
+        @Override
+        public String toString() {
+            return name + ": delivered " + delivered.get() + ", dropped " + dropped.get()
+                + ", conflated " + conflated.get();
+        }
+    }
+    
+    /**
+     * One subscriber registration; also the Runnable that drains its queue
+     */
+    private final class Subscription implements Runnable {
+        final int typeId;
+        final EventSubscriber<BaseEvent> subscriber;
+        final DeliveryMode mode;
+        final Lane lane;
+        final BlockingQueue<BaseEvent> pending;
+        final AtomicReference<BaseEvent> latest;
+        final AtomicBoolean scheduled = new AtomicBoolean(false);
+        final AtomicLong dropped = new AtomicLong();
+        volatile boolean active = true;
+        
+        @SuppressWarnings("unchecked")
+        Subscription(int typeId, EventSubscriber<?> subscriber, DeliveryMode mode, int capacity) {
+            this.typeId = typeId;
+            this.subscriber = (EventSubscriber<BaseEvent>) subscriber;
+            this.mode = mode;
+            this.lane = mode == DeliveryMode.BACKGROUND ? backgroundLane : mainLane;
+            this.pending = mode == DeliveryMode.BACKGROUND || mode == DeliveryMode.MAIN_THREAD
+                ? new ArrayBlockingQueue<>(Math.max(1, capacity)) : null;
+            this.latest = mode == DeliveryMode.LATEST ? new AtomicReference<>() : null;
+        }
+        
+        void deliver(BaseEvent event) {
+            switch (mode) {
+                case INLINE:
+                    invoke(event);
+                    break;
+                case LATEST:
+                    if (latest.getAndSet(event) != null) {
+                        lane.conflated.incrementAndGet();
+                    }
+                    schedule();
+                    break;
+                default:
+                    while (!pending.offer(event)) {
+                        // Full: drop the oldest so the newest state gets through
+                        if (pending.poll() != null) {
+                            dropped.incrementAndGet();
+                            lane.dropped.incrementAndGet();
+                        }
+                    }
+                    schedule();
+                    break;
+            }
+        }
+        
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) return;
+            if (mode == DeliveryMode.BACKGROUND) {
+                ensureBackgroundThread();
+                if (!backgroundReady.offer(this)) {
+                    scheduled.set(false);
+                    android.util.Log.w(TAG, "Background lane saturated");
+                }
+            } else {
+                mainHandler.post(this);
+            }
+        }
+        
+        @Override
+        public void run() {
+            scheduled.set(false);
+            if (mode == DeliveryMode.LATEST) {
+                BaseEvent event = latest.getAndSet(null);
+                if (event != null) invoke(event);
+                return;
+            }
+            BaseEvent event;
+            while ((event = pending.poll()) != null) {
+                invoke(event);
+            }
+        }
+        
+        private void invoke(BaseEvent event) {
+            if (!active) return;
+            try {
+                subscriber.onEvent(event);
+                lane.delivered.incrementAndGet();
+            } catch (ClassCastException e) {
+                android.util.Log.e(TAG, "Type mismatch in event routing for: " + event.getClass().getSimpleName(), e);
+                removeSubscription(this);
+            } catch (Exception e) {
+                android.util.Log.e(TAG, "Error processing event: " + event.getClass().getSimpleName(), e);
+            }
+        }
+    }
+    
+    /**
+     * Subscribe to events of a specific type, delivered inline on the posting thread
      */
     public <T extends BaseEvent> void subscribe(Class<T> eventType, EventSubscriber<T> subscriber) {
-        synchronized (subscribers) {
-            subscribers.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>()).add(subscriber);
+        subscribe(eventType, subscriber, DeliveryMode.INLINE, DEFAULT_QUEUE_CAPACITY);
+    }
+    
+    public <T extends BaseEvent> void subscribe(Class<T> eventType, EventSubscriber<T> subscriber, DeliveryMode mode) {
+        subscribe(eventType, subscriber, mode, DEFAULT_QUEUE_CAPACITY);
+    }
+    
+    /**
+     * Subscribe with a delivery mode; queueCapacity bounds BACKGROUND and MAIN_THREAD queues
+     */
+    public <T extends BaseEvent> void subscribe(Class<T> eventType, EventSubscriber<T> subscriber,
+                                                DeliveryMode mode, int queueCapacity) {
+        if (eventType == null || subscriber == null) return;
+        int typeId = typeIdOf(eventType);
+        Subscription subscription = new Subscription(typeId, subscriber, mode, queueCapacity);
+        
+        synchronized (registryLock) {
+            Subscription[][] table = subscriptionsByType;
+            if (typeId >= table.length) {
+                table = Arrays.copyOf(table, Math.max(typeId + 1, table.length * 2));
+            } else {
+                table = table.clone();
+            }
+            Subscription[] current = table[typeId];
+            if (current == null) {
+                table[typeId] = new Subscription[]{subscription};
+            } else {
+                Subscription[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = subscription;
+                table[typeId] = updated;
+            }
+            subscriptionsByType = table;
         }
     }
     
@@ -48,19 +236,51 @@ public class EventBus {
      * Unsubscribe from events
      */
     public <T extends BaseEvent> void unsubscribe(Class<T> eventType, EventSubscriber<T> subscriber) {
-        synchronized (subscribers) {
-            List<EventSubscriber<?>> eventSubscribers = subscribers.get(eventType);
-            if (eventSubscribers != null) {
-                eventSubscribers.remove(subscriber);
-                if (eventSubscribers.isEmpty()) {
-                    subscribers.remove(eventType);
+        if (eventType == null || subscriber == null) return;
+        int typeId = typeIdOf(eventType);
+        synchronized (registryLock) {
+            Subscription[][] table = subscriptionsByType;
+            if (typeId >= table.length || table[typeId] == null) return;
+            for (Subscription subscription : table[typeId]) {
+                if (subscription.subscriber == subscriber) {
+                    removeSubscription(subscription);
+                    return;
                 }
             }
         }
     }
     
+    private void removeSubscription(Subscription subscription) {
+        synchronized (registryLock) {
+            subscription.active = false;
+            Subscription[][] table = subscriptionsByType;
+            Subscription[] current = subscription.typeId < table.length ? table[subscription.typeId] : null;
+            if (current == null) return;
+            
+            int index = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == subscription) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) return;
+            
+            Subscription[] updated = null;
+            if (current.length > 1) {
+                updated = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, index);
+                System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            }
+            table = table.clone();
+            table[subscription.typeId] = updated;
+            subscriptionsByType = table;
+        }
+    }
+    
     /**
-     * Post event to all subscribers with message corruption prevention
+     * Post event to all subscribers. Lock-free and allocation-free for inline
+     * subscribers; queued subscribers never block the caller.
      */
     public <T extends BaseEvent> void post(T event) {
         if (event == null) {
@@ -68,34 +288,15 @@ public class EventBus {
             return;
         }
         
-        // Create immutable snapshot of subscribers to prevent concurrent modification
-        List<EventSubscriber<?>> eventSubscribers;
-        synchronized (subscribers) {
-            List<EventSubscriber<?>> originalList = subscribers.get(event.getClass());
-            if (originalList == null || originalList.isEmpty()) {
-                return;
-            }
-            eventSubscribers = new java.util.ArrayList<>(originalList);
-        }
-        
-        // Process subscribers with corruption detection
-        for (EventSubscriber<?> subscriber : eventSubscribers) {
-            if (subscriber != null) {
-                try {
-                    // Validate subscriber before processing
-                    if (isValidSubscriber(subscriber)) {
-                        ((EventSubscriber<T>) subscriber).onEvent(event);
-                    } else {
-                        android.util.Log.w(TAG, "Invalid subscriber detected and skipped");
-                        removeInvalidSubscriber(event.getClass(), subscriber);
-                    }
-                } catch (ClassCastException e) {
-                    android.util.Log.e(TAG, "Type mismatch in event routing for: " + event.getClass().getSimpleName(), e);
-                    removeInvalidSubscriber(event.getClass(), subscriber);
-                } catch (Exception e) {
-                    android.util.Log.e(TAG, "Error processing event: " + event.getClass().getSimpleName(), e);
-                }
-            }
+        // The array is never mutated after publication, so iterating it is safe
+        Subscription[][] table = subscriptionsByType;
+        int typeId = event.typeId;
+        if (typeId >= table.length) return;
+        Subscription[] eventSubscribers = table[typeId];
+        if (eventSubscribers == null) return;
+        
+        for (Subscription subscription : eventSubscribers) {
+            subscription.deliver(event);
         }
     }
     
@@ -111,40 +312,59 @@ public class EventBus {
     }
     
     /**
-     * Validate subscriber to prevent message corruption
+     * True if anyone is subscribed to this event type; lets high-rate posters
+     * skip building events nobody listens to
      */
-    private boolean isValidSubscriber(EventSubscriber<?> subscriber) {
-        try {
-            // Check if subscriber is still valid (not garbage collected weakly referenced object)
-            return subscriber != null && subscriber.getClass() != null;
-        } catch (Exception e) {
-            android.util.Log.w(TAG, "Subscriber validation failed", e);
-            return false;
-        }
+    public boolean hasSubscribers(Class<? extends BaseEvent> eventType) {
+        int typeId = typeIdOf(eventType);
+        Subscription[][] table = subscriptionsByType;
+        return typeId < table.length && table[typeId] != null;
     }
     
-    /**
-     * Remove invalid subscriber to maintain routing integrity
-     */
-    private void removeInvalidSubscriber(Class<?> eventType, EventSubscriber<?> invalidSubscriber) {
-        synchronized (subscribers) {
-            List<EventSubscriber<?>> eventSubscribers = subscribers.get(eventType);
-            if (eventSubscribers != null) {
-                eventSubscribers.remove(invalidSubscriber);
-                if (eventSubscribers.isEmpty()) {
-                    subscribers.remove(eventType);
+    private void ensureBackgroundThread() {
+        if (backgroundThread != null) return;
+        synchronized (registryLock) {
+            if (backgroundThread != null) return;
+            Thread thread = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    try {
+                        backgroundReady.take().run();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
                 }
-                android.util.Log.d(TAG, "Removed invalid subscriber for event type: " + eventType.getSimpleName());
-            }
+            }, "EventBus-background");
+            thread.setDaemon(true);
+            thread.start();
+            backgroundThread = thread;
         }
     }
     
+    public Lane getBackgroundLane() {
+        return backgroundLane;
+    }
+    
+    public Lane getMainLane() {
+        return mainLane;
+    }
+    
+    public String getStats() {
+        return backgroundLane + "; " + mainLane;
+    }
+    
     /**
      * Clear all subscribers for cleanup
      */
     public void clearAllSubscribers() {
-        synchronized (subscribers) {
-            subscribers.clear();
+        synchronized (registryLock) {
+            for (Subscription[] subscriptions : subscriptionsByType) {
+                if (subscriptions == null) continue;
+                for (Subscription subscription : subscriptions) {
+                    subscription.active = false;
+                }
+            }
+            subscriptionsByType = new Subscription[subscriptionsByType.length][];
+            backgroundReady.clear();
             android.util.Log.d(TAG, "All event subscribers cleared");
         }
     }
@@ -157,10 +377,12 @@ public class EventBus {
     public abstract static class BaseEvent {
         public final long timestamp;
         public final String source;
+        final int typeId;
         
         public BaseEvent(String source) {
             this.timestamp = System.currentTimeMillis();
             this.source = source;
+            this.typeId = typeIdOf(getClass());
         }
     }
     
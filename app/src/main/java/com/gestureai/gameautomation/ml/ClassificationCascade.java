@@ -0,0 +1,362 @@
+package com.gestureai.gameautomation.ml;
+
+import com.gestureai.gameautomation.utils.ImagePreprocessor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Category → type → object classification for all regions of a frame.
+ *
+ * Each stage makes one batched call per model: every pending region goes
+ * through the category model together, then regions are grouped by
+ * predicted category for one call per type model, and by category and type
+ * for one call per object model. A region whose category or type is below
+ * threshold stops there. Results are memoized per tracked region and reused
+ * until the region has been classified refreshFrames frames ago; regions
+ * left unknown are retried every frame so models still loading do not pin
+ * them. Without caller track ids, regions are matched to the previous frame
+ * by box overlap. Pixels are read through a RowSource, so a stage fetches
+ * only the rows of the regions it classifies, never the whole frame.
+ *
+ * Pure Java (no android.* types) so it can be unit tested on any JVM.
+ */
+public class ClassificationCascade {
+
+    public static final String CATEGORY_MODEL = "category_classifier";
+    public static final String UNKNOWN_CATEGORY = "unknown";
+    public static final String DEFAULT_TYPE = "default";
+
+    private static final String[] STAGE_NAMES = {"category", "type", "object"};
+    private static final int STAGE_CATEGORY = 0;
+    private static final int STAGE_TYPE = 1;
+    private static final int STAGE_OBJECT = 2;
+
+    /**
+     * Runs one model over many regions of a frame
+     */
+    public interface BatchClassifier {
+        /**
+         * Region i is boxes[regions[i] * 4 ..] as left, top, right, bottom.
+         * Writes each region's top label, or null when the model gave no
+         * answer (not registered, still loading, nothing above its threshold),
+         * and that label's confidence.
+         */
+        void classify(String modelName, ImagePreprocessor.RowSource frame, int frameWidth, int frameHeight,
+                      int[] boxes, int[] regions, int count, String[] labels, float[] confidences);
+    }
+
+    public static class Result {
+        public String category;
+        public float categoryConfidence;
+        public String type;
+        public float typeConfidence;
+        public String name;
+        public boolean cached;
+
+        Result copy() {
+            Result result = new Result();
+            result.category = category;
+            result.categoryConfidence = categoryConfidence;
+            result.type = type;
+            result.typeConfidence = typeConfidence;
+            result.name = name;
+            return result;
+        }
+    }
+
+    public static class Stats {
+        public long frames;
+        public long regions;
+        public long memoHits;
+        public long earlyExits;
+        public final long[] stageCalls = new long[STAGE_NAMES.length];
+        public final long[] stageRegions = new long[STAGE_NAMES.length];
+        public final long[] stageNanos = new long[STAGE_NAMES.length];
+
+        public float getStageMsPerFrame(int stage) {
+            return frames > 0 ? stageNanos[stage] / 1e6f / frames : 0f;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(String.format(
+                    "frames %d, regions %d, memo %.0f%%, early exits %d",
+                    frames, regions, regions > 0 ? 100f * memoHits / regions : 0f, earlyExits));
+            for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+                text.append(String.format("; %s %d calls/%d regions %.2fms/frame",
+                        STAGE_NAMES[stage], stageCalls[stage], stageRegions[stage],
+                        getStageMsPerFrame(stage)));
+            }
+            return text.toString();
+        }
+    }
+
+    private static class Memo {
+        Result result;
+        long classifiedFrame;
+        long seenFrame;
+        int left, top, right, bottom;
+    }
+
+    private final BatchClassifier classifier;
+    private final float categoryThreshold;
+    private final float typeThreshold;
+    private final Map<Integer, Memo> memos = new HashMap<>();
+    private int refreshFrames = 15;
+    private int maxMissedFrames = 5;
+    private float matchIou = 0.5f;
+    private long frame;
+    private int nextTrackId = -1; // negative so they never collide with caller ids
+
+    // Per-frame scratch, grown as needed
+    private int[] pending = new int[16];
+    private int[] group = new int[16];
+    private int[] resolvedIds = new int[16];
+    private String[] groupKeys = new String[16];
+    private String[] labels = new String[16];
+    private float[] confidences = new float[16];
+    private boolean[] done = new boolean[16];
+
+    private final Stats stats = new Stats();
+
+    public ClassificationCascade(BatchClassifier classifier, float categoryThreshold, float typeThreshold) {
+        this.classifier = classifier;
+        this.categoryThreshold = categoryThreshold;
+        this.typeThreshold = typeThreshold;
+    }
+
+    /**
+     * Frames a memoized result is reused before the region is classified again
+     */
+    public synchronized void setRefreshFrames(int frames) {
+        this.refreshFrames = Math.max(1, frames);
+    }
+
+    /**
+     * Frames a tracked region may go unseen before its memo is dropped
+     */
+    public synchronized void setMaxMissedFrames(int frames) {
+        this.maxMissedFrames = Math.max(0, frames);
+    }
+
+    /**
+     * Overlap a region needs with last frame's box to count as the same
+     * region when the caller passes no track ids
+     */
+    public synchronized void setMatchIou(float iou) {
+        this.matchIou = iou;
+    }
+
+    public synchronized void clearMemo() {
+        memos.clear();
+    }
+
+    /**
+     * Classify count regions of an ARGB frame, read row by row from frame.
+     * boxes holds left, top, right, bottom per region; trackIds, if not null,
+     * identifies each region across frames. Returns one result per region,
+     * in region order.
+     */
+    public synchronized Result[] classify(ImagePreprocessor.RowSource frame, int frameWidth, int frameHeight,
+                                          int[] boxes, int[] trackIds, int count) {
+        this.frame++;
+        ensureCapacity(count);
+        Result[] results = new Result[count];
+        stats.frames++;
+        stats.regions += count;
+
+        // Memo lookups; everything else is pending for the category stage
+        int pendingCount = 0;
+        for (int i = 0; i < count; i++) {
+            int id = trackIds != null ? trackIds[i] : matchTrack(boxes, i);
+            resolvedIds[i] = id;
+            Memo memo = memos.get(id);
+            if (memo != null && this.frame - memo.classifiedFrame < refreshFrames) {
+                results[i] = memo.result.copy();
+                results[i].cached = true;
+                stats.memoHits++;
+            } else {
+                pending[pendingCount++] = i;
+            }
+            if (memo == null) {
+                memo = new Memo();
+                memo.classifiedFrame = Long.MIN_VALUE / 2;
+                memos.put(id, memo);
+            }
+            memo.seenFrame = this.frame;
+            int box = i * 4;
+            memo.left = boxes[box];
+            memo.top = boxes[box + 1];
+            memo.right = boxes[box + 2];
+            memo.bottom = boxes[box + 3];
+        }
+
+        if (pendingCount > 0) {
+            runStage(STAGE_CATEGORY, CATEGORY_MODEL, frame, frameWidth, frameHeight, boxes, pending, pendingCount);
+            int typePending = 0;
+            for (int p = 0; p < pendingCount; p++) {
+                int i = pending[p];
+                Result result = new Result();
+                results[i] = result;
+                if (labels[p] != null && confidences[p] > categoryThreshold) {
+                    result.category = labels[p];
+                    result.categoryConfidence = confidences[p];
+                    groupKeys[typePending] = result.category;
+                    pending[typePending++] = i;
+                } else {
+                    result.category = UNKNOWN_CATEGORY;
+                    result.type = DEFAULT_TYPE;
+                    result.name = "generic_" + DEFAULT_TYPE;
+                    stats.earlyExits++;
+                }
+            }
+
+            int objectPending = runGroupedStage(STAGE_TYPE, frame, frameWidth, frameHeight, boxes,
+                    typePending, results);
+            runGroupedStage(STAGE_OBJECT, frame, frameWidth, frameHeight, boxes, objectPending, results);
+
+            for (int i = 0; i < count; i++) {
+                Result result = results[i];
+                if (!result.cached && !UNKNOWN_CATEGORY.equals(result.category)) {
+                    Memo memo = memos.get(resolvedIds[i]);
+                    memo.result = result.copy();
+                    memo.classifiedFrame = this.frame;
+                }
+            }
+        }
+
+        evictUnseen();
+        return results;
+    }
+
+    /**
+     * Run one model per distinct groupKey over the first pendingCount entries
+     * of pending. For the type stage, compacts the regions that go on to the
+     * object stage into pending, keyed by category_type, and returns their count.
+     */
+    private int runGroupedStage(int stage, ImagePreprocessor.RowSource frame, int frameWidth, int frameHeight, int[] boxes,
+                                int pendingCount, Result[] results) {
+        Arrays.fill(done, 0, pendingCount, false);
+        String[] keys = Arrays.copyOf(groupKeys, pendingCount);
+        int[] members = Arrays.copyOf(pending, pendingCount);
+        int nextPending = 0;
+
+        for (int start = 0; start < pendingCount; start++) {
+            if (done[start]) continue;
+            String key = keys[start];
+            int groupSize = 0;
+            for (int p = start; p < pendingCount; p++) {
+                if (!done[p] && key.equals(keys[p])) {
+                    done[p] = true;
+                    group[groupSize++] = members[p];
+                }
+            }
+
+            String modelName = stage == STAGE_TYPE ? key + "_type_classifier" : key + "_classifier";
+            runStage(stage, modelName, frame, frameWidth, frameHeight, boxes, group, groupSize);
+
+            for (int g = 0; g < groupSize; g++) {
+                Result result = results[group[g]];
+                if (stage == STAGE_TYPE) {
+                    if (labels[g] != null && confidences[g] > typeThreshold) {
+                        result.type = labels[g];
+                        result.typeConfidence = confidences[g];
+                        groupKeys[nextPending] = result.category + "_" + result.type;
+                        pending[nextPending++] = group[g];
+                    } else {
+                        result.type = DEFAULT_TYPE;
+                        result.name = "generic_" + DEFAULT_TYPE;
+                        stats.earlyExits++;
+                    }
+                } else {
+                    result.name = labels[g] != null ? labels[g] : "generic_" + result.type;
+                }
+            }
+        }
+        return nextPending;
+    }
+
+    private void runStage(int stage, String modelName, ImagePreprocessor.RowSource frame, int frameWidth, int frameHeight,
+                          int[] boxes, int[] regions, int count) {
+        Arrays.fill(labels, 0, count, null);
+        Arrays.fill(confidences, 0, count, 0f);
+        long start = System.nanoTime();
+        classifier.classify(modelName, frame, frameWidth, frameHeight, boxes, regions, count,
+                labels, confidences);
+        stats.stageNanos[stage] += System.nanoTime() - start;
+        stats.stageCalls[stage]++;
+        stats.stageRegions[stage] += count;
+    }
+
+    /**
+     * Best overlapping region seen last frame, or a new id
+     */
+    private int matchTrack(int[] boxes, int index) {
+        int box = index * 4;
+        int bestId = 0;
+        float bestIou = matchIou;
+        boolean found = false;
+        for (Map.Entry<Integer, Memo> entry : memos.entrySet()) {
+            Memo memo = entry.getValue();
+            if (memo.seenFrame != frame - 1) continue;
+            float iou = iou(boxes[box], boxes[box + 1], boxes[box + 2], boxes[box + 3],
+                    memo.left, memo.top, memo.right, memo.bottom);
+            if (iou >= bestIou) {
+                bestIou = iou;
+                bestId = entry.getKey();
+                found = true;
+            }
+        }
+        if (found) {
+            // Claimed for this frame so a second region cannot match it too
+            memos.get(bestId).seenFrame = frame;
+            return bestId;
+        }
+        return nextTrackId--;
+    }
+
+    private void evictUnseen() {
+        Iterator<Memo> iterator = memos.values().iterator();
+        while (iterator.hasNext()) {
+            if (frame - iterator.next().seenFrame > maxMissedFrames) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static float iou(int al, int at, int ar, int ab, int bl, int bt, int br, int bb) {
+        int width = Math.min(ar, br) - Math.max(al, bl);
+        int height = Math.min(ab, bb) - Math.max(at, bt);
+        if (width <= 0 || height <= 0) return 0f;
+        float intersection = (float) width * height;
+        float union = (float) (ar - al) * (ab - at) + (float) (br - bl) * (bb - bt) - intersection;
+        return union > 0 ? intersection / union : 0f;
+    }
+
+    private void ensureCapacity(int count) {
+        if (pending.length >= count) return;
+        int capacity = Math.max(count, pending.length * 2);
+        pending = new int[capacity];
+        group = new int[capacity];
+        resolvedIds = new int[capacity];
+        groupKeys = new String[capacity];
+        labels = new String[capacity];
+        confidences = new float[capacity];
+        done = new boolean[capacity];
+    }
+
+    public synchronized Stats getStats() {
+        Stats copy = new Stats();
+        copy.frames = stats.frames;
+        copy.regions = stats.regions;
+        copy.memoHits = stats.memoHits;
+        copy.earlyExits = stats.earlyExits;
+        System.arraycopy(stats.stageCalls, 0, copy.stageCalls, 0, STAGE_NAMES.length);
+        System.arraycopy(stats.stageRegions, 0, copy.stageRegions, 0, STAGE_NAMES.length);
+        System.arraycopy(stats.stageNanos, 0, copy.stageNanos, 0, STAGE_NAMES.length);
+        return copy;
+    }
+}
@@ -5,7 +5,8 @@ import android.graphics.Bitmap;
 import android.graphics.Rect;
 import android.util.Log;
 import com.gestureai.gameautomation.fragments.GestureLabelerFragment.LabeledObject;
-import com.gestureai.gameautomation.utils.TensorFlowLiteHelper;
+import com.gestureai.gameautomation.TensorFlowLiteHelper;
+import com.gestureai.gameautomation.utils.ImagePreprocessor;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -20,6 +21,7 @@ public class HierarchicalClassifier {
     
     private Context context;
     private TensorFlowLiteHelper tfHelper;
+    private ClassificationCascade cascade;
     private Map<String, List<String>> categoryHierarchy;
     private Map<String, SemanticContext> contextDatabase;
     
@@ -29,6 +31,9 @@ public class HierarchicalClassifier {
     private static final float STATE_THRESHOLD = 0.5f;
     private static final float CONTEXT_THRESHOLD = 0.5f;
     
+    // Regions per interpreter call in each cascade stage
+    private static final int BATCH_SIZE = 8;
+    
     public static class HierarchicalResult {
         public String detectedName;
         public String detectedCategory;
@@ -92,6 +97,8 @@ public class HierarchicalClassifier {
         
         initializeHierarchy();
         initializeSemanticContexts();
+        registerClassifierModels();
+        this.cascade = new ClassificationCascade(this::classifyBatch, CATEGORY_THRESHOLD, TYPE_THRESHOLD);
         
         Log.d(TAG, "Hierarchical Classifier initialized");
     }
@@ -143,6 +150,25 @@ public class HierarchicalClassifier {
         categoryHierarchy.put("ui", uiTypes);
     }
     
+    /**
+     * Register category and type classifiers without loading them; each is
+     * loaded by the shared model registry on its first use
+     */
+    private void registerClassifierModels() {
+        String[] categories = categoryHierarchy.keySet().toArray(new String[0]);
+        tfHelper.registerModel("category_classifier", new TensorFlowLiteHelper.ModelConfig(
+            "models/category_classifier.tflite", 224, 224, 3,
+            categories.length, categories, CATEGORY_THRESHOLD));
+        
+        for (Map.Entry<String, List<String>> entry : categoryHierarchy.entrySet()) {
+            String modelName = entry.getKey() + "_type_classifier";
+            String[] types = entry.getValue().toArray(new String[0]);
+            tfHelper.registerModel(modelName, new TensorFlowLiteHelper.ModelConfig(
+                "models/" + modelName + ".tflite", 224, 224, 3,
+                types.length, types, TYPE_THRESHOLD));
+        }
+    }
+    
     private void initializeSemanticContexts() {
         // Weapon semantic contexts
         contextDatabase.put("weapon_ground", new SemanticContext(
@@ -199,20 +225,58 @@ public class HierarchicalClassifier {
     }
     
     public List<HierarchicalResult> classifyObjects(Bitmap image, List<Rect> detectedRegions) {
+        return classifyObjects(image, detectedRegions, null);
+    }
+    
+    /**
+     * Classify regions through the batched cascade. trackIds, parallel to
+     * detectedRegions, lets results be reused for the same object across
+     * frames; without them regions are matched by overlap.
+     */
+    public List<HierarchicalResult> classifyObjects(Bitmap image, List<Rect> detectedRegions, int[] trackIds) {
         List<HierarchicalResult> results = new ArrayList<>();
+        int width = image.getWidth();
+        int height = image.getHeight();
         
-        for (Rect region : detectedRegions) {
+        // Regions outside the image are skipped, as before
+        List<Rect> regions = new ArrayList<>(detectedRegions.size());
+        int[] ids = trackIds != null ? new int[detectedRegions.size()] : null;
+        for (int i = 0; i < detectedRegions.size(); i++) {
+            Rect region = detectedRegions.get(i);
+            if (region.left >= 0 && region.top >= 0 && region.right <= width && region.bottom <= height
+                    && region.width() > 0 && region.height() > 0) {
+                if (ids != null) ids[regions.size()] = trackIds[i];
+                regions.add(region);
+            }
+        }
+        if (regions.isEmpty()) {
+            return results;
+        }
+        
+        // Stages read region rows straight from the bitmap; the frame is never copied whole
+        ImagePreprocessor.RowSource rows =
+            (y, left, rowWidth, dst) -> image.getPixels(dst, 0, rowWidth, left, y, rowWidth, 1);
+        
+        int[] boxes = new int[regions.size() * 4];
+        for (int i = 0; i < regions.size(); i++) {
+            Rect region = regions.get(i);
+            boxes[i * 4] = region.left;
+            boxes[i * 4 + 1] = region.top;
+            boxes[i * 4 + 2] = region.right;
+            boxes[i * 4 + 3] = region.bottom;
+        }
+        
+        ClassificationCascade.Result[] classified =
+            cascade.classify(rows, width, height, boxes, ids, regions.size());
+        
+        for (int i = 0; i < regions.size(); i++) {
             try {
-                // Extract object patch
-                Bitmap objectPatch = extractObjectPatch(image, region);
-                if (objectPatch == null) continue;
-                
-                // Multi-stage classification
-                String category = classifyCategory(objectPatch);
-                String type = classifyType(objectPatch, category);
-                String name = classifySpecificObject(objectPatch, category, type);
-                String state = classifyState(objectPatch, category, name);
-                String context = classifyContext(objectPatch, image, region, category, state);
+                Rect region = regions.get(i);
+                String category = classified[i].category;
+                String type = classified[i].type;
+                String name = classified[i].name;
+                String state = classifyState(image, region, category, name);
+                String context = classifyContext(image, region, category, state);
                 
                 // Calculate overall confidence
                 float confidence = calculateHierarchicalConfidence(category, type, name, state, context);
@@ -231,68 +295,51 @@ public class HierarchicalClassifier {
                 results.add(result);
                 
             } catch (Exception e) {
-                Log.w(TAG, "Classification failed for region: " + region, e);
+                Log.w(TAG, "Classification failed for region: " + regions.get(i), e);
             }
         }
         
         return results;
     }
     
-    private String classifyCategory(Bitmap objectPatch) {
-        try {
-            List<TensorFlowLiteHelper.DetectionResult> categoryResults = 
-                tfHelper.runInference("category_classifier", objectPatch);
-                
-            if (!categoryResults.isEmpty() && categoryResults.get(0).confidence > CATEGORY_THRESHOLD) {
-                return categoryResults.get(0).label;
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Category classification failed", e);
+    /**
+     * Cascade stage: one batched model run over the given regions, keeping
+     * each region's top label
+     */
+    private void classifyBatch(String modelName, ImagePreprocessor.RowSource frame, int frameWidth, int frameHeight,
+                               int[] boxes, int[] regions, int count, String[] labels, float[] confidences) {
+        if (tfHelper.getModelConfig(modelName) == null) {
+            return;
         }
-        return "unknown";
-    }
-    
-    private String classifyType(Bitmap objectPatch, String category) {
         try {
-            // Use category-specific type classifier
-            String modelName = category + "_type_classifier";
-            List<TensorFlowLiteHelper.DetectionResult> typeResults = 
-                tfHelper.runInference(modelName, objectPatch);
-                
-            if (!typeResults.isEmpty() && typeResults.get(0).confidence > TYPE_THRESHOLD) {
-                return typeResults.get(0).label;
+            List<List<TensorFlowLiteHelper.DetectionResult>> batch = tfHelper.runRegionBatchInference(
+                modelName, frame, frameWidth, frameHeight, boxes, regions, count, BATCH_SIZE);
+            for (int i = 0; i < count && i < batch.size(); i++) {
+                for (TensorFlowLiteHelper.DetectionResult detection : batch.get(i)) {
+                    if (labels[i] == null || detection.confidence > confidences[i]) {
+                        labels[i] = detection.className;
+                        confidences[i] = detection.confidence;
+                    }
+                }
             }
         } catch (Exception e) {
-            Log.w(TAG, "Type classification failed for category: " + category, e);
+            Log.w(TAG, "Batched classification failed for model: " + modelName, e);
         }
-        return "default";
     }
     
-    private String classifySpecificObject(Bitmap objectPatch, String category, String type) {
-        try {
-            // Use type-specific object classifier
-            String modelName = category + "_" + type + "_classifier";
-            List<TensorFlowLiteHelper.DetectionResult> objectResults = 
-                tfHelper.runInference(modelName, objectPatch);
-                
-            if (!objectResults.isEmpty()) {
-                return objectResults.get(0).label;
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Object classification failed for: " + category + "_" + type, e);
-        }
-        return "generic_" + type;
+    public ClassificationCascade.Stats getCascadeStats() {
+        return cascade.getStats();
     }
     
-    private String classifyState(Bitmap objectPatch, String category, String name) {
+    private String classifyState(Bitmap image, Rect region, String category, String name) {
         try {
             // Analyze visual state indicators
             if (category.equals("weapon")) {
-                return analyzeWeaponState(objectPatch);
+                return analyzeWeaponState(image, region);
             } else if (category.equals("enemy")) {
-                return analyzeEnemyState(objectPatch);
+                return analyzeEnemyState(image, region);
             } else if (category.equals("item")) {
-                return analyzeItemState(objectPatch);
+                return analyzeItemState(image, region);
             }
         } catch (Exception e) {
             Log.w(TAG, "State classification failed", e);
@@ -300,23 +347,18 @@ public class HierarchicalClassifier {
         return "normal";
     }
     
-    private String classifyContext(Bitmap objectPatch, Bitmap fullImage, Rect region, 
-                                 String category, String state) {
+    private String classifyContext(Bitmap image, Rect region, String category, String state) {
         try {
             // Analyze surrounding area for context clues
-            Rect expandedRegion = expandRegion(region, fullImage.getWidth(), fullImage.getHeight());
-            Bitmap contextArea = extractObjectPatch(fullImage, expandedRegion);
-            
-            if (contextArea != null) {
-                return analyzeContextualEnvironment(contextArea, category, state);
-            }
+            Rect expandedRegion = expandRegion(region, image.getWidth(), image.getHeight());
+            return analyzeContextualEnvironment(image, expandedRegion, category, state);
         } catch (Exception e) {
             Log.w(TAG, "Context classification failed", e);
         }
         return "general";
     }
     
-    private String analyzeWeaponState(Bitmap weaponPatch) {
+    private String analyzeWeaponState(Bitmap image, Rect region) {
         // Look for visual indicators of weapon state
         // - Muzzle flash = firing
         // - Ground position = dropped
@@ -327,7 +369,7 @@ public class HierarchicalClassifier {
         return "available";
     }
     
-    private String analyzeEnemyState(Bitmap enemyPatch) {
+    private String analyzeEnemyState(Bitmap image, Rect region) {
         // Look for enemy state indicators
         // - Movement blur = moving
         // - Muzzle flash = shooting
@@ -337,7 +379,7 @@ public class HierarchicalClassifier {
         return "active";
     }
     
-    private String analyzeItemState(Bitmap itemPatch) {
+    private String analyzeItemState(Bitmap image, Rect region) {
         // Look for item state indicators
         // - Glow effects = rare/legendary
         // - Ground position = available
@@ -346,7 +388,7 @@ public class HierarchicalClassifier {
         return "available";
     }
     
-    private String analyzeContextualEnvironment(Bitmap contextArea, String category, String state) {
+    private String analyzeContextualEnvironment(Bitmap image, Rect contextRegion, String category, String state) {
         // Analyze surrounding environment
         // - Green/brown textures = outdoor/ground
         // - UI elements = inventory/menu
@@ -387,19 +429,6 @@ public class HierarchicalClassifier {
         return Math.min(1.0f, baseConfidence);
     }
     
-    private Bitmap extractObjectPatch(Bitmap image, Rect region) {
-        try {
-            if (region.left >= 0 && region.top >= 0 && 
-                region.right <= image.getWidth() && region.bottom <= image.getHeight()) {
-                return Bitmap.createBitmap(image, region.left, region.top, 
-                                         region.width(), region.height());
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Failed to extract object patch", e);
-        }
-        return null;
-    }
-    
     public void trainHierarchicalModel(List<LabeledObject> trainingData) {
         Map<String, List<LabeledObject>> categoryGroups = groupByCategory(trainingData);
         
@@ -453,4 +482,4 @@ public class HierarchicalClassifier {
         // Implementation would train specialized models for state/context detection
         Log.d(TAG, "Training state/context classifier: " + modelName);
     }
-}
\ No newline at end of file
+}
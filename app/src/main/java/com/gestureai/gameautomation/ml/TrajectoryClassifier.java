@@ -0,0 +1,175 @@
+package com.gestureai.gameautomation.ml;
+
+import com.gestureai.gameautomation.database.TrajectoryCodec;
+import com.gestureai.gameautomation.database.entities.GestureDataEntity;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nearest-template classifier for touch paths.
+ *
+ * A label's template is the mean of its recorded paths, each resampled to
+ * DEFAULT_RESAMPLED_POINTS points spaced evenly along its length and
+ * translated to start at the origin. A path matches the template with the
+ * smallest RMS point distance, provided that is within maxRmsDistancePx.
+ * Stored gestures are decoded from their resampled BLOB straight into one
+ * reused float[].
+ *
+ * No android.* types, so it can be unit tested on any JVM.
+ */
+public class TrajectoryClassifier {
+
+    public static final int POINTS = TrajectoryCodec.DEFAULT_RESAMPLED_POINTS;
+    public static final float DEFAULT_MAX_RMS_DISTANCE_PX = 60f;
+    private static final int VALUES = POINTS * 2;
+
+    public static class Match {
+        public final String label;
+        public final float rmsDistance;
+        // 1 for an exact match, falling to 0 at the distance limit
+        public final float confidence;
+
+        Match(String label, float rmsDistance, float confidence) {
+            this.label = label;
+            this.rmsDistance = rmsDistance;
+            this.confidence = confidence;
+        }
+
+        @Override
+        public String toString() {
+            return label + " (" + rmsDistance + " px, " + confidence + ")";
+        }
+    }
+
+    private final Map<String, float[]> templates = new HashMap<>();
+    private volatile float maxRmsDistancePx = DEFAULT_MAX_RMS_DISTANCE_PX;
+
+    /**
+     * Replace the templates with ones built from stored gestures, labelled by
+     * their training label or else their gesture type. Rows without a recorded
+     * trajectory, including ones synthesized by a migration, are skipped.
+     * Returns the number of gestures used.
+     */
+    public int train(List<GestureDataEntity> gestures) {
+        Map<String, float[]> sums = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        float[] path = new float[VALUES];
+
+        for (GestureDataEntity gesture : gestures) {
+            if (!gesture.hasRecordedTrajectory()
+                    || TrajectoryCodec.valueCount(gesture.trajectoryResampled) != VALUES) {
+                continue;
+            }
+            String label = gesture.trainingLabel != null ? gesture.trainingLabel : gesture.gestureType;
+            if (label == null) continue;
+
+            TrajectoryCodec.decodeInto(gesture.trajectoryResampled, path);
+            accumulate(label, path, sums, counts);
+        }
+        return publish(sums, counts);
+    }
+
+    /**
+     * Replace the templates with ones built from labelled paths that are
+     * already resampled to POINTS x,y pairs. Returns the number of paths used.
+     */
+    public int trainResampled(List<String> labels, List<float[]> paths) {
+        Map<String, float[]> sums = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < labels.size(); i++) {
+            float[] path = paths.get(i);
+            if (labels.get(i) == null || path == null || path.length < VALUES) continue;
+            accumulate(labels.get(i), path, sums, counts);
+        }
+        return publish(sums, counts);
+    }
+
+    /**
+     * Closest template to a path of pointCount x,y points, or null if there
+     * are no templates or none is within the distance limit
+     */
+    public Match classify(float[] xy, int pointCount) {
+        if (xy == null || pointCount <= 0) return null;
+        float[] path = new float[VALUES];
+        addRelative(TrajectoryCodec.resample(xy, pointCount, POINTS), path);
+
+        String best = null;
+        float bestDistance = Float.MAX_VALUE;
+        synchronized (templates) {
+            for (Map.Entry<String, float[]> entry : templates.entrySet()) {
+                float[] template = entry.getValue();
+                float distance = 0f;
+                for (int i = 0; i < VALUES; i++) {
+                    float d = path[i] - template[i];
+                    distance += d * d;
+                }
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = entry.getKey();
+                }
+            }
+        }
+        if (best == null) return null;
+
+        float rms = (float) Math.sqrt(bestDistance / POINTS);
+        float limit = maxRmsDistancePx;
+        if (rms > limit) return null;
+        return new Match(best, rms, limit > 0f ? 1f - rms / limit : 1f);
+    }
+
+    public boolean hasTemplates() {
+        synchronized (templates) {
+            return !templates.isEmpty();
+        }
+    }
+
+    public int getTemplateCount() {
+        synchronized (templates) {
+            return templates.size();
+        }
+    }
+
+    public void setMaxRmsDistancePx(float maxRmsDistancePx) {
+        this.maxRmsDistancePx = Math.max(0f, maxRmsDistancePx);
+    }
+
+    private static void accumulate(String label, float[] path, Map<String, float[]> sums,
+                                   Map<String, Integer> counts) {
+        float[] sum = sums.get(label);
+        if (sum == null) {
+            sum = new float[VALUES];
+            sums.put(label, sum);
+        }
+        addRelative(path, sum);
+        counts.put(label, counts.getOrDefault(label, 0) + 1);
+    }
+
+    private int publish(Map<String, float[]> sums, Map<String, Integer> counts) {
+        int used = 0;
+        synchronized (templates) {
+            templates.clear();
+            for (Map.Entry<String, float[]> entry : sums.entrySet()) {
+                int count = counts.get(entry.getKey());
+                float[] template = entry.getValue();
+                for (int i = 0; i < template.length; i++) {
+                    template[i] /= count;
+                }
+                templates.put(entry.getKey(), template);
+                used += count;
+            }
+        }
+        return used;
+    }
+
+    // Adds path, translated so it starts at the origin, onto out
+    private static void addRelative(float[] path, float[] out) {
+        float originX = path[0];
+        float originY = path[1];
+        for (int i = 0; i < VALUES; i += 2) {
+            out[i] += path[i] - originX;
+            out[i + 1] += path[i + 1] - originY;
+        }
+    }
+}
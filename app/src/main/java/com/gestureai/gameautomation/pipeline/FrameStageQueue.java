@@ -0,0 +1,70 @@
+package com.gestureai.gameautomation.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded hand-off queue between two pipeline stages.
+ * One stage produces, one stage consumes. When the queue is full the oldest
+ * item is dropped so the consumer always works on the freshest data and the
+ * producer never blocks.
+ */
+public class FrameStageQueue<T> {
+    private final String name;
+    private final int capacity;
+    private final ArrayBlockingQueue<T> queue;
+
+    private final AtomicLong offered = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    public FrameStageQueue(String name, int capacity) {
+        this.name = name;
+        this.capacity = Math.max(1, capacity);
+        this.queue = new ArrayBlockingQueue<>(this.capacity);
+    }
+
+    /**
+     * Hand an item to the next stage, evicting the oldest one if full.
+     * Returns the evicted item (so the caller can release it) or null.
+     */
+    public T offer(T item) {
+        offered.incrementAndGet();
+        T evicted = null;
+        // The consumer can only shrink the queue, so this loops at most once
+        // with a single producer
+        while (!queue.offer(item)) {
+            T stale = queue.poll();
+            if (stale != null) {
+                dropped.incrementAndGet();
+                evicted = stale;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Wait up to timeoutMs for the next item. Returns null on timeout.
+     */
+    public T poll(long timeoutMs) throws InterruptedException {
+        return queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Remove everything still queued, e.g. when the pipeline stops.
+     */
+    public void clear() {
+        queue.clear();
+    }
+
+    public String getName() { return name; }
+    public int getCapacity() { return capacity; }
+    public int getDepth() { return queue.size(); }
+    public long getOfferedCount() { return offered.get(); }
+    public long getDroppedCount() { return dropped.get(); }
+
+    public float getDropRate() {
+        long total = offered.get();
+        return total > 0 ? (float) dropped.get() / total : 0f;
+    }
+}
@@ -0,0 +1,70 @@
+package com.gestureai.gameautomation.pipeline;
+
+import com.gestureai.gameautomation.data.UniversalGameState;
+
+/**
+ * Folds one frame's detections into a game state: object count, threat,
+ * opportunity, player position and health. The live pipeline and replay both
+ * go through here, so a replay derives state exactly as the session did.
+ *
+ * Pure Java (no android.* types) so it can be unit tested on any JVM.
+ */
+public final class GameStateFusion {
+
+    private GameStateFusion() {
+    }
+
+    /**
+     * Update state from frame's detections. Health and score carry over from
+     * the previous frame when nothing on screen reports them.
+     */
+    public static void fuse(UniversalGameState state, ReplayRecording.Frame frame) {
+        float threat = 0f;
+        float opportunity = 0f;
+        boolean playerFound = false;
+        boolean healthFound = false;
+        for (int i = 0; i < frame.detectionCount; i++) {
+            String label = frame.labels[i];
+            float confidence = frame.confidences[i];
+            if (label.contains("enemy") || label.contains("danger")) {
+                threat += confidence * 0.3f;
+            }
+            if (label.contains("reward") || label.contains("item")) {
+                opportunity += confidence * 0.2f;
+            }
+            if (!playerFound && label.contains("player")) {
+                int box = i * 4;
+                state.playerX = (frame.boxes[box] + frame.boxes[box + 2]) / 2f;
+                state.playerY = (frame.boxes[box + 1] + frame.boxes[box + 3]) / 2f;
+                playerFound = true;
+            }
+            if (!healthFound && label.contains("health")) {
+                state.healthLevel = confidence;
+                healthFound = true;
+            }
+        }
+        if (!playerFound) {
+            state.playerX = frame.width / 2f;
+            state.playerY = frame.height / 2f;
+        }
+
+        state.objectCount = frame.detectionCount;
+        state.threatLevel = Math.min(1.0f, threat);
+        state.opportunityLevel = Math.min(1.0f, opportunity);
+        state.setScreenDimensions(frame.width, frame.height);
+        state.timestamp = frame.timestampMs;
+    }
+
+    /**
+     * Copy the recorded fields of state, in ReplayRecording.STATE_FIELDS order
+     */
+    public static void snapshot(UniversalGameState state, float[] out) {
+        out[ReplayRecording.STATE_OBJECT_COUNT] = state.objectCount;
+        out[ReplayRecording.STATE_THREAT] = state.threatLevel;
+        out[ReplayRecording.STATE_OPPORTUNITY] = state.opportunityLevel;
+        out[ReplayRecording.STATE_PLAYER_X] = state.playerX;
+        out[ReplayRecording.STATE_PLAYER_Y] = state.playerY;
+        out[ReplayRecording.STATE_HEALTH] = state.healthLevel;
+        out[ReplayRecording.STATE_SCORE] = state.gameScore;
+    }
+}
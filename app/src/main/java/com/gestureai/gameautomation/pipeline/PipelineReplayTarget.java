@@ -0,0 +1,98 @@
+package com.gestureai.gameautomation.pipeline;
+
+import com.gestureai.gameautomation.GameAction;
+import com.gestureai.gameautomation.data.GameContext;
+import com.gestureai.gameautomation.data.UniversalGameState;
+
+/**
+ * Replay target for the pipeline's decision path: recorded detections are
+ * fused with GameStateFusion and handed to a DecisionPolicy. The target owns
+ * its game state and context, so replaying never touches a running
+ * pipeline's state. Actions are counted instead of dispatched, and learning
+ * feedback is not run since it would change the policy between passes.
+ *
+ * Pure Java (no android.* types) so it can be unit tested on any JVM.
+ */
+public class PipelineReplayTarget implements ReplayDriver.Target<ReplayRecording.Frame, GameAction> {
+
+    /**
+     * The decision step under replay, e.g. GameStrategyAgent
+     */
+    public interface DecisionPolicy {
+        /** Reseed exploration so a pass makes the recorded choices */
+        void setRandomSeed(long seed);
+
+        /** May return null for "no action" */
+        GameAction decide(UniversalGameState state);
+    }
+
+    private final DecisionPolicy policy;
+    private final float confidenceThreshold;
+    private UniversalGameState gameState = new UniversalGameState();
+    private GameContext gameContext = new GameContext();
+    private long actionsExecuted;
+    private long policyErrors;
+
+    public PipelineReplayTarget(DecisionPolicy policy, float confidenceThreshold) {
+        this.policy = policy;
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    @Override
+    public void reset(ReplayRecording recording) {
+        gameState = new UniversalGameState();
+        gameContext = new GameContext();
+        if (recording.getFrameCount() > 0) {
+            // Carried fields (health, score) as they stood at the first frame
+            float[] state = recording.getFrames().get(0).state;
+            gameState.healthLevel = state[ReplayRecording.STATE_HEALTH];
+            gameState.gameScore = state[ReplayRecording.STATE_SCORE];
+        }
+        policy.setRandomSeed(recording.getSeed());
+        actionsExecuted = 0;
+    }
+
+    @Override
+    public ReplayRecording.Frame detect(ReplayRecording.Frame frame) {
+        // Detections were recorded after the detector; replay starts there
+        return frame;
+    }
+
+    @Override
+    public GameAction decide(ReplayRecording.Frame detections, ReplayRecording.Frame frame) {
+        GameStateFusion.fuse(gameState, detections);
+        gameContext.updateContext(gameState);
+        try {
+            return policy.decide(gameState);
+        } catch (RuntimeException e) {
+            // Same fallback as UnifiedDataPipeline.generateAction
+            policyErrors++;
+            return new GameAction("WAIT", 540, 960, 0.5f, "fallback");
+        }
+    }
+
+    @Override
+    public void touch(GameAction action) {
+        if (action.getConfidence() >= confidenceThreshold) {
+            actionsExecuted++;
+        }
+    }
+
+    @Override
+    public ReplayRecording.Action toRecorded(GameAction action) {
+        return toRecordedAction(action);
+    }
+
+    static ReplayRecording.Action toRecordedAction(GameAction action) {
+        if (action == null) return null;
+        return new ReplayRecording.Action(action.getActionType(), action.getX(), action.getY(),
+                action.getConfidence(), action.getObjectName());
+    }
+
+    public UniversalGameState getGameState() { return gameState; }
+    public GameContext getGameContext() { return gameContext; }
+
+    /** Actions at or above the confidence threshold in the current pass */
+    public long getActionsExecuted() { return actionsExecuted; }
+    public long getPolicyErrors() { return policyErrors; }
+}
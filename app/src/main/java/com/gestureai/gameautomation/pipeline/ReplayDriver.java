@@ -0,0 +1,306 @@
+package com.gestureai.gameautomation.pipeline;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Replays a ReplayRecording through the capture, detection, decision and
+ * touch stages as fast as they run, with no frame interval and no device.
+ * The recording stands in for the capture service and the target's touch
+ * stage only collects actions, so a pass is deterministic given the seed.
+ *
+ * Reports frames/s, p50/p99 latency per stage, bytes allocated per frame
+ * (HotSpot only) and every frame whose replayed action differs from the
+ * recorded one. Report fields are plain values so a test can assert on them.
+ *
+ * Pure Java (no android.* types) so it can be unit tested on any JVM.
+ */
+public class ReplayDriver<D, A> {
+
+    // Same names as the UnifiedDataPipeline stages
+    public static final String STAGE_CAPTURE = "capture";
+    public static final String STAGE_DETECTION = "detection";
+    public static final String STAGE_DECISION = "decision";
+    public static final String STAGE_TOUCH = "touch";
+
+    private static final String[] STAGES = {STAGE_CAPTURE, STAGE_DETECTION, STAGE_DECISION, STAGE_TOUCH};
+    private static final int MAX_REPORTED_DIFFS = 20;
+
+    /**
+     * The code under test. D is whatever detection hands to decision,
+     * A is the action type the decision stage emits.
+     */
+    public interface Target<D, A> {
+        /** Restore the state the recording started from and reseed randomness */
+        void reset(ReplayRecording recording);
+
+        D detect(ReplayRecording.Frame frame);
+
+        /** May return null for "no action" */
+        A decide(D detections, ReplayRecording.Frame frame);
+
+        void touch(A action);
+
+        ReplayRecording.Action toRecorded(A action);
+    }
+
+    private final ReplayRecording recording;
+    private final Target<D, A> target;
+    private int positionTolerance = 0;
+    private float confidenceTolerance = 1e-4f;
+
+    public ReplayDriver(ReplayRecording recording, Target<D, A> target) {
+        this.recording = recording;
+        this.target = target;
+    }
+
+    /**
+     * Allow replayed taps to land this many pixels from the recorded ones
+     */
+    public void setPositionTolerance(int pixels) {
+        this.positionTolerance = Math.max(0, pixels);
+    }
+
+    public void setConfidenceTolerance(float tolerance) {
+        this.confidenceTolerance = Math.max(0f, tolerance);
+    }
+
+    /**
+     * Replay warmupPasses untimed, then passes timed. Action diffs come from
+     * the first timed pass; later passes must reproduce it exactly or they
+     * are counted as nondeterministic.
+     */
+    public Report run(int warmupPasses, int passes) {
+        for (int i = 0; i < warmupPasses; i++) {
+            runPass(null, null);
+        }
+
+        int frames = recording.getFrameCount();
+        long[][] stageNanos = new long[STAGES.length][frames * Math.max(1, passes)];
+        Report report = new Report();
+        AllocationCounter allocations = AllocationCounter.create();
+        long allocatedBefore = allocations.currentThreadBytes();
+        long start = System.nanoTime();
+
+        List<ReplayRecording.Action> firstPass = null;
+        for (int pass = 0; pass < passes; pass++) {
+            List<ReplayRecording.Action> replayed = new ArrayList<>(frames);
+            runPass(stageNanos, replayed, pass * frames);
+            if (firstPass == null) {
+                firstPass = replayed;
+                collectDiffs(replayed, report);
+            } else if (!sameActions(firstPass, replayed)) {
+                report.nondeterministicPasses++;
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = allocations.currentThreadBytes();
+
+        long replayedFrames = (long) frames * passes;
+        report.frames = replayedFrames;
+        report.framesPerSecond = elapsed > 0 ? replayedFrames * 1e9 / elapsed : 0;
+        if (allocatedBefore >= 0 && allocatedAfter >= 0 && replayedFrames > 0) {
+            report.bytesAllocatedPerFrame = (double) (allocatedAfter - allocatedBefore) / replayedFrames;
+            report.allocationMBPerSecond = elapsed > 0
+                    ? (allocatedAfter - allocatedBefore) / (elapsed / 1e9) / (1024 * 1024) : 0;
+        }
+        for (int s = 0; s < STAGES.length; s++) {
+            long[] samples = Arrays.copyOf(stageNanos[s], (int) Math.min(replayedFrames, stageNanos[s].length));
+            Arrays.sort(samples);
+            report.stages.put(STAGES[s], new StagePercentiles(
+                    percentileMs(samples, 0.50), percentileMs(samples, 0.99)));
+        }
+        return report;
+    }
+
+    /**
+     * One untimed pass; returns the replayed actions, null where none was emitted
+     */
+    public List<ReplayRecording.Action> runPass() {
+        List<ReplayRecording.Action> replayed = new ArrayList<>(recording.getFrameCount());
+        runPass(null, replayed);
+        return replayed;
+    }
+
+    private void runPass(long[][] stageNanos, List<ReplayRecording.Action> replayed) {
+        runPass(stageNanos, replayed, 0);
+    }
+
+    private void runPass(long[][] stageNanos, List<ReplayRecording.Action> replayed, int offset) {
+        target.reset(recording);
+        List<ReplayRecording.Frame> frames = recording.getFrames();
+        int count = frames.size();
+        for (int i = 0; i < count; i++) {
+            long t0 = System.nanoTime();
+            ReplayRecording.Frame frame = frames.get(i);
+            long t1 = System.nanoTime();
+            D detections = target.detect(frame);
+            long t2 = System.nanoTime();
+            A action = target.decide(detections, frame);
+            long t3 = System.nanoTime();
+            if (action != null) target.touch(action);
+            long t4 = System.nanoTime();
+
+            if (stageNanos != null) {
+                stageNanos[0][offset + i] = t1 - t0;
+                stageNanos[1][offset + i] = t2 - t1;
+                stageNanos[2][offset + i] = t3 - t2;
+                stageNanos[3][offset + i] = t4 - t3;
+            }
+            if (replayed != null) {
+                replayed.add(action != null ? target.toRecorded(action) : null);
+            }
+        }
+    }
+
+    private void collectDiffs(List<ReplayRecording.Action> replayed, Report report) {
+        List<ReplayRecording.Frame> frames = recording.getFrames();
+        for (int i = 0; i < replayed.size(); i++) {
+            ReplayRecording.Action expected = frames.get(i).action;
+            ReplayRecording.Action actual = replayed.get(i);
+            if (matches(expected, actual)) continue;
+            report.actionDiffCount++;
+            if (report.actionDiffs.size() < MAX_REPORTED_DIFFS) {
+                report.actionDiffs.add(new ActionDiff(i, frames.get(i).timestampMs, expected, actual));
+            }
+        }
+    }
+
+    private boolean sameActions(List<ReplayRecording.Action> a, List<ReplayRecording.Action> b) {
+        for (int i = 0; i < a.size(); i++) {
+            ReplayRecording.Action x = a.get(i);
+            ReplayRecording.Action y = b.get(i);
+            if (x == null || y == null) {
+                if (x != y) return false;
+            } else if (!Objects.equals(x.type, y.type) || x.x != y.x || x.y != y.y
+                    || x.confidence != y.confidence || !Objects.equals(x.objectName, y.objectName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(ReplayRecording.Action expected, ReplayRecording.Action actual) {
+        if (expected == null || actual == null) return expected == actual;
+        return Objects.equals(expected.type, actual.type)
+                && Math.abs(expected.x - actual.x) <= positionTolerance
+                && Math.abs(expected.y - actual.y) <= positionTolerance
+                && Math.abs(expected.confidence - actual.confidence) <= confidenceTolerance;
+    }
+
+    private static float percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0f;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000f;
+    }
+
+    public static class StagePercentiles {
+        public final float p50Ms;
+        public final float p99Ms;
+
+        StagePercentiles(float p50Ms, float p99Ms) {
+            this.p50Ms = p50Ms;
+            this.p99Ms = p99Ms;
+        }
+    }
+
+    public static class ActionDiff {
+        public final int frameIndex;
+        public final long timestampMs;
+        public final ReplayRecording.Action expected;
+        public final ReplayRecording.Action actual;
+
+        ActionDiff(int frameIndex, long timestampMs, ReplayRecording.Action expected, ReplayRecording.Action actual) {
+            this.frameIndex = frameIndex;
+            this.timestampMs = timestampMs;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        @Override
+        public String toString() {
+            return "frame " + frameIndex + " @" + timestampMs + "ms: expected "
+                    + (expected != null ? expected : "none") + ", got " + (actual != null ? actual : "none");
+        }
+    }
+
+    public static class Report {
+        public long frames;
+        public double framesPerSecond;
+        /** -1 when the JVM cannot count allocations */
+        public double bytesAllocatedPerFrame = -1;
+        public double allocationMBPerSecond = -1;
+        public int actionDiffCount;
+        public int nondeterministicPasses;
+        public final List<ActionDiff> actionDiffs = new ArrayList<>();
+        public final Map<String, StagePercentiles> stages = new LinkedHashMap<>();
+
+        public StagePercentiles getStage(String stage) { return stages.get(stage); }
+        public boolean isClean() { return actionDiffCount == 0 && nondeterministicPasses == 0; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d frames, %.0f frames/s", frames, framesPerSecond));
+            for (Map.Entry<String, StagePercentiles> entry : stages.entrySet()) {
+                sb.append(String.format("; %s p50 %.4f ms p99 %.4f ms",
+                        entry.getKey(), entry.getValue().p50Ms, entry.getValue().p99Ms));
+            }
+            if (bytesAllocatedPerFrame >= 0) {
+                sb.append(String.format("; alloc %.0f B/frame (%.1f MB/s)",
+                        bytesAllocatedPerFrame, allocationMBPerSecond));
+            } else {
+                sb.append("; alloc n/a");
+            }
+            sb.append(String.format("; action diffs %d, nondeterministic passes %d",
+                    actionDiffCount, nondeterministicPasses));
+            for (ActionDiff diff : actionDiffs) {
+                sb.append("\n  ").append(diff);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Per-thread allocated bytes from com.sun.management.ThreadMXBean, looked
+     * up reflectively since java.lang.management is not on Android
+     */
+    private static class AllocationCounter {
+        private final Object bean;
+        private final Method allocatedBytes;
+
+        private AllocationCounter(Object bean, Method allocatedBytes) {
+            this.bean = bean;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        static AllocationCounter create() {
+            try {
+                Class<?> factory = Class.forName("java.lang.management.ManagementFactory");
+                Object bean = factory.getMethod("getThreadMXBean").invoke(null);
+                Class<?> sunBean = Class.forName("com.sun.management.ThreadMXBean");
+                if (sunBean.isInstance(bean)) {
+                    return new AllocationCounter(bean, sunBean.getMethod("getThreadAllocatedBytes", long.class));
+                }
+            } catch (Throwable ignored) {
+                // Not a HotSpot-style JVM
+            }
+            return new AllocationCounter(null, null);
+        }
+
+        long currentThreadBytes() {
+            if (bean == null) return -1;
+            try {
+                return (Long) allocatedBytes.invoke(bean, Thread.currentThread().getId());
+            } catch (Throwable e) {
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.gestureai.gameautomation.pipeline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A recorded pipeline session: per frame, the detections the decision stage
+ * saw, the game state it derived from them and the action it emitted.
+ *
+ * File layout (big-endian, varints are unsigned LEB128, coordinates zigzag):
+ *   header:  magic "GRPL", version byte, random seed long, state field count
+ *   frame:   FRAME byte, timestamp delta varint, width, height varints,
+ *            detection count, per detection label, confidence float32,
+ *            left, top, right, bottom; state floats; action flag and, when set,
+ *            type, x, y, confidence float32, object name
+ *   end:     END byte
+ * Strings are written once: a string id equal to the table size is followed
+ * by the UTF string and appended to the table. Confidences and state stay
+ * float32 so replayed decisions see exactly the recorded inputs.
+ *
+ * Pure Java (no android.* types) so it can be unit tested on any JVM.
+ */
+public class ReplayRecording {
+
+    public static final int MAGIC = 0x4752504C; // "GRPL"
+    public static final byte VERSION = 1;
+
+    /** Game state fields snapshotted per frame, in file order */
+    public static final String[] STATE_FIELDS = {
+            "objectCount", "threatLevel", "opportunityLevel",
+            "playerX", "playerY", "healthLevel", "gameScore"
+    };
+    public static final int STATE_OBJECT_COUNT = 0;
+    public static final int STATE_THREAT = 1;
+    public static final int STATE_OPPORTUNITY = 2;
+    public static final int STATE_PLAYER_X = 3;
+    public static final int STATE_PLAYER_Y = 4;
+    public static final int STATE_HEALTH = 5;
+    public static final int STATE_SCORE = 6;
+
+    private static final byte FRAME = 1;
+    private static final byte END = 0;
+
+    private final long seed;
+    private final List<Frame> frames;
+
+    public ReplayRecording(long seed, List<Frame> frames) {
+        this.seed = seed;
+        this.frames = frames;
+    }
+
+    public long getSeed() { return seed; }
+    public List<Frame> getFrames() { return frames; }
+    public int getFrameCount() { return frames.size(); }
+
+    /**
+     * Action as recorded; compared field by field against the replayed one
+     */
+    public static class Action {
+        public final String type;
+        public final int x;
+        public final int y;
+        public final float confidence;
+        public final String objectName;
+
+        public Action(String type, int x, int y, float confidence, String objectName) {
+            this.type = type;
+            this.x = x;
+            this.y = y;
+            this.confidence = confidence;
+            this.objectName = objectName;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%d,%d) %.2f %s", type, x, y, confidence, objectName);
+        }
+    }
+
+    /**
+     * One decision: detections in, state and action out.
+     * Detection boxes are stored flat as left, top, right, bottom.
+     */
+    public static class Frame {
+        public long timestampMs;
+        public int width;
+        public int height;
+        public int detectionCount;
+        public String[] labels = new String[8];
+        public float[] confidences = new float[8];
+        public int[] boxes = new int[32];
+        public final float[] state = new float[STATE_FIELDS.length];
+        public Action action;
+
+        public void addDetection(String label, float confidence, int left, int top, int right, int bottom) {
+            if (detectionCount == labels.length) {
+                int capacity = labels.length * 2;
+                labels = Arrays.copyOf(labels, capacity);
+                confidences = Arrays.copyOf(confidences, capacity);
+                boxes = Arrays.copyOf(boxes, capacity * 4);
+            }
+            labels[detectionCount] = label;
+            confidences[detectionCount] = confidence;
+            int box = detectionCount * 4;
+            boxes[box] = left;
+            boxes[box + 1] = top;
+            boxes[box + 2] = right;
+            boxes[box + 3] = bottom;
+            detectionCount++;
+        }
+    }
+
+    /**
+     * Streams frames to a file as the pipeline produces them.
+     * Thread-safe; frames from concurrent stages are written in call order.
+     */
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final long seed;
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private long previousTimestamp;
+        private int frameCount;
+        private boolean closed;
+
+        public Writer(OutputStream stream, long seed) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(stream));
+            this.seed = seed;
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(seed);
+            writeVarint(STATE_FIELDS.length);
+        }
+
+        public long getSeed() { return seed; }
+
+        public synchronized int getFrameCount() { return frameCount; }
+
+        public synchronized void writeFrame(Frame frame) throws IOException {
+            if (closed) throw new IOException("Recording closed");
+            out.writeByte(FRAME);
+            writeVarint(frameCount == 0 ? 0 : Math.max(0, frame.timestampMs - previousTimestamp));
+            previousTimestamp = frame.timestampMs;
+            writeVarint(frame.width);
+            writeVarint(frame.height);
+
+            writeVarint(frame.detectionCount);
+            for (int i = 0; i < frame.detectionCount; i++) {
+                writeString(frame.labels[i]);
+                out.writeFloat(frame.confidences[i]);
+                int box = i * 4;
+                for (int c = 0; c < 4; c++) {
+                    writeVarint(zigzag(frame.boxes[box + c]));
+                }
+            }
+
+            for (float value : frame.state) {
+                out.writeFloat(value);
+            }
+
+            Action action = frame.action;
+            out.writeBoolean(action != null);
+            if (action != null) {
+                writeString(action.type);
+                writeVarint(zigzag(action.x));
+                writeVarint(zigzag(action.y));
+                out.writeFloat(action.confidence);
+                writeString(action.objectName);
+            }
+            frameCount++;
+        }
+
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            out.writeByte(END);
+            out.close();
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) value = "";
+            Integer id = stringIds.get(value);
+            if (id != null) {
+                writeVarint(id);
+                return;
+            }
+            int newId = stringIds.size();
+            stringIds.put(value, newId);
+            writeVarint(newId);
+            out.writeUTF(value);
+        }
+
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+
+    /**
+     * Read a whole recording into memory. A file cut short by a crash is read
+     * up to its last complete frame.
+     */
+    public static ReplayRecording read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC) throw new IOException("Not a replay recording");
+        byte version = in.readByte();
+        if (version != VERSION) throw new IOException("Unsupported replay version " + version);
+        long seed = in.readLong();
+        int stateFields = (int) readVarint(in);
+        if (stateFields != STATE_FIELDS.length) {
+            throw new IOException("Expected " + STATE_FIELDS.length + " state fields, found " + stateFields);
+        }
+
+        List<String> strings = new ArrayList<>();
+        List<Frame> frames = new ArrayList<>();
+        long timestamp = 0;
+        try {
+            while (in.readByte() == FRAME) {
+                Frame frame = new Frame();
+                timestamp += readVarint(in);
+                frame.timestampMs = timestamp;
+                frame.width = (int) readVarint(in);
+                frame.height = (int) readVarint(in);
+
+                int detections = (int) readVarint(in);
+                for (int i = 0; i < detections; i++) {
+                    String label = readString(in, strings);
+                    float confidence = in.readFloat();
+                    int left = unzigzag(readVarint(in));
+                    int top = unzigzag(readVarint(in));
+                    int right = unzigzag(readVarint(in));
+                    int bottom = unzigzag(readVarint(in));
+                    frame.addDetection(label, confidence, left, top, right, bottom);
+                }
+
+                for (int i = 0; i < frame.state.length; i++) {
+                    frame.state[i] = in.readFloat();
+                }
+
+                if (in.readBoolean()) {
+                    String type = readString(in, strings);
+                    int x = unzigzag(readVarint(in));
+                    int y = unzigzag(readVarint(in));
+                    float confidence = in.readFloat();
+                    String objectName = readString(in, strings);
+                    frame.action = new Action(type, x, y, confidence, objectName);
+                }
+                frames.add(frame);
+            }
+        } catch (EOFException e) {
+            // Truncated: keep the complete frames
+        }
+        return new ReplayRecording(seed, frames);
+    }
+
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+        int id = (int) readVarint(in);
+        if (id < strings.size()) return strings.get(id);
+        if (id != strings.size()) throw new IOException("Bad string id " + id);
+        String value = in.readUTF();
+        strings.add(value);
+        return value;
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+            if (shift > 63) throw new IOException("Malformed varint");
+        }
+    }
+
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private static int unzigzag(long value) {
+        int v = (int) value;
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -2,6 +2,7 @@ package com.gestureai.gameautomation.pipeline;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Rect;
 import android.util.Log;
 
 import com.gestureai.gameautomation.GameAction;
@@ -13,14 +14,29 @@ import com.gestureai.gameautomation.ObjectDetectionEngine;
 import com.gestureai.gameautomation.services.ScreenCaptureService;
 import com.gestureai.gameautomation.services.TouchAutomationService;
 import com.gestureai.gameautomation.ObjectLabelerEngine;
+import com.gestureai.gameautomation.utils.FrameHandle;
+import com.gestureai.gameautomation.workflow.WorkflowEngine;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Unified data pipeline connecting all system components
  * Screen Capture → Object Detection → AI Strategy → Touch Execution
+ *
+ * Runs either as a single sequential loop or, in staged mode, as four
+ * workers joined by drop-oldest queues so each stage runs at its own rate.
  */
 public class UnifiedDataPipeline {
     private static final String TAG = "UnifiedDataPipeline";
@@ -42,6 +58,36 @@ public class UnifiedDataPipeline {
     private float confidenceThreshold = 0.7f;
     private boolean enableLearning = true;
     
+    // Staged mode: capture, detection, decision and touch on their own workers
+    public static final String STAGE_CAPTURE = "capture";
+    public static final String STAGE_DETECTION = "detection";
+    public static final String STAGE_DECISION = "decision";
+    public static final String STAGE_TOUCH = "touch";
+    private static final int STAGE_QUEUE_CAPACITY = 2;
+    // Captured frames hold an ImageReader slot, so only the newest one waits
+    private static final int FRAME_QUEUE_CAPACITY = 1;
+    private static final long STAGE_POLL_TIMEOUT_MS = 50;
+    // Time an action is given to show up on screen before it is judged
+    private static final long FEEDBACK_DELAY_MS = 200;
+    
+    private boolean stagedMode = false;
+    private ExecutorService stageExecutor;
+    private final FrameStageQueue<CapturedFrame> frameQueue =
+        new FrameStageQueue<>(STAGE_DETECTION, FRAME_QUEUE_CAPACITY);
+    private final FrameStageQueue<DetectionResult> detectionQueue =
+        new FrameStageQueue<>(STAGE_DECISION, STAGE_QUEUE_CAPACITY);
+    private final FrameStageQueue<GameAction> actionQueue =
+        new FrameStageQueue<>(STAGE_TOUCH, STAGE_QUEUE_CAPACITY);
+    // Executed actions waiting to be judged; drained only by the thread that
+    // owns the game state (decision stage, or the sequential loop)
+    private final ConcurrentLinkedQueue<PendingFeedback> feedbackQueue = new ConcurrentLinkedQueue<>();
+    
+    // Session recording for ReplayDriver; frames are built on the decision
+    // step and written on replayWriter
+    private volatile ReplayRecording.Writer replayRecorder;
+    private volatile ExecutorService replayWriter;
+    private static final long REPLAY_DRAIN_TIMEOUT_MS = 2000;
+    
     public UnifiedDataPipeline(Context context) {
         this.context = context;
         this.currentGameState = new UniversalGameState();
@@ -99,10 +145,14 @@ public class UnifiedDataPipeline {
         
         isRunning.set(true);
         
-        // Start main processing loop
-        CompletableFuture.runAsync(this::processingLoop);
+        if (stagedMode) {
+            startStagedWorkers();
+        } else {
+            // Start main processing loop
+            CompletableFuture.runAsync(this::processingLoop);
+        }
         
-        Log.i(TAG, "Unified data pipeline started");
+        Log.i(TAG, "Unified data pipeline started" + (stagedMode ? " (staged)" : ""));
     }
     
     /**
@@ -110,15 +160,272 @@ public class UnifiedDataPipeline {
      */
     public void stopPipeline() {
         isRunning.set(false);
+        
+        if (stageExecutor != null) {
+            stageExecutor.shutdown();
+            try {
+                if (!stageExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    stageExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                stageExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            stageExecutor = null;
+            releaseQueuedFrames();
+            if (screenCapture != null) {
+                screenCapture.unregisterPooledConsumer();
+            }
+            detectionQueue.clear();
+            actionQueue.clear();
+        }
+        feedbackQueue.clear();
+        
         Log.i(TAG, "Pipeline stopped");
     }
     
+    /**
+     * Switch between the sequential loop and the staged pipeline.
+     * Takes effect on the next startPipeline().
+     */
+    public void setStagedMode(boolean staged) {
+        if (isRunning.get()) {
+            Log.w(TAG, "Cannot change pipeline mode while running");
+            return;
+        }
+        this.stagedMode = staged;
+    }
+    
+    public boolean isStagedMode() { return stagedMode; }
+    
+    /**
+     * Skip detection on unchanged frames and reuse the last detections
+     */
+    public void setChangeGateEnabled(boolean enabled) {
+        if (objectDetection != null) {
+            objectDetection.setChangeGateEnabled(enabled);
+        }
+    }
+    
+    public float getDetectionSkipRatio() {
+        return objectDetection != null ? objectDetection.getSkipRatio() : 0f;
+    }
+    
+    public double getSavedDetectionMillis() {
+        return objectDetection != null ? objectDetection.getSavedDetectionMillis() : 0;
+    }
+    
+    /**
+     * Record each decision's detections, state and action. The strategy agent
+     * is reseeded with the recording's seed so a replay makes the same choices.
+     * Frames are written on a background thread. Pass null to stop; this waits
+     * for queued frames to be written, after which the caller closes the writer.
+     */
+    public synchronized void setReplayRecorder(ReplayRecording.Writer recorder) {
+        this.replayRecorder = recorder;
+        if (recorder == null) {
+            drainReplayWriter();
+            return;
+        }
+        if (strategyAgent != null) {
+            strategyAgent.setRandomSeed(recorder.getSeed());
+        }
+        if (replayWriter == null) {
+            replayWriter = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "ReplayWriter");
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    // Caller holds this
+    private void drainReplayWriter() {
+        ExecutorService writer = replayWriter;
+        if (writer == null) return;
+        replayWriter = null;
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(REPLAY_DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Replay writer did not drain in time; dropping queued frames");
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void startStagedWorkers() {
+        if (screenCapture != null) {
+            // The capture stage becomes the reader's only consumer
+            screenCapture.registerPooledConsumer();
+        }
+        stageExecutor = Executors.newFixedThreadPool(4);
+        stageExecutor.submit(this::captureStageLoop);
+        stageExecutor.submit(this::detectionStageLoop);
+        stageExecutor.submit(this::decisionStageLoop);
+        stageExecutor.submit(this::touchStageLoop);
+    }
+    
+    /**
+     * Capture stage - borrows pooled frames at the configured interval and never
+     * waits on downstream stages; stale frames are dropped by the queue
+     */
+    private void captureStageLoop() {
+        while (isRunning.get()) {
+            try {
+                long start = System.nanoTime();
+                FrameHandle frame = screenCapture != null ? screenCapture.acquireFrame() : null;
+                if (frame != null) {
+                    metrics.recordStage(STAGE_CAPTURE, System.nanoTime() - start);
+                    recycleFrame(frameQueue.offer(new CapturedFrame(frame, start)));
+                }
+                Thread.sleep(frameProcessingInterval);
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                Log.e(TAG, "Error in capture stage", e);
+                metrics.incrementErrors();
+            }
+        }
+    }
+    
+    /**
+     * Detection stage - always works on the newest captured frame
+     */
+    private void detectionStageLoop() {
+        while (isRunning.get()) {
+            try {
+                CapturedFrame captured = frameQueue.poll(STAGE_POLL_TIMEOUT_MS);
+                if (captured == null) continue;
+                
+                long start = System.nanoTime();
+                int frameWidth = captured.frame.getWidth();
+                int frameHeight = captured.frame.getHeight();
+                List<DetectedObject> detectedObjects;
+                try {
+                    detectedObjects = detectObjects(captured.frame);
+                } finally {
+                    recycleFrame(captured);
+                }
+                metrics.recordStage(STAGE_DETECTION, System.nanoTime() - start);
+                
+                detectionQueue.offer(new DetectionResult(detectedObjects,
+                    frameWidth, frameHeight, captured.captureTimeNanos));
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                Log.e(TAG, "Error in detection stage", e);
+                metrics.incrementErrors();
+            }
+        }
+    }
+    
+    /**
+     * Decision stage - fuses detections into game state and picks an action
+     */
+    private void decisionStageLoop() {
+        while (isRunning.get()) {
+            try {
+                DetectionResult result = detectionQueue.poll(STAGE_POLL_TIMEOUT_MS);
+                drainLearningFeedback();
+                if (result == null) continue;
+                
+                long start = System.nanoTime();
+                ReplayRecording.Frame fused = updateGameState(result.objects,
+                    result.frameWidth, result.frameHeight, System.currentTimeMillis());
+                GameAction strategicAction = generateAction();
+                long end = System.nanoTime();
+                recordFrame(fused, strategicAction);
+                metrics.recordStage(STAGE_DECISION, end - start);
+                metrics.recordFrameLatency(end - result.captureTimeNanos);
+                metrics.incrementFramesProcessed();
+                
+                if (strategicAction != null) {
+                    actionQueue.offer(strategicAction);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                Log.e(TAG, "Error in decision stage", e);
+                metrics.incrementErrors();
+            }
+        }
+    }
+    
+    /**
+     * Touch stage - dispatches actions only; learning feedback is handed back
+     * to the decision stage, which owns the game state
+     */
+    private void touchStageLoop() {
+        while (isRunning.get()) {
+            try {
+                GameAction action = actionQueue.poll(STAGE_POLL_TIMEOUT_MS);
+                if (action == null) continue;
+                
+                long start = System.nanoTime();
+                executeAction(action);
+                metrics.recordStage(STAGE_TOUCH, System.nanoTime() - start);
+                
+                scheduleLearningFeedback(action);
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                Log.e(TAG, "Error in touch stage", e);
+                metrics.incrementErrors();
+            }
+        }
+    }
+    
+    private void recycleFrame(CapturedFrame captured) {
+        if (captured != null && captured.frame != null) {
+            captured.frame.release();
+        }
+    }
+    
+    private void releaseQueuedFrames() {
+        try {
+            CapturedFrame captured;
+            while ((captured = frameQueue.poll(0)) != null) {
+                recycleFrame(captured);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Input queue of a stage; capture has none since it is the source
+     */
+    private FrameStageQueue<?> getStageInputQueue(String stage) {
+        switch (stage) {
+            case STAGE_DETECTION: return frameQueue;
+            case STAGE_DECISION: return detectionQueue;
+            case STAGE_TOUCH: return actionQueue;
+            default: return null;
+        }
+    }
+    
+    public int getStageQueueDepth(String stage) {
+        FrameStageQueue<?> queue = getStageInputQueue(stage);
+        return queue != null ? queue.getDepth() : 0;
+    }
+    
+    public long getStageDroppedCount(String stage) {
+        FrameStageQueue<?> queue = getStageInputQueue(stage);
+        return queue != null ? queue.getDroppedCount() : 0;
+    }
+    
     /**
      * Main processing loop - processes frames continuously
      */
     private void processingLoop() {
         while (isRunning.get()) {
             try {
+                drainLearningFeedback();
+                
                 // Step 1: Capture screen frame
                 Bitmap currentFrame = captureFrame();
                 if (currentFrame == null) {
@@ -130,18 +437,18 @@ public class UnifiedDataPipeline {
                 List<DetectedObject> detectedObjects = detectObjects(currentFrame);
                 
                 // Step 3: Update game state
-                updateGameState(detectedObjects, currentFrame);
+                ReplayRecording.Frame fused = updateGameState(detectedObjects,
+                    currentFrame.getWidth(), currentFrame.getHeight(), System.currentTimeMillis());
                 
                 // Step 4: Generate strategy decision
                 GameAction strategicAction = generateAction();
+                recordFrame(fused, strategicAction);
                 
                 // Step 5: Execute touch action
                 executeAction(strategicAction);
                 
-                // Step 6: Learning feedback (if enabled)
-                if (enableLearning) {
-                    provideLearningFeedback(strategicAction);
-                }
+                // Step 6: Learning feedback (if enabled), judged on a later pass
+                scheduleLearningFeedback(strategicAction);
                 
                 // Update metrics
                 metrics.incrementFramesProcessed();
@@ -181,30 +488,83 @@ public class UnifiedDataPipeline {
      */
     private List<DetectedObject> detectObjects(Bitmap frame) {
         try {
-            return objectDetection.detectObjects(frame).get();
+            return toPipelineObjects(objectDetection.detectObjectsBlocking(frame));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } catch (Exception e) {
+            Log.e(TAG, "Object detection failed", e);
+            return List.of();
+        }
+    }
+    
+    /**
+     * Detect on a borrowed frame; the engine keeps the frame alive for any
+     * backend still reading it, so the caller can release right after
+     */
+    private List<DetectedObject> detectObjects(FrameHandle frame) {
+        try {
+            return toPipelineObjects(objectDetection.detectObjectsBlocking(frame));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
         } catch (Exception e) {
             Log.e(TAG, "Object detection failed", e);
             return List.of();
         }
     }
     
+    private static List<DetectedObject> toPipelineObjects(List<ObjectDetectionEngine.DetectedObject> detections) {
+        List<DetectedObject> objects = new ArrayList<>(detections.size());
+        for (ObjectDetectionEngine.DetectedObject detection : detections) {
+            Rect bounds = new Rect();
+            detection.boundingBox.round(bounds);
+            objects.add(new DetectedObject(detection.label, detection.confidence, bounds));
+        }
+        return objects;
+    }
+    
     /**
-     * Step 3: Update game state based on detected objects
+     * Step 3: Update game state based on detected objects. Returns the frame
+     * the state was fused from, for the replay recording (null on failure).
      */
-    private void updateGameState(List<DetectedObject> objects, Bitmap frame) {
+    private ReplayRecording.Frame updateGameState(List<DetectedObject> objects, int frameWidth, int frameHeight,
+                                                  long timestampMs) {
         try {
-            currentGameState.objectCount = objects.size();
-            currentGameState.threatLevel = calculateThreatLevel(objects);
-            currentGameState.opportunityLevel = calculateOpportunityLevel(objects);
-            updatePlayerPosition(objects, frame);
-            updateHealthLevel(objects);
-            currentGameState.setScreenDimensions(frame.getWidth(), frame.getHeight());
-            currentGameState.timestamp = System.currentTimeMillis();
+            ReplayRecording.Frame frame = toFrame(objects, frameWidth, frameHeight, timestampMs);
+            GameStateFusion.fuse(currentGameState, frame);
             gameContext.updateContext(currentGameState);
             
+            // Wake workflows waiting on what is on screen
+            WorkflowEngine workflowEngine = WorkflowEngine.peekInstance();
+            if (workflowEngine != null) {
+                workflowEngine.getSignals().publishDetections(objects);
+                workflowEngine.getSignals().publishGameState(currentGameState);
+            }
+            return frame;
+            
         } catch (Exception e) {
             Log.e(TAG, "Failed to update game state", e);
+            return null;
+        }
+    }
+    
+    private static ReplayRecording.Frame toFrame(List<DetectedObject> objects, int frameWidth, int frameHeight,
+                                                 long timestampMs) {
+        ReplayRecording.Frame frame = new ReplayRecording.Frame();
+        frame.timestampMs = timestampMs;
+        frame.width = frameWidth;
+        frame.height = frameHeight;
+        for (DetectedObject obj : objects) {
+            Rect bounds = obj.getBounds();
+            if (bounds != null) {
+                frame.addDetection(obj.getLabel(), obj.getConfidence(),
+                    bounds.left, bounds.top, bounds.right, bounds.bottom);
+            } else {
+                frame.addDetection(obj.getLabel(), obj.getConfidence(), 0, 0, 0, 0);
+            }
         }
+        return frame;
     }
     
     /**
@@ -236,7 +596,29 @@ public class UnifiedDataPipeline {
     }
     
     /**
-     * Step 6: Provide learning feedback to AI components
+     * Step 6: Queue the action to be judged once it has had time to take effect
+     */
+    private void scheduleLearningFeedback(GameAction action) {
+        if (enableLearning && action != null) {
+            feedbackQueue.offer(new PendingFeedback(action, System.currentTimeMillis() + FEEDBACK_DELAY_MS));
+        }
+    }
+    
+    /**
+     * Apply feedback for actions whose delay has passed. Runs on the thread
+     * that updates the game state, so neither needs a lock.
+     */
+    private void drainLearningFeedback() {
+        long now = System.currentTimeMillis();
+        PendingFeedback pending;
+        while ((pending = feedbackQueue.peek()) != null && pending.dueAtMs <= now) {
+            feedbackQueue.poll();
+            provideLearningFeedback(pending.action);
+        }
+    }
+    
+    /**
+     * Provide learning feedback to AI components
      */
     private void provideLearningFeedback(GameAction action) {
         try {
@@ -256,55 +638,59 @@ public class UnifiedDataPipeline {
         }
     }
     
-    private float calculateThreatLevel(List<DetectedObject> objects) {
-        float threat = 0f;
-        for (DetectedObject obj : objects) {
-            if (obj.getLabel().contains("enemy") || obj.getLabel().contains("danger")) {
-                threat += obj.getConfidence() * 0.3f;
-            }
+    /**
+     * Queue the decision for the replay recording; the decision thread only
+     * fills in the frame, the file is written on replayWriter
+     */
+    private void recordFrame(ReplayRecording.Frame frame, GameAction action) {
+        ReplayRecording.Writer recorder = replayRecorder;
+        ExecutorService writer = replayWriter;
+        if (recorder == null || writer == null || frame == null) return;
+        
+        GameStateFusion.snapshot(currentGameState, frame.state);
+        frame.action = PipelineReplayTarget.toRecordedAction(action);
+        try {
+            writer.execute(() -> {
+                try {
+                    recorder.writeFrame(frame);
+                } catch (IOException e) {
+                    Log.e(TAG, "Replay recording failed, recording stopped", e);
+                    if (replayRecorder == recorder) replayRecorder = null;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Recording stopped while this frame was being decided
         }
-        return Math.min(1.0f, threat);
     }
     
-    private float calculateOpportunityLevel(List<DetectedObject> objects) {
-        float opportunity = 0f;
-        for (DetectedObject obj : objects) {
-            if (obj.getLabel().contains("reward") || obj.getLabel().contains("item")) {
-                opportunity += obj.getConfidence() * 0.2f;
-            }
+    /**
+     * Replay target running this pipeline's state fusion and strategy agent.
+     * Detections come from the recording in place of the camera and detector,
+     * and actions are counted instead of dispatched, so a replay needs neither
+     * screen capture nor the accessibility service. The target has its own
+     * game state; the agent is shared and reseeded on every pass, so replay
+     * while the pipeline is stopped.
+     */
+    public PipelineReplayTarget createReplayTarget() {
+        if (isRunning.get()) {
+            Log.w(TAG, "Replaying against a running pipeline reseeds its strategy agent");
         }
-        return Math.min(1.0f, opportunity);
-    }
-    
-    private void updatePlayerPosition(List<DetectedObject> objects, Bitmap frame) {
-        boolean playerFound = false;
-        for (DetectedObject obj : objects) {
-            if (obj.getLabel().contains("player")) {
-                currentGameState.playerX = obj.getX() + obj.getWidth() / 2f;
-                currentGameState.playerY = obj.getY() + obj.getHeight() / 2f;
-                playerFound = true;
-                break;
+        GameStrategyAgent agent = strategyAgent;
+        return new PipelineReplayTarget(new PipelineReplayTarget.DecisionPolicy() {
+            @Override
+            public void setRandomSeed(long seed) {
+                agent.setRandomSeed(seed);
             }
-        }
-        
-        if (!playerFound) {
-            currentGameState.playerX = frame.getWidth() / 2f;
-            currentGameState.playerY = frame.getHeight() / 2f;
-        }
-    }
-    
-    private void updateHealthLevel(List<DetectedObject> objects) {
-        for (DetectedObject obj : objects) {
-            if (obj.getLabel().contains("health")) {
-                currentGameState.healthLevel = obj.getConfidence();
-                return;
+            
+            @Override
+            public GameAction decide(UniversalGameState state) {
+                return agent.analyzeGameContext(state);
             }
-        }
+        }, confidenceThreshold);
     }
     
     private boolean evaluateActionSuccess(GameAction action) {
         try {
-            Thread.sleep(200);
             float currentScore = currentGameState.gameScore;
             float previousScore = gameContext.gameState != null ? gameContext.gameState.gameScore : 0f;
             return currentScore >= previousScore || action.getConfidence() > 0.8f;
@@ -329,23 +715,106 @@ public class UnifiedDataPipeline {
         Log.i(TAG, "Pipeline configuration updated");
     }
     
+    /**
+     * Frame handed from the capture stage to the detection stage
+     */
+    private static class CapturedFrame {
+        final FrameHandle frame;
+        final long captureTimeNanos;
+        
+        CapturedFrame(FrameHandle frame, long captureTimeNanos) {
+            this.frame = frame;
+            this.captureTimeNanos = captureTimeNanos;
+        }
+    }
+    
+    /**
+     * Executed action handed back from the touch stage for learning feedback
+     */
+    private static class PendingFeedback {
+        final GameAction action;
+        final long dueAtMs;
+        
+        PendingFeedback(GameAction action, long dueAtMs) {
+            this.action = action;
+            this.dueAtMs = dueAtMs;
+        }
+    }
+    
+    /**
+     * Detections handed from the detection stage to the decision stage.
+     * Only frame dimensions travel on so the frame can be released early.
+     */
+    private static class DetectionResult {
+        final List<DetectedObject> objects;
+        final int frameWidth;
+        final int frameHeight;
+        final long captureTimeNanos;
+        
+        DetectionResult(List<DetectedObject> objects, int frameWidth, int frameHeight, long captureTimeNanos) {
+            this.objects = objects;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            this.captureTimeNanos = captureTimeNanos;
+        }
+    }
+    
     public static class PipelineMetrics {
-        private long framesProcessed = 0;
-        private long actionsExecuted = 0;
-        private long errors = 0;
+        private final AtomicLong framesProcessed = new AtomicLong(0);
+        private final AtomicLong actionsExecuted = new AtomicLong(0);
+        private final AtomicLong errors = new AtomicLong(0);
         private long startTime = System.currentTimeMillis();
         
-        public void incrementFramesProcessed() { framesProcessed++; }
-        public void incrementActionsExecuted() { actionsExecuted++; }
-        public void incrementErrors() { errors++; }
+        private final Map<String, StageLatency> stageLatencies = new ConcurrentHashMap<>();
+        private final StageLatency frameLatency = new StageLatency();
+        
+        public void incrementFramesProcessed() { framesProcessed.incrementAndGet(); }
+        public void incrementActionsExecuted() { actionsExecuted.incrementAndGet(); }
+        public void incrementErrors() { errors.incrementAndGet(); }
+        
+        public void recordStage(String stage, long nanos) {
+            stageLatencies.computeIfAbsent(stage, k -> new StageLatency()).record(nanos);
+        }
         
-        public long getFramesProcessed() { return framesProcessed; }
-        public long getActionsExecuted() { return actionsExecuted; }
-        public long getErrors() { return errors; }
+        /** Capture-to-decision latency of a frame in staged mode */
+        public void recordFrameLatency(long nanos) { frameLatency.record(nanos); }
+        
+        public long getFramesProcessed() { return framesProcessed.get(); }
+        public long getActionsExecuted() { return actionsExecuted.get(); }
+        public long getErrors() { return errors.get(); }
         public long getRuntime() { return System.currentTimeMillis() - startTime; }
         public float getFPS() { 
             long runtime = getRuntime();
-            return runtime > 0 ? (framesProcessed * 1000f) / runtime : 0f;
+            return runtime > 0 ? (framesProcessed.get() * 1000f) / runtime : 0f;
+        }
+        
+        public StageLatency getStageLatency(String stage) { return stageLatencies.get(stage); }
+        public Map<String, StageLatency> getStageLatencies() { return stageLatencies; }
+        public StageLatency getFrameLatency() { return frameLatency; }
+    }
+    
+    public static class StageLatency {
+        private final AtomicLong count = new AtomicLong(0);
+        private final AtomicLong totalNanos = new AtomicLong(0);
+        private final AtomicLong maxNanos = new AtomicLong(0);
+        private volatile long lastNanos = 0;
+        
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            lastNanos = nanos;
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // retry
+            }
+        }
+        
+        public long getCount() { return count.get(); }
+        public float getAverageMs() {
+            long n = count.get();
+            return n > 0 ? totalNanos.get() / (n * 1_000_000f) : 0f;
         }
+        public float getLastMs() { return lastNanos / 1_000_000f; }
+        public float getMaxMs() { return maxNanos.get() / 1_000_000f; }
     }
 }
\ No newline at end of file
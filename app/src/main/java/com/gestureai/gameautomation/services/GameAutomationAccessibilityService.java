@@ -1,13 +1,13 @@
 package com.gestureai.gameautomation.services;
 
 import android.accessibilityservice.AccessibilityService;
-import android.accessibilityservice.GestureDescription;
-import android.graphics.Path;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
 
 import com.gestureai.gameautomation.GameAction;
+import com.gestureai.gameautomation.accessibility.AccessibilityNodeSource;
+import com.gestureai.gameautomation.accessibility.NodeIndex;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -25,6 +25,9 @@ public class GameAutomationAccessibilityService extends AccessibilityService {
     private volatile boolean isServiceActive = false;
     private final java.util.List<PermissionStateListener> permissionListeners = new java.util.concurrent.CopyOnWriteArrayList<>();
     
+    // Text/view id index of the active window, kept current from content-change events
+    private volatile NodeIndex<AccessibilityNodeInfo> nodeIndex;
+    
     public interface PermissionStateListener {
         void onPermissionRevoked();
         void onPermissionRestored();
@@ -37,6 +40,7 @@ public class GameAutomationAccessibilityService extends AccessibilityService {
         instance = this;
         isServiceActive = true;
         isPermissionValid.set(true);
+        nodeIndex = new NodeIndex<>(new AccessibilityNodeSource(this));
         
         // Start permission monitoring
         startPermissionMonitoring();
@@ -82,6 +86,10 @@ public class GameAutomationAccessibilityService extends AccessibilityService {
         }
         permissionListeners.clear();
         
+        if (nodeIndex != null) {
+            nodeIndex.close();
+            nodeIndex = null;
+        }
         instance = null;
         Log.d(TAG, "Game Automation Accessibility Service unbound");
         return super.onUnbind(intent);
@@ -164,9 +172,22 @@ public class GameAutomationAccessibilityService extends AccessibilityService {
 
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
-        // Monitor accessibility events for game state changes
-        if (event.getEventType() == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED) {
-            Log.d(TAG, "Window content changed: " + event.getPackageName());
+        NodeIndex<AccessibilityNodeInfo> index = nodeIndex;
+        if (index == null) return;
+        
+        // Keep the node index in step with the active window. These calls only
+        // queue work; the index updates on its own thread.
+        switch (event.getEventType()) {
+            case AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED:
+                // Only the changed subtree is re-indexed
+                index.onContentChanged(event.getSource());
+                break;
+            case AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED:
+            case AccessibilityEvent.TYPE_WINDOWS_CHANGED:
+                index.invalidate();
+                break;
+            default:
+                break;
         }
     }
 
@@ -187,137 +208,117 @@ public class GameAutomationAccessibilityService extends AccessibilityService {
      * Execute touch automation action
      */
     public CompletableFuture<Boolean> executeAction(GameAction action) {
-        CompletableFuture<Boolean> future = new CompletableFuture<>();
-
         try {
-            GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-            Path path = new Path();
+            GestureScheduler scheduler = GestureScheduler.forService(this);
+            int x = action.getX();
+            int y = action.getY();
+            float priority = action.getPriority();
 
             switch (action.getActionType()) {
                 case "TAP":
-                    path.moveTo(action.getX(), action.getY());
-                    gestureBuilder.addStroke(new GestureDescription.StrokeDescription(path, 0, 50));
-                    break;
+                    return scheduler.tap(x, y, priority);
 
                 case "DOUBLE_TAP":
-                    path.moveTo(action.getX(), action.getY());
-                    gestureBuilder.addStroke(new GestureDescription.StrokeDescription(path, 0, 50));
-                    gestureBuilder.addStroke(new GestureDescription.StrokeDescription(path, 100, 50));
-                    break;
+                    return scheduler.doubleTap(x, y, priority);
 
                 case "LONG_PRESS":
-                    path.moveTo(action.getX(), action.getY());
-                    gestureBuilder.addStroke(new GestureDescription.StrokeDescription(path, 0, 1000));
-                    break;
+                    return scheduler.longPress(x, y, 1000, priority);
 
                 case "SWIPE_LEFT":
-                    path.moveTo(action.getX() + 200, action.getY());
-                    path.lineTo(action.getX() - 200, action.getY());
-                    gestureBuilder.addStroke(new GestureDescription.StrokeDescription(path, 0, 300));
-                    break;
+                    return scheduler.swipe(x + 200, y, x - 200, y, 300, priority);
 
                 case "SWIPE_RIGHT":
-                    path.moveTo(action.getX() - 200, action.getY());
-                    path.lineTo(action.getX() + 200, action.getY());
-                    gestureBuilder.addStroke(new GestureDescription.StrokeDescription(path, 0, 300));
-                    break;
+                    return scheduler.swipe(x - 200, y, x + 200, y, 300, priority);
 
                 case "SWIPE_UP":
-                    path.moveTo(action.getX(), action.getY() + 200);
-                    path.lineTo(action.getX(), action.getY() - 200);
-                    gestureBuilder.addStroke(new GestureDescription.StrokeDescription(path, 0, 300));
-                    break;
+                    return scheduler.swipe(x, y + 200, x, y - 200, 300, priority);
 
                 case "SWIPE_DOWN":
-                    path.moveTo(action.getX(), action.getY() - 200);
-                    path.lineTo(action.getX(), action.getY() + 200);
-                    gestureBuilder.addStroke(new GestureDescription.StrokeDescription(path, 0, 300));
-                    break;
+                    return scheduler.swipe(x, y - 200, x, y + 200, 300, priority);
 
                 default:
                     Log.w(TAG, "Unknown action type: " + action.getActionType());
-                    future.complete(false);
-                    return future;
-            }
-
-            GestureDescription gesture = gestureBuilder.build();
-            
-            boolean dispatched = dispatchGesture(gesture, new GestureResultCallback() {
-                @Override
-                public void onCompleted(GestureDescription gestureDescription) {
-                    super.onCompleted(gestureDescription);
-                    future.complete(true);
-                    Log.d(TAG, "Gesture completed: " + action.getActionType());
-                }
-
-                @Override
-                public void onCancelled(GestureDescription gestureDescription) {
-                    super.onCancelled(gestureDescription);
-                    future.complete(false);
-                    Log.w(TAG, "Gesture cancelled: " + action.getActionType());
-                }
-            }, null);
-
-            if (!dispatched) {
-                future.complete(false);
-                Log.e(TAG, "Failed to dispatch gesture: " + action.getActionType());
+                    return CompletableFuture.completedFuture(false);
             }
 
         } catch (Exception e) {
             Log.e(TAG, "Error executing action: " + action.getActionType(), e);
-            future.complete(false);
+            return CompletableFuture.completedFuture(false);
         }
-
-        return future;
     }
 
     /**
-     * Find clickable elements on screen
+     * Execute several actions intervalMs apart (0 = simultaneously), compiled
+     * into as few gestures as possible and dispatched back to back
      */
-    public AccessibilityNodeInfo findClickableElement(String text) {
-        AccessibilityNodeInfo rootNode = getRootInActiveWindow();
-        if (rootNode == null) {
-            return null;
+    public CompletableFuture<Boolean> executeActions(java.util.List<GameAction> actions, long intervalMs) {
+        if (actions == null || actions.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
         }
 
-        return findNodeByText(rootNode, text);
-    }
-
-    private AccessibilityNodeInfo findNodeByText(AccessibilityNodeInfo node, String text) {
-        if (node == null) return null;
+        try {
+            float priority = GestureScheduler.PRIORITY_LOW;
+            for (GameAction action : actions) {
+                priority = Math.max(priority, action.getPriority());
+            }
+            GestureCompiler compiler = new GestureCompiler().addSequence(actions, 0, intervalMs);
+            return GestureScheduler.forService(this).sequence(compiler.compile(), priority);
 
-        CharSequence nodeText = node.getText();
-        if (nodeText != null && nodeText.toString().contains(text)) {
-            return node;
+        } catch (Exception e) {
+            Log.e(TAG, "Error executing " + actions.size() + " compiled actions", e);
+            return CompletableFuture.completedFuture(false);
         }
+    }
 
-        for (int i = 0; i < node.getChildCount(); i++) {
-            AccessibilityNodeInfo child = node.getChild(i);
-            AccessibilityNodeInfo result = findNodeByText(child, text);
-            if (result != null) {
-                return result;
-            }
-        }
+    /**
+     * First element on screen, in tree order, whose text contains the given
+     * text (case-sensitive). The caller must recycle the returned node.
+     */
+    public AccessibilityNodeInfo findClickableElement(String text) {
+        NodeIndex<AccessibilityNodeInfo> index = nodeIndex;
+        return index != null ? index.findContaining(text) : null;
+    }
+    
+    /**
+     * Best element for a label: case-insensitive text or content description,
+     * clickable nodes first, exact match before word prefix before substring.
+     * The caller must recycle the returned node.
+     */
+    public AccessibilityNodeInfo findElementByLabel(String label) {
+        NodeIndex<AccessibilityNodeInfo> index = nodeIndex;
+        return index != null ? index.findByText(label) : null;
+    }
 
-        return null;
+    /**
+     * Find an element by view resource id, e.g. "com.game:id/play". The caller
+     * must recycle the returned node.
+     */
+    public AccessibilityNodeInfo findElementByViewId(String viewId) {
+        NodeIndex<AccessibilityNodeInfo> index = nodeIndex;
+        return index != null ? index.findByViewId(viewId) : null;
     }
 
     /**
      * Click on accessibility node
      */
+    @SuppressWarnings("deprecation")
     public boolean clickNode(AccessibilityNodeInfo node) {
         if (node == null) return false;
 
         if (node.isClickable()) {
             return node.performAction(AccessibilityNodeInfo.ACTION_CLICK);
         } else {
-            // Find clickable parent
+            // Find clickable parent, recycling the ones passed over
             AccessibilityNodeInfo parent = node.getParent();
             while (parent != null) {
                 if (parent.isClickable()) {
-                    return parent.performAction(AccessibilityNodeInfo.ACTION_CLICK);
+                    boolean clicked = parent.performAction(AccessibilityNodeInfo.ACTION_CLICK);
+                    parent.recycle();
+                    return clicked;
                 }
-                parent = parent.getParent();
+                AccessibilityNodeInfo next = parent.getParent();
+                parent.recycle();
+                parent = next;
             }
         }
 
@@ -333,6 +334,7 @@ public class GameAutomationAccessibilityService extends AccessibilityService {
             }
             
             // Cancel any pending gesture operations
+            GestureScheduler.release(this);
             if (executorService != null && !executorService.isShutdown()) {
                 executorService.shutdownNow();
                 try {
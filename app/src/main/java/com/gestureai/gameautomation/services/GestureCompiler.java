@@ -0,0 +1,145 @@
+package com.gestureai.gameautomation.services;
+
+import android.accessibilityservice.GestureDescription;
+import android.graphics.Path;
+import android.util.Log;
+
+import com.gestureai.gameautomation.GameAction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles a short timeline of actions (joystick holds, simultaneous fire taps,
+ * combo sequences) into as few GestureDescriptions as the platform allows.
+ * Packing is done by GestureTimeline; strokes split across gestures are
+ * chained with StrokeDescription.continueStroke.
+ */
+public class GestureCompiler {
+    private static final String TAG = "GestureCompiler";
+
+    public static final long TAP_DURATION_MS = 50;
+    public static final long DOUBLE_TAP_GAP_MS = 100;
+    public static final long LONG_PRESS_DURATION_MS = 1000;
+    public static final long SWIPE_DURATION_MS = 300;
+    public static final float SWIPE_DISTANCE = 200f;
+
+    private final GestureTimeline timeline = new GestureTimeline();
+
+    /**
+     * Add a game action starting at startMs on the timeline
+     */
+    public GestureCompiler add(GameAction action, long startMs) {
+        if (action == null) return this;
+        float x = action.getX();
+        float y = action.getY();
+
+        switch (action.getActionType()) {
+            case "TAP":
+            case "CLICK":
+            case "TOUCH":
+                timeline.addTap(x, y, startMs, TAP_DURATION_MS);
+                break;
+            case "DOUBLE_TAP":
+                timeline.addTap(x, y, startMs, TAP_DURATION_MS);
+                timeline.addTap(x, y, startMs + TAP_DURATION_MS + DOUBLE_TAP_GAP_MS, TAP_DURATION_MS);
+                break;
+            case "LONG_PRESS":
+            case "HOLD":
+                timeline.addHold(x, y, startMs, LONG_PRESS_DURATION_MS);
+                break;
+            case "SWIPE_LEFT":
+                timeline.addLine(x + SWIPE_DISTANCE, y, x - SWIPE_DISTANCE, y, startMs, SWIPE_DURATION_MS);
+                break;
+            case "SWIPE_RIGHT":
+                timeline.addLine(x - SWIPE_DISTANCE, y, x + SWIPE_DISTANCE, y, startMs, SWIPE_DURATION_MS);
+                break;
+            case "SWIPE_UP":
+                timeline.addLine(x, y + SWIPE_DISTANCE, x, y - SWIPE_DISTANCE, startMs, SWIPE_DURATION_MS);
+                break;
+            case "SWIPE_DOWN":
+                timeline.addLine(x, y - SWIPE_DISTANCE, x, y + SWIPE_DISTANCE, startMs, SWIPE_DURATION_MS);
+                break;
+            default:
+                Log.w(TAG, "Unsupported action type for compilation: " + action.getActionType());
+                break;
+        }
+        return this;
+    }
+
+    /**
+     * Add actions one after another, intervalMs apart
+     */
+    public GestureCompiler addSequence(List<GameAction> actions, long startMs, long intervalMs) {
+        for (int i = 0; i < actions.size(); i++) {
+            add(actions.get(i), startMs + i * intervalMs);
+        }
+        return this;
+    }
+
+    public GestureCompiler addTap(float x, float y, long startMs) {
+        timeline.addTap(x, y, startMs, TAP_DURATION_MS);
+        return this;
+    }
+
+    public GestureCompiler addHold(float x, float y, long startMs, long durationMs) {
+        timeline.addHold(x, y, startMs, durationMs);
+        return this;
+    }
+
+    public GestureCompiler addSwipe(float startX, float startY, float endX, float endY, long startMs, long durationMs) {
+        timeline.addLine(startX, startY, endX, endY, startMs, durationMs);
+        return this;
+    }
+
+    /**
+     * Build the gestures within the device's stroke-count and duration limits
+     */
+    public List<GestureDescription> compile() {
+        List<GestureTimeline.Batch> batches = timeline.pack(
+                GestureDescription.getMaxStrokeCount(), GestureDescription.getMaxGestureDuration());
+
+        List<GestureDescription> gestures = new ArrayList<>(batches.size());
+        GestureDescription.StrokeDescription[] previous = null;
+
+        for (GestureTimeline.Batch batch : batches) {
+            GestureDescription.Builder builder = new GestureDescription.Builder();
+            GestureDescription.StrokeDescription[] current = new GestureDescription.StrokeDescription[batch.pieces.size()];
+
+            for (int i = 0; i < current.length; i++) {
+                GestureTimeline.Piece piece = batch.pieces.get(i);
+                Path path = new Path();
+                path.moveTo(piece.fromX, piece.fromY);
+                if (!piece.isStationary()) {
+                    path.lineTo(piece.toX, piece.toY);
+                }
+
+                if (piece.continuesPiece >= 0 && previous != null) {
+                    current[i] = previous[piece.continuesPiece].continueStroke(
+                            path, piece.offsetMs, piece.durationMs, piece.willContinue);
+                } else {
+                    current[i] = new GestureDescription.StrokeDescription(
+                            path, piece.offsetMs, piece.durationMs, piece.willContinue);
+                }
+                builder.addStroke(current[i]);
+            }
+
+            gestures.add(builder.build());
+            previous = current;
+        }
+
+        if (timeline.getSlipMs() > 0) {
+            Log.d(TAG, "Compiled " + timeline.size() + " strokes into " + gestures.size()
+                    + " gestures, " + timeline.getSlipMs() + "ms total delay");
+        }
+        return gestures;
+    }
+
+    public int getStrokeCount() {
+        return timeline.size();
+    }
+
+    public void clear() {
+        timeline.clear();
+    }
+}
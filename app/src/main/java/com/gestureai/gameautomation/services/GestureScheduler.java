@@ -0,0 +1,669 @@
+package com.gestureai.gameautomation.services;
+
+import android.accessibilityservice.AccessibilityService;
+import android.accessibilityservice.GestureDescription;
+import android.graphics.Path;
+import android.graphics.PointF;
+import android.util.Log;
+
+import com.gestureai.gameautomation.database.DatabaseIntegrationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Non-blocking gesture dispatch for an accessibility service.
+ * Callers enqueue gestures and get a future that completes from the
+ * GestureResultCallback; a single dispatcher thread feeds dispatchGesture one
+ * gesture at a time (a new dispatch cancels the one in flight). The queue is
+ * bounded and ordered by priority, repeated taps on the same target inside a
+ * short window are coalesced, and stroke paths come from a small pool.
+ */
+public class GestureScheduler {
+    private static final String TAG = "GestureScheduler";
+
+    public static final float PRIORITY_LOW = 0.0f;
+    public static final float PRIORITY_NORMAL = 0.5f;
+    public static final float PRIORITY_HIGH = 1.0f;
+
+    private static final int DEFAULT_CAPACITY = 32;
+    private static final int MAX_STROKES = 10;
+    private static final long COMPLETION_SLACK_MS = 500;
+    // Max distance between a recorded path and the curve it approximates
+    private static final float PATH_TOLERANCE_PX = 0.5f;
+
+    // Dispatch-to-complete latency buckets (upper bounds in ms, last is open ended)
+    private static final long[] LATENCY_BUCKETS_MS = {8, 16, 32, 64, 128, 256, 512, 1024, 2048, Long.MAX_VALUE};
+
+    private static final Map<AccessibilityService, GestureScheduler> schedulers = new HashMap<>();
+
+    public enum Type { TAP, DOUBLE_TAP, LONG_PRESS, SWIPE, PINCH, MULTI_TAP, PATH, SEQUENCE }
+
+    private final AccessibilityService service;
+    private final PriorityQueue<Request> queue = new PriorityQueue<>();
+    private final ArrayDeque<Path> pathPool = new ArrayDeque<>();
+    private final Object queueLock = new Object();
+    private Thread dispatcherThread;
+    private volatile boolean running = false;
+    private long sequence = 0;
+
+    private int capacity = DEFAULT_CAPACITY;
+    private int maxRetries = 2;
+    private long coalesceWindowMs = 80;
+    private float coalesceRadiusPx = 12f;
+
+    // Where finished gestures are logged; null disables gesture telemetry
+    private volatile DatabaseIntegrationManager telemetry;
+
+    private final AtomicLongArray completionLatency = new AtomicLongArray(LATENCY_BUCKETS_MS.length);
+    private final AtomicLongArray queueLatency = new AtomicLongArray(LATENCY_BUCKETS_MS.length);
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+
+    /**
+     * One queued gesture. Points are stored flat as x0, y0, x1, y1...
+     */
+    private static class Request implements Comparable<Request> {
+        final Type type;
+        final float[] points;
+        final long duration;
+        final Path customPath;
+        List<GestureDescription> gestures;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        float priority;
+        long sequence;
+        long enqueuedAt;
+        int attempt;
+
+        Request(Type type, float[] points, long duration, Path customPath, float priority) {
+            this.type = type;
+            this.points = points;
+            this.duration = duration;
+            this.customPath = customPath;
+            this.priority = priority;
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            int byPriority = Float.compare(other.priority, priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public GestureScheduler(AccessibilityService service) {
+        this.service = service;
+    }
+
+    /**
+     * Shared scheduler for a service, started on first use. Every caller that
+     * dispatches through the same service must share it, since a second
+     * concurrent dispatch would cancel the first.
+     */
+    public static GestureScheduler forService(AccessibilityService service) {
+        synchronized (schedulers) {
+            GestureScheduler scheduler = schedulers.get(service);
+            if (scheduler == null) {
+                scheduler = new GestureScheduler(service);
+                scheduler.setTelemetry(DatabaseIntegrationManager.getInstance(service));
+                scheduler.start();
+                schedulers.put(service, scheduler);
+            }
+            return scheduler;
+        }
+    }
+
+    public static void release(AccessibilityService service) {
+        GestureScheduler scheduler;
+        synchronized (schedulers) {
+            scheduler = schedulers.remove(service);
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    public void start() {
+        synchronized (queueLock) {
+            if (running) return;
+            running = true;
+            dispatcherThread = new Thread(this::dispatchLoop, TAG);
+            dispatcherThread.start();
+        }
+    }
+
+    /**
+     * Stop dispatching and fail everything still queued
+     */
+    public void shutdown() {
+        List<Request> pending;
+        synchronized (queueLock) {
+            running = false;
+            pending = new ArrayList<>(queue);
+            queue.clear();
+            queueLock.notifyAll();
+        }
+        if (dispatcherThread != null) {
+            dispatcherThread.interrupt();
+        }
+        for (Request request : pending) {
+            request.result.complete(false);
+        }
+        Log.d(TAG, "Gesture scheduler stopped, " + pending.size() + " pending gestures dropped");
+    }
+
+    // ===== Submission =====
+
+    public CompletableFuture<Boolean> tap(float x, float y, float priority) {
+        return submit(new Request(Type.TAP, new float[]{x, y}, 50, null, priority));
+    }
+
+    public CompletableFuture<Boolean> doubleTap(float x, float y, float priority) {
+        return submit(new Request(Type.DOUBLE_TAP, new float[]{x, y}, 50, null, priority));
+    }
+
+    public CompletableFuture<Boolean> longPress(float x, float y, long duration, float priority) {
+        return submit(new Request(Type.LONG_PRESS, new float[]{x, y}, duration, null, priority));
+    }
+
+    public CompletableFuture<Boolean> swipe(float startX, float startY, float endX, float endY,
+                                            long duration, float priority) {
+        return submit(new Request(Type.SWIPE, new float[]{startX, startY, endX, endY}, duration, null, priority));
+    }
+
+    public CompletableFuture<Boolean> pinch(float centerX, float centerY, float startDistance, float endDistance,
+                                            long duration, float priority) {
+        float startRadius = startDistance / 2;
+        float endRadius = endDistance / 2;
+        float[] points = {
+                centerX - startRadius, centerY, centerX - endRadius, centerY,
+                centerX + startRadius, centerY, centerX + endRadius, centerY
+        };
+        return submit(new Request(Type.PINCH, points, duration, null, priority));
+    }
+
+    /**
+     * Simultaneous taps, one stroke per point (at most 10)
+     */
+    public CompletableFuture<Boolean> multiTap(List<PointF> touchPoints, long duration, float priority) {
+        int count = touchPoints != null ? Math.min(touchPoints.size(), MAX_STROKES) : 0;
+        if (count == 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+        float[] points = new float[count * 2];
+        for (int i = 0; i < count; i++) {
+            points[2 * i] = touchPoints.get(i).x;
+            points[2 * i + 1] = touchPoints.get(i).y;
+        }
+        return submit(new Request(Type.MULTI_TAP, points, duration, null, priority));
+    }
+
+    public CompletableFuture<Boolean> path(Path path, long duration, float priority) {
+        if (path == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        // Copy so the caller may keep mutating its path
+        return submit(new Request(Type.PATH, new float[0], duration, new Path(path), priority));
+    }
+
+    /**
+     * Prebuilt gestures (e.g. from GestureCompiler) dispatched back to back as
+     * one request, so nothing else can cancel a continued stroke in between.
+     * Sequences are not retried.
+     */
+    public CompletableFuture<Boolean> sequence(List<GestureDescription> gestures, float priority) {
+        if (gestures == null || gestures.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        Request request = new Request(Type.SEQUENCE, new float[0], 0, null, priority);
+        request.gestures = new ArrayList<>(gestures);
+        return submit(request);
+    }
+
+    private CompletableFuture<Boolean> submit(Request request) {
+        submitted.incrementAndGet();
+        Request evicted = null;
+
+        synchronized (queueLock) {
+            if (!running) {
+                request.result.complete(false);
+                return request.result;
+            }
+
+            long now = System.currentTimeMillis();
+            Request duplicate = findCoalescable(request, now);
+            if (duplicate != null) {
+                coalesced.incrementAndGet();
+                if (request.priority > duplicate.priority) {
+                    queue.remove(duplicate);
+                    duplicate.priority = request.priority;
+                    queue.add(duplicate);
+                }
+                return duplicate.result;
+            }
+
+            if (queue.size() >= capacity) {
+                evicted = lowestPriority();
+                if (evicted == null || evicted.priority >= request.priority) {
+                    dropped.incrementAndGet();
+                    request.result.complete(false);
+                    return request.result;
+                }
+                queue.remove(evicted);
+                dropped.incrementAndGet();
+            }
+
+            request.sequence = sequence++;
+            request.enqueuedAt = now;
+            queue.add(request);
+            queueLock.notifyAll();
+        }
+
+        if (evicted != null) {
+            evicted.result.complete(false);
+        }
+        return request.result;
+    }
+
+    private Request findCoalescable(Request request, long now) {
+        if (request.type != Type.TAP && request.type != Type.DOUBLE_TAP) {
+            return null;
+        }
+        float radiusSquared = coalesceRadiusPx * coalesceRadiusPx;
+        for (Request pending : queue) {
+            if (pending.type != request.type || now - pending.enqueuedAt > coalesceWindowMs) continue;
+            float dx = pending.points[0] - request.points[0];
+            float dy = pending.points[1] - request.points[1];
+            if (dx * dx + dy * dy <= radiusSquared) {
+                return pending;
+            }
+        }
+        return null;
+    }
+
+    private Request lowestPriority() {
+        Request lowest = null;
+        for (Request pending : queue) {
+            if (lowest == null || pending.compareTo(lowest) > 0) {
+                lowest = pending;
+            }
+        }
+        return lowest;
+    }
+
+    // ===== Dispatch =====
+
+    private void dispatchLoop() {
+        while (running) {
+            Request request;
+            synchronized (queueLock) {
+                while (running && queue.isEmpty()) {
+                    try {
+                        queueLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running) return;
+                request = queue.poll();
+            }
+
+            boolean success = dispatchAndAwait(request);
+            if (success) {
+                completed.incrementAndGet();
+                recordGesture(request, true);
+                request.result.complete(true);
+            } else if (request.attempt < maxRetries && request.type != Type.SEQUENCE && requeueForRetry(request)) {
+                retried.incrementAndGet();
+            } else {
+                cancelled.incrementAndGet();
+                recordGesture(request, false);
+                request.result.complete(false);
+            }
+        }
+    }
+
+    /**
+     * Put a failed request back without sleeping the caller; it keeps its place
+     * among equal priorities. A full queue follows the same rule as submit().
+     * Returns false if the scheduler stopped or there was no room.
+     */
+    private boolean requeueForRetry(Request request) {
+        Request evicted = null;
+        synchronized (queueLock) {
+            if (!running) {
+                return false;
+            }
+            if (queue.size() >= capacity) {
+                evicted = lowestPriority();
+                if (evicted == null || evicted.priority >= request.priority) {
+                    return false;
+                }
+                queue.remove(evicted);
+                dropped.incrementAndGet();
+            }
+            request.attempt++;
+            queue.add(request);
+        }
+
+        if (evicted != null) {
+            evicted.result.complete(false);
+        }
+        return true;
+    }
+
+    /**
+     * Queue a telemetry row for a finished gesture with the path its first
+     * stroke traced (every stroke in turn for a sequence)
+     */
+    private void recordGesture(Request request, boolean success) {
+        DatabaseIntegrationManager sink = telemetry;
+        if (sink == null) return;
+        float[] xy = touchPath(request);
+        sink.recordGesture(request.type.name(), xy, xy.length / 2, request.duration, success);
+    }
+
+    private static float[] touchPath(Request request) {
+        float[] p = request.points;
+        switch (request.type) {
+            case SWIPE:
+            case PINCH:
+                return p.length >= 4 ? Arrays.copyOf(p, 4) : p;
+
+            case PATH:
+                return approximate(request.customPath);
+
+            case SEQUENCE: {
+                List<float[]> strokes = new ArrayList<>(request.gestures.size());
+                int length = 0;
+                for (GestureDescription gesture : request.gestures) {
+                    if (gesture.getStrokeCount() == 0) continue;
+                    float[] stroke = approximate(gesture.getStroke(0).getPath());
+                    strokes.add(stroke);
+                    length += stroke.length;
+                }
+                float[] xy = new float[length];
+                int offset = 0;
+                for (float[] stroke : strokes) {
+                    System.arraycopy(stroke, 0, xy, offset, stroke.length);
+                    offset += stroke.length;
+                }
+                return xy;
+            }
+
+            default:
+                // Taps stay where they land
+                return p.length >= 2 ? Arrays.copyOf(p, 2) : p;
+        }
+    }
+
+    /**
+     * Path as interleaved x,y, from Path.approximate's (fraction, x, y) triplets
+     */
+    private static float[] approximate(Path path) {
+        if (path == null) return new float[0];
+        float[] triplets = path.approximate(PATH_TOLERANCE_PX);
+        float[] xy = new float[triplets.length / 3 * 2];
+        for (int i = 0, j = 0; i + 2 < triplets.length; i += 3, j += 2) {
+            xy[j] = triplets[i + 1];
+            xy[j + 1] = triplets[i + 2];
+        }
+        return xy;
+    }
+
+    private boolean dispatchAndAwait(Request request) {
+        List<Path> usedPaths = new ArrayList<>(MAX_STROKES);
+        recordLatency(queueLatency, System.currentTimeMillis() - request.enqueuedAt);
+
+        try {
+            if (request.type == Type.SEQUENCE) {
+                for (GestureDescription gesture : request.gestures) {
+                    if (!dispatchOne(gesture, request.type)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            GestureDescription gesture = buildGesture(request, usedPaths);
+            return gesture != null && dispatchOne(gesture, request.type);
+
+        } catch (TimeoutException e) {
+            Log.w(TAG, "Gesture " + request.type + " did not report completion");
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            Log.e(TAG, "Error dispatching " + request.type, e);
+            return false;
+        } finally {
+            releasePaths(usedPaths);
+        }
+    }
+
+    private boolean dispatchOne(GestureDescription gesture, Type type) throws Exception {
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        long dispatchedAt = System.currentTimeMillis();
+
+        boolean dispatched = service.dispatchGesture(gesture, new AccessibilityService.GestureResultCallback() {
+            @Override
+            public void onCompleted(GestureDescription gestureDescription) {
+                done.complete(true);
+            }
+
+            @Override
+            public void onCancelled(GestureDescription gestureDescription) {
+                done.complete(false);
+            }
+        }, null);
+
+        if (!dispatched) {
+            Log.w(TAG, "dispatchGesture rejected " + type);
+            return false;
+        }
+
+        boolean success = done.get(gestureDuration(gesture) + COMPLETION_SLACK_MS, TimeUnit.MILLISECONDS);
+        recordLatency(completionLatency, System.currentTimeMillis() - dispatchedAt);
+        return success;
+    }
+
+    private GestureDescription buildGesture(Request request, List<Path> usedPaths) {
+        GestureDescription.Builder builder = new GestureDescription.Builder();
+        float[] p = request.points;
+
+        switch (request.type) {
+            case TAP:
+            case LONG_PRESS:
+                builder.addStroke(new GestureDescription.StrokeDescription(
+                        pointPath(p[0], p[1], usedPaths), 0, request.duration));
+                break;
+
+            case DOUBLE_TAP: {
+                // Both taps in one gesture instead of sleeping between two dispatches
+                Path path = pointPath(p[0], p[1], usedPaths);
+                builder.addStroke(new GestureDescription.StrokeDescription(path, 0, request.duration));
+                builder.addStroke(new GestureDescription.StrokeDescription(path, request.duration + 100, request.duration));
+                break;
+            }
+
+            case SWIPE:
+                builder.addStroke(new GestureDescription.StrokeDescription(
+                        linePath(p[0], p[1], p[2], p[3], usedPaths), 0, request.duration));
+                break;
+
+            case PINCH:
+                builder.addStroke(new GestureDescription.StrokeDescription(
+                        linePath(p[0], p[1], p[2], p[3], usedPaths), 0, request.duration));
+                builder.addStroke(new GestureDescription.StrokeDescription(
+                        linePath(p[4], p[5], p[6], p[7], usedPaths), 0, request.duration));
+                break;
+
+            case MULTI_TAP:
+                for (int i = 0; i + 1 < p.length; i += 2) {
+                    builder.addStroke(new GestureDescription.StrokeDescription(
+                            pointPath(p[i], p[i + 1], usedPaths), 0, request.duration));
+                }
+                break;
+
+            case PATH:
+                builder.addStroke(new GestureDescription.StrokeDescription(request.customPath, 0, request.duration));
+                break;
+
+            default:
+                return null;
+        }
+        return builder.build();
+    }
+
+    private static long gestureDuration(GestureDescription gesture) {
+        long end = 0;
+        for (int i = 0; i < gesture.getStrokeCount(); i++) {
+            GestureDescription.StrokeDescription stroke = gesture.getStroke(i);
+            end = Math.max(end, stroke.getStartTime() + stroke.getDuration());
+        }
+        return end;
+    }
+
+    private Path pointPath(float x, float y, List<Path> usedPaths) {
+        Path path = acquirePath(usedPaths);
+        path.moveTo(x, y);
+        return path;
+    }
+
+    private Path linePath(float startX, float startY, float endX, float endY, List<Path> usedPaths) {
+        Path path = acquirePath(usedPaths);
+        path.moveTo(startX, startY);
+        path.lineTo(endX, endY);
+        return path;
+    }
+
+    // Paths are only touched by the dispatcher thread and go back to the pool once the gesture has finished
+    private Path acquirePath(List<Path> usedPaths) {
+        Path path = pathPool.poll();
+        if (path == null) {
+            path = new Path();
+        } else {
+            path.reset();
+        }
+        usedPaths.add(path);
+        return path;
+    }
+
+    private void releasePaths(List<Path> usedPaths) {
+        for (Path path : usedPaths) {
+            if (pathPool.size() < MAX_STROKES) {
+                pathPool.push(path);
+            }
+        }
+    }
+
+    // ===== Metrics =====
+
+    private static void recordLatency(AtomicLongArray histogram, long millis) {
+        for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+            if (millis <= LATENCY_BUCKETS_MS[i]) {
+                histogram.incrementAndGet(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Upper bounds in ms of the histogram buckets; the last bucket is open ended
+     */
+    public static long[] getLatencyBucketBounds() {
+        return LATENCY_BUCKETS_MS.clone();
+    }
+
+    /**
+     * Counts of dispatch-to-completion latencies per bucket
+     */
+    public long[] getCompletionLatencyHistogram() {
+        return snapshot(completionLatency);
+    }
+
+    /**
+     * Counts of enqueue-to-dispatch waits per bucket
+     */
+    public long[] getQueueLatencyHistogram() {
+        return snapshot(queueLatency);
+    }
+
+    /**
+     * Bucket upper bound containing the given completion latency percentile (0-100)
+     */
+    public long getCompletionLatencyPercentile(float percentile) {
+        long[] counts = getCompletionLatencyHistogram();
+        long total = 0;
+        for (long count : counts) total += count;
+        if (total == 0) return 0;
+
+        long target = (long) Math.ceil(total * Math.max(0f, Math.min(100f, percentile)) / 100.0);
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= target) {
+                return LATENCY_BUCKETS_MS[i];
+            }
+        }
+        return LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1];
+    }
+
+    private static long[] snapshot(AtomicLongArray histogram) {
+        long[] copy = new long[histogram.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = histogram.get(i);
+        }
+        return copy;
+    }
+
+    public int getQueueSize() {
+        synchronized (queueLock) {
+            return queue.size();
+        }
+    }
+
+    public long getSubmittedCount() { return submitted.get(); }
+    public long getCoalescedCount() { return coalesced.get(); }
+    public long getDroppedCount() { return dropped.get(); }
+    public long getCompletedCount() { return completed.get(); }
+    public long getCancelledCount() { return cancelled.get(); }
+    public long getRetriedCount() { return retried.get(); }
+
+    public void setCapacity(int capacity) {
+        synchronized (queueLock) {
+            this.capacity = Math.max(1, capacity);
+        }
+    }
+
+    public void setTelemetry(DatabaseIntegrationManager telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public void setMaxRetries(int maxRetries) { this.maxRetries = Math.max(0, maxRetries); }
+
+    /**
+     * Taps of the same type within radiusPx of a queued tap enqueued less than windowMs ago share its result
+     */
+    public void setCoalescing(long windowMs, float radiusPx) {
+        synchronized (queueLock) {
+            this.coalesceWindowMs = Math.max(0, windowMs);
+            this.coalesceRadiusPx = Math.max(0f, radiusPx);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.gestureai.gameautomation.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timeline of single-pointer strokes packed into as few gestures as possible.
+ * A gesture holds at most maxStrokes strokes and lasts at most maxDurationMs.
+ * Strokes that run past a gesture boundary are split, and the tail continues
+ * at time 0 of the next gesture, so a joystick hold survives across batches.
+ * Gestures are dispatched back to back, so a stroke that cannot start before
+ * the previous gesture ends is delayed; the total delay is reported as slip.
+ *
+ * Pure Java (no android.* types) so the packing runs on any JVM.
+ */
+public class GestureTimeline {
+
+    public static final int DEFAULT_MAX_STROKES = 10;
+    public static final long DEFAULT_MAX_DURATION_MS = 60_000;
+
+    /**
+     * One pointer moving in a straight line (or holding still) over a time span
+     */
+    public static class Stroke {
+        public final float startX, startY, endX, endY;
+        public final long startMs;
+        public final long durationMs;
+
+        Stroke(float startX, float startY, float endX, float endY, long startMs, long durationMs) {
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+            this.startMs = startMs;
+            this.durationMs = durationMs;
+        }
+    }
+
+    /**
+     * The part of a stroke that falls into one gesture. Offsets are relative to
+     * the gesture start; continuesPiece indexes the piece of the previous batch
+     * this one continues, or -1.
+     */
+    public static class Piece {
+        public final int strokeIndex;
+        public final float fromX, fromY, toX, toY;
+        public final long offsetMs;
+        public final long durationMs;
+        public final boolean willContinue;
+        public final int continuesPiece;
+
+        Piece(int strokeIndex, float fromX, float fromY, float toX, float toY,
+              long offsetMs, long durationMs, boolean willContinue, int continuesPiece) {
+            this.strokeIndex = strokeIndex;
+            this.fromX = fromX;
+            this.fromY = fromY;
+            this.toX = toX;
+            this.toY = toY;
+            this.offsetMs = offsetMs;
+            this.durationMs = durationMs;
+            this.willContinue = willContinue;
+            this.continuesPiece = continuesPiece;
+        }
+
+        public boolean isStationary() {
+            return fromX == toX && fromY == toY;
+        }
+    }
+
+    /**
+     * One gesture worth of pieces
+     */
+    public static class Batch {
+        public final long startMs;
+        public final long durationMs;
+        public final List<Piece> pieces;
+
+        Batch(long startMs, long durationMs, List<Piece> pieces) {
+            this.startMs = startMs;
+            this.durationMs = durationMs;
+            this.pieces = pieces;
+        }
+    }
+
+    // Working span of a stroke: [start, end) on the timeline, with origin the
+    // (possibly delayed) time the stroke began, used to interpolate positions
+    private static class Segment {
+        final int strokeIndex;
+        long origin;
+        long start;
+        long end;
+        final int previousPiece;
+
+        Segment(int strokeIndex, long origin, long start, long end, int previousPiece) {
+            this.strokeIndex = strokeIndex;
+            this.origin = origin;
+            this.start = start;
+            this.end = end;
+            this.previousPiece = previousPiece;
+        }
+    }
+
+    private final List<Stroke> strokes = new ArrayList<>();
+    private long slipMs = 0;
+
+    public GestureTimeline addTap(float x, float y, long startMs, long durationMs) {
+        return addLine(x, y, x, y, startMs, durationMs);
+    }
+
+    public GestureTimeline addHold(float x, float y, long startMs, long durationMs) {
+        return addLine(x, y, x, y, startMs, durationMs);
+    }
+
+    public GestureTimeline addLine(float startX, float startY, float endX, float endY, long startMs, long durationMs) {
+        if (durationMs <= 0) {
+            throw new IllegalArgumentException("Stroke duration must be positive");
+        }
+        strokes.add(new Stroke(startX, startY, endX, endY, Math.max(0, startMs), durationMs));
+        return this;
+    }
+
+    public List<Stroke> getStrokes() {
+        return Collections.unmodifiableList(strokes);
+    }
+
+    public int size() {
+        return strokes.size();
+    }
+
+    public void clear() {
+        strokes.clear();
+        slipMs = 0;
+    }
+
+    /**
+     * Total milliseconds strokes were delayed by the last pack()
+     */
+    public long getSlipMs() {
+        return slipMs;
+    }
+
+    public List<Batch> pack() {
+        return pack(DEFAULT_MAX_STROKES, DEFAULT_MAX_DURATION_MS);
+    }
+
+    public List<Batch> pack(int maxStrokes, long maxDurationMs) {
+        List<Batch> batches = new ArrayList<>();
+        slipMs = 0;
+        if (strokes.isEmpty()) return batches;
+
+        int strokeLimit = Math.max(1, maxStrokes);
+        long durationLimit = Math.max(1, maxDurationMs);
+
+        List<Segment> pending = new ArrayList<>(strokes.size());
+        for (int i = 0; i < strokes.size(); i++) {
+            Stroke stroke = strokes.get(i);
+            pending.add(new Segment(i, stroke.startMs, stroke.startMs, stroke.startMs + stroke.durationMs, -1));
+        }
+        // Stable sort keeps insertion order for strokes that start together
+        Collections.sort(pending, (a, b) -> Long.compare(a.start, b.start));
+
+        List<Segment> carry = new ArrayList<>();
+        int next = 0;
+        long t0 = pending.get(0).start;
+
+        while (next < pending.size() || !carry.isEmpty()) {
+            if (carry.isEmpty() && pending.get(next).start > t0) {
+                t0 = pending.get(next).start;
+            }
+
+            List<Segment> included = new ArrayList<>(carry);
+            while (next < pending.size() && included.size() < strokeLimit
+                    && pending.get(next).start < t0 + durationLimit) {
+                Segment segment = pending.get(next++);
+                if (segment.start < t0) {
+                    // Previous gesture is still running; delay the whole stroke
+                    long delay = t0 - segment.start;
+                    slipMs += delay;
+                    segment.origin += delay;
+                    segment.start += delay;
+                    segment.end += delay;
+                }
+                included.add(segment);
+            }
+
+            // End the batch at the duration limit, or earlier if strokes are
+            // waiting on the stroke limit (but always after something finishes)
+            long cut = t0 + durationLimit;
+            if (next < pending.size() && included.size() >= strokeLimit) {
+                long earliestEnd = Long.MAX_VALUE;
+                for (Segment segment : included) {
+                    earliestEnd = Math.min(earliestEnd, segment.end);
+                }
+                cut = Math.min(cut, Math.max(pending.get(next).start, earliestEnd));
+            }
+
+            List<Piece> pieces = new ArrayList<>(included.size());
+            List<Segment> nextCarry = new ArrayList<>();
+            long batchEnd = t0;
+            for (Segment segment : included) {
+                Stroke stroke = strokes.get(segment.strokeIndex);
+                long end = Math.min(segment.end, cut);
+                boolean split = segment.end > cut;
+
+                float fromX = interpolate(stroke.startX, stroke.endX, stroke, segment.origin, segment.start);
+                float fromY = interpolate(stroke.startY, stroke.endY, stroke, segment.origin, segment.start);
+                float toX = interpolate(stroke.startX, stroke.endX, stroke, segment.origin, end);
+                float toY = interpolate(stroke.startY, stroke.endY, stroke, segment.origin, end);
+
+                pieces.add(new Piece(segment.strokeIndex, fromX, fromY, toX, toY,
+                        segment.start - t0, end - segment.start, split, segment.previousPiece));
+                if (split) {
+                    nextCarry.add(new Segment(segment.strokeIndex, segment.origin, cut, segment.end, pieces.size() - 1));
+                }
+                batchEnd = Math.max(batchEnd, end);
+            }
+
+            batches.add(new Batch(t0, batchEnd - t0, pieces));
+            carry = nextCarry;
+            // Continuations resume exactly at the cut; otherwise the next gesture
+            // cannot start before this one has finished
+            t0 = carry.isEmpty() ? batchEnd : cut;
+        }
+
+        return batches;
+    }
+
+    private static float interpolate(float from, float to, Stroke stroke, long origin, long time) {
+        if (from == to) return from;
+        float progress = (float) (time - origin) / stroke.durationMs;
+        progress = Math.max(0f, Math.min(1f, progress));
+        return from + (to - from) * progress;
+    }
+}
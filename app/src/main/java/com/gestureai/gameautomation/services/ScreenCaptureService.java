@@ -27,7 +27,8 @@ import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import com.gestureai.gameautomation.MainActivity;
 import com.gestureai.gameautomation.R;
-import java.nio.ByteBuffer;
+import com.gestureai.gameautomation.utils.FrameHandle;
+import com.gestureai.gameautomation.utils.FramePool;
 import com.gestureai.gameautomation.ai.GameStrategyAgent;
 import com.gestureai.gameautomation.ai.PatternLearningEngine;
 import org.nd4j.linalg.factory.Nd4j;
@@ -89,6 +90,16 @@ public class ScreenCaptureService extends Service {
     private int screenHeight;
     private int screenDensity;
     
+    // Zero-copy frame borrowing; one ImageReader slot stays free for acquireLatestImage.
+    // Every read of the reader goes through acquireFrame so the pool's budget
+    // covers all acquired images.
+    private static final int MAX_IMAGES = 4;
+    private final FramePool framePool = new FramePool(MAX_IMAGES - 1);
+    private final Object imageReaderLock = new Object();
+    // Pooled consumers (the staged pipeline) own the reader while registered;
+    // the image-available listener stands down so it cannot steal their frames
+    private final java.util.concurrent.atomic.AtomicInteger pooledConsumers = new java.util.concurrent.atomic.AtomicInteger(0);
+    
     // Thread-safe singleton methods
     public static ScreenCaptureService getInstance() {
         return instance;
@@ -384,11 +395,8 @@ public class ScreenCaptureService extends Service {
         }
         
         try {
-            Image image = imageReader.acquireLatestImage();
-            if (image != null) {
-                Bitmap bitmap = imageToBitmap(image);
-                image.close();
-                
+            Bitmap bitmap = acquireBitmap();
+            if (bitmap != null) {
                 // Process with AI if enabled
                 if (aiProcessingEnabled && bitmap != null) {
                     processScreenWithAI(bitmap);
@@ -403,6 +411,70 @@ public class ScreenCaptureService extends Service {
         return null;
     }
     
+    /**
+     * Borrow the latest frame without copying it into a Bitmap.
+     * The caller owns one reference and must release() it; returns null when
+     * capture is inactive, no new frame is ready or every pooled frame is borrowed.
+     */
+    public FrameHandle acquireFrame() {
+        if (!isCapturing || imageReader == null) {
+            return null;
+        }
+        
+        try {
+            synchronized (imageReaderLock) {
+                if (framePool.getOutstandingCount() >= framePool.getCapacity()) {
+                    // acquireLatestImage would throw with every slot borrowed
+                    return null;
+                }
+                Image image = imageReader.acquireLatestImage();
+                return framePool.acquire(image, screenWidth, screenHeight);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error acquiring pooled frame", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Copy the latest frame into a bitmap owned by the caller. Goes through
+     * acquireFrame so it shares the pool's slot budget with borrowed frames.
+     */
+    private Bitmap acquireBitmap() {
+        FrameHandle frame = acquireFrame();
+        if (frame == null) {
+            return null;
+        }
+        try {
+            Bitmap bitmap = Bitmap.createBitmap(frame.getWidth(), frame.getHeight(), Bitmap.Config.ARGB_8888);
+            frame.copyInto(bitmap);
+            return bitmap;
+        } catch (Exception e) {
+            Log.e(TAG, "Error converting frame to bitmap", e);
+            return null;
+        } finally {
+            frame.release();
+        }
+    }
+    
+    /**
+     * Register a consumer that pulls frames with acquireFrame. While any is
+     * registered the image-available listener leaves the reader alone.
+     */
+    public void registerPooledConsumer() {
+        pooledConsumers.incrementAndGet();
+    }
+    
+    public void unregisterPooledConsumer() {
+        if (pooledConsumers.decrementAndGet() < 0) {
+            pooledConsumers.set(0);
+        }
+    }
+    
+    public FramePool getFramePool() {
+        return framePool;
+    }
+    
     public void stopCapture() {
         synchronized (projectionLock) {
             if (!isCapturing && !projectionActive) {
@@ -421,6 +493,7 @@ public class ScreenCaptureService extends Service {
             
             // Clear frame buffer to prevent memory leaks
             clearFrameBuffer();
+            framePool.clear();
             
             if (virtualDisplay != null) {
                 virtualDisplay.release();
@@ -581,20 +654,19 @@ public class ScreenCaptureService extends Service {
     }
     
     private void setupImageReader() {
-        imageReader = ImageReader.newInstance(screenWidth, screenHeight, PixelFormat.RGBA_8888, 2);
+        imageReader = ImageReader.newInstance(screenWidth, screenHeight, PixelFormat.RGBA_8888, MAX_IMAGES);
         imageReader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
             @Override
             public void onImageAvailable(ImageReader reader) {
                 try {
-                    Image image = reader.acquireLatestImage();
-                    if (image != null && callback != null) {
-                        Bitmap bitmap = imageToBitmap(image);
-                        if (bitmap != null) {
-                            // Real-time learning from screen capture
-                            processScreenWithRealTimeLearning(bitmap);
-                            callback.onScreenCaptured(bitmap);
-                        }
-                        image.close();
+                    if (callback == null || pooledConsumers.get() > 0) {
+                        return;
+                    }
+                    Bitmap bitmap = acquireBitmap();
+                    if (bitmap != null) {
+                        // Real-time learning from screen capture
+                        processScreenWithRealTimeLearning(bitmap);
+                        callback.onScreenCaptured(bitmap);
                     }
                 } catch (Exception e) {
                     Log.e(TAG, "Error processing captured image", e);
@@ -616,31 +688,6 @@ public class ScreenCaptureService extends Service {
         );
     }
     
-    private Bitmap imageToBitmap(Image image) {
-        try {
-            Image.Plane[] planes = image.getPlanes();
-            ByteBuffer buffer = planes[0].getBuffer();
-            int pixelStride = planes[0].getPixelStride();
-            int rowStride = planes[0].getRowStride();
-            int rowPadding = rowStride - pixelStride * screenWidth;
-            
-            Bitmap bitmap = Bitmap.createBitmap(
-                screenWidth + rowPadding / pixelStride,
-                screenHeight,
-                Bitmap.Config.ARGB_8888
-            );
-            bitmap.copyPixelsFromBuffer(buffer);
-            
-            if (rowPadding == 0) {
-                return bitmap;
-            } else {
-                return Bitmap.createBitmap(bitmap, 0, 0, screenWidth, screenHeight);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error converting image to bitmap", e);
-            return null;
-        }
-    }
     
     private void processScreenWithAI(Bitmap bitmap) {
         if (aiProcessor == null || patternLearner == null) return;
@@ -754,29 +801,21 @@ public class ScreenCaptureService extends Service {
     }
 
     private void processNewImage(ImageReader reader) {
-        Image image = null;
         try {
-            image = reader.acquireLatestImage();
-            if (image != null) {
-                Bitmap bitmap = imageToBitmap(image);
-                if (bitmap != null) {
-                    // Send to callback first
-                    if (callback != null) {
-                        callback.onScreenCaptured(bitmap);
-                    }
+            Bitmap bitmap = acquireBitmap();
+            if (bitmap != null) {
+                // Send to callback first
+                if (callback != null) {
+                    callback.onScreenCaptured(bitmap);
+                }
 
-                    // AI processing
-                    if (aiProcessingEnabled) {
-                        processWithAI(bitmap);
-                    }
+                // AI processing
+                if (aiProcessingEnabled) {
+                    processWithAI(bitmap);
                 }
             }
         } catch (Exception e) {
             Log.e(TAG, "Error processing captured image", e);
-        } finally {
-            if (image != null) {
-                image.close();
-            }
         }
     }
 
@@ -820,35 +859,6 @@ public class ScreenCaptureService extends Service {
         }
     }
 
-    private Bitmap imageToBitmap(Image image) {
-        try {
-            Image.Plane[] planes = image.getPlanes();
-            ByteBuffer buffer = planes[0].getBuffer();
-            int pixelStride = planes[0].getPixelStride();
-            int rowStride = planes[0].getRowStride();
-            int rowPadding = rowStride - pixelStride * screenWidth;
-            
-            // Create bitmap
-            Bitmap bitmap = Bitmap.createBitmap(
-                screenWidth + rowPadding / pixelStride, 
-                screenHeight, 
-                Bitmap.Config.ARGB_8888
-            );
-            bitmap.copyPixelsFromBuffer(buffer);
-            
-            // Crop to actual screen size if there's padding
-            if (rowPadding != 0) {
-                bitmap = Bitmap.createBitmap(bitmap, 0, 0, screenWidth, screenHeight);
-            }
-            
-            return bitmap;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error converting image to bitmap", e);
-            return null;
-        }
-    }
-    
     private void scheduleContinuousCapture() {
         if (isCapturing) {
             captureHandler.postDelayed(new Runnable() {
@@ -81,7 +81,8 @@ public class ServiceCommunicationProtocol {
         initializeValidServiceClasses();
         
         // Subscribe to service events
-        eventBus.subscribe(EventBus.ServiceStatusChangedEvent.class, this::handleServiceStatusChanged);
+        eventBus.subscribe(EventBus.ServiceStatusChangedEvent.class, this::handleServiceStatusChanged,
+                EventBus.DeliveryMode.BACKGROUND);
     }
     
     /**
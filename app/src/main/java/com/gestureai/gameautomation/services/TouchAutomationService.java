@@ -1,7 +1,6 @@
 package com.gestureai.gameautomation.services;
 
 import android.accessibilityservice.AccessibilityService;
-import android.accessibilityservice.GestureDescription;
 import android.graphics.Path;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
@@ -12,6 +11,8 @@ import com.gestureai.gameautomation.GameAutomationEngine;
 import com.gestureai.gameautomation.ai.GameStrategyAgent;
 import com.gestureai.gameautomation.ai.AdaptiveDecisionMaker;
 
+import java.util.concurrent.CompletableFuture;
+
 
 public class TouchAutomationService extends AccessibilityService {
     private static final String TAG = "TouchAutomationService";
@@ -24,6 +25,7 @@ public class TouchAutomationService extends AccessibilityService {
     private final Object serviceLock = new Object();
     
     private volatile boolean isServiceReady = false;
+    private volatile GestureScheduler gestureScheduler;
     
     /**
      * Static instance access for accessibility service
@@ -172,6 +174,9 @@ public class TouchAutomationService extends AccessibilityService {
                 // Initialize screen parameters for coordinate validation
                 initializeScreenParameters();
                 
+                // All gestures go through one non-blocking dispatch queue
+                gestureScheduler = GestureScheduler.forService(this);
+                
                 // Mark service as ready after successful initialization
                 isServiceReady = true;
                 
@@ -317,6 +322,10 @@ public class TouchAutomationService extends AccessibilityService {
                 eventQueue.clear();
             }
             
+            // Stop gesture dispatch and fail anything still queued
+            GestureScheduler.release(this);
+            gestureScheduler = null;
+            
             // Cleanup AI components
             if (gameStrategyAgent != null) {
                 gameStrategyAgent.cleanup();
@@ -452,6 +461,25 @@ public class TouchAutomationService extends AccessibilityService {
         }
     }
 
+    /**
+     * Scheduler that owns dispatchGesture for this service
+     */
+    public GestureScheduler getGestureScheduler() {
+        GestureScheduler scheduler = gestureScheduler;
+        if (scheduler == null && !isDestroyed) {
+            scheduler = GestureScheduler.forService(this);
+            gestureScheduler = scheduler;
+        }
+        return scheduler;
+    }
+    
+    /**
+     * True if the gesture was queued (or already completed successfully)
+     */
+    private static boolean isAccepted(CompletableFuture<Boolean> result) {
+        return !result.isDone() || result.getNow(false);
+    }
+    
     public boolean performTap(int x, int y) {
         ValidatedCoordinates coords = validateAndCalibrateCoordinates(x, y, "TAP");
         if (!coords.isValid) {
@@ -459,36 +487,23 @@ public class TouchAutomationService extends AccessibilityService {
             return false;
         }
         
-        boolean result = executeGesture(coords.x, coords.y, "TAP");
+        CompletableFuture<Boolean> result = scheduleGesture(coords.x, coords.y, "TAP");
         if (learningEnabled) {
-            learnFromTouchResult("TAP", coords.x, coords.y, result);
-            updateTouchCalibration("TAP", x, y, coords.x, coords.y, result);
+            result.thenAccept(success -> updateTouchCalibration("TAP", x, y, coords.x, coords.y, success));
         }
-        return result;
+        return isAccepted(result);
     }
 
     public boolean performSwipe(int startX, int startY, int endX, int endY, int duration) {
-        boolean result = executeSwipeGesture(startX, startY, endX, endY, duration);
+        GestureScheduler scheduler = getGestureScheduler();
+        if (scheduler == null) return false;
+        
+        CompletableFuture<Boolean> result = scheduler.swipe(startX, startY, endX, endY, duration,
+            GestureScheduler.PRIORITY_NORMAL);
         if (learningEnabled) {
-            learnFromTouchResult("SWIPE", startX, startY, result);
-        }
-        return result;
-    }
-    
-    private boolean executeSwipeGesture(int startX, int startY, int endX, int endY, int duration) {
-        try {
-            Path swipePath = new Path();
-            swipePath.moveTo(startX, startY);
-            swipePath.lineTo(endX, endY);
-            
-            GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-            gestureBuilder.addStroke(new GestureDescription.StrokeDescription(swipePath, 0, duration));
-            
-            return dispatchGesture(gestureBuilder.build(), null, null);
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to execute swipe gesture", e);
-            return false;
+            result.thenAccept(success -> learnFromTouchResult("SWIPE", startX, startY, success));
         }
+        return isAccepted(result);
     }
     
     private void learnFromTouchResult(String actionType, int x, int y, boolean success) {
@@ -524,70 +539,33 @@ public class TouchAutomationService extends AccessibilityService {
     }
     
     /**
-     * Enhanced gesture execution with proper error handling and retry mechanism
+     * Queue a single-point gesture. Retries happen on the scheduler thread and
+     * learning runs once the gesture has actually completed or been cancelled.
      */
-    private boolean executeGesture(int x, int y, String gestureType) {
-        if (!isServiceReady || isDestroyed) {
+    private CompletableFuture<Boolean> scheduleGesture(int x, int y, String gestureType) {
+        GestureScheduler scheduler = getGestureScheduler();
+        if (!isServiceReady || isDestroyed || scheduler == null) {
             Log.w(TAG, "Service not ready or destroyed, cannot execute gesture: " + gestureType);
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
         
-        // Validate coordinates before execution
-        ValidatedCoordinates coords = validateAndCalibrateCoordinates(x, y, gestureType);
-        if (coords == null) {
-            Log.e(TAG, "Invalid coordinates for gesture: " + gestureType);
-            return false;
+        CompletableFuture<Boolean> result;
+        switch (gestureType) {
+            case "LONG_PRESS":
+                result = scheduler.longPress(x, y, calculateGestureDuration(gestureType), GestureScheduler.PRIORITY_NORMAL);
+                break;
+            case "DOUBLE_TAP":
+                result = scheduler.doubleTap(x, y, GestureScheduler.PRIORITY_NORMAL);
+                break;
+            default:
+                result = scheduler.tap(x, y, GestureScheduler.PRIORITY_NORMAL);
+                break;
         }
         
-        int maxRetries = 3;
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
-            try {
-                Path gesturePath = new Path();
-                gesturePath.moveTo(coords.x, coords.y);
-                
-                GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-                
-                int duration = calculateGestureDuration(gestureType);
-                gestureBuilder.addStroke(new GestureDescription.StrokeDescription(gesturePath, 0, duration));
-                
-                // Use callback to track gesture completion
-                GestureResultCallback callback = new GestureResultCallback(gestureType, coords.x, coords.y);
-                boolean result = dispatchGesture(gestureBuilder.build(), callback, null);
-                
-                if (result) {
-                    Log.d(TAG, "Executed " + gestureType + " at (" + coords.x + "," + coords.y + ") - Attempt: " + attempt);
-                    
-                    // Learn from successful execution
-                    if (learningEnabled) {
-                        learnFromTouchResult(gestureType, coords.x, coords.y, true);
-                    }
-                    
-                    return true;
-                } else if (attempt < maxRetries) {
-                    Log.w(TAG, "Gesture execution failed, retrying... Attempt: " + (attempt + 1));
-                    Thread.sleep(100); // Brief delay before retry
-                }
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Exception during gesture execution attempt " + attempt + ": " + gestureType, e);
-                if (attempt == maxRetries) {
-                    // Learn from failed execution
-                    if (learningEnabled) {
-                        learnFromTouchResult(gestureType, coords.x, coords.y, false);
-                    }
-                    return false;
-                }
-                try {
-                    Thread.sleep(150); // Longer delay after exception
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    return false;
-                }
-            }
+        if (learningEnabled) {
+            result.thenAccept(success -> learnFromTouchResult(gestureType, x, y, success));
         }
-        
-        Log.e(TAG, "All attempts failed for gesture: " + gestureType);
-        return false;
+        return result;
     }
     
     private int calculateGestureDuration(String gestureType) {
@@ -604,33 +582,6 @@ public class TouchAutomationService extends AccessibilityService {
         }
     }
     
-    /**
-     * Callback to track gesture execution results
-     */
-    private class GestureResultCallback extends GestureDescription.GestureResultCallback {
-        private final String gestureType;
-        private final int x, y;
-        
-        GestureResultCallback(String gestureType, int x, int y) {
-            this.gestureType = gestureType;
-            this.x = x;
-            this.y = y;
-        }
-        
-        @Override
-        public void onCompleted(GestureDescription gestureDescription) {
-            Log.d(TAG, "Gesture completed successfully: " + gestureType + " at (" + x + "," + y + ")");
-        }
-        
-        @Override
-        public void onCancelled(GestureDescription gestureDescription) {
-            Log.w(TAG, "Gesture cancelled: " + gestureType + " at (" + x + "," + y + ")");
-            if (learningEnabled) {
-                learnFromTouchResult(gestureType, x, y, false);
-            }
-        }
-    }
-    
     // Removed duplicate method - keeping the implementation from earlier in the file
     
     // Missing methods that are called from TouchExecutionManager
@@ -639,21 +590,12 @@ public class TouchAutomationService extends AccessibilityService {
     }
     
     public boolean executeLongPress(float x, float y, long duration) {
-        if (instance == null) {
+        GestureScheduler scheduler = getGestureScheduler();
+        if (scheduler == null) {
             Log.e(TAG, "Service not available");
             return false;
         }
-        
-        Path longPressPath = new Path();
-        longPressPath.moveTo(x, y);
-        
-        GestureDescription.StrokeDescription longPressStroke = 
-            new GestureDescription.StrokeDescription(longPressPath, 0, duration);
-        
-        GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-        gestureBuilder.addStroke(longPressStroke);
-        
-        return dispatchGesture(gestureBuilder.build(), null, null);
+        return isAccepted(scheduler.longPress(x, y, duration, GestureScheduler.PRIORITY_NORMAL));
     }
     
     public boolean executeSwipe(float startX, float startY, float endX, float endY, long duration) {
@@ -661,164 +603,27 @@ public class TouchAutomationService extends AccessibilityService {
     }
     
     public boolean executeDoubleTap(float x, float y) {
-        // Execute first tap
-        boolean firstTap = performTap((int) x, (int) y);
-        
-        try {
-            Thread.sleep(100); // Short delay between taps
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        
-        // Execute second tap
-        boolean secondTap = performTap((int) x, (int) y);
-        
-        return firstTap && secondTap;
+        // Both taps are dispatched as one gesture, no sleeping between them
+        return isAccepted(scheduleGesture((int) x, (int) y, "DOUBLE_TAP"));
     }
     
     public boolean executePinch(android.graphics.PointF center, float startDistance, float endDistance, long duration) {
-        if (instance == null) {
+        GestureScheduler scheduler = getGestureScheduler();
+        if (scheduler == null) {
             Log.e(TAG, "Service not available for pinch");
             return false;
         }
-        
-        try {
-            // Calculate pinch gesture coordinates
-            float startRadius = startDistance / 2;
-            float endRadius = endDistance / 2;
-            
-            // Create two-finger pinch paths
-            Path path1 = new Path();
-            Path path2 = new Path();
-            
-            // First finger path (left side)
-            path1.moveTo(center.x - startRadius, center.y);
-            path1.lineTo(center.x - endRadius, center.y);
-            
-            // Second finger path (right side)
-            path2.moveTo(center.x + startRadius, center.y);
-            path2.lineTo(center.x + endRadius, center.y);
-            
-            GestureDescription.StrokeDescription stroke1 = 
-                new GestureDescription.StrokeDescription(path1, 0, duration);
-            GestureDescription.StrokeDescription stroke2 = 
-                new GestureDescription.StrokeDescription(path2, 0, duration);
-            
-            GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-            gestureBuilder.addStroke(stroke1);
-            gestureBuilder.addStroke(stroke2);
-            
-            return dispatchGesture(gestureBuilder.build(), null, null);
-        } catch (Exception e) {
-            Log.e(TAG, "Error executing pinch gesture", e);
-            return false;
-        }
+        return isAccepted(scheduler.pinch(center.x, center.y, startDistance, endDistance, duration,
+            GestureScheduler.PRIORITY_NORMAL));
     }
     
     public boolean executeCustomPath(android.graphics.Path customPath, long duration) {
-        if (instance == null) {
+        GestureScheduler scheduler = getGestureScheduler();
+        if (scheduler == null) {
             Log.e(TAG, "Service not available for custom path");
             return false;
         }
-        
-        try {
-            GestureDescription.StrokeDescription customStroke = 
-                new GestureDescription.StrokeDescription(customPath, 0, duration);
-            
-            GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-            gestureBuilder.addStroke(customStroke);
-            
-            return dispatchGesture(gestureBuilder.build(), null, null);
-        } catch (Exception e) {
-            Log.e(TAG, "Error executing custom path gesture", e);
-            return false;
-        }
-    }
-    
-    // Core gesture execution methods
-    private boolean executeGesture(int x, int y, String gestureType) {
-        if (instance == null) {
-            Log.e(TAG, "Service not available for " + gestureType);
-            return false;
-        }
-        
-        try {
-            Path tapPath = new Path();
-            tapPath.moveTo(x, y);
-            
-            long duration = gestureType.equals("TAP") ? 50L : 200L;
-            GestureDescription.StrokeDescription tapStroke = 
-                new GestureDescription.StrokeDescription(tapPath, 0, duration);
-            
-            GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-            gestureBuilder.addStroke(tapStroke);
-            
-            return dispatchGesture(gestureBuilder.build(), null, null);
-        } catch (Exception e) {
-            Log.e(TAG, "Error executing " + gestureType + " gesture", e);
-            return false;
-        }
-    }
-    
-    private boolean executeSwipeGesture(int startX, int startY, int endX, int endY, int duration) {
-        if (instance == null) {
-            Log.e(TAG, "Service not available for swipe");
-            return false;
-        }
-        
-        try {
-            Path swipePath = new Path();
-            swipePath.moveTo(startX, startY);
-            swipePath.lineTo(endX, endY);
-            
-            GestureDescription.StrokeDescription swipeStroke = 
-                new GestureDescription.StrokeDescription(swipePath, 0, duration);
-            
-            GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-            gestureBuilder.addStroke(swipeStroke);
-            
-            return dispatchGesture(gestureBuilder.build(), null, null);
-        } catch (Exception e) {
-            Log.e(TAG, "Error executing swipe gesture", e);
-            return false;
-        }
-    }
-    
-    public boolean executePinch(android.graphics.PointF center, float startDistance, float endDistance, long duration) {
-        if (instance == null) {
-            Log.e(TAG, "Service not available for pinch");
-            return false;
-        }
-        
-        try {
-            // First finger path
-            Path path1 = new Path();
-            float startX1 = center.x - startDistance / 2;
-            float endX1 = center.x - endDistance / 2;
-            path1.moveTo(startX1, center.y);
-            path1.lineTo(endX1, center.y);
-            
-            // Second finger path  
-            Path path2 = new Path();
-            float startX2 = center.x + startDistance / 2;
-            float endX2 = center.x + endDistance / 2;
-            path2.moveTo(startX2, center.y);
-            path2.lineTo(endX2, center.y);
-            
-            GestureDescription.StrokeDescription stroke1 = 
-                new GestureDescription.StrokeDescription(path1, 0, duration);
-            GestureDescription.StrokeDescription stroke2 = 
-                new GestureDescription.StrokeDescription(path2, 0, duration);
-            
-            GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-            gestureBuilder.addStroke(stroke1);
-            gestureBuilder.addStroke(stroke2);
-            
-            return dispatchGesture(gestureBuilder.build(), null, null);
-        } catch (Exception e) {
-            Log.e(TAG, "Error executing pinch gesture", e);
-            return false;
-        }
+        return isAccepted(scheduler.path(customPath, duration, GestureScheduler.PRIORITY_NORMAL));
     }
     
     // CRITICAL: Missing AccessibilityService required methods
@@ -888,49 +693,28 @@ public class TouchAutomationService extends AccessibilityService {
      * Perform gesture action using accessibility service
      */
     private boolean performGestureAction(String actionType, int x, int y) {
+        GestureScheduler scheduler = getGestureScheduler();
+        if (scheduler == null) {
+            Log.w(TAG, "Gesture scheduler not available for action: " + actionType);
+            return false;
+        }
+        
         try {
-            android.graphics.Path gesturePath = new android.graphics.Path();
-            
+            float priority = GestureScheduler.PRIORITY_NORMAL;
             switch (actionType) {
-                case "TAP":
-                case "CLICK":
-                    gesturePath.moveTo(x, y);
-                    break;
-                    
                 case "SWIPE_UP":
-                    gesturePath.moveTo(x, y);
-                    gesturePath.lineTo(x, y - 200);
-                    break;
-                    
+                    return isAccepted(scheduler.swipe(x, y, x, y - 200, 100, priority));
                 case "SWIPE_DOWN":
-                    gesturePath.moveTo(x, y);
-                    gesturePath.lineTo(x, y + 200);
-                    break;
-                    
+                    return isAccepted(scheduler.swipe(x, y, x, y + 200, 100, priority));
                 case "SWIPE_LEFT":
-                    gesturePath.moveTo(x, y);
-                    gesturePath.lineTo(x - 200, y);
-                    break;
-                    
+                    return isAccepted(scheduler.swipe(x, y, x - 200, y, 100, priority));
                 case "SWIPE_RIGHT":
-                    gesturePath.moveTo(x, y);
-                    gesturePath.lineTo(x + 200, y);
-                    break;
-                    
+                    return isAccepted(scheduler.swipe(x, y, x + 200, y, 100, priority));
+                case "TAP":
+                case "CLICK":
                 default:
-                    gesturePath.moveTo(x, y);
-                    break;
+                    return isAccepted(scheduler.tap(x, y, priority));
             }
-            
-            android.accessibilityservice.GestureDescription.StrokeDescription stroke = 
-                new android.accessibilityservice.GestureDescription.StrokeDescription(gesturePath, 0, 100);
-            
-            android.accessibilityservice.GestureDescription.Builder gestureBuilder = 
-                new android.accessibilityservice.GestureDescription.Builder();
-            gestureBuilder.addStroke(stroke);
-            
-            return dispatchGesture(gestureBuilder.build(), null, null);
-            
         } catch (Exception e) {
             Log.e(TAG, "Failed to perform gesture action: " + actionType, e);
             return false;
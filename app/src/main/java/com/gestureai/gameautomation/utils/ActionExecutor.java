@@ -4,22 +4,30 @@ import android.content.Context;
 import android.util.Log;
 import com.gestureai.gameautomation.GameAction;
 import com.gestureai.gameautomation.TouchController;
+import com.gestureai.gameautomation.database.DatabaseIntegrationManager;
+import com.gestureai.gameautomation.services.GestureCompiler;
+import com.gestureai.gameautomation.services.GestureScheduler;
 import com.gestureai.gameautomation.services.TouchAutomationService;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Utility class for executing game actions through touch automation
  * This is NOT a service - it's a utility class that coordinates with TouchAutomationService
  */
 public class ActionExecutor {
     private static final String TAG = "ActionExecutor";
+    private static final String SOURCE = "automation";
     
     private Context context;
     private TouchController touchController;
     private TouchAutomationService automationService;
+    private DatabaseIntegrationManager telemetry;
     
     public ActionExecutor(Context context) {
         this.context = context;
         this.touchController = new TouchController(context);
+        this.telemetry = DatabaseIntegrationManager.getInstance(context);
     }
     
     public void setAutomationService(TouchAutomationService service) {
@@ -52,50 +60,121 @@ public class ActionExecutor {
         }
     }
     
+    /**
+     * Gesture queue of the bound (or running) automation service
+     */
+    private GestureScheduler getGestureScheduler() {
+        TouchAutomationService service = automationService != null ?
+            automationService : TouchAutomationService.getInstance();
+        return service != null ? service.getGestureScheduler() : null;
+    }
+    
+    private static boolean isQueued(CompletableFuture<Boolean> result) {
+        return !result.isDone() || result.getNow(false);
+    }
+    
+    /**
+     * Log the action once its gesture finishes; returns whether it was queued
+     */
+    private boolean track(GameAction action, CompletableFuture<Boolean> result) {
+        long submittedAt = System.currentTimeMillis();
+        result.thenAccept(success -> recordAction(action, success, System.currentTimeMillis() - submittedAt));
+        return isQueued(result);
+    }
+    
+    /**
+     * Log a synchronous (fallback) execution
+     */
+    private boolean track(GameAction action, boolean success, long submittedAt) {
+        recordAction(action, success, System.currentTimeMillis() - submittedAt);
+        return success;
+    }
+    
+    private void recordAction(GameAction action, boolean success, long reactionTime) {
+        if (telemetry != null) {
+            telemetry.recordAction(action.getActionType(), action.getX(), action.getY(),
+                action.getConfidence(), SOURCE, success, reactionTime);
+        }
+    }
+    
     private boolean executeTouchAction(GameAction action) {
-        if (automationService != null) {
-            return automationService.performTouch(action.getX(), action.getY());
+        GestureScheduler scheduler = getGestureScheduler();
+        if (scheduler != null) {
+            return track(action, scheduler.tap(action.getX(), action.getY(), action.getPriority()));
         } else if (touchController != null) {
-            return touchController.performTouch(action.getX(), action.getY());
+            long start = System.currentTimeMillis();
+            return track(action, touchController.performTouch(action.getX(), action.getY()), start);
         }
         return false;
     }
     
     private boolean executeSwipeAction(GameAction action) {
-        if (automationService != null) {
-            return automationService.performSwipe(
+        GestureScheduler scheduler = getGestureScheduler();
+        if (scheduler != null) {
+            return track(action, scheduler.swipe(
                 action.getX(), action.getY(),
                 action.getEndX(), action.getEndY(),
-                action.getDuration()
-            );
+                action.getDuration(), action.getPriority()
+            ));
         } else if (touchController != null) {
-            return touchController.performSwipe(
+            long start = System.currentTimeMillis();
+            return track(action, touchController.performSwipe(
                 action.getX(), action.getY(),
                 action.getEndX(), action.getEndY(),
                 action.getDuration()
-            );
+            ), start);
         }
         return false;
     }
     
     private boolean executeHoldAction(GameAction action) {
-        if (automationService != null) {
-            return automationService.performLongPress(action.getX(), action.getY(), action.getDuration());
+        GestureScheduler scheduler = getGestureScheduler();
+        if (scheduler != null) {
+            return track(action, scheduler.longPress(action.getX(), action.getY(), action.getDuration(), action.getPriority()));
         } else if (touchController != null) {
-            return touchController.performLongPress(action.getX(), action.getY(), action.getDuration());
+            long start = System.currentTimeMillis();
+            return track(action, touchController.performLongPress(action.getX(), action.getY(), action.getDuration()), start);
         }
         return false;
     }
     
     private boolean executeMultiTouchAction(GameAction action) {
-        if (automationService != null) {
-            return automationService.performMultiTouch(action.getTouchPoints());
+        GestureScheduler scheduler = getGestureScheduler();
+        if (scheduler != null) {
+            return track(action, scheduler.multiTap(action.getTouchPoints(), 100, action.getPriority()));
         } else if (touchController != null) {
-            return touchController.performMultiTouch(action.getTouchPoints());
+            long start = System.currentTimeMillis();
+            return track(action, touchController.performMultiTouch(action.getTouchPoints()), start);
         }
         return false;
     }
     
+    /**
+     * Run a combo as one compiled gesture sequence, intervalMs between actions
+     */
+    public boolean executeCombo(java.util.List<GameAction> actions, long intervalMs) {
+        GestureScheduler scheduler = getGestureScheduler();
+        if (scheduler == null || actions == null || actions.isEmpty()) {
+            return false;
+        }
+        
+        try {
+            GestureCompiler compiler = new GestureCompiler().addSequence(actions, 0, intervalMs);
+            CompletableFuture<Boolean> result = scheduler.sequence(compiler.compile(), GestureScheduler.PRIORITY_HIGH);
+            long submittedAt = System.currentTimeMillis();
+            result.thenAccept(success -> {
+                long reactionTime = System.currentTimeMillis() - submittedAt;
+                for (GameAction action : actions) {
+                    recordAction(action, success, reactionTime);
+                }
+            });
+            return isQueued(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Error executing combo of " + actions.size() + " actions", e);
+            return false;
+        }
+    }
+    
     public boolean isReady() {
         return (automationService != null && automationService.isConnected()) || 
                (touchController != null);
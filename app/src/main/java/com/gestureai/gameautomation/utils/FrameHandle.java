@@ -0,0 +1,186 @@
+package com.gestureai.gameautomation.utils;
+
+import android.graphics.Bitmap;
+import android.media.Image;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted view of one captured RGBA_8888 frame.
+ * Wraps the Image.Plane buffer directly; row-stride padding is handled by
+ * the accessors instead of copying into a cropped bitmap. Borrowers call
+ * retain()/release(); when the last reference is released the underlying
+ * Image is closed and the handle goes back to its FramePool.
+ */
+public class FrameHandle {
+    private static final String TAG = "FrameHandle";
+
+    private final FramePool pool;
+    private final AtomicInteger refCount = new AtomicInteger(0);
+
+    private Image image;
+    private ByteBuffer buffer;
+    private int width;
+    private int height;
+    private int rowStride;
+    private int pixelStride;
+    private long timestamp;
+
+    // Lazily materialised bitmap, reused across frames of the same size
+    private Bitmap bitmap;
+    private boolean bitmapValid = false;
+    private int[] rowPixels;
+
+    FrameHandle(FramePool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Bind this handle to a freshly acquired image. Called by FramePool only.
+     */
+    void attach(Image image, int width, int height) {
+        Image.Plane plane = image.getPlanes()[0];
+        this.image = image;
+        this.buffer = plane.getBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        this.width = width;
+        this.height = height;
+        this.rowStride = plane.getRowStride();
+        this.pixelStride = plane.getPixelStride();
+        this.timestamp = System.currentTimeMillis();
+        this.bitmapValid = false;
+        refCount.set(1);
+    }
+
+    /**
+     * Take an additional reference, e.g. before handing the frame to another thread
+     */
+    public FrameHandle retain() {
+        int refs;
+        do {
+            refs = refCount.get();
+            if (refs <= 0) {
+                throw new IllegalStateException("Frame already released");
+            }
+        } while (!refCount.compareAndSet(refs, refs + 1));
+        return this;
+    }
+
+    /**
+     * Drop a reference. The last release closes the image and recycles the handle.
+     */
+    public void release() {
+        int refs = refCount.decrementAndGet();
+        if (refs == 0) {
+            try {
+                if (image != null) {
+                    image.close();
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Error closing frame image", e);
+            }
+            image = null;
+            buffer = null;
+            bitmapValid = false;
+            pool.recycle(this);
+        } else if (refs < 0) {
+            refCount.set(0);
+            Log.w(TAG, "Frame released more times than retained");
+        }
+    }
+
+    public boolean isReleased() { return refCount.get() <= 0; }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getRowStride() { return rowStride; }
+    public int getPixelStride() { return pixelStride; }
+    public long getTimestamp() { return timestamp; }
+
+    /**
+     * Raw RGBA bytes including any row padding. Valid only while retained.
+     */
+    public ByteBuffer getBuffer() { return buffer; }
+
+    /**
+     * Single pixel as ARGB, read straight from the plane
+     */
+    public int getPixel(int x, int y) {
+        return rgbaToArgb(buffer.getInt(y * rowStride + x * pixelStride));
+    }
+
+    /**
+     * Copy a region as ARGB into a caller-owned array, same contract as
+     * Bitmap.getPixels so callers can keep reusing their buffer
+     */
+    public void getPixels(int[] pixels, int offset, int stride, int x, int y, int regionWidth, int regionHeight) {
+        for (int row = 0; row < regionHeight; row++) {
+            int src = (y + row) * rowStride + x * pixelStride;
+            int dst = offset + row * stride;
+            for (int col = 0; col < regionWidth; col++) {
+                pixels[dst + col] = rgbaToArgb(buffer.getInt(src));
+                src += pixelStride;
+            }
+        }
+    }
+
+    /**
+     * Bitmap view of this frame for APIs that need one (ML Kit, OpenCV Utils).
+     * Filled at most once per frame into a bitmap that survives recycling, so
+     * steady-state capture allocates nothing. Valid only while retained;
+     * do not recycle the result.
+     */
+    public synchronized Bitmap asBitmap() {
+        if (bitmapValid) {
+            return bitmap;
+        }
+        if (bitmap == null || bitmap.isRecycled()
+                || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            if (bitmap != null && !bitmap.isRecycled()) {
+                bitmap.recycle();
+            }
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        copyInto(bitmap);
+        bitmapValid = true;
+        return bitmap;
+    }
+
+    /**
+     * Copy this frame into an existing bitmap of the same size, skipping the
+     * intermediate padded bitmap and crop
+     */
+    public synchronized void copyInto(Bitmap target) {
+        buffer.rewind();
+        if (rowStride == width * pixelStride) {
+            target.copyPixelsFromBuffer(buffer);
+        } else {
+            if (rowPixels == null || rowPixels.length != width) {
+                rowPixels = new int[width];
+            }
+            for (int row = 0; row < height; row++) {
+                getPixels(rowPixels, 0, width, 0, row, width, 1);
+                target.setPixels(rowPixels, 0, width, 0, row, width, 1);
+            }
+        }
+        buffer.rewind();
+    }
+
+    /**
+     * Free the cached bitmap when the pool is torn down
+     */
+    synchronized void dispose() {
+        if (bitmap != null && !bitmap.isRecycled()) {
+            bitmap.recycle();
+        }
+        bitmap = null;
+        rowPixels = null;
+    }
+
+    // Little-endian read of R,G,B,A bytes gives 0xAABBGGRR
+    private static int rgbaToArgb(int abgr) {
+        return (abgr & 0xFF00FF00) | ((abgr & 0xFF) << 16) | ((abgr >> 16) & 0xFF);
+    }
+}
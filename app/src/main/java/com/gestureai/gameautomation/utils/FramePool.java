@@ -0,0 +1,95 @@
+package com.gestureai.gameautomation.utils;
+
+import android.media.Image;
+import android.util.Log;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of FrameHandles for ImageReader captures.
+ * The capacity must stay below the ImageReader's maxImages, since every
+ * outstanding handle keeps one Image acquired until it is released.
+ */
+public class FramePool {
+    private static final String TAG = "FramePool";
+
+    private final int capacity;
+    private final ConcurrentLinkedQueue<FrameHandle> freeHandles = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger createdHandles = new AtomicInteger(0);
+    private final AtomicInteger outstanding = new AtomicInteger(0);
+
+    // Pool statistics
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong exhausted = new AtomicLong(0);
+
+    public FramePool(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Wrap an acquired image in a pooled handle with one reference held by the caller.
+     * Returns null when every handle is borrowed; the image is closed in that case
+     * so the ImageReader keeps flowing.
+     */
+    public FrameHandle acquire(Image image, int width, int height) {
+        if (image == null) {
+            return null;
+        }
+
+        FrameHandle handle = freeHandles.poll();
+        if (handle != null) {
+            hits.incrementAndGet();
+        } else if (createdHandles.incrementAndGet() <= capacity) {
+            misses.incrementAndGet();
+            handle = new FrameHandle(this);
+        } else {
+            createdHandles.decrementAndGet();
+            exhausted.incrementAndGet();
+            image.close();
+            return null;
+        }
+
+        try {
+            handle.attach(image, width, height);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to attach image to frame handle", e);
+            image.close();
+            freeHandles.offer(handle);
+            return null;
+        }
+        outstanding.incrementAndGet();
+        return handle;
+    }
+
+    void recycle(FrameHandle handle) {
+        outstanding.decrementAndGet();
+        freeHandles.offer(handle);
+    }
+
+    /**
+     * Release cached bitmaps of idle handles. Borrowed handles are freed as
+     * they come back.
+     */
+    public void clear() {
+        FrameHandle handle;
+        while ((handle = freeHandles.poll()) != null) {
+            handle.dispose();
+            createdHandles.decrementAndGet();
+        }
+        Log.d(TAG, "Frame pool cleared, " + outstanding.get() + " frames still borrowed");
+    }
+
+    public int getCapacity() { return capacity; }
+    public int getOutstandingCount() { return outstanding.get(); }
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getExhaustedCount() { return exhausted.get(); }
+
+    public float getHitRate() {
+        long total = hits.get() + misses.get();
+        return total > 0 ? (float) hits.get() / total : 0f;
+    }
+}
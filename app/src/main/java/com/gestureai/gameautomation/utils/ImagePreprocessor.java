@@ -0,0 +1,370 @@
+package com.gestureai.gameautomation.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Single-pass image preprocessing for TensorFlow Lite inputs.
+ * Crops, resizes, reorders channels, normalizes and optionally quantizes
+ * ARGB pixels straight into a direct input buffer that is reused per thread.
+ * Works on plain int[] pixels or a RowSource so it has no Android dependencies.
+ */
+public class ImagePreprocessor {
+
+    /**
+     * Supplies source pixels one row at a time, in Bitmap.getPixels layout,
+     * so only the rows the resize actually samples are ever read
+     */
+    public interface RowSource {
+        void readRow(int y, int left, int width, int[] dst);
+    }
+
+    public enum ResizeMode { NEAREST, BILINEAR }
+
+    public enum ChannelOrder { RGB, BGR, GRAY }
+
+    public enum OutputType { FLOAT32, UINT8 }
+
+    private final int outputWidth;
+    private final int outputHeight;
+    private final ResizeMode resizeMode;
+    private final ChannelOrder channelOrder;
+    private final OutputType outputType;
+    private final float[] mean;
+    private final float[] invStd;
+    private final float quantScale;
+    private final int quantZeroPoint;
+    private final int channels;
+
+    private final ThreadLocal<State> threadState = new ThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            return new State();
+        }
+    };
+
+    private ImagePreprocessor(Builder builder) {
+        this.outputWidth = builder.outputWidth;
+        this.outputHeight = builder.outputHeight;
+        this.resizeMode = builder.resizeMode;
+        this.channelOrder = builder.channelOrder;
+        this.outputType = builder.outputType;
+        this.channels = builder.channelOrder == ChannelOrder.GRAY ? 1 : 3;
+        this.mean = new float[3];
+        this.invStd = new float[3];
+        for (int c = 0; c < 3; c++) {
+            mean[c] = builder.mean[c];
+            invStd[c] = 1.0f / builder.std[c];
+        }
+        this.quantScale = builder.quantScale;
+        this.quantZeroPoint = builder.quantZeroPoint;
+    }
+
+    /**
+     * Preprocess the whole source image
+     */
+    public ByteBuffer process(int[] argb, int srcWidth, int srcHeight) {
+        return process(argb, srcWidth, srcHeight, 0, 0, srcWidth, srcHeight);
+    }
+
+    /**
+     * Preprocess a region of the source image. The returned buffer belongs to
+     * the calling thread and is overwritten by its next call.
+     */
+    public ByteBuffer process(int[] argb, int srcWidth, int srcHeight,
+                              int roiLeft, int roiTop, int roiWidth, int roiHeight) {
+        int left = Math.max(0, Math.min(roiLeft, srcWidth - 1));
+        int top = Math.max(0, Math.min(roiTop, srcHeight - 1));
+        int width = Math.max(1, Math.min(roiWidth, srcWidth - left));
+        int height = Math.max(1, Math.min(roiHeight, srcHeight - top));
+
+        State state = threadState.get();
+        state.prepare(left, width);
+
+        ByteBuffer buffer = state.buffer;
+        buffer.clear();
+
+        float scaleY = (float) height / outputHeight;
+        for (int dy = 0; dy < outputHeight; dy++) {
+            if (resizeMode == ResizeMode.NEAREST) {
+                int sy = top + Math.min(height - 1, (int) (dy * scaleY));
+                fillRowNearest(argb, sy * srcWidth, state);
+            } else {
+                float fy = (dy + 0.5f) * scaleY - 0.5f;
+                if (fy < 0) fy = 0;
+                int y0 = (int) fy;
+                int y1 = Math.min(y0 + 1, height - 1);
+                float wy = fy - y0;
+                fillRowBilinear(argb, (top + y0) * srcWidth, (top + y1) * srcWidth, wy, state);
+            }
+            writeRow(state);
+        }
+
+        buffer.rewind();
+        return buffer;
+    }
+
+    /**
+     * Preprocess a region read row by row from the source. At most two source
+     * rows per output row are fetched, so the cost scales with the model input
+     * size rather than the frame size.
+     */
+    public ByteBuffer process(RowSource source, int srcWidth, int srcHeight,
+                              int roiLeft, int roiTop, int roiWidth, int roiHeight) {
+        int left = Math.max(0, Math.min(roiLeft, srcWidth - 1));
+        int top = Math.max(0, Math.min(roiTop, srcHeight - 1));
+        int width = Math.max(1, Math.min(roiWidth, srcWidth - left));
+        int height = Math.max(1, Math.min(roiHeight, srcHeight - top));
+
+        State state = threadState.get();
+        state.prepare(left, width);
+        state.prepareRows(width);
+
+        ByteBuffer buffer = state.buffer;
+        buffer.clear();
+
+        // Row buffers start at the ROI's left edge, while the x tables are absolute
+        int rowOffset = -left;
+        float scaleY = (float) height / outputHeight;
+        for (int dy = 0; dy < outputHeight; dy++) {
+            if (resizeMode == ResizeMode.NEAREST) {
+                int sy = top + Math.min(height - 1, (int) (dy * scaleY));
+                fillRowNearest(fetchRow(source, sy, left, width, null, state), rowOffset, state);
+            } else {
+                float fy = (dy + 0.5f) * scaleY - 0.5f;
+                if (fy < 0) fy = 0;
+                int y0 = (int) fy;
+                int y1 = Math.min(y0 + 1, height - 1);
+                float wy = fy - y0;
+                int[] row0 = fetchRow(source, top + y0, left, width, null, state);
+                int[] row1 = fetchRow(source, top + y1, left, width, row0, state);
+                fillRowBilinear(row0, rowOffset, row1, rowOffset, wy, state);
+            }
+            writeRow(state);
+        }
+
+        buffer.rewind();
+        return buffer;
+    }
+
+    public ByteBuffer process(RowSource source, int srcWidth, int srcHeight) {
+        return process(source, srcWidth, srcHeight, 0, 0, srcWidth, srcHeight);
+    }
+
+    /**
+     * Return source row y from the two-row cache, reading it into whichever
+     * slot is not holding the row still in use
+     */
+    private int[] fetchRow(RowSource source, int y, int left, int width, int[] inUse, State state) {
+        if (state.cachedRowY[0] == y) return state.sourceRows[0];
+        if (state.cachedRowY[1] == y) return state.sourceRows[1];
+        int slot = state.sourceRows[0] == inUse ? 1 : 0;
+        source.readRow(y, left, width, state.sourceRows[slot]);
+        state.cachedRowY[slot] = y;
+        return state.sourceRows[slot];
+    }
+
+    private void fillRowNearest(int[] argb, int rowOffset, State state) {
+        float[] row = state.row;
+        int[] xs = state.x0;
+        for (int dx = 0, i = 0; dx < outputWidth; dx++) {
+            int pixel = argb[rowOffset + xs[dx]];
+            i = putPixel(row, i, (pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+        }
+    }
+
+    private void fillRowBilinear(int[] argb, int row0, int row1, float wy, State state) {
+        fillRowBilinear(argb, row0, argb, row1, wy, state);
+    }
+
+    private void fillRowBilinear(int[] src0, int row0, int[] src1, int row1, float wy, State state) {
+        float[] row = state.row;
+        int[] xs0 = state.x0;
+        int[] xs1 = state.x1;
+        float[] wxs = state.wx;
+        float iwy = 1.0f - wy;
+        for (int dx = 0, i = 0; dx < outputWidth; dx++) {
+            int p00 = src0[row0 + xs0[dx]];
+            int p01 = src0[row0 + xs1[dx]];
+            int p10 = src1[row1 + xs0[dx]];
+            int p11 = src1[row1 + xs1[dx]];
+            float wx = wxs[dx];
+            float iwx = 1.0f - wx;
+            float w00 = iwx * iwy, w01 = wx * iwy, w10 = iwx * wy, w11 = wx * wy;
+
+            float r = ((p00 >> 16) & 0xFF) * w00 + ((p01 >> 16) & 0xFF) * w01
+                    + ((p10 >> 16) & 0xFF) * w10 + ((p11 >> 16) & 0xFF) * w11;
+            float g = ((p00 >> 8) & 0xFF) * w00 + ((p01 >> 8) & 0xFF) * w01
+                    + ((p10 >> 8) & 0xFF) * w10 + ((p11 >> 8) & 0xFF) * w11;
+            float b = (p00 & 0xFF) * w00 + (p01 & 0xFF) * w01
+                    + (p10 & 0xFF) * w10 + (p11 & 0xFF) * w11;
+            i = putPixel(row, i, r, g, b);
+        }
+    }
+
+    private int putPixel(float[] row, int i, float r, float g, float b) {
+        switch (channelOrder) {
+            case BGR:
+                row[i++] = (b - mean[2]) * invStd[2];
+                row[i++] = (g - mean[1]) * invStd[1];
+                row[i++] = (r - mean[0]) * invStd[0];
+                break;
+            case GRAY:
+                row[i++] = (0.299f * r + 0.587f * g + 0.114f * b - mean[0]) * invStd[0];
+                break;
+            default:
+                row[i++] = (r - mean[0]) * invStd[0];
+                row[i++] = (g - mean[1]) * invStd[1];
+                row[i++] = (b - mean[2]) * invStd[2];
+        }
+        return i;
+    }
+
+    private void writeRow(State state) {
+        float[] row = state.row;
+        if (outputType == OutputType.FLOAT32) {
+            state.floatView.put(row);
+        } else {
+            ByteBuffer buffer = state.buffer;
+            for (float value : row) {
+                int q = Math.round(value / quantScale) + quantZeroPoint;
+                buffer.put((byte) (q < 0 ? 0 : (q > 255 ? 255 : q)));
+            }
+        }
+    }
+
+    public int getOutputWidth() { return outputWidth; }
+    public int getOutputHeight() { return outputHeight; }
+    public int getChannels() { return channels; }
+    public OutputType getOutputType() { return outputType; }
+
+    /**
+     * Size in bytes of one preprocessed input tensor
+     */
+    public int getInputSizeBytes() {
+        int bytesPerValue = outputType == OutputType.FLOAT32 ? 4 : 1;
+        return outputWidth * outputHeight * channels * bytesPerValue;
+    }
+
+    /**
+     * Per-thread output buffer plus resize tables for the last ROI seen
+     */
+    private class State {
+        final ByteBuffer buffer;
+        final FloatBuffer floatView;
+        final float[] row;
+        final int[] x0;
+        final int[] x1;
+        final float[] wx;
+        int tableLeft = -1;
+        int tableWidth = -1;
+        // Two cached source rows for the RowSource path
+        final int[][] sourceRows = new int[2][];
+        final int[] cachedRowY = {-1, -1};
+
+        State() {
+            buffer = ByteBuffer.allocateDirect(getInputSizeBytes()).order(ByteOrder.nativeOrder());
+            floatView = outputType == OutputType.FLOAT32 ? buffer.asFloatBuffer() : null;
+            row = new float[outputWidth * channels];
+            x0 = new int[outputWidth];
+            x1 = new int[outputWidth];
+            wx = new float[outputWidth];
+        }
+
+        void prepare(int left, int width) {
+            if (floatView != null) {
+                floatView.clear();
+            }
+            if (left == tableLeft && width == tableWidth) {
+                return;
+            }
+            float scaleX = (float) width / outputWidth;
+            for (int dx = 0; dx < outputWidth; dx++) {
+                if (resizeMode == ResizeMode.NEAREST) {
+                    x0[dx] = left + Math.min(width - 1, (int) (dx * scaleX));
+                } else {
+                    float fx = (dx + 0.5f) * scaleX - 0.5f;
+                    if (fx < 0) fx = 0;
+                    int sx = (int) fx;
+                    x0[dx] = left + sx;
+                    x1[dx] = left + Math.min(sx + 1, width - 1);
+                    wx[dx] = fx - sx;
+                }
+            }
+            tableLeft = left;
+            tableWidth = width;
+        }
+
+        void prepareRows(int width) {
+            for (int i = 0; i < 2; i++) {
+                if (sourceRows[i] == null || sourceRows[i].length < width) {
+                    sourceRows[i] = new int[width];
+                }
+                cachedRowY[i] = -1;
+            }
+        }
+    }
+
+    public static class Builder {
+        private int outputWidth;
+        private int outputHeight;
+        private ResizeMode resizeMode = ResizeMode.BILINEAR;
+        private ChannelOrder channelOrder = ChannelOrder.RGB;
+        private OutputType outputType = OutputType.FLOAT32;
+        private float[] mean = {0f, 0f, 0f};
+        private float[] std = {255f, 255f, 255f};
+        private float quantScale = 1.0f;
+        private int quantZeroPoint = 0;
+
+        public Builder setOutputSize(int width, int height) {
+            this.outputWidth = width;
+            this.outputHeight = height;
+            return this;
+        }
+
+        public Builder setResizeMode(ResizeMode resizeMode) {
+            this.resizeMode = resizeMode;
+            return this;
+        }
+
+        public Builder setChannelOrder(ChannelOrder channelOrder) {
+            this.channelOrder = channelOrder;
+            return this;
+        }
+
+        /**
+         * Per-channel (R, G, B) normalization on the 0-255 scale: (v - mean) / std.
+         * The default maps pixels to [0, 1].
+         */
+        public Builder setNormalization(float[] mean, float[] std) {
+            this.mean = mean.clone();
+            this.std = std.clone();
+            return this;
+        }
+
+        public Builder setNormalization(float mean, float std) {
+            return setNormalization(new float[]{mean, mean, mean}, new float[]{std, std, std});
+        }
+
+        /**
+         * Emit uint8 values quantized as round(normalized / scale) + zeroPoint
+         */
+        public Builder setQuantization(float scale, int zeroPoint) {
+            this.outputType = OutputType.UINT8;
+            this.quantScale = scale;
+            this.quantZeroPoint = zeroPoint;
+            return this;
+        }
+
+        public ImagePreprocessor build() {
+            if (outputWidth <= 0 || outputHeight <= 0) {
+                throw new IllegalArgumentException("Output size must be positive");
+            }
+            if (mean.length != 3 || std.length != 3) {
+                throw new IllegalArgumentException("Normalization needs one value per RGB channel");
+            }
+            return new ImagePreprocessor(this);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Iterator;
@@ -57,11 +58,30 @@ public class NLPProcessor {
     
     // MobileBERT Integration
     private Interpreter mobileBertInterpreter;
-    private Map<String, Integer> bertVocabulary;
+    private WordPieceTokenizer bertTokenizer;
     private boolean mobileBertEnabled = true;
     private static final String MOBILE_BERT_MODEL = "mobilebert_qa.tflite";
     private static final int MAX_SEQUENCE_LENGTH = 128;
     private static final int BERT_HIDDEN_SIZE = 768;
+    private static final int MIN_SEQUENCE_BUCKET = 8;
+
+    // Reusable BERT tensors, one set per sequence-length bucket; guarded by bertLock
+    private final Object bertLock = new Object();
+    private final int[] bertTokenScratch = new int[MAX_SEQUENCE_LENGTH];
+    private final Map<Integer, BertTensors> bertTensors = new HashMap<>();
+    private int bertInputLength = -1;
+
+    // Pooled embeddings keyed by normalized text, so repeated OCR strings skip the interpreter
+    private static final int EMBEDDING_CACHE_SIZE = 256;
+    private final Map<String, float[]> embeddingCache =
+        new LinkedHashMap<String, float[]>(EMBEDDING_CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > EMBEDDING_CACHE_SIZE;
+            }
+        };
+    private long embeddingCacheHits = 0;
+    private long embeddingCacheMisses = 0;
 
 
     // Universal game action vocabulary
@@ -213,13 +233,13 @@ public class NLPProcessor {
     private void initializeMobileBERT() {
         try {
             // Load MobileBERT model for semantic analysis
-            ByteBuffer mobileBertModel = FileUtil.loadMappedFile(context, MOBILE_BERT_MODEL);
+            java.nio.MappedByteBuffer mobileBertModel = FileUtil.loadMappedFile(context, MOBILE_BERT_MODEL);
             Interpreter.Options options = new Interpreter.Options();
             options.setNumThreads(2);
             mobileBertInterpreter = new Interpreter(mobileBertModel, options);
             
             // Initialize BERT vocabulary
-            bertVocabulary = loadBertVocabulary();
+            bertTokenizer = loadBertVocabulary();
             
             Log.d(TAG, "MobileBERT initialized successfully");
             
@@ -229,20 +249,30 @@ public class NLPProcessor {
         }
     }
     
-    private Map<String, Integer> loadBertVocabulary() {
-        Map<String, Integer> vocab = new HashMap<>();
-        // Load vocabulary from assets or create basic vocabulary
-        String[] basicVocab = {
-            "[PAD]", "[UNK]", "[CLS]", "[SEP]", "[MASK]",
+    private WordPieceTokenizer loadBertVocabulary() {
+        try {
+            return WordPieceTokenizer.fromAsset(context, WordPieceTokenizer.VOCAB_ASSET);
+        } catch (IOException e) {
+            Log.w(TAG, "BERT vocab.txt not found, using basic vocabulary");
+        }
+        
+        // Basic vocabulary with the standard BERT ids for special tokens
+        WordPieceTokenizer vocab = new WordPieceTokenizer();
+        vocab.addToken("[PAD]", 0);
+        vocab.addToken("[UNK]", 100);
+        vocab.addToken("[CLS]", 101);
+        vocab.addToken("[SEP]", 102);
+        vocab.addToken("[MASK]", 103);
+        
+        String[] gameTokens = {
             "attack", "defend", "collect", "move", "jump", "shoot", "run", "hide",
             "enemy", "item", "button", "weapon", "coin", "powerup", "door", "platform",
+            "score", "health", "ammo", "player", "level", "game", "win", "lose", "reload", "zone",
             "because", "to", "for", "when", "if", "then", "and", "or", "but"
         };
-        
-        for (int i = 0; i < basicVocab.length; i++) {
-            vocab.put(basicVocab[i], i);
+        for (int i = 0; i < gameTokens.length; i++) {
+            vocab.addToken(gameTokens[i], 2000 + i);
         }
-        
         return vocab;
     }
     
@@ -305,29 +335,12 @@ public class NLPProcessor {
         SemanticAnalysis analysis = new SemanticAnalysis();
         
         try {
-            // Tokenize text for BERT
-            int[] tokens = tokenizeForBERT(text);
-            
-            // Prepare input tensors
-            float[][] inputIds = new float[1][MAX_SEQUENCE_LENGTH];
-            float[][] attentionMask = new float[1][MAX_SEQUENCE_LENGTH];
-            
-            for (int i = 0; i < Math.min(tokens.length, MAX_SEQUENCE_LENGTH); i++) {
-                inputIds[0][i] = tokens[i];
-                attentionMask[0][i] = 1.0f;
+            // Pooled BERT embedding (cached per normalized text)
+            float[] embeddingVector = getBertEmbedding(text);
+            if (embeddingVector == null) {
+                return analyzeBasicSemantics(text);
             }
             
-            // Run BERT inference
-            Map<Integer, Object> outputs = new HashMap<>();
-            float[][] embeddings = new float[1][BERT_HIDDEN_SIZE];
-            outputs.put(0, embeddings);
-            
-            mobileBertInterpreter.runForMultipleInputsOutputs(
-                new Object[]{inputIds, attentionMask}, outputs);
-            
-            // Analyze embeddings to extract semantic features
-            float[] embeddingVector = embeddings[0];
-            
             // Calculate importance score from embedding magnitude
             float magnitude = 0.0f;
             for (float value : embeddingVector) {
@@ -408,21 +421,6 @@ public class NLPProcessor {
         }
     }
     
-    private int[] tokenizeForBERT(String text) {
-        String[] words = text.toLowerCase().split("\\s+");
-        List<Integer> tokens = new ArrayList<>();
-        
-        tokens.add(bertVocabulary.getOrDefault("[CLS]", 0)); // Start token
-        
-        for (String word : words) {
-            tokens.add(bertVocabulary.getOrDefault(word, bertVocabulary.getOrDefault("[UNK]", 1)));
-        }
-        
-        tokens.add(bertVocabulary.getOrDefault("[SEP]", 3)); // End token
-        
-        return tokens.stream().mapToInt(Integer::intValue).toArray();
-    }
-    
     private String extractSemanticCategory(float[] embedding) {
         // Simple category extraction based on embedding values
         float combatScore = 0.0f;
@@ -495,6 +493,15 @@ public class NLPProcessor {
         if (text1.equals(text2)) return 1.0f;
         
         try {
+            // Prefer contextual BERT embeddings
+            if (isBertAvailable()) {
+                float[] embedding1 = getBertEmbedding(text1);
+                float[] embedding2 = getBertEmbedding(text2);
+                if (embedding1 != null && embedding2 != null) {
+                    return cosineSimilarity(embedding1, embedding2);
+                }
+            }
+            
             // Use word embeddings if available
             if (nd4jNLPEnabled && wordEmbeddings != null) {
                 return calculateEmbeddingSimilarity(text1, text2);
@@ -571,6 +578,13 @@ public class NLPProcessor {
      */
     public float[] getTextEmbedding(String text) {
         try {
+            if (isBertAvailable()) {
+                float[] embedding = getBertEmbedding(text);
+                if (embedding != null) {
+                    return embedding.clone();
+                }
+            }
+            
             if (nd4jNLPEnabled && wordEmbeddings != null) {
                 INDArray embedding = getTextEmbeddingInternal(text);
                 if (embedding != null) {
@@ -1175,6 +1189,16 @@ public class NLPProcessor {
             locationFinder.clearAdaptiveData();
         }
         
+        synchronized (bertLock) {
+            if (mobileBertInterpreter != null) {
+                mobileBertInterpreter.close();
+                mobileBertInterpreter = null;
+            }
+            bertTensors.clear();
+            bertInputLength = -1;
+        }
+        clearEmbeddingCache();
+        
         isInitialized = false;
         Log.d(TAG, "NLP Processor cleaned up");
     }
@@ -1390,48 +1414,10 @@ public class NLPProcessor {
     }
     
     private float[] getMobileBertEmbeddings(String text) {
-        if (!mobileBertEnabled || mobileBertInterpreter == null) {
+        if (!isBertAvailable()) {
             return null;
         }
-        
-        try {
-            // Tokenize and prepare input
-            int[] tokens = tokenizeForBERT(text);
-            
-            // Create input buffer
-            java.nio.ByteBuffer inputBuffer = java.nio.ByteBuffer.allocateDirect(4 * MAX_SEQUENCE_LENGTH);
-            inputBuffer.order(java.nio.ByteOrder.nativeOrder());
-            
-            for (int i = 0; i < Math.min(tokens.length, MAX_SEQUENCE_LENGTH); i++) {
-                inputBuffer.putInt(tokens[i]);
-            }
-            
-            // Run inference
-            float[][] output = new float[1][BERT_HIDDEN_SIZE];
-            mobileBertInterpreter.run(inputBuffer, output);
-            
-            return output[0];
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting MobileBERT embeddings", e);
-            return null;
-        }
-    }
-    
-    private int[] tokenizeForBERT(String text) {
-        // Basic tokenization - in real implementation would use proper BERT tokenizer
-        String[] words = text.toLowerCase().split("\\s+");
-        int[] tokens = new int[Math.min(words.length + 2, MAX_SEQUENCE_LENGTH)]; // +2 for [CLS] and [SEP]
-        
-        tokens[0] = 101; // [CLS] token
-        for (int i = 0; i < Math.min(words.length, MAX_SEQUENCE_LENGTH - 2); i++) {
-            tokens[i + 1] = Math.abs(words[i].hashCode()) % 30000 + 1000; // Simple hash-based vocab
-        }
-        if (words.length < MAX_SEQUENCE_LENGTH - 2) {
-            tokens[words.length + 1] = 102; // [SEP] token
-        }
-        
-        return tokens;
+        return getBertEmbedding(text);
     }
     
     private Map<String, java.util.regex.Pattern> getWorkflowActionPatterns() {
@@ -2567,31 +2553,6 @@ public class NLPProcessor {
 
     // ========================== MobileBERT INTEGRATION ==========================
     
-    /**
-     * Initialize MobileBERT for advanced text understanding
-     */
-    private void initializeMobileBERT() {
-        try {
-            // Load MobileBERT TensorFlow Lite model
-            java.nio.MappedByteBuffer modelBuffer = FileUtil.loadMappedFile(context, MOBILE_BERT_MODEL);
-            
-            Interpreter.Options options = new Interpreter.Options();
-            options.setNumThreads(2); // Optimize for mobile
-            options.setUseNNAPI(true); // Use Neural Networks API if available
-            
-            mobileBertInterpreter = new Interpreter(modelBuffer, options);
-            
-            // Load BERT vocabulary for tokenization
-            loadBertVocabulary();
-            
-            Log.d(TAG, "MobileBERT initialized successfully");
-            
-        } catch (Exception e) {
-            Log.w(TAG, "MobileBERT initialization failed, using fallback", e);
-            mobileBertEnabled = false;
-        }
-    }
-    
     /**
      * Enhanced OCR text analysis with MobileBERT
      */
@@ -2605,14 +2566,14 @@ public class NLPProcessor {
         
         for (String text : ocrTexts) {
             try {
-                // Tokenize text for BERT
-                int[] tokenIds = tokenizeForBERT(text);
-                
-                // Run MobileBERT inference
-                float[][] embeddings = runBERTInference(tokenIds);
+                // Pooled MobileBERT embedding (cached per normalized text)
+                float[] embedding = getBertEmbedding(text);
+                if (embedding == null) {
+                    throw new IllegalStateException("No BERT embedding");
+                }
                 
                 // Convert to ND4J for integration with existing AI
-                INDArray bertFeatures = Nd4j.create(embeddings);
+                INDArray bertFeatures = Nd4j.create(new float[][]{embedding});
                 
                 // Classify game text type using BERT features
                 GameTextClassification classification = classifyGameText(bertFeatures, text);
@@ -2664,75 +2625,168 @@ public class NLPProcessor {
         return gameState;
     }
     
-    private int[] tokenizeForBERT(String text) {
-        int[] tokenIds = new int[MAX_SEQUENCE_LENGTH];
-        
-        // Add [CLS] token at start
-        tokenIds[0] = bertVocabulary.getOrDefault("[CLS]", 101);
+    private boolean isBertAvailable() {
+        return mobileBertEnabled && mobileBertInterpreter != null && bertTokenizer != null;
+    }
+    
+    /**
+     * Pooled BERT embedding for text. Results are cached by normalized text and
+     * shared, so callers must not modify the returned array. Returns null when
+     * BERT is unavailable or inference fails.
+     */
+    private float[] getBertEmbedding(String text) {
+        if (text == null || !isBertAvailable()) return null;
         
-        String[] words = text.toLowerCase().trim().split("\\s+");
-        int pos = 1;
+        String key = normalizeEmbeddingKey(text);
+        synchronized (embeddingCache) {
+            float[] cached = embeddingCache.get(key);
+            if (cached != null) {
+                embeddingCacheHits++;
+                return cached;
+            }
+            embeddingCacheMisses++;
+        }
         
-        for (String word : words) {
-            if (pos >= MAX_SEQUENCE_LENGTH - 1) break;
-            
-            // Handle subword tokenization (simplified)
-            if (bertVocabulary.containsKey(word)) {
-                tokenIds[pos++] = bertVocabulary.get(word);
+        float[] embedding = runBERTInference(key);
+        if (embedding != null) {
+            synchronized (embeddingCache) {
+                embeddingCache.put(key, embedding);
+            }
+        }
+        return embedding;
+    }
+    
+    private static String normalizeEmbeddingKey(String text) {
+        return text.trim().toLowerCase().replaceAll("\\s+", " ");
+    }
+    
+    /**
+     * Input and output tensors for one sequence length
+     */
+    private static class BertTensors {
+        final int length;
+        final int[][] inputIds;
+        final int[][] attentionMask;
+        final int[][] tokenTypeIds;
+        final Object[] inputs;
+        final Map<Integer, Object> outputs = new HashMap<>();
+        final float[][][] hiddenStates;   // [1][length][hidden] models
+        final float[][] pooledOutput;     // [1][hidden] models
+        
+        BertTensors(int length, int inputCount, int[] outputShape) {
+            this.length = length;
+            this.inputIds = new int[1][length];
+            this.attentionMask = new int[1][length];
+            this.tokenTypeIds = new int[1][length];
+            Object[] all = {inputIds, attentionMask, tokenTypeIds};
+            this.inputs = Arrays.copyOf(all, Math.max(1, Math.min(inputCount, all.length)));
+            
+            int hidden = outputShape.length > 0 ? outputShape[outputShape.length - 1] : BERT_HIDDEN_SIZE;
+            if (outputShape.length == 3) {
+                hiddenStates = new float[1][length][hidden];
+                pooledOutput = null;
+                outputs.put(0, hiddenStates);
             } else {
-                // Use [UNK] token for unknown words
-                tokenIds[pos++] = bertVocabulary.getOrDefault("[UNK]", 100);
+                hiddenStates = null;
+                pooledOutput = new float[1][hidden];
+                outputs.put(0, pooledOutput);
             }
         }
-        
-        // Add [SEP] token at end
-        if (pos < MAX_SEQUENCE_LENGTH) {
-            tokenIds[pos] = bertVocabulary.getOrDefault("[SEP]", 102);
+    }
+    
+    /**
+     * Smallest power-of-two bucket that fits the token count, so the
+     * interpreter is only resized when the text length class changes
+     */
+    private static int sequenceBucket(int tokenCount) {
+        int bucket = MIN_SEQUENCE_BUCKET;
+        while (bucket < tokenCount && bucket < MAX_SEQUENCE_LENGTH) {
+            bucket <<= 1;
         }
-        
-        return tokenIds;
+        return Math.min(bucket, MAX_SEQUENCE_LENGTH);
     }
     
-    private float[][] runBERTInference(int[] tokenIds) {
-        try {
-            // Prepare input tensors
-            int[][] inputIds = {tokenIds};
-            int[][] attentionMask = new int[1][MAX_SEQUENCE_LENGTH];
-            int[][] tokenTypeIds = new int[1][MAX_SEQUENCE_LENGTH];
-            
-            // Create attention mask (1 for real tokens, 0 for padding)
-            for (int i = 0; i < tokenIds.length; i++) {
-                attentionMask[0][i] = tokenIds[i] != 0 ? 1 : 0;
-            }
-            
-            // Run MobileBERT inference
-            Object[] inputs = {inputIds, attentionMask, tokenTypeIds};
-            
-            Map<String, Object> outputs = new HashMap<>();
-            float[][][] lastHiddenState = new float[1][MAX_SEQUENCE_LENGTH][BERT_HIDDEN_SIZE];
-            outputs.put("last_hidden_state", lastHiddenState);
-            
-            mobileBertInterpreter.runForMultipleInputsOutputs(inputs, outputs);
-            
-            // Return pooled representation (mean of all token embeddings)
-            float[][] pooledOutput = new float[1][BERT_HIDDEN_SIZE];
-            for (int i = 0; i < BERT_HIDDEN_SIZE; i++) {
-                float sum = 0;
-                int count = 0;
-                for (int j = 0; j < MAX_SEQUENCE_LENGTH; j++) {
-                    if (attentionMask[0][j] == 1) {
-                        sum += lastHiddenState[0][j][i];
-                        count++;
+    private float[] runBERTInference(String text) {
+        synchronized (bertLock) {
+            try {
+                int tokenCount = bertTokenizer.encode(text, bertTokenScratch, MAX_SEQUENCE_LENGTH);
+                int length = sequenceBucket(tokenCount);
+                int inputCount = mobileBertInterpreter.getInputTensorCount();
+                
+                // Resize to the actual sequence length instead of always running 128 tokens
+                if (length != bertInputLength) {
+                    int[] shape = {1, length};
+                    for (int i = 0; i < Math.min(inputCount, 3); i++) {
+                        mobileBertInterpreter.resizeInput(i, shape);
+                    }
+                    mobileBertInterpreter.allocateTensors();
+                    bertInputLength = length;
+                }
+                
+                BertTensors tensors = bertTensors.get(length);
+                if (tensors == null) {
+                    tensors = new BertTensors(length, inputCount, mobileBertInterpreter.getOutputTensor(0).shape());
+                    bertTensors.put(length, tensors);
+                }
+                
+                // Fill ids and mask (1 for real tokens, 0 for padding); token types stay 0
+                int padId = bertTokenizer.getPadId();
+                for (int i = 0; i < length; i++) {
+                    boolean real = i < tokenCount;
+                    tensors.inputIds[0][i] = real ? bertTokenScratch[i] : padId;
+                    tensors.attentionMask[0][i] = real ? 1 : 0;
+                }
+                
+                mobileBertInterpreter.runForMultipleInputsOutputs(tensors.inputs, tensors.outputs);
+                
+                if (tensors.pooledOutput != null) {
+                    return tensors.pooledOutput[0].clone();
+                }
+                
+                // Pooled representation: mean of the real token embeddings
+                float[][] hidden = tensors.hiddenStates[0];
+                float[] pooled = new float[hidden[0].length];
+                int count = Math.max(1, Math.min(tokenCount, length));
+                for (int j = 0; j < count; j++) {
+                    float[] row = hidden[j];
+                    for (int i = 0; i < pooled.length; i++) {
+                        pooled[i] += row[i];
                     }
                 }
-                pooledOutput[0][i] = count > 0 ? sum / count : 0;
+                for (int i = 0; i < pooled.length; i++) {
+                    pooled[i] /= count;
+                }
+                return pooled;
+                
+            } catch (Exception e) {
+                Log.e(TAG, "BERT inference failed", e);
+                return null;
             }
-            
-            return pooledOutput;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "BERT inference failed", e);
-            return new float[1][BERT_HIDDEN_SIZE]; // Return zeros on failure
+        }
+    }
+    
+    private static float cosineSimilarity(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        if (normA <= 0 || normB <= 0) return 0.0f;
+        return (float) (dot / (Math.sqrt(normA) * Math.sqrt(normB)));
+    }
+    
+    public float getEmbeddingCacheHitRate() {
+        synchronized (embeddingCache) {
+            long total = embeddingCacheHits + embeddingCacheMisses;
+            return total > 0 ? (float) embeddingCacheHits / total : 0.0f;
+        }
+    }
+    
+    public void clearEmbeddingCache() {
+        synchronized (embeddingCache) {
+            embeddingCache.clear();
         }
     }
     
@@ -2830,32 +2884,6 @@ public class NLPProcessor {
         return Math.min(1.0f, keywordScore + bertScore);
     }
     
-    private void loadBertVocabulary() {
-        bertVocabulary = new HashMap<>();
-        
-        try {
-            // Load basic BERT vocabulary
-            // In production, load from vocab.txt file
-            bertVocabulary.put("[PAD]", 0);
-            bertVocabulary.put("[UNK]", 100);
-            bertVocabulary.put("[CLS]", 101);
-            bertVocabulary.put("[SEP]", 102);
-            bertVocabulary.put("[MASK]", 103);
-            
-            // Add common game-related tokens
-            String[] gameTokens = {"score", "health", "ammo", "player", "enemy", "level", "game", "win", "lose"};
-            for (int i = 0; i < gameTokens.length; i++) {
-                bertVocabulary.put(gameTokens[i], 2000 + i);
-            }
-            
-            Log.d(TAG, "BERT vocabulary loaded with " + bertVocabulary.size() + " tokens");
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to load BERT vocabulary", e);
-            mobileBertEnabled = false;
-        }
-    }
-    
     private INDArray convertScreenToNDArray(android.graphics.Bitmap screenshot) {
         if (screenshot == null) return Nd4j.zeros(1, 1);
         
@@ -2,29 +2,31 @@ package com.gestureai.gameautomation.utils;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import com.gestureai.gameautomation.managers.InterpreterSession;
+import com.gestureai.gameautomation.managers.ModelRegistry;
 import timber.log.Timber;
-import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.support.common.FileUtil;
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
 
 /**
  * TensorFlow Lite Helper for object detection and classification
+ *
+ * Both models come from the shared ModelRegistry and load in the background
+ * after initialization; calls made before they are ready return no result.
  */
 public class TensorFlowLiteHelper {
 
     
-    private Interpreter objectDetectionInterpreter;
-    private Interpreter gestureClassifierInterpreter;
+    private ModelRegistry registry;
     private boolean isInitialized = false;
     
     // Model configuration
     private static final String OBJECT_DETECTION_MODEL = "object_detection.tflite";
     private static final String GESTURE_CLASSIFIER_MODEL = "gesture_classifier.tflite";
+    private static final String OBJECT_DETECTION_NAME = "object_detection";
+    private static final String GESTURE_CLASSIFIER_NAME = "gesture_classifier";
     private static final int INPUT_SIZE = 320;
     private static final int NUM_DETECTIONS = 10;
     private static final float CONFIDENCE_THRESHOLD = 0.5f;
@@ -62,47 +64,35 @@ public class TensorFlowLiteHelper {
     
     public void initializeObjectDetection(Context context) {
         try {
-            // Load object detection model with fallback handling
-            try {
-                ByteBuffer objectDetectionModel = FileUtil.loadMappedFile(context, OBJECT_DETECTION_MODEL);
-                Interpreter.Options options = new Interpreter.Options();
-                options.setNumThreads(4);
-                objectDetectionInterpreter = new Interpreter(objectDetectionModel, options);
-                Timber.d("Object detection model loaded successfully");
-            } catch (IOException e) {
-                Timber.w(e, "Object detection model not found, creating fallback interpreter");
-                objectDetectionInterpreter = null; // Will use fallback detection
-            }
-            
-            // Load gesture classifier model with fallback handling
-            try {
-                ByteBuffer gestureModel = FileUtil.loadMappedFile(context, GESTURE_CLASSIFIER_MODEL);
-                Interpreter.Options options = new Interpreter.Options();
-                options.setNumThreads(2);
-                gestureClassifierInterpreter = new Interpreter(gestureModel, options);
-                Timber.d("Gesture classifier model loaded successfully");
-            } catch (IOException e) {
-                Timber.w(e, "Gesture classifier model not found, using rule-based fallback");
-                gestureClassifierInterpreter = null; // Will use rule-based classification
-            }
+            // Register only; models map and load off this thread, and a
+            // missing model leaves the fallbacks in place
+            registry = ModelRegistry.getInstance(context);
+            registry.registerAsset(OBJECT_DETECTION_NAME, OBJECT_DETECTION_MODEL);
+            registry.registerAsset(GESTURE_CLASSIFIER_NAME, GESTURE_CLASSIFIER_MODEL);
+            registry.prefetch(OBJECT_DETECTION_NAME).whenComplete((hash, e) -> {
+                if (e != null) Timber.w(e, "Object detection model not found, using fallback detection");
+                else Timber.d("Object detection model loaded successfully");
+            });
+            registry.prefetch(GESTURE_CLASSIFIER_NAME).whenComplete((hash, e) -> {
+                if (e != null) Timber.w(e, "Gesture classifier model not found, using rule-based fallback");
+                else Timber.d("Gesture classifier model loaded successfully");
+            });
             
-            // Mark as initialized even if models are missing - fallbacks will handle it
             isInitialized = true;
-            Timber.d("TensorFlow Lite helper initialized with available models");
+            Timber.d("TensorFlow Lite helper initialized, models loading in background");
             
         } catch (Exception e) {
             Timber.e(e, "Critical error during TensorFlow Lite initialization");
             isInitialized = true; // Still set to true to enable fallback methods
-            objectDetectionInterpreter = null;
-            gestureClassifierInterpreter = null;
         }
     }
     
     public List<Detection> detectObjects(Bitmap bitmap) {
         List<Detection> detections = new ArrayList<>();
         
-        if (!isInitialized || objectDetectionInterpreter == null) {
-            Timber.w("Object detection not initialized, returning empty results");
+        InterpreterSession session = isInitialized && registry != null
+            ? registry.acquire(OBJECT_DETECTION_NAME) : null;
+        if (session == null) {
             return detections;
         }
         
@@ -125,7 +115,7 @@ public class TensorFlowLiteHelper {
             outputs.put(3, numDetections);
             
             // Run inference
-            objectDetectionInterpreter.runForMultipleInputsOutputs(inputs, outputs);
+            session.getInterpreter().runForMultipleInputsOutputs(inputs, outputs);
             
             // Process results
             int numValidDetections = Math.min(NUM_DETECTIONS, (int) numDetections[0]);
@@ -146,6 +136,8 @@ public class TensorFlowLiteHelper {
             
         } catch (Exception e) {
             Timber.e(e, "Error during object detection inference");
+        } finally {
+            registry.release(OBJECT_DETECTION_NAME, session);
         }
         
         return detections;
@@ -267,7 +259,9 @@ public class TensorFlowLiteHelper {
     }
     
     public String classifyGesture(Bitmap bitmap) {
-        if (!isInitialized || gestureClassifierInterpreter == null) {
+        InterpreterSession session = isInitialized && registry != null
+            ? registry.acquire(GESTURE_CLASSIFIER_NAME) : null;
+        if (session == null) {
             return "Unknown";
         }
         
@@ -279,7 +273,7 @@ public class TensorFlowLiteHelper {
             float[][] output = new float[1][6]; // 6 gesture classes
             
             // Run inference
-            gestureClassifierInterpreter.run(inputBuffer, output);
+            session.getInterpreter().run(inputBuffer, output);
             
             // Find class with highest confidence
             int bestClass = 0;
@@ -297,35 +291,25 @@ public class TensorFlowLiteHelper {
             
         } catch (Exception e) {
             Log.e(TAG, "Error during gesture classification", e);
+        } finally {
+            registry.release(GESTURE_CLASSIFIER_NAME, session);
         }
         
         return "Unknown";
     }
     
+    private final ImagePreprocessor inputPreprocessor = new ImagePreprocessor.Builder()
+        .setOutputSize(INPUT_SIZE, INPUT_SIZE)
+        .build();
+    
+    /**
+     * Resize and normalize to [0, 1] in one pass into a reused per-thread buffer.
+     * Only the source rows the resize samples are read, never the whole frame.
+     */
     private ByteBuffer preprocessImage(Bitmap bitmap) {
-        // Resize bitmap to model input size
-        Bitmap resizedBitmap = Bitmap.createScaledBitmap(bitmap, INPUT_SIZE, INPUT_SIZE, true);
-        
-        // Create ByteBuffer for model input
-        ByteBuffer inputBuffer = ByteBuffer.allocateDirect(4 * INPUT_SIZE * INPUT_SIZE * 3);
-        inputBuffer.order(ByteOrder.nativeOrder());
-        
-        // Normalize pixel values to [0, 1]
-        int[] pixels = new int[INPUT_SIZE * INPUT_SIZE];
-        resizedBitmap.getPixels(pixels, 0, INPUT_SIZE, 0, 0, INPUT_SIZE, INPUT_SIZE);
-        
-        for (int pixel : pixels) {
-            // Extract RGB values and normalize
-            int r = (pixel >> 16) & 0xFF;
-            int g = (pixel >> 8) & 0xFF;
-            int b = pixel & 0xFF;
-            
-            inputBuffer.putFloat(r / 255.0f);
-            inputBuffer.putFloat(g / 255.0f);
-            inputBuffer.putFloat(b / 255.0f);
-        }
-        
-        return inputBuffer;
+        return inputPreprocessor.process(
+            (y, left, width, dst) -> bitmap.getPixels(dst, 0, width, left, y, width, 1),
+            bitmap.getWidth(), bitmap.getHeight());
     }
     
     private String getGestureLabel(int classIndex) {
@@ -341,11 +325,9 @@ public class TensorFlowLiteHelper {
     }
     
     public void cleanup() {
-        if (objectDetectionInterpreter != null) {
-            objectDetectionInterpreter.close();
-        }
-        if (gestureClassifierInterpreter != null) {
-            gestureClassifierInterpreter.close();
+        if (registry != null) {
+            registry.unload(OBJECT_DETECTION_NAME);
+            registry.unload(GESTURE_CLASSIFIER_NAME);
         }
         isInitialized = false;
         Log.d(TAG, "TensorFlow Lite helper cleaned up");
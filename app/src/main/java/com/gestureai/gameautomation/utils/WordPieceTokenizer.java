@@ -0,0 +1,270 @@
+package com.gestureai.gameautomation.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BERT WordPiece tokenizer.
+ * Text is lower-cased, accent-stripped and split on whitespace and punctuation;
+ * each word is then split greedily into the longest matching vocabulary pieces,
+ * with continuation pieces looked up under the "##" prefix. Both lookups walk a
+ * character trie, so a word is matched in one pass without building substrings.
+ */
+public class WordPieceTokenizer {
+    private static final String TAG = "WordPieceTokenizer";
+
+    public static final String VOCAB_ASSET = "vocab.txt";
+    private static final String CONTINUATION_PREFIX = "##";
+    private static final int MAX_CHARS_PER_WORD = 100;
+
+    // Trie as parallel arrays: child lists are singly linked through nextSibling
+    private char[] nodeChar = new char[1024];
+    private int[] firstChild = new int[1024];
+    private int[] nextSibling = new int[1024];
+    private int[] tokenId = new int[1024];
+    private int nodeCount = 0;
+
+    private final int wordRoot;
+    private final int continuationRoot;
+    private int vocabularySize = 0;
+
+    private int padId = 0;
+    private int unkId = 100;
+    private int clsId = 101;
+    private int sepId = 102;
+
+    private final char[] wordBuffer = new char[MAX_CHARS_PER_WORD];
+
+    public WordPieceTokenizer() {
+        wordRoot = newNode('\0');
+        continuationRoot = newNode('\0');
+    }
+
+    /**
+     * Load vocab.txt from assets (one token per line, id = line number)
+     */
+    public static WordPieceTokenizer fromAsset(Context context, String assetName) throws IOException {
+        WordPieceTokenizer tokenizer = new WordPieceTokenizer();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(context.getAssets().open(assetName), "UTF-8"))) {
+            String line;
+            int id = 0;
+            while ((line = reader.readLine()) != null) {
+                tokenizer.addToken(line.trim(), id++);
+            }
+        }
+        tokenizer.resolveSpecialTokens();
+        Log.d(TAG, "Loaded WordPiece vocabulary with " + tokenizer.vocabularySize + " tokens");
+        return tokenizer;
+    }
+
+    /**
+     * Build from an in-memory token list, id = list position
+     */
+    public static WordPieceTokenizer fromTokens(List<String> tokens) {
+        WordPieceTokenizer tokenizer = new WordPieceTokenizer();
+        for (int i = 0; i < tokens.size(); i++) {
+            tokenizer.addToken(tokens.get(i), i);
+        }
+        tokenizer.resolveSpecialTokens();
+        return tokenizer;
+    }
+
+    public void addToken(String token, int id) {
+        if (token == null || token.isEmpty()) return;
+
+        int node = wordRoot;
+        int start = 0;
+        if (token.startsWith(CONTINUATION_PREFIX) && token.length() > CONTINUATION_PREFIX.length()) {
+            node = continuationRoot;
+            start = CONTINUATION_PREFIX.length();
+        }
+        for (int i = start; i < token.length(); i++) {
+            node = childOrCreate(node, token.charAt(i));
+        }
+        if (tokenId[node] < 0) {
+            vocabularySize++;
+        }
+        tokenId[node] = id;
+    }
+
+    private void resolveSpecialTokens() {
+        padId = lookup("[PAD]", padId);
+        unkId = lookup("[UNK]", unkId);
+        clsId = lookup("[CLS]", clsId);
+        sepId = lookup("[SEP]", sepId);
+    }
+
+    /**
+     * Id of a whole token, or the default if it is not in the vocabulary
+     */
+    public int lookup(String token, int defaultId) {
+        int node = wordRoot;
+        for (int i = 0; i < token.length() && node >= 0; i++) {
+            node = child(node, token.charAt(i));
+        }
+        return node >= 0 && tokenId[node] >= 0 ? tokenId[node] : defaultId;
+    }
+
+    /**
+     * Tokenize into [CLS] pieces... [SEP], truncated to maxLength.
+     * Returns the number of ids written.
+     */
+    public synchronized int encode(String text, int[] out, int maxLength) {
+        int limit = Math.min(maxLength, out.length);
+        if (limit < 2) return 0;
+
+        int count = 0;
+        out[count++] = clsId;
+        int last = limit - 1; // keep room for [SEP]
+
+        String normalized = normalize(text);
+        int length = normalized.length();
+        int i = 0;
+        while (i < length && count < last) {
+            char c = normalized.charAt(i);
+            if (Character.isWhitespace(c) || Character.isISOControl(c)) {
+                i++;
+                continue;
+            }
+            if (isPunctuation(c)) {
+                wordBuffer[0] = c;
+                count = encodeWord(1, out, count, last);
+                i++;
+                continue;
+            }
+            int wordLength = 0;
+            boolean tooLong = false;
+            while (i < length) {
+                c = normalized.charAt(i);
+                if (Character.isWhitespace(c) || Character.isISOControl(c) || isPunctuation(c)) break;
+                if (wordLength < MAX_CHARS_PER_WORD) {
+                    wordBuffer[wordLength++] = c;
+                } else {
+                    tooLong = true;
+                }
+                i++;
+            }
+            if (tooLong) {
+                out[count++] = unkId;
+            } else {
+                count = encodeWord(wordLength, out, count, last);
+            }
+        }
+
+        out[count++] = sepId;
+        return count;
+    }
+
+    /**
+     * Greedy longest-match-first split of wordBuffer[0, length). A word that
+     * cannot be fully covered becomes a single [UNK], as in the reference tokenizer.
+     */
+    private int encodeWord(int length, int[] out, int count, int limit) {
+        int startCount = count;
+        int start = 0;
+        while (start < length) {
+            int node = start == 0 ? wordRoot : continuationRoot;
+            int matchEnd = -1;
+            int matchId = -1;
+            for (int end = start; end < length; end++) {
+                node = child(node, wordBuffer[end]);
+                if (node < 0) break;
+                if (tokenId[node] >= 0) {
+                    matchEnd = end + 1;
+                    matchId = tokenId[node];
+                }
+            }
+            if (matchEnd < 0) {
+                out[startCount] = unkId;
+                return startCount + 1;
+            }
+            if (count >= limit) {
+                return count;
+            }
+            out[count++] = matchId;
+            start = matchEnd;
+        }
+        return count;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) return "";
+        String lower = text.toLowerCase();
+        // Fast path for plain ASCII OCR text
+        boolean ascii = true;
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) > 0x7F) {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii) return lower;
+
+        String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isPunctuation(char c) {
+        if ((c >= 33 && c <= 47) || (c >= 58 && c <= 64) || (c >= 91 && c <= 96) || (c >= 123 && c <= 126)) {
+            return true;
+        }
+        int type = Character.getType(c);
+        return type == Character.CONNECTOR_PUNCTUATION || type == Character.DASH_PUNCTUATION
+                || type == Character.START_PUNCTUATION || type == Character.END_PUNCTUATION
+                || type == Character.INITIAL_QUOTE_PUNCTUATION || type == Character.FINAL_QUOTE_PUNCTUATION
+                || type == Character.OTHER_PUNCTUATION;
+    }
+
+    private int child(int node, char c) {
+        for (int n = firstChild[node]; n >= 0; n = nextSibling[n]) {
+            if (nodeChar[n] == c) return n;
+        }
+        return -1;
+    }
+
+    private int childOrCreate(int node, char c) {
+        int existing = child(node, c);
+        if (existing >= 0) return existing;
+        int created = newNode(c);
+        nextSibling[created] = firstChild[node];
+        firstChild[node] = created;
+        return created;
+    }
+
+    private int newNode(char c) {
+        if (nodeCount == nodeChar.length) {
+            int newSize = nodeChar.length * 2;
+            nodeChar = Arrays.copyOf(nodeChar, newSize);
+            firstChild = Arrays.copyOf(firstChild, newSize);
+            nextSibling = Arrays.copyOf(nextSibling, newSize);
+            tokenId = Arrays.copyOf(tokenId, newSize);
+        }
+        int node = nodeCount++;
+        nodeChar[node] = c;
+        firstChild[node] = -1;
+        nextSibling[node] = -1;
+        tokenId[node] = -1;
+        return node;
+    }
+
+    public int getVocabularySize() { return vocabularySize; }
+    public int getPadId() { return padId; }
+    public int getUnkId() { return unkId; }
+    public int getClsId() { return clsId; }
+    public int getSepId() { return sepId; }
+}
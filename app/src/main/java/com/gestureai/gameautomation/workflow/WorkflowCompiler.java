@@ -0,0 +1,138 @@
+package com.gestureai.gameautomation.workflow;
+
+import android.content.Context;
+import com.gestureai.gameautomation.workflow.actions.WorkflowAction;
+import com.gestureai.gameautomation.workflow.conditions.NumberCompareCondition;
+import com.gestureai.gameautomation.workflow.conditions.ObjectVisibleCondition;
+import com.gestureai.gameautomation.workflow.conditions.WorkflowCondition;
+import java.util.List;
+
+/**
+ * Compiles a WorkflowDefinition's step tree into a flat WorkflowProgram.
+ * NumberCompareConditions and ObjectVisibleConditions become slot compares
+ * on unboxed values; other conditions and all actions are called through the
+ * variables' Map view. Each step compiles to:
+ *
+ *   [await waitUntil, else skip step on timeout]
+ *   [condition, else skip step] [action] [settle wait]
+ *   [loop: init; test count, else exit; loop condition, else exit; body; next + delay]
+ *   [wait]
+ *
+ * Loop counters use one register per nesting depth. A waitUntil condition
+ * that declares its signals is woken by changes to them; one that does not
+ * is polled every pollIntervalMs.
+ */
+public class WorkflowCompiler {
+
+    public static final long DEFAULT_POLL_INTERVAL_MS = 100;
+
+    private final Context context;
+    private final WorkflowVariables variables;
+    private long pollIntervalMs = DEFAULT_POLL_INTERVAL_MS;
+
+    public WorkflowCompiler(Context context, WorkflowVariables variables) {
+        this.context = context;
+        this.variables = variables;
+    }
+
+    public void setPollIntervalMs(long pollIntervalMs) {
+        this.pollIntervalMs = Math.max(1, pollIntervalMs);
+    }
+
+    public WorkflowProgram compile(WorkflowDefinition workflow) {
+        WorkflowProgram.Builder builder = new WorkflowProgram.Builder(workflow.getName());
+        compileSteps(builder, workflow.getSteps(), 0);
+        return builder.build();
+    }
+
+    private void compileSteps(WorkflowProgram.Builder builder, List<WorkflowStep> steps, int depth) {
+        if (steps == null) return;
+        for (WorkflowStep step : steps) {
+            builder.label(step.getName());
+
+            int awaitTimeout = -1;
+            if (step.getWaitUntil() != null) {
+                awaitTimeout = builder.emitAwait(compileAwait(step.getWaitUntil()), step.getWaitUntilTimeout());
+            }
+
+            int skipStep = -1;
+            if (step.getCondition() != null) {
+                skipStep = emitCondition(builder, step.getCondition());
+            }
+
+            WorkflowAction action = step.getAction();
+            if (action != null) {
+                builder.emitTask(vars -> action.execute(context, vars.asMap()));
+                if (action.getSettleTimeMs() > 0) {
+                    builder.emitWait(action.getSettleTimeMs());
+                }
+            }
+
+            if (step.isLoop()) {
+                builder.emitLoopInit(depth);
+                int loopTest = builder.emitLoopTest(depth, step.getMaxIterations());
+                int loopCondition = step.getLoopCondition() != null
+                        ? emitCondition(builder, step.getLoopCondition()) : -1;
+                compileSteps(builder, step.getLoopSteps(), depth + 1);
+                builder.label(step.getName());
+                builder.emitLoopNext(depth, step.getLoopDelay(), loopTest);
+                builder.patchToHere(loopTest);
+                if (loopCondition >= 0) builder.patchToHere(loopCondition);
+            }
+
+            if (step.getWaitTime() > 0) {
+                builder.emitWait(step.getWaitTime());
+            }
+
+            if (skipStep >= 0) builder.patchToHere(skipStep);
+            if (awaitTimeout >= 0) builder.patchToHere(awaitTimeout);
+        }
+    }
+
+    private WorkflowProgram.Await compileAwait(WorkflowCondition condition) {
+        String[] signals = condition.getSignals();
+        int[] slots = null;
+        if (signals != null && signals.length > 0) {
+            slots = new int[signals.length];
+            for (int i = 0; i < signals.length; i++) {
+                slots[i] = variables.slotOf(signals[i]);
+            }
+        }
+
+        WorkflowProgram.Test test;
+        if (condition instanceof ObjectVisibleCondition) {
+            ObjectVisibleCondition visible = (ObjectVisibleCondition) condition;
+            int slot = variables.slotOf(WorkflowSignals.labelSignal(visible.getLabel()));
+            int minCount = visible.getMinCount();
+            test = vars -> vars.isNumber(slot) && vars.getNumber(slot) >= minCount;
+        } else if (condition instanceof NumberCompareCondition
+                && ((NumberCompareCondition) condition).getVariableName() != null
+                && WorkflowProgram.operatorCode(((NumberCompareCondition) condition).getOperator()) >= 0) {
+            NumberCompareCondition compare = (NumberCompareCondition) condition;
+            int slot = variables.slotOf(compare.getVariableName());
+            int operator = WorkflowProgram.operatorCode(compare.getOperator());
+            double value = compare.getValue();
+            test = vars -> vars.isNumber(slot) && WorkflowProgram.compare(vars.getNumber(slot), operator, value);
+        } else {
+            test = vars -> condition.evaluate(context, vars.asMap());
+        }
+        return new WorkflowProgram.Await(test, slots, pollIntervalMs);
+    }
+
+    // Returns the instruction whose false branch must be patched
+    private int emitCondition(WorkflowProgram.Builder builder, WorkflowCondition condition) {
+        if (condition instanceof ObjectVisibleCondition) {
+            ObjectVisibleCondition visible = (ObjectVisibleCondition) condition;
+            return builder.emitCompare(variables.slotOf(WorkflowSignals.labelSignal(visible.getLabel())),
+                    WorkflowProgram.CMP_GE, visible.getMinCount());
+        }
+        if (condition instanceof NumberCompareCondition) {
+            NumberCompareCondition compare = (NumberCompareCondition) condition;
+            int operator = WorkflowProgram.operatorCode(compare.getOperator());
+            if (operator >= 0 && compare.getVariableName() != null) {
+                return builder.emitCompare(variables.slotOf(compare.getVariableName()), operator, compare.getValue());
+            }
+        }
+        return builder.emitTest(vars -> condition.evaluate(context, vars.asMap()));
+    }
+}
@@ -12,16 +12,29 @@ import java.util.concurrent.*;
 /**
  * Core Workflow Engine - Executes custom automation sequences
  * Supports conditional logic, loops, timing, and visual recognition
+ *
+ * Workflows are compiled to flat programs and run on a WorkflowRuntime, so
+ * waits and loop delays are timers rather than sleeping threads and any
+ * number of workflows can run at once.
  */
 public class WorkflowEngine {
     private static final String TAG = "WorkflowEngine";
+    private static final int RUNTIME_THREADS = 2; // Prevent single point of failure
     private static volatile WorkflowEngine instance;
     
     private Context context;
-    private ExecutorService executorService;
     private Map<String, WorkflowDefinition> workflows;
-    private Map<String, Object> globalVariables;
-    private boolean isRunning = false;
+    private WorkflowVariables globalVariables;
+    private WorkflowCompiler compiler;
+    private WorkflowRuntime runtime;
+    private WorkflowSignals signals;
+    
+    /**
+     * The engine if it has been created, for publishers that should not create it
+     */
+    public static WorkflowEngine peekInstance() {
+        return instance;
+    }
     
     public static WorkflowEngine getInstance(Context context) {
         if (instance == null) {
@@ -36,9 +49,23 @@ public class WorkflowEngine {
     
     private WorkflowEngine(Context context) {
         this.context = context.getApplicationContext();
-        this.executorService = Executors.newFixedThreadPool(2); // Prevent single point of failure
         this.workflows = new ConcurrentHashMap<>();
-        this.globalVariables = new ConcurrentHashMap<>();
+        this.globalVariables = new WorkflowVariables();
+        this.compiler = new WorkflowCompiler(this.context, globalVariables);
+        this.runtime = new WorkflowRuntime(TAG, RUNTIME_THREADS, globalVariables);
+        this.signals = new WorkflowSignals(globalVariables);
+        this.runtime.setListener(new WorkflowRuntime.Listener() {
+            @Override
+            public void onCompleted(WorkflowRuntime.Handle handle) {
+                Log.d(TAG, "Workflow " + (handle.getCompletion().join() ? "completed: " : "stopped: ")
+                        + handle.getProgram().getName());
+            }
+            
+            @Override
+            public void onFailed(WorkflowRuntime.Handle handle, Exception error) {
+                Log.e(TAG, "Workflow execution failed: " + handle.getProgram().getName(), error);
+            }
+        });
         
         Log.d(TAG, "WorkflowEngine initialized");
     }
@@ -46,89 +73,25 @@ public class WorkflowEngine {
     /**
      * Execute workflow from JSON configuration
      */
-    public void executeWorkflow(String workflowJson) {
+    public WorkflowRuntime.Handle executeWorkflow(String workflowJson) {
         try {
             JSONObject config = new JSONObject(workflowJson);
             WorkflowDefinition workflow = parseWorkflowFromJson(config);
-            executeWorkflow(workflow);
+            return executeWorkflow(workflow);
         } catch (Exception e) {
             Log.e(TAG, "Error executing workflow from JSON", e);
+            return null;
         }
     }
     
     /**
-     * Execute workflow definition
+     * Execute workflow definition alongside any workflows already running.
+     * The returned handle can cancel this run or wait for its completion.
      */
-    public void executeWorkflow(WorkflowDefinition workflow) {
-        if (isRunning) {
-            Log.w(TAG, "Workflow already running, stopping previous execution");
-            stopWorkflow();
-        }
-        
-        isRunning = true;
-        executorService.submit(() -> {
-            try {
-                Log.d(TAG, "Starting workflow: " + workflow.getName());
-                executeSteps(workflow.getSteps());
-                Log.d(TAG, "Workflow completed: " + workflow.getName());
-            } catch (Exception e) {
-                Log.e(TAG, "Workflow execution failed", e);
-            } finally {
-                isRunning = false;
-            }
-        });
-    }
-    
-    private void executeSteps(List<WorkflowStep> steps) throws Exception {
-        for (WorkflowStep step : steps) {
-            if (!isRunning) break; // Check for stop signal
-            
-            Log.d(TAG, "Executing step: " + step.getName());
-            
-            // Check condition if present
-            if (step.getCondition() != null && !step.getCondition().evaluate(context, globalVariables)) {
-                Log.d(TAG, "Step condition not met, skipping: " + step.getName());
-                continue;
-            }
-            
-            // Execute action
-            if (step.getAction() != null) {
-                step.getAction().execute(context, globalVariables);
-            }
-            
-            // Handle loops
-            if (step.isLoop()) {
-                executeLoop(step);
-            }
-            
-            // Wait if specified
-            if (step.getWaitTime() > 0) {
-                Thread.sleep(step.getWaitTime());
-            }
-        }
-    }
-    
-    private void executeLoop(WorkflowStep step) throws Exception {
-        int maxIterations = step.getMaxIterations();
-        int currentIteration = 0;
-        
-        while (isRunning && currentIteration < maxIterations) {
-            // Check loop condition
-            if (step.getLoopCondition() != null && 
-                !step.getLoopCondition().evaluate(context, globalVariables)) {
-                Log.d(TAG, "Loop condition not met, breaking loop");
-                break;
-            }
-            
-            // Execute loop steps
-            executeSteps(step.getLoopSteps());
-            currentIteration++;
-            
-            // Wait between iterations
-            if (step.getLoopDelay() > 0) {
-                Thread.sleep(step.getLoopDelay());
-            }
-        }
+    public WorkflowRuntime.Handle executeWorkflow(WorkflowDefinition workflow) {
+        WorkflowProgram program = compiler.compile(workflow);
+        Log.d(TAG, "Starting workflow: " + workflow.getName() + " (" + program.size() + " instructions)");
+        return runtime.start(program);
     }
     
     private WorkflowDefinition parseWorkflowFromJson(JSONObject config) throws Exception {
@@ -166,6 +129,13 @@ public class WorkflowEngine {
         // Parse timing
         step.setWaitTime(stepJson.optLong("waitTime", 0));
         
+        // Parse blocking wait, e.g. {"type": "objectVisible", "label": "enemy", "timeout": 5000}
+        if (stepJson.has("waitUntil")) {
+            JSONObject waitJson = stepJson.getJSONObject("waitUntil");
+            step.setWaitUntil(parseConditionFromJson(waitJson));
+            step.setWaitUntilTimeout(waitJson.optLong("timeout", 0));
+        }
+        
         // Parse loop configuration
         if (stepJson.has("loop")) {
             JSONObject loopJson = stepJson.getJSONObject("loop");
@@ -244,6 +214,11 @@ public class WorkflowEngine {
                     conditionJson.getString("operator"),
                     conditionJson.getDouble("value")
                 );
+            case "objectVisible":
+                return new ObjectVisibleCondition(
+                    conditionJson.getString("label"),
+                    conditionJson.optInt("minCount", 1)
+                );
             case "timeElapsed":
                 return new TimeElapsedCondition(conditionJson.getLong("duration"));
             default:
@@ -251,27 +226,43 @@ public class WorkflowEngine {
         }
     }
     
+    /**
+     * Stop every running workflow
+     */
     public void stopWorkflow() {
-        isRunning = false;
+        runtime.cancelAll();
         Log.d(TAG, "Workflow stop requested");
     }
     
     public boolean isWorkflowRunning() {
-        return isRunning;
+        return runtime.getActiveCount() > 0;
+    }
+    
+    public int getRunningWorkflowCount() {
+        return runtime.getActiveCount();
     }
     
     public void setGlobalVariable(String name, Object value) {
-        globalVariables.put(name, value);
+        globalVariables.set(name, value);
     }
     
     public Object getGlobalVariable(String name) {
         return globalVariables.get(name);
     }
     
+    /**
+     * Publisher for detections, OCR values and game state that waiting workflows react to
+     */
+    public WorkflowSignals getSignals() {
+        return signals;
+    }
+    
+    public String getRuntimeStats() {
+        return runtime.getStats();
+    }
+    
     public void shutdown() {
-        stopWorkflow();
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
-        }
+        runtime.shutdown();
+        Log.d(TAG, "WorkflowEngine shut down: " + runtime.getStats());
     }
 }
\ No newline at end of file
@@ -0,0 +1,282 @@
+package com.gestureai.gameautomation.workflow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A workflow compiled into a flat instruction list. Instructions are stored
+ * as parallel arrays (opcode, int operand, jump target, long operand, double
+ * operand) and run by WorkflowRuntime without recursion. Loop counters live in
+ * per-instance double registers; variables are referenced by slot.
+ *
+ * Pure Java (no android.* types) so programs can be built and run on any JVM.
+ */
+public final class WorkflowProgram {
+
+    /** Run refs[i] */
+    public static final int OP_TASK = 1;
+    /** Jump to target if refs[i] tests false */
+    public static final int OP_TEST = 2;
+    /** Jump to target unless variable slot compares true against the constant */
+    public static final int OP_COMPARE = 3;
+    /** Suspend for longOperand ms */
+    public static final int OP_WAIT = 4;
+    /** Zero register intOperand */
+    public static final int OP_LOOP_INIT = 5;
+    /** Jump to target once register intOperand reaches longOperand iterations */
+    public static final int OP_LOOP_TEST = 6;
+    /** Increment register intOperand, suspend for longOperand ms, jump to target */
+    public static final int OP_LOOP_NEXT = 7;
+    public static final int OP_JUMP = 8;
+    public static final int OP_END = 9;
+    /** Suspend until refs[i] (an Await) tests true; jump to target after longOperand ms (0 = never) */
+    public static final int OP_AWAIT = 10;
+
+    public static final int CMP_EQ = 0;
+    public static final int CMP_NE = 1;
+    public static final int CMP_GT = 2;
+    public static final int CMP_LT = 3;
+    public static final int CMP_GE = 4;
+    public static final int CMP_LE = 5;
+
+    // Matches NumberCompareCondition's tolerance
+    static final double EQUALITY_EPSILON = 0.0001;
+
+    /**
+     * Side effect run by OP_TASK, on the runtime thread
+     */
+    public interface Task {
+        void run(WorkflowVariables variables) throws Exception;
+    }
+
+    /**
+     * Predicate evaluated by OP_TEST, on the runtime thread
+     */
+    public interface Test {
+        boolean test(WorkflowVariables variables);
+    }
+
+    /**
+     * Operand of OP_AWAIT. A condition that names the variable slots it reads
+     * is re-tested only when one of them changes; one with no slots is polled
+     * every pollMs.
+     */
+    public static final class Await {
+        final Test test;
+        final int[] slots;
+        final long pollMs;
+
+        public Await(Test test, int[] slots, long pollMs) {
+            this.test = test;
+            this.slots = slots != null ? slots : new int[0];
+            this.pollMs = Math.max(1, pollMs);
+        }
+
+        public boolean isReactive() {
+            return slots.length > 0;
+        }
+    }
+
+    final String name;
+    final int[] opcodes;
+    final int[] intOperands;
+    final int[] targets;
+    final long[] longOperands;
+    final double[] doubleOperands;
+    final Object[] refs;
+    final String[] labels;
+    final int registerCount;
+
+    private WorkflowProgram(Builder builder) {
+        int size = builder.size;
+        this.name = builder.name;
+        this.opcodes = Arrays.copyOf(builder.opcodes, size);
+        this.intOperands = Arrays.copyOf(builder.intOperands, size);
+        this.targets = Arrays.copyOf(builder.targets, size);
+        this.longOperands = Arrays.copyOf(builder.longOperands, size);
+        this.doubleOperands = Arrays.copyOf(builder.doubleOperands, size);
+        this.refs = builder.refs.toArray();
+        this.labels = builder.labels.toArray(new String[0]);
+        this.registerCount = builder.registerCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return opcodes.length;
+    }
+
+    public int getRegisterCount() {
+        return registerCount;
+    }
+
+    /**
+     * Name of the source step an instruction was compiled from
+     */
+    public String labelAt(int pc) {
+        return labels[pc];
+    }
+
+    static boolean compare(double current, int operator, double value) {
+        switch (operator) {
+            case CMP_EQ: return Math.abs(current - value) < EQUALITY_EPSILON;
+            case CMP_NE: return Math.abs(current - value) >= EQUALITY_EPSILON;
+            case CMP_GT: return current > value;
+            case CMP_LT: return current < value;
+            case CMP_GE: return current >= value;
+            case CMP_LE: return current <= value;
+            default: return false;
+        }
+    }
+
+    /**
+     * Operator code for "==", "!=", ">", "<", ">=", "<=", or -1
+     */
+    public static int operatorCode(String operator) {
+        if (operator == null) return -1;
+        switch (operator) {
+            case "==": return CMP_EQ;
+            case "!=": return CMP_NE;
+            case ">": return CMP_GT;
+            case "<": return CMP_LT;
+            case ">=": return CMP_GE;
+            case "<=": return CMP_LE;
+            default: return -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("WorkflowProgram{" + name + ", registers=" + registerCount + "}\n");
+        for (int pc = 0; pc < opcodes.length; pc++) {
+            out.append(pc).append(": op=").append(opcodes[pc])
+                    .append(" i=").append(intOperands[pc])
+                    .append(" ->").append(targets[pc])
+                    .append(" l=").append(longOperands[pc])
+                    .append(" d=").append(doubleOperands[pc])
+                    .append(" [").append(labels[pc]).append("]\n");
+        }
+        return out.toString();
+    }
+
+    /**
+     * Emits instructions; forward jumps are patched once their target is known
+     */
+    public static class Builder {
+        private final String name;
+        private int[] opcodes = new int[32];
+        private int[] intOperands = new int[32];
+        private int[] targets = new int[32];
+        private long[] longOperands = new long[32];
+        private double[] doubleOperands = new double[32];
+        private final List<Object> refs = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        private int size = 0;
+        private int registerCount = 0;
+        private String currentLabel = "";
+
+        public Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Source step name attached to the instructions emitted next
+         */
+        public Builder label(String label) {
+            this.currentLabel = label != null ? label : "";
+            return this;
+        }
+
+        public int emitTask(Task task) {
+            return emit(OP_TASK, 0, -1, 0, 0, task);
+        }
+
+        public int emitTest(Test test) {
+            return emit(OP_TEST, 0, -1, 0, 0, test);
+        }
+
+        public int emitCompare(int slot, int operator, double value) {
+            if (operator < CMP_EQ || operator > CMP_LE) {
+                throw new IllegalArgumentException("Unknown compare operator " + operator);
+            }
+            return emit(OP_COMPARE, slot, -1, operator, value, null);
+        }
+
+        public int emitAwait(Await await, long timeoutMs) {
+            return emit(OP_AWAIT, 0, -1, Math.max(0, timeoutMs), 0, await);
+        }
+
+        public int emitWait(long delayMs) {
+            return emit(OP_WAIT, 0, -1, Math.max(0, delayMs), 0, null);
+        }
+
+        public int emitLoopInit(int register) {
+            useRegister(register);
+            return emit(OP_LOOP_INIT, register, -1, 0, 0, null);
+        }
+
+        public int emitLoopTest(int register, long maxIterations) {
+            useRegister(register);
+            return emit(OP_LOOP_TEST, register, -1, maxIterations, 0, null);
+        }
+
+        public int emitLoopNext(int register, long delayMs, int loopTest) {
+            useRegister(register);
+            return emit(OP_LOOP_NEXT, register, loopTest, Math.max(0, delayMs), 0, null);
+        }
+
+        public int emitJump(int target) {
+            return emit(OP_JUMP, 0, target, 0, 0, null);
+        }
+
+        /**
+         * Point the jump of instruction pc at the next instruction emitted
+         */
+        public void patchToHere(int pc) {
+            targets[pc] = size;
+        }
+
+        public int position() {
+            return size;
+        }
+
+        public WorkflowProgram build() {
+            emit(OP_END, 0, -1, 0, 0, null);
+            for (int pc = 0; pc < size; pc++) {
+                boolean jumps = opcodes[pc] == OP_TEST || opcodes[pc] == OP_COMPARE
+                        || opcodes[pc] == OP_LOOP_TEST || opcodes[pc] == OP_LOOP_NEXT || opcodes[pc] == OP_JUMP
+                        || (opcodes[pc] == OP_AWAIT && longOperands[pc] > 0);
+                if (jumps && (targets[pc] < 0 || targets[pc] >= size)) {
+                    throw new IllegalStateException("Unpatched jump at " + pc + " in " + name);
+                }
+            }
+            return new WorkflowProgram(this);
+        }
+
+        private void useRegister(int register) {
+            registerCount = Math.max(registerCount, register + 1);
+        }
+
+        private int emit(int opcode, int intOperand, int target, long longOperand, double doubleOperand, Object ref) {
+            if (size == opcodes.length) {
+                int capacity = size * 2;
+                opcodes = Arrays.copyOf(opcodes, capacity);
+                intOperands = Arrays.copyOf(intOperands, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                longOperands = Arrays.copyOf(longOperands, capacity);
+                doubleOperands = Arrays.copyOf(doubleOperands, capacity);
+            }
+            opcodes[size] = opcode;
+            intOperands[size] = intOperand;
+            targets[size] = target;
+            longOperands[size] = longOperand;
+            doubleOperands[size] = doubleOperand;
+            refs.add(ref);
+            labels.add(currentLabel);
+            return size++;
+        }
+    }
+}
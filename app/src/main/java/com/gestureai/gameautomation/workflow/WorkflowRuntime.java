@@ -0,0 +1,545 @@
+package com.gestureai.gameautomation.workflow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs compiled WorkflowPrograms on a small fixed set of worker threads.
+ * Each worker owns a ready queue and a hashed timer wheel: a wait or loop
+ * delay parks the workflow instance in the wheel instead of sleeping a thread,
+ * so many concurrent workflows share one or two threads. A running instance
+ * yields after stepBudget instructions so a tight loop cannot starve others.
+ * An await on a condition that names its variable slots parks the instance
+ * on those slots; a change to one of them wakes it to re-test, so reaction
+ * time is set by when the value is published, not by a poll interval.
+ *
+ * Tasks and tests run on the worker thread and must not block.
+ *
+ * Pure Java (no android.* types) so it can be unit tested on any JVM.
+ */
+public class WorkflowRuntime {
+
+    public static final long DEFAULT_TICK_MS = 1;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+    public static final int DEFAULT_STEP_BUDGET = 256;
+
+    private static final int STATE_NEW = 0;
+    private static final int STATE_READY = 1;
+    private static final int STATE_WAITING = 2;
+    private static final int STATE_DONE = 3;
+
+    /**
+     * Completion callbacks, invoked on the worker thread
+     */
+    public interface Listener {
+        void onCompleted(Handle handle);
+        void onFailed(Handle handle, Exception error);
+    }
+
+    /**
+     * One running instance of a program
+     */
+    public static final class Handle {
+        private static final AtomicLong ids = new AtomicLong();
+
+        final long id = ids.incrementAndGet();
+        final WorkflowProgram program;
+        final double[] registers;
+        final Worker worker;
+        final CompletableFuture<Boolean> completion = new CompletableFuture<>();
+        volatile boolean cancelled = false;
+
+        // Owned by the worker thread
+        int pc = 0;
+        int state = STATE_NEW;
+        long steps = 0;
+        long deadlineTick;
+        long wakeNanos;
+        boolean inWheel;
+        Handle previous;
+        Handle next;
+        int awaitPc = -1;
+        long awaitStartNanos;
+        int[] watching;
+
+        Handle(WorkflowProgram program, Worker worker) {
+            this.program = program;
+            this.registers = new double[program.registerCount];
+            this.worker = worker;
+        }
+
+        public long getId() { return id; }
+        public WorkflowProgram getProgram() { return program; }
+
+        /**
+         * Completes with true when the program ran to the end, false if cancelled
+         */
+        public CompletableFuture<Boolean> getCompletion() { return completion; }
+
+        public boolean isDone() { return completion.isDone(); }
+
+        public void cancel() {
+            if (cancelled || completion.isDone()) return;
+            cancelled = true;
+            worker.submit(this); // pulls it out of the wheel without waiting for its timer
+        }
+    }
+
+    private final WorkflowVariables variables;
+    private final Worker[] workers;
+    private final long tickNanos;
+    private final int stepBudget;
+    private final Set<Handle> active = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final Set<Integer> listenedSlots = ConcurrentHashMap.newKeySet();
+    private final WorkflowVariables.SlotListener slotListener = this::onSlotChanged;
+    private volatile Listener listener;
+    private volatile boolean running = true;
+
+    public WorkflowRuntime(String name, int threads, WorkflowVariables variables) {
+        this(name, threads, variables, DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE, DEFAULT_STEP_BUDGET);
+    }
+
+    public WorkflowRuntime(String name, int threads, WorkflowVariables variables,
+                           long tickMs, int wheelSize, int stepBudget) {
+        this.variables = variables;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMs));
+        this.stepBudget = Math.max(1, stepBudget);
+        int size = 1;
+        while (size < wheelSize) size <<= 1;
+
+        this.workers = new Worker[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(size);
+            Thread thread = new Thread(workers[i], name + "-" + i);
+            thread.setDaemon(true);
+            workers[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public WorkflowVariables getVariables() {
+        return variables;
+    }
+
+    /**
+     * Start a new instance of the program on the least recently chosen worker
+     */
+    public Handle start(WorkflowProgram program) {
+        if (!running) {
+            throw new IllegalStateException("WorkflowRuntime is shut down");
+        }
+        Worker worker = workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+        Handle handle = new Handle(program, worker);
+        active.add(handle);
+        worker.submit(handle);
+        return handle;
+    }
+
+    public void cancelAll() {
+        for (Handle handle : active) {
+            handle.cancel();
+        }
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    public long getExecutedSteps() {
+        long total = 0;
+        for (Worker worker : workers) total += worker.executedSteps;
+        return total;
+    }
+
+    /**
+     * Mean delay between a timer's due time and the instance resuming
+     */
+    public double getMeanWakeLatenessMs() {
+        long count = 0;
+        long nanos = 0;
+        for (Worker worker : workers) {
+            count += worker.wakeups;
+            nanos += worker.latenessNanos;
+        }
+        return count > 0 ? nanos / 1e6 / count : 0;
+    }
+
+    /**
+     * Awaits woken by a change to a watched variable
+     */
+    public long getSignalWakeupCount() {
+        long total = 0;
+        for (Worker worker : workers) total += worker.signalWakeups;
+        return total;
+    }
+
+    public String getStats() {
+        return "workers=" + workers.length + ", active=" + active.size()
+                + ", steps=" + getExecutedSteps()
+                + ", signal wakeups=" + getSignalWakeupCount()
+                + String.format(", wake lateness=%.2fms", getMeanWakeLatenessMs());
+    }
+
+    public void shutdown() {
+        running = false;
+        cancelAll();
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    private void ensureListening(int slot) {
+        if (listenedSlots.add(slot)) {
+            variables.addListener(slot, slotListener);
+        }
+    }
+
+    // Writer's thread
+    private void onSlotChanged(int slot) {
+        for (Worker worker : workers) {
+            if (worker.watcherCount > 0) {
+                worker.signal(slot);
+            }
+        }
+    }
+
+    private void finish(Handle handle, boolean completed, Exception error) {
+        handle.state = STATE_DONE;
+        active.remove(handle);
+        Listener current = listener;
+        if (error != null) {
+            handle.completion.completeExceptionally(error);
+            if (current != null) current.onFailed(handle, error);
+        } else {
+            handle.completion.complete(completed);
+            if (current != null) current.onCompleted(handle);
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final ConcurrentLinkedQueue<Handle> inbox = new ConcurrentLinkedQueue<>();
+        private final ConcurrentLinkedQueue<Integer> signals = new ConcurrentLinkedQueue<>();
+        private final ArrayDeque<Handle> ready = new ArrayDeque<>();
+        private final Map<Integer, List<Handle>> watchers = new HashMap<>();
+        private final List<Handle> woken = new ArrayList<>();
+        private final Handle[] wheel;
+        private final int wheelMask;
+        private final long origin = System.nanoTime();
+        private long currentTick = 0;
+        private int waiting = 0;
+        Thread thread;
+
+        volatile long executedSteps = 0;
+        volatile long wakeups = 0;
+        volatile long latenessNanos = 0;
+        volatile long signalWakeups = 0;
+        volatile int watcherCount = 0;
+
+        Worker(int wheelSize) {
+            this.wheel = new Handle[wheelSize];
+            this.wheelMask = wheelSize - 1;
+        }
+
+        void submit(Handle handle) {
+            inbox.offer(handle);
+            LockSupport.unpark(thread);
+        }
+
+        void signal(int slot) {
+            signals.offer(slot);
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while (running || !ready.isEmpty() || waiting > 0) {
+                drainInbox();
+                drainSignals();
+                advanceTimers();
+
+                int slices = ready.size();
+                for (int i = 0; i < slices; i++) {
+                    runSlice(ready.poll());
+                }
+
+                if (ready.isEmpty() && inbox.isEmpty() && signals.isEmpty()) {
+                    if (waiting > 0) {
+                        long wakeNanos = origin + nextOccupiedTick() * tickNanos;
+                        LockSupport.parkNanos(this, Math.max(1, wakeNanos - System.nanoTime()));
+                    } else if (running) {
+                        LockSupport.park(this);
+                    } else {
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void drainInbox() {
+            Handle handle;
+            while ((handle = inbox.poll()) != null) {
+                if (handle.state == STATE_NEW) {
+                    handle.state = STATE_READY;
+                    ready.add(handle);
+                } else if (handle.state == STATE_WAITING && handle.cancelled) {
+                    unwatch(handle);
+                    if (handle.inWheel) unlink(handle);
+                    finish(handle, false, null);
+                }
+                // READY instances see the cancel flag in runSlice; DONE ones are ignored
+            }
+        }
+
+        private void drainSignals() {
+            Integer slot;
+            while ((slot = signals.poll()) != null) {
+                List<Handle> waiting = watchers.get(slot);
+                if (waiting == null || waiting.isEmpty()) continue;
+                woken.addAll(waiting);
+                for (Handle handle : woken) {
+                    // Re-tested by OP_AWAIT; a handle watching several slots is woken once
+                    if (handle.state == STATE_WAITING) {
+                        resume(handle);
+                        signalWakeups++;
+                    }
+                }
+                woken.clear();
+            }
+        }
+
+        private void watch(Handle handle, int[] slots) {
+            handle.watching = slots;
+            for (int slot : slots) {
+                ensureListening(slot);
+                List<Handle> list = watchers.get(slot);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    watchers.put(slot, list);
+                }
+                list.add(handle);
+            }
+            watcherCount++;
+        }
+
+        private void unwatch(Handle handle) {
+            if (handle.watching == null) return;
+            for (int slot : handle.watching) {
+                List<Handle> list = watchers.get(slot);
+                if (list != null) list.remove(handle);
+            }
+            handle.watching = null;
+            watcherCount--;
+        }
+
+        private void resume(Handle handle) {
+            unwatch(handle);
+            if (handle.inWheel) unlink(handle);
+            handle.state = STATE_READY;
+            ready.add(handle);
+        }
+
+        private void advanceTimers() {
+            long nowTick = (System.nanoTime() - origin) / tickNanos;
+            if (waiting == 0) {
+                currentTick = Math.max(currentTick, nowTick);
+                return;
+            }
+            while (currentTick < nowTick) {
+                currentTick++;
+                int bucket = (int) (currentTick & wheelMask);
+                Handle handle = wheel[bucket];
+                while (handle != null) {
+                    Handle following = handle.next;
+                    if (handle.deadlineTick <= currentTick) {
+                        latenessNanos += Math.max(0, System.nanoTime() - handle.wakeNanos);
+                        wakeups++;
+                        resume(handle);
+                    }
+                    handle = following;
+                }
+            }
+        }
+
+        // First tick within one wheel turn whose bucket holds anything; a bucket
+        // may only hold later rounds, which just means an early wake-up
+        private long nextOccupiedTick() {
+            for (long tick = currentTick + 1; tick <= currentTick + wheel.length; tick++) {
+                if (wheel[(int) (tick & wheelMask)] != null) return tick;
+            }
+            return currentTick + wheel.length;
+        }
+
+        private void schedule(Handle handle, long delayNanos) {
+            handle.wakeNanos = System.nanoTime() + delayNanos;
+            long dueTick = (handle.wakeNanos - origin + tickNanos - 1) / tickNanos;
+            handle.deadlineTick = Math.max(currentTick + 1, dueTick);
+            handle.state = STATE_WAITING;
+            handle.inWheel = true;
+
+            int bucket = (int) (handle.deadlineTick & wheelMask);
+            handle.previous = null;
+            handle.next = wheel[bucket];
+            if (handle.next != null) handle.next.previous = handle;
+            wheel[bucket] = handle;
+            waiting++;
+        }
+
+        private void unlink(Handle handle) {
+            int bucket = (int) (handle.deadlineTick & wheelMask);
+            if (handle.previous != null) {
+                handle.previous.next = handle.next;
+            } else {
+                wheel[bucket] = handle.next;
+            }
+            if (handle.next != null) handle.next.previous = handle.previous;
+            handle.previous = null;
+            handle.next = null;
+            handle.inWheel = false;
+            waiting--;
+        }
+
+        private void runSlice(Handle handle) {
+            if (handle.cancelled) {
+                finish(handle, false, null);
+                return;
+            }
+
+            WorkflowProgram program = handle.program;
+            int[] opcodes = program.opcodes;
+            int[] intOperands = program.intOperands;
+            int[] targets = program.targets;
+            long[] longOperands = program.longOperands;
+            double[] registers = handle.registers;
+            int pc = handle.pc;
+            int budget = stepBudget;
+            int executed = 0;
+
+            try {
+                while (budget-- > 0) {
+                    executed++;
+                    switch (opcodes[pc]) {
+                        case WorkflowProgram.OP_TASK:
+                            ((WorkflowProgram.Task) program.refs[pc]).run(variables);
+                            pc++;
+                            break;
+                        case WorkflowProgram.OP_TEST:
+                            pc = ((WorkflowProgram.Test) program.refs[pc]).test(variables) ? pc + 1 : targets[pc];
+                            break;
+                        case WorkflowProgram.OP_COMPARE: {
+                            int slot = intOperands[pc];
+                            boolean pass = variables.isNumber(slot) && WorkflowProgram.compare(
+                                    variables.getNumber(slot), (int) longOperands[pc], program.doubleOperands[pc]);
+                            pc = pass ? pc + 1 : targets[pc];
+                            break;
+                        }
+                        case WorkflowProgram.OP_WAIT: {
+                            long delayMs = longOperands[pc++];
+                            if (delayMs > 0) {
+                                suspend(handle, pc, delayMs, executed);
+                                return;
+                            }
+                            break;
+                        }
+                        case WorkflowProgram.OP_LOOP_INIT:
+                            registers[intOperands[pc]] = 0;
+                            pc++;
+                            break;
+                        case WorkflowProgram.OP_LOOP_TEST:
+                            pc = registers[intOperands[pc]] < longOperands[pc] ? pc + 1 : targets[pc];
+                            break;
+                        case WorkflowProgram.OP_LOOP_NEXT:
+                            registers[intOperands[pc]] += 1;
+                            if (longOperands[pc] > 0) {
+                                suspend(handle, targets[pc], longOperands[pc], executed);
+                                return;
+                            }
+                            pc = targets[pc];
+                            break;
+                        case WorkflowProgram.OP_AWAIT: {
+                            if (handle.awaitPc != pc) {
+                                handle.awaitPc = pc;
+                                handle.awaitStartNanos = System.nanoTime();
+                            }
+                            WorkflowProgram.Await await = (WorkflowProgram.Await) program.refs[pc];
+                            long version = variables.getVersion();
+                            if (await.test.test(variables)) {
+                                handle.awaitPc = -1;
+                                pc++;
+                                break;
+                            }
+                            long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(longOperands[pc]);
+                            long remainingNanos = timeoutNanos > 0
+                                    ? handle.awaitStartNanos + timeoutNanos - System.nanoTime() : Long.MAX_VALUE;
+                            if (remainingNanos <= 0) {
+                                handle.awaitPc = -1;
+                                pc = targets[pc];
+                                break;
+                            }
+                            handle.pc = pc;
+                            account(handle, executed);
+                            if (await.isReactive()) {
+                                handle.state = STATE_WAITING;
+                                watch(handle, await.slots);
+                                if (variables.getVersion() != version) {
+                                    resume(handle); // changed before the watch was in place
+                                } else if (timeoutNanos > 0) {
+                                    schedule(handle, remainingNanos);
+                                }
+                            } else {
+                                schedule(handle, Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(await.pollMs)));
+                            }
+                            return;
+                        }
+                        case WorkflowProgram.OP_JUMP:
+                            pc = targets[pc];
+                            break;
+                        case WorkflowProgram.OP_END:
+                            handle.pc = pc;
+                            account(handle, executed);
+                            finish(handle, true, null);
+                            return;
+                        default:
+                            throw new IllegalStateException("Bad opcode " + opcodes[pc] + " at " + pc);
+                    }
+                }
+            } catch (Exception e) {
+                handle.pc = pc;
+                account(handle, executed);
+                finish(handle, false, e);
+                return;
+            }
+
+            // Budget used up: go to the back of the queue
+            handle.pc = pc;
+            account(handle, executed);
+            ready.add(handle);
+        }
+
+        private void suspend(Handle handle, int resumePc, long delayMs, int executed) {
+            handle.pc = resumePc;
+            account(handle, executed);
+            schedule(handle, TimeUnit.MILLISECONDS.toNanos(delayMs));
+        }
+
+        private void account(Handle handle, int executed) {
+            handle.steps += executed;
+            executedSteps += executed;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.gestureai.gameautomation.workflow;
+
+import com.gestureai.gameautomation.DetectedObject;
+import com.gestureai.gameautomation.OCREngine;
+import com.gestureai.gameautomation.data.UniversalGameState;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Publishes the detection stream into workflow variables so reactive
+ * conditions can wait on it:
+ *   label:<label>     number of objects with that label in the latest frame
+ *   ocr:<category>    number read from the first OCR line of that category
+ *   state:<field>     game state fields
+ * Only values that change are written, so waiting workflows are woken once
+ * per change rather than once per frame.
+ */
+public class WorkflowSignals {
+
+    public static final String LABEL_PREFIX = "label:";
+    public static final String OCR_PREFIX = "ocr:";
+    public static final String STATE_PREFIX = "state:";
+
+    private static final String[] OCR_CATEGORIES = {"health", "score", "ammo", "level"};
+
+    private final WorkflowVariables variables;
+
+    // Guarded by this
+    private final Map<String, int[]> labelCounts = new HashMap<>();
+    private final Set<String> previousLabels = new HashSet<>();
+
+    public WorkflowSignals(WorkflowVariables variables) {
+        this.variables = variables;
+    }
+
+    public static String labelSignal(String label) {
+        return LABEL_PREFIX + label;
+    }
+
+    public static String ocrSignal(String category) {
+        return OCR_PREFIX + category;
+    }
+
+    public static String stateSignal(String field) {
+        return STATE_PREFIX + field;
+    }
+
+    /**
+     * Publish per-label counts for one frame; labels no longer seen drop to 0
+     */
+    public synchronized void publishDetections(List<DetectedObject> objects) {
+        for (int[] count : labelCounts.values()) {
+            count[0] = 0;
+        }
+        if (objects != null) {
+            for (DetectedObject object : objects) {
+                String label = object.getLabel();
+                if (label == null) continue;
+                int[] count = labelCounts.get(label);
+                if (count == null) {
+                    count = new int[1];
+                    labelCounts.put(label, count);
+                }
+                count[0]++;
+            }
+        }
+
+        for (Map.Entry<String, int[]> entry : labelCounts.entrySet()) {
+            int count = entry.getValue()[0];
+            if (count > 0 || previousLabels.contains(entry.getKey())) {
+                variables.setNumber(variables.slotOf(labelSignal(entry.getKey())), count);
+            }
+        }
+        previousLabels.clear();
+        for (Map.Entry<String, int[]> entry : labelCounts.entrySet()) {
+            if (entry.getValue()[0] > 0) previousLabels.add(entry.getKey());
+        }
+    }
+
+    /**
+     * Publish the numeric HUD values from one OCR pass
+     */
+    public void publishOcr(List<OCREngine.DetectedText> texts) {
+        if (texts == null) return;
+        for (String category : OCR_CATEGORIES) {
+            for (OCREngine.DetectedText text : texts) {
+                if (!category.equals(text.category)) continue;
+                String digits = leadingNumber(text.text);
+                if (!digits.isEmpty()) {
+                    variables.setNumber(variables.slotOf(ocrSignal(category)), Double.parseDouble(digits));
+                }
+                break;
+            }
+        }
+    }
+
+    public void publishGameState(UniversalGameState state) {
+        if (state == null) return;
+        setState("objectCount", state.objectCount);
+        setState("threatLevel", state.threatLevel);
+        setState("opportunityLevel", state.opportunityLevel);
+        setState("healthLevel", state.healthLevel);
+        setState("gameScore", state.gameScore);
+        setState("playerX", state.playerX);
+        setState("playerY", state.playerY);
+    }
+
+    private void setState(String field, double value) {
+        variables.setNumber(variables.slotOf(stateSignal(field)), value);
+    }
+
+    // "30/90" reads as 30, "HP 75" as 75
+    private static String leadingNumber(String text) {
+        int start = 0;
+        while (start < text.length() && !Character.isDigit(text.charAt(start))) start++;
+        int end = start;
+        while (end < text.length() && Character.isDigit(text.charAt(end))) end++;
+        return text.substring(start, end);
+    }
+}
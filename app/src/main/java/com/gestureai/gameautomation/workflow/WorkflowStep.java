@@ -13,6 +13,10 @@ public class WorkflowStep {
     private WorkflowCondition condition;
     private long waitTime;
     
+    // Block until this condition holds; the step is skipped after waitUntilTimeout ms (0 = no limit)
+    private WorkflowCondition waitUntil;
+    private long waitUntilTimeout;
+    
     // Loop configuration
     private boolean isLoop;
     private int maxIterations;
@@ -41,6 +45,12 @@ public class WorkflowStep {
     public long getWaitTime() { return waitTime; }
     public void setWaitTime(long waitTime) { this.waitTime = waitTime; }
     
+    public WorkflowCondition getWaitUntil() { return waitUntil; }
+    public void setWaitUntil(WorkflowCondition waitUntil) { this.waitUntil = waitUntil; }
+    
+    public long getWaitUntilTimeout() { return waitUntilTimeout; }
+    public void setWaitUntilTimeout(long waitUntilTimeout) { this.waitUntilTimeout = waitUntilTimeout; }
+    
     public boolean isLoop() { return isLoop; }
     public void setLoop(boolean loop) { isLoop = loop; }
     
@@ -63,6 +73,7 @@ public class WorkflowStep {
                 ", hasAction=" + (action != null) +
                 ", hasCondition=" + (condition != null) +
                 ", waitTime=" + waitTime +
+                ", hasWaitUntil=" + (waitUntil != null) +
                 ", isLoop=" + isLoop +
                 '}';
     }
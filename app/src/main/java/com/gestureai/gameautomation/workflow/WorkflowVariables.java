@@ -0,0 +1,279 @@
+package com.gestureai.gameautomation.workflow;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Workflow globals stored in numbered slots. Compiled programs resolve a
+ * variable name to its slot once, and numeric values are kept unboxed in a
+ * double[] so comparisons in the hot loop do no map lookups or parsing.
+ * The original object is kept alongside for actions that read the Map view.
+ *
+ * Writers may be any thread; readers on the runtime thread see a consistent
+ * value after reading the volatile version. Listeners registered on a slot
+ * are called on the writer's thread whenever its value actually changes,
+ * which is how waiting workflows are woken by new detections or OCR values.
+ *
+ * Pure Java (no android.* types) so compiled workflows run on any JVM.
+ */
+public class WorkflowVariables {
+
+    /**
+     * Called on the writing thread after a slot's value changes; must not block
+     */
+    public interface SlotListener {
+        void onChanged(int slot);
+    }
+
+    private static final SlotListener[] NO_LISTENERS = new SlotListener[0];
+
+    private final Map<String, Integer> slotsByName = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private volatile Object[] objects = new Object[16];
+    private volatile double[] numbers = new double[16];
+    private volatile boolean[] numeric = new boolean[16];
+    private volatile boolean[] present = new boolean[16];
+    private volatile SlotListener[][] listeners = new SlotListener[16][];
+    private volatile int count = 0;
+    private volatile long version = 0;
+
+    private final Map<String, Object> mapView = new MapView();
+
+    /**
+     * Slot for a variable name, allocating an empty one if needed
+     */
+    public int slotOf(String name) {
+        Integer slot = slotsByName.get(name);
+        if (slot != null) return slot;
+        synchronized (this) {
+            slot = slotsByName.get(name);
+            if (slot != null) return slot;
+            int index = count;
+            if (index == names.length) {
+                grow(index * 2);
+            }
+            names[index] = name;
+            count = index + 1;
+            slotsByName.put(name, index);
+            return index;
+        }
+    }
+
+    private void grow(int capacity) {
+        names = Arrays.copyOf(names, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+        numbers = Arrays.copyOf(numbers, capacity);
+        numeric = Arrays.copyOf(numeric, capacity);
+        present = Arrays.copyOf(present, capacity);
+        listeners = Arrays.copyOf(listeners, capacity);
+    }
+
+    public void set(int slot, Object value) {
+        if (write(slot, value)) notifyChanged(slot);
+    }
+
+    public void setNumber(int slot, double value) {
+        if (writeNumber(slot, value)) notifyChanged(slot);
+    }
+
+    public void addNumber(int slot, double delta) {
+        boolean changed;
+        synchronized (this) {
+            changed = writeNumber(slot, (numeric[slot] ? numbers[slot] : 0) + delta);
+        }
+        if (changed) notifyChanged(slot);
+    }
+
+    // Returns false when the value did not change, so no listener is woken
+    private synchronized boolean write(int slot, Object value) {
+        double number = 0;
+        boolean isNumber = false;
+        if (value instanceof Number) {
+            number = ((Number) value).doubleValue();
+            isNumber = true;
+        } else if (value instanceof String) {
+            try {
+                number = Double.parseDouble((String) value);
+                isNumber = true;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        if (present[slot] == (value != null) && numeric[slot] == isNumber
+                && (isNumber ? numbers[slot] == number : value == null || value.equals(objects[slot]))) {
+            objects[slot] = value;
+            return false;
+        }
+        objects[slot] = value;
+        numbers[slot] = number;
+        numeric[slot] = isNumber;
+        present[slot] = value != null;
+        version++;
+        return true;
+    }
+
+    private synchronized boolean writeNumber(int slot, double value) {
+        if (present[slot] && numeric[slot] && numbers[slot] == value) {
+            return false;
+        }
+        objects[slot] = null; // boxed lazily by get()
+        numbers[slot] = value;
+        numeric[slot] = true;
+        present[slot] = true;
+        version++;
+        return true;
+    }
+
+    // Listeners are added under the same lock as writes, so a writer always
+    // sees listeners registered before its write
+    private void notifyChanged(int slot) {
+        SlotListener[] current = listeners[slot];
+        if (current == null) return;
+        for (SlotListener listener : current) {
+            listener.onChanged(slot);
+        }
+    }
+
+    public synchronized void addListener(int slot, SlotListener listener) {
+        SlotListener[] current = listeners[slot] != null ? listeners[slot] : NO_LISTENERS;
+        SlotListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners[slot] = updated;
+    }
+
+    public synchronized void removeListener(int slot, SlotListener listener) {
+        SlotListener[] current = listeners[slot];
+        if (current == null) return;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                SlotListener[] updated = new SlotListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners[slot] = updated.length > 0 ? updated : null;
+                return;
+            }
+        }
+    }
+
+    public void set(String name, Object value) {
+        set(slotOf(name), value);
+    }
+
+    public boolean isPresent(int slot) {
+        return version >= 0 && present[slot];
+    }
+
+    public boolean isNumber(int slot) {
+        return version >= 0 && numeric[slot];
+    }
+
+    /**
+     * Unboxed value of a numeric slot, 0 if the slot is not a number
+     */
+    public double getNumber(int slot) {
+        return version >= 0 ? numbers[slot] : 0; // volatile read orders the array read
+    }
+
+    public Object get(int slot) {
+        if (version < 0 || !present[slot]) return null;
+        Object value = objects[slot];
+        return value != null ? value : numbers[slot];
+    }
+
+    public Object get(String name) {
+        Integer slot = slotsByName.get(name);
+        return slot != null ? get(slot) : null;
+    }
+
+    public void remove(int slot) {
+        synchronized (this) {
+            if (!present[slot]) return;
+            objects[slot] = null;
+            numeric[slot] = false;
+            present[slot] = false;
+            version++;
+        }
+        notifyChanged(slot);
+    }
+
+    /**
+     * Incremented on every change
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public String nameOf(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * Map view for actions and conditions written against Map<String, Object>
+     */
+    public Map<String, Object> asMap() {
+        return mapView;
+    }
+
+    private class MapView extends AbstractMap<String, Object> {
+        @Override
+        public Object get(Object key) {
+            return key instanceof String ? WorkflowVariables.this.get((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            int slot = slotOf(key);
+            Object previous = WorkflowVariables.this.get(slot);
+            WorkflowVariables.this.set(slot, value);
+            return previous;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            if (!(key instanceof String)) return null;
+            Integer slot = slotsByName.get(key);
+            if (slot == null) return null;
+            Object previous = WorkflowVariables.this.get(slot);
+            WorkflowVariables.this.remove(slot);
+            return previous;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            List<Entry<String, Object>> entries = new ArrayList<>();
+            int slots = count;
+            for (int i = 0; i < slots; i++) {
+                Object value = WorkflowVariables.this.get(i);
+                if (value != null) {
+                    entries.add(new SimpleImmutableEntry<>(names[i], value));
+                }
+            }
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return entries.iterator();
+                }
+
+                @Override
+                public int size() {
+                    return entries.size();
+                }
+            };
+        }
+    }
+}
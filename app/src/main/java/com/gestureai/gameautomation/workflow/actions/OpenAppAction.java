@@ -11,6 +11,7 @@ import java.util.Map;
  */
 public class OpenAppAction implements WorkflowAction {
     private static final String TAG = "OpenAppAction";
+    private static final long LAUNCH_SETTLE_MS = 2000;
     
     private String packageName;
     
@@ -28,9 +29,6 @@ public class OpenAppAction implements WorkflowAction {
         if (intent != null) {
             intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
             context.startActivity(intent);
-            
-            // Wait a moment for app to launch
-            Thread.sleep(2000);
         } else {
             throw new Exception("App not found: " + packageName);
         }
@@ -41,6 +39,12 @@ public class OpenAppAction implements WorkflowAction {
         return "Open app: " + packageName;
     }
     
+    @Override
+    public long getSettleTimeMs() {
+        // Give the app a moment to launch
+        return LAUNCH_SETTLE_MS;
+    }
+    
     @Override
     public boolean isValid() {
         return packageName != null && !packageName.isEmpty();
@@ -24,4 +24,12 @@ public interface WorkflowAction {
      * Validate action parameters
      */
     boolean isValid();
+    
+    /**
+     * Time the workflow should wait after this action before the next step.
+     * The engine waits on a timer, so actions should not sleep themselves.
+     */
+    default long getSettleTimeMs() {
+        return 0;
+    }
 }
\ No newline at end of file
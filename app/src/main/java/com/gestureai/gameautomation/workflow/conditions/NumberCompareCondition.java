@@ -66,6 +66,11 @@ public class NumberCompareCondition implements WorkflowCondition {
         return "Variable " + variableName + " " + operator + " " + value;
     }
     
+    @Override
+    public String[] getSignals() {
+        return variableName != null ? new String[]{variableName} : null;
+    }
+    
     @Override
     public boolean isValid() {
         return variableName != null && !variableName.isEmpty() && 
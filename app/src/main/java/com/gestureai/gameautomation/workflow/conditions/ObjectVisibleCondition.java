@@ -0,0 +1,48 @@
+package com.gestureai.gameautomation.workflow.conditions;
+
+import android.content.Context;
+import com.gestureai.gameautomation.workflow.WorkflowSignals;
+import java.util.Map;
+
+/**
+ * Object Visible Condition - True while the detector reports at least
+ * minCount objects with the given label in the latest frame
+ */
+public class ObjectVisibleCondition implements WorkflowCondition {
+
+    private String label;
+    private int minCount;
+
+    public ObjectVisibleCondition(String label, int minCount) {
+        this.label = label;
+        this.minCount = minCount;
+    }
+
+    @Override
+    public boolean evaluate(Context context, Map<String, Object> variables) {
+        Object count = variables.get(WorkflowSignals.labelSignal(label));
+        return count instanceof Number && ((Number) count).intValue() >= minCount;
+    }
+
+    @Override
+    public String[] getSignals() {
+        return new String[]{WorkflowSignals.labelSignal(label)};
+    }
+
+    @Override
+    public String getDescription() {
+        return minCount > 1 ? minCount + "x " + label + " visible" : label + " visible";
+    }
+
+    @Override
+    public boolean isValid() {
+        return label != null && !label.isEmpty() && minCount > 0;
+    }
+
+    // Getters and setters
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+
+    public int getMinCount() { return minCount; }
+    public void setMinCount(int minCount) { this.minCount = minCount; }
+}
@@ -24,4 +24,14 @@ public interface WorkflowCondition {
      * Validate condition parameters
      */
     boolean isValid();
+    
+    /**
+     * Names of the workflow variables this condition reads (detected labels,
+     * OCR values and game state are published as variables by WorkflowSignals).
+     * A workflow waiting on the condition is re-tested only when one of them
+     * changes. Null means the condition reads something else and is polled.
+     */
+    default String[] getSignals() {
+        return null;
+    }
 }
\ No newline at end of file
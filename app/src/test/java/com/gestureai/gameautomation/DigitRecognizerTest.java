@@ -0,0 +1,233 @@
+package com.gestureai.gameautomation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DigitRecognizerTest {
+
+    private static final int WIDTH = 240;
+    private static final int HEIGHT = 40;
+    private static final int TEXT_COLOR = 0xFFF0F0F0;
+
+    // 5x7 pixel font, rendered at 3x
+    private static final String FONT_SYMBOLS = "0123456789/%:";
+    private static final String[] FONT = {
+            " ### ,#   #,#  ##,# # #,##  #,#   #, ### ",
+            "  #  , ##  ,  #  ,  #  ,  #  ,  #  , ### ",
+            " ### ,#   #,    #,   # ,  #  , #   ,#####",
+            "#####,   # ,  #  ,   # ,    #,#   #, ### ",
+            "   # ,  ## , # # ,#  # ,#####,   # ,   # ",
+            "#####,#    ,#### ,    #,    #,#   #, ### ",
+            "  ## , #   ,#    ,#### ,#   #,#   #, ### ",
+            "#####,    #,   # ,  #  , #   , #   , #   ",
+            " ### ,#   #,#   #, ### ,#   #,#   #, ### ",
+            " ### ,#   #,#   #, ####,    #,   # , ##  ",
+            "    #,   # ,   # ,  #  , #   , #   ,#    ",
+            "##   ,##  #,   # ,  #  , #   ,#  ##,   ##",
+            "     ,  ## ,  ## ,     ,  ## ,  ## ,     "
+    };
+
+    private int[] image;
+    private Random random;
+    private DigitRecognizer recognizer;
+
+    @Before
+    public void setUp() {
+        image = new int[WIDTH * HEIGHT];
+        random = new Random(3);
+        recognizer = new DigitRecognizer();
+    }
+
+    @Test
+    public void readsValuesInALearnedFont() {
+        train(recognizer, 8);
+
+        int reads = 300;
+        int correct = 0;
+        int confident = 0;
+        for (int i = 0; i < reads; i++) {
+            String value = randomValue();
+            fillBackground();
+            int color = 0xFF000000 | (0xC0 + random.nextInt(0x40)) << 16 | (0xC0 + random.nextInt(0x40)) << 8 | 0xE0;
+            render(value, 3, random.nextInt(20), random.nextInt(12), color);
+
+            DigitRecognizer.Reading reading = recognizer.read(image, 0, WIDTH, WIDTH, HEIGHT);
+
+            boolean right = value.equals(reading.text);
+            if (right) correct++;
+            if (recognizer.isConfident(reading)) {
+                confident++;
+                assertTrue("confident but wrong: " + reading + " for " + value, right);
+            }
+        }
+        assertTrue("correct " + correct + "/" + reads, correct >= reads * 95 / 100);
+        assertTrue("confident " + confident + "/" + reads, confident >= reads * 90 / 100);
+    }
+
+    @Test
+    public void readsDarkTextOnALightBackground() {
+        train(recognizer, 8);
+        Arrays.fill(image, 0xFFE8E8E8);
+        render("1:45", 3, 10, 10, 0xFF202020);
+
+        DigitRecognizer.Reading reading = recognizer.read(image, 0, WIDTH, WIDTH, HEIGHT);
+
+        assertEquals("1:45", reading.text);
+        assertEquals(4, reading.glyphs);
+    }
+
+    @Test
+    public void readsARegionInsideALargerImage() {
+        train(recognizer, 8);
+        fillBackground();
+        render("250", 3, 130, 10, TEXT_COLOR);
+
+        // Only the right half, addressed through offset and stride
+        int offset = 120;
+        DigitRecognizer.Reading reading = recognizer.read(image, offset, WIDTH, WIDTH - offset, HEIGHT);
+
+        assertEquals("250", reading.text);
+    }
+
+    @Test
+    public void widerGapsThanLearnedAreSpaces() {
+        train(recognizer, 8);
+        fillBackground();
+        render("30", 3, 4, 10, TEXT_COLOR);
+        render("120", 3, 100, 10, TEXT_COLOR);
+
+        assertEquals("30 120", recognizer.read(image, 0, WIDTH, WIDTH, HEIGHT).text);
+    }
+
+    @Test
+    public void mismatchedLabelLearnsNothing() {
+        fillBackground();
+        render("123", 3, 10, 10, TEXT_COLOR);
+
+        assertFalse(recognizer.learn(image, 0, WIDTH, WIDTH, HEIGHT, "12"));
+        assertFalse(recognizer.learn(image, 0, WIDTH, WIDTH, HEIGHT, "1234"));
+        assertFalse(recognizer.hasTemplates());
+
+        assertTrue(recognizer.learn(image, 0, WIDTH, WIDTH, HEIGHT, "123"));
+        assertEquals("123", recognizer.getLearnedSymbols());
+    }
+
+    @Test
+    public void nothingToReadIsNotConfident() {
+        fillBackground();
+        render("7", 3, 10, 10, TEXT_COLOR);
+        DigitRecognizer.Reading untrained = recognizer.read(image, 0, WIDTH, WIDTH, HEIGHT);
+        assertEquals("", untrained.text);
+        assertFalse(recognizer.isConfident(untrained));
+
+        train(recognizer, 4);
+        // Background noise alone is below the contrast needed for text
+        fillBackground();
+        DigitRecognizer.Reading flat = recognizer.read(image, 0, WIDTH, WIDTH, HEIGHT);
+        assertEquals(0, flat.glyphs);
+        assertFalse(recognizer.isConfident(flat));
+    }
+
+    @Test
+    public void templatesSurviveWriteAndRead() throws IOException {
+        train(recognizer, 8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        recognizer.write(bytes);
+
+        DigitRecognizer loaded = new DigitRecognizer();
+        loaded.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(recognizer.getLearnedSymbols(), loaded.getLearnedSymbols());
+        for (int i = 0; i < 20; i++) {
+            fillBackground();
+            render(randomValue(), 3, random.nextInt(20), random.nextInt(12), TEXT_COLOR);
+            DigitRecognizer.Reading expected = recognizer.read(image, 0, WIDTH, WIDTH, HEIGHT);
+            DigitRecognizer.Reading actual = loaded.read(image, 0, WIDTH, WIDTH, HEIGHT);
+            assertEquals(expected.text, actual.text);
+            assertEquals(expected.confidence, actual.confidence, 0f);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        recognizer.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    @Test
+    public void clearForgetsTheTemplates() {
+        train(recognizer, 2);
+
+        recognizer.clear();
+
+        assertFalse(recognizer.hasTemplates());
+        assertEquals("", recognizer.getLearnedSymbols());
+    }
+
+    @Test
+    public void eachGameSharesOneRecognizer() {
+        assertSame(DigitRecognizer.forGame("battle_royale"), DigitRecognizer.forGame("battle_royale"));
+        assertNotSame(DigitRecognizer.forGame("battle_royale"), DigitRecognizer.forGame("moba"));
+        assertSame(DigitRecognizer.forGame(DigitRecognizer.DEFAULT_GAME), DigitRecognizer.forGame(null));
+    }
+
+    /**
+     * Labelled frames: every symbol at least once, plus random values
+     */
+    private void train(DigitRecognizer target, int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            String label = frame == 0 ? "0123456789" : frame == 1 ? "1/2%3:4" : randomValue();
+            fillBackground();
+            render(label, 3, 4 + random.nextInt(8), 8 + random.nextInt(6), TEXT_COLOR);
+            assertTrue(label, target.learn(image, 0, WIDTH, WIDTH, HEIGHT, label));
+        }
+    }
+
+    private String randomValue() {
+        switch (random.nextInt(4)) {
+            case 0: return random.nextInt(60) + "/" + (60 + random.nextInt(240));
+            case 1: return random.nextInt(101) + "%";
+            case 2: return random.nextInt(10) + ":" + (10 + random.nextInt(50));
+            default: return String.valueOf(random.nextInt(100000));
+        }
+    }
+
+    private void fillBackground() {
+        int base = 0x20 + random.nextInt(0x20);
+        for (int i = 0; i < image.length; i++) {
+            int noise = base + random.nextInt(24);
+            image[i] = 0xFF000000 | noise << 16 | noise << 8 | noise;
+        }
+    }
+
+    private void render(String value, int scale, int originX, int originY, int textColor) {
+        int x = originX;
+        for (int i = 0; i < value.length(); i++) {
+            String[] rows = FONT[FONT_SYMBOLS.indexOf(value.charAt(i))].split(",");
+            for (int row = 0; row < rows.length; row++) {
+                for (int column = 0; column < rows[row].length(); column++) {
+                    if (rows[row].charAt(column) != '#') continue;
+                    for (int dy = 0; dy < scale; dy++) {
+                        for (int dx = 0; dx < scale; dx++) {
+                            int px = x + column * scale + dx;
+                            int py = originY + row * scale + dy;
+                            if (px < WIDTH && py < HEIGHT) image[py * WIDTH + px] = textColor;
+                        }
+                    }
+                }
+            }
+            x += 6 * scale;
+        }
+    }
+}
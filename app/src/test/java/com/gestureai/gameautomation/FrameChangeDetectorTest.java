@@ -0,0 +1,205 @@
+package com.gestureai.gameautomation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FrameChangeDetectorTest {
+
+    // 8x6 tiles of 80x60 pixels
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+    private static final int TILE_WIDTH = 80;
+    private static final int TILE_HEIGHT = 60;
+    private static final int BACKGROUND = 100;
+
+    private int[] frame;
+    private FrameChangeDetector detector;
+
+    @Before
+    public void setUp() {
+        frame = new int[WIDTH * HEIGHT];
+        Arrays.fill(frame, gray(BACKGROUND));
+        detector = new FrameChangeDetector();
+    }
+
+    @Test
+    public void firstFrameIsDetectedInFull() {
+        assertEquals(FrameChangeDetector.Decision.FULL, evaluate());
+        assertArrayEquals(new int[]{0, 0, WIDTH, HEIGHT}, detector.getDirtyBounds(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void unchangedFramesAreSkipped() {
+        evaluate();
+        detector.recordDetectorLatency(20f, FrameChangeDetector.Decision.FULL);
+
+        assertEquals(FrameChangeDetector.Decision.SKIP, evaluate());
+        assertEquals(FrameChangeDetector.Decision.SKIP, evaluate());
+
+        assertEquals(3, detector.getFramesEvaluated());
+        assertEquals(2, detector.getFramesSkipped());
+        assertEquals(40.0, detector.getSavedMillis(), 1e-6);
+        assertEquals(2f / 3f, detector.getSkipRatio(), 1e-6f);
+    }
+
+    @Test
+    public void changesBelowTheTileThresholdAreSkipped() {
+        evaluate();
+
+        fill(BACKGROUND + 5);
+        assertEquals(FrameChangeDetector.Decision.SKIP, evaluate());
+
+        fill(BACKGROUND + 7);
+        assertEquals(FrameChangeDetector.Decision.FULL, evaluate());
+    }
+
+    @Test
+    public void fewDirtyTilesAreDetectedAsARegion() {
+        evaluate();
+        paintTile(2, 1, 200);
+        paintTile(3, 2, 200);
+
+        assertEquals(FrameChangeDetector.Decision.PARTIAL, evaluate());
+        assertArrayEquals(new int[]{2 * TILE_WIDTH, TILE_HEIGHT, 4 * TILE_WIDTH, 3 * TILE_HEIGHT},
+                detector.getDirtyBounds(WIDTH, HEIGHT));
+        assertEquals(1, detector.getFramesPartial());
+
+        // The dirty tiles became the reference
+        assertEquals(FrameChangeDetector.Decision.SKIP, evaluate());
+    }
+
+    @Test
+    public void partialRunsCreditTheTimeSavedAgainstAFullRun() {
+        evaluate();
+        detector.recordDetectorLatency(30f, FrameChangeDetector.Decision.FULL);
+        paintTile(0, 0, 200);
+        FrameChangeDetector.Decision decision = evaluate();
+
+        detector.recordDetectorLatency(10f, decision);
+
+        assertEquals(FrameChangeDetector.Decision.PARTIAL, decision);
+        assertEquals(20.0, detector.getSavedMillis(), 1e-6);
+        // Partial runs do not move the full-frame latency estimate
+        assertEquals(30f, detector.getDetectorLatencyMs(), 0f);
+    }
+
+    @Test
+    public void tooManyDirtyTilesAreDetectedInFull() {
+        detector.setPartialFraction(0.25f);
+        evaluate();
+
+        // 12 of 48 tiles is exactly the limit
+        for (int tx = 0; tx < 8; tx++) paintTile(tx, 0, 200);
+        for (int tx = 0; tx < 4; tx++) paintTile(tx, 1, 200);
+        assertEquals(FrameChangeDetector.Decision.PARTIAL, evaluate());
+
+        for (int tx = 0; tx < 8; tx++) paintTile(tx, 2, 50);
+        for (int tx = 0; tx < 5; tx++) paintTile(tx, 3, 50);
+        assertEquals(FrameChangeDetector.Decision.FULL, evaluate());
+        assertArrayEquals(new int[]{0, 0, WIDTH, HEIGHT}, detector.getDirtyBounds(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void aStaticSceneIsRefreshedAfterTheSkipLimit() {
+        detector.setMaxConsecutiveSkips(3);
+        evaluate();
+
+        assertEquals(FrameChangeDetector.Decision.SKIP, evaluate());
+        assertEquals(FrameChangeDetector.Decision.SKIP, evaluate());
+        assertEquals(FrameChangeDetector.Decision.SKIP, evaluate());
+        assertEquals(FrameChangeDetector.Decision.FULL, evaluate());
+        assertEquals(FrameChangeDetector.Decision.SKIP, evaluate());
+        assertEquals(4, detector.getFramesSkipped());
+    }
+
+    @Test
+    public void slowDetectorsRaiseTheThreshold() {
+        detector.setBaseTileThreshold(6f);
+        detector.setTargetLatencyMs(33f);
+        assertEquals(6f, detector.getEffectiveThreshold(), 1e-4f);
+
+        // Twice the target: half as much again
+        detector.recordDetectorLatency(66f, FrameChangeDetector.Decision.FULL);
+        assertEquals(9f, detector.getEffectiveThreshold(), 1e-4f);
+
+        evaluate();
+        fill(BACKGROUND + 8);
+        assertEquals(FrameChangeDetector.Decision.SKIP, evaluate());
+    }
+
+    @Test
+    public void latencyAndPowerPressureAreBounded() {
+        detector.setBaseTileThreshold(6f);
+        detector.setTargetLatencyMs(33f);
+
+        detector.recordDetectorLatency(1000f, FrameChangeDetector.Decision.FULL);
+        assertEquals(12f, detector.getEffectiveThreshold(), 1e-4f);
+
+        detector.setPowerPressure(5f);
+        assertEquals(18f, detector.getEffectiveThreshold(), 1e-4f);
+
+        detector.setPowerPressure(-1f);
+        assertEquals(12f, detector.getEffectiveThreshold(), 1e-4f);
+    }
+
+    @Test
+    public void powerPressureAllowsLongerSkipRuns() {
+        detector.setMaxConsecutiveSkips(2);
+        detector.setPowerPressure(1f);
+        evaluate();
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("skip " + i, FrameChangeDetector.Decision.SKIP, evaluate());
+        }
+        assertEquals(FrameChangeDetector.Decision.FULL, evaluate());
+    }
+
+    @Test
+    public void resetForgetsTheReference() {
+        evaluate();
+
+        detector.reset();
+
+        assertEquals(FrameChangeDetector.Decision.FULL, evaluate());
+    }
+
+    @Test
+    public void sampledPositionsFallInsideTheirCells() {
+        assertEquals(5, FrameChangeDetector.sourceColumnFor(0, WIDTH));
+        assertEquals(WIDTH - 5, FrameChangeDetector.sourceColumnFor(FrameChangeDetector.GRID_WIDTH - 1, WIDTH));
+        assertEquals(5, FrameChangeDetector.sourceRowFor(0, HEIGHT));
+        assertEquals(HEIGHT - 5, FrameChangeDetector.sourceRowFor(FrameChangeDetector.GRID_HEIGHT - 1, HEIGHT));
+    }
+
+    /**
+     * Sample the frame the way the capture path does, one source row per grid row
+     */
+    private FrameChangeDetector.Decision evaluate() {
+        int[] row = new int[WIDTH];
+        for (int gy = 0; gy < FrameChangeDetector.GRID_HEIGHT; gy++) {
+            int y = FrameChangeDetector.sourceRowFor(gy, HEIGHT);
+            System.arraycopy(frame, y * WIDTH, row, 0, WIDTH);
+            detector.putSampleRow(gy, row, WIDTH);
+        }
+        return detector.evaluate();
+    }
+
+    private void fill(int luma) {
+        Arrays.fill(frame, gray(luma));
+    }
+
+    private void paintTile(int tx, int ty, int luma) {
+        for (int y = ty * TILE_HEIGHT; y < (ty + 1) * TILE_HEIGHT; y++) {
+            Arrays.fill(frame, y * WIDTH + tx * TILE_WIDTH, y * WIDTH + (tx + 1) * TILE_WIDTH, gray(luma));
+        }
+    }
+
+    private static int gray(int luma) {
+        return 0xFF000000 | luma << 16 | luma << 8 | luma;
+    }
+}
@@ -0,0 +1,293 @@
+package com.gestureai.gameautomation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class HudReaderTest {
+
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+
+    private static final HudReader.Region ALIVE = HudReader.Region.anchored(1f, 0f, -200, 0, 0, 100);
+    private static final HudReader.Region HEALTH = HudReader.Region.anchored(0f, 1f, 0, -200, 300, -110);
+    private static final HudReader.Region TIMER = HudReader.Region.anchored(0.5f, 0f, -100, 0, 100, 60);
+
+    private int[] screen;
+    private int nextColor;
+    private FakeRecognizer recognizer;
+    private HudReader reader;
+
+    @Before
+    public void setUp() {
+        screen = new int[WIDTH * HEIGHT];
+        recognizer = new FakeRecognizer();
+        reader = new HudReader(recognizer);
+        reader.addField("players_alive", ALIVE, HudReader.ALIVE_COUNT, 100);
+        reader.addField("health", HEALTH, HudReader.FRACTION_OR_PERCENT, 100);
+        reader.addField("match_time", TIMER, HudReader.TIMER, 100);
+    }
+
+    @Test
+    public void changedFieldsShareOneRecognition() {
+        show(ALIVE, "45 alive");
+        show(HEALTH, "85/100");
+        show(TIMER, "1:45");
+
+        update(0);
+
+        assertEquals(1, recognizer.calls);
+        assertEquals(45f, reader.getNumber("players_alive", -1f), 0f);
+        assertEquals(85f, reader.getNumber("health", -1f), 0f);
+        assertEquals(105f, reader.getNumber("match_time", -1f), 0f);
+        assertEquals("1:45", reader.getText("match_time", null));
+        assertEquals(0, reader.getValueTimeMs("health"));
+        HudReader.Stats stats = reader.getStats();
+        assertEquals(3, stats.regionsRecognized);
+        assertEquals(0, stats.parseFailures);
+    }
+
+    @Test
+    public void bandsArePackedTopToBottomWithGaps() {
+        reader.setActiveFields("players_alive", "health");
+        show(ALIVE, "45 alive");
+        show(HEALTH, "85/100");
+
+        update(0);
+
+        // Widest region sets the width; two 100 and 90 px bands plus one gap
+        assertEquals(300, recognizer.lastWidth);
+        assertEquals(100 + 12 + 90, recognizer.lastHeight);
+        // The narrower band is padded out with background
+        assertEquals(0xFF000000, recognizer.lastAtlas[250]);
+    }
+
+    @Test
+    public void unchangedRegionsAreNotRecognizedAgain() {
+        show(ALIVE, "45 alive");
+        show(HEALTH, "85/100");
+        show(TIMER, "1:45");
+        update(0);
+
+        show(HEALTH, "60/100");
+        update(200);
+
+        assertEquals(2, recognizer.calls);
+        assertEquals(1, recognizer.lastLines);
+        assertEquals(60f, reader.getNumber("health", -1f), 0f);
+        assertEquals(45f, reader.getNumber("players_alive", -1f), 0f);
+        assertEquals(200, reader.getValueTimeMs("health"));
+        assertEquals(0, reader.getValueTimeMs("players_alive"));
+        assertEquals(2, reader.getStats().unchangedSkips);
+
+        update(400);
+        assertEquals(2, recognizer.calls);
+    }
+
+    @Test
+    public void fieldsAreNotCheckedBeforeTheirRefresh() {
+        show(HEALTH, "85/100");
+        update(0);
+
+        show(HEALTH, "60/100");
+        update(50);
+        assertEquals(85f, reader.getNumber("health", -1f), 0f);
+
+        update(100);
+        assertEquals(60f, reader.getNumber("health", -1f), 0f);
+    }
+
+    @Test
+    public void inactiveFieldsKeepTheirLastValue() {
+        show(ALIVE, "45 alive");
+        show(HEALTH, "85/100");
+        update(0);
+
+        reader.setActiveFields("health");
+        show(ALIVE, "30 alive");
+        update(200);
+
+        assertEquals(45f, reader.getNumber("players_alive", -1f), 0f);
+        assertEquals(1, recognizer.calls);
+    }
+
+    @Test
+    public void changesDuringARecognitionAreRecheckedAfterIt() {
+        recognizer.deferred = true;
+        show(HEALTH, "85/100");
+        update(0);
+
+        show(ALIVE, "45 alive");
+        show(HEALTH, "60/100");
+        update(200);
+
+        // Nothing is submitted or waited for while one recognition runs
+        assertEquals(1, recognizer.calls);
+        assertFalse(reader.hasValue("health"));
+
+        recognizer.complete();
+        assertEquals(85f, reader.getNumber("health", -1f), 0f);
+
+        update(250);
+        recognizer.complete();
+        assertEquals(2, recognizer.calls);
+        assertEquals(60f, reader.getNumber("health", -1f), 0f);
+        assertEquals(45f, reader.getNumber("players_alive", -1f), 0f);
+    }
+
+    @Test
+    public void lostCallbackTimesOutAndLateLinesAreDropped() {
+        recognizer.deferred = true;
+        show(HEALTH, "85/100");
+        update(0);
+
+        update(3001);
+        assertEquals(1, reader.getStats().errors);
+        assertEquals(2, recognizer.calls);
+
+        // The first recognition answers after it was superseded
+        recognizer.pending.remove(0).run();
+        assertFalse(reader.hasValue("health"));
+
+        recognizer.complete();
+        assertEquals(85f, reader.getNumber("health", -1f), 0f);
+    }
+
+    @Test
+    public void failedRecognitionIsRetried() {
+        recognizer.failNext = true;
+        show(HEALTH, "85/100");
+        update(0);
+
+        assertEquals(1, reader.getStats().errors);
+        assertFalse(reader.hasValue("health"));
+
+        update(100);
+        assertEquals(85f, reader.getNumber("health", -1f), 0f);
+    }
+
+    @Test
+    public void unparsableTextKeepsThePreviousValue() {
+        reader.setActiveFields("health");
+        show(HEALTH, "85/100");
+        update(0);
+
+        show(HEALTH, "loading");
+        update(100);
+
+        assertEquals(1, reader.getStats().parseFailures);
+        assertEquals(85f, reader.getNumber("health", -1f), 0f);
+        assertEquals(0, reader.getValueTimeMs("health"));
+
+        // Same pixels are not re-read until they change
+        update(200);
+        assertEquals(2, recognizer.calls);
+    }
+
+    @Test
+    public void regionsResolveAgainstTheScreenSize() {
+        int[] box = new int[4];
+
+        ALIVE.resolve(WIDTH, HEIGHT, box);
+        assertEquals(1080, box[0]);
+        assertEquals(0, box[1]);
+        assertEquals(1280, box[2]);
+        assertEquals(100, box[3]);
+
+        // Clamped to the screen
+        HudReader.Region.anchored(0f, 0f, -50, -50, 100, 100).resolve(WIDTH, HEIGHT, box);
+        assertEquals(0, box[0]);
+        assertEquals(0, box[1]);
+
+        assertEquals(-1f, reader.getNumber("missing", -1f), 0f);
+        assertEquals(-1, reader.getValueTimeMs("health"));
+        assertEquals("none", reader.getText("health", "none"));
+    }
+
+    private void update(long nowMs) {
+        reader.update(this::copyScreen, WIDTH, HEIGHT, nowMs);
+    }
+
+    private void copyScreen(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(screen, (y + row) * WIDTH + x, pixels, offset + row * stride, width);
+        }
+    }
+
+    /**
+     * Paint the region in a colour of its own that the fake recognizer reads as text
+     */
+    private void show(HudReader.Region region, String text) {
+        // Colours differ in the high nibbles the change hash keeps
+        int color = 0xFF000000 | (++nextColor << 20) | (nextColor << 12);
+        recognizer.texts.put(color, text);
+        int[] box = new int[4];
+        region.resolve(WIDTH, HEIGHT, box);
+        for (int y = box[1]; y < box[3]; y++) {
+            for (int x = box[0]; x < box[2]; x++) {
+                screen[y * WIDTH + x] = color;
+            }
+        }
+    }
+
+    /**
+     * Reads the atlas's first column: every run of a known colour is one line.
+     * Deferred recognitions wait until complete() is called.
+     */
+    private static class FakeRecognizer implements HudReader.Recognizer {
+        final Map<Integer, String> texts = new HashMap<>();
+        final List<Runnable> pending = new ArrayList<>();
+        boolean deferred;
+        boolean failNext;
+        int calls;
+        int lastWidth;
+        int lastHeight;
+        int lastLines;
+        int[] lastAtlas;
+
+        @Override
+        public void recognize(int[] argb, int width, int height, HudReader.Callback callback) {
+            calls++;
+            lastWidth = width;
+            lastHeight = height;
+            lastAtlas = argb.clone();
+            if (failNext) {
+                failNext = false;
+                callback.onError("recognizer unavailable");
+                return;
+            }
+            List<HudReader.Line> lines = new ArrayList<>();
+            int y = 0;
+            while (y < height) {
+                int color = argb[y * width];
+                String text = texts.get(color);
+                if (text == null) {
+                    y++;
+                    continue;
+                }
+                int top = y;
+                while (y < height && argb[y * width] == color) y++;
+                lines.add(new HudReader.Line(text, top, y));
+            }
+            lastLines = lines.size();
+            if (deferred) {
+                pending.add(() -> callback.onLines(lines));
+            } else {
+                callback.onLines(lines);
+            }
+        }
+
+        void complete() {
+            while (!pending.isEmpty()) {
+                pending.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.gestureai.gameautomation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiObjectTrackerTest {
+
+    private static final float SIZE = 40f;
+
+    private final float[] detX = new float[8];
+    private final float[] detY = new float[8];
+    private final float[] detW = new float[8];
+    private final float[] detH = new float[8];
+    private final float[] detConf = new float[8];
+    private MultiObjectTracker tracker;
+
+    @Before
+    public void setUp() {
+        tracker = new MultiObjectTracker(8, 8);
+    }
+
+    @Test
+    public void assignmentMatchesBruteForceOnSmallMatrices() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 500; trial++) {
+            int n = 1 + random.nextInt(6);
+            double[] matrix = new double[n * n];
+            for (int i = 0; i < matrix.length; i++) {
+                // Some pairs are gated out, as in update()
+                matrix[i] = random.nextInt(5) == 0 ? 1e6 : random.nextDouble() * 1.5;
+            }
+
+            int[] rows = tracker.solve(matrix, n);
+
+            boolean[] seen = new boolean[n];
+            double total = 0;
+            for (int column = 0; column < n; column++) {
+                int row = rows[column];
+                assertTrue("row " + row + " assigned twice", !seen[row]);
+                seen[row] = true;
+                total += matrix[row * n + column];
+            }
+            assertEquals("trial " + trial + ", n = " + n, bruteForce(matrix, n), total, 1e-9);
+        }
+    }
+
+    @Test
+    public void assignmentPrefersTheCheapestTotalOverTheCheapestPair() {
+        // Greedy takes the 0.1 pair and is left with 1.0
+        double[] matrix = {
+                0.1, 0.2,
+                0.3, 1.0
+        };
+
+        int[] rows = tracker.solve(matrix, 2);
+
+        assertEquals(1, rows[0]);
+        assertEquals(0, rows[1]);
+    }
+
+    @Test
+    public void tracksFollowTheirObjectsWhateverTheDetectionOrder() {
+        tracker.setConfirmHits(1);
+        update(0, 100, 100, 300, 100);
+        int left = tracker.getDetectionTrack(0);
+        int right = tracker.getDetectionTrack(1);
+
+        // Reported in the other order, each moved a little
+        update(33, 280, 100, 120, 100);
+
+        assertEquals(right, tracker.getDetectionTrack(0));
+        assertEquals(left, tracker.getDetectionTrack(1));
+        assertEquals(2, tracker.getLiveTrackCount());
+    }
+
+    @Test
+    public void detectionsOutsideTheGateSpawnNewTracks() {
+        tracker.setMaxCenterDistance(150f);
+        update(0, 100, 100);
+        int first = tracker.getDetectionTrack(0);
+
+        update(33, 400, 100);
+
+        assertNotEquals(first, tracker.getDetectionTrack(0));
+        assertEquals(1, tracker.getMisses(first));
+    }
+
+    @Test
+    public void correctionWeighsPredictionAgainstMeasurement() {
+        update(0, 100, 100);
+        int slot = tracker.getDetectionTrack(0);
+        assertEquals(100f, tracker.getX(slot), 0f);
+        assertEquals(0f, tracker.getVelocityX(slot), 0f);
+
+        // Same time, no prediction: position and measurement variances are equal
+        update(0, 110, 100);
+
+        assertEquals(105f, tracker.getX(slot), 1e-4f);
+        assertEquals(100f, tracker.getY(slot), 1e-4f);
+    }
+
+    @Test
+    public void uncertaintyGrowsWhileOnlyPredicting() {
+        update(0, 100, 100);
+        int slot = tracker.getDetectionTrack(0);
+
+        tracker.predict(1000);
+        update(1000, 110, 100);
+
+        // A second without measurements: the new one is trusted almost fully
+        assertTrue("x = " + tracker.getX(slot), tracker.getX(slot) > 109.9f);
+    }
+
+    @Test
+    public void velocityIsLearnedAndPredicted() {
+        // 0.3 px/ms to the right, detected at 30 fps
+        int slot = -1;
+        for (int frame = 0; frame <= 30; frame++) {
+            long now = frame * 33L;
+            update(now, 100 + 0.3f * now, 200);
+            slot = tracker.getDetectionTrack(0);
+        }
+        float x = tracker.getX(slot);
+
+        assertEquals(0.3f, tracker.getVelocityX(slot), 0.02f);
+        assertEquals(0f, tracker.getVelocityY(slot), 0.02f);
+        assertEquals(x + 0.3f * 100, tracker.predictX(slot, 100), 2f);
+
+        tracker.predict(30 * 33L + 100);
+        assertEquals(tracker.predictX(slot, 0), tracker.getX(slot), 0f);
+        assertEquals(x + 0.3f * 100, tracker.getX(slot), 2f);
+    }
+
+    @Test
+    public void tracksAreConfirmedAfterEnoughHits() {
+        tracker.setConfirmHits(3);
+        update(0, 100, 100);
+        int slot = tracker.getDetectionTrack(0);
+        assertEquals(MultiObjectTracker.STATE_TENTATIVE, tracker.getState(slot));
+
+        update(33, 102, 100);
+        assertEquals(MultiObjectTracker.STATE_TENTATIVE, tracker.getState(slot));
+
+        update(66, 104, 100);
+        assertEquals(MultiObjectTracker.STATE_CONFIRMED, tracker.getState(slot));
+        assertEquals(slot, tracker.getDetectionTrack(0));
+    }
+
+    @Test
+    public void tentativeTracksAreDroppedQuickly() {
+        tracker.setConfirmHits(3);
+        update(0, 100, 100);
+        int slot = tracker.getDetectionTrack(0);
+
+        update(33);
+        assertEquals(MultiObjectTracker.STATE_TENTATIVE, tracker.getState(slot));
+
+        update(66);
+        assertEquals(MultiObjectTracker.STATE_FREE, tracker.getState(slot));
+        assertEquals(0, tracker.getLiveTrackCount());
+    }
+
+    @Test
+    public void confirmedTracksAreLostThenRecovered() {
+        tracker.setConfirmHits(1);
+        update(0, 100, 100);
+        int slot = tracker.getDetectionTrack(0);
+        int id = tracker.getTrackId(slot);
+        assertEquals(MultiObjectTracker.STATE_CONFIRMED, tracker.getState(slot));
+
+        update(33);
+        update(66);
+        assertEquals(MultiObjectTracker.STATE_LOST, tracker.getState(slot));
+        assertEquals(2, tracker.getMisses(slot));
+
+        update(99, 101, 100);
+        assertEquals(slot, tracker.getDetectionTrack(0));
+        assertEquals(id, tracker.getTrackId(slot));
+        assertEquals(MultiObjectTracker.STATE_CONFIRMED, tracker.getState(slot));
+        assertEquals(0, tracker.getMisses(slot));
+    }
+
+    @Test
+    public void lostTracksAreFreedAfterTheMissLimit() {
+        tracker.setConfirmHits(1);
+        tracker.setMaxLostMisses(2);
+        update(0, 100, 100);
+        int slot = tracker.getDetectionTrack(0);
+
+        update(33);
+        update(66);
+        assertEquals(MultiObjectTracker.STATE_LOST, tracker.getState(slot));
+
+        update(99);
+        assertEquals(MultiObjectTracker.STATE_FREE, tracker.getState(slot));
+
+        // The slot is reused under a new id
+        update(132, 100, 100);
+        assertNotEquals(1, tracker.getTrackId(tracker.getDetectionTrack(0)));
+    }
+
+    @Test
+    public void detectionsBeyondCapacityAreNotTracked() {
+        MultiObjectTracker small = new MultiObjectTracker(2, 4);
+        for (int i = 0; i < 3; i++) {
+            detX[i] = 100 + i * 300;
+            detY[i] = 100;
+            detW[i] = SIZE;
+            detH[i] = SIZE;
+            detConf[i] = 0.9f;
+        }
+
+        small.update(detX, detY, detW, detH, detConf, 3, 0);
+
+        assertEquals(2, small.getLiveTrackCount());
+        assertEquals(-1, small.getDetectionTrack(2));
+    }
+
+    private void update(long nowMs, float... centers) {
+        int count = centers.length / 2;
+        for (int i = 0; i < count; i++) {
+            detX[i] = centers[i * 2];
+            detY[i] = centers[i * 2 + 1];
+            detW[i] = SIZE;
+            detH[i] = SIZE;
+            detConf[i] = 0.9f;
+        }
+        tracker.update(detX, detY, detW, detH, detConf, count, nowMs);
+    }
+
+    private static double bruteForce(double[] matrix, int n) {
+        return bruteForce(matrix, n, 0, new boolean[n]);
+    }
+
+    private static double bruteForce(double[] matrix, int n, int column, boolean[] usedRows) {
+        if (column == n) return 0;
+        double best = Double.MAX_VALUE;
+        for (int row = 0; row < n; row++) {
+            if (usedRows[row]) continue;
+            usedRows[row] = true;
+            best = Math.min(best, matrix[row * n + column] + bruteForce(matrix, n, column + 1, usedRows));
+            usedRows[row] = false;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,37 @@
+package com.gestureai.gameautomation.accessibility;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory tree node standing in for AccessibilityNodeInfo
+ */
+class FakeNode {
+    String text;
+    String description;
+    String viewId;
+    String className = "android.view.View";
+    boolean clickable;
+    boolean attached = true;
+    FakeNode parent;
+    final List<FakeNode> children = new ArrayList<>();
+
+    FakeNode(String text, String viewId, boolean clickable) {
+        this.text = text;
+        this.viewId = viewId;
+        this.clickable = clickable;
+    }
+
+    FakeNode add(FakeNode child) {
+        child.parent = this;
+        children.add(child);
+        return child;
+    }
+
+    FakeNode detach() {
+        parent.children.remove(this);
+        parent = null;
+        attached = false;
+        return this;
+    }
+}
@@ -0,0 +1,58 @@
+package com.gestureai.gameautomation.accessibility;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NodeSource over a FakeNode tree. obtain/recycle are counted so tests can
+ * check that the index neither leaks nor double-recycles nodes.
+ */
+class FakeSource implements NodeIndex.NodeSource<FakeNode> {
+    final FakeNode root;
+    final AtomicLong obtained = new AtomicLong();
+    final AtomicLong recycled = new AtomicLong();
+    final AtomicLong rootFetches = new AtomicLong();
+
+    // When set, obtainRoot() waits on it, to hold an update in progress
+    volatile CountDownLatch rootGate;
+
+    FakeSource(FakeNode root) {
+        this.root = root;
+    }
+
+    FakeNode obtain(FakeNode node) {
+        if (node != null) obtained.incrementAndGet();
+        return node;
+    }
+
+    @Override
+    public FakeNode obtainRoot() {
+        CountDownLatch gate = rootGate;
+        if (gate != null) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        rootFetches.incrementAndGet();
+        return obtain(root);
+    }
+
+    @Override public int getChildCount(FakeNode node) { return node.children.size(); }
+    @Override public FakeNode obtainChild(FakeNode node, int index) { return obtain(node.children.get(index)); }
+    @Override public FakeNode obtainParent(FakeNode node) { return obtain(node.parent); }
+    @Override public CharSequence getText(FakeNode node) { return node.text; }
+    @Override public CharSequence getContentDescription(FakeNode node) { return node.description; }
+    @Override public String getViewId(FakeNode node) { return node.viewId; }
+    @Override public CharSequence getClassName(FakeNode node) { return node.className; }
+    @Override public boolean isClickable(FakeNode node) { return node.clickable; }
+    @Override public boolean isSameNode(FakeNode a, FakeNode b) { return a == b; }
+    @Override public boolean refresh(FakeNode node) { return node.attached; }
+    @Override public void recycle(FakeNode node) { recycled.incrementAndGet(); }
+
+    /** Nodes obtained and not yet recycled */
+    long outstanding() {
+        return obtained.get() - recycled.get();
+    }
+}
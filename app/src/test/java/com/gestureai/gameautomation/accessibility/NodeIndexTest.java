@@ -0,0 +1,239 @@
+package com.gestureai.gameautomation.accessibility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NodeIndexTest {
+
+    private FakeNode root;
+    private FakeNode title;
+    private FakeNode list;
+    private FakeNode playLabel;
+    private FakeNode playButton;
+    private FakeSource source;
+    private NodeIndex<FakeNode> index;
+
+    @Before
+    public void setUp() {
+        root = new FakeNode(null, "root", false);
+        FakeNode toolbar = root.add(new FakeNode(null, "id/toolbar", false));
+        title = toolbar.add(new FakeNode("Settings", null, false));
+        list = root.add(new FakeNode(null, "id/list", false));
+        list.className = "android.widget.ListView";
+        for (int i = 0; i < 12; i++) {
+            list.add(new FakeNode("Item " + i, "id/item" + i, true));
+        }
+        playLabel = root.add(new FakeNode("Play now", null, false));
+        playButton = root.add(new FakeNode("PLAY", "id/play", true));
+        playButton.className = "android.widget.Button";
+
+        source = new FakeSource(root);
+        // Updates run inline on the calling thread unless a test says otherwise
+        index = new NodeIndex<>(source, Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        index.close();
+    }
+
+    @Test
+    public void buildIndexesNodesWithTextIdOrClickable() {
+        assertTrue(index.isStale());
+
+        // root, toolbar, title, list, 12 items, label, button
+        assertEquals(18, index.size());
+        assertFalse(index.isStale());
+        assertEquals(1, index.getFullBuildCount());
+        assertEquals(0, source.outstanding());
+    }
+
+    @Test
+    public void findContainingIsCaseSensitiveSubstringInTreeOrder() {
+        assertSame(playLabel, release(index.findContaining("Play")));
+        assertSame(playButton, release(index.findContaining("PLAY")));
+        assertSame(title, release(index.findContaining("ttin")));
+        assertNull(index.findContaining("play"));
+        assertNull(index.findContaining("missing"));
+        assertEquals(0, source.outstanding());
+    }
+
+    @Test
+    public void findContainingFollowsChildOrderPastNineChildren() {
+        list.children.get(10).text = "Target b";
+        list.children.get(2).text = "Target a";
+
+        assertSame(list.children.get(2), release(index.findContaining("Target")));
+    }
+
+    @Test
+    public void findByTextIgnoresCaseAndPrefersClickable() {
+        // Both "Play now" and "PLAY" match; the exact, clickable one wins
+        assertSame(playButton, release(index.findByText("play")));
+        // Word prefix
+        assertSame(title, release(index.findByText("SETT")));
+        // Substring inside a word
+        assertSame(list.children.get(7), release(index.findByText("em 7")));
+        assertNull(index.findByText(""));
+        assertEquals(0, source.outstanding());
+    }
+
+    @Test
+    public void findByTextMatchesContentDescription() {
+        FakeNode icon = root.add(new FakeNode(null, null, true));
+        icon.description = "Open inventory";
+        index.invalidate();
+
+        assertSame(icon, release(index.findByText("inventory")));
+        // findContaining only looks at the text
+        assertNull(index.findContaining("inventory"));
+    }
+
+    @Test
+    public void findsByViewIdAndClassName() {
+        assertSame(playButton, release(index.findByViewId("id/play")));
+        assertSame(list, release(index.findByClassName("android.widget.ListView")));
+        assertNull(index.findByViewId("id/none"));
+    }
+
+    @Test
+    public void contentChangeReindexesOnlyTheChangedSubtree() {
+        index.size();
+        FakeNode item = list.children.get(4);
+        item.text = "Renamed entry";
+
+        index.onContentChanged(source.obtain(item));
+
+        assertSame(item, release(index.findContaining("Renamed")));
+        assertNull(index.findContaining("Item 4"));
+        assertEquals(1, index.getFullBuildCount());
+        assertEquals(1, index.getIncrementalUpdateCount());
+        assertEquals(0, source.outstanding());
+    }
+
+    @Test
+    public void contentChangeAddingChildrenIsIndexed() {
+        index.size();
+        FakeNode added = list.add(new FakeNode("Brand new", "id/new", true));
+
+        index.onContentChanged(source.obtain(list));
+
+        assertSame(added, release(index.findByViewId("id/new")));
+        assertEquals(19, index.size());
+        assertEquals(1, index.getFullBuildCount());
+    }
+
+    @Test
+    public void detachedChangeFallsBackToFullRebuild() {
+        index.size();
+        FakeNode gone = list.children.get(0).detach();
+
+        index.onContentChanged(source.obtain(gone));
+
+        assertNull(index.findContaining("Item 0"));
+        assertEquals(2, index.getFullBuildCount());
+        assertEquals(0, source.outstanding());
+    }
+
+    @Test
+    public void tooManyPendingChangesBecomeOneRebuild() {
+        NodeIndex<FakeNode> deferred = new NodeIndex<>(source, command -> { });
+        deferred.size();
+        for (int i = 0; i <= NodeIndex.MAX_PENDING_CHANGES; i++) {
+            deferred.onContentChanged(source.obtain(list.children.get(i % 12)));
+        }
+
+        deferred.size();
+
+        assertEquals(2, deferred.getFullBuildCount());
+        assertEquals(0, deferred.getIncrementalUpdateCount());
+        assertEquals(0, source.outstanding());
+    }
+
+    @Test
+    public void invalidateRebuildsEverything() {
+        index.size();
+        playButton.text = "START";
+
+        index.invalidate();
+
+        assertSame(playButton, release(index.findContaining("START")));
+        assertEquals(2, index.getFullBuildCount());
+    }
+
+    @Test
+    public void unreportedChangeIsCaughtAsStaleHitAndRebuilt() {
+        index.size();
+        // Moved without an event: the indexed path now leads elsewhere
+        root.children.remove(playLabel);
+        playLabel.parent = null;
+
+        assertNull(index.findContaining("Play"));
+
+        assertEquals(1, index.getStaleHitCount());
+        assertEquals(2, index.getFullBuildCount());
+        assertSame(playButton, release(index.findContaining("PLAY")));
+        assertEquals(0, source.outstanding());
+    }
+
+    @Test
+    public void eventsDoNotWaitForAnUpdateInProgress() throws Exception {
+        NodeIndex<FakeNode> background = new NodeIndex<>(source);
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            source.rootGate = gate;
+            background.invalidate(); // rebuild starts and blocks on the gate
+            waitFor(() -> !background.isStale());
+
+            long start = System.nanoTime();
+            background.onContentChanged(source.obtain(playButton));
+            background.invalidate();
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue("events blocked for " + elapsedMs + "ms", elapsedMs < 100);
+
+            source.rootGate = null;
+            gate.countDown();
+            waitFor(() -> background.getFullBuildCount() == 2);
+            assertSame(playButton, release(background.findByViewId("id/play")));
+        } finally {
+            background.close();
+        }
+    }
+
+    @Test
+    public void closedIndexRecyclesLateEvents() {
+        index.size();
+        index.close();
+
+        index.onContentChanged(source.obtain(playButton));
+
+        assertEquals(0, source.outstanding());
+    }
+
+    private FakeNode release(FakeNode node) {
+        if (node != null) source.recycle(node);
+        return node;
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.holds()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("condition not reached");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.gestureai.gameautomation.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QNetworkTest {
+
+    private static final int INPUT = 5;
+    private static final int[] HIDDEN = {7, 6};
+    private static final int OUTPUT = 3;
+    private static final int BATCH = 4;
+
+    private QNetwork network;
+    private float[] states;
+    private float[] nextStates;
+    private int[] actions;
+    private float[] rewards;
+    private boolean[] dones;
+
+    @Before
+    public void setUp() {
+        network = new QNetwork(INPUT, HIDDEN, OUTPUT, BATCH);
+        network.resetWeights(7);
+
+        Random random = new Random(11);
+        states = new float[BATCH * INPUT];
+        nextStates = new float[BATCH * INPUT];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = random.nextFloat() * 2f - 1f;
+            nextStates[i] = random.nextFloat() * 2f - 1f;
+        }
+        actions = new int[BATCH];
+        rewards = new float[BATCH];
+        dones = new boolean[BATCH];
+        for (int b = 0; b < BATCH; b++) {
+            actions[b] = random.nextInt(OUTPUT);
+            rewards[b] = random.nextFloat() * 2f - 1f;
+            // Terminal samples make the target the reward alone, so the loss
+            // depends only on the online weights
+            dones[b] = true;
+        }
+    }
+
+    @Test
+    public void gradientMatchesFiniteDifferences() {
+        float learningRate = 1e-4f;
+        network.setOptimizer(QNetwork.Optimizer.SGD);
+        network.setLearningRate(learningRate);
+        network.setGradientClipNorm(0f);
+        network.setTargetSyncInterval(0);
+
+        float[] before = new float[network.getParameterCount()];
+        network.copyParameters(before);
+        network.trainBatch(states, actions, rewards, nextStates, dones, BATCH, 0.9f);
+        float[] after = new float[before.length];
+        network.copyParameters(after);
+
+        float eps = 1e-2f;
+        float[] probe = before.clone();
+        for (int i = 0; i < before.length; i++) {
+            double analytic = (before[i] - after[i]) / (double) learningRate;
+
+            probe[i] = before[i] + eps;
+            network.loadParameters(probe);
+            double lossPlus = batchLoss();
+            probe[i] = before[i] - eps;
+            network.loadParameters(probe);
+            double lossMinus = batchLoss();
+            probe[i] = before[i];
+
+            double numeric = (lossPlus - lossMinus) / (2 * eps);
+            assertEquals("gradient of parameter " + i, numeric, analytic,
+                    2e-3 + 2e-2 * Math.abs(numeric));
+        }
+    }
+
+    @Test
+    public void trainingReducesLossOnFixedBatch() {
+        network.setTargetSyncInterval(0);
+        float first = network.trainBatch(states, actions, rewards, nextStates, dones, BATCH, 0.9f);
+        float last = first;
+        for (int i = 0; i < 300; i++) {
+            last = network.trainBatch(states, actions, rewards, nextStates, dones, BATCH, 0.9f);
+        }
+        assertTrue("loss " + first + " -> " + last, last < first * 0.1f);
+        assertEquals(301, network.getTrainSteps());
+    }
+
+    @Test
+    public void greedyActionIsArgmaxOfPrediction() {
+        float[] state = new float[INPUT];
+        float[] q = new float[OUTPUT];
+        Random random = new Random(3);
+        for (int trial = 0; trial < 20; trial++) {
+            for (int i = 0; i < INPUT; i++) {
+                state[i] = random.nextFloat() * 2f - 1f;
+            }
+            network.predict(state, q);
+            int best = 0;
+            for (int a = 1; a < OUTPUT; a++) {
+                if (q[a] > q[best]) best = a;
+            }
+            assertEquals(best, network.greedyAction(state));
+        }
+    }
+
+    @Test
+    public void tdErrorsMatchPredictionsForTerminalSamples() {
+        float[] expected = new float[BATCH];
+        float[] q = new float[OUTPUT];
+        float[] state = new float[INPUT];
+        for (int b = 0; b < BATCH; b++) {
+            System.arraycopy(states, b * INPUT, state, 0, INPUT);
+            network.predict(state, q);
+            expected[b] = q[actions[b]] - rewards[b];
+        }
+
+        network.trainBatch(states, actions, rewards, nextStates, dones, BATCH, 0.9f);
+        for (int b = 0; b < BATCH; b++) {
+            assertEquals(expected[b], network.getTdError(b), 1e-5f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBatchLargerThanMaximum() {
+        network.trainBatch(new float[(BATCH + 1) * INPUT], new int[BATCH + 1], new float[BATCH + 1],
+                new float[(BATCH + 1) * INPUT], new boolean[BATCH + 1], BATCH + 1, 0.9f);
+    }
+
+    @Test
+    public void trainingThroughput() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        // DQNAgent's default network
+        int inputSize = 16;
+        int[] hidden = {64, 64};
+        int outputSize = 8;
+        int steps = 2000;
+
+        for (int batchSize : new int[]{32, 64}) {
+            QNetwork timed = new QNetwork(inputSize, hidden, outputSize, batchSize);
+            Random random = new Random(42);
+            float[] batchStates = new float[batchSize * inputSize];
+            float[] batchNextStates = new float[batchSize * inputSize];
+            int[] batchActions = new int[batchSize];
+            float[] batchRewards = new float[batchSize];
+            boolean[] batchDones = new boolean[batchSize];
+            for (int i = 0; i < batchStates.length; i++) {
+                batchStates[i] = random.nextFloat();
+                batchNextStates[i] = random.nextFloat();
+            }
+            for (int b = 0; b < batchSize; b++) {
+                batchActions[b] = random.nextInt(outputSize);
+                batchRewards[b] = random.nextFloat() * 2f - 1f;
+                batchDones[b] = random.nextInt(20) == 0;
+            }
+
+            float sink = 0f;
+            for (int i = 0; i < 200; i++) {
+                sink += timed.trainBatch(batchStates, batchActions, batchRewards, batchNextStates, batchDones,
+                        batchSize, 0.95f);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < steps; i++) {
+                sink += timed.trainBatch(batchStates, batchActions, batchRewards, batchNextStates, batchDones,
+                        batchSize, 0.95f);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("q-network %d-64-64-%d, batch %d: %.0f steps/sec%n",
+                    inputSize, outputSize, batchSize, steps / seconds);
+            assertTrue(!Float.isNaN(sink));
+        }
+    }
+
+    /**
+     * Mean Huber loss of the current weights on the terminal batch
+     */
+    private double batchLoss() {
+        float[] state = new float[INPUT];
+        float[] q = new float[OUTPUT];
+        double loss = 0;
+        for (int b = 0; b < BATCH; b++) {
+            System.arraycopy(states, b * INPUT, state, 0, INPUT);
+            network.predict(state, q);
+            double error = Math.abs(q[actions[b]] - rewards[b]);
+            loss += error <= 1.0 ? 0.5 * error * error : error - 0.5;
+        }
+        return loss / BATCH;
+    }
+}
@@ -0,0 +1,201 @@
+package com.gestureai.gameautomation.ai;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReplayBufferTest {
+
+    private static final int STATE_SIZE = 3;
+    private static final int BATCH = 32;
+
+    private ReplayBuffer buffer;
+    private ReplayBuffer.SampleBatch batch;
+
+    @Before
+    public void setUp() {
+        buffer = new ReplayBuffer(4, STATE_SIZE);
+        batch = new ReplayBuffer.SampleBatch(BATCH, STATE_SIZE);
+    }
+
+    @Test
+    public void samplingFrequencyFollowsPriority() {
+        buffer.setAlpha(1f);
+        fill(buffer, 4);
+        // Priorities 1, 2, 3 and 4 once the epsilon is added
+        buffer.updatePriorities(new int[]{0, 1, 2, 3}, new float[]{0.999f, 1.999f, 2.999f, 3.999f}, 4);
+
+        int[] counts = sampleCounts(buffer, 2000, 4);
+
+        int total = 2000 * BATCH;
+        for (int slot = 0; slot < 4; slot++) {
+            assertEquals("share of slot " + slot, (slot + 1) / 10.0, counts[slot] / (double) total, 0.01);
+        }
+    }
+
+    @Test
+    public void zeroAlphaSamplesUniformly() {
+        buffer.setAlpha(0f);
+        fill(buffer, 4);
+        buffer.updatePriorities(new int[]{0, 3}, new float[]{0f, 50f}, 2);
+
+        int[] counts = sampleCounts(buffer, 1000, 4);
+
+        for (int slot = 0; slot < 4; slot++) {
+            assertEquals("share of slot " + slot, 0.25, counts[slot] / (1000.0 * BATCH), 0.01);
+        }
+    }
+
+    @Test
+    public void weightsCorrectForPriority() {
+        buffer.setAlpha(1f);
+        buffer.setBeta(1f, 0f);
+        fill(buffer, 4);
+        buffer.updatePriorities(new int[]{0, 1, 2, 3}, new float[]{0.999f, 1.999f, 2.999f, 3.999f}, 4);
+
+        for (int i = 0; i < 50; i++) {
+            buffer.sample(BATCH, batch);
+            for (int b = 0; b < batch.size; b++) {
+                // (N * p)^-beta, scaled so the rarest transition weighs 1
+                assertEquals(1f / (batch.indices[b] + 1), batch.weights[b], 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void updatePrioritiesChangesTheTotals() {
+        buffer.setAlpha(1f);
+        fill(buffer, 4);
+        // Every new transition gets the max priority, 1 to start with
+        assertEquals(4.0, buffer.getTotalPriority(), 1e-9);
+
+        buffer.updatePriorities(new int[]{1, 2}, new float[]{4.999f, -0.499f}, 2);
+        assertEquals(1 + 5 + 0.5 + 1, buffer.getTotalPriority(), 1e-5);
+        assertEquals(5f, buffer.getMaxPriority(), 1e-5f);
+
+        buffer.updatePriority(1, 0f);
+        assertEquals(1 + 0.001 + 0.5 + 1, buffer.getTotalPriority(), 1e-5);
+        // The max only grows
+        assertEquals(5f, buffer.getMaxPriority(), 1e-5f);
+    }
+
+    @Test
+    public void alphaFlattensPriorities() {
+        buffer.setAlpha(0.5f);
+        fill(buffer, 2);
+
+        buffer.updatePriority(0, 8.999f);
+
+        assertEquals(3 + 1, buffer.getTotalPriority(), 1e-5);
+    }
+
+    @Test
+    public void updatesOutsideTheStoredRangeAreIgnored() {
+        buffer.setAlpha(1f);
+        fill(buffer, 2);
+
+        buffer.updatePriorities(new int[]{-1, 2, 3}, new float[]{9f, 9f, 9f}, 3);
+
+        assertEquals(2.0, buffer.getTotalPriority(), 1e-9);
+        assertEquals(1f, buffer.getMaxPriority(), 0f);
+    }
+
+    @Test
+    public void oldestTransitionsAreOverwrittenAtCapacity() {
+        ReplayBuffer small = new ReplayBuffer(3, STATE_SIZE);
+        small.setAlpha(1f);
+        fill(small, 3);
+        small.updatePriority(0, 9.999f);
+
+        // Actions 3 and 4 land in slots 0 and 1
+        fill(small, 3, 5);
+
+        assertEquals(3, small.size());
+        assertEquals(5, small.getTotalAdded());
+        // The overwritten slot gets the max priority like any new transition
+        assertEquals(10 + 10 + 1, small.getTotalPriority(), 1e-4);
+
+        boolean[] seen = new boolean[5];
+        for (int i = 0; i < 200; i++) {
+            small.sample(BATCH, batch);
+            for (int b = 0; b < batch.size; b++) {
+                int action = batch.actions[b];
+                seen[action] = true;
+                assertEquals("slot of action " + action, action % 3, batch.indices[b]);
+                assertEquals(action, batch.states[b * STATE_SIZE], 0f);
+                assertEquals(action + 1, batch.nextStates[b * STATE_SIZE], 0f);
+                assertEquals(action * 0.5f, batch.rewards[b], 0f);
+            }
+        }
+        assertArrayEquals(new boolean[]{false, false, true, true, true}, seen);
+    }
+
+    @Test
+    public void partlyFilledBufferSamplesOnlyStoredSlots() {
+        ReplayBuffer large = new ReplayBuffer(100, STATE_SIZE);
+        fill(large, 5);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(BATCH, large.sample(BATCH, batch));
+            for (int b = 0; b < batch.size; b++) {
+                assertTrue("slot " + batch.indices[b], batch.indices[b] < 5);
+            }
+        }
+    }
+
+    @Test
+    public void shortStatesAreZeroPadded() {
+        buffer.add(new float[]{7f}, 1, 0f, null, true);
+
+        buffer.sample(1, batch);
+
+        assertArrayEquals(new float[]{7f, 0f, 0f}, slice(batch.states, 0), 0f);
+        assertArrayEquals(new float[]{0f, 0f, 0f}, slice(batch.nextStates, 0), 0f);
+        assertTrue(batch.dones[0]);
+    }
+
+    @Test
+    public void emptyAndClearedBuffersSampleNothing() {
+        assertEquals(0, buffer.sample(BATCH, batch));
+
+        fill(buffer, 4);
+        buffer.clear();
+
+        assertEquals(0, buffer.sample(BATCH, batch));
+        assertEquals(0, batch.size);
+        assertEquals(0.0, buffer.getTotalPriority(), 0.0);
+    }
+
+    private static void fill(ReplayBuffer target, int count) {
+        fill(target, 0, count);
+    }
+
+    /**
+     * Transition i has action i, state {i, ...}, next state {i + 1, ...} and reward i / 2
+     */
+    private static void fill(ReplayBuffer target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            target.add(new float[]{i, 1f, 2f}, i, i * 0.5f, new float[]{i + 1, 1f, 2f}, false);
+        }
+    }
+
+    private int[] sampleCounts(ReplayBuffer source, int batches, int slots) {
+        int[] counts = new int[slots];
+        for (int i = 0; i < batches; i++) {
+            source.sample(BATCH, batch);
+            for (int b = 0; b < batch.size; b++) {
+                counts[batch.indices[b]]++;
+            }
+        }
+        return counts;
+    }
+
+    private static float[] slice(float[] states, int b) {
+        float[] state = new float[STATE_SIZE];
+        System.arraycopy(states, b * STATE_SIZE, state, 0, STATE_SIZE);
+        return state;
+    }
+}
@@ -0,0 +1,221 @@
+package com.gestureai.gameautomation.database;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TrajectoryCodecTest {
+
+    @Test
+    public void pointsRoundTripExactly() {
+        Random random = new Random(42);
+        int points = 60;
+        int[] xy = new int[points * 2];
+        int x = 500;
+        int y = 900;
+        for (int p = 0; p < points; p++) {
+            x += random.nextInt(17) - 8;
+            y += random.nextInt(17) - 8;
+            xy[p * 2] = x;
+            xy[p * 2 + 1] = y;
+        }
+
+        byte[] blob = TrajectoryCodec.encodePoints(xy, points);
+        float[] decoded = TrajectoryCodec.decode(blob);
+
+        assertEquals(TrajectoryCodec.FORMAT_POINTS, blob[0]);
+        assertEquals(points * 2, TrajectoryCodec.valueCount(blob));
+        assertEquals(points * 2, decoded.length);
+        for (int i = 0; i < xy.length; i++) {
+            assertEquals(xy[i], decoded[i], 0f);
+        }
+    }
+
+    @Test
+    public void smallDeltasTakeAboutOneBytePerCoordinate() {
+        int points = 100;
+        int[] xy = new int[points * 2];
+        for (int p = 0; p < points; p++) {
+            xy[p * 2] = 1000 + p * 3;
+            xy[p * 2 + 1] = 2000 - p * 2;
+        }
+        byte[] blob = TrajectoryCodec.encodePoints(xy, points);
+        assertTrue("blob of " + blob.length + " bytes", blob.length < points * 2 + 8);
+    }
+
+    @Test
+    public void negativeAndLargeJumpsRoundTrip() {
+        int[] xy = {0, 0, -5, 70000, 123456, -98765, -1, -1};
+        float[] decoded = TrajectoryCodec.decode(TrajectoryCodec.encodePoints(xy, 4));
+        for (int i = 0; i < xy.length; i++) {
+            assertEquals(xy[i], decoded[i], 0f);
+        }
+    }
+
+    @Test
+    public void floatPointsAreRoundedToPixels() {
+        float[] xy = {10.4f, 20.6f, 11.5f, 19.49f};
+        float[] decoded = TrajectoryCodec.decode(TrajectoryCodec.encodePoints(xy, 2));
+        assertArrayEquals(new float[]{10, 21, 12, 19}, decoded, 0f);
+    }
+
+    @Test
+    public void floatsRoundTripBitExact() {
+        float[] values = {0f, -1.5f, 3.1415927f, Float.MIN_VALUE, Float.MAX_VALUE, 1e-7f};
+        byte[] blob = TrajectoryCodec.encodeFloats(values, values.length);
+        assertEquals(TrajectoryCodec.FORMAT_FLOATS, blob[0]);
+        assertArrayEquals(values, TrajectoryCodec.decode(blob), 0f);
+    }
+
+    @Test
+    public void decodeIntoStopsAtCallerArrayLength() {
+        float[] values = {1f, 2f, 3f, 4f, 5f};
+        float[] out = new float[3];
+        int written = TrajectoryCodec.decodeInto(TrajectoryCodec.encodeFloats(values, values.length), out);
+        assertEquals(3, written);
+        assertArrayEquals(new float[]{1f, 2f, 3f}, out, 0f);
+    }
+
+    @Test
+    public void resampledPathIsEvenlySpacedAlongLength() {
+        // L-shaped path: 100 px right then 100 px down
+        float[] xy = {0, 0, 100, 0, 100, 100};
+        int samples = 5;
+        byte[] blob = TrajectoryCodec.encodeResampled(xy, 3, samples);
+        float[] decoded = TrajectoryCodec.decode(blob);
+
+        assertEquals(TrajectoryCodec.FORMAT_RESAMPLED, blob[0]);
+        float[] expected = {0, 0, 50, 0, 100, 0, 100, 50, 100, 100};
+        assertArrayEquals(expected, decoded, 1e-3f);
+    }
+
+    @Test
+    public void degeneratePathsResampleToRepeatedPoint() {
+        float[] single = TrajectoryCodec.resample(new float[]{7, 9}, 1, 4);
+        assertArrayEquals(new float[]{7, 9, 7, 9, 7, 9, 7, 9}, single, 0f);
+
+        float[] stationary = TrajectoryCodec.resample(new float[]{3, 4, 3, 4, 3, 4}, 3, 3);
+        assertArrayEquals(new float[]{3, 4, 3, 4, 3, 4}, stationary, 0f);
+    }
+
+    @Test
+    public void emptyAndMissingBlobsDecodeToNothing() {
+        assertEquals(0, TrajectoryCodec.decode(null).length);
+        assertEquals(0, TrajectoryCodec.decode(new byte[0]).length);
+        assertEquals(0, TrajectoryCodec.valueCount(null));
+        assertEquals(0, TrajectoryCodec.decode(TrajectoryCodec.encodePoints(new int[0], 0)).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownFormat() {
+        TrajectoryCodec.decodeInto(new byte[]{99, 1, 0, 0, 0, 0}, new float[1]);
+    }
+
+    /**
+     * Bytes per row and decode throughput against the Gson JSON columns the
+     * BLOBs replaced, on synthetic touch traces. Skipped unless the tests are
+     * run with -Dbenchmark=true.
+     */
+    @Test
+    public void bytesPerRowAndDecodeThroughputAgainstGson() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        int rows = 2000;
+        int points = 60;
+        int iterations = 20;
+        Gson gson = new Gson();
+        Type pointListType = new TypeToken<List<JsonPoint>>(){}.getType();
+        Random random = new Random(42);
+
+        String[] json = new String[rows];
+        byte[][] binary = new byte[rows][];
+        long jsonBytes = 0;
+        long binaryBytes = 0;
+        long resampledBytes = 0;
+        for (int r = 0; r < rows; r++) {
+            float[] xy = new float[points * 2];
+            List<JsonPoint> list = new ArrayList<>(points);
+            int x = 200 + random.nextInt(800);
+            int y = 400 + random.nextInt(1200);
+            for (int p = 0; p < points; p++) {
+                x += random.nextInt(17) - 8;
+                y += random.nextInt(17) - 8;
+                xy[p * 2] = x;
+                xy[p * 2 + 1] = y;
+                list.add(new JsonPoint(x, y));
+            }
+            json[r] = gson.toJson(list);
+            binary[r] = TrajectoryCodec.encodePoints(xy, points);
+            jsonBytes += json[r].getBytes(StandardCharsets.UTF_8).length;
+            binaryBytes += binary[r].length;
+            resampledBytes += TrajectoryCodec.encodeResampled(xy, points,
+                    TrajectoryCodec.DEFAULT_RESAMPLED_POINTS).length;
+        }
+
+        // Both end in a float[] the feature extractors can use
+        float[] scratch = new float[points * 2];
+        float sink = 0f;
+        for (int warmup = 0; warmup < 3; warmup++) {
+            for (int r = 0; r < rows; r++) {
+                sink += decodeJson(gson, json[r], pointListType, scratch);
+                sink += TrajectoryCodec.decodeInto(binary[r], scratch);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (int r = 0; r < rows; r++) {
+                sink += decodeJson(gson, json[r], pointListType, scratch);
+            }
+        }
+        double jsonSeconds = (System.nanoTime() - start) / 1e9;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (int r = 0; r < rows; r++) {
+                sink += TrajectoryCodec.decodeInto(binary[r], scratch);
+            }
+        }
+        double binarySeconds = (System.nanoTime() - start) / 1e9;
+
+        double decoded = (double) rows * iterations;
+        System.out.printf("bytes/row: json %.0f, binary %.0f, resampled %.0f%n",
+                (double) jsonBytes / rows, (double) binaryBytes / rows, (double) resampledBytes / rows);
+        System.out.printf("decode rows/s: json %.0f, binary %.0f (%.1fx)%n",
+                decoded / jsonSeconds, decoded / binarySeconds, jsonSeconds / binarySeconds);
+        assertTrue(sink != 0f);
+    }
+
+    // Same JSON shape Gson produced for android.graphics.Point
+    private static class JsonPoint {
+        int x;
+        int y;
+
+        JsonPoint(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static int decodeJson(Gson gson, String json, Type type, float[] out) {
+        List<JsonPoint> points = gson.fromJson(json, type);
+        int n = Math.min(points.size(), out.length / 2);
+        for (int i = 0; i < n; i++) {
+            JsonPoint point = points.get(i);
+            out[i * 2] = point.x;
+            out[i * 2 + 1] = point.y;
+        }
+        return n * 2;
+    }
+}
@@ -0,0 +1,337 @@
+package com.gestureai.gameautomation.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ModelRuntimeTest {
+
+    private static final long MODEL_BYTES = 1000;
+    private static final long SESSION_BYTES = 100;
+
+    private FakeBackend backend;
+    private ModelRuntime<FakeSession> runtime;
+
+    @Before
+    public void setUp() {
+        backend = new FakeBackend();
+        runtime = new ModelRuntime<>(backend, 10_000);
+        runtime.setAcquireTimeoutMs(20);
+    }
+
+    @Test
+    public void releasedSessionIsReusedWithoutReload() {
+        FakeSession first = runtime.acquire("dqn");
+        runtime.release("dqn", first);
+        FakeSession second = runtime.acquire("dqn");
+
+        assertSame(first, second);
+        assertEquals(1, backend.created.get());
+        assertEquals(1, first.warmUps);
+        ModelRuntime.Stats stats = runtime.getStats();
+        assertEquals(1, stats.coldLoads);
+        assertEquals(MODEL_BYTES + SESSION_BYTES, stats.residentBytes);
+        assertEquals(1, stats.sessionsInUse);
+    }
+
+    @Test
+    public void poolGrowsToMaxSessionsThenTimesOut() {
+        runtime.setMaxSessions("dqn", 2);
+
+        FakeSession a = runtime.acquire("dqn");
+        FakeSession b = runtime.acquire("dqn");
+        FakeSession c = runtime.acquire("dqn");
+
+        assertNotNull(a);
+        assertNotNull(b);
+        assertNotSame(a, b);
+        assertNull(c);
+        ModelRuntime.Stats stats = runtime.getStats();
+        assertEquals(1, stats.acquireTimeouts);
+        assertEquals(2, stats.openSessions);
+        // The model is charged once, each session on top
+        assertEquals(MODEL_BYTES + 2 * SESSION_BYTES, stats.residentBytes);
+    }
+
+    @Test
+    public void waitingAcquireGetsTheReleasedSession() throws Exception {
+        runtime.setMaxSessions("dqn", 1);
+        runtime.setAcquireTimeoutMs(2000);
+        FakeSession held = runtime.acquire("dqn");
+
+        CompletableFuture<FakeSession> waiter = CompletableFuture.supplyAsync(() -> runtime.acquire("dqn"));
+        Thread.sleep(30);
+        assertFalse(waiter.isDone());
+        runtime.release("dqn", held);
+
+        assertSame(held, waiter.get(1, TimeUnit.SECONDS));
+        assertEquals(1, backend.created.get());
+    }
+
+    @Test
+    public void evictsIdleLowestPriorityThenLeastRecentlyUsed() {
+        runtime.setBudgetBytes(2 * (MODEL_BYTES + SESSION_BYTES));
+        runtime.setPriority("detector", 1);
+        use("detector");
+        use("dqn");
+        use("classifier");
+
+        // dqn is now the oldest, lowest priority model
+        assertTrue(runtime.isResident("detector"));
+        assertFalse(runtime.isResident("dqn"));
+        assertTrue(runtime.isResident("classifier"));
+        assertEquals(1, backend.released("dqn"));
+        ModelRuntime.Stats stats = runtime.getStats();
+        assertEquals(1, stats.evictions);
+        assertTrue(stats.residentBytes <= stats.budgetBytes);
+    }
+
+    @Test
+    public void evictedModelReloadsOnNextAcquire() {
+        use("dqn");
+        runtime.evict("dqn");
+        assertFalse(runtime.isResident("dqn"));
+
+        use("dqn");
+
+        assertTrue(runtime.isResident("dqn"));
+        assertEquals(2, runtime.getStats().coldLoads);
+        assertEquals(1, backend.released("dqn"));
+        assertEquals(1, backend.openSessions.get());
+    }
+
+    @Test
+    public void sessionsInUseAreNeverEvicted() {
+        runtime.setBudgetBytes(MODEL_BYTES + SESSION_BYTES);
+        FakeSession held = runtime.acquire("dqn");
+
+        // No room, but the model has no session yet, so it loads over budget
+        FakeSession other = runtime.acquire("classifier");
+
+        assertNotNull(other);
+        assertFalse(held.closed);
+        ModelRuntime.Stats stats = runtime.getStats();
+        assertEquals(1, stats.overBudgetLoads);
+        assertEquals(0, stats.evictions);
+
+        // Once released, the budget is restored
+        runtime.release("dqn", held);
+        assertTrue(held.closed);
+        assertTrue(runtime.getStats().residentBytes <= MODEL_BYTES + SESSION_BYTES);
+    }
+
+    @Test
+    public void failedLoadReturnsItsCharge() {
+        backend.failNext.set(true);
+
+        assertNull(runtime.acquire("dqn"));
+
+        ModelRuntime.Stats stats = runtime.getStats();
+        assertEquals(1, stats.failedLoads);
+        assertEquals(0, stats.coldLoads);
+        assertEquals(0, stats.residentBytes);
+        assertEquals(0, stats.openSessions);
+        assertEquals(1, backend.released("dqn"));
+        assertNotNull(runtime.acquire("dqn"));
+    }
+
+    @Test
+    public void loweringBudgetClosesIdleSessions() {
+        use("dqn");
+        use("classifier");
+
+        runtime.setBudgetBytes(MODEL_BYTES + SESSION_BYTES);
+
+        assertEquals(1, runtime.getResidentModels().size());
+        assertEquals(1, backend.openSessions.get());
+    }
+
+    @Test
+    public void shrinkingPoolClosesExtraSessionsAsTheyReturn() {
+        runtime.setMaxSessions("dqn", 3);
+        List<FakeSession> held = new ArrayList<>();
+        for (int i = 0; i < 3; i++) held.add(runtime.acquire("dqn"));
+
+        runtime.setMaxSessions("dqn", 1);
+        for (FakeSession session : held) runtime.release("dqn", session);
+
+        assertEquals(1, runtime.getStats().openSessions);
+        assertEquals(1, backend.openSessions.get());
+    }
+
+    @Test
+    public void sessionReturnedAfterCloseIsClosed() {
+        FakeSession idle = runtime.acquire("dqn");
+        FakeSession out = runtime.acquire("dqn");
+        runtime.release("dqn", idle);
+
+        runtime.close();
+        assertTrue(idle.closed);
+        assertFalse(out.closed);
+
+        runtime.release("dqn", out);
+        assertTrue(out.closed);
+        assertEquals(0, backend.openSessions.get());
+    }
+
+    @Test
+    public void sessionsReturnedAfterCloseGiveBackTheirMemory() {
+        FakeSession out = runtime.acquire("dqn");
+        use("classifier");
+
+        runtime.close();
+        assertEquals(MODEL_BYTES + SESSION_BYTES, runtime.getStats().residentBytes);
+
+        runtime.release("dqn", out);
+        ModelRuntime.Stats stats = runtime.getStats();
+        assertEquals(0, stats.residentBytes);
+        assertEquals(0, stats.openSessions);
+        assertEquals(1, backend.released("dqn"));
+        assertFalse(runtime.isResident("dqn"));
+    }
+
+    @Test
+    public void closeKeepsPerModelSettings() {
+        runtime.setMaxSessions("dqn", 1);
+        runtime.setPriority("dqn", 5);
+        use("dqn");
+
+        runtime.close();
+        FakeSession first = runtime.acquire("dqn");
+
+        assertNotNull(first);
+        assertNull("max sessions kept", runtime.acquire("dqn"));
+        runtime.release("dqn", first);
+
+        // The higher priority model outlives a lower priority one under pressure
+        runtime.setBudgetBytes(2 * (MODEL_BYTES + SESSION_BYTES));
+        use("classifier");
+        use("detector");
+        assertTrue(runtime.isResident("dqn"));
+        assertFalse(runtime.isResident("classifier"));
+    }
+
+    @Test
+    public void coldLoadDoesNotStallOtherModels() throws Exception {
+        use("classifier");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finishLoad = new CountDownLatch(1);
+        backend.loadStarted = loading;
+        backend.loadGate = finishLoad;
+
+        CompletableFuture<FakeSession> cold = CompletableFuture.supplyAsync(() -> runtime.acquire("detector"));
+        assertTrue(loading.await(1, TimeUnit.SECONDS));
+
+        CompletableFuture<FakeSession> warm = CompletableFuture.supplyAsync(() -> runtime.acquire("classifier"));
+        assertNotNull(warm.get(1, TimeUnit.SECONDS));
+        assertFalse(cold.isDone());
+
+        finishLoad.countDown();
+        assertNotNull(cold.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void concurrentCallersNeverShareASession() throws Exception {
+        int threads = 4;
+        runtime.setDefaultMaxSessions(threads);
+        runtime.setAcquireTimeoutMs(1000);
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger missed = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    FakeSession session = runtime.acquire("dqn");
+                    if (session == null) {
+                        missed.incrementAndGet();
+                        continue;
+                    }
+                    if (!session.busy.compareAndSet(false, true)) overlaps.incrementAndGet();
+                    session.busy.set(false);
+                    runtime.release("dqn", session);
+                }
+            });
+        }
+        CompletableFuture.allOf(workers).get(10, TimeUnit.SECONDS);
+
+        assertEquals(0, overlaps.get());
+        assertEquals(0, missed.get());
+        assertTrue(backend.created.get() <= threads);
+        assertEquals(0, runtime.getStats().sessionsInUse);
+    }
+
+    private void use(String model) {
+        FakeSession session = runtime.acquire(model);
+        assertNotNull(model, session);
+        runtime.release(model, session);
+    }
+
+    private static class FakeSession {
+        final AtomicBoolean busy = new AtomicBoolean();
+        int warmUps;
+        volatile boolean closed;
+    }
+
+    private static class FakeBackend implements ModelRuntime.Backend<FakeSession> {
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger openSessions = new AtomicInteger();
+        final AtomicBoolean failNext = new AtomicBoolean();
+        final List<String> releasedModels = new ArrayList<>();
+        volatile CountDownLatch loadStarted;
+        volatile CountDownLatch loadGate;
+
+        @Override public long modelBytes(String modelName) { return MODEL_BYTES; }
+        @Override public long sessionBytes(String modelName) { return SESSION_BYTES; }
+
+        @Override
+        public FakeSession createSession(String modelName) throws Exception {
+            CountDownLatch started = loadStarted;
+            CountDownLatch gate = loadGate;
+            if (started != null) started.countDown();
+            if (gate != null) gate.await();
+            if (failNext.getAndSet(false)) throw new IllegalStateException("model file missing");
+            created.incrementAndGet();
+            openSessions.incrementAndGet();
+            return new FakeSession();
+        }
+
+        @Override
+        public void warmUp(FakeSession session) {
+            session.warmUps++;
+        }
+
+        @Override
+        public void closeSession(FakeSession session) {
+            session.closed = true;
+            openSessions.decrementAndGet();
+        }
+
+        @Override
+        public synchronized void releaseModel(String modelName) {
+            releasedModels.add(modelName);
+        }
+
+        synchronized int released(String modelName) {
+            int count = 0;
+            for (String name : releasedModels) {
+                if (name.equals(modelName)) count++;
+            }
+            return count;
+        }
+    }
+}
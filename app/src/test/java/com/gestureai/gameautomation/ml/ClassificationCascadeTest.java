@@ -0,0 +1,245 @@
+package com.gestureai.gameautomation.ml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.gestureai.gameautomation.utils.ImagePreprocessor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClassificationCascadeTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    private int[] frame;
+    private CountingRows rows;
+    private FakeClassifier classifier;
+    private ClassificationCascade cascade;
+
+    // Regions are filled with their object id, so the fake model can tell them apart
+    private final int[] boxes = {
+            10, 10, 50, 40,     // 1: weapon / rifle / ak47
+            100, 20, 140, 60,   // 2: weapon / rifle / m4
+            200, 30, 230, 70,   // 3: enemy / player / soldier
+            20, 150, 60, 190,   // 4: nothing confident
+    };
+    private final int[] trackIds = {1, 2, 3, 4};
+
+    @Before
+    public void setUp() {
+        frame = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < boxes.length / 4; i++) {
+            fill(i, i + 1);
+        }
+        rows = new CountingRows();
+        classifier = new FakeClassifier();
+        classifier.answer(ClassificationCascade.CATEGORY_MODEL, 1, "weapon", 0.9f);
+        classifier.answer(ClassificationCascade.CATEGORY_MODEL, 2, "weapon", 0.8f);
+        classifier.answer(ClassificationCascade.CATEGORY_MODEL, 3, "enemy", 0.95f);
+        classifier.answer(ClassificationCascade.CATEGORY_MODEL, 4, "item", 0.3f);
+        classifier.answer("weapon_type_classifier", 1, "rifle", 0.9f);
+        classifier.answer("weapon_type_classifier", 2, "rifle", 0.85f);
+        classifier.answer("enemy_type_classifier", 3, "player", 0.9f);
+        classifier.answer("weapon_rifle_classifier", 1, "ak47", 0.9f);
+        classifier.answer("weapon_rifle_classifier", 2, "m4", 0.9f);
+        classifier.answer("enemy_player_classifier", 3, "soldier", 0.9f);
+        cascade = new ClassificationCascade(classifier, 0.6f, 0.7f);
+    }
+
+    @Test
+    public void eachStageMakesOneCallPerModel() {
+        ClassificationCascade.Result[] results = classify(trackIds);
+
+        assertResult(results[0], "weapon", "rifle", "ak47");
+        assertResult(results[1], "weapon", "rifle", "m4");
+        assertResult(results[2], "enemy", "player", "soldier");
+        assertEquals(0.9f, results[0].categoryConfidence, 0f);
+        assertEquals(0.85f, results[1].typeConfidence, 0f);
+
+        // category; weapon and enemy types; weapon_rifle and enemy_player objects
+        assertEquals(5, classifier.calls.size());
+        assertEquals(4, (int) classifier.callSizes.get(ClassificationCascade.CATEGORY_MODEL));
+        assertEquals(2, (int) classifier.callSizes.get("weapon_type_classifier"));
+        assertEquals(2, (int) classifier.callSizes.get("weapon_rifle_classifier"));
+        ClassificationCascade.Stats stats = cascade.getStats();
+        assertEquals(1, stats.stageCalls[0]);
+        assertEquals(2, stats.stageCalls[1]);
+        assertEquals(2, stats.stageCalls[2]);
+    }
+
+    @Test
+    public void lowCategoryConfidenceStopsAtTheFirstStage() {
+        ClassificationCascade.Result result = classify(trackIds)[3];
+
+        assertResult(result, ClassificationCascade.UNKNOWN_CATEGORY, ClassificationCascade.DEFAULT_TYPE,
+                "generic_" + ClassificationCascade.DEFAULT_TYPE);
+        assertFalse(classifier.calls.contains("item_type_classifier"));
+        assertEquals(1, cascade.getStats().earlyExits);
+    }
+
+    @Test
+    public void lowTypeConfidenceStopsAtTheSecondStage() {
+        classifier.answer("weapon_type_classifier", 2, "smg", 0.5f);
+
+        ClassificationCascade.Result result = classify(trackIds)[1];
+
+        assertResult(result, "weapon", ClassificationCascade.DEFAULT_TYPE,
+                "generic_" + ClassificationCascade.DEFAULT_TYPE);
+        assertEquals(1, (int) classifier.callSizes.get("weapon_rifle_classifier"));
+    }
+
+    @Test
+    public void missingObjectModelFallsBackToGenericName() {
+        classifier.answers.remove("enemy_player_classifier/3");
+
+        assertResult(classify(trackIds)[2], "enemy", "player", "generic_player");
+    }
+
+    @Test
+    public void trackedRegionsReuseResultsUntilRefresh() {
+        cascade.setRefreshFrames(3);
+        classify(trackIds);
+        int firstFrameCalls = classifier.calls.size();
+
+        ClassificationCascade.Result[] second = classify(trackIds);
+        ClassificationCascade.Result[] third = classify(trackIds);
+
+        assertTrue(second[0].cached);
+        assertTrue(third[2].cached);
+        assertResult(third[0], "weapon", "rifle", "ak47");
+        // Only the unknown region is retried on the cached frames
+        assertEquals(firstFrameCalls + 2, classifier.calls.size());
+
+        ClassificationCascade.Result[] fourth = classify(trackIds);
+        assertFalse(fourth[0].cached);
+        assertEquals(firstFrameCalls * 2 + 2, classifier.calls.size());
+        assertEquals(6, cascade.getStats().memoHits);
+    }
+
+    @Test
+    public void untrackedRegionsAreMatchedByOverlap() {
+        classify(null);
+        for (int i = 0; i < boxes.length; i += 2) {
+            boxes[i] += 2;
+        }
+        int calls = classifier.calls.size();
+
+        ClassificationCascade.Result[] moved = classify(null);
+
+        assertTrue(moved[0].cached);
+        assertTrue(moved[1].cached);
+        assertEquals(calls + 1, classifier.calls.size());
+
+        // Jumped well away from its last box: a new region
+        boxes[0] = 260;
+        boxes[2] = 300;
+        fill(0, 1);
+        assertFalse(classify(null)[0].cached);
+    }
+
+    @Test
+    public void unseenRegionsAreForgotten() {
+        cascade.setMaxMissedFrames(1);
+        classify(trackIds);
+        cascade.classify(rows, WIDTH, HEIGHT, new int[0], new int[0], 0);
+        cascade.classify(rows, WIDTH, HEIGHT, new int[0], new int[0], 0);
+
+        assertFalse(classify(trackIds)[0].cached);
+    }
+
+    @Test
+    public void onlyRegionPixelsAreRead() {
+        classify(trackIds);
+
+        assertTrue(rows.reads > 0);
+        for (int[] read : rows.readSpans) {
+            assertTrue("read outside every region: row " + read[0] + " x " + read[1] + ".." + read[2],
+                    insideSomeBox(read[0], read[1], read[2]));
+        }
+        assertTrue("read " + rows.pixels + " pixels", rows.pixels < WIDTH * HEIGHT / 4);
+    }
+
+    private ClassificationCascade.Result[] classify(int[] ids) {
+        return cascade.classify(rows, WIDTH, HEIGHT, boxes, ids, boxes.length / 4);
+    }
+
+    private void fill(int region, int value) {
+        int box = region * 4;
+        for (int y = boxes[box + 1]; y < boxes[box + 3]; y++) {
+            for (int x = boxes[box]; x < boxes[box + 2]; x++) {
+                frame[y * WIDTH + x] = value;
+            }
+        }
+    }
+
+    private boolean insideSomeBox(int y, int left, int right) {
+        for (int box = 0; box < boxes.length; box += 4) {
+            if (y >= boxes[box + 1] && y < boxes[box + 3] && left >= boxes[box] && right <= boxes[box + 2]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertResult(ClassificationCascade.Result result, String category, String type, String name) {
+        assertEquals(category, result.category);
+        assertEquals(type, result.type);
+        assertEquals(name, result.name);
+    }
+
+    /**
+     * Frame rows with every read recorded as {y, left, right}
+     */
+    private class CountingRows implements ImagePreprocessor.RowSource {
+        final List<int[]> readSpans = new ArrayList<>();
+        int reads;
+        long pixels;
+
+        @Override
+        public void readRow(int y, int left, int width, int[] dst) {
+            reads++;
+            pixels += width;
+            readSpans.add(new int[]{y, left, left + width});
+            System.arraycopy(frame, y * WIDTH + left, dst, 0, width);
+        }
+    }
+
+    /**
+     * Reads each region's centre pixel (its object id) through the row source
+     * and looks up the answer for that model and id
+     */
+    private static class FakeClassifier implements ClassificationCascade.BatchClassifier {
+        final Map<String, Object[]> answers = new HashMap<>();
+        final List<String> calls = new ArrayList<>();
+        final Map<String, Integer> callSizes = new HashMap<>();
+
+        void answer(String model, int id, String label, float confidence) {
+            answers.put(model + "/" + id, new Object[]{label, confidence});
+        }
+
+        @Override
+        public void classify(String modelName, ImagePreprocessor.RowSource frame, int frameWidth, int frameHeight,
+                             int[] boxes, int[] regions, int count, String[] labels, float[] confidences) {
+            calls.add(modelName);
+            callSizes.put(modelName, count);
+            int[] row = new int[1];
+            for (int i = 0; i < count; i++) {
+                int box = regions[i] * 4;
+                frame.readRow((boxes[box + 1] + boxes[box + 3]) / 2, (boxes[box] + boxes[box + 2]) / 2, 1, row);
+                Object[] answer = answers.get(modelName + "/" + row[0]);
+                if (answer != null) {
+                    labels[i] = (String) answer[0];
+                    confidences[i] = (Float) answer[1];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.gestureai.gameautomation.ml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.gestureai.gameautomation.database.TrajectoryCodec;
+import com.gestureai.gameautomation.database.entities.GestureDataEntity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TrajectoryClassifierTest {
+
+    private static final int N = TrajectoryClassifier.POINTS;
+
+    private TrajectoryClassifier classifier;
+
+    @Before
+    public void setUp() {
+        classifier = new TrajectoryClassifier();
+    }
+
+    @Test
+    public void pathsMatchTheNearestTemplate() {
+        classifier.trainResampled(Arrays.asList("right", "down"),
+                Arrays.asList(line(0, 0, 300, 0), line(0, 0, 0, 300)));
+
+        TrajectoryClassifier.Match match = classifier.classify(new float[]{500, 500, 790, 510}, 2);
+
+        assertNotNull(match);
+        assertEquals("right", match.label);
+        assertTrue("confidence " + match.confidence, match.confidence > 0.8f);
+    }
+
+    @Test
+    public void pathsAreComparedFromTheirStartingPoint() {
+        classifier.trainResampled(Collections.singletonList("right"),
+                Collections.singletonList(line(0, 0, 300, 0)));
+
+        TrajectoryClassifier.Match match = classifier.classify(new float[]{900, 1500, 1200, 1500}, 2);
+
+        assertEquals("right", match.label);
+        assertEquals(0f, match.rmsDistance, 1e-3f);
+        assertEquals(1f, match.confidence, 1e-5f);
+    }
+
+    @Test
+    public void templatesAreTheMeanOfTheirExamples() {
+        classifier.trainResampled(Arrays.asList("right", "right"),
+                Arrays.asList(line(0, 0, 200, 0), line(0, 0, 400, 0)));
+
+        TrajectoryClassifier.Match match = classifier.classify(new float[]{0, 0, 300, 0}, 2);
+
+        assertEquals(1, classifier.getTemplateCount());
+        assertEquals(0f, match.rmsDistance, 1e-3f);
+    }
+
+    @Test
+    public void pathsBeyondTheDistanceLimitDoNotMatch() {
+        classifier.setMaxRmsDistancePx(20f);
+        classifier.trainResampled(Collections.singletonList("right"),
+                Collections.singletonList(line(0, 0, 300, 0)));
+
+        assertNull(classifier.classify(new float[]{0, 0, 0, 300}, 2));
+    }
+
+    @Test
+    public void storedGesturesTrainByLabelAndSkipSynthesizedRows() {
+        GestureDataEntity right = gesture("SWIPE", "right", 0, 0, 300, 0);
+        GestureDataEntity down = gesture("SWIPE", null, 0, 0, 0, 300);
+        GestureDataEntity synthesized = gesture("SWIPE", "up", 0, 0, 0, -300);
+        synthesized.trajectorySynthesized = true;
+        GestureDataEntity unrecorded = new GestureDataEntity("TAP", 10, 10, 10, 10);
+
+        int used = classifier.train(Arrays.asList(right, down, synthesized, unrecorded));
+
+        assertEquals(2, used);
+        assertEquals(2, classifier.getTemplateCount());
+        assertEquals("SWIPE", classifier.classify(new float[]{0, 0, 0, 300}, 2).label);
+        assertEquals("right", classifier.classify(new float[]{0, 0, 300, 0}, 2).label);
+    }
+
+    @Test
+    public void trainingReplacesEarlierTemplates() {
+        classifier.trainResampled(Collections.singletonList("right"),
+                Collections.singletonList(line(0, 0, 300, 0)));
+
+        classifier.trainResampled(Collections.<String>emptyList(), Collections.<float[]>emptyList());
+
+        assertFalse(classifier.hasTemplates());
+        assertNull(classifier.classify(new float[]{0, 0, 300, 0}, 2));
+    }
+
+    private static GestureDataEntity gesture(String type, String label, float x0, float y0, float x1, float y1) {
+        GestureDataEntity gesture = new GestureDataEntity(type, x0, y0, x1, y1);
+        gesture.trainingLabel = label;
+        gesture.encodeTrajectory(new float[]{x0, y0, x1, y1}, 2);
+        return gesture;
+    }
+
+    private static float[] line(float x0, float y0, float x1, float y1) {
+        return TrajectoryCodec.resample(new float[]{x0, y0, x1, y1}, 2, N);
+    }
+}
@@ -0,0 +1,287 @@
+package com.gestureai.gameautomation.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.gestureai.gameautomation.GameAction;
+import com.gestureai.gameautomation.data.UniversalGameState;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReplayDriverTest {
+
+    private static final long SEED = 42;
+    private static final String[] LABELS = {"player", "enemy", "reward_coin", "item_box", "health_bar", "obstacle"};
+
+    private ReplayRecording recording;
+    private byte[] recordedBytes;
+
+    @Before
+    public void setUp() throws IOException {
+        recordedBytes = record(new StrategyPolicy(0), 300, 8);
+        recording = ReplayRecording.read(new ByteArrayInputStream(recordedBytes));
+    }
+
+    @Test
+    public void fusionFollowsPipelineRules() {
+        UniversalGameState state = new UniversalGameState();
+        ReplayRecording.Frame frame = frame(1_000, 1080, 2340);
+        frame.addDetection("enemy", 0.9f, 0, 0, 10, 10);
+        frame.addDetection("danger_zone", 0.5f, 0, 0, 10, 10);
+        frame.addDetection("reward_coin", 0.5f, 0, 0, 10, 10);
+        frame.addDetection("player", 1f, 100, 200, 140, 260);
+        frame.addDetection("player", 1f, 0, 0, 2, 2);
+        frame.addDetection("health_bar", 0.4f, 0, 0, 10, 10);
+
+        GameStateFusion.fuse(state, frame);
+
+        assertEquals(6, state.objectCount);
+        assertEquals((0.9f + 0.5f) * 0.3f, state.threatLevel, 1e-6f);
+        assertEquals(0.1f, state.opportunityLevel, 1e-6f);
+        assertEquals(120f, state.playerX, 0f);
+        assertEquals(230f, state.playerY, 0f);
+        assertEquals(0.4f, state.healthLevel, 0f);
+        assertEquals(1_000, state.timestamp);
+
+        // No player and no health bar: centre of the screen, health carried over
+        GameStateFusion.fuse(state, frame(1_033, 1080, 2340));
+        assertEquals(540f, state.playerX, 0f);
+        assertEquals(1170f, state.playerY, 0f);
+        assertEquals(0.4f, state.healthLevel, 0f);
+        assertEquals(0, state.threatLevel, 0f);
+    }
+
+    @Test
+    public void recordedSessionReplaysWithoutDiffs() {
+        ReplayDriver<ReplayRecording.Frame, GameAction> driver =
+                new ReplayDriver<>(recording, new PipelineReplayTarget(new StrategyPolicy(0), 0.7f));
+
+        ReplayDriver.Report report = driver.run(1, 3);
+
+        assertTrue(report.toString(), report.isClean());
+        assertEquals(900, report.frames);
+        assertTrue(report.framesPerSecond > 0);
+        assertEquals(Arrays.asList(ReplayDriver.STAGE_CAPTURE, ReplayDriver.STAGE_DETECTION,
+                ReplayDriver.STAGE_DECISION, ReplayDriver.STAGE_TOUCH),
+                Arrays.asList(report.stages.keySet().toArray()));
+        ReplayDriver.StagePercentiles decision = report.getStage(ReplayDriver.STAGE_DECISION);
+        assertTrue(decision.p99Ms >= decision.p50Ms);
+    }
+
+    @Test
+    public void changedPolicyIsReportedPerFrame() {
+        ReplayDriver<ReplayRecording.Frame, GameAction> driver =
+                new ReplayDriver<>(recording, new PipelineReplayTarget(new StrategyPolicy(0) {
+                    @Override
+                    public GameAction decide(UniversalGameState state) {
+                        // Never evades
+                        return state.threatLevel > 0.5f ? null : super.decide(state);
+                    }
+                }, 0.7f));
+
+        ReplayDriver.Report report = driver.run(0, 1);
+
+        int evasions = 0;
+        for (ReplayRecording.Frame frame : recording.getFrames()) {
+            if (frame.action != null && frame.action.type.equals("SWIPE_LEFT")) evasions++;
+        }
+        assertTrue("session has no evasions to lose", evasions > 0);
+        assertEquals(evasions, report.actionDiffCount);
+        assertEquals(Math.min(evasions, 20), report.actionDiffs.size());
+        ReplayDriver.ActionDiff first = report.actionDiffs.get(0);
+        assertEquals("SWIPE_LEFT", first.expected.type);
+        assertNull(first.actual);
+        assertEquals(recording.getFrames().get(first.frameIndex).timestampMs, first.timestampMs);
+    }
+
+    @Test
+    public void positionToleranceAcceptsSmallOffsets() {
+        ReplayDriver<ReplayRecording.Frame, GameAction> driver =
+                new ReplayDriver<>(recording, new PipelineReplayTarget(new StrategyPolicy(2), 0.7f));
+
+        assertFalse(driver.run(0, 1).isClean());
+
+        driver.setPositionTolerance(2);
+        assertTrue(driver.run(0, 1).isClean());
+    }
+
+    @Test
+    public void policyIgnoringTheSeedIsNondeterministic() {
+        StrategyPolicy unseeded = new StrategyPolicy(0) {
+            @Override
+            public void setRandomSeed(long seed) {
+                // Keeps drawing from one sequence across passes
+            }
+        };
+        ReplayDriver<ReplayRecording.Frame, GameAction> driver =
+                new ReplayDriver<>(recording, new PipelineReplayTarget(unseeded, 0.7f));
+
+        ReplayDriver.Report report = driver.run(0, 3);
+
+        assertEquals(2, report.nondeterministicPasses);
+        assertFalse(report.isClean());
+    }
+
+    @Test
+    public void eachPassStartsFromItsOwnFreshState() {
+        PipelineReplayTarget target = new PipelineReplayTarget(new StrategyPolicy(0), 0.7f);
+        recording.getFrames().get(0).state[ReplayRecording.STATE_HEALTH] = 0.25f;
+        recording.getFrames().get(0).state[ReplayRecording.STATE_SCORE] = 1234f;
+
+        target.reset(recording);
+        UniversalGameState first = target.getGameState();
+        assertEquals(0.25f, first.healthLevel, 0f);
+        assertEquals(1234f, first.gameScore, 0f);
+        target.decide(target.detect(recording.getFrames().get(0)), recording.getFrames().get(0));
+
+        target.reset(recording);
+        assertNotSame(first, target.getGameState());
+        assertNotSame(first, target.getGameContext().gameState);
+        assertEquals(0, target.getGameState().objectCount);
+        assertEquals(0, target.getActionsExecuted());
+    }
+
+    @Test
+    public void touchCountsOnlyConfidentActions() {
+        PipelineReplayTarget target = new PipelineReplayTarget(new StrategyPolicy(0), 0.8f);
+        target.reset(recording);
+
+        target.touch(new GameAction("TAP", 1, 1, 0.75f, "collect"));
+        target.touch(new GameAction("SWIPE_LEFT", 1, 1, 0.8f, "evade"));
+
+        assertEquals(1, target.getActionsExecuted());
+    }
+
+    @Test
+    public void failingPolicyFallsBackToWait() {
+        PipelineReplayTarget target = new PipelineReplayTarget(new StrategyPolicy(0) {
+            @Override
+            public GameAction decide(UniversalGameState state) {
+                throw new IllegalStateException("model not loaded");
+            }
+        }, 0.7f);
+        target.reset(recording);
+        ReplayRecording.Frame frame = recording.getFrames().get(0);
+
+        GameAction action = target.decide(target.detect(frame), frame);
+
+        assertEquals("WAIT", action.getActionType());
+        assertEquals(1, target.getPolicyErrors());
+    }
+
+    @Test
+    public void recordingRoundTripsFramesAndState() {
+        assertEquals(SEED, recording.getSeed());
+        assertEquals(300, recording.getFrameCount());
+        List<ReplayRecording.Frame> frames = recording.getFrames();
+        for (int i = 1; i < frames.size(); i++) {
+            assertTrue(frames.get(i).timestampMs > frames.get(i - 1).timestampMs);
+        }
+        ReplayRecording.Frame last = frames.get(frames.size() - 1);
+        assertEquals(8, last.detectionCount);
+        assertEquals(1080, last.width);
+        assertEquals(8f, last.state[ReplayRecording.STATE_OBJECT_COUNT], 0f);
+    }
+
+    @Test
+    public void truncatedRecordingKeepsCompleteFrames() throws IOException {
+        byte[] cut = Arrays.copyOf(recordedBytes, recordedBytes.length / 2);
+
+        ReplayRecording partial = ReplayRecording.read(new ByteArrayInputStream(cut));
+
+        assertTrue(partial.getFrameCount() > 0);
+        assertTrue(partial.getFrameCount() < recording.getFrameCount());
+        ReplayRecording.Frame expected = recording.getFrames().get(partial.getFrameCount() - 1);
+        ReplayRecording.Frame actual = partial.getFrames().get(partial.getFrameCount() - 1);
+        assertEquals(expected.timestampMs, actual.timestampMs);
+        assertEquals(expected.detectionCount, actual.detectionCount);
+        assertNotNull(actual.labels[0]);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        ReplayRecording.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    /**
+     * Record a synthetic session the way the pipeline does: fuse, decide,
+     * snapshot the state and write the frame
+     */
+    private static byte[] record(StrategyPolicy policy, int frames, int detectionsPerFrame) throws IOException {
+        Random random = new Random(7);
+        PipelineReplayTarget live = new PipelineReplayTarget(policy, 0.7f);
+        live.reset(new ReplayRecording(SEED, new ArrayList<>()));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ReplayRecording.Writer writer = new ReplayRecording.Writer(bytes, SEED)) {
+            long timestamp = 1_700_000_000_000L;
+            for (int f = 0; f < frames; f++) {
+                ReplayRecording.Frame frame = frame(timestamp, 1080, 2340);
+                timestamp += 33 + random.nextInt(5);
+                for (int d = 0; d < detectionsPerFrame; d++) {
+                    int x = random.nextInt(1000);
+                    int y = random.nextInt(2200);
+                    frame.addDetection(LABELS[random.nextInt(LABELS.length)], 0.5f + random.nextFloat() * 0.5f,
+                            x, y, x + 40 + random.nextInt(80), y + 40 + random.nextInt(80));
+                }
+                frame.action = live.toRecorded(live.decide(live.detect(frame), frame));
+                GameStateFusion.snapshot(live.getGameState(), frame.state);
+                writer.writeFrame(frame);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ReplayRecording.Frame frame(long timestampMs, int width, int height) {
+        ReplayRecording.Frame frame = new ReplayRecording.Frame();
+        frame.timestampMs = timestampMs;
+        frame.width = width;
+        frame.height = height;
+        return frame;
+    }
+
+    /**
+     * Evade on high threat in a random direction, collect on opportunity;
+     * xOffset shifts every action to simulate a small behaviour change
+     */
+    private static class StrategyPolicy implements PipelineReplayTarget.DecisionPolicy {
+        private final Random random = new Random();
+        private final int xOffset;
+
+        StrategyPolicy(int xOffset) {
+            this.xOffset = xOffset;
+        }
+
+        @Override
+        public void setRandomSeed(long seed) {
+            random.setSeed(seed);
+        }
+
+        @Override
+        public GameAction decide(UniversalGameState state) {
+            if (state.threatLevel > 0.5f) {
+                int dx = random.nextBoolean() ? 150 : -150;
+                return new GameAction("SWIPE_LEFT", (int) state.playerX + dx + xOffset, (int) state.playerY,
+                        0.8f, "evade");
+            }
+            if (state.opportunityLevel > 0.2f) {
+                return new GameAction("TAP", (int) state.playerX + xOffset, (int) state.playerY - 200,
+                        0.75f, "collect");
+            }
+            return null;
+        }
+    }
+}
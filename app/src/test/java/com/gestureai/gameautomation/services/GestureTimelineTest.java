@@ -0,0 +1,212 @@
+package com.gestureai.gameautomation.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class GestureTimelineTest {
+
+    private static final float EPS = 1e-4f;
+
+    @Test
+    public void strokeLimitStartsNewGestureWhenFirstStrokeEnds() {
+        GestureTimeline timeline = new GestureTimeline()
+                .addTap(10, 10, 0, 50)
+                .addTap(20, 20, 0, 50)
+                .addTap(30, 30, 0, 50);
+
+        List<GestureTimeline.Batch> batches = timeline.pack(2, 60_000);
+
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).pieces.size());
+        assertEquals(0, batches.get(0).startMs);
+        assertEquals(50, batches.get(0).durationMs);
+
+        GestureTimeline.Batch second = batches.get(1);
+        assertEquals(1, second.pieces.size());
+        assertEquals(50, second.startMs);
+        GestureTimeline.Piece third = second.pieces.get(0);
+        assertEquals(2, third.strokeIndex);
+        assertEquals(0, third.offsetMs);
+        assertEquals(50, third.durationMs);
+        assertFalse(third.willContinue);
+        assertEquals(-1, third.continuesPiece);
+    }
+
+    @Test
+    public void strokeLimitSplitsStrokeStillRunningAtCut() {
+        GestureTimeline timeline = new GestureTimeline()
+                .addTap(0, 0, 0, 100)
+                .addHold(50, 50, 10, 100)
+                .addTap(90, 90, 20, 100);
+
+        List<GestureTimeline.Batch> batches = timeline.pack(2, 60_000);
+
+        assertEquals(2, batches.size());
+        for (GestureTimeline.Batch batch : batches) {
+            assertTrue(batch.pieces.size() <= 2);
+        }
+
+        // The first gesture is cut when the first tap ends; the hold continues
+        List<GestureTimeline.Piece> first = batches.get(0).pieces;
+        assertEquals(100, batches.get(0).durationMs);
+        assertFalse(first.get(0).willContinue);
+        GestureTimeline.Piece holdHead = first.get(1);
+        assertEquals(1, holdHead.strokeIndex);
+        assertEquals(10, holdHead.offsetMs);
+        assertEquals(90, holdHead.durationMs);
+        assertTrue(holdHead.willContinue);
+
+        List<GestureTimeline.Piece> second = batches.get(1).pieces;
+        GestureTimeline.Piece holdTail = second.get(0);
+        assertEquals(1, holdTail.strokeIndex);
+        assertEquals(0, holdTail.offsetMs);
+        assertEquals(10, holdTail.durationMs);
+        assertEquals(1, holdTail.continuesPiece);
+        assertFalse(holdTail.willContinue);
+        assertEquals(2, second.get(1).strokeIndex);
+    }
+
+    @Test
+    public void durationLimitSplitsLongStrokeIntoContinuedPieces() {
+        GestureTimeline timeline = new GestureTimeline()
+                .addLine(0, 0, 100, 200, 0, 250);
+
+        List<GestureTimeline.Batch> batches = timeline.pack(10, 100);
+
+        assertEquals(3, batches.size());
+        long[] starts = {0, 100, 200};
+        long[] durations = {100, 100, 50};
+        for (int i = 0; i < 3; i++) {
+            GestureTimeline.Batch batch = batches.get(i);
+            assertEquals(starts[i], batch.startMs);
+            assertEquals(1, batch.pieces.size());
+            GestureTimeline.Piece piece = batch.pieces.get(0);
+            assertEquals(0, piece.offsetMs);
+            assertEquals(durations[i], piece.durationMs);
+            assertEquals(i < 2, piece.willContinue);
+            assertEquals(i == 0 ? -1 : 0, piece.continuesPiece);
+        }
+        assertEquals(0, timeline.getSlipMs());
+    }
+
+    @Test
+    public void continuationIndexesPieceInPreviousBatch() {
+        GestureTimeline timeline = new GestureTimeline()
+                .addTap(5, 5, 0, 50)
+                .addHold(40, 60, 10, 150);
+
+        List<GestureTimeline.Batch> batches = timeline.pack(10, 100);
+
+        assertEquals(2, batches.size());
+        GestureTimeline.Piece head = batches.get(0).pieces.get(1);
+        assertEquals(1, head.strokeIndex);
+        assertTrue(head.willContinue);
+
+        GestureTimeline.Piece tail = batches.get(1).pieces.get(0);
+        assertEquals(1, tail.strokeIndex);
+        assertEquals(1, tail.continuesPiece);
+        assertEquals(60, tail.durationMs);
+        assertTrue(tail.isStationary());
+        assertEquals(40, tail.fromX, EPS);
+        assertEquals(60, tail.fromY, EPS);
+    }
+
+    @Test
+    public void overlappingStrokeBeyondLimitIsDelayedAndCountedAsSlip() {
+        GestureTimeline timeline = new GestureTimeline()
+                .addTap(0, 0, 0, 50)
+                .addTap(0, 0, 0, 50)
+                .addTap(0, 0, 0, 50)
+                .addTap(0, 0, 30, 50);
+
+        List<GestureTimeline.Batch> batches = timeline.pack(2, 60_000);
+
+        assertEquals(2, batches.size());
+        assertEquals(50, batches.get(1).startMs);
+        // Third stroke waits 50 ms, fourth waits 20 ms
+        assertEquals(70, timeline.getSlipMs());
+    }
+
+    @Test
+    public void strokesThatFitLeaveNoSlip() {
+        GestureTimeline timeline = new GestureTimeline()
+                .addTap(0, 0, 0, 50)
+                .addTap(0, 0, 100, 50);
+
+        List<GestureTimeline.Batch> batches = timeline.pack(1, 60_000);
+
+        assertEquals(2, batches.size());
+        assertEquals(100, batches.get(1).startMs);
+        assertEquals(0, timeline.getSlipMs());
+    }
+
+    @Test
+    public void slipIsResetByEachPack() {
+        GestureTimeline timeline = new GestureTimeline()
+                .addTap(0, 0, 0, 50)
+                .addTap(0, 0, 0, 50);
+
+        timeline.pack(1, 60_000);
+        assertEquals(50, timeline.getSlipMs());
+        timeline.pack(2, 60_000);
+        assertEquals(0, timeline.getSlipMs());
+        timeline.clear();
+        assertEquals(0, timeline.getSlipMs());
+        assertTrue(timeline.pack().isEmpty());
+    }
+
+    @Test
+    public void splitLinePiecesInterpolateAlongTheLine() {
+        GestureTimeline timeline = new GestureTimeline()
+                .addLine(0, 0, 100, 200, 0, 250);
+
+        List<GestureTimeline.Batch> batches = timeline.pack(10, 100);
+
+        float[][] expected = {
+                {0, 0, 40, 80},
+                {40, 80, 80, 160},
+                {80, 160, 100, 200},
+        };
+        for (int i = 0; i < expected.length; i++) {
+            GestureTimeline.Piece piece = batches.get(i).pieces.get(0);
+            assertEquals(expected[i][0], piece.fromX, EPS);
+            assertEquals(expected[i][1], piece.fromY, EPS);
+            assertEquals(expected[i][2], piece.toX, EPS);
+            assertEquals(expected[i][3], piece.toY, EPS);
+        }
+        // Consecutive pieces join without a jump
+        for (int i = 1; i < batches.size(); i++) {
+            GestureTimeline.Piece previous = batches.get(i - 1).pieces.get(0);
+            GestureTimeline.Piece current = batches.get(i).pieces.get(0);
+            assertEquals(previous.toX, current.fromX, EPS);
+            assertEquals(previous.toY, current.fromY, EPS);
+        }
+    }
+
+    @Test
+    public void delayedLineStillStartsAtItsFirstPoint() {
+        GestureTimeline timeline = new GestureTimeline()
+                .addTap(0, 0, 0, 100)
+                .addLine(10, 20, 110, 20, 50, 100);
+
+        List<GestureTimeline.Batch> batches = timeline.pack(1, 60_000);
+
+        assertEquals(2, batches.size());
+        assertEquals(50, timeline.getSlipMs());
+        GestureTimeline.Piece line = batches.get(1).pieces.get(0);
+        assertEquals(100, line.durationMs);
+        assertEquals(10, line.fromX, EPS);
+        assertEquals(110, line.toX, EPS);
+        assertEquals(20, line.toY, EPS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveDuration() {
+        new GestureTimeline().addTap(0, 0, 0, 0);
+    }
+}
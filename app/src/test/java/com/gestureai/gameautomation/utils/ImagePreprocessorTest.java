@@ -0,0 +1,324 @@
+package com.gestureai.gameautomation.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ImagePreprocessorTest {
+
+    @Test
+    public void nearestTakesOneSourcePixelPerOutput() {
+        // Red channel holds x + 10 * y
+        int[] image = gradient(4, 4);
+        ImagePreprocessor preprocessor = raw(2, 2, ImagePreprocessor.ResizeMode.NEAREST)
+                .setChannelOrder(ImagePreprocessor.ChannelOrder.GRAY).build();
+
+        float[] out = floats(preprocessor.process(image, 4, 4));
+
+        assertArrayEquals(new float[]{0, 2, 20, 22}, out, 1e-4f);
+    }
+
+    @Test
+    public void bilinearBlendsTheFourNeighbours() {
+        int[] image = gradient(4, 4);
+        ImagePreprocessor preprocessor = raw(2, 2, ImagePreprocessor.ResizeMode.BILINEAR)
+                .setChannelOrder(ImagePreprocessor.ChannelOrder.GRAY).build();
+
+        float[] out = floats(preprocessor.process(image, 4, 4));
+
+        // Pixel centres map to 0.5 and 2.5 on both axes
+        assertArrayEquals(new float[]{5.5f, 7.5f, 25.5f, 27.5f}, out, 1e-3f);
+    }
+
+    @Test
+    public void bilinearUpscaleClampsAtTheEdges() {
+        int[] image = {argb(0, 0, 0), argb(100, 100, 100)};
+        ImagePreprocessor preprocessor = raw(4, 1, ImagePreprocessor.ResizeMode.BILINEAR)
+                .setChannelOrder(ImagePreprocessor.ChannelOrder.GRAY).build();
+
+        float[] out = floats(preprocessor.process(image, 2, 1));
+
+        assertArrayEquals(new float[]{0f, 25f, 75f, 100f}, out, 1e-3f);
+    }
+
+    @Test
+    public void roiMatchesACroppedImage() {
+        int[] image = noise(64, 48, 1);
+        int[] cropped = new int[20 * 16];
+        for (int y = 0; y < 16; y++) {
+            System.arraycopy(image, (10 + y) * 64 + 30, cropped, y * 20, 20);
+        }
+        for (ImagePreprocessor.ResizeMode mode : ImagePreprocessor.ResizeMode.values()) {
+            ImagePreprocessor preprocessor = new ImagePreprocessor.Builder()
+                    .setOutputSize(8, 8).setResizeMode(mode).build();
+
+            float[] fromRoi = floats(preprocessor.process(image, 64, 48, 30, 10, 20, 16));
+            float[] fromCrop = floats(preprocessor.process(cropped, 20, 16));
+
+            assertArrayEquals(mode.name(), fromCrop, fromRoi, 0f);
+        }
+    }
+
+    @Test
+    public void roiIsClampedToTheImage() {
+        int[] image = noise(32, 32, 2);
+        ImagePreprocessor preprocessor = new ImagePreprocessor.Builder().setOutputSize(4, 4).build();
+
+        float[] clamped = floats(preprocessor.process(image, 32, 32, 16, 16, 100, 100));
+        float[] inside = floats(preprocessor.process(image, 32, 32, 16, 16, 16, 16));
+
+        assertArrayEquals(inside, clamped, 0f);
+    }
+
+    @Test
+    public void channelOrders() {
+        int[] image = {argb(200, 100, 50)};
+
+        assertArrayEquals(new float[]{200, 100, 50}, floats(raw(1, 1, ImagePreprocessor.ResizeMode.NEAREST)
+                .build().process(image, 1, 1)), 1e-4f);
+        assertArrayEquals(new float[]{50, 100, 200}, floats(raw(1, 1, ImagePreprocessor.ResizeMode.NEAREST)
+                .setChannelOrder(ImagePreprocessor.ChannelOrder.BGR).build().process(image, 1, 1)), 1e-4f);
+        float luma = 0.299f * 200 + 0.587f * 100 + 0.114f * 50;
+        assertArrayEquals(new float[]{luma}, floats(raw(1, 1, ImagePreprocessor.ResizeMode.NEAREST)
+                .setChannelOrder(ImagePreprocessor.ChannelOrder.GRAY).build().process(image, 1, 1)), 1e-3f);
+    }
+
+    @Test
+    public void normalizationIsPerChannel() {
+        int[] image = {argb(255, 0, 128)};
+
+        float[] unit = floats(new ImagePreprocessor.Builder().setOutputSize(1, 1).build().process(image, 1, 1));
+        assertArrayEquals(new float[]{1f, 0f, 128 / 255f}, unit, 1e-6f);
+
+        float[] imagenet = floats(new ImagePreprocessor.Builder().setOutputSize(1, 1)
+                .setNormalization(new float[]{124f, 116f, 104f}, new float[]{58f, 57f, 57f})
+                .setChannelOrder(ImagePreprocessor.ChannelOrder.BGR)
+                .build().process(image, 1, 1));
+        assertArrayEquals(new float[]{(128 - 104f) / 57f, (0 - 116f) / 57f, (255 - 124f) / 58f}, imagenet, 1e-5f);
+    }
+
+    @Test
+    public void quantizationRoundsShiftsAndClamps() {
+        int[] image = {argb(255, 0, 127)};
+        // [-1, 1] inputs quantized with scale 1/127 around 128
+        ImagePreprocessor preprocessor = new ImagePreprocessor.Builder().setOutputSize(1, 1)
+                .setNormalization(127.5f, 127.5f)
+                .setQuantization(1f / 127, 128)
+                .build();
+
+        ByteBuffer out = preprocessor.process(image, 1, 1);
+
+        assertEquals(ImagePreprocessor.OutputType.UINT8, preprocessor.getOutputType());
+        assertEquals(3, preprocessor.getInputSizeBytes());
+        assertEquals(255, out.get(0) & 0xFF);
+        assertEquals(1, out.get(1) & 0xFF);
+        assertEquals(128, out.get(2) & 0xFF);
+
+        ImagePreprocessor saturating = new ImagePreprocessor.Builder().setOutputSize(1, 1)
+                .setNormalization(0f, 1f)
+                .setQuantization(0.5f, 0)
+                .build();
+        assertEquals(255, saturating.process(image, 1, 1).get(0) & 0xFF);
+    }
+
+    @Test
+    public void rowSourceMatchesTheArrayPath() {
+        int width = 97;
+        int height = 61;
+        int[] image = noise(width, height, 3);
+        for (ImagePreprocessor.ResizeMode mode : ImagePreprocessor.ResizeMode.values()) {
+            for (int[] roi : new int[][]{{0, 0, width, height}, {13, 7, 40, 50}, {90, 50, 30, 30}}) {
+                ImagePreprocessor preprocessor = new ImagePreprocessor.Builder()
+                        .setOutputSize(24, 16).setResizeMode(mode).build();
+                CountingRows rows = new CountingRows(image, width);
+
+                float[] fromArray = floats(preprocessor.process(image, width, height, roi[0], roi[1], roi[2], roi[3]));
+                float[] fromRows = floats(preprocessor.process(rows, width, height, roi[0], roi[1], roi[2], roi[3]));
+
+                assertArrayEquals(mode + " " + roi[0] + "," + roi[1], fromArray, fromRows, 0f);
+                // Each sampled row is read once, and only across the ROI
+                assertTrue(rows.reads <= 2 * preprocessor.getOutputHeight());
+                assertTrue(rows.minLeft >= Math.min(roi[0], width - 1));
+            }
+        }
+    }
+
+    @Test
+    public void rowSourceReadsOnlySampledRows() {
+        int[] image = noise(1920, 1080, 4);
+        ImagePreprocessor preprocessor = new ImagePreprocessor.Builder()
+                .setOutputSize(224, 224).setResizeMode(ImagePreprocessor.ResizeMode.NEAREST).build();
+        CountingRows rows = new CountingRows(image, 1920);
+
+        preprocessor.process(rows, 1920, 1080);
+
+        assertEquals(224, rows.reads);
+        assertEquals(224L * 1920, rows.pixels);
+    }
+
+    @Test
+    public void outputBufferIsReusedPerThread() {
+        int[] image = noise(16, 16, 5);
+        ImagePreprocessor preprocessor = new ImagePreprocessor.Builder().setOutputSize(4, 4).build();
+
+        ByteBuffer first = preprocessor.process(image, 16, 16);
+        ByteBuffer second = preprocessor.process(image, 16, 16);
+
+        assertSame(first, second);
+        assertTrue(first.isDirect());
+        assertEquals(4 * 4 * 3 * 4, first.remaining());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyOutput() {
+        new ImagePreprocessor.Builder().setOutputSize(0, 224).build();
+    }
+
+    /**
+     * Fused preprocessing against the scale-then-copy path it replaced: a
+     * scaled frame copy, then a fresh buffer filled pixel by pixel. Opt-in,
+     * run with -Dbenchmark=true.
+     */
+    @Test
+    public void throughputAgainstScaleThenCopy() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        int width = 1080;
+        int height = 2340;
+        int size = 224;
+        int iterations = 200;
+        int[] frame = noise(width, height, 6);
+        ImagePreprocessor preprocessor = new ImagePreprocessor.Builder().setOutputSize(size, size).build();
+        ImagePreprocessor.RowSource rows = (y, left, rowWidth, dst) ->
+                System.arraycopy(frame, y * width + left, dst, 0, rowWidth);
+
+        float sink = 0f;
+        for (int i = 0; i < 20; i++) {
+            sink += scaleThenCopy(frame, width, height, size).get(0);
+            sink += preprocessor.process(rows, width, height).get(0);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += scaleThenCopy(frame, width, height, size).get(0);
+        }
+        double baselineMs = (System.nanoTime() - start) / 1e6 / iterations;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += preprocessor.process(rows, width, height).get(0);
+        }
+        double fusedMs = (System.nanoTime() - start) / 1e6 / iterations;
+
+        System.out.printf("preprocess %dx%d -> %d: scale-then-copy %.3f ms, fused %.3f ms (%.1fx)%n",
+                width, height, size, baselineMs, fusedMs, baselineMs / fusedMs);
+        assertTrue(sink != 0f);
+    }
+
+    /**
+     * Bitmap.createScaledBitmap(filter = true) into a new pixel array, then a
+     * new direct buffer filled with putFloat
+     */
+    private static ByteBuffer scaleThenCopy(int[] frame, int width, int height, int size) {
+        int[] scaled = new int[size * size];
+        float scaleX = (float) width / size;
+        float scaleY = (float) height / size;
+        for (int y = 0; y < size; y++) {
+            float fy = Math.max(0f, (y + 0.5f) * scaleY - 0.5f);
+            int y0 = (int) fy;
+            int y1 = Math.min(y0 + 1, height - 1);
+            float wy = fy - y0;
+            for (int x = 0; x < size; x++) {
+                float fx = Math.max(0f, (x + 0.5f) * scaleX - 0.5f);
+                int x0 = (int) fx;
+                int x1 = Math.min(x0 + 1, width - 1);
+                float wx = fx - x0;
+                int pixel = 0xFF000000;
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    float top = ((frame[y0 * width + x0] >> shift) & 0xFF) * (1 - wx)
+                            + ((frame[y0 * width + x1] >> shift) & 0xFF) * wx;
+                    float bottom = ((frame[y1 * width + x0] >> shift) & 0xFF) * (1 - wx)
+                            + ((frame[y1 * width + x1] >> shift) & 0xFF) * wx;
+                    pixel |= Math.round(top * (1 - wy) + bottom * wy) << shift;
+                }
+                scaled[y * size + x] = pixel;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size * size * 3 * 4).order(ByteOrder.nativeOrder());
+        for (int pixel : scaled) {
+            buffer.putFloat(((pixel >> 16) & 0xFF) / 255.0f);
+            buffer.putFloat(((pixel >> 8) & 0xFF) / 255.0f);
+            buffer.putFloat((pixel & 0xFF) / 255.0f);
+        }
+        buffer.rewind();
+        return buffer;
+    }
+
+    /**
+     * Raw 0-255 values, so expected outputs read as pixel values
+     */
+    private static ImagePreprocessor.Builder raw(int width, int height, ImagePreprocessor.ResizeMode mode) {
+        return new ImagePreprocessor.Builder().setOutputSize(width, height).setResizeMode(mode)
+                .setNormalization(0f, 1f);
+    }
+
+    private static float[] floats(ByteBuffer buffer) {
+        FloatBuffer view = buffer.asFloatBuffer();
+        float[] out = new float[view.remaining()];
+        view.get(out);
+        return out;
+    }
+
+    private static int argb(int r, int g, int b) {
+        return 0xFF000000 | r << 16 | g << 8 | b;
+    }
+
+    private static int[] gradient(int width, int height) {
+        int[] image = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = x + 10 * y;
+                image[y * width + x] = argb(v, v, v);
+            }
+        }
+        return image;
+    }
+
+    private static int[] noise(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] image = new int[width * height];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return image;
+    }
+
+    private static class CountingRows implements ImagePreprocessor.RowSource {
+        private final int[] image;
+        private final int stride;
+        int reads;
+        long pixels;
+        int minLeft = Integer.MAX_VALUE;
+
+        CountingRows(int[] image, int stride) {
+            this.image = image;
+            this.stride = stride;
+        }
+
+        @Override
+        public void readRow(int y, int left, int width, int[] dst) {
+            reads++;
+            pixels += width;
+            minLeft = Math.min(minLeft, left);
+            System.arraycopy(image, y * stride + left, dst, 0, width);
+        }
+    }
+}
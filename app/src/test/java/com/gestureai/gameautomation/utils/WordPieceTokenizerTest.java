@@ -0,0 +1,154 @@
+package com.gestureai.gameautomation.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WordPieceTokenizerTest {
+
+    private static final List<String> VOCAB = Arrays.asList(
+            "[PAD]", "[UNK]", "[CLS]", "[SEP]",
+            "want", "##want", "##ed", "un", "runn", "##ing",
+            "low", "lowest", "##est", ",", "!",
+            "ab", "abc", "##d", "##ce");
+
+    private WordPieceTokenizer tokenizer;
+
+    @Before
+    public void setUp() {
+        tokenizer = WordPieceTokenizer.fromTokens(VOCAB);
+    }
+
+    @Test
+    public void specialTokensComeFromTheVocabulary() {
+        assertEquals(0, tokenizer.getPadId());
+        assertEquals(1, tokenizer.getUnkId());
+        assertEquals(2, tokenizer.getClsId());
+        assertEquals(3, tokenizer.getSepId());
+        assertEquals(VOCAB.size(), tokenizer.getVocabularySize());
+    }
+
+    @Test
+    public void missingSpecialTokensKeepTheBertDefaults() {
+        WordPieceTokenizer plain = WordPieceTokenizer.fromTokens(Arrays.asList("a", "b"));
+
+        assertEquals(100, plain.getUnkId());
+        assertEquals(101, plain.getClsId());
+        assertEquals(102, plain.getSepId());
+    }
+
+    @Test
+    public void wholeWordsAreSingleTokens() {
+        assertTokens("want runn", "want", "runn");
+    }
+
+    @Test
+    public void longestMatchWins() {
+        // lowest rather than low + ##est
+        assertTokens("lowest", "lowest");
+        assertTokens("lowing", "low", "##ing");
+    }
+
+    @Test
+    public void wordsContinueWithPrefixedPieces() {
+        assertTokens("unwanted running", "un", "##want", "##ed", "runn", "##ing");
+    }
+
+    @Test
+    public void continuationPiecesDoNotStartWords() {
+        // "ed" only exists as ##ed
+        assertTokens("ed want", "[UNK]", "want");
+    }
+
+    @Test
+    public void greedyMatchDoesNotBacktrack() {
+        assertTokens("abcd", "abc", "##d");
+        // ab + ##ce would cover it, but abc is taken first and ##e does not exist
+        assertTokens("abce", "[UNK]");
+    }
+
+    @Test
+    public void wordsThatCannotBeSplitBecomeOneUnknown() {
+        // The pieces matched before the dead end are dropped
+        assertTokens("wantx low", "[UNK]", "low");
+        assertTokens("xyz", "[UNK]");
+    }
+
+    @Test
+    public void overlongWordsAreUnknown() {
+        char[] word = new char[101];
+        Arrays.fill(word, 'a');
+
+        assertTokens(new String(word) + " low", "[UNK]", "low");
+    }
+
+    @Test
+    public void punctuationIsSplitOff() {
+        assertTokens("want,low!", "want", ",", "low", "!");
+    }
+
+    @Test
+    public void textIsLowerCasedAndAccentsStripped() {
+        assertTokens("  WANT\tLów\n", "want", "low");
+    }
+
+    @Test
+    public void outputIsCutAtTheMaximumLength() {
+        int[] out = new int[16];
+
+        int count = tokenizer.encode("unwanted running", out, 5);
+
+        // [SEP] keeps its place at the end
+        assertEquals(5, count);
+        assertArrayEquals(ids("[CLS]", "un", "##want", "##ed", "[SEP]"), Arrays.copyOf(out, count));
+    }
+
+    @Test
+    public void outputArrayAlsoBoundsTheLength() {
+        int[] out = new int[3];
+
+        int count = tokenizer.encode("want low", out, 128);
+
+        assertEquals(3, count);
+        assertArrayEquals(ids("[CLS]", "want", "[SEP]"), out);
+    }
+
+    @Test
+    public void limitsBelowTwoWriteNothing() {
+        assertEquals(0, tokenizer.encode("want", new int[8], 1));
+        assertEquals(2, tokenizer.encode("want", new int[8], 2));
+        assertEquals(2, tokenizer.encode(null, new int[8], 8));
+    }
+
+    private void assertTokens(String text, String... tokens) {
+        int[] out = new int[256];
+        int count = tokenizer.encode(text, out, out.length);
+
+        String[] expected = new String[tokens.length + 2];
+        expected[0] = "[CLS]";
+        System.arraycopy(tokens, 0, expected, 1, tokens.length);
+        expected[expected.length - 1] = "[SEP]";
+        assertEquals(Arrays.toString(expected), Arrays.toString(names(out, count)));
+    }
+
+    private static int[] ids(String... tokens) {
+        int[] ids = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            ids[i] = VOCAB.indexOf(tokens[i]);
+        }
+        return ids;
+    }
+
+    private static String[] names(int[] ids, int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = VOCAB.get(ids[i]);
+        }
+        return names;
+    }
+}
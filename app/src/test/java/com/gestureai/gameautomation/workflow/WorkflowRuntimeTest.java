@@ -0,0 +1,201 @@
+package com.gestureai.gameautomation.workflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkflowRuntimeTest {
+
+    private WorkflowVariables variables;
+    private WorkflowRuntime runtime;
+    private int counterSlot;
+    private int limitSlot;
+
+    @Before
+    public void setUp() {
+        variables = new WorkflowVariables();
+        counterSlot = variables.slotOf("counter");
+        limitSlot = variables.slotOf("limit");
+        variables.setNumber(counterSlot, 0);
+        variables.setNumber(limitSlot, 1);
+        runtime = new WorkflowRuntime("WorkflowRuntimeTest", 2, variables);
+    }
+
+    @After
+    public void tearDown() {
+        runtime.shutdown();
+    }
+
+    @Test
+    public void loopsRunEveryTaskOnSharedVariables() throws Exception {
+        int workflows = 8;
+        int iterations = 500;
+        int tasks = 3;
+
+        runAll(countingLoop(tasks, iterations, 0), workflows);
+
+        assertEquals((double) workflows * iterations * tasks, variables.getNumber(counterSlot), 0);
+        assertTrue(runtime.getExecutedSteps() >= (long) workflows * iterations * tasks);
+        assertEquals(0, runtime.getActiveCount());
+    }
+
+    @Test
+    public void failedCompareSkipsTheBody() throws Exception {
+        variables.setNumber(limitSlot, -1);
+
+        runAll(countingLoop(2, 10, 0), 4);
+
+        assertEquals(0, variables.getNumber(counterSlot), 0);
+    }
+
+    @Test
+    public void delayedLoopsShareWorkersInsteadOfSleepingThreads() throws Exception {
+        // 200 workflows x 3 iterations x 20 ms on two threads; a sleeping pool
+        // would need 200 * 60 / 2 = 6 s
+        int workflows = 200;
+        long start = System.nanoTime();
+
+        runAll(countingLoop(1, 3, 20), workflows);
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("finished too early: " + elapsedMs + "ms", elapsedMs >= 60);
+        assertTrue("took " + elapsedMs + "ms", elapsedMs < 2000);
+        assertEquals(workflows * 3, variables.getNumber(counterSlot), 0);
+        assertTrue(runtime.getMeanWakeLatenessMs() >= 0);
+    }
+
+    @Test
+    public void reactiveAwaitResumesWhenWatchedSlotChanges() throws Exception {
+        int trigger = variables.slotOf("trigger");
+        variables.setNumber(trigger, 0);
+        WorkflowProgram.Builder builder = new WorkflowProgram.Builder("await");
+        builder.emitAwait(new WorkflowProgram.Await(
+                vars -> vars.getNumber(trigger) >= 1, new int[]{trigger}, 1), 0);
+        builder.emitTask(vars -> vars.addNumber(counterSlot, 1));
+        WorkflowRuntime.Handle handle = runtime.start(builder.build());
+
+        Thread.sleep(50);
+        assertFalse(handle.isDone());
+        assertEquals(0, variables.getNumber(counterSlot), 0);
+
+        variables.setNumber(trigger, 1);
+
+        assertTrue(handle.getCompletion().get(1, TimeUnit.SECONDS));
+        assertEquals(1, variables.getNumber(counterSlot), 0);
+        assertTrue(runtime.getSignalWakeupCount() >= 1);
+    }
+
+    @Test
+    public void awaitTimeoutJumpsToItsTarget() throws Exception {
+        WorkflowProgram.Builder builder = new WorkflowProgram.Builder("timeout");
+        int await = builder.emitAwait(new WorkflowProgram.Await(vars -> false, null, 5), 30);
+        builder.emitTask(vars -> vars.addNumber(counterSlot, 100));
+        builder.patchToHere(await);
+        builder.emitTask(vars -> vars.addNumber(counterSlot, 1));
+
+        long start = System.nanoTime();
+        assertTrue(runtime.start(builder.build()).getCompletion().get(1, TimeUnit.SECONDS));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 30);
+        assertEquals(1, variables.getNumber(counterSlot), 0);
+    }
+
+    @Test
+    public void cancelWakesWaitingInstance() throws Exception {
+        WorkflowProgram.Builder builder = new WorkflowProgram.Builder("sleeper");
+        builder.emitWait(60_000);
+        builder.emitTask(vars -> vars.addNumber(counterSlot, 1));
+        WorkflowRuntime.Handle handle = runtime.start(builder.build());
+        Thread.sleep(20);
+
+        handle.cancel();
+
+        assertFalse(handle.getCompletion().get(1, TimeUnit.SECONDS));
+        assertEquals(0, variables.getNumber(counterSlot), 0);
+        assertEquals(0, runtime.getActiveCount());
+    }
+
+    @Test
+    public void stepBudgetKeepsTightLoopFromStarvingOthers() throws Exception {
+        runtime.shutdown();
+        runtime = new WorkflowRuntime("WorkflowRuntimeTest", 1, variables,
+                WorkflowRuntime.DEFAULT_TICK_MS, WorkflowRuntime.DEFAULT_WHEEL_SIZE, 64);
+
+        WorkflowRuntime.Handle spinner = runtime.start(countingLoop(1, 5_000_000, 0));
+        WorkflowRuntime.Handle quick = runtime.start(countingLoop(1, 10, 0));
+
+        assertTrue(quick.getCompletion().get(1, TimeUnit.SECONDS));
+        assertFalse("tight loop finished before the short one", spinner.isDone());
+        spinner.cancel();
+        assertFalse(spinner.getCompletion().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failingTaskCompletesExceptionallyAndNotifiesListener() throws Exception {
+        // The listener runs right after the completion future is completed
+        CompletableFuture<Exception> reported = new CompletableFuture<>();
+        runtime.setListener(new WorkflowRuntime.Listener() {
+            @Override
+            public void onCompleted(WorkflowRuntime.Handle handle) {
+            }
+
+            @Override
+            public void onFailed(WorkflowRuntime.Handle handle, Exception error) {
+                reported.complete(error);
+            }
+        });
+        WorkflowProgram.Builder builder = new WorkflowProgram.Builder("failing");
+        builder.emitTask(vars -> {
+            throw new IllegalStateException("boom");
+        });
+
+        WorkflowRuntime.Handle handle = runtime.start(builder.build());
+        try {
+            handle.getCompletion().get(1, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(reported.get(1, TimeUnit.SECONDS) instanceof IllegalStateException);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsStartAfterShutdown() {
+        runtime.shutdown();
+        runtime.start(countingLoop(1, 1, 0));
+    }
+
+    /**
+     * iterations x (compare limit >= 0, then tasks increments of counter), loopDelayMs between iterations
+     */
+    private WorkflowProgram countingLoop(int tasks, int iterations, long loopDelayMs) {
+        WorkflowProgram.Builder builder = new WorkflowProgram.Builder("counting");
+        builder.emitLoopInit(0);
+        int loopTest = builder.emitLoopTest(0, iterations);
+        int compare = builder.emitCompare(limitSlot, WorkflowProgram.CMP_GE, 0);
+        for (int t = 0; t < tasks; t++) {
+            builder.emitTask(vars -> vars.addNumber(counterSlot, 1));
+        }
+        builder.emitLoopNext(0, loopDelayMs, loopTest);
+        builder.patchToHere(loopTest);
+        builder.patchToHere(compare);
+        return builder.build();
+    }
+
+    private void runAll(WorkflowProgram program, int workflows) throws Exception {
+        CompletableFuture<?>[] runs = new CompletableFuture<?>[workflows];
+        for (int w = 0; w < workflows; w++) {
+            runs[w] = runtime.start(program).getCompletion();
+        }
+        CompletableFuture.allOf(runs).get(10, TimeUnit.SECONDS);
+    }
+}